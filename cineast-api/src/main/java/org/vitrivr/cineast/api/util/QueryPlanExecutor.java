@@ -0,0 +1,126 @@
+package org.vitrivr.cineast.api.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Executes the nodes of a query plan (e.g. the retrieval of a single query term in one category) on a bounded pool shared by all queries, and records the timing of every node.
+ * <p>
+ * Dependencies between nodes are expressed by composing the returned {@link CompletableFuture}s, so no pool thread ever waits for another node; only the thread calling {@link #await(CompletableFuture)} blocks. An instance covers the execution of a single query.
+ * <p>
+ * A plan created on a pool thread (e.g. a synchronous query issued by a node) executes its nodes inline on that thread instead, since waiting for nodes queued behind the waiting thread could deadlock the pool. For the same reason, a pool thread may not wait for a pending node of a plan created elsewhere.
+ */
+public final class QueryPlanExecutor {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  /**
+   * Set on the threads of the {@link #POOL}.
+   */
+  private static final ThreadLocal<Boolean> POOL_THREAD = ThreadLocal.withInitial(() -> false);
+
+  private static final ExecutorService POOL = Executors.newFixedThreadPool(Math.max(1, Config.sharedConfig().getApi().getQueryPlanParallelism()), r -> {
+    final Thread thread = new Thread(() -> {
+      POOL_THREAD.set(true);
+      r.run();
+    }, "query-plan-" + THREAD_COUNTER.getAndIncrement());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Timing of a single node of the query plan.
+   *
+   * @param node     Name of the node.
+   * @param start    Start of the node in ms, relative to the creation of the {@link QueryPlanExecutor}.
+   * @param duration Execution time of the node in ms.
+   */
+  public record NodeTiming(String node, long start, long duration) {
+
+  }
+
+  private final long created = System.nanoTime();
+
+  /**
+   * True if the plan was created on a pool thread and executes its nodes on the calling thread.
+   */
+  private final boolean inline = POOL_THREAD.get();
+
+  private final List<NodeTiming> timings = new ArrayList<>();
+
+  /**
+   * Schedules a node of the query plan for execution.
+   *
+   * @param name     Name of the node, used for the timings.
+   * @param supplier Computation of the node.
+   * @return {@link CompletableFuture} completed with the result of the node.
+   */
+  public <T> CompletableFuture<T> node(String name, Supplier<T> supplier) {
+    if (this.inline) {
+      try {
+        return CompletableFuture.completedFuture(this.execute(name, supplier));
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    return CompletableFuture.supplyAsync(() -> this.execute(name, supplier), POOL);
+  }
+
+  private <T> T execute(String name, Supplier<T> supplier) {
+    final long start = System.nanoTime();
+    try {
+      return supplier.get();
+    } finally {
+      final long end = System.nanoTime();
+      synchronized (this.timings) {
+        this.timings.add(new NodeTiming(name, TimeUnit.NANOSECONDS.toMillis(start - this.created), TimeUnit.NANOSECONDS.toMillis(end - start)));
+      }
+    }
+  }
+
+  /**
+   * Waits for the given (final) node of the query plan and returns its result. Exceptions thrown by a node are rethrown unwrapped.
+   *
+   * @throws IllegalStateException If called on a pool thread for a pending node of a plan that was not created on a pool thread.
+   */
+  public <T> T await(CompletableFuture<T> future) {
+    if (!this.inline && POOL_THREAD.get() && !future.isDone()) {
+      throw new IllegalStateException("A query plan thread cannot wait for a query plan that executes on the pool.");
+    }
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    } finally {
+      LOGGER.trace("Query plan timings: {}", this.getTimings());
+    }
+  }
+
+  /**
+   * Returns the timings of all nodes executed so far, ordered by their start.
+   */
+  public List<NodeTiming> getTimings() {
+    final List<NodeTiming> copy;
+    synchronized (this.timings) {
+      copy = new ArrayList<>(this.timings);
+    }
+    copy.sort(Comparator.comparingLong(NodeTiming::start));
+    return copy;
+  }
+}
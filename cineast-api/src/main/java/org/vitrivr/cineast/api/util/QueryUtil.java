@@ -10,8 +10,10 @@
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -57,18 +59,20 @@ public class QueryUtil {
    * @return The query results as a map of query term categories to scored segment lists.
    */
   public static HashMap<String, List<StringDoublePair>> findSegmentsSimilar(ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryTerm> terms, QueryConfig config) {
-    HashMap<String, List<StringDoublePair>> returnMap = new HashMap<>();
-
-    // Group terms by categories
-    var categoryMap = QueryUtil.groupQueryTermsByCategory(terms);
-
-    for (var category : categoryMap.keySet()) {
-      var containerList = categoryMap.get(category).stream().map(x -> new Pair<>(x, (ReadableQueryConfig) config)).collect(Collectors.toList());
-      var categoryResults = QueryUtil.retrieveCategory(continuousRetrievalLogic, containerList, category);
-      returnMap.put(category, categoryResults);
-    }
+    return findSegmentsSimilar(continuousRetrievalLogic, terms, config, new QueryPlanExecutor());
+  }
 
-    return returnMap;
+  /**
+   * Executes a similarity query specified by the list of {@link QueryTerm}s. Categories and the query terms within a category are retrieved concurrently.
+   *
+   * @param continuousRetrievalLogic The continuous retrieval logic to execute the query.
+   * @param terms                    The terms specifying the query.
+   * @param config                   The config to use for this query.
+   * @param plan                     The {@link QueryPlanExecutor} to execute the query with; provides the timings afterwards.
+   * @return The query results as a map of query term categories to scored segment lists.
+   */
+  public static HashMap<String, List<StringDoublePair>> findSegmentsSimilar(ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryTerm> terms, QueryConfig config, QueryPlanExecutor plan) {
+    return plan.await(similar(plan, continuousRetrievalLogic, terms, config, ""));
   }
 
   /**
@@ -82,28 +86,20 @@ public static HashMap<String, List<StringDoublePair>> findSegmentsSimilar(Contin
    * @return The query results as a map of query term categories to scored segment lists.
    */
   public static HashMap<String, List<StringDoublePair>> findSegmentsSimilarStaged(ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryStage> stages, QueryConfig config) {
-    var stageConfig = config.clone();
-
-    var stagedQueryResults = new ArrayList<HashMap<String, List<StringDoublePair>>>();
-
-    for (QueryStage stage : stages) {
-      var stageResults = findSegmentsSimilar(continuousRetrievalLogic, stage.terms(), stageConfig);
-      stagedQueryResults.add(stageResults);
-
-      var relevantSegments = new HashSet<String>();
-      for (var result : stageResults.values()) {
-        relevantSegments.addAll(result.stream().map(StringDoublePair::key).toList());
-      }
-
-      // Return empty results if there are no more results in stage
-      if (relevantSegments.isEmpty()) {
-        return stageResults;
-      }
-
-      stageConfig.setRelevantSegmentIds(relevantSegments);
-    }
+    return findSegmentsSimilarStaged(continuousRetrievalLogic, stages, config, new QueryPlanExecutor());
+  }
 
-    return mergeStagedQueryResults(stagedQueryResults);
+  /**
+   * Executes a staged similarity query specified by the list of {@link QueryStage}s. Stages are executed in order, as each stage is restricted to the segments found by its predecessor; the categories within a stage are retrieved concurrently.
+   *
+   * @param continuousRetrievalLogic The continuous retrieval logic to execute the query.
+   * @param stages                   The stages specifying the query.
+   * @param config                   The config to use for this query.
+   * @param plan                     The {@link QueryPlanExecutor} to execute the query with; provides the timings afterwards.
+   * @return The query results as a map of query term categories to scored segment lists.
+   */
+  public static HashMap<String, List<StringDoublePair>> findSegmentsSimilarStaged(ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryStage> stages, QueryConfig config, QueryPlanExecutor plan) {
+    return plan.await(staged(plan, continuousRetrievalLogic, stages, config, ""));
   }
 
   /**
@@ -115,7 +111,24 @@ public static HashMap<String, List<StringDoublePair>> findSegmentsSimilarStaged(
    * @return The query results as a list of temporal objects.
    */
   public static List<TemporalObject> findSegmentsSimilarTemporal(ContinuousRetrievalLogic continuousRetrievalLogic, TemporalQuery query, QueryConfig config) {
-    var stagedResults = query.queries().stream().map(stagedQuery -> findSegmentsSimilarStaged(continuousRetrievalLogic, stagedQuery.stages(), config)).toList();
+    return findSegmentsSimilarTemporal(continuousRetrievalLogic, query, config, new QueryPlanExecutor());
+  }
+
+  /**
+   * Executes a temporal similarity query. The staged queries of all temporal containers are executed concurrently.
+   *
+   * @param continuousRetrievalLogic The continuous retrieval logic to execute the query.
+   * @param query                    The temporal query to execute.
+   * @param config                   The config to use for the execution of the query
+   * @param plan                     The {@link QueryPlanExecutor} to execute the query with; provides the timings afterwards.
+   * @return The query results as a list of temporal objects.
+   */
+  public static List<TemporalObject> findSegmentsSimilarTemporal(ContinuousRetrievalLogic continuousRetrievalLogic, TemporalQuery query, QueryConfig config, QueryPlanExecutor plan) {
+    final List<CompletableFuture<HashMap<String, List<StringDoublePair>>>> containers = new ArrayList<>(query.queries().size());
+    for (int i = 0; i < query.queries().size(); i++) {
+      containers.add(staged(plan, continuousRetrievalLogic, query.queries().get(i).stages(), config, "container" + i + "/"));
+    }
+    var stagedResults = plan.await(all(containers));
 
     // TODO: New MediaSegmentReader for every request like FindSegmentByIdPostHandler or one persistent on per endpoint like AbstractQueryMessageHandler?
     try (var segmentReader = new MediaSegmentReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get())) {
@@ -128,6 +141,63 @@ public static List<TemporalObject> findSegmentsSimilarTemporal(ContinuousRetriev
     }
   }
 
+  /**
+   * Plans the retrieval of all categories of the given terms; the categories are independent of each other.
+   */
+  private static CompletableFuture<HashMap<String, List<StringDoublePair>>> similar(QueryPlanExecutor plan, ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryTerm> terms, QueryConfig config, String prefix) {
+    // Group terms by categories
+    var categoryMap = QueryUtil.groupQueryTermsByCategory(terms);
+
+    final Map<String, CompletableFuture<List<StringDoublePair>>> categories = new LinkedHashMap<>();
+    for (var category : categoryMap.keySet()) {
+      var containerList = categoryMap.get(category).stream().map(x -> new Pair<>(x, (ReadableQueryConfig) config)).collect(Collectors.toList());
+      categories.put(category, retrieveCategory(plan, continuousRetrievalLogic, containerList, category, prefix + category));
+    }
+
+    return CompletableFuture.allOf(categories.values().toArray(CompletableFuture[]::new)).thenApply(v -> {
+      HashMap<String, List<StringDoublePair>> returnMap = new HashMap<>();
+      categories.forEach((category, results) -> returnMap.put(category, results.join()));
+      return returnMap;
+    });
+  }
+
+  /**
+   * Plans the stages of a staged query as a chain: each stage depends on the relevant segments found by its predecessor.
+   */
+  private static CompletableFuture<HashMap<String, List<StringDoublePair>>> staged(QueryPlanExecutor plan, ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryStage> stages, QueryConfig config, String prefix) {
+    return stage(plan, continuousRetrievalLogic, stages, 0, config.clone(), new ArrayList<>(), prefix);
+  }
+
+  private static CompletableFuture<HashMap<String, List<StringDoublePair>>> stage(QueryPlanExecutor plan, ContinuousRetrievalLogic continuousRetrievalLogic, List<QueryStage> stages, int index, QueryConfig stageConfig, ArrayList<HashMap<String, List<StringDoublePair>>> stagedQueryResults, String prefix) {
+    if (index == stages.size()) {
+      return CompletableFuture.completedFuture(mergeStagedQueryResults(stagedQueryResults));
+    }
+    return similar(plan, continuousRetrievalLogic, stages.get(index).terms(), stageConfig, prefix + "stage" + index + "/").thenCompose(stageResults -> {
+      stagedQueryResults.add(stageResults);
+
+      var relevantSegments = new HashSet<String>();
+      for (var result : stageResults.values()) {
+        relevantSegments.addAll(result.stream().map(StringDoublePair::key).toList());
+      }
+
+      // Return empty results if there are no more results in stage
+      if (relevantSegments.isEmpty()) {
+        return CompletableFuture.completedFuture(stageResults);
+      }
+
+      var nextConfig = stageConfig.clone();
+      nextConfig.setRelevantSegmentIds(relevantSegments);
+      return stage(plan, continuousRetrievalLogic, stages, index + 1, nextConfig, stagedQueryResults, prefix);
+    });
+  }
+
+  /**
+   * Combines the given futures into a future of the list of their results, in order.
+   */
+  private static <T> CompletableFuture<List<T>> all(List<CompletableFuture<T>> futures) {
+    return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+  }
+
   /**
    * Merges staged query results into a single result map.
    *
@@ -173,9 +243,22 @@ public static HashMap<String, ArrayList<AbstractQueryTermContainer>> groupQueryT
     return categoryMap;
   }
 
+  /**
+   * Retrieves the given query term containers in one category and blocks until the results are available. When called from a node of a query plan, the containers are retrieved on the calling thread (see {@link QueryPlanExecutor}).
+   */
   public static List<StringDoublePair> retrieveCategory(ContinuousRetrievalLogic continuousRetrievalLogic, List<Pair<AbstractQueryTermContainer, ReadableQueryConfig>> queryContainers, String category) {
-    ObjectDoubleHashMap<String> scoreBySegmentId = new ObjectDoubleHashMap<>();
-    for (Pair<AbstractQueryTermContainer, ReadableQueryConfig> pair : queryContainers) {
+    final QueryPlanExecutor plan = new QueryPlanExecutor();
+    return plan.await(retrieveCategory(plan, continuousRetrievalLogic, queryContainers, category, category));
+  }
+
+  /**
+   * Plans the retrieval of one category: all query term containers are retrieved concurrently and their weighted scores are summed up in the order of the containers, so that the result does not depend on the order of completion.
+   */
+  private static CompletableFuture<List<StringDoublePair>> retrieveCategory(QueryPlanExecutor plan, ContinuousRetrievalLogic continuousRetrievalLogic, List<Pair<AbstractQueryTermContainer, ReadableQueryConfig>> queryContainers, String category, String name) {
+    final List<CompletableFuture<List<SegmentScoreElement>>> terms = new ArrayList<>(queryContainers.size());
+    final List<Float> weights = new ArrayList<>(queryContainers.size());
+    for (int i = 0; i < queryContainers.size(); i++) {
+      Pair<AbstractQueryTermContainer, ReadableQueryConfig> pair = queryContainers.get(i);
 
       if (pair == null) {
         continue;
@@ -184,35 +267,40 @@ public static List<StringDoublePair> retrieveCategory(ContinuousRetrievalLogic c
       AbstractQueryTermContainer qc = pair.first;
       ReadableQueryConfig qconf = pair.second;
 
-      float weight = MathHelper.limit(qc.getWeight(), -1f, 1f);
-
-      retrieveAndWeight(continuousRetrievalLogic, category, scoreBySegmentId, qc, qconf, weight);
-
+      weights.add(MathHelper.limit(qc.getWeight(), -1f, 1f));
+      terms.add(plan.node(name + "/term" + i, () -> retrieveScores(continuousRetrievalLogic, category, qc, qconf)));
     }
-    final List<StringDoublePair> list = new ArrayList<>(scoreBySegmentId.size());
-    scoreBySegmentId.forEach((ObjectDoublePredicate<? super String>) (segmentId, score) -> {
-      if (score > 0) {
-        list.add(new StringDoublePair(segmentId, score));
+
+    return all(terms).thenApply(scores -> {
+      ObjectDoubleHashMap<String> scoreBySegmentId = new ObjectDoubleHashMap<>();
+      for (int i = 0; i < scores.size(); i++) {
+        addWeighted(scoreBySegmentId, scores.get(i), weights.get(i));
       }
-      return true;
-    });
+      final List<StringDoublePair> list = new ArrayList<>(scoreBySegmentId.size());
+      scoreBySegmentId.forEach((ObjectDoublePredicate<? super String>) (segmentId, score) -> {
+        if (score > 0) {
+          list.add(new StringDoublePair(segmentId, score));
+        }
+        return true;
+      });
 
-    list.sort(StringDoublePair.COMPARATOR);
+      list.sort(StringDoublePair.COMPARATOR);
 
-    // FIXME: Using an arbitrary query config to limit results is prone to errors
-    final int MAX_RESULTS = queryContainers.get(0).second.getMaxResults().orElse(Config.sharedConfig().getRetriever().getMaxResults());
-    List<StringDoublePair> resultList = list;
-    if (list.size() > MAX_RESULTS) {
-      resultList = resultList.subList(0, MAX_RESULTS);
-    }
-    return resultList;
+      // FIXME: Using an arbitrary query config to limit results is prone to errors
+      final int MAX_RESULTS = queryContainers.get(0).second.getMaxResults().orElse(Config.sharedConfig().getRetriever().getMaxResults());
+      List<StringDoublePair> resultList = list;
+      if (list.size() > MAX_RESULTS) {
+        resultList = resultList.subList(0, MAX_RESULTS);
+      }
+      return resultList;
+    });
   }
 
   public static List<StringDoublePair> retrieve(ContinuousRetrievalLogic continuousRetrievalLogic, AbstractQueryTermContainer queryTermContainer, ReadableQueryConfig config, String category) {
     float weight = MathHelper.limit(queryTermContainer.getWeight(), -1f, 1f);
     ObjectDoubleHashMap<String> scoreBySegmentId = new ObjectDoubleHashMap<>();
 
-    retrieveAndWeight(continuousRetrievalLogic, category, scoreBySegmentId, queryTermContainer, config, weight);
+    addWeighted(scoreBySegmentId, retrieveScores(continuousRetrievalLogic, category, queryTermContainer, config), weight);
 
     final List<StringDoublePair> list = new ArrayList<>(scoreBySegmentId.size());
     scoreBySegmentId.forEach((ObjectDoublePredicate<? super String>) (segmentId, score) -> {
@@ -225,14 +313,15 @@ public static List<StringDoublePair> retrieve(ContinuousRetrievalLogic continuou
     return list;
   }
 
-  private static void retrieveAndWeight(ContinuousRetrievalLogic continuousRetrievalLogic, String category, ObjectDoubleHashMap<String> scoreBySegmentId, AbstractQueryTermContainer qc, ReadableQueryConfig qconf, float weight) {
-    List<SegmentScoreElement> scoreResults;
+  private static List<SegmentScoreElement> retrieveScores(ContinuousRetrievalLogic continuousRetrievalLogic, String category, AbstractQueryTermContainer qc, ReadableQueryConfig qconf) {
     if (qc.hasId()) {
-      scoreResults = continuousRetrievalLogic.retrieve(qc.getId(), category, qconf);
+      return continuousRetrievalLogic.retrieve(qc.getId(), category, qconf);
     } else {
-      scoreResults = continuousRetrievalLogic.retrieve(qc, category, qconf);
+      return continuousRetrievalLogic.retrieve(qc, category, qconf);
     }
+  }
 
+  private static void addWeighted(ObjectDoubleHashMap<String> scoreBySegmentId, List<SegmentScoreElement> scoreResults, float weight) {
     for (SegmentScoreElement element : scoreResults) {
       String segmentId = element.getSegmentId();
       double score = element.getScore();
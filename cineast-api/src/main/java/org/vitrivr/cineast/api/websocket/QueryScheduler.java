@@ -0,0 +1,358 @@
+package org.vitrivr.cineast.api.websocket;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.util.LogHelper;
+import org.vitrivr.cineast.standalone.monitoring.QuerySchedulerMonitor;
+
+/**
+ * Executes WebSocket queries on a fixed number of worker threads with admission control.
+ * <p>
+ * Queries are submitted on behalf of an owner (usually the WebSocket session) and rejected once that owner has too many queries queued or running, or once too many queries are waiting globally. Queued tasks are executed in the order of their {@link Priority} and, within a priority, in the order of submission.
+ * <p>
+ * Tasks running on a worker can {@link #fork(Priority, Runnable)} sub-tasks (e.g. per-container retrieval or metadata prefetching), which are never rejected and are cancelled together with the query that created them. Sub-tasks must be awaited with {@link #await(Future)}, which executes a sub-task that has not been picked up yet on the calling thread, so that a query waiting for its own sub-tasks can never exhaust the bounded pool.
+ */
+public final class QueryScheduler {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * The {@link Task} executed by the current thread, if any.
+   */
+  private static final ThreadLocal<Task> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Execution priorities in descending order of precedence.
+   */
+  public enum Priority {
+    /**
+     * Queries a user is actively waiting for.
+     */
+    INTERACTIVE,
+    /**
+     * More-like-this queries, which are usually issued for browsing.
+     */
+    MORE_LIKE_THIS,
+    /**
+     * Metadata lookups that are sent after the actual results.
+     */
+    PREFETCH
+  }
+
+  /**
+   * Reasons for rejecting a query, also used as label for {@link QuerySchedulerMonitor#reportRejection(String)}.
+   */
+  private static final String REJECTED_SESSION = "session";
+  private static final String REJECTED_CAPACITY = "capacity";
+  private static final String REJECTED_SHUTDOWN = "shutdown";
+
+  private final int maxPerOwner;
+
+  private final int maxQueued;
+
+  private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+
+  /**
+   * Active tasks and number of admitted queries per owner. Guarded by itself.
+   */
+  private final Map<Object, Owner> owners = new HashMap<>();
+
+  /**
+   * Number of top-level queries that have been admitted but not yet started.
+   */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private final List<Thread> workers;
+
+  private volatile boolean shutdown = false;
+
+  /**
+   * Creates and starts a new QueryScheduler.
+   *
+   * @param concurrency Number of worker threads.
+   * @param maxPerOwner Maximum number of queries an owner may have queued or running.
+   * @param maxQueued   Maximum number of queries waiting for execution across all owners.
+   */
+  public QueryScheduler(int concurrency, int maxPerOwner, int maxQueued) {
+    if (concurrency < 1 || maxPerOwner < 1 || maxQueued < 1) {
+      throw new IllegalArgumentException("Concurrency and queue limits of the query scheduler must be positive.");
+    }
+    this.maxPerOwner = maxPerOwner;
+    this.maxQueued = maxQueued;
+    this.workers = new ArrayList<>(concurrency);
+    for (int i = 0; i < concurrency; i++) {
+      final Thread worker = new Thread(this::work, "query-worker-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      this.workers.add(worker);
+    }
+  }
+
+  /**
+   * Submits a query for execution.
+   *
+   * @param owner    Owner of the query, used for admission control and {@link #cancel(Object)}.
+   * @param priority {@link Priority} of the query.
+   * @param query    The query to execute.
+   * @return {@link Future} of the query.
+   * @throws RejectedExecutionException If the query was not admitted; the message describes the reason.
+   */
+  public Future<?> submit(Object owner, Priority priority, Runnable query) {
+    if (this.shutdown) {
+      throw this.reject(REJECTED_SHUTDOWN, "Query scheduler has been shut down.");
+    }
+    if (this.queued.incrementAndGet() > this.maxQueued) {
+      this.queued.decrementAndGet();
+      throw this.reject(REJECTED_CAPACITY, "Too many queries are waiting for execution; please retry later.");
+    }
+    final Task task = new Task(this, owner, priority, query, true);
+    synchronized (this.owners) {
+      final Owner state = this.owners.computeIfAbsent(owner, o -> new Owner());
+      if (state.queries >= this.maxPerOwner) {
+        this.queued.decrementAndGet();
+        throw this.reject(REJECTED_SESSION, "Too many concurrent queries for this session (limit is " + this.maxPerOwner + ").");
+      }
+      state.queries += 1;
+      state.tasks.add(task);
+    }
+    QuerySchedulerMonitor.reportQueued(this.queued.get());
+    this.queue.offer(task);
+    return task;
+  }
+
+  /**
+   * Forks a sub-task of the query executed by the current thread, at the priority of that query.
+   *
+   * @see #fork(Priority, Runnable)
+   */
+  public static Future<?> fork(Runnable runnable) {
+    final Task parent = CURRENT.get();
+    return fork(parent == null ? Priority.INTERACTIVE : parent.priority, runnable);
+  }
+
+  /**
+   * Forks a sub-task of the query executed by the current thread. Sub-tasks bypass admission control, belong to the owner of the forking query and must be awaited using {@link #await(Future)}.
+   * <p>
+   * If the current thread is not a worker of a {@link QueryScheduler}, the sub-task is executed immediately on the current thread.
+   *
+   * @param priority {@link Priority} of the sub-task.
+   * @param runnable The sub-task to execute.
+   * @return {@link Future} of the sub-task.
+   * @throws CancellationException If the forking query has been cancelled.
+   */
+  public static Future<?> fork(Priority priority, Runnable runnable) {
+    final Task parent = CURRENT.get();
+    if (parent == null) {
+      final FutureTask<Void> task = new FutureTask<>(runnable, null);
+      task.run();
+      return task;
+    }
+    if (parent.isCancelled()) {
+      throw new CancellationException("Query has been cancelled.");
+    }
+    final QueryScheduler scheduler = parent.scheduler;
+    final Task task = new Task(scheduler, parent.owner, priority, runnable, false);
+    synchronized (scheduler.owners) {
+      final Owner state = scheduler.owners.get(parent.owner);
+      if (state == null) {
+        throw new CancellationException("Query has been cancelled.");
+      }
+      state.tasks.add(task);
+    }
+    scheduler.queue.offer(task);
+    return task;
+  }
+
+  /**
+   * Waits for a {@link Future} returned by {@link #fork(Priority, Runnable)}. If the task has not been started yet, it is executed on the calling thread.
+   *
+   * @param future The {@link Future} to wait for.
+   * @throws InterruptedException If the calling thread was interrupted, e.g. because its query was cancelled.
+   * @throws ExecutionException   If the task failed.
+   */
+  public static <T> T await(Future<T> future) throws InterruptedException, ExecutionException {
+    if (future instanceof Task task && task.scheduler.queue.remove(task)) {
+      task.execute();
+    }
+    return future.get();
+  }
+
+  /**
+   * Cancels all queued and running queries (including their sub-tasks) of the given owner, e.g. because its WebSocket session was closed.
+   *
+   * @param owner The owner whose queries should be cancelled.
+   */
+  public void cancel(Object owner) {
+    final Owner state;
+    synchronized (this.owners) {
+      state = this.owners.remove(owner);
+    }
+    if (state == null) {
+      return;
+    }
+    int cancelled = 0;
+    for (Task task : state.tasks) {
+      if (this.queue.remove(task)) {
+        task.dequeued();
+      }
+      if (task.cancel(true)) {
+        cancelled += 1;
+      }
+    }
+    if (cancelled > 0) {
+      LOGGER.debug("Cancelled {} query tasks of closed session.", cancelled);
+    }
+  }
+
+  /**
+   * Stops accepting queries, cancels all pending and running queries and waits for the workers to terminate.
+   *
+   * @param timeout Maximum time to wait.
+   * @param unit    {@link TimeUnit} of the timeout.
+   */
+  public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+    this.shutdown = true;
+    final List<Object> owners;
+    synchronized (this.owners) {
+      owners = new ArrayList<>(this.owners.keySet());
+    }
+    owners.forEach(this::cancel);
+    this.workers.forEach(Thread::interrupt);
+    final long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Thread worker : this.workers) {
+      worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+    }
+  }
+
+  /**
+   * Main loop of a worker thread.
+   */
+  private void work() {
+    while (!this.shutdown) {
+      final Task task;
+      try {
+        task = this.queue.take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      try {
+        task.execute();
+      } catch (Throwable t) {
+        LOGGER.error("Unhandled error in query task: {}", LogHelper.getStackTrace(t));
+      }
+      /* Clears a pending interrupt of a task that was cancelled while running. */
+      Thread.interrupted();
+    }
+  }
+
+  private RejectedExecutionException reject(String reason, String message) {
+    QuerySchedulerMonitor.reportRejection(reason);
+    LOGGER.warn("Rejected query: {}", message);
+    return new RejectedExecutionException(message);
+  }
+
+  /**
+   * Book-keeping of a single owner.
+   */
+  private static final class Owner {
+
+    private final Set<Task> tasks = new HashSet<>();
+
+    private int queries = 0;
+  }
+
+  /**
+   * A query or sub-task, ordered by priority and then by submission.
+   */
+  private static final class Task extends FutureTask<Void> implements Comparable<Task> {
+
+    private final QueryScheduler scheduler;
+
+    private final Object owner;
+
+    private final Priority priority;
+
+    private final boolean query;
+
+    private final long sequence;
+
+    private final long submitted = System.nanoTime();
+
+    private final AtomicBoolean dequeued = new AtomicBoolean(false);
+
+    private Task(QueryScheduler scheduler, Object owner, Priority priority, Runnable runnable, boolean query) {
+      super(runnable, null);
+      this.scheduler = scheduler;
+      this.owner = owner;
+      this.priority = priority;
+      this.query = query;
+      this.sequence = scheduler.sequence.getAndIncrement();
+    }
+
+    /**
+     * Runs this task on the current thread after it has been taken from the queue.
+     */
+    private void execute() {
+      this.dequeued();
+      if (this.isDone()) {
+        return;
+      }
+      QuerySchedulerMonitor.reportWaitTime(this.priority.name(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.submitted));
+      final Task previous = CURRENT.get();
+      CURRENT.set(this);
+      try {
+        this.run();
+      } finally {
+        CURRENT.set(previous);
+      }
+    }
+
+    /**
+     * Accounts for this task having left the queue; idempotent.
+     */
+    private void dequeued() {
+      if (this.query && this.dequeued.compareAndSet(false, true)) {
+        QuerySchedulerMonitor.reportQueued(this.scheduler.queued.decrementAndGet());
+      }
+    }
+
+    @Override
+    protected void done() {
+      synchronized (this.scheduler.owners) {
+        final Owner state = this.scheduler.owners.get(this.owner);
+        if (state != null && state.tasks.remove(this)) {
+          if (this.query) {
+            state.queries -= 1;
+          }
+          if (state.tasks.isEmpty()) {
+            this.scheduler.owners.remove(this.owner);
+          }
+        }
+      }
+    }
+
+    @Override
+    public int compareTo(Task o) {
+      final int c = this.priority.compareTo(o.priority);
+      return c != 0 ? c : Long.compare(this.sequence, o.sequence);
+    }
+  }
+}
@@ -4,9 +4,7 @@
 import java.util.HashMap;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -20,6 +18,9 @@
 import org.vitrivr.cineast.api.messages.general.AnyMessage;
 import org.vitrivr.cineast.api.messages.interfaces.Message;
 import org.vitrivr.cineast.api.messages.interfaces.MessageType;
+import org.vitrivr.cineast.api.messages.interfaces.Query;
+import org.vitrivr.cineast.api.messages.result.QueryError;
+import org.vitrivr.cineast.api.websocket.QueryScheduler.Priority;
 import org.vitrivr.cineast.api.websocket.handlers.StatusMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.interfaces.WebsocketMessageHandler;
 import org.vitrivr.cineast.api.websocket.handlers.queries.MoreLikeThisQueryMessageHandler;
@@ -48,9 +49,13 @@ public class WebsocketAPI {
   private static final Queue<Session> SESSIONS = new ConcurrentLinkedQueue<>();
 
   /**
-   * A cached ThreadPoolExecutor used to execute tasks submitted and handled by the WebSocket API
+   * The {@link QueryScheduler} used to execute queries submitted and handled by the WebSocket API.
    */
-  private static final ExecutorService EXECUTORS = new ThreadPoolExecutor(2, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
+  private static final QueryScheduler SCHEDULER = new QueryScheduler(
+      Config.sharedConfig().getApi().getQueryConcurrency(),
+      Config.sharedConfig().getApi().getMaxQueriesPerSession(),
+      Config.sharedConfig().getApi().getMaxQueuedQueries()
+  );
 
   /**
    * List of stateless {@link WebsocketMessageHandler} classes for the API.
@@ -69,16 +74,14 @@ public class WebsocketAPI {
   private JacksonJsonProvider reader = new JacksonJsonProvider();
 
   /**
-   * Shuts down this WebsocketAPIs ThreadPoolExecutor.
+   * Shuts down this WebsocketAPIs {@link QueryScheduler}.
    */
   public void shutdown() {
-    EXECUTORS.shutdown();
     try {
-      EXECUTORS.awaitTermination(10, TimeUnit.SECONDS);
+      SCHEDULER.shutdown(10, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       e.printStackTrace();
     }
-    EXECUTORS.shutdownNow();
   }
 
   /**
@@ -95,13 +98,14 @@ public void connected(Session session) {
   }
 
   /**
-   * Invoked whenever a new connection is closed. Removes the session from the {@link WebsocketAPI#SESSIONS} map.
+   * Invoked whenever a new connection is closed. Removes the session from the {@link WebsocketAPI#SESSIONS} map and cancels its pending queries.
    *
    * @param session Session associated with the new connection.
    */
   @OnWebSocketClose
   public void closed(Session session, int statusCode, String reason) {
     SESSIONS.remove(session);
+    SCHEDULER.cancel(session);
     LOGGER.debug("Connection of session closed (Code: {}, Reason: {}).", statusCode, reason);
   }
 
@@ -126,9 +130,31 @@ public void message(Session session, String message) throws IOException {
     if (testMessage != null) {
       final MessageType type = testMessage.messageType();
       final WebsocketMessageHandler handler = STATELESS_HANDLERS.get(type);
-      if (handler != null) {
-        EXECUTORS.execute(() -> handler.handle(session, this.reader.toObject(message, type.getMessageClass())));
+      if (handler == null) {
+        return;
+      }
+      if (type == MessageType.PING) {
+        handler.handle(session, this.reader.toObject(message, type.getMessageClass()));
+        return;
+      }
+      final Priority priority = type == MessageType.Q_MLT ? Priority.MORE_LIKE_THIS : Priority.INTERACTIVE;
+      try {
+        SCHEDULER.submit(session, priority, () -> handler.handle(session, this.reader.toObject(message, type.getMessageClass())));
+      } catch (RejectedExecutionException e) {
+        this.reject(session, this.reader.toObject(message, type.getMessageClass()), e.getMessage());
       }
     }
   }
+
+  /**
+   * Notifies the client that a message was not admitted for execution.
+   *
+   * @param session Session the message belongs to.
+   * @param message The rejected message.
+   * @param reason  Reason for the rejection.
+   */
+  private void reject(Session session, Message message, String reason) {
+    final String queryId = message instanceof Query query && query.config() != null ? query.config().getQueryId() : null;
+    session.getRemote().sendStringByFuture(this.reader.toJson(new QueryError(queryId, reason)));
+  }
 }
@@ -3,22 +3,25 @@
 import static org.vitrivr.cineast.api.util.APIConstants.ACCESS_ALL_METADATA;
 
 import com.google.common.collect.Lists;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jetty.websocket.api.Session;
+import org.vitrivr.cineast.api.messages.interfaces.Message;
 import org.vitrivr.cineast.api.messages.interfaces.Query;
 import org.vitrivr.cineast.api.messages.result.MediaObjectMetadataQueryResult;
 import org.vitrivr.cineast.api.messages.result.MediaObjectQueryResult;
@@ -29,6 +32,8 @@
 import org.vitrivr.cineast.api.messages.result.QueryStart;
 import org.vitrivr.cineast.api.messages.result.SimilarityQueryResult;
 import org.vitrivr.cineast.api.messages.result.TemporalQueryResult;
+import org.vitrivr.cineast.api.websocket.QueryScheduler;
+import org.vitrivr.cineast.api.websocket.QueryScheduler.Priority;
 import org.vitrivr.cineast.api.websocket.handlers.abstracts.StatelessWebsocketMessageHandler;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.data.StringDoublePair;
@@ -65,14 +70,24 @@
   private final MediaObjectReader mediaObjectReader = new MediaObjectReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get());
 
   /**
-   * {@link MediaSegmentMetadataReader} instance used to read {@link MediaSegmentMetadataDescriptor}s from the storage layer.
+   * {@link MetadataFetchService} used to read {@link MediaSegmentMetadataDescriptor}s from the storage layer, shared by all handlers.
    */
-  private final MediaSegmentMetadataReader segmentMetadataReader = new MediaSegmentMetadataReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get());
+  private static final MetadataFetchService<MediaSegmentMetadataDescriptor> SEGMENT_METADATA = new MetadataFetchService<>("segment", () -> new MediaSegmentMetadataReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get()), MediaSegmentMetadataDescriptor::getSegmentId, Config.sharedConfig().getApi().getMetadataLookupParallelism());
 
   /**
-   * {@link MediaObjectMetadataReader} instance used to read {@link MediaObjectMetadataReader}s from the storage layer.
+   * {@link MetadataFetchService} used to read {@link MediaObjectMetadataDescriptor}s from the storage layer, shared by all handlers.
    */
-  private final MediaObjectMetadataReader objectMetadataReader = new MediaObjectMetadataReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get());
+  private static final MetadataFetchService<MediaObjectMetadataDescriptor> OBJECT_METADATA = new MetadataFetchService<>("object", () -> new MediaObjectMetadataReader(Config.sharedConfig().getDatabase().getSelectorSupplier().get()), MediaObjectMetadataDescriptor::getObjectid, Config.sharedConfig().getApi().getMetadataLookupParallelism());
+
+  /**
+   * Number of metadata descriptors per message.
+   */
+  private static final int METADATA_CHUNK_SIZE = 10_000;
+
+  /**
+   * Number of metadata messages per lookup that may be pending on the WebSocket at any time.
+   */
+  private static final int MAX_PENDING_WRITES = 2;
 
   /**
    * Handles a {@link Query} message
@@ -102,8 +117,8 @@ public final void handle(Session session, T message) {
         this.write(session, new QueryStart(uuid));
         /* Execute actual query. */
         LOGGER.trace("Executing query with id {} from message {}", uuid, message);
-        final Set<String> segmentIdsForWhichMetadataIsFetched = new HashSet<>();
-        final Set<String> objectIdsForWhichMetadataIsFetched = new HashSet<>();
+        final Set<String> segmentIdsForWhichMetadataIsFetched = ConcurrentHashMap.newKeySet();
+        final Set<String> objectIdsForWhichMetadataIsFetched = ConcurrentHashMap.newKeySet();
         this.execute(session, qconf, message, segmentIdsForWhichMetadataIsFetched, objectIdsForWhichMetadataIsFetched);
       } catch (Exception e) {
         /* Error: Send QueryError Message to Client. */
@@ -169,30 +184,22 @@ protected List<MediaObjectDescriptor> loadObjects(List<String> objectIds, String
    * @param objectIds          List of object IDs for which to lookup metadata.
    * @param metadataAccessSpec if this parameter is null, no metadata is fetched
    */
-  protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session, String queryId, List<String> objectIds, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
-    if (objectIds.isEmpty()) {
+  protected List<Future<?>> loadAndWriteObjectMetadata(Session session, String queryId, List<String> objectIds, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+    final List<String> ids = objectIds.stream().filter(objectIdsForWhichMetadataIsFetched::add).collect(Collectors.toList());
+    if (ids.isEmpty()) {
       return new ArrayList<>();
     }
-    objectIds.removeAll(objectIdsForWhichMetadataIsFetched);
-    objectIdsForWhichMetadataIsFetched.addAll(objectIds);
-    if (objectIds.size() > 100_000) {
-      return Lists.partition(objectIds, 100_000).stream().map(list -> loadAndWriteObjectMetadata(session, queryId, list, objectIdsForWhichMetadataIsFetched, metadataAccessSpec)).flatMap(Collection::stream).collect(Collectors.toList());
-    }
-    Thread thread = new Thread(() -> {
-      final List<MediaObjectMetadataDescriptor> objectMetadata = this.objectMetadataReader.findBySpec(objectIds, metadataAccessSpec, queryId);
-      if (objectMetadata.isEmpty()) {
-        return;
+    final Future<?> future = QueryScheduler.fork(Priority.PREFETCH, () -> {
+      try {
+        final List<MediaObjectMetadataDescriptor> objectMetadata = OBJECT_METADATA.fetch(ids, metadataAccessSpec, queryId);
+        this.writeChunked(session, objectMetadata, list -> new MediaObjectMetadataQueryResult(queryId, list));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to load object metadata.", e.getCause());
       }
-      /*
-       * Partition metadata list so that message size does not get too big, and then wait until all metadata has been sent
-       */
-      List<CompletableFuture<Void>> futures = new ArrayList<>();
-      Lists.partition(objectMetadata, 100_000).forEach(list -> futures.add(this.write(session, new MediaObjectMetadataQueryResult(queryId, list))));
-      futures.forEach(CompletableFuture::join);
     });
-    thread.setName("metadata-retrieval-objects");
-    thread.start();
-    return Collections.singletonList(thread);
+    return Lists.newArrayList(future);
   }
 
   /**
@@ -204,42 +211,40 @@ protected synchronized List<Thread> loadAndWriteObjectMetadata(Session session,
    * @param segmentIdsForWhichMetadataIsFetched segmentids for which metadata is already fetched
    * @param metadataAccessSpec                  if this parameter is null, no metadata is fetched.
    */
-  synchronized List<Thread> loadAndWriteSegmentMetadata(Session session, String queryId, List<String> segmentIds, Collection<String> segmentIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
-    if (segmentIds.isEmpty()) {
+  List<Future<?>> loadAndWriteSegmentMetadata(Session session, String queryId, List<String> segmentIds, Collection<String> segmentIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+    final List<String> ids = segmentIds.stream().filter(segmentIdsForWhichMetadataIsFetched::add).collect(Collectors.toList());
+    if (ids.isEmpty()) {
       return new ArrayList<>();
     }
-    segmentIds.removeAll(segmentIdsForWhichMetadataIsFetched);
-    segmentIdsForWhichMetadataIsFetched.addAll(segmentIds);
-    //chunk for memory safety-purposes
-    if (segmentIds.size() > 100_000) {
-      return Lists.partition(segmentIds, 100_000).stream().map(list -> loadAndWriteSegmentMetadata(session, queryId, list, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec)).flatMap(Collection::stream).collect(Collectors.toList());
-    }
-    Thread fetching = new Thread(() -> {
-      final List<MediaSegmentMetadataDescriptor> segmentMetadata = this.segmentMetadataReader.findBySpec(segmentIds, metadataAccessSpec, queryId);
-      if (segmentMetadata.isEmpty()) {
-        return;
-      }
-      List<Thread> threads = new ArrayList<>();
-      AtomicInteger i = new AtomicInteger(0);
-      Lists.partition(segmentMetadata, 100_000).forEach(list -> {
-        Thread writing = new Thread(() -> {
-          this.write(session, new MediaSegmentMetadataQueryResult(queryId, list)).join();
-        });
-        writing.setName("metadata-ws-write-queryId" + i.getAndIncrement());
-        writing.start();
-        threads.add(writing);
-      });
-      for (Thread thread : threads) {
-        try {
-          thread.join();
-        } catch (InterruptedException e) {
-          LOGGER.error(e);
-        }
+    final Future<?> future = QueryScheduler.fork(Priority.PREFETCH, () -> {
+      try {
+        final List<MediaSegmentMetadataDescriptor> segmentMetadata = SEGMENT_METADATA.fetch(ids, metadataAccessSpec, queryId);
+        this.writeChunked(session, segmentMetadata, list -> new MediaSegmentMetadataQueryResult(queryId, list));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to load segment metadata.", e.getCause());
       }
     });
-    fetching.setName("metadata-load-write-" + queryId);
-    fetching.start();
-    return Lists.newArrayList(fetching);
+    return Lists.newArrayList(future);
+  }
+
+  /**
+   * Writes the given metadata in chunks of {@link #METADATA_CHUNK_SIZE} to the WebSocket stream. At most {@link #MAX_PENDING_WRITES} chunks are serialized but not yet sent, so that a slow client does not cause all metadata to be buffered at once.
+   *
+   * @param session  The WebSocket session to write the data to.
+   * @param metadata Metadata to write.
+   * @param message  Creates the {@link Message} for a chunk.
+   */
+  private <D> void writeChunked(Session session, List<D> metadata, Function<List<D>, Message> message) {
+    final ArrayDeque<CompletableFuture<Void>> pending = new ArrayDeque<>(MAX_PENDING_WRITES);
+    for (List<D> chunk : Lists.partition(metadata, METADATA_CHUNK_SIZE)) {
+      if (pending.size() >= MAX_PENDING_WRITES) {
+        pending.poll().join();
+      }
+      pending.add(this.write(session, message.apply(chunk)));
+    }
+    pending.forEach(CompletableFuture::join);
   }
 
   /**
@@ -285,6 +290,17 @@ void submitSegmentAndObjectInformationFromIds(Session session, String queryId, L
     submitPrefetchedSegmentandObjectInformationfromIDs(session, queryId, segments, objectIds);
   }
 
+  /**
+   * Waits for the metadata lookups started by {@link #submitMetadata} and related methods.
+   *
+   * @param futures {@link Future}s returned by the metadata lookups.
+   */
+  protected static void awaitMetadata(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+    for (Future<?> future : futures) {
+      QueryScheduler.await(future);
+    }
+  }
+
   /**
    * Loads and Submits all the metadata (e.g. {@link MediaSegmentMetadataDescriptor}, {@link MediaObjectMetadataQueryResult}) associated with a collection of segment IDs for which the metadata was fetched.
    *
@@ -295,16 +311,16 @@ void submitSegmentAndObjectInformationFromIds(Session session, String queryId, L
    * @param segmentIdsForWhichMetadataIsFetched Segment IDs for which the metadata was fetched and transferred.
    * @param metadataAccessSpec                  if this param is null, all metadata is fetched
    */
-  protected List<Thread> submitMetadata(Session session, String queryId, List<String> segmentIds, List<String> objectIds, Collection<String> segmentIdsForWhichMetadataIsFetched, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
+  protected List<Future<?>> submitMetadata(Session session, String queryId, List<String> segmentIds, List<String> objectIds, Collection<String> segmentIdsForWhichMetadataIsFetched, Collection<String> objectIdsForWhichMetadataIsFetched, List<MetadataAccessSpecification> metadataAccessSpec) {
     // this ensures maximum backwards compatibility. The API should probably include a NONE option
     if (metadataAccessSpec == null) {
       metadataAccessSpec = ACCESS_ALL_METADATA;
     }
     /* Load and transmit segment & object metadata. */
-    List<Thread> segmentThreads = this.loadAndWriteSegmentMetadata(session, queryId, segmentIds, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec);
-    List<Thread> objectThreads = this.loadAndWriteObjectMetadata(session, queryId, objectIds, objectIdsForWhichMetadataIsFetched, metadataAccessSpec);
-    segmentThreads.addAll(objectThreads);
-    return segmentThreads;
+    List<Future<?>> segmentFutures = this.loadAndWriteSegmentMetadata(session, queryId, segmentIds, segmentIdsForWhichMetadataIsFetched, metadataAccessSpec);
+    List<Future<?>> objectFutures = this.loadAndWriteObjectMetadata(session, queryId, objectIds, objectIdsForWhichMetadataIsFetched, metadataAccessSpec);
+    segmentFutures.addAll(objectFutures);
+    return segmentFutures;
   }
 
   /**
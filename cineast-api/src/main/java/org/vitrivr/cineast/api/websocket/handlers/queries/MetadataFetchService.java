@@ -0,0 +1,211 @@
+package org.vitrivr.cineast.api.websocket.handlers.queries;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.dao.MetadataAccessSpecification;
+import org.vitrivr.cineast.core.db.dao.reader.AbstractMetadataReader;
+
+/**
+ * Looks up metadata on behalf of concurrently running queries.
+ * <p>
+ * Lookups of an id that is already being fetched with the same {@link MetadataAccessSpecification}s join the pending lookup instead of issuing another one (single-flight). Database calls are made by a pool of lanes owned by the service, each with its own reader, so a query that is cancelled while waiting never interrupts a call other queries depend on. At most {@code parallelism} calls per entity run at any time; ids requested while all lanes are busy are collected and fetched together by the next free lane.
+ *
+ * @param <R> Type of the metadata descriptors.
+ */
+final class MetadataFetchService<R> {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  /**
+   * Maximum number of ids per database call.
+   */
+  private static final int MAX_IDS_PER_LOOKUP = 100_000;
+
+  /**
+   * Reader of the lane running on the current thread; created on first use.
+   */
+  private final ThreadLocal<AbstractMetadataReader<R>> reader;
+
+  /**
+   * Extracts the id a descriptor belongs to.
+   */
+  private final Function<R, String> id;
+
+  /**
+   * Maximum number of concurrent database calls.
+   */
+  private final int parallelism;
+
+  private final ExecutorService lanes;
+
+  /**
+   * Pending lookups per specification and id.
+   */
+  private final Map<Key, CompletableFuture<List<R>>> inflight = new ConcurrentHashMap<>();
+
+  /**
+   * Lookups that have not been sent to the database yet.
+   */
+  private final Queue<Key> queue = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Number of lanes currently sending queued lookups to the database.
+   */
+  private final AtomicInteger running = new AtomicInteger(0);
+
+  /**
+   * @param name        Name of the entity, used for the names of the lane threads.
+   * @param readers     Creates the reader of a lane.
+   * @param id          Extracts the id a descriptor belongs to.
+   * @param parallelism Maximum number of concurrent database calls.
+   */
+  MetadataFetchService(String name, Supplier<? extends AbstractMetadataReader<R>> readers, Function<R, String> id, int parallelism) {
+    this.reader = ThreadLocal.withInitial(readers);
+    this.id = id;
+    this.parallelism = Math.max(1, parallelism);
+    this.lanes = Executors.newFixedThreadPool(this.parallelism, r -> {
+      final Thread thread = new Thread(r, "metadata-" + name + "-" + THREAD_COUNTER.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Fetches the metadata of the given ids. Blocks until the metadata of all ids is available.
+   *
+   * @param ids     IDs to fetch the metadata for.
+   * @param spec    {@link MetadataAccessSpecification}s of the metadata to fetch. If null, no metadata is fetched.
+   * @param queryId ID of the running query, used for logging.
+   * @return Metadata of the given ids, in order of the ids.
+   */
+  List<R> fetch(List<String> ids, List<MetadataAccessSpecification> spec, String queryId) throws InterruptedException, ExecutionException {
+    if (ids.isEmpty() || spec == null || spec.isEmpty()) {
+      return new ArrayList<>(0);
+    }
+    final List<MetadataAccessSpecification> specification = List.copyOf(spec);
+    final Set<String> distinct = new LinkedHashSet<>(AbstractMetadataReader.sanitizeIds(ids));
+    final List<CompletableFuture<List<R>>> futures = new ArrayList<>(distinct.size());
+    for (String id : distinct) {
+      final Key key = new Key(specification, id, queryId);
+      futures.add(this.inflight.computeIfAbsent(key, k -> {
+        this.queue.add(k);
+        return new CompletableFuture<>();
+      }));
+    }
+    this.schedule();
+
+    final List<R> results = new ArrayList<>();
+    for (CompletableFuture<List<R>> future : futures) {
+      results.addAll(future.get());
+    }
+    return results;
+  }
+
+  /**
+   * Starts another lane if lookups are queued and fewer than {@link #parallelism} lanes are running.
+   */
+  private void schedule() {
+    int current;
+    do {
+      current = this.running.get();
+      if (this.queue.isEmpty() || current >= this.parallelism) {
+        return;
+      }
+    } while (!this.running.compareAndSet(current, current + 1));
+    this.lanes.execute(this::drain);
+  }
+
+  /**
+   * Sends queued lookups to the database in batches of at most {@link #MAX_IDS_PER_LOOKUP} ids until the queue is empty. Lookups left over by a batch are handed to another lane while this one is busy.
+   */
+  private void drain() {
+    try {
+      List<Key> batch;
+      while (!(batch = this.poll()).isEmpty()) {
+        this.schedule();
+        final Map<List<MetadataAccessSpecification>, List<Key>> bySpec = new LinkedHashMap<>();
+        for (Key key : batch) {
+          bySpec.computeIfAbsent(key.spec(), s -> new ArrayList<>()).add(key);
+        }
+        bySpec.forEach(this::lookup);
+      }
+    } finally {
+      this.running.decrementAndGet();
+    }
+    /* Lookups queued after the last poll, while all lanes were running, would otherwise wait for the next request. */
+    this.schedule();
+  }
+
+  /**
+   * Removes up to {@link #MAX_IDS_PER_LOOKUP} lookups from the queue.
+   */
+  private List<Key> poll() {
+    final List<Key> batch = new ArrayList<>();
+    Key key;
+    while (batch.size() < MAX_IDS_PER_LOOKUP && (key = this.queue.poll()) != null) {
+      batch.add(key);
+    }
+    return batch;
+  }
+
+  /**
+   * Performs a single database call and completes the lookups of all ids in the batch.
+   */
+  private void lookup(List<MetadataAccessSpecification> spec, List<Key> batch) {
+    final List<String> ids = new ArrayList<>(batch.size());
+    batch.forEach(k -> ids.add(k.id()));
+    try {
+      final Map<String, List<R>> results = new HashMap<>();
+      for (R descriptor : this.reader.get().findBySpec(ids, spec, batch.get(0).queryId())) {
+        results.computeIfAbsent(this.id.apply(descriptor), i -> new ArrayList<>()).add(descriptor);
+      }
+      for (Key k : batch) {
+        this.inflight.remove(k).complete(results.getOrDefault(k.id(), Collections.emptyList()));
+      }
+    } catch (Throwable t) {
+      LOGGER.error("Metadata lookup for {} ids failed.", ids.size(), t);
+      for (Key k : batch) {
+        final CompletableFuture<List<R>> future = this.inflight.remove(k);
+        if (future != null) {
+          future.completeExceptionally(t);
+        }
+      }
+    }
+  }
+
+  /**
+   * A lookup of a single id; the query id is not part of the identity so that lookups of different queries are coalesced.
+   */
+  private record Key(List<MetadataAccessSpecification> spec, String id, String queryId) {
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key k && this.id.equals(k.id) && this.spec.equals(k.spec);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * this.spec.hashCode() + this.id.hashCode();
+    }
+  }
+}
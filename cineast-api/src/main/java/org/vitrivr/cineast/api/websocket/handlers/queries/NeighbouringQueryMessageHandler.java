@@ -4,6 +4,7 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.eclipse.jetty.websocket.api.Session;
 import org.vitrivr.cineast.api.messages.query.NeighboringSegmentQuery;
@@ -51,10 +52,8 @@ public void execute(Session session, QueryConfig qconf, NeighboringSegmentQuery
     CompletableFuture<Void> future = this.write(session, new MediaSegmentQueryResult(uuid, segments));
 
     /* Load and transmit segment metadata. */
-    List<Thread> threads = this.loadAndWriteSegmentMetadata(session, uuid, segments.stream().map(MediaSegmentDescriptor::getSegmentId).collect(Collectors.toList()), segmentIdsForWhichMetadataIsFetched, message.metadataAccessSpec());
-    for (Thread thread : threads) {
-      thread.join();
-    }
+    List<Future<?>> metadataFutures = this.loadAndWriteSegmentMetadata(session, uuid, segments.stream().map(MediaSegmentDescriptor::getSegmentId).collect(Collectors.toList()), segmentIdsForWhichMetadataIsFetched, message.metadataAccessSpec());
+    awaitMetadata(metadataFutures);
     future.join();
   }
 }
@@ -4,6 +4,7 @@
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import org.eclipse.jetty.websocket.api.Session;
 import org.vitrivr.cineast.api.messages.query.SegmentQuery;
@@ -48,18 +49,16 @@ public void execute(Session session, QueryConfig qconf, SegmentQuery message, Se
     }
 
     List<CompletableFuture<Void>> futures = new ArrayList<>();
-    List<Thread> threads = new ArrayList<>();
+    List<Future<?>> metadataFutures = new ArrayList<>();
 
     /* Write segments and objects to results stream. */
     futures.add(this.write(session, new MediaSegmentQueryResult(uuid, segment)));
     futures.add(this.write(session, new MediaObjectQueryResult(uuid, object)));
 
     /* Load and transmit segment & object metadata. */
-    threads.addAll(this.loadAndWriteSegmentMetadata(session, uuid, segmentId, segmentIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
-    threads.addAll(this.loadAndWriteObjectMetadata(session, uuid, objectId, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
-    for (Thread thread : threads) {
-      thread.join();
-    }
+    metadataFutures.addAll(this.loadAndWriteSegmentMetadata(session, uuid, segmentId, segmentIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
+    metadataFutures.addAll(this.loadAndWriteObjectMetadata(session, uuid, objectId, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
+    awaitMetadata(metadataFutures);
     futures.forEach(CompletableFuture::join);
   }
 }
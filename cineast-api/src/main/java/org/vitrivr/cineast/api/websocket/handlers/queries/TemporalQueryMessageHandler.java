@@ -1,12 +1,15 @@
 package org.vitrivr.cineast.api.websocket.handlers.queries;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
@@ -17,6 +20,7 @@
 import org.vitrivr.cineast.api.messages.query.QueryTermType;
 import org.vitrivr.cineast.api.messages.query.StagedSimilarityQuery;
 import org.vitrivr.cineast.api.messages.query.TemporalQuery;
+import org.vitrivr.cineast.api.websocket.QueryScheduler;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.data.StringDoublePair;
 import org.vitrivr.cineast.core.data.TemporalObject;
@@ -48,19 +52,19 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
     final int resultsPerModule = Math.min(qconf.getRawResultsPerModule() == -1 ? Config.sharedConfig().getRetriever().getMaxResultsPerModule() : qconf.getResultsPerModule(), Config.sharedConfig().getRetriever().getMaxResultsPerModule());
     qconf.setResultsPerModule(resultsPerModule);
 
-    List<Thread> metadataRetrievalThreads = new ArrayList<>();
-    List<CompletableFuture<Void>> futures = new ArrayList<>();
-    List<Thread> cleanupThreads = new ArrayList<>();
+    /* Containers are evaluated concurrently, hence all state shared between them must be thread-safe */
+    List<Future<?>> metadataFutures = Collections.synchronizedList(new ArrayList<>());
+    List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
 
     /* We need a set of segments and objects to be used for temporal scoring as well as a storage of all container results where are the index of the outer list is where container i was scored */
-    Map<Integer, List<StringDoublePair>> containerResults = new HashMap<>();
-    Set<MediaSegmentDescriptor> segments = new HashSet<>();
+    Map<Integer, List<StringDoublePair>> containerResults = new ConcurrentHashMap<>();
+    Set<MediaSegmentDescriptor> segments = ConcurrentHashMap.newKeySet();
 
-    Set<String> sentSegmentIds = new HashSet<>();
-    Set<String> sentObjectIds = new HashSet<>();
+    Set<String> sentSegmentIds = ConcurrentHashMap.newKeySet();
+    Set<String> sentObjectIds = ConcurrentHashMap.newKeySet();
 
     /* Each container can be evaluated in parallel, provided resouces are available */
-    List<Thread> ssqThreads = new ArrayList<>();
+    List<Future<?>> containerFutures = new ArrayList<>();
 
     /* Iterate over all temporal query containers independently */
     for (int containerIdx = 0; containerIdx < message.queries().size(); containerIdx++) {
@@ -85,10 +89,10 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
       int lambdaFinalContainerIdx = containerIdx;
 
       /*
-       * The lightweight, but blocking logic of waiting for retrieval results is launched as a thread.
-       * The results of this thread will be awaited after all containers have started their retrieval process
+       * The lightweight, but blocking logic of waiting for retrieval results is forked as a task of this query.
+       * The results of this task will be awaited after all containers have started their retrieval process
        */
-      Thread ssqThread = new Thread(() -> {
+      containerFutures.add(QueryScheduler.fork(() -> {
         /* Iterate over all stages in their respective order as each term of one stage will be used as a filter for its successors */
         for (int stageIndex = 0; stageIndex < stagedSimilarityQuery.stages().size(); stageIndex++) {
           /* Create hashmap for this stage as cache */
@@ -161,8 +165,7 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
                 sentObjectIds.addAll(limitedObjectIds);
                 LOGGER.trace("Queueing finalization and result submission for last stage, container {}", lambdaFinalContainerIdx);
                 futures.addAll(this.finalizeAndSubmitResults(session, uuid, category, lambdaFinalContainerIdx, limitedResults));
-                List<Thread> _threads = this.submitMetadata(session, uuid, limitedSegmentIds, limitedObjectIds, segmentIdsForWhichMetadataIsFetched, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec());
-                metadataRetrievalThreads.addAll(_threads);
+                metadataFutures.addAll(this.submitMetadata(session, uuid, limitedSegmentIds, limitedObjectIds, segmentIdsForWhichMetadataIsFetched, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
               }
             }
           }
@@ -190,31 +193,23 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
           /* Return the limited results from all stages that are within the filter */
           cache.get(stageIndex).forEach((category, results) -> {
             results.removeIf(pair -> !limitedStageQConf.getRelevantSegmentIds().contains(pair.key()));
-            Thread thread = new Thread(() -> {
-              LOGGER.trace("Queuing finalization & result submission for stage {} and container {}", finalStageIndex, lambdaFinalContainerIdx);
-              futures.addAll(this.finalizeAndSubmitResults(session, uuid, category, lambdaFinalContainerIdx, results));
-            });
-            thread.setName("finalization-stage" + finalStageIndex + "-" + category);
-            thread.start();
-            cleanupThreads.add(thread);
+            LOGGER.trace("Queuing finalization & result submission for stage {} and container {}", finalStageIndex, lambdaFinalContainerIdx);
+            futures.addAll(this.finalizeAndSubmitResults(session, uuid, category, lambdaFinalContainerIdx, results));
           });
         }
 
         /* There should be no carry-over from this block since temporal queries are executed independently */
         containerResults.put(lambdaFinalContainerIdx, stageResults);
-      });
-      ssqThread.setName("ssq-" + containerIdx);
-      ssqThreads.add(ssqThread);
-      ssqThread.start();
+      }));
     }
-    for (Thread ssqThread : ssqThreads) {
-      ssqThread.join();
+    for (Future<?> containerFuture : containerFutures) {
+      QueryScheduler.await(containerFuture);
     }
 
     /* You can skip the computation of temporal objects in the config if you wish simply to execute all queries independently (e.g. for evaluation)*/
     if (!message.config().computeTemporalObjects) {
       LOGGER.debug("Not computing temporal objects due to query config");
-      finish(metadataRetrievalThreads, cleanupThreads);
+      awaitMetadata(metadataFutures);
       return;
     }
 
@@ -252,8 +247,7 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
       this.submitSegmentAndObjectInformationFromIds(session, uuid, segmentIds, objectIds);
 
       /* Retrieve and send metadata for items not already sent */
-      List<Thread> _threads = this.submitMetadata(session, uuid, segmentIds, objectIds, segmentIdsForWhichMetadataIsFetched, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec());
-      metadataRetrievalThreads.addAll(_threads);
+      metadataFutures.addAll(this.submitMetadata(session, uuid, segmentIds, objectIds, segmentIdsForWhichMetadataIsFetched, objectIdsForWhichMetadataIsFetched, message.metadataAccessSpec()));
     }
 
     /* Send scoring results to the frontend */
@@ -262,17 +256,7 @@ public void execute(Session session, QueryConfig qconf, TemporalQuery message, S
       futures.forEach(CompletableFuture::join);
     }
 
-    finish(metadataRetrievalThreads, cleanupThreads);
-  }
-
-  private void finish(List<Thread> metadataRetrievalThreads, List<Thread> cleanupThreads) throws InterruptedException {
-    for (Thread cleanupThread : cleanupThreads) {
-      cleanupThread.join();
-    }
-
-    for (Thread thread : metadataRetrievalThreads) {
-      thread.join();
-    }
+    awaitMetadata(metadataFutures);
   }
 
 }
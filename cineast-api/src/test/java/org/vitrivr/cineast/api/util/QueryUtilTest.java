@@ -0,0 +1,223 @@
+package org.vitrivr.cineast.api.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.api.messages.query.QueryStage;
+import org.vitrivr.cineast.api.messages.query.QueryTerm;
+import org.vitrivr.cineast.api.messages.query.QueryTermType;
+import org.vitrivr.cineast.core.config.DatabaseConfig;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.Pair;
+import org.vitrivr.cineast.core.data.StringDoublePair;
+import org.vitrivr.cineast.core.data.query.containers.AbstractQueryTermContainer;
+import org.vitrivr.cineast.core.data.query.containers.IdQueryTermContainer;
+import org.vitrivr.cineast.core.data.score.SegmentScoreElement;
+import org.vitrivr.cineast.core.db.DataSource;
+import org.vitrivr.cineast.standalone.config.APIConfig;
+import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.config.RetrievalRuntimeConfig;
+import org.vitrivr.cineast.standalone.util.ContinuousRetrievalLogic;
+
+public class QueryUtilTest {
+
+  private static final int PARALLELISM = 4;
+
+  private ScriptedRetrievalLogic logic;
+
+  @BeforeAll
+  public static void config() {
+    final Config config = new Config();
+    config.setRetriever(new RetrievalRuntimeConfig());
+    final APIConfig api = new APIConfig();
+    api.setQueryPlanParallelism(PARALLELISM);
+    config.setApi(api);
+    Config.initSharedConfig(config);
+  }
+
+  @AfterEach
+  public void teardown() {
+    if (this.logic != null) {
+      this.logic.shutdown();
+    }
+  }
+
+  @Test
+  @DisplayName("Scores of a category are summed in the order of the terms, whatever the order of completion")
+  public void testDeterministicMerge() {
+    this.logic = new ScriptedRetrievalLogic(true);
+    final double[] scores = {0.1, 0.2, 0.3, 1e-17, 0.7};
+    final List<QueryTerm> terms = new ArrayList<>();
+    for (int i = 0; i < scores.length; i++) {
+      this.logic.script("color", "t" + i, Map.of("s1", scores[i], "s2", scores[scores.length - 1 - i]));
+      terms.add(new QueryTerm(List.of("color"), QueryTermType.ID, "t" + i));
+    }
+    double s1 = 0;
+    double s2 = 0;
+    for (int i = 0; i < scores.length; i++) {
+      s1 += scores[i];
+      s2 += scores[scores.length - 1 - i];
+    }
+    for (int round = 0; round < 20; round++) {
+      final Map<String, Double> results = scores(QueryUtil.findSegmentsSimilar(this.logic, terms, new QueryConfig(null)).get("color"));
+      assertEquals(s1, results.get("s1"));
+      assertEquals(s2, results.get("s2"));
+    }
+  }
+
+  @Test
+  @DisplayName("Each stage is restricted to the segments found by its predecessor")
+  public void testStageChaining() {
+    this.logic = new ScriptedRetrievalLogic(true);
+    this.logic.script("color", "first", Map.of("s1", 0.9, "s2", 0.5));
+    this.logic.script("edge", "second", Map.of("s1", 0.4, "s3", 0.8));
+    final List<QueryStage> stages = List.of(
+        new QueryStage(List.of(new QueryTerm(List.of("color"), QueryTermType.ID, "first"))),
+        new QueryStage(List.of(new QueryTerm(List.of("edge"), QueryTermType.ID, "second")))
+    );
+
+    final QueryPlanExecutor plan = new QueryPlanExecutor();
+    final HashMap<String, List<StringDoublePair>> results = QueryUtil.findSegmentsSimilarStaged(this.logic, stages, new QueryConfig(null), plan);
+
+    assertEquals(List.of("first", "second"), this.logic.calls.stream().map(call -> call.term).collect(Collectors.toList()));
+    assertEquals(Set.of(), this.logic.calls.get(0).relevant);
+    assertEquals(Set.of("s1", "s2"), this.logic.calls.get(1).relevant);
+    assertEquals(Map.of("s1", 0.9), scores(results.get("color")));
+    assertEquals(Map.of("s1", 0.4), scores(results.get("edge")));
+    assertEquals(2, plan.getTimings().size());
+  }
+
+  @Test
+  @DisplayName("Synchronous queries issued by plan nodes run inline instead of deadlocking the pool")
+  public void testNestedQuery() throws Exception {
+    this.logic = new ScriptedRetrievalLogic(false);
+    this.logic.script("color", "t0", Map.of("s1", 0.5));
+    this.logic.script("color", "t1", Map.of("s1", 0.25));
+    final List<Pair<AbstractQueryTermContainer, ReadableQueryConfig>> containers = List.of(new Pair<>(new IdQueryTermContainer("t0"), new QueryConfig(null)), new Pair<>(new IdQueryTermContainer("t1"), new QueryConfig(null)));
+
+    /* Occupies every pool thread with a node that waits for a nested query. */
+    final QueryPlanExecutor plan = new QueryPlanExecutor();
+    final CountDownLatch started = new CountDownLatch(PARALLELISM);
+    final List<CompletableFuture<List<StringDoublePair>>> nodes = new ArrayList<>();
+    for (int i = 0; i < PARALLELISM; i++) {
+      nodes.add(plan.node("outer" + i, () -> {
+        started.countDown();
+        try {
+          started.await();
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return QueryUtil.retrieveCategory(this.logic, containers, "color");
+      }));
+    }
+    for (CompletableFuture<List<StringDoublePair>> node : nodes) {
+      assertEquals(Map.of("s1", 0.75), scores(node.get(5, TimeUnit.SECONDS)));
+    }
+  }
+
+  @Test
+  @DisplayName("A pool thread may not wait for a pending node of another plan")
+  public void testAwaitOnPoolThreadRejected() throws Exception {
+    final QueryPlanExecutor plan = new QueryPlanExecutor();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CompletableFuture<Boolean> pending = plan.node("pending", () -> {
+      try {
+        return release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    final CompletableFuture<IllegalStateException> waiting = plan.node("waiting", () -> assertThrows(IllegalStateException.class, () -> plan.await(pending)));
+    try {
+      waiting.get(5, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+    }
+    assertTrue(plan.await(pending));
+  }
+
+  private static Map<String, Double> scores(List<StringDoublePair> pairs) {
+    final Map<String, Double> scores = new HashMap<>();
+    for (StringDoublePair pair : pairs) {
+      scores.put(pair.key(), pair.value());
+    }
+    return scores;
+  }
+
+  /**
+   * Retrieval logic that answers id queries from a script and records the configuration of every call.
+   */
+  private static final class ScriptedRetrievalLogic extends ContinuousRetrievalLogic {
+
+    private record Call(String term, Set<String> relevant) {
+
+    }
+
+    private final Map<String, Map<String, Double>> scripts = new HashMap<>();
+
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * Delay calls randomly, so that they complete out of order.
+     */
+    private final boolean delay;
+
+    private ScriptedRetrievalLogic(boolean delay) {
+      super(database());
+      this.delay = delay;
+    }
+
+    private static DatabaseConfig database() {
+      final DatabaseConfig config = new DatabaseConfig();
+      config.setSelector(DataSource.NONE);
+      config.setWriter(DataSource.NONE);
+      return config;
+    }
+
+    private void script(String category, String term, Map<String, Double> scores) {
+      this.scripts.put(category + "/" + term, scores);
+    }
+
+    @Override
+    public List<SegmentScoreElement> retrieve(String segmentId, String category, ReadableQueryConfig config) {
+      this.calls.add(new Call(segmentId, Set.copyOf(config.getRelevantSegmentIds())));
+      if (this.delay) {
+        final long millis;
+        synchronized (this.random) {
+          millis = this.random.nextInt(10);
+        }
+        try {
+          Thread.sleep(millis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      final List<SegmentScoreElement> results = new ArrayList<>();
+      this.scripts.getOrDefault(category + "/" + segmentId, Map.of()).forEach((segment, score) -> {
+        if (!config.hasRelevantSegmentIds() || config.getRelevantSegmentIds().contains(segment)) {
+          results.add(new SegmentScoreElement(segment, score));
+        }
+      });
+      return results;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package org.vitrivr.cineast.api.websocket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.api.websocket.QueryScheduler.Priority;
+
+public class QuerySchedulerTest {
+
+  /**
+   * Time in seconds a test waits for a query to complete.
+   */
+  private static final long TIMEOUT = 10;
+
+  private final CountDownLatch started = new CountDownLatch(1);
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private QueryScheduler scheduler;
+
+  @AfterEach
+  public void teardown() throws InterruptedException {
+    this.release.countDown();
+    if (this.scheduler != null) {
+      this.scheduler.shutdown(TIMEOUT, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  @DisplayName("An owner cannot have more than the configured number of queries queued or running")
+  public void testPerOwnerLimit() throws Exception {
+    this.scheduler = new QueryScheduler(1, 2, 10);
+    final Future<?> running = this.scheduler.submit("a", Priority.INTERACTIVE, this.blocking());
+    assertTrue(this.started.await(TIMEOUT, TimeUnit.SECONDS));
+    final Future<?> queued = this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+    });
+    assertThrows(RejectedExecutionException.class, () -> this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+    }));
+    final Future<?> other = this.scheduler.submit("b", Priority.INTERACTIVE, () -> {
+    });
+
+    this.release.countDown();
+    running.get(TIMEOUT, TimeUnit.SECONDS);
+    queued.get(TIMEOUT, TimeUnit.SECONDS);
+    other.get(TIMEOUT, TimeUnit.SECONDS);
+  }
+
+  @Test
+  @DisplayName("No more than the configured number of queries wait for execution across all owners")
+  public void testGlobalLimit() throws Exception {
+    this.scheduler = new QueryScheduler(1, 10, 2);
+    this.scheduler.submit("a", Priority.INTERACTIVE, this.blocking());
+    assertTrue(this.started.await(TIMEOUT, TimeUnit.SECONDS));
+
+    /* The running query no longer counts as waiting. */
+    this.scheduler.submit("b", Priority.INTERACTIVE, () -> {
+    });
+    this.scheduler.submit("c", Priority.INTERACTIVE, () -> {
+    });
+    assertThrows(RejectedExecutionException.class, () -> this.scheduler.submit("d", Priority.INTERACTIVE, () -> {
+    }));
+  }
+
+  @Test
+  @DisplayName("Queued queries are executed by priority and then in order of submission")
+  public void testPriorityOrder() throws Exception {
+    this.scheduler = new QueryScheduler(1, 10, 10);
+    this.scheduler.submit("blocker", Priority.INTERACTIVE, this.blocking());
+    assertTrue(this.started.await(TIMEOUT, TimeUnit.SECONDS));
+
+    final List<String> order = new CopyOnWriteArrayList<>();
+    final List<Future<?>> futures = new ArrayList<>();
+    futures.add(this.scheduler.submit("a", Priority.PREFETCH, () -> order.add("prefetch")));
+    futures.add(this.scheduler.submit("b", Priority.MORE_LIKE_THIS, () -> order.add("more-like-this")));
+    futures.add(this.scheduler.submit("c", Priority.INTERACTIVE, () -> order.add("interactive-1")));
+    futures.add(this.scheduler.submit("d", Priority.INTERACTIVE, () -> order.add("interactive-2")));
+
+    this.release.countDown();
+    for (Future<?> future : futures) {
+      future.get(TIMEOUT, TimeUnit.SECONDS);
+    }
+    assertEquals(List.of("interactive-1", "interactive-2", "more-like-this", "prefetch"), order);
+  }
+
+  @Test
+  @DisplayName("A query on a single worker can await its own sub-tasks without deadlocking")
+  public void testForkAwaitInline() throws Exception {
+    this.scheduler = new QueryScheduler(1, 10, 10);
+    final List<String> threads = new CopyOnWriteArrayList<>();
+    final Future<?> query = this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+      final List<Future<?>> forks = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        forks.add(QueryScheduler.fork(() -> threads.add(Thread.currentThread().getName())));
+      }
+      try {
+        for (Future<?> fork : forks) {
+          QueryScheduler.await(fork);
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      threads.add(Thread.currentThread().getName());
+    });
+    query.get(TIMEOUT, TimeUnit.SECONDS);
+
+    /* The only worker is busy with the query, so every sub-task has been executed inline. */
+    assertEquals(4, threads.size());
+    assertTrue(threads.stream().allMatch(threads.get(3)::equals));
+  }
+
+  @Test
+  @DisplayName("Cancelling an owner releases its per-owner and global permits")
+  public void testCancelReleasesPermits() throws Exception {
+    this.scheduler = new QueryScheduler(1, 1, 2);
+    this.scheduler.submit("blocker", Priority.INTERACTIVE, this.blocking());
+    assertTrue(this.started.await(TIMEOUT, TimeUnit.SECONDS));
+
+    final Future<?> queued = this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+    });
+    assertTrue(assertThrows(RejectedExecutionException.class, () -> this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+    })).getMessage().contains("session"));
+    final Future<?> other = this.scheduler.submit("b", Priority.INTERACTIVE, () -> {
+    });
+    assertTrue(assertThrows(RejectedExecutionException.class, () -> this.scheduler.submit("c", Priority.INTERACTIVE, () -> {
+    })).getMessage().contains("waiting"));
+
+    /* Both the permit of owner a and its place in the queue are released. */
+    this.scheduler.cancel("a");
+    assertTrue(queued.isCancelled());
+    final Future<?> readmitted = this.scheduler.submit("a", Priority.INTERACTIVE, () -> {
+    });
+
+    this.release.countDown();
+    other.get(TIMEOUT, TimeUnit.SECONDS);
+    readmitted.get(TIMEOUT, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Returns a query that signals {@link #started} and then blocks its worker until {@link #release} is counted down.
+   */
+  private Runnable blocking() {
+    return () -> {
+      this.started.countDown();
+      try {
+        this.release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+}
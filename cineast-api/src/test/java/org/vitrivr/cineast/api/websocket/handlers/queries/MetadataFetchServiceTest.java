@@ -0,0 +1,189 @@
+package org.vitrivr.cineast.api.websocket.handlers.queries;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentMetadataDescriptor;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.MetadataAccessSpecification;
+import org.vitrivr.cineast.core.db.dao.MetadataType;
+import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentMetadataReader;
+
+public class MetadataFetchServiceTest {
+
+  private static final List<MetadataAccessSpecification> SPEC = List.of(new MetadataAccessSpecification(MetadataType.SEGMENT, "*", "*"));
+
+  /**
+   * Released to let blocked database calls return.
+   */
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private final AtomicInteger maxActive = new AtomicInteger();
+
+  /**
+   * Ids of every database call, in order of the calls.
+   */
+  private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+  private final List<Thread> threads = new ArrayList<>();
+
+  @AfterEach
+  public void teardown() throws InterruptedException {
+    this.release.countDown();
+    for (Thread thread : this.threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  @Test
+  @DisplayName("Up to the configured number of lookups run in parallel, later ones are coalesced")
+  public void testParallelLookups() throws Exception {
+    final MetadataFetchService<MediaSegmentMetadataDescriptor> service = this.service(2);
+    final Map<String, List<String>> results = new HashMap<>();
+    this.fetch(service, results, "a", List.of("a_1", "a_2"));
+    this.awaitCalls(1);
+    this.fetch(service, results, "b", List.of("b_1"));
+    this.awaitCalls(2);
+    this.fetch(service, results, "c", List.of("c_1", "a_1"));
+    this.fetch(service, results, "d", List.of("d_1"));
+    this.awaitWaiting();
+    assertEquals(2, this.calls.get());
+
+    this.release.countDown();
+    for (Thread thread : this.threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    assertEquals(3, this.calls.get());
+    assertEquals(2, this.maxActive.get());
+    assertEquals(List.of("a_1", "a_2"), results.get("a"));
+    assertEquals(List.of("b_1"), results.get("b"));
+    assertEquals(List.of("c_1", "a_1"), results.get("c"));
+    assertEquals(List.of("d_1"), results.get("d"));
+    assertTrue(this.batches.get(2).containsAll(List.of("c_1", "d_1")));
+  }
+
+  @Test
+  @DisplayName("Interrupting a waiting query does not fail lookups shared with other queries")
+  public void testInterruptedCaller() throws Exception {
+    final MetadataFetchService<MediaSegmentMetadataDescriptor> service = this.service(1);
+    final Map<String, List<String>> results = new HashMap<>();
+    final AtomicReference<Throwable> cancelled = new AtomicReference<>();
+    final Thread first = new Thread(() -> {
+      try {
+        service.fetch(List.of("a_1"), SPEC, "query-first");
+      } catch (Throwable t) {
+        cancelled.set(t);
+      }
+    });
+    this.threads.add(first);
+    first.start();
+    this.awaitCalls(1);
+    this.fetch(service, results, "second", List.of("a_1"));
+    this.awaitWaiting();
+
+    first.interrupt();
+    first.join(TimeUnit.SECONDS.toMillis(5));
+    assertTrue(cancelled.get() instanceof InterruptedException);
+
+    this.release.countDown();
+    for (Thread thread : this.threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    assertEquals(List.of("a_1"), results.get("second"));
+    assertEquals(1, this.calls.get());
+  }
+
+  private MetadataFetchService<MediaSegmentMetadataDescriptor> service(int parallelism) {
+    return new MetadataFetchService<>("test", () -> new MediaSegmentMetadataReader(this.selector()), MediaSegmentMetadataDescriptor::getSegmentId, parallelism);
+  }
+
+  /**
+   * Fetches the given ids on a new thread and records the segment ids of the result under the given name.
+   */
+  private void fetch(MetadataFetchService<MediaSegmentMetadataDescriptor> service, Map<String, List<String>> results, String name, List<String> ids) {
+    final Thread thread = new Thread(() -> {
+      try {
+        final List<String> segments = service.fetch(ids, SPEC, "query-" + name).stream().map(MediaSegmentMetadataDescriptor::getSegmentId).collect(Collectors.toList());
+        synchronized (results) {
+          results.put(name, segments);
+        }
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    this.threads.add(thread);
+    thread.start();
+  }
+
+  private void awaitCalls(int calls) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5_000;
+    while (this.calls.get() < calls && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(calls, this.calls.get());
+  }
+
+  /**
+   * Waits until all fetching threads are blocked on their results.
+   */
+  private void awaitWaiting() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5_000;
+    while (this.threads.stream().anyMatch(t -> t.getState() != Thread.State.WAITING) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  /**
+   * A selector that returns one metadata row per requested id once {@link #release} is counted down.
+   */
+  @SuppressWarnings("unchecked")
+  private DBSelector selector() {
+    return (DBSelector) Proxy.newProxyInstance(DBSelector.class.getClassLoader(), new Class[]{DBSelector.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "open":
+          return true;
+        case "getMetadataByIdAndSpec":
+          this.calls.incrementAndGet();
+          this.maxActive.accumulateAndGet(this.active.incrementAndGet(), Math::max);
+          try {
+            this.release.await();
+            final List<String> ids = (List<String>) args[0];
+            this.batches.add(ids);
+            final List<Map<String, PrimitiveTypeProvider>> rows = new ArrayList<>(ids.size());
+            for (String id : ids) {
+              final Map<String, PrimitiveTypeProvider> row = new HashMap<>();
+              row.put(MediaSegmentMetadataDescriptor.FIELDNAMES[0], PrimitiveTypeProvider.fromObject(id));
+              row.put(MediaSegmentMetadataDescriptor.FIELDNAMES[1], PrimitiveTypeProvider.fromObject("domain"));
+              row.put(MediaSegmentMetadataDescriptor.FIELDNAMES[2], PrimitiveTypeProvider.fromObject("key"));
+              row.put(MediaSegmentMetadataDescriptor.FIELDNAMES[3], PrimitiveTypeProvider.fromObject(id));
+              rows.add(row);
+            }
+            return rows;
+          } finally {
+            this.active.decrementAndGet();
+          }
+        default:
+          return method.getReturnType() == boolean.class ? false : null;
+      }
+    });
+  }
+}
@@ -0,0 +1,220 @@
+package org.vitrivr.cineast.benchmarks;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.data.frames.VideoDescriptor;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+
+/**
+ * Generators for the synthetic fixtures used by the benchmarks: images, video frames, audio, meshes, score maps and JSON exports. All generators are deterministic for a given seed, so results remain comparable across runs and commits, and none of them needs a file, a network connection or a database.
+ */
+public final class Fixtures {
+
+  /**
+   * Edge length of the color patches of the generated images.
+   */
+  private static final int PATCH = 16;
+
+  private Fixtures() {
+  }
+
+  /**
+   * Generates the colors of an image made of {@value #PATCH}x{@value #PATCH} patches of a random base color with some noise, which is closer to natural images than uniform noise (e.g. for color caches and histograms).
+   *
+   * @param width  Width of the image.
+   * @param height Height of the image.
+   * @param seed   Seed of the generator.
+   * @return Colors in row-major order.
+   */
+  public static int[] colors(int width, int height, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final int columns = (width + PATCH - 1) / PATCH;
+    final int[] patches = new int[columns * ((height + PATCH - 1) / PATCH)];
+    for (int i = 0; i < patches.length; i++) {
+      patches[i] = random.nextInt(0x1000000);
+    }
+    final int[] colors = new int[width * height];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int base = patches[(y / PATCH) * columns + x / PATCH];
+        colors[y * width + x] = ReadableRGBContainer.toIntColor(
+            noise(ReadableRGBContainer.getRed(base), random),
+            noise(ReadableRGBContainer.getGreen(base), random),
+            noise(ReadableRGBContainer.getBlue(base), random));
+      }
+    }
+    return colors;
+  }
+
+  /**
+   * Generates an in-memory {@link MultiImage}, see {@link #colors(int, int, long)}.
+   */
+  public static MultiImage image(int width, int height, long seed) {
+    return CachedDataFactory.getDefault().newInMemoryMultiImage(width, height, colors(width, height, seed));
+  }
+
+  /**
+   * Generates the frames of a shot at 25 fps. Consecutive frames differ by noise only.
+   *
+   * @param count  Number of frames.
+   * @param width  Width of the frames.
+   * @param height Height of the frames.
+   * @param seed   Seed of the generator.
+   * @return List of {@link VideoFrame}s.
+   */
+  public static List<VideoFrame> frames(int count, int width, int height, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final VideoDescriptor descriptor = new VideoDescriptor(25f, count * 40L, width, height);
+    final int[] base = colors(width, height, seed);
+    final List<VideoFrame> frames = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final int[] colors = new int[base.length];
+      for (int j = 0; j < colors.length; j++) {
+        colors[j] = ReadableRGBContainer.toIntColor(
+            noise(ReadableRGBContainer.getRed(base[j]), random),
+            noise(ReadableRGBContainer.getGreen(base[j]), random),
+            noise(ReadableRGBContainer.getBlue(base[j]), random));
+      }
+      frames.add(new VideoFrame(i, i * 40L, CachedDataFactory.getDefault().newInMemoryMultiImage(width, height, colors), descriptor));
+    }
+    return frames;
+  }
+
+  /**
+   * Generates mono audio: a chord of three sine tones (A4, C#5, E5) with white noise, normalized to [-1, 1].
+   *
+   * @param seconds      Duration in seconds.
+   * @param samplingRate Sampling rate in Hz.
+   * @param seed         Seed of the generator.
+   * @return Samples.
+   */
+  public static double[] audio(float seconds, float samplingRate, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final double[] samples = new double[(int) (seconds * samplingRate)];
+    for (int i = 0; i < samples.length; i++) {
+      final double t = i / samplingRate;
+      samples[i] = 0.3 * Math.sin(2 * Math.PI * 440.0 * t) + 0.3 * Math.sin(2 * Math.PI * 554.37 * t) + 0.3 * Math.sin(2 * Math.PI * 659.25 * t) + 0.1 * random.nextDouble(-1.0, 1.0);
+    }
+    return samples;
+  }
+
+  /**
+   * Generates a UV sphere with some radial noise, off-center and not normalized, as meshes are before the KHL transform.
+   *
+   * @param segments Number of segments along the latitude and the longitude; the mesh has about 2 * segments^2 faces.
+   * @param seed     Seed of the generator.
+   * @return {@link Mesh}
+   */
+  public static Mesh mesh(int segments, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final Mesh mesh = new Mesh(2 * segments * segments, (segments + 1) * segments);
+    for (int i = 0; i <= segments; i++) {
+      final double theta = Math.PI * i / segments;
+      for (int j = 0; j < segments; j++) {
+        final double phi = 2 * Math.PI * j / segments;
+        final double r = 3.0 + 0.2 * random.nextDouble();
+        mesh.addVertex(new Vector3f((float) (5.0 + r * Math.sin(theta) * Math.cos(phi)), (float) (-2.0 + r * Math.cos(theta)), (float) (1.0 + 1.5 * r * Math.sin(theta) * Math.sin(phi))));
+      }
+    }
+    for (int i = 0; i < segments; i++) {
+      for (int j = 0; j < segments; j++) {
+        final int a = i * segments + j;
+        final int b = i * segments + (j + 1) % segments;
+        final int c = (i + 1) * segments + j;
+        final int d = (i + 1) * segments + (j + 1) % segments;
+        mesh.addFace(new Vector3i(a, c, b));
+        mesh.addFace(new Vector3i(b, c, d));
+      }
+    }
+    return mesh;
+  }
+
+  /**
+   * Generates the segments of synthetic objects with 2s each.
+   *
+   * @param objects  Number of objects.
+   * @param segments Number of segments per object.
+   * @return List of {@link MediaSegmentDescriptor}s, ordered by object and segment number.
+   */
+  public static List<MediaSegmentDescriptor> segments(int objects, int segments) {
+    final List<MediaSegmentDescriptor> descriptors = new ArrayList<>(objects * segments);
+    for (int o = 0; o < objects; o++) {
+      for (int s = 1; s <= segments; s++) {
+        descriptors.add(new MediaSegmentDescriptor(objectId(o), segmentId(o, s), s, (s - 1) * 50, s * 50 - 1, (s - 1) * 2f, s * 2f, true));
+      }
+    }
+    return descriptors;
+  }
+
+  public static String objectId(int object) {
+    return "v_" + object;
+  }
+
+  public static String segmentId(int object, int segment) {
+    return "v_" + object + "_" + segment;
+  }
+
+  /**
+   * Generates a score map for a random subset of the segments (or objects) generated by {@link #segments(int, int)}, as built from the results of a kNN lookup.
+   *
+   * @param ids   Generates the ID of the i-th segment or object.
+   * @param range Number of distinct IDs to draw from.
+   * @param count Number of scores; fewer IDs are returned if an ID is drawn more than once.
+   * @param seed  Seed of the generator.
+   * @return Map of IDs to scores in [0, 1].
+   */
+  public static ObjectDoubleHashMap<String> scores(IntFunction<String> ids, int range, int count, long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final ObjectDoubleHashMap<String> scores = new ObjectDoubleHashMap<>(count);
+    for (int i = 0; i < count; i++) {
+      scores.put(ids.apply(random.nextInt(range)), random.nextDouble());
+    }
+    return scores;
+  }
+
+  /**
+   * Writes a JSON export of a feature entity, i.e. an array of objects with an {@code id} and a {@code feature} vector, as written by {@link org.vitrivr.cineast.core.db.json.JsonFileWriter}.
+   *
+   * @param file      The file to write.
+   * @param rows      Number of rows.
+   * @param dimension Dimension of the feature vectors.
+   * @param seed      Seed of the generator.
+   */
+  public static void json(Path file, int rows, int dimension, long seed) throws IOException {
+    final SplittableRandom random = new SplittableRandom(seed);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("[\n");
+      for (int i = 0; i < rows; i++) {
+        writer.write("{\"id\":\"v_" + (i / 100) + "_" + (i % 100 + 1) + "\",\"feature\":[");
+        for (int j = 0; j < dimension; j++) {
+          if (j > 0) {
+            writer.write(',');
+          }
+          writer.write(String.format(Locale.ROOT, "%.6f", random.nextDouble()));
+        }
+        writer.write(i < rows - 1 ? "]},\n" : "]}\n");
+      }
+      writer.write("]\n");
+    }
+  }
+
+  private static int noise(int channel, SplittableRandom random) {
+    return Math.max(0, Math.min(255, channel + random.nextInt(-8, 9)));
+  }
+}
@@ -0,0 +1,82 @@
+package org.vitrivr.cineast.core.color;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+
+/**
+ * Converts every pixel of a synthetic 720p frame with the conversions of {@link ColorConverter} used during extraction: Lab computed per pixel, Lab through the {@link LabLookupTable} (as a container and into a primitive array), HSV and luminance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorConverterBenchmark {
+
+  private static final int WIDTH = 1280;
+
+  private static final int HEIGHT = 720;
+
+  private int[] colors;
+
+  @Setup
+  public void setup() {
+    this.colors = Fixtures.colors(WIDTH, HEIGHT, 42);
+  }
+
+  @Benchmark
+  public float rgbToLab() {
+    float sum = 0f;
+    for (int c : this.colors) {
+      sum += ColorConverter.RGBtoLab(ReadableRGBContainer.getRed(c), ReadableRGBContainer.getGreen(c), ReadableRGBContainer.getBlue(c)).getL();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public float cachedRgbToLab() {
+    float sum = 0f;
+    for (int c : this.colors) {
+      sum += ColorConverter.cachedRGBtoLab(c).getL();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public float[] lookupTable() {
+    final float[] lab = new float[this.colors.length * 3];
+    for (int i = 0; i < this.colors.length; i++) {
+      LabLookupTable.toLab(this.colors[i], lab, 3 * i);
+    }
+    return lab;
+  }
+
+  @Benchmark
+  public float[] rgbToHsv() {
+    final float[] hsv = new float[3];
+    final float[] sum = new float[3];
+    for (int c : this.colors) {
+      ColorConverter.RGBtoHSV(c, hsv);
+      sum[0] += hsv[0];
+      sum[1] += hsv[1];
+      sum[2] += hsv[2];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public float[] rgbToLuminance() {
+    return ColorConverter.RGBtoLuminance(this.colors);
+  }
+}
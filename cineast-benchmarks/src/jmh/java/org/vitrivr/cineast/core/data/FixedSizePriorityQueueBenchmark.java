@@ -0,0 +1,75 @@
+package org.vitrivr.cineast.core.data;
+
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+
+/**
+ * Selects the k smallest of one million distances, as done by a kNN lookup, with a {@link FixedSizePriorityQueue} of {@link SegmentDistanceElement}s and with a {@link FixedSizeDistanceHeap} of primitive (distance, row) pairs whose IDs are only resolved for the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixedSizePriorityQueueBenchmark {
+
+  private static final int SIZE = 1_000_000;
+
+  private static final int SEGMENTS = 100;
+
+  @Param({"10", "1000"})
+  public int k;
+
+  private double[] distances;
+
+  private String[] ids;
+
+  @Setup
+  public void setup() {
+    final SplittableRandom random = new SplittableRandom(42);
+    this.distances = new double[SIZE];
+    this.ids = new String[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      this.distances[i] = random.nextDouble();
+      this.ids[i] = Fixtures.segmentId(i / SEGMENTS, i % SEGMENTS + 1);
+    }
+  }
+
+  @Benchmark
+  public FixedSizePriorityQueue<SegmentDistanceElement> queue() {
+    final FixedSizePriorityQueue<SegmentDistanceElement> queue = FixedSizePriorityQueue.create(this.k, Comparator.comparingDouble(SegmentDistanceElement::getDistance));
+    for (int i = 0; i < SIZE; i++) {
+      queue.add(new SegmentDistanceElement(this.ids[i], this.distances[i]));
+    }
+    return queue;
+  }
+
+  @Benchmark
+  public SegmentDistanceElement[] heap() {
+    final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(this.k);
+    for (int i = 0; i < SIZE; i++) {
+      heap.offer(this.distances[i], i);
+    }
+    heap.sort();
+    final SegmentDistanceElement[] results = new SegmentDistanceElement[heap.size()];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = new SegmentDistanceElement(this.ids[heap.index(i)], heap.distance(i));
+    }
+    return results;
+  }
+}
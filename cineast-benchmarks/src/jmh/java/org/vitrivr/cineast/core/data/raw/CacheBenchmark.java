@@ -0,0 +1,224 @@
+package org.vitrivr.cineast.core.data.raw;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.CacheConfig.Policy;
+import org.vitrivr.cineast.core.config.DecoderConfig;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+import org.vitrivr.cineast.core.extraction.decode.video.FFMpegVideoDecoder;
+
+/**
+ * Compares the former disk cache (one temporary file per image, a {@link SoftReference} to its bytes and a full re-read once the reference was cleared) with the {@link CacheSlabStore} used by {@link CachedDataFactory} when caching is forced by {@link Policy#DISK_CACHE}. One operation caches a segment of frames, reads all colors of every frame twice, as the extractors of a run would, and then drops the frames; the slab cache releases them explicitly, as the extraction pipeline does once a segment has been processed.
+ * <p>
+ * The frames are decoded from the videos in the directory given by the system property {@code cineast.benchmark.videos}; if absent, synthetic 720p frames are used. With {@code pressure}, the soft references of the former cache are cleared before every read, which is what happens once the heap fills up during extraction. The number of cache files and the maximum number of open file descriptors are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CacheBenchmark {
+
+  private static final int FRAMES = 50;
+
+  private static final int WIDTH = 1280;
+
+  private static final int HEIGHT = 720;
+
+  @Param({"false", "true"})
+  public boolean pressure;
+
+  private final List<BufferedImage> frames = new ArrayList<>(FRAMES);
+
+  private final List<BufferedImage> thumbs = new ArrayList<>(FRAMES);
+
+  private Path directory;
+
+  private CachedDataFactory factory;
+
+  private long files = 0;
+
+  private long maxOpenFiles = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    final String videos = System.getProperty("cineast.benchmark.videos");
+    if (videos != null) {
+      this.decode(Paths.get(videos));
+    }
+    final SplittableRandom random = new SplittableRandom(42);
+    while (this.frames.size() < FRAMES) {
+      final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          image.setRGB(x, y, random.nextInt(0x1000000));
+        }
+      }
+      this.frames.add(image);
+    }
+    for (BufferedImage frame : this.frames) {
+      this.thumbs.add(MultiImage.generateThumb(frame));
+    }
+
+    this.directory = Files.createTempDirectory("cineast-cache-benchmark");
+    final CacheConfig config = new CacheConfig(Policy.DISK_CACHE.name(), this.directory.toString());
+    config.setCacheSize(4096);
+    this.factory = new CachedDataFactory(config);
+  }
+
+  /**
+   * Decodes up to {@link #FRAMES} frames from the videos in the given directory.
+   */
+  private void decode(Path directory) throws IOException {
+    final CacheConfig memory = new CacheConfig(Policy.AVOID_CACHE.name(), System.getProperty("java.io.tmpdir"));
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.{mp4,mkv,avi,mov,webm}")) {
+      for (Path video : stream) {
+        final FFMpegVideoDecoder decoder = new FFMpegVideoDecoder();
+        if (!decoder.init(video, new DecoderConfig(), memory)) {
+          continue;
+        }
+        VideoFrame frame;
+        while (this.frames.size() < FRAMES && (frame = decoder.getNext()) != null) {
+          this.frames.add(frame.getImage().getBufferedImage());
+        }
+        decoder.close();
+        if (this.frames.size() >= FRAMES) {
+          return;
+        }
+      }
+    }
+  }
+
+  @TearDown
+  public void teardown() throws IOException {
+    System.out.printf("%n%d cache files, at most %d open file descriptors%n", this.files + this.factory.store().getSlabCount(), this.maxOpenFiles);
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Benchmark
+  public long legacy() throws IOException {
+    final List<LegacyCachedImage> images = new ArrayList<>(FRAMES);
+    for (BufferedImage frame : this.frames) {
+      images.add(new LegacyCachedImage(frame, this.directory));
+    }
+    this.files += images.size();
+    long sum = 0;
+    for (int pass = 0; pass < 2; pass++) {
+      for (LegacyCachedImage image : images) {
+        if (this.pressure) {
+          image.data.clear();
+        }
+        for (int c : image.getColors()) {
+          sum += c & 0xFF;
+        }
+      }
+    }
+    this.sampleOpenFiles();
+    for (LegacyCachedImage image : images) {
+      Files.deleteIfExists(image.path);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long slab() {
+    final List<MultiImage> images = new ArrayList<>(FRAMES);
+    for (int i = 0; i < this.frames.size(); i++) {
+      images.add(this.factory.newCachedMultiImage(this.frames.get(i), this.thumbs.get(i), "img"));
+    }
+    long sum = 0;
+    for (int pass = 0; pass < 2; pass++) {
+      for (MultiImage image : images) {
+        for (int c : image.getColors()) {
+          sum += c & 0xFF;
+        }
+      }
+    }
+    this.sampleOpenFiles();
+    for (MultiImage image : images) {
+      image.clear();
+    }
+    return sum;
+  }
+
+  private void sampleOpenFiles() {
+    final String[] descriptors = new File("/proc/self/fd").list();
+    if (descriptors != null) {
+      this.maxOpenFiles = Math.max(this.maxOpenFiles, descriptors.length);
+    }
+  }
+
+  /**
+   * Replica of the former {@link org.vitrivr.cineast.core.data.raw.images.CachedMultiImage}.
+   */
+  private static final class LegacyCachedImage {
+
+    private final Path path;
+
+    private final int width;
+
+    private final int height;
+
+    private SoftReference<ByteBuffer> data;
+
+    private LegacyCachedImage(BufferedImage image, Path directory) throws IOException {
+      this.width = image.getWidth();
+      this.height = image.getHeight();
+      final ByteBuffer buffer = ByteBuffer.allocate(this.width * this.height * 4).order(ByteOrder.LITTLE_ENDIAN);
+      for (int c : image.getRGB(0, 0, this.width, this.height, null, 0, this.width)) {
+        buffer.putInt(c);
+      }
+      this.path = Files.createTempFile(directory, "img", ".tmp");
+      try (final OutputStream stream = Files.newOutputStream(this.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        stream.write(buffer.array());
+      }
+      this.data = new SoftReference<>(buffer);
+    }
+
+    private int[] getColors() throws IOException {
+      ByteBuffer buffer = this.data.get();
+      if (buffer == null) {
+        buffer = ByteBuffer.wrap(Files.readAllBytes(this.path)).order(ByteOrder.LITTLE_ENDIAN);
+        this.data = new SoftReference<>(buffer);
+      }
+      final int[] colors = new int[this.width * this.height];
+      for (int i = 0; i < colors.length; i++) {
+        colors[i] = buffer.getInt(i * 4);
+      }
+      return colors;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.vitrivr.cineast.core.data.segments;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.frames.VideoDescriptor;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+
+/**
+ * Segments a long synthetic shot (720 frames, the default maximum shot length of {@link org.vitrivr.cineast.core.extraction.segmenter.video.VideoHistogramSegmenter}) and computes the average image, the median image and the most representative frame, once for every {@link FrameRetention}. Every frame gets its own pixel buffer, as it would when decoded. Run with {@code -prof gc}: with {@link FrameRetention#ALL}, all frames of the shot stay reachable until the segment is processed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VideoSegmentBenchmark {
+
+  private static final int WIDTH = 640;
+
+  private static final int HEIGHT = 360;
+
+  private static final int FRAMES = 720;
+
+  @Param({"ALL", "DECIMATED", "THUMBNAILS", "MEDIAN", "AGGREGATES"})
+  public FrameRetention retention;
+
+  private int[][] sources;
+
+  private final VideoDescriptor descriptor = new VideoDescriptor(25f, FRAMES * 40L, WIDTH, HEIGHT);
+
+  @Setup
+  public void setup() {
+    this.sources = Fixtures.frames(8, WIDTH, HEIGHT, 42).stream().map(f -> f.getImage().getColors()).toArray(int[][]::new);
+  }
+
+  @Benchmark
+  public void segment(Blackhole blackhole) {
+    final CachedDataFactory factory = CachedDataFactory.getDefault();
+    final VideoSegment segment = new VideoSegment(this.retention);
+    for (int i = 0; i < FRAMES; i++) {
+      final int[] colors = this.sources[i % this.sources.length].clone();
+      segment.addVideoFrame(new VideoFrame(i, i * 40L, factory.newInMemoryMultiImage(WIDTH, HEIGHT, colors), this.descriptor));
+    }
+    blackhole.consume(segment.getAvgImg());
+    blackhole.consume(segment.getMedianImg());
+    blackhole.consume(segment.getMostRepresentativeFrame());
+    segment.clear();
+  }
+}
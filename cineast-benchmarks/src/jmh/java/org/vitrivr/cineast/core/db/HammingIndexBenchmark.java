@@ -0,0 +1,117 @@
+package org.vitrivr.cineast.core.db;
+
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.util.distance.BitSetHammingDistance;
+
+/**
+ * Compares near-duplicate lookups of {@link org.vitrivr.cineast.core.features.DCTImageHash} hashes in queries per second: the former scan over bit set objects with {@link BitSetHammingDistance}, a popcount scan over packed hashes and the {@link HammingIndex}. Every query is a stored hash with a few flipped bits, which is the typical near-duplicate case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HammingIndexBenchmark {
+
+  private static final int QUERIES = 1024;
+
+  private static final int K = 10;
+
+  @Param({"100000", "1000000", "10000000"})
+  public int size;
+
+  /**
+   * Maximum distance of a result.
+   */
+  @Param({"8", "64"})
+  public int radius;
+
+  private BitSet[] bitSets;
+
+  private long[] hashes;
+
+  private long[] queries;
+
+  private BitSet[] queryBitSets;
+
+  private HammingIndex index;
+
+  private int next = 0;
+
+  @Setup
+  public void setup() {
+    final SplittableRandom random = new SplittableRandom(42);
+    this.hashes = new long[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.hashes[i] = random.nextLong();
+    }
+    this.bitSets = new BitSet[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.bitSets[i] = HammingIndex.unpack(this.hashes[i]);
+    }
+    this.queries = new long[QUERIES];
+    this.queryBitSets = new BitSet[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      long query = this.hashes[random.nextInt(this.size)];
+      for (int flips = random.nextInt(5); flips > 0; flips--) {
+        query ^= 1L << random.nextInt(64);
+      }
+      this.queries[i] = query;
+      this.queryBitSets[i] = HammingIndex.unpack(query);
+    }
+    this.index = HammingIndex.of(IntStream.range(0, this.size).toArray(), this.hashes);
+  }
+
+  @Benchmark
+  public FixedSizeDistanceHeap bitSetScan() {
+    final BitSet query = this.queryBitSets[this.next++ % QUERIES];
+    final BitSetHammingDistance distance = new BitSetHammingDistance();
+    final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(K);
+    for (int i = 0; i < this.bitSets.length; i++) {
+      final double d = distance.applyAsDouble(query, this.bitSets[i]);
+      if (d <= this.radius) {
+        heap.offer(d, i);
+      }
+    }
+    return heap.sort();
+  }
+
+  @Benchmark
+  public FixedSizeDistanceHeap packedScan() {
+    final long query = this.queries[this.next++ % QUERIES];
+    final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(K);
+    for (int i = 0; i < this.hashes.length; i++) {
+      final int d = HammingIndex.distance(query, this.hashes[i]);
+      if (d <= this.radius) {
+        heap.offer(d, i);
+      }
+    }
+    return heap.sort();
+  }
+
+  @Benchmark
+  public FixedSizeDistanceHeap index() {
+    return this.index.nearest(this.queries[this.next++ % QUERIES], K, this.radius);
+  }
+
+  @Benchmark
+  public int[] indexRadius() {
+    return this.index.radius(this.queries[this.next++ % QUERIES], Math.min(this.radius, 8));
+  }
+}
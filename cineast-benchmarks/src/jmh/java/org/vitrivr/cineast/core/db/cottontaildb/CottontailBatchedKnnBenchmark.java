@@ -0,0 +1,148 @@
+package org.vitrivr.cineast.core.db.cottontaildb;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.util.CineastConstants;
+import org.vitrivr.cottontail.grpc.CottontailGrpc;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryMessage;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryResponseMessage;
+import org.vitrivr.cottontail.grpc.DQLGrpc;
+
+/**
+ * Measures the latency of answering a batch of kNN queries with {@link CottontailSelector#getBatchedNearestNeighbours(int, List, String, Class, List)} against an in-process stand-in for the Cottontail DB gRPC service. {@link #sequential()} issues the same queries one after the other with {@link CottontailSelector#getNearestNeighboursGeneric(int, float[], String, Class, ReadableQueryConfig)}, as callers did before batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CottontailBatchedKnnBenchmark {
+
+  private static final int K = 100;
+
+  private static final int DIMENSIONS = 512;
+
+  /**
+   * Simulated server-side latency per query in milliseconds.
+   */
+  private static final long QUERY_LATENCY_MS = 5;
+
+  @Param({"1", "8", "32"})
+  public int vectors;
+
+  private Server server;
+
+  private ManagedChannel channel;
+
+  private CottontailSelector selector;
+
+  private List<float[]> queries;
+
+  private List<ReadableQueryConfig> configs;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    final String name = InProcessServerBuilder.generateName();
+    this.server = InProcessServerBuilder.forName(name).executor(Executors.newCachedThreadPool()).addService(new KnnStandIn()).build().start();
+    this.channel = InProcessChannelBuilder.forName(name).build();
+    this.selector = new CottontailSelector(new CottontailWrapper(this.channel));
+    this.selector.open("features_benchmark");
+
+    final SplittableRandom random = new SplittableRandom(42);
+    final QueryConfig config = new QueryConfig(null);
+    config.setDistanceIfEmpty(Distance.euclidean);
+    this.queries = new ArrayList<>(this.vectors);
+    this.configs = new ArrayList<>(this.vectors);
+    for (int i = 0; i < this.vectors; i++) {
+      final float[] vector = new float[DIMENSIONS];
+      for (int j = 0; j < DIMENSIONS; j++) {
+        vector[j] = (float) random.nextDouble();
+      }
+      this.queries.add(vector);
+      this.configs.add(new ReadableQueryConfig(config));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    this.channel.shutdownNow();
+    this.server.shutdownNow();
+  }
+
+  @Benchmark
+  public List<SegmentDistanceElement> batched() {
+    return this.selector.getBatchedNearestNeighbours(K, this.queries, "feature", SegmentDistanceElement.class, this.configs);
+  }
+
+  @Benchmark
+  public List<SegmentDistanceElement> sequential() {
+    final List<SegmentDistanceElement> results = new ArrayList<>(K * this.vectors);
+    for (int i = 0; i < this.vectors; i++) {
+      results.addAll(this.selector.getNearestNeighboursGeneric(K, this.queries.get(i), "feature", SegmentDistanceElement.class, this.configs.get(i)));
+    }
+    return results;
+  }
+
+  /**
+   * Stand-in for the DQL service of Cottontail DB. Answers every query with as many rows as requested after {@link #QUERY_LATENCY_MS}.
+   */
+  private static final class KnnStandIn extends DQLGrpc.DQLImplBase {
+
+    @Override
+    public void query(QueryMessage request, StreamObserver<QueryResponseMessage> responseObserver) {
+      try {
+        Thread.sleep(QUERY_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      final QueryResponseMessage.Builder response = QueryResponseMessage.newBuilder()
+          .addColumns(column(CineastConstants.GENERIC_ID_COLUMN_QUALIFIER, CottontailGrpc.Type.STRING))
+          .addColumns(column(CineastConstants.DB_DISTANCE_VALUE_QUALIFIER, CottontailGrpc.Type.DOUBLE));
+      for (int i = 0; i < request.getQuery().getLimit(); i++) {
+        response.addTuples(QueryResponseMessage.Tuple.newBuilder()
+            .addData(CottontailGrpc.Literal.newBuilder().setStringData("v_" + i))
+            .addData(CottontailGrpc.Literal.newBuilder().setDoubleData(i)));
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void ping(Empty request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    private static CottontailGrpc.ColumnDefinition column(String name, CottontailGrpc.Type type) {
+      return CottontailGrpc.ColumnDefinition.newBuilder().setName(CottontailGrpc.ColumnName.newBuilder().setName(name)).setType(type).build();
+    }
+  }
+}
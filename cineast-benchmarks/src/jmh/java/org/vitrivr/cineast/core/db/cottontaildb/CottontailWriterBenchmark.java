@@ -0,0 +1,185 @@
+package org.vitrivr.cineast.core.db.cottontaildb;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.core.data.FloatVectorImpl;
+import org.vitrivr.cineast.core.data.ReadableFloatVector;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.util.CineastConstants;
+import org.vitrivr.cottontail.client.language.basics.Constants;
+import org.vitrivr.cottontail.client.language.dml.BatchInsert;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.BatchInsertMessage;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryResponseMessage;
+import org.vitrivr.cottontail.grpc.DMLGrpc;
+import org.vitrivr.cottontail.grpc.DQLGrpc;
+
+/**
+ * Measures the throughput (tuples per second) of {@link CottontailWriter#persist(List)} against an in-process stand-in for the Cottontail DB gRPC service, for growing batch sizes. {@link #legacy()} replicates the former implementation, which drained the batch with {@code remove(0)} and computed the serialized size of the message for every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CottontailWriterBenchmark {
+
+  /**
+   * Number of tuples persisted per invocation.
+   */
+  private static final int TUPLES = 20_000;
+
+  private static final int DIMENSIONS = 512;
+
+  /**
+   * Simulated server-side latency per message in milliseconds.
+   */
+  private static final long INSERT_LATENCY_MS = 2;
+
+  @Param({"100", "1000", "10000"})
+  public int batchSize;
+
+  private Server server;
+
+  private ManagedChannel channel;
+
+  private CottontailWrapper wrapper;
+
+  private CottontailWriter writer;
+
+  private List<List<PersistentTuple>> batches;
+
+  @Setup(Level.Trial)
+  public void startServer() throws IOException {
+    final String name = InProcessServerBuilder.generateName();
+    this.server = InProcessServerBuilder.forName(name).executor(Executors.newCachedThreadPool()).addService(new InsertStandIn()).addService(new PingStandIn()).build().start();
+    this.channel = InProcessChannelBuilder.forName(name).build();
+    this.wrapper = new CottontailWrapper(this.channel);
+    this.writer = new CottontailWriter(this.wrapper, this.batchSize, false);
+    this.writer.setFieldNames(CineastConstants.GENERIC_ID_COLUMN_QUALIFIER, CineastConstants.FEATURE_COLUMN_QUALIFIER);
+    this.writer.open("features_benchmark");
+  }
+
+  /**
+   * The legacy implementation consumes its input, hence the batches are regenerated for every invocation.
+   */
+  @Setup(Level.Invocation)
+  public void generateBatches() {
+    final SplittableRandom random = new SplittableRandom(42);
+    this.batches = new ArrayList<>();
+    List<PersistentTuple> batch = new ArrayList<>(this.batchSize);
+    for (int i = 0; i < TUPLES; i++) {
+      final float[] vector = new float[DIMENSIONS];
+      for (int j = 0; j < DIMENSIONS; j++) {
+        vector[j] = (float) random.nextDouble();
+      }
+      batch.add(this.writer.generateTuple("v_" + i, new FloatVectorImpl(vector)));
+      if (batch.size() == this.batchSize) {
+        this.batches.add(batch);
+        batch = new ArrayList<>(this.batchSize);
+      }
+    }
+    if (!batch.isEmpty()) {
+      this.batches.add(batch);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stopServer() {
+    this.channel.shutdownNow();
+    this.server.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TUPLES)
+  public boolean streaming() {
+    boolean success = true;
+    for (List<PersistentTuple> batch : this.batches) {
+      success &= this.writer.persist(batch);
+    }
+    return success;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TUPLES)
+  public boolean legacy() {
+    for (List<PersistentTuple> batch : this.batches) {
+      this.legacyPersist(batch);
+    }
+    return true;
+  }
+
+  private void legacyPersist(List<PersistentTuple> tuples) {
+    final String fqn = this.wrapper.fqnInput("features_benchmark");
+    final String[] columns = {CineastConstants.GENERIC_ID_COLUMN_QUALIFIER, CineastConstants.FEATURE_COLUMN_QUALIFIER};
+    BatchInsert insert = new BatchInsert().into(fqn).columns(columns);
+    while (!tuples.isEmpty()) {
+      final PersistentTuple tuple = tuples.remove(0);
+      final Object[] values = tuple.getElements().stream().map(o -> {
+        if (o instanceof ReadableFloatVector) {
+          return ReadableFloatVector.toArray((ReadableFloatVector) o);
+        } else {
+          return o;
+        }
+      }).toArray();
+      if (insert.serializedSize() >= Constants.MAX_PAGE_SIZE_BYTES - 10_000) {
+        this.wrapper.client.insert(insert);
+        insert = new BatchInsert().into(fqn).columns(columns);
+      }
+      insert.append(values);
+    }
+    if (insert.count() > 0) {
+      this.wrapper.client.insert(insert);
+    }
+  }
+
+  /**
+   * Stand-in for the DML service of Cottontail DB. Acknowledges every batch insert after {@link #INSERT_LATENCY_MS}.
+   */
+  private static final class InsertStandIn extends DMLGrpc.DMLImplBase {
+
+    @Override
+    public void insertBatch(BatchInsertMessage request, StreamObserver<QueryResponseMessage> responseObserver) {
+      try {
+        Thread.sleep(INSERT_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      responseObserver.onNext(QueryResponseMessage.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+  }
+
+  private static final class PingStandIn extends DQLGrpc.DQLImplBase {
+
+    @Override
+    public void ping(Empty request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+  }
+}
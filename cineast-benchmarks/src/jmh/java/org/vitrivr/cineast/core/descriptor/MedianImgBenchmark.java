@@ -0,0 +1,58 @@
+package org.vitrivr.cineast.core.descriptor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+
+/**
+ * Computes the median image of a synthetic shot with {@link MedianImg}, which keeps all frames and a 128-level histogram per pixel, and with {@link StreamingMedianImg}, which consumes the frames one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MedianImgBenchmark {
+
+  private static final int WIDTH = 320;
+
+  private static final int HEIGHT = 180;
+
+  @Param({"25", "250"})
+  public int frames;
+
+  private List<VideoFrame> shot;
+
+  @Setup
+  public void setup() {
+    this.shot = Fixtures.frames(this.frames, WIDTH, HEIGHT, 42);
+  }
+
+  @Benchmark
+  public MultiImage median() {
+    return MedianImg.getMedian(this.shot);
+  }
+
+  @Benchmark
+  public int[] streaming() {
+    final StreamingMedianImg median = new StreamingMedianImg();
+    for (VideoFrame frame : this.shot) {
+      median.add(frame.getImage().getColors());
+    }
+    return median.getColors();
+  }
+}
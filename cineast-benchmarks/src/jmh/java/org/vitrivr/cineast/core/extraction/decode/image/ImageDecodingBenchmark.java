@@ -0,0 +1,116 @@
+package org.vitrivr.cineast.core.extraction.decode.image;
+
+import com.twelvemonkeys.image.ResampleOp;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares decoding large JPEGs at full resolution followed by rescaling (the former path of {@link DefaultImageDecoder}) with {@link BoundedImageReader}, both with and without source subsampling.
+ * <p>
+ * The corpus is read from the directory given by the system property {@code cineast.benchmark.images}; if absent, a handful of synthetic 24 megapixel JPEGs is generated. Run with {@code -prof gc} to compare the bytes allocated per decoded image, which dominate the peak heap usage of the decoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImageDecodingBenchmark {
+
+  private static final int BOUNDS = 1024;
+
+  private static final int SYNTHETIC_IMAGES = 4;
+
+  private final List<Path> corpus = new ArrayList<>();
+
+  private Path generated;
+
+  private int next = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    final String directory = System.getProperty("cineast.benchmark.images");
+    if (directory != null) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory), "*.{jpg,jpeg,JPG,JPEG}")) {
+        stream.forEach(this.corpus::add);
+      }
+    } else {
+      this.generated = Files.createTempDirectory("cineast-decode");
+      final SplittableRandom random = new SplittableRandom(7);
+      for (int i = 0; i < SYNTHETIC_IMAGES; i++) {
+        final BufferedImage image = new BufferedImage(6000, 4000, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)), 6000, 4000, new Color(random.nextInt(0xFFFFFF))));
+        graphics.fillRect(0, 0, 6000, 4000);
+        for (int j = 0; j < 2000; j++) {
+          graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+          graphics.fillOval(random.nextInt(6000), random.nextInt(4000), 10 + random.nextInt(400), 10 + random.nextInt(400));
+        }
+        graphics.dispose();
+        final Path path = this.generated.resolve("image" + i + ".jpg");
+        ImageIO.write(image, "jpg", path.toFile());
+        this.corpus.add(path);
+      }
+    }
+    if (this.corpus.isEmpty()) {
+      throw new IllegalStateException("The benchmark corpus is empty.");
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (this.generated != null) {
+      for (Path path : this.corpus) {
+        Files.deleteIfExists(path);
+      }
+      Files.deleteIfExists(this.generated);
+    }
+  }
+
+  private Path next() {
+    return this.corpus.get(this.next++ % this.corpus.size());
+  }
+
+  @Benchmark
+  public BufferedImage fullResolution() throws IOException {
+    try (InputStream is = Files.newInputStream(this.next())) {
+      final BufferedImage input = ImageIO.read(is);
+      final int[] target = BoundedImageReader.targetSize(input.getWidth(), input.getHeight(), BOUNDS);
+      return new ResampleOp(target[0], target[1], ResampleOp.FILTER_LANCZOS).filter(input, null);
+    }
+  }
+
+  @Benchmark
+  public BufferedImage bounded() throws IOException {
+    return BoundedImageReader.read(this.next(), BOUNDS, false);
+  }
+
+  @Benchmark
+  public BufferedImage subsampled() throws IOException {
+    return BoundedImageReader.read(this.next(), BOUNDS, true);
+  }
+}
@@ -0,0 +1,60 @@
+package org.vitrivr.cineast.core.importer;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+
+/**
+ * Reads and converts all rows of a synthetic JSON export of 10'000 feature vectors with {@link JsonObjectImporter}, as done when importing JSON into another backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonObjectImporterBenchmark {
+
+  private static final int ROWS = 10_000;
+
+  @Param({"64", "512"})
+  public int dimension;
+
+  private Path file;
+
+  @Setup
+  public void setup() throws IOException {
+    this.file = Files.createTempFile("cineast-benchmark", ".json");
+    Fixtures.json(this.file, ROWS, this.dimension, 42);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.file);
+  }
+
+  @Benchmark
+  public int read() throws IOException {
+    final JsonObjectImporter importer = new JsonObjectImporter(this.file.toFile());
+    int rows = 0;
+    for (ObjectNode node = importer.readNext(); node != null; node = importer.readNext()) {
+      rows += importer.convert(node).size();
+    }
+    return rows;
+  }
+}
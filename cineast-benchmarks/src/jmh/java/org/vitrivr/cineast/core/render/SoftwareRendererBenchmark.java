@@ -0,0 +1,88 @@
+package org.vitrivr.cineast.core.render;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+
+/**
+ * Measures renders per second of the {@link SoftwareRenderer} at the resolution used by the lightfield features (256x256), for a voxelized sphere.
+ * <p>
+ * {@link #single()} renders one view on the calling thread, i.e. it reports renders per second per core. {@link #views()} renders {@link #VIEWS} camera positions in parallel like {@link org.vitrivr.cineast.core.features.Lightfield} does; dividing its score by the number of cores gives the per-core throughput under load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SoftwareRendererBenchmark {
+
+  private static final int SIZE = 256;
+
+  private static final int VIEWS = 20;
+
+  /**
+   * Number of voxels along each axis of the grid.
+   */
+  @Param({"16", "48"})
+  public int resolution;
+
+  private SoftwareRenderer renderer;
+
+  private List<double[]> eyes;
+
+  @Setup
+  public void setup() {
+    final VoxelGrid grid = new VoxelGrid(this.resolution, this.resolution, this.resolution, 1.0f / this.resolution, false);
+    final double radius = this.resolution / 2.0;
+    for (int i = 0; i < this.resolution; i++) {
+      for (int j = 0; j < this.resolution; j++) {
+        for (int k = 0; k < this.resolution; k++) {
+          final double x = i + 0.5 - radius;
+          final double y = j + 0.5 - radius;
+          final double z = k + 0.5 - radius;
+          if (x * x + y * y + z * z <= radius * radius) {
+            grid.toggleVoxel(true, i, j, k);
+          }
+        }
+      }
+    }
+    this.renderer = new SoftwareRenderer(SIZE, SIZE);
+    this.renderer.setProjection(SoftwareRenderer.Projection.PERSPECTIVE, 60.0f, 1.0f);
+    this.renderer.assemble(grid);
+
+    /* Camera positions evenly distributed on a sphere (Fibonacci lattice). */
+    this.eyes = new ArrayList<>(VIEWS);
+    final double golden = Math.PI * (3.0 - Math.sqrt(5.0));
+    for (int i = 0; i < VIEWS; i++) {
+      final double y = 1.0 - 2.0 * (i + 0.5) / VIEWS;
+      final double r = Math.sqrt(1.0 - y * y);
+      this.eyes.add(new double[]{0.95 * r * Math.cos(golden * i), 0.95 * y, 0.95 * r * Math.sin(golden * i)});
+    }
+  }
+
+  @Benchmark
+  public List<BufferedImage> single() {
+    return this.renderer.renderViews(this.eyes.subList(0, 1), 0.0, 0.0, 0.0);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VIEWS)
+  public List<BufferedImage> views() {
+    return this.renderer.renderViews(this.eyes, 0.0, 0.0, 0.0);
+  }
+}
@@ -0,0 +1,99 @@
+package org.vitrivr.cineast.core.temporal;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import com.carrotsearch.hppc.cursors.ObjectDoubleCursor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.StringDoublePair;
+import org.vitrivr.cineast.core.data.TemporalObject;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.temporal.sequential.SequentialTemporalScoringAlgorithm;
+import org.vitrivr.cineast.core.temporal.timedistance.TimeDistanceTemporalScoringAlgorithm;
+
+/**
+ * Scores synthetic temporal queries with {@link SequentialTemporalScoringAlgorithm} and {@link TimeDistanceTemporalScoringAlgorithm}. Every result container holds scores for a random subset of about a third of the segments of a few long objects, which is the case the former exhaustive path enumeration could not handle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemporalScoringBenchmark {
+
+  private static final int OBJECTS = 8;
+
+  /**
+   * Segments per object.
+   */
+  @Param({"10", "100", "1000"})
+  public int segments;
+
+  /**
+   * Number of result containers, i.e. stages of the temporal query.
+   */
+  @Param({"2", "4"})
+  public int containers;
+
+  /**
+   * Max length of a path in seconds; 0 stands for unbounded.
+   */
+  @Param({"0", "60"})
+  public float maxLength;
+
+  private Map<String, MediaSegmentDescriptor> segmentMap;
+
+  private List<List<StringDoublePair>> containerResults;
+
+  private List<Float> timeDistances;
+
+  @Setup
+  public void setup() {
+    this.segmentMap = new HashMap<>();
+    for (MediaSegmentDescriptor segment : Fixtures.segments(OBJECTS, this.segments)) {
+      this.segmentMap.put(segment.getSegmentId(), segment);
+    }
+    this.containerResults = new ArrayList<>(this.containers);
+    this.timeDistances = new ArrayList<>(this.containers - 1);
+    final int range = OBJECTS * this.segments;
+    for (int c = 0; c < this.containers; c++) {
+      final ObjectDoubleHashMap<String> scores = Fixtures.scores(i -> Fixtures.segmentId(i / this.segments, i % this.segments + 1), range, range / 3, 42 + c);
+      final List<StringDoublePair> results = new ArrayList<>(scores.size());
+      for (ObjectDoubleCursor<String> score : scores) {
+        results.add(new StringDoublePair(score.key, score.value));
+      }
+      this.containerResults.add(results);
+      if (c > 0) {
+        this.timeDistances.add(5f);
+      }
+    }
+    if (this.maxLength == 0f) {
+      this.maxLength = Float.MAX_VALUE;
+    }
+  }
+
+  @Benchmark
+  public List<TemporalObject> sequential() {
+    return new SequentialTemporalScoringAlgorithm(this.segmentMap, this.containerResults, this.maxLength).score();
+  }
+
+  @Benchmark
+  public List<TemporalObject> timeDistance() {
+    return new TimeDistanceTemporalScoringAlgorithm(this.segmentMap, this.containerResults, this.maxLength, this.timeDistances).score();
+  }
+}
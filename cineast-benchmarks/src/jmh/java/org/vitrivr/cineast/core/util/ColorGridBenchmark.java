@@ -0,0 +1,97 @@
+package org.vitrivr.cineast.core.util;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.color.ColorConverter;
+import org.vitrivr.cineast.core.color.RGBContainer;
+import org.vitrivr.cineast.core.color.ReadableLabContainer;
+
+/**
+ * Compares the 8x8 average Lab grid (as used by {@link org.vitrivr.cineast.core.features.AverageColorGrid8}) on a 720p frame between the former pipeline (boxed lists, {@link GridPartitioner#partition(java.util.List, int, int, int, int)} and a synchronized Lab cache) and {@link ColorGrid}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColorGridBenchmark {
+
+  private static final int WIDTH = 1280;
+
+  private static final int HEIGHT = 720;
+
+  /**
+   * Replica of the synchronized cache formerly held by {@link ColorConverter}.
+   */
+  private static final IntObjectHashMap<ReadableLabContainer> LEGACY_CACHE = new IntObjectHashMap<>();
+
+  private int[] colors;
+
+  @Setup
+  public void setup() {
+    this.colors = Fixtures.colors(WIDTH, HEIGHT, 42);
+  }
+
+  @Benchmark
+  public float[] legacy() {
+    return legacyAverageLab(this.colors);
+  }
+
+  @Benchmark
+  public float[] primitive() {
+    return ColorGrid.averageLab(this.colors, WIDTH, HEIGHT, 8, 8);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public float[] legacyContended() {
+    return legacyAverageLab(this.colors);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public float[] primitiveContended() {
+    return ColorGrid.averageLab(this.colors, WIDTH, HEIGHT, 8, 8);
+  }
+
+  private static synchronized ReadableLabContainer legacyCachedRGBtoLab(int rgb) {
+    ReadableLabContainer lab = LEGACY_CACHE.get(rgb);
+    if (lab == null) {
+      lab = ColorConverter.RGBtoLab(new RGBContainer(rgb));
+      LEGACY_CACHE.put(rgb, lab);
+    }
+    return lab;
+  }
+
+  private static float[] legacyAverageLab(int[] colors) {
+    final ArrayList<ReadableLabContainer> labs = new ArrayList<>(colors.length);
+    for (int c : colors) {
+      labs.add(legacyCachedRGBtoLab(c));
+    }
+    final ArrayList<LinkedList<ReadableLabContainer>> partitions = GridPartitioner.partition(labs, WIDTH, HEIGHT, 8, 8);
+    final float[] result = new float[8 * 8 * 3];
+    int i = 0;
+    for (LinkedList<ReadableLabContainer> list : partitions) {
+      final ReadableLabContainer avg = ColorUtils.getAvg(list);
+      result[i++] = avg.getL();
+      result[i++] = avg.getA();
+      result[i++] = avg.getB();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,71 @@
+package org.vitrivr.cineast.core.util;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+
+/**
+ * Fuses the object scores of a query into its segment scores with {@link ScoreFusion}, including the lookup of the segments of every object. The segments live in an {@link InMemoryStore}, so the benchmark measures the fusion and the reader rather than a database round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreFusionBenchmark {
+
+  private static final int OBJECTS = 10_000;
+
+  private static final int SEGMENTS = 20;
+
+  /**
+   * Number of object and segment scores of a query.
+   */
+  @Param({"100", "1000"})
+  public int results;
+
+  private MediaSegmentReader reader;
+
+  private ObjectDoubleHashMap<String> bySegment;
+
+  private ObjectDoubleHashMap<String> byObject;
+
+  @Setup
+  public void setup() {
+    final InMemoryStore store = new InMemoryStore();
+    final InMemoryStore.Entity entity = store.createEntity(MediaSegmentDescriptor.ENTITY, MediaSegmentDescriptor.FIELDNAMES).orElseThrow();
+    final List<Object[]> rows = new ArrayList<>(OBJECTS * SEGMENTS);
+    for (MediaSegmentDescriptor segment : Fixtures.segments(OBJECTS, SEGMENTS)) {
+      rows.add(new Object[]{segment.getSegmentId(), segment.getObjectId(), segment.getSequenceNumber(), segment.getStart(), segment.getEnd(), segment.getStartabs(), segment.getEndabs()});
+    }
+    entity.append(rows);
+    this.reader = new MediaSegmentReader(new InMemorySelector(store));
+    this.bySegment = Fixtures.scores(i -> Fixtures.segmentId(i / SEGMENTS, i % SEGMENTS + 1), OBJECTS * SEGMENTS, this.results, 42);
+    this.byObject = Fixtures.scores(Fixtures::objectId, OBJECTS, this.results, 43);
+  }
+
+  @Benchmark
+  public ObjectDoubleHashMap<String> fuse() {
+    final ObjectDoubleHashMap<String> scores = this.bySegment.clone();
+    ScoreFusion.fuseObjectsIntoSegments(scores, this.byObject, this.reader);
+    return scores;
+  }
+}
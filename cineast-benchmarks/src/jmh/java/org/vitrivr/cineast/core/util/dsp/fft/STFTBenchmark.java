@@ -0,0 +1,86 @@
+package org.vitrivr.cineast.core.util.dsp.fft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.util.audio.HPCP;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
+
+/**
+ * Calculates the power spectra of one minute of audio at 22050 Hz with {@link STFT} and with a replica of the former implementation, which created one {@link FFT} per window backed by {@link FastFourierTransformer} and boxed {@link Complex} coefficients. {@link #hpcp()} additionally measures a consumer reading the power matrix.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class STFTBenchmark {
+
+  private static final float SAMPLINGRATE = 22050f;
+
+  @Param({"1024", "2048", "4096"})
+  public int windowsize;
+
+  private double[] samples;
+
+  private final WindowFunction window = new HanningWindow();
+
+  @Setup
+  public void setup() {
+    this.samples = Fixtures.audio(60, SAMPLINGRATE, 42);
+  }
+
+  @Benchmark
+  public double[] primitive() {
+    final STFT stft = new STFT(this.windowsize, this.windowsize / 2, 0, this.window, SAMPLINGRATE);
+    stft.forward(this.samples);
+    return stft.getPowerMatrix();
+  }
+
+  @Benchmark
+  public List<Spectrum> legacy() {
+    final int increment = this.windowsize / 2;
+    final double[] buffer = new double[this.windowsize];
+    final List<Spectrum> spectra = new ArrayList<>();
+    for (int start = 0; start < this.samples.length; start += increment) {
+      final int length = Math.min(this.windowsize, this.samples.length - start);
+      System.arraycopy(this.samples, start, buffer, 0, length);
+      Arrays.fill(buffer, length, buffer.length, 0.0);
+      final double[] reshaped = new double[this.windowsize];
+      for (int i = 0; i < reshaped.length; i++) {
+        reshaped[i] = buffer[i] * this.window.value(i, this.windowsize);
+      }
+      final Complex[] data = new FastFourierTransformer(DftNormalization.STANDARD).transform(reshaped, TransformType.FORWARD);
+      spectra.add(Spectrum.createPowerSpectrum(data, SAMPLINGRATE, this.window));
+    }
+    return spectra;
+  }
+
+  @Benchmark
+  public HPCP hpcp() {
+    final STFT stft = new STFT(this.windowsize, this.windowsize / 2, 0, this.window, SAMPLINGRATE);
+    stft.forward(this.samples);
+    final HPCP hpcp = new HPCP();
+    hpcp.addContribution(stft);
+    return hpcp;
+  }
+}
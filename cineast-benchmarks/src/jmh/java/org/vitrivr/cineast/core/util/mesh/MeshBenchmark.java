@@ -0,0 +1,60 @@
+package org.vitrivr.cineast.core.util.mesh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+import org.vitrivr.cineast.core.data.m3d.Voxelizer;
+
+/**
+ * Normalizes a synthetic mesh with the KHL transform (as done for every {@link org.vitrivr.cineast.core.data.segments.Model3DSegment}) and voxelizes the normalized mesh at the resolution used by {@link org.vitrivr.cineast.core.features.SphericalHarmonics}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeshBenchmark {
+
+  private static final int GRID_SIZE = 64;
+
+  /**
+   * Segments of the UV sphere; the mesh has about 2 * segments^2 faces.
+   */
+  @Param({"32", "128"})
+  public int segments;
+
+  private Mesh mesh;
+
+  private Mesh normalized;
+
+  private final Voxelizer voxelizer = new Voxelizer(2.0f / GRID_SIZE);
+
+  @Setup
+  public void setup() {
+    this.mesh = Fixtures.mesh(this.segments, 42);
+    this.normalized = MeshTransformUtil.khlTransform(this.mesh, 1.0f);
+  }
+
+  @Benchmark
+  public Mesh khlTransform() {
+    return MeshTransformUtil.khlTransform(this.mesh, 1.0f);
+  }
+
+  @Benchmark
+  public VoxelGrid voxelize() {
+    return this.voxelizer.voxelize(this.normalized);
+  }
+}
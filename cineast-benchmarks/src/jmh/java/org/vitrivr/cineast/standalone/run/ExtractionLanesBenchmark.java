@@ -0,0 +1,275 @@
+package org.vitrivr.cineast.standalone.run;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.IdConfig;
+import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.segments.ImageSegment;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
+import org.vitrivr.cineast.core.extraction.decode.general.Decoder;
+import org.vitrivr.cineast.core.extraction.idgenerator.SequentialObjectIdGenerator;
+import org.vitrivr.cineast.core.extraction.segmenter.general.Segmenter;
+import org.vitrivr.cineast.core.features.extractor.Extractor;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Measures how the extraction of a corpus of images scales with the number of decoder lanes of the {@link GenericExtractionItemHandler}.
+ * <p>
+ * Every invocation extracts a corpus of synthetic JPEGs into a fresh {@link InMemoryStore}, decoding each image with the default image decoder and emitting it as a single segment; the extractor only reads the pixels of the segment. Objects and segments are persisted as in a regular extraction, so the ordered identification and commit steps of the handler are part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExtractionLanesBenchmark {
+
+  private static final int IMAGES = 32;
+
+  private static final int WIDTH = 1600;
+
+  private static final int HEIGHT = 1200;
+
+  @Param({"1", "2", "4"})
+  public int lanes;
+
+  private final List<Path> corpus = new ArrayList<>();
+
+  private Path directory;
+
+  @Setup
+  public void setup() throws IOException {
+    final Config config = new Config();
+    config.setDecoders(new HashMap<>());
+    Config.initSharedConfig(config);
+
+    this.directory = Files.createTempDirectory("cineast-lanes");
+    for (int i = 0; i < IMAGES; i++) {
+      final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, WIDTH, HEIGHT, Fixtures.colors(WIDTH, HEIGHT, i), 0, WIDTH);
+      final Path path = this.directory.resolve("image" + i + ".jpg");
+      if (!ImageIO.write(image, "jpg", path.toFile())) {
+        throw new IllegalStateException("No writer for the benchmark corpus.");
+      }
+      this.corpus.add(path);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    for (Path path : this.corpus) {
+      Files.deleteIfExists(path);
+    }
+    Files.deleteIfExists(this.directory);
+  }
+
+  @Benchmark
+  public InMemoryStore extract() {
+    final InMemoryStore store = new InMemoryStore();
+    final EntityCreator creator = new InMemoryEntityCreator(store);
+    creator.createMultiMediaObjectsEntity();
+    creator.createSegmentEntity();
+    creator.createMetadataEntity();
+
+    final List<ExtractionItemContainer> items = new ArrayList<>(this.corpus.size());
+    for (Path path : this.corpus) {
+      items.add(new ExtractionItemContainer(new MediaObjectDescriptor(path), null, path));
+    }
+    new GenericExtractionItemHandler(new ListContainerProvider(items), context(store, this.lanes), MediaType.IMAGE).run();
+    return store;
+  }
+
+  /**
+   * An {@link ExtractionContextProvider} that extracts images with the {@link SingleSegmenter} and the {@link PixelExtractor} into the given {@link InMemoryStore}.
+   */
+  private static ExtractionContextProvider context(InMemoryStore store, int lanes) {
+    final PersistencyWriterSupplier writers = () -> new InMemoryWriter(store);
+    final DBSelectorSupplier selectors = () -> new InMemorySelector(store);
+    final List<Extractor> extractors = List.of(new PixelExtractor());
+    return (ExtractionContextProvider) Proxy.newProxyInstance(ExtractionContextProvider.class.getClassLoader(), new Class[]{ExtractionContextProvider.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getType":
+          return MediaType.IMAGE;
+        case "extractors":
+          return extractors;
+        case "exporters":
+        case "metadataExtractors":
+          return List.of();
+        case "newSegmenter":
+          return new SingleSegmenter();
+        case "objectIdGenerator":
+          return new SequentialObjectIdGenerator();
+        case "existenceCheck":
+          return IdConfig.ExistenceCheck.SKIP_IF_EXISTS;
+        case "persistencyWriter":
+          return writers;
+        case "persistencyReader":
+          return selectors;
+        case "threadPoolSize":
+        case "taskQueueSize":
+        case "segmentQueueSize":
+          return 4;
+        case "decoderLanes":
+          return lanes;
+        case "cacheConfig":
+          return new CacheConfig();
+        default:
+          if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+          }
+          return null;
+      }
+    });
+  }
+
+  /**
+   * Emits every decoded image as a single segment.
+   */
+  private static final class SingleSegmenter implements Segmenter<BufferedImage> {
+
+    private Decoder<BufferedImage> decoder;
+
+    private volatile boolean complete;
+
+    @Override
+    public void init(Decoder<BufferedImage> decoder, MediaObjectDescriptor object) {
+      this.decoder = decoder;
+      this.complete = false;
+    }
+
+    @Override
+    public SegmentContainer getNext() {
+      try {
+        final BufferedImage image = this.decoder.getNext();
+        return image == null ? null : new ImageSegment(image, CachedDataFactory.getDefault());
+      } finally {
+        this.complete = true;
+      }
+    }
+
+    @Override
+    public boolean complete() {
+      return this.complete;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Set<MediaType> getMediaTypes() {
+      return Set.of(MediaType.IMAGE);
+    }
+
+    @Override
+    public void run() {
+    }
+  }
+
+  /**
+   * Sums the colors of every segment, which stands in for a cheap feature.
+   */
+  private static final class PixelExtractor implements Extractor {
+
+    private volatile long sum;
+
+    @Override
+    public void init(PersistencyWriterSupplier phandlerSupply) {
+    }
+
+    @Override
+    public void processSegment(SegmentContainer shot) {
+      long sum = 0;
+      for (int color : shot.getMostRepresentativeFrame().getImage().getColors()) {
+        sum += color;
+      }
+      this.sum += sum;
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
+    }
+
+    @Override
+    public void dropPersistentLayer(Supplier<EntityCreator> supply) {
+    }
+  }
+
+  /**
+   * Provides a fixed list of items and closes once all of them have been taken.
+   */
+  private static final class ListContainerProvider implements ExtractionContainerProvider {
+
+    private final List<ExtractionItemContainer> items;
+
+    private ListContainerProvider(List<ExtractionItemContainer> items) {
+      this.items = new ArrayList<>(items);
+    }
+
+    @Override
+    public synchronized void close() {
+      this.items.clear();
+    }
+
+    @Override
+    public synchronized void addPaths(List<ExtractionItemContainer> pathList) {
+      this.items.addAll(pathList);
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+      return !this.items.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean hasNextAvailable() {
+      return !this.items.isEmpty();
+    }
+
+    @Override
+    public synchronized Optional<ExtractionItemContainer> next() {
+      return this.items.isEmpty() ? Optional.empty() : Optional.of(this.items.remove(0));
+    }
+  }
+}
@@ -0,0 +1,236 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vitrivr.cineast.benchmarks.Fixtures;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.DecoderConfig;
+import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.frames.VideoDescriptor;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
+import org.vitrivr.cineast.core.extraction.decode.general.Decoder;
+import org.vitrivr.cineast.core.extraction.segmenter.video.ConstantLengthVideoSegmenter;
+import org.vitrivr.cineast.core.features.AverageColor;
+import org.vitrivr.cineast.core.features.MedianColor;
+import org.vitrivr.cineast.core.features.extractor.Extractor;
+
+/**
+ * Measures the end-to-end throughput (in frames per second) and the peak heap usage of extracting a video made of two long shots, once for every {@link FrameRetention} the extractors of the run can use. {@link FrameRetention#ALL} is the behaviour before retention became configurable and serves as the baseline.
+ * <p>
+ * Every invocation runs a {@link ConstantLengthVideoSegmenter} over a stand-in decoder, which hands out a fresh pixel buffer for every frame as a decoder would, and feeds the segments to an {@link ExtractionPipeline} with the {@link AverageColor} and {@link MedianColor} features writing into a fresh {@link InMemoryStore}. The peak heap usage is the sum of the peak usages of the heap memory pools during the invocation and is reported as the {@code peakHeapMB} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@OperationsPerInvocation(LongShotExtractionBenchmark.FRAMES)
+public class LongShotExtractionBenchmark {
+
+  private static final int WIDTH = 640;
+
+  private static final int HEIGHT = 360;
+
+  /**
+   * Length of a shot in seconds.
+   */
+  private static final int SHOT = 30;
+
+  /**
+   * Number of frames of the video, i.e. two shots at 25 fps.
+   */
+  static final int FRAMES = 2 * SHOT * 25;
+
+  /**
+   * Time in milliseconds the pipeline may take to process the last segments.
+   */
+  private static final long TIMEOUT_MS = 60_000L;
+
+  @Param({"ALL", "DECIMATED", "THUMBNAILS", "MEDIAN"})
+  public FrameRetention retention;
+
+  private int[][] sources;
+
+  private final VideoDescriptor descriptor = new VideoDescriptor(25f, FRAMES * 40L, WIDTH, HEIGHT);
+
+  @Setup
+  public void setup() {
+    this.sources = new int[8][];
+    for (int i = 0; i < this.sources.length; i++) {
+      this.sources[i] = Fixtures.colors(WIDTH, HEIGHT, i);
+    }
+  }
+
+  @Benchmark
+  public InMemoryStore extract(Heap heap) throws InterruptedException {
+    heap.reset();
+
+    final InMemoryStore store = new InMemoryStore();
+    final List<Extractor> extractors = List.of(new AverageColor(), new MedianColor());
+    for (Extractor extractor : extractors) {
+      extractor.initalizePersistentLayer(() -> new InMemoryEntityCreator(store));
+    }
+    final ExtractionContextProvider context = context(store, extractors, this.retention);
+    final ExtractionPipeline pipeline = new ExtractionPipeline(context);
+    final Thread pipelineThread = new Thread(pipeline);
+    pipelineThread.start();
+
+    final ConstantLengthVideoSegmenter segmenter = new ConstantLengthVideoSegmenter(context, Map.of("length", Integer.toString(SHOT)));
+    segmenter.init(new FrameSource(), null);
+    final Thread segmenterThread = new Thread(segmenter);
+    segmenterThread.start();
+    int segments = 0;
+    while (!segmenter.complete()) {
+      final SegmentContainer segment = segmenter.getNext();
+      if (segment != null) {
+        segment.setId(Fixtures.segmentId(0, ++segments));
+        while (!pipeline.emit(segment, 100)) {
+          /* Retry until the pipeline has room for the segment. */
+        }
+      }
+    }
+    segmenterThread.join();
+    pipeline.stop();
+    pipelineThread.join(TIMEOUT_MS);
+
+    heap.record();
+    return store;
+  }
+
+  /**
+   * Peak heap usage of the invocations of an iteration, reported as a secondary result.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Heap {
+
+    private final List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream().filter(p -> p.getType() == MemoryType.HEAP).toList();
+
+    /**
+     * Peak heap usage in MiB.
+     */
+    public double peakHeapMB;
+
+    @Setup(Level.Iteration)
+    public void clear() {
+      this.peakHeapMB = 0;
+    }
+
+    private void reset() {
+      System.gc();
+      this.pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    private void record() {
+      long peak = 0;
+      for (MemoryPoolMXBean pool : this.pools) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+      this.peakHeapMB = Math.max(this.peakHeapMB, peak / (1024.0 * 1024.0));
+    }
+  }
+
+  /**
+   * An {@link ExtractionContextProvider} with the given extractors and {@link FrameRetention} that writes into the given {@link InMemoryStore}.
+   */
+  private static ExtractionContextProvider context(InMemoryStore store, List<Extractor> extractors, FrameRetention retention) {
+    final PersistencyWriterSupplier writers = () -> new InMemoryWriter(store);
+    return (ExtractionContextProvider) Proxy.newProxyInstance(ExtractionContextProvider.class.getClassLoader(), new Class[]{ExtractionContextProvider.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getType":
+          return MediaType.VIDEO;
+        case "extractors":
+          return extractors;
+        case "exporters":
+        case "metadataExtractors":
+          return List.of();
+        case "frameRetention":
+          return retention;
+        case "persistencyWriter":
+          return writers;
+        case "threadPoolSize":
+        case "taskQueueSize":
+        case "segmentQueueSize":
+          return 4;
+        default:
+          if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+          }
+          return null;
+      }
+    });
+  }
+
+  /**
+   * Stands in for a video decoder: hands out {@link #FRAMES} frames at 25 fps, each with its own pixel buffer.
+   */
+  private final class FrameSource implements Decoder<VideoFrame> {
+
+    private int next = 0;
+
+    @Override
+    public boolean init(Path path, DecoderConfig decoderConfig, CacheConfig cacheConfig) {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public synchronized VideoFrame getNext() {
+      if (this.next >= FRAMES) {
+        return null;
+      }
+      final int id = this.next++;
+      final int[] colors = sources[id % sources.length].clone();
+      return new VideoFrame(id, id * 40L, CachedDataFactory.getDefault().newInMemoryMultiImage(WIDTH, HEIGHT, colors), descriptor);
+    }
+
+    @Override
+    public int count() {
+      return FRAMES;
+    }
+
+    @Override
+    public synchronized boolean complete() {
+      return this.next >= FRAMES;
+    }
+
+    @Override
+    public Set<String> supportedFiles() {
+      return Set.of();
+    }
+  }
+}
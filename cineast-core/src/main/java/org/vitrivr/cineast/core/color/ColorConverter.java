@@ -1,14 +1,9 @@
 package org.vitrivr.cineast.core.color;
 
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-
 /* for equations see http://www.easyrgb.com/ */
 public final class ColorConverter {
 
-  private static IntObjectHashMap<ReadableLabContainer> rgbToLabCache = new IntObjectHashMap<>(100000);
-  private static IntObjectHashMap<ReadableHSVContainer> rgbToHSVCache = new IntObjectHashMap<>(100000);
-
   private ColorConverter() {
   }
 
@@ -186,9 +181,25 @@ public static RGBContainer LabtoRGB(ReadableLabContainer lab) {
   }
 
   public static HSVContainer RGBtoHSV(ReadableRGBContainer rgb) {
-    double r = rgb.r / 255d;
-    double g = rgb.g / 255d;
-    double b = rgb.b / 255d;
+    final float[] hsv = RGBtoHSV(rgb.r, rgb.g, rgb.b, new float[3]);
+    return new HSVContainer(hsv[0], hsv[1], hsv[2]);
+  }
+
+  /**
+   * Allocation-free variant of {@link #RGBtoHSV(ReadableRGBContainer)}.
+   *
+   * @param rgb The color as int; the alpha channel is ignored.
+   * @param out Array to write h, s and v to.
+   * @return out
+   */
+  public static float[] RGBtoHSV(int rgb, float[] out) {
+    return RGBtoHSV(ReadableRGBContainer.getRed(rgb), ReadableRGBContainer.getGreen(rgb), ReadableRGBContainer.getBlue(rgb), out);
+  }
+
+  private static float[] RGBtoHSV(int red, int green, int blue, float[] out) {
+    double r = red / 255d;
+    double g = green / 255d;
+    double b = blue / 255d;
 
     double max = Math.max(Math.max(r, g), b);
     double min = Math.min(Math.min(r, g), b);
@@ -218,7 +229,10 @@ public static HSVContainer RGBtoHSV(ReadableRGBContainer rgb) {
       }
     }
 
-    return new HSVContainer(h, s, v);
+    out[0] = (float) h;
+    out[1] = (float) s;
+    out[2] = (float) v;
+    return out;
   }
 
   public static RGBContainer HSVtoRGB(ReadableHSVContainer hsv) {
@@ -291,23 +305,19 @@ public static ReadableLabContainer toRGBandBack(ReadableLabContainer lab) {
     return cachedRGBtoLab(rgb.toIntColor());
   }
 
-  public static synchronized ReadableLabContainer cachedRGBtoLab(int rgb) {
-
-    ReadableLabContainer _return = rgbToLabCache.get(rgb);
-    if (_return == null) {
-      _return = RGBtoLab(new RGBContainer(rgb));
-      rgbToLabCache.put(rgb, _return);
-    }
-    return _return;
+  /**
+   * Converts the given RGB color to Lab using the {@link LabLookupTable}. Prefer {@link LabLookupTable#toLab(int, float[], int)} in per-pixel loops.
+   */
+  public static ReadableLabContainer cachedRGBtoLab(int rgb) {
+    return LabLookupTable.lab(rgb);
   }
 
+  /**
+   * Conversion to HSV is cheap enough not to be cached; the method is retained for compatibility.
+   */
   public static ReadableHSVContainer cachedRGBtoHSV(int rgb) {
-    ReadableHSVContainer _return = rgbToHSVCache.get(rgb);
-    if (_return == null) {
-      _return = RGBtoHSV(new RGBContainer(rgb));
-      rgbToHSVCache.put(rgb, _return);
-    }
-    return _return;
+    final float[] hsv = RGBtoHSV(rgb, new float[3]);
+    return new ReadableHSVContainer(hsv[0], hsv[1], hsv[2]);
   }
 
   /**
@@ -0,0 +1,108 @@
+package org.vitrivr.cineast.core.color;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe, lock-free lookup table for the conversion of 24-bit RGB colors to CIELab.
+ * <p>
+ * The RGB cube is split into 4096 chunks of 4096 colors each (fixed red and upper four bits of green). A chunk is computed as a whole the first time one of its colors is requested and is immutable afterwards, so readers never block. Should two threads compute the same chunk concurrently, one result is discarded. Values are exactly those of {@link ColorConverter#RGBtoLab(int, int, int)}.
+ */
+public final class LabLookupTable {
+
+  private static final int CHUNK_BITS = 12;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /**
+   * Chunks of interleaved (L, a, b) values, indexed by the upper 12 bits of the RGB value.
+   */
+  private static final AtomicReferenceArray<float[]> CHUNKS = new AtomicReferenceArray<>(1 << (24 - CHUNK_BITS));
+
+  private LabLookupTable() {
+  }
+
+  /**
+   * Writes the Lab representation of the given RGB color to {@code out}. The alpha channel is ignored.
+   *
+   * @param rgb    The color as int (see {@link ReadableRGBContainer#toIntColor(int, int, int)}).
+   * @param out    Array to write L, a and b to.
+   * @param offset Offset of L in {@code out}.
+   */
+  public static void toLab(int rgb, float[] out, int offset) {
+    final float[] chunk = chunk(rgb);
+    final int i = 3 * (rgb & CHUNK_MASK);
+    out[offset] = chunk[i];
+    out[offset + 1] = chunk[i + 1];
+    out[offset + 2] = chunk[i + 2];
+  }
+
+  public static float L(int rgb) {
+    return chunk(rgb)[3 * (rgb & CHUNK_MASK)];
+  }
+
+  public static float a(int rgb) {
+    return chunk(rgb)[3 * (rgb & CHUNK_MASK) + 1];
+  }
+
+  public static float b(int rgb) {
+    return chunk(rgb)[3 * (rgb & CHUNK_MASK) + 2];
+  }
+
+  /**
+   * @see ReadableLabContainer#getChroma()
+   */
+  public static float chroma(int rgb) {
+    final float[] chunk = chunk(rgb);
+    final int i = 3 * (rgb & CHUNK_MASK);
+    final float a = chunk[i + 1];
+    final float b = chunk[i + 2];
+    return (float) Math.sqrt(a * a + b * b);
+  }
+
+  /**
+   * @see ReadableLabContainer#getSaturation()
+   */
+  public static float saturation(int rgb) {
+    final float L = L(rgb);
+    final float c = chroma(rgb);
+    if (c > 0f) {
+      return c / (float) Math.sqrt(c * c + L * L);
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the Lab representation of the given RGB color as new {@link ReadableLabContainer}.
+   */
+  public static ReadableLabContainer lab(int rgb) {
+    final float[] chunk = chunk(rgb);
+    final int i = 3 * (rgb & CHUNK_MASK);
+    return new ReadableLabContainer(chunk[i], chunk[i + 1], chunk[i + 2]);
+  }
+
+  private static float[] chunk(int rgb) {
+    final int index = (rgb >>> CHUNK_BITS) & 0xFFF;
+    float[] chunk = CHUNKS.get(index);
+    if (chunk == null) {
+      chunk = compute(index);
+      if (!CHUNKS.compareAndSet(index, null, chunk)) {
+        chunk = CHUNKS.get(index);
+      }
+    }
+    return chunk;
+  }
+
+  private static float[] compute(int index) {
+    final float[] chunk = new float[3 * CHUNK_SIZE];
+    for (int i = 0; i < CHUNK_SIZE; i++) {
+      final int rgb = (index << CHUNK_BITS) | i;
+      final LabContainer lab = ColorConverter.RGBtoLab(ReadableRGBContainer.getRed(rgb), ReadableRGBContainer.getGreen(rgb), ReadableRGBContainer.getBlue(rgb));
+      chunk[3 * i] = lab.getL();
+      chunk[3 * i + 1] = lab.getA();
+      chunk[3 * i + 2] = lab.getB();
+    }
+    return chunk;
+  }
+}
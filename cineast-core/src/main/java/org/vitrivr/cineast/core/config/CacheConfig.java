@@ -19,6 +19,15 @@ public final class CacheConfig {
   private Path cacheLocation = Paths.get(".");
   private CachedDataFactory factory;
 
+  /**
+   * maximum size in MiB of the disk cache used for images and other data that is not kept in memory
+   */
+  private int cacheSize = 8192;
+  /**
+   * size in MiB of a single memory-mapped file of the disk cache
+   */
+  private int cacheSlabSize = 256;
+
   private boolean enableQueryCaching = false;
   /**
    * maximum number of queries / ids to cache results for
@@ -100,6 +109,36 @@ public void setCacheLocation(Path cacheLocation) {
     this.cacheLocation = cacheLocation;
   }
 
+  /**
+   * @return the maximum size of the disk cache in MiB
+   */
+  @JsonProperty
+  public int getCacheSize() {
+    return this.cacheSize;
+  }
+
+  public void setCacheSize(int cacheSize) {
+    if (cacheSize < 0) {
+      throw new IllegalArgumentException("CacheSize cannot be negative");
+    }
+    this.cacheSize = cacheSize;
+  }
+
+  /**
+   * @return the size of a single file of the disk cache in MiB
+   */
+  @JsonProperty
+  public int getCacheSlabSize() {
+    return this.cacheSlabSize;
+  }
+
+  public void setCacheSlabSize(int cacheSlabSize) {
+    if (cacheSlabSize < 1 || cacheSlabSize > 1024) {
+      throw new IllegalArgumentException("CacheSlabSize must be between 1 and 1024 MiB");
+    }
+    this.cacheSlabSize = cacheSlabSize;
+  }
+
   /**
    * Returns the UUID of this {@link CacheConfig}.
    *
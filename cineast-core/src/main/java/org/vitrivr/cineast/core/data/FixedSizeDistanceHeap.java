@@ -0,0 +1,174 @@
+package org.vitrivr.cineast.core.data;
+
+/**
+ * A bounded max-heap over primitive (distance, index) pairs that retains the {@code k} entries with the smallest distance. It is the allocation-free counterpart to a {@link FixedSizePriorityQueue} of distance elements and is intended for brute-force kNN scans, where every worker fills its own heap and the heaps are {@link #merge(FixedSizeDistanceHeap) merged} afterwards.
+ * <p>
+ * Ties in distance are broken by index, which makes the result of a scan independent of the order in which entries were offered. Instances are not thread-safe.
+ */
+public final class FixedSizeDistanceHeap {
+
+  private final int capacity;
+
+  private final double[] distances;
+
+  private final int[] indices;
+
+  private int size = 0;
+
+  private boolean sorted = false;
+
+  public FixedSizeDistanceHeap(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.distances = new double[capacity];
+    this.indices = new int[capacity];
+  }
+
+  /**
+   * Offers a new entry to this {@link FixedSizeDistanceHeap}. NaN distances are ignored.
+   *
+   * @param distance The distance of the entry.
+   * @param index    The index (e.g., row number) of the entry.
+   * @return True if the entry was retained, false otherwise.
+   */
+  public boolean offer(double distance, int index) {
+    if (this.sorted) {
+      throw new IllegalStateException("Cannot offer elements to a FixedSizeDistanceHeap that has already been sorted.");
+    }
+    if (this.capacity == 0 || Double.isNaN(distance)) {
+      return false;
+    }
+    if (this.size < this.capacity) {
+      this.distances[this.size] = distance;
+      this.indices[this.size] = index;
+      this.siftUp(this.size++);
+      return true;
+    }
+    if (!worse(this.distances[0], this.indices[0], distance, index)) {
+      return false;
+    }
+    this.distances[0] = distance;
+    this.indices[0] = index;
+    this.siftDown(0, this.size);
+    return true;
+  }
+
+  /**
+   * Returns the largest distance that would still be retained by this {@link FixedSizeDistanceHeap}. Scans can use this value to abort the computation of a distance early.
+   *
+   * @return Current threshold distance or {@link Double#POSITIVE_INFINITY}, if this heap is not full yet.
+   */
+  public double threshold() {
+    return this.size < this.capacity ? Double.POSITIVE_INFINITY : this.distances[0];
+  }
+
+  /**
+   * Merges the entries of the other {@link FixedSizeDistanceHeap} into this one.
+   *
+   * @param other The {@link FixedSizeDistanceHeap} to merge.
+   * @return This {@link FixedSizeDistanceHeap}
+   */
+  public FixedSizeDistanceHeap merge(FixedSizeDistanceHeap other) {
+    for (int i = 0; i < other.size; i++) {
+      this.offer(other.distances[i], other.indices[i]);
+    }
+    return this;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Sorts the entries of this {@link FixedSizeDistanceHeap} by ascending distance. Afterwards, entries can be accessed through {@link #distance(int)} and {@link #index(int)} but no new entries can be offered.
+   *
+   * @return This {@link FixedSizeDistanceHeap}
+   */
+  public FixedSizeDistanceHeap sort() {
+    if (!this.sorted) {
+      for (int end = this.size - 1; end > 0; end--) {
+        this.swap(0, end);
+        this.siftDown(0, end);
+      }
+      this.sorted = true;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the distance of the i-th entry in ascending order. Requires a prior call to {@link #sort()}.
+   */
+  public double distance(int i) {
+    this.checkSorted(i);
+    return this.distances[i];
+  }
+
+  /**
+   * Returns the index of the i-th entry in ascending order. Requires a prior call to {@link #sort()}.
+   */
+  public int index(int i) {
+    this.checkSorted(i);
+    return this.indices[i];
+  }
+
+  private void checkSorted(int i) {
+    if (!this.sorted) {
+      throw new IllegalStateException("FixedSizeDistanceHeap must be sorted before its entries can be accessed.");
+    }
+    if (i < 0 || i >= this.size) {
+      throw new IndexOutOfBoundsException(i);
+    }
+  }
+
+  /**
+   * Returns true, if entry (d1, i1) ranks after entry (d2, i2).
+   */
+  private static boolean worse(double d1, int i1, double d2, int i2) {
+    return d1 > d2 || (d1 == d2 && i1 > i2);
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      final int parent = (i - 1) >>> 1;
+      if (!worse(this.distances[i], this.indices[i], this.distances[parent], this.indices[parent])) {
+        return;
+      }
+      this.swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i, int end) {
+    while (true) {
+      final int left = 2 * i + 1;
+      if (left >= end) {
+        return;
+      }
+      int largest = left;
+      final int right = left + 1;
+      if (right < end && worse(this.distances[right], this.indices[right], this.distances[left], this.indices[left])) {
+        largest = right;
+      }
+      if (!worse(this.distances[largest], this.indices[largest], this.distances[i], this.indices[i])) {
+        return;
+      }
+      this.swap(i, largest);
+      i = largest;
+    }
+  }
+
+  private void swap(int i, int j) {
+    final double d = this.distances[i];
+    this.distances[i] = this.distances[j];
+    this.distances[j] = d;
+    final int x = this.indices[i];
+    this.indices[i] = this.indices[j];
+    this.indices[j] = x;
+  }
+}
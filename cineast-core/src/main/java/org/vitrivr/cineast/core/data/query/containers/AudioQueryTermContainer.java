@@ -5,6 +5,7 @@
 import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.STFTCache;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
 import org.vitrivr.cineast.core.util.web.AudioParser;
 
@@ -31,6 +32,11 @@ public class AudioQueryTermContainer extends AbstractQueryTermContainer {
    */
   private AudioDescriptor descriptor;
 
+  /**
+   * Memoized STFTs, shared between the retrievers that process this container.
+   */
+  private final STFTCache stftCache = new STFTCache();
+
   /**
    * Constructs an {@link AudioQueryTermContainer} from base 64 encoded wave audio data. The constructor assumes the following audio settings: 22050Hz, 1 Channel, 16bit PCM
    *
@@ -94,9 +100,12 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
     if (2 * padding >= windowsize) {
       throw new IllegalArgumentException("The combined padding must be smaller than the sample window.");
     }
-    STFT stft = new STFT(windowsize, overlap, padding, function, this.descriptor.getSamplingrate());
-    stft.forward(this.getMeanSamplesAsDouble());
-    return stft;
+    return this.stftCache.get(windowsize, overlap, padding, function, this.descriptor.getSamplingrate(), this::getMeanSamplesAsDouble);
+  }
+
+  @Override
+  public void clear() {
+    this.stftCache.clear();
   }
 
   @Override
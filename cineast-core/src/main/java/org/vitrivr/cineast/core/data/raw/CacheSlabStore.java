@@ -0,0 +1,331 @@
+package org.vitrivr.cineast.core.data.raw;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.raw.bytes.CachedByteData;
+import org.vitrivr.cineast.core.data.raw.images.CachedMultiImage;
+
+/**
+ * Off-heap store for the data of {@link CachedByteData} and {@link CachedMultiImage} objects. Data is kept in a small number of large, memory-mapped slab files instead of one temporary file per object: the operating system decides which pages stay resident, and the number of files is bounded by the size of the store.
+ * <p>
+ * Allocations are rounded up to {@link #PAGE_SIZE} and served best-fit from the free regions of all slabs; the remainder of a larger region stays free. A {@link Slot} is released explicitly, by its owner, and its region is merged with adjacent free regions of the same slab, such that slots of different sizes do not fragment the store.
+ * <p>
+ * The total size of all slabs is bounded. If an allocation cannot be served within that bound, {@link #allocate(int)} returns null and the caller is expected to keep the data in memory instead.
+ * <p>
+ * Slab files are deleted as soon as they are mapped (where the platform allows it), such that they do not outlive the process. Stale slab files found in the directory are deleted when the store is created; {@link #close()} deletes any that are left.
+ *
+ * @see CachedDataFactory
+ */
+public final class CacheSlabStore {
+
+  /**
+   * Granularity of allocations in bytes.
+   */
+  public static final int PAGE_SIZE = 4096;
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private static final String SLAB_PREFIX = "slab_";
+
+  private static final String SLAB_SUFFIX = ".bin";
+
+  /**
+   * Orders free regions by capacity first, such that {@link TreeSet#ceiling(Object)} yields the best fit. A probe without a slab precedes all regions of its capacity.
+   */
+  private static final Comparator<Slot> BY_CAPACITY = Comparator.<Slot>comparingInt(s -> s.capacity).thenComparingInt(s -> s.slab == null ? -1 : s.slab.index).thenComparingInt(s -> s.offset);
+
+  /**
+   * Directory that holds the slab files.
+   */
+  private final Path directory;
+
+  /**
+   * Size of a regular slab in bytes. Allocations larger than this get a slab of their own.
+   */
+  private final int slabSize;
+
+  /**
+   * Maximum total size of all slabs in bytes.
+   */
+  private final long maxSize;
+
+  /**
+   * Free regions of all slabs, ordered by capacity.
+   */
+  private final TreeSet<Slot> free = new TreeSet<>(BY_CAPACITY);
+
+  /**
+   * Slab files that could not be deleted right after mapping them.
+   */
+  private final List<Path> undeleted = new ArrayList<>();
+
+  private int slabs = 0;
+  private long mapped = 0;
+  private long used = 0;
+
+  /**
+   * Set once the bound was hit, to log that only once.
+   */
+  private boolean full = false;
+
+  /**
+   * @param directory Directory in which to create the slab files. Must exist.
+   * @param slabSize  Size of a slab in bytes.
+   * @param maxSize   Maximum total size of all slabs in bytes.
+   */
+  public CacheSlabStore(Path directory, int slabSize, long maxSize) {
+    if (slabSize < PAGE_SIZE) {
+      throw new IllegalArgumentException("The slab size must be at least " + PAGE_SIZE + " bytes.");
+    }
+    this.directory = directory;
+    this.slabSize = slabSize - slabSize % PAGE_SIZE;
+    this.maxSize = maxSize;
+    sweep(directory);
+  }
+
+  /**
+   * Deletes stale slab files in the given directory, e.g. left behind by a process that could not delete them itself.
+   *
+   * @param directory Directory to sweep. Nothing happens if it does not exist.
+   */
+  public static void sweep(Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, SLAB_PREFIX + "*" + SLAB_SUFFIX)) {
+      for (Path file : files) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          LOGGER.warn("Failed to delete stale cache slab {}.", file);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to sweep the cache slabs under {}.", directory);
+    }
+  }
+
+  /**
+   * Allocates a {@link Slot} of at least the given size.
+   *
+   * @param size Number of bytes required.
+   * @return {@link Slot} or null, if the store is full.
+   * @throws IOException If a new slab file could not be created or mapped.
+   */
+  public synchronized Slot allocate(int size) throws IOException {
+    final long rounded = ((Math.max(size, 1) + (long) PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+    if (size < 0 || rounded > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Cannot allocate a slot of " + size + " bytes.");
+    }
+    final int capacity = (int) rounded;
+
+    Slot region = this.free.ceiling(new Slot(this, null, -1, capacity));
+    if (region == null) {
+      final int length = Math.max(this.slabSize, capacity);
+      if (this.mapped + length > this.maxSize) {
+        if (!this.full) {
+          this.full = true;
+          LOGGER.warn("The cache under {} reached its maximum size of {} MiB; data that does not fit is kept in memory.", this.directory, this.maxSize >> 20);
+        }
+        return null;
+      }
+      final Slab slab = this.map(length);
+      region = new Slot(this, slab, 0, length);
+      slab.free.put(0, region);
+    } else {
+      this.free.remove(region);
+    }
+
+    /* Carve the slot from the start of the region; the remainder stays free. */
+    final Slab slab = region.slab;
+    slab.free.remove(region.offset);
+    if (region.capacity > capacity) {
+      this.addFree(new Slot(this, slab, region.offset + capacity, region.capacity - capacity));
+    }
+    this.used += capacity;
+    return new Slot(this, slab, region.offset, capacity);
+  }
+
+  /**
+   * Returns a {@link Slot} to the free regions of its slab, merging it with adjacent free regions. Releasing a slot more than once has no effect.
+   */
+  synchronized void release(Slot slot) {
+    if (slot.released) {
+      return;
+    }
+    slot.released = true;
+    this.used -= slot.capacity;
+
+    final Slab slab = slot.slab;
+    int offset = slot.offset;
+    int capacity = slot.capacity;
+    final Map.Entry<Integer, Slot> before = slab.free.lowerEntry(offset);
+    if (before != null && before.getKey() + before.getValue().capacity == offset) {
+      this.removeFree(before.getValue());
+      offset = before.getKey();
+      capacity += before.getValue().capacity;
+    }
+    final Slot after = slab.free.get(slot.offset + slot.capacity);
+    if (after != null) {
+      this.removeFree(after);
+      capacity += after.capacity;
+    }
+    this.addFree(new Slot(this, slab, offset, capacity));
+  }
+
+  /**
+   * Deletes the slab files that could not be deleted right after mapping them. The mappings stay valid until they are garbage collected, but the store must not be used afterwards.
+   */
+  public synchronized void close() {
+    for (Path file : this.undeleted) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOGGER.warn("Failed to delete cache slab {}.", file);
+      }
+    }
+    this.undeleted.clear();
+  }
+
+  /**
+   * @return Number of slab files created by this store.
+   */
+  public synchronized int getSlabCount() {
+    return this.slabs;
+  }
+
+  /**
+   * @return Total size of all slabs in bytes.
+   */
+  public synchronized long getMappedBytes() {
+    return this.mapped;
+  }
+
+  /**
+   * @return Number of bytes held by slots that have not been released.
+   */
+  public synchronized long getUsedBytes() {
+    return this.used;
+  }
+
+  /**
+   * @return Number of free regions; adjacent free regions are merged.
+   */
+  public synchronized int getFreeRegionCount() {
+    return this.free.size();
+  }
+
+  private void addFree(Slot region) {
+    region.released = true;
+    region.slab.free.put(region.offset, region);
+    this.free.add(region);
+  }
+
+  private void removeFree(Slot region) {
+    region.slab.free.remove(region.offset);
+    this.free.remove(region);
+  }
+
+  /**
+   * Creates and maps a new slab file. The file is closed right away, such that the store does not hold any file handles, and deleted if possible; the mapping stays valid until the buffer is garbage collected.
+   */
+  private Slab map(int length) throws IOException {
+    final Path file = this.directory.resolve(SLAB_PREFIX + this.slabs + SLAB_SUFFIX);
+    final MappedByteBuffer buffer;
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      buffer = channel.map(MapMode.READ_WRITE, 0, length);
+    }
+    try {
+      Files.delete(file);
+    } catch (IOException e) {
+      this.undeleted.add(file);
+    }
+    final Slab slab = new Slab(this.slabs, buffer);
+    this.slabs += 1;
+    this.mapped += length;
+    LOGGER.debug("Mapped cache slab {} ({} MiB).", file, length >> 20);
+    return slab;
+  }
+
+  /**
+   * A mapped slab file and its free regions by offset.
+   */
+  private static final class Slab {
+
+    private final int index;
+
+    private final ByteBuffer buffer;
+
+    private final TreeMap<Integer, Slot> free = new TreeMap<>();
+
+    private Slab(int index, ByteBuffer buffer) {
+      this.index = index;
+      this.buffer = buffer;
+    }
+  }
+
+  /**
+   * A contiguous region of a slab, owned by a single {@link CachedByteData} object until it is released. Every allocation yields a new {@link Slot}; a released slot is never handed out again.
+   */
+  public static final class Slot {
+
+    private final CacheSlabStore store;
+
+    private final Slab slab;
+
+    private final int offset;
+
+    private final int capacity;
+
+    /**
+     * Guarded by the lock of the {@link CacheSlabStore}.
+     */
+    private boolean released = false;
+
+    private Slot(CacheSlabStore store, Slab slab, int offset, int capacity) {
+      this.store = store;
+      this.slab = slab;
+      this.offset = offset;
+      this.capacity = capacity;
+    }
+
+    /**
+     * Returns a little-endian view of this slot. The view must not be used once the slot has been released, since the region may then belong to another slot.
+     *
+     * @return {@link ByteBuffer} with position zero and a capacity of {@link #capacity()}.
+     */
+    public ByteBuffer buffer() {
+      return this.slab.buffer.slice(this.offset, this.capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return Size of this slot in bytes.
+     */
+    public int capacity() {
+      return this.capacity;
+    }
+
+    /**
+     * Returns this slot to its {@link CacheSlabStore}.
+     */
+    public void release() {
+      this.store.release(this);
+    }
+  }
+}
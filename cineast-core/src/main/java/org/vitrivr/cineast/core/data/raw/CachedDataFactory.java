@@ -1,11 +1,8 @@
 package org.vitrivr.cineast.core.data.raw;
 
-import static java.lang.Thread.MIN_PRIORITY;
-
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
@@ -26,9 +23,9 @@
 
 
 /**
- * This factory class generates {@link ByteData} objects either in memory or backed by a file cache based on a heuristic involving the size of the allocated data chunks.
+ * This factory class generates {@link ByteData} objects either in memory or backed by a file cache based on a heuristic involving the size of the allocated data chunks. The file cache is a {@link CacheSlabStore} of memory-mapped slab files in a directory of its own.
  *
- * @version 1.1
+ * @version 1.2
  * @see ByteData
  * @see InMemoryByteData
  * @see CachedByteData
@@ -42,7 +39,7 @@ public class CachedDataFactory {
    */
   private static final ReentrantLock CACHED_REFS_LOCK = new ReentrantLock();
   /**
-   * Internal set that keeps track of {@link CachedByteData} objects; prevents garbage collection of those references.
+   * Internal set that keeps track of {@link CachedByteData} objects; prevents garbage collection of those references. Only serves as a fallback: slots are released by {@link CachedByteData#clear()}, and the slots of objects that have been collected without being cleared are reclaimed by {@link #reclaim()}.
    */
   private static final HashSet<Reference<CachedByteData>> CACHED_REFS = new HashSet<>();
   /**
@@ -53,42 +50,8 @@ public class CachedDataFactory {
    * Logger instance used to log errors.
    */
   private static final Logger LOGGER = LogManager.getLogger();
-  /**
-   * Thread that cleans the cached byte data files.
-   */
-  private static final Thread CLEANER_THREAD = new Thread(() -> {
-    while (true) {
-      try {
-        final Reference<?> ref = CACHED_REF_QUEUE.remove();
-
-        /* Synchronization. */
-        CACHED_REFS_LOCK.lock();
-        CACHED_REFS.remove(ref);
-        CACHED_REFS_LOCK.unlock();
-
-        if (ref instanceof CachedByteDataReference) {
-          final Path path = ((CachedByteDataReference) ref).path;
-          try {
-            Files.deleteIfExists(path);
-            LOGGER.trace("Temporary cache file was purged: {}", path.toString());
-          } catch (IOException e) {
-            LOGGER.fatal("Failed to delete temporary cache file: {}", path.toString());
-          }
-        }
-      } catch (InterruptedException e) {
-        LOGGER.fatal("Cleaner thread was interrupted. Cached objects backed by disk will no longer be purged!");
-      }
-    }
-  });
   private static CachedDataFactory defaultInstance = new CachedDataFactory(new CacheConfig());
 
-  static {
-    CLEANER_THREAD.setName("Cache-File-Cleaner");
-    CLEANER_THREAD.setPriority(MIN_PRIORITY);
-    CLEANER_THREAD.setDaemon(true);
-    CLEANER_THREAD.start();
-  }
-
   /**
    * Reference to {@link CacheConfig} used to setup this {@link CachedDataFactory}.
    */
@@ -98,9 +61,9 @@ public class CachedDataFactory {
    */
   private final Path cacheLocation;
   /**
-   * Keeps track of whether the cache directory has been created yet
+   * The {@link CacheSlabStore} that backs the cached data; created lazily.
    */
-  private boolean cacheDirectoryCreated = false;
+  private CacheSlabStore store;
 
   /**
    * Default constructor.
@@ -124,25 +87,46 @@ public static void configureDefault(CacheConfig cacheConfig) {
   }
 
   /**
-   * Method to lazily create the cache directory exists
+   * Lazily creates the cache directory and the {@link CacheSlabStore} in it.
+   *
+   * @return {@link CacheSlabStore} of this {@link CachedDataFactory}.
    */
-  private void ensureDirectory() {
-    if (this.cacheDirectoryCreated) {
-      return;
+  public synchronized CacheSlabStore store() {
+    if (this.store != null) {
+      return this.store;
     }
-    this.cacheDirectoryCreated = true;
     try {
       Files.createDirectories(this.cacheLocation);
-      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-        try {
-          Files.walk(CachedDataFactory.this.cacheLocation).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-        } catch (IOException e) {
-          LOGGER.fatal("Failed to sweep the cache location under {}", this.cacheLocation.toAbsolutePath().toString());
-        }
-      }));
     } catch (IOException e) {
       LOGGER.fatal("Failed to create the cache location under {}", this.cacheLocation.toAbsolutePath().toString());
     }
+    final CacheSlabStore store = new CacheSlabStore(this.cacheLocation, this.config.getCacheSlabSize() << 20, (long) this.config.getCacheSize() << 20);
+    this.store = store;
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      store.close();
+      if (!Files.isDirectory(this.cacheLocation)) {
+        return;
+      }
+      try {
+        Files.walk(CachedDataFactory.this.cacheLocation).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      } catch (IOException e) {
+        LOGGER.fatal("Failed to sweep the cache location under {}", this.cacheLocation.toAbsolutePath().toString());
+      }
+    }));
+    return this.store;
+  }
+
+  /**
+   * Releases the slots of all {@link CachedByteData} objects that have been garbage collected without being cleared. Called before every allocation, such that the store only grows if the live data does not fit.
+   */
+  private static void reclaim() {
+    Reference<?> ref;
+    while ((ref = CACHED_REF_QUEUE.poll()) != null) {
+      CACHED_REFS_LOCK.lock();
+      CACHED_REFS.remove(ref);
+      CACHED_REFS_LOCK.unlock();
+      ((CachedByteDataReference) ref).slot.release();
+    }
   }
 
   /**
@@ -185,22 +169,25 @@ public ByteData newInMemoryData(byte[] data) {
   }
 
   /**
-   * Wraps the provided byte array in a {@link CachedByteData} object and returns it. If for some reason, allocation of the {@link CachedByteData} fails, an {@link InMemoryByteData} will be returned instead.
+   * Wraps the provided byte array in a {@link CachedByteData} object and returns it. If for some reason, allocation of the {@link CachedByteData} fails or the cache is full, an {@link InMemoryByteData} will be returned instead.
    *
-   * @param data The data that should be wrapped.
+   * @param data   The data that should be wrapped.
+   * @param prefix Unused; the data is stored in a shared slab file.
    * @return {@link ByteData} object.
-   * @throws UncheckedIOException If the allocation of the {@link CachedByteData} fails and FORCE_DISK_CACHE cache policy is used.
    */
   public ByteData newCachedData(byte[] data, String prefix) {
-    ensureDirectory();
-    final CacheConfig.Policy cachePolicy = this.config.getCachingPolicy();
-    final Path cacheLocation = this.config.getCacheLocation();
+    reclaim();
     try {
-      return new CachedByteData(data, Files.createTempFile(cacheLocation, prefix, ".tmp"), this);
+      final CacheSlabStore.Slot slot = this.store().allocate(data.length);
+      if (slot != null) {
+        final CachedByteData cdata = new CachedByteData(data, slot, this);
+        new CachedByteDataReference(cdata); /* Enqueue phantom reference for garbage collection. */
+        return cdata;
+      }
     } catch (IOException e) {
-      LOGGER.warn("Failed to instantiate an object of type CachedByteDate. Fallback to InMemoryByteData instead.");
-      return new InMemoryByteData(data, this);
+      LOGGER.warn("Failed to instantiate an object of type CachedByteData. Fallback to InMemoryByteData instead.");
     }
+    return new InMemoryByteData(data, this);
   }
 
   /**
@@ -280,15 +267,7 @@ public MultiImage newInMemoryMultiImage(BufferedImage bimg) {
    * @return {@link CachedMultiImage} or {@link InMemoryMultiImage}, if former could not be created.
    */
   public MultiImage newCachedMultiImage(BufferedImage image, String prefix) {
-    ensureDirectory();
-    try {
-      final CachedMultiImage cimg = new CachedMultiImage(image, Files.createTempFile(this.cacheLocation, prefix, ".tmp"), this);
-      new CachedByteDataReference(cimg); /* Enqueue phantom reference for garbage collection. */
-      return cimg;
-    } catch (IOException e) {
-      LOGGER.warn("Failed to instantiate an object of type CachedMultiImage. Fallback to InMemoryMultiImage instead.");
-      return new InMemoryMultiImage(image, this);
-    }
+    return newCachedMultiImage(image, null, prefix);
   }
 
   /**
@@ -300,34 +279,36 @@ public MultiImage newCachedMultiImage(BufferedImage image, String prefix) {
    * @return {@link CachedMultiImage} or  {@link InMemoryMultiImage}, if former could not be created.
    */
   public MultiImage newCachedMultiImage(BufferedImage image, BufferedImage thumb, String prefix) {
-    ensureDirectory();
+    if (thumb == null) {
+      thumb = MultiImage.generateThumb(image);
+    }
+    reclaim();
     try {
-      final CachedMultiImage cimg = new CachedMultiImage(image, thumb, Files.createTempFile(this.cacheLocation, prefix, ".tmp"), this);
-      new CachedByteDataReference(cimg); /* Enqueue phantom reference for garbage collection. */
-      return cimg;
+      final CacheSlabStore.Slot slot = this.store().allocate(CachedMultiImage.bytes(image, thumb));
+      if (slot != null) {
+        final CachedMultiImage cimg = new CachedMultiImage(image, thumb, slot, this);
+        new CachedByteDataReference(cimg); /* Enqueue phantom reference for garbage collection. */
+        return cimg;
+      }
     } catch (IOException e) {
       LOGGER.warn("Failed to instantiate an object of type CachedMultiImage. Fallback to InMemoryMultiImage instead.");
-      return new InMemoryMultiImage(image, thumb, this);
     }
+    return new InMemoryMultiImage(image, thumb, this);
   }
 
   /**
-   * Inner {@link PhantomReference} implementations that keeps track of the cache path for every {@link CachedByteData}.
+   * Inner {@link PhantomReference} implementations that keeps track of the cache slot for every {@link CachedByteData}.
    */
   private static class CachedByteDataReference extends PhantomReference<CachedByteData> {
 
-    private final Path path;
+    private final CacheSlabStore.Slot slot;
 
     private CachedByteDataReference(CachedByteData data) {
       super(data, CachedDataFactory.CACHED_REF_QUEUE);
       CACHED_REFS_LOCK.lock();
       CACHED_REFS.add(this);
       CACHED_REFS_LOCK.unlock();
-      this.path = data.getPath();
-    }
-
-    public Path getPath() {
-      return path;
+      this.slot = data.getSlot();
     }
   }
 }
@@ -1,42 +1,33 @@
 package org.vitrivr.cineast.core.data.raw.bytes;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.lang.ref.SoftReference;
+import java.lang.ref.Reference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Objects;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.raw.CacheSlabStore;
 import org.vitrivr.cineast.core.data.raw.CacheableData;
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
 import org.vitrivr.cineast.core.data.raw.images.CachedMultiImage;
 
 /**
- * The {@link CachedByteData} object is an immutable {@link ByteData} object backed by a file cache. The data held by the {@link ByteData} object may be garbage collected if memory pressure builds up and must be re-created from the cache when accessed.
+ * The {@link CachedByteData} object is an immutable {@link ByteData} object backed by the off-heap cache of its {@link CachedDataFactory}.
  * <p>
- * A temporary cache file is created upon constructing the {@link CachedByteData} object and holds its content in case the in-memory representation gets garbage collected.
+ * The data is written to a {@link CacheSlabStore.Slot} of a memory-mapped slab file upon constructing the {@link CachedByteData} object; which pages are resident is left to the operating system. Reading the data copies it into the heap, such that nothing handed out refers to the slot. The slot is returned to the store by {@link #clear()}; objects that are never cleared return it once they have been garbage collected.
  *
- * @version 1.1
+ * @version 1.2
  * @see ByteData
  * @see CacheableData
  * @see CachedDataFactory
+ * @see CacheSlabStore
  */
 public class CachedByteData implements ByteData {
 
   /**
-   * Logger instance used to log errors.
+   * The {@link CacheSlabStore.Slot} that holds the data of this {@link CachedByteData} object.
    */
-  private static final Logger LOGGER = LogManager.getLogger();
+  protected final CacheSlabStore.Slot slot;
   /**
-   * The file that backs this {@link CachedByteData} object.
-   */
-  protected final Path path;
-  /**
-   * Size of the {@link CachedByteData}. Because the reference to the underlying data is volatile, this value is stored separately.
+   * Size of the {@link CachedByteData} in bytes. The slot may be larger.
    */
   protected final int size;
   /**
@@ -44,83 +35,102 @@ public class CachedByteData implements ByteData {
    */
   private final CachedDataFactory factory;
   /**
-   * ByteBuffer holding the raw data.
+   * True once {@link #clear()} has released the slot. Guarded by this object.
    */
-  protected SoftReference<ByteBuffer> data;
+  private boolean cleared = false;
 
   /**
    * Constructor for {@link CachedByteData} object.
    *
    * @param data The byte data with which to initialize the {@link CachedByteData} object
-   * @param file The path to the file that should is supposed to hold the
-   * @throws IOException If unable to create a cache file.
+   * @param slot The {@link CacheSlabStore.Slot} that is supposed to hold the data.
+   */
+  public CachedByteData(byte[] data, CacheSlabStore.Slot slot, CachedDataFactory factory) {
+    this(slot, data.length, factory);
+    slot.buffer().put(data);
+  }
+
+  /**
+   * Constructor for subclasses that write the data to the slot themselves.
+   *
+   * @param slot The {@link CacheSlabStore.Slot} that is supposed to hold the data.
+   * @param size Size of the data in bytes.
    */
-  public CachedByteData(byte[] data, Path file, CachedDataFactory factory) throws IOException {
-    /* Write data to cache file. */
-    try (final OutputStream stream = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
-      stream.write(data);
-      this.path = file;
-      this.size = data.length;
-      this.data = new SoftReference<>(ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN));
-      this.factory = factory;
-    } catch (IOException e) {
-      LOGGER.error("Failed to write data to cache at {}", file);
-      LOGGER.error(e);
-      throw e;
+  protected CachedByteData(CacheSlabStore.Slot slot, int size, CachedDataFactory factory) {
+    if (slot.capacity() < size) {
+      throw new IllegalArgumentException("A slot of " + slot.capacity() + " bytes cannot hold " + size + " bytes.");
     }
+    this.slot = slot;
+    this.size = size;
+    this.factory = factory;
   }
 
   /**
-   * Returns the size in bytes of this {@link InMemoryByteData} packet.
+   * Returns the size in bytes of this {@link CachedByteData} packet.
    *
    * @return Size in bytes.
    */
   @Override
-  public synchronized int size() {
+  public int size() {
     return this.size;
   }
 
   /**
-   * Getter for {@link Path} to cache file.
+   * Getter for the {@link CacheSlabStore.Slot} that holds the data.
    *
-   * @return {@link Path} to cache file.
+   * @return {@link CacheSlabStore.Slot}
    */
-  public Path getPath() {
-    return this.path;
+  public CacheSlabStore.Slot getSlot() {
+    return this.slot;
   }
 
   /**
-   * Returns the {@link ByteBuffer} that backs this {@link InMemoryByteData} object. The returned buffer is readonly and cannot be changed.
+   * Returns a read-only copy of the data of this {@link CachedByteData} object.
    *
    * @return {@link ByteBuffer} object.
    */
   @Override
   public ByteBuffer buffer() {
-    ByteBuffer buffer = this.data.get();
-    if (buffer == null) {
-      buffer = this.resurrect();
-    }
-    if (buffer == null) {
-      buffer = ByteBuffer.wrap(new byte[1]);
-    }
-    return buffer.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    return ByteBuffer.wrap(this.array()).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
   }
 
   /**
-   * Returns the data in this {@link InMemoryByteData} object as byte array. Directly accesses the underlying byte buffer to do so.
+   * Returns a copy of the data in this {@link CachedByteData} object as byte array.
    *
-   * @return ByteData of this {@link InMemoryByteData} object.
+   * @return ByteData of this {@link CachedByteData} object.
    */
   @Override
-  public byte[] array() {
-    ByteBuffer buffer = this.data.get();
-    if (buffer == null) {
-      buffer = this.resurrect();
+  public synchronized byte[] array() {
+    try {
+      final byte[] data = new byte[this.size];
+      this.read().get(data);
+      return data;
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Releases the slot of this {@link CachedByteData} object. The data cannot be read anymore afterwards; clearing an object more than once has no effect.
+   */
+  public synchronized void clear() {
+    if (!this.cleared) {
+      this.cleared = true;
+      this.slot.release();
     }
-    if (buffer == null) {
-      return new byte[0];
+  }
+
+  /**
+   * Returns a view of the slot for reading. Must be called while holding the lock of this object, which prevents {@link #clear()} from releasing the slot until the data has been copied. The caller has to keep this object reachable until then (see {@link Reference#reachabilityFence(Object)}), lest the slot is released after this object has been collected.
+   *
+   * @return Little-endian {@link ByteBuffer} with position zero.
+   * @throws IllegalStateException If this object has been cleared.
+   */
+  protected ByteBuffer read() {
+    if (this.cleared) {
+      throw new IllegalStateException("The data of this object has been cleared.");
     }
-    return buffer.array();
+    return this.slot.buffer();
   }
 
   /**
@@ -133,29 +143,6 @@ public CachedDataFactory factory() {
     return this.factory;
   }
 
-  /**
-   * Reads the content of this {@link CachedByteData} object from the cache file. If the cache file exists and is readable, this method guarantees to return the {@link ByteBuffer} object that contains the data in the cache.
-   * <p>
-   * When invoking this  method, the local soft reference to that data is also refreshed. However, there is no guarantee that when invoking any of the other methods defined in the {@link ByteData} interface, that this reference is still around.
-   *
-   * @return {@link ByteBuffer} loaded from cache or null, if reading into the {@link ByteBuffer} failed.
-   */
-  protected ByteBuffer resurrect() {
-    try {
-      /* Allocate a new Buffer according to the size of the CachedByteData object. */
-      final byte[] data = Files.readAllBytes(this.path);
-      final ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
-      this.data = new SoftReference<>(buffer);
-
-      /* Return true.*/
-      return buffer;
-    } catch (IOException e) {
-      LOGGER.error("Failed to read data from cache at {} due to an exception. The data contained in {} is lost!", this.path, this.toString());
-      LOGGER.error(e);
-      return ByteBuffer.wrap(new byte[0]).order(ByteOrder.LITTLE_ENDIAN);
-    }
-  }
-
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -165,11 +152,11 @@ public boolean equals(Object o) {
       return false;
     }
     CachedByteData that = (CachedByteData) o;
-    return size == that.size && Objects.equals(path, that.path) && Objects.equals(factory, that.factory) && Objects.equals(data, that.data);
+    return size == that.size && slot == that.slot && Objects.equals(factory, that.factory);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(path, size, data);
+    return Objects.hash(System.identityHashCode(slot), size);
   }
 }
@@ -1,22 +1,21 @@
 package org.vitrivr.cineast.core.data.raw.images;
 
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.lang.ref.SoftReference;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.file.Path;
+import java.lang.ref.Reference;
+import java.nio.IntBuffer;
 import java.util.Objects;
+import java.util.function.Consumer;
+import org.vitrivr.cineast.core.data.raw.CacheSlabStore;
 import org.vitrivr.cineast.core.data.raw.CacheableData;
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
 import org.vitrivr.cineast.core.data.raw.bytes.CachedByteData;
 
 /**
- * The {@link CachedMultiImage} object is an immutable  representation of a {@link BufferedImage} backed by a file cache. The data held by the {@link CachedMultiImage} object may be garbage collected if memory pressure builds up and must be re-created from the cache when accessed.
+ * The {@link CachedMultiImage} object is an immutable representation of a {@link BufferedImage} backed by the off-heap cache of its {@link CachedDataFactory}.
  * <p>
- * A temporary cache file is created upon constructing the {@link CachedMultiImage} object and holds its content in case the in-memory representation gets garbage collected.
+ * The colors of the image, followed by the colors of its thumbnail (unless the image is small enough to be its own thumbnail), are written to a {@link CacheSlabStore.Slot} upon constructing the {@link CachedMultiImage} object. Reading them copies them with a single bulk copy, unless they are read in place through {@link #withColors(Consumer)}; {@link #clear()} releases the slot.
  *
- * @version 1.0
+ * @version 1.1
  * @see MultiImage
  * @see CacheableData
  * @see CachedDataFactory
@@ -34,128 +33,88 @@ public class CachedMultiImage extends CachedByteData implements MultiImage {
   private final int height;
 
   /**
-   * The height of the cached {@link MultiImage}.
+   * The type of the cached {@link MultiImage}.
    */
   private final int type;
+
   /**
-   * Reference to the {@link CachedDataFactory} that created this {@link CachedMultiImage}.
+   * The size and type of the thumbnail. If {@link #sharedThumb} is set, these equal the values of the image.
    */
-  private final CachedDataFactory factory;
+  private final int thumbWidth, thumbHeight, thumbType;
+
   /**
-   * Soft reference to the thumbnail image. May be garbage collected under memory pressure.
+   * True, if the image is its own thumbnail and only stored once.
    */
-  private SoftReference<BufferedImage> thumb;
+  private final boolean sharedThumb;
 
   /**
-   * Constructor for {@link CachedMultiImage}.
-   *
-   * @param img       {@link BufferedImage} to create a {@link CachedMultiImage} from.
-   * @param cacheFile The cache file in which to store {@link CachedMultiImage}.
-   * @throws IOException If creation of the cache file failed.
+   * Reference to the {@link CachedDataFactory} that created this {@link CachedMultiImage}.
    */
-  public CachedMultiImage(BufferedImage img, Path cacheFile, CachedDataFactory factory) throws IOException {
-    this(img, null, cacheFile, factory);
-  }
+  private final CachedDataFactory factory;
 
   /**
    * Constructor for {@link CachedMultiImage}.
    *
-   * @param img       {@link BufferedImage} to create a {@link CachedMultiImage} from.
-   * @param thumb     {@link BufferedImage} holding the thumbnail image.
-   * @param cacheFile The cache file in which to store {@link CachedMultiImage}.
-   * @throws IOException If creation of the cache file failed.
+   * @param img   {@link BufferedImage} to create a {@link CachedMultiImage} from.
+   * @param thumb {@link BufferedImage} holding the thumbnail image, see {@link MultiImage#generateThumb(BufferedImage)}.
+   * @param slot  The {@link CacheSlabStore.Slot} in which to store the {@link CachedMultiImage}. Must hold at least {@link #bytes(BufferedImage, BufferedImage)} bytes.
    */
-  public CachedMultiImage(BufferedImage img, BufferedImage thumb, Path cacheFile, CachedDataFactory factory) throws IOException {
-    super(toBytes(img), cacheFile, factory);
+  public CachedMultiImage(BufferedImage img, BufferedImage thumb, CacheSlabStore.Slot slot, CachedDataFactory factory) {
+    super(slot, img.getWidth() * img.getHeight() * 4, factory);
     this.width = img.getWidth();
     this.height = img.getHeight();
     this.type = img.getType();
+    this.sharedThumb = thumb == img;
+    this.thumbWidth = thumb.getWidth();
+    this.thumbHeight = thumb.getHeight();
+    this.thumbType = thumb.getType();
     this.factory = factory;
-    if (thumb != null) {
-      this.thumb = new SoftReference<>(thumb);
-    } else {
-      this.thumb = new SoftReference<>(MultiImage.generateThumb(img));
-    }
-  }
 
-  /**
-   * Constructor for {@link CachedMultiImage}.
-   *
-   * @param colors The array holding the colors of the original, {@link BufferedImage}.
-   * @param width  Width of the image.
-   * @param height Height of the image.
-   * @throws IOException If creation of the cache file failed.
-   */
-  public CachedMultiImage(int[] colors, int width, int height, Path cacheFile, CachedDataFactory factory) throws IOException {
-    super(toBytes(colors, width, height), cacheFile, factory);
-
-    this.width = width;
-    this.height = height;
-    this.type = BufferedImage.TYPE_INT_RGB;
-    this.factory = factory;
-
-    final BufferedImage bimg = new BufferedImage(this.width, this.height, this.type);
-    bimg.setRGB(0, 0, this.width, this.height, colors, 0, this.width);
-    this.thumb = new SoftReference<>(MultiImage.generateThumb(bimg));
+    final IntBuffer buffer = slot.buffer().asIntBuffer();
+    buffer.put(img.getRGB(0, 0, this.width, this.height, null, 0, this.width));
+    if (!this.sharedThumb) {
+      buffer.put(thumb.getRGB(0, 0, this.thumbWidth, this.thumbHeight, null, 0, this.thumbWidth));
+    }
   }
 
   /**
-   * Converts the {@link BufferedImage} to a byte array representation.
+   * Returns the number of bytes required to cache the given image and its thumbnail.
    *
-   * @param img The {@link BufferedImage} that should be converted.
-   * @return The byte array representing the {@link BufferedImage}
+   * @param img   {@link BufferedImage} to cache.
+   * @param thumb Thumbnail of the image, possibly the image itself.
+   * @return Number of bytes.
    */
-  private static byte[] toBytes(BufferedImage img) {
-    int[] colors = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
-    return toBytes(colors, img.getWidth(), img.getHeight());
-  }
-
-  /**
-   * Converts the int array holding the colors of a {@link BufferedImage} to a byte array representation.
-   *
-   * @param colors The int array holding the color values.
-   * @param width  Width of the image.
-   * @param height Height of the image.
-   * @return The byte array representing the {@link BufferedImage}
-   */
-  private static byte[] toBytes(int[] colors, int width, int height) {
-    final ByteBuffer data = ByteBuffer.allocate(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
-    for (int c : colors) {
-      data.putInt(c);
-    }
-    return data.array();
+  public static int bytes(BufferedImage img, BufferedImage thumb) {
+    final int pixels = img.getWidth() * img.getHeight();
+    return 4 * (thumb == img ? pixels : pixels + thumb.getWidth() * thumb.getHeight());
   }
 
   /**
-   * Getter for the thumbnail image of this {@link CachedMultiImage}. If the thumbnail image reference does not exist anymore, a new thumbnail image will be created from the raw data.
-   * <p>
-   * Calling this method will cause the soft reference {@link CachedMultiImage#thumb} to be refreshed! However, there is no guarantee that the reference will still be around when invoking this or any other accessor the next time.
+   * Getter for the thumbnail image of this {@link CachedMultiImage}. The image is reconstructed from the cache.
    *
    * @return The thumbnail image for this {@link CachedMultiImage}
    */
   @Override
   public BufferedImage getThumbnailImage() {
-    BufferedImage thumbnail = this.thumb.get();
-    if (thumbnail == null) {
-      thumbnail = MultiImage.generateThumb(this.getBufferedImage());
-    }
-    this.thumb = new SoftReference<>(thumbnail);
+    final BufferedImage thumbnail = new BufferedImage(this.thumbWidth, this.thumbHeight, this.thumbType == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : this.thumbType);
+    thumbnail.setRGB(0, 0, this.thumbWidth, this.thumbHeight, this.getThumbnailColors(), 0, this.thumbWidth);
     return thumbnail;
   }
 
   /**
-   * Getter for the colors array representing this {@link CachedMultiImage}.
+   * Getter for the colors array representing this {@link CachedMultiImage}. The colors are copied from the cache.
    *
-   * @return The thumbnail image for this {@link CachedMultiImage}
+   * @return Color array
    */
   @Override
-  public int[] getColors() {
-    final ByteBuffer buffer = this.buffer();
-    final int[] colors = new int[this.width * this.height];
-    for (int i = 0; i < colors.length; i++) {
-      colors[i] = buffer.getInt();
+  public synchronized int[] getColors() {
+    try {
+      final int[] colors = new int[this.width * this.height];
+      this.read().asIntBuffer().get(colors);
+      return colors;
+    } finally {
+      Reference.reachabilityFence(this);
     }
-    return colors;
   }
 
   /**
@@ -166,20 +125,61 @@ public int[] getColors() {
   @Override
   public BufferedImage getBufferedImage() {
     int[] colors = getColors();
-    final BufferedImage image = new BufferedImage(this.width, this.height, this.type);
+    final BufferedImage image = new BufferedImage(this.width, this.height, this.type == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_ARGB : this.type);
     image.setRGB(0, 0, this.width, this.height, colors, 0, this.width);
     return image;
   }
 
   /**
-   * Getter for the colors array representing the thumbnail of this {@link CachedMultiImage}.
+   * Getter for the colors array representing the thumbnail of this {@link CachedMultiImage}. The colors are copied from the cache.
    *
    * @return Color array
    */
   @Override
-  public int[] getThumbnailColors() {
-    final BufferedImage thumb = this.getThumbnailImage();
-    return this.getThumbnailImage().getRGB(0, 0, thumb.getWidth(), thumb.getHeight(), null, 0, thumb.getWidth());
+  public synchronized int[] getThumbnailColors() {
+    if (this.sharedThumb) {
+      return this.getColors();
+    }
+    try {
+      final int[] colors = new int[this.thumbWidth * this.thumbHeight];
+      this.read().asIntBuffer().get(this.width * this.height, colors);
+      return colors;
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Hands a read-only view of the slot to the reader without copying the colors. The lock of this {@link CachedMultiImage} is held while the reader runs, so that the slot cannot be released by {@link #clear()} in the meantime.
+   *
+   * @param reader Reader of the colors.
+   */
+  @Override
+  public synchronized void withColors(Consumer<IntBuffer> reader) {
+    try {
+      reader.accept(this.read().asIntBuffer().limit(this.width * this.height).asReadOnlyBuffer());
+    } finally {
+      Reference.reachabilityFence(this);
+    }
+  }
+
+  /**
+   * Hands a read-only view of the thumbnail colors in the slot to the reader, see {@link #withColors(Consumer)}.
+   *
+   * @param reader Reader of the thumbnail colors.
+   */
+  @Override
+  public synchronized void withThumbnailColors(Consumer<IntBuffer> reader) {
+    if (this.sharedThumb) {
+      this.withColors(reader);
+      return;
+    }
+    try {
+      final int offset = this.width * this.height;
+      reader.accept(this.read().asIntBuffer().limit(offset + this.thumbWidth * this.thumbHeight).position(offset).slice().asReadOnlyBuffer());
+    } finally {
+      Reference.reachabilityFence(this);
+    }
   }
 
   /**
@@ -212,15 +212,6 @@ public CachedDataFactory factory() {
     return this.factory;
   }
 
-  /**
-   * Force clears all the {@link SoftReference}s associated with this {@link CachedMultiImage} object.
-   */
-  @Override
-  public void clear() {
-    this.data.clear();
-    this.thumb.clear();
-  }
-
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -233,7 +224,7 @@ public boolean equals(Object o) {
       return false;
     }
     CachedMultiImage that = (CachedMultiImage) o;
-    return width == that.width && height == that.height && type == that.type && Objects.equals(factory, that.factory) && Objects.equals(thumb, that.thumb);
+    return width == that.width && height == that.height && type == that.type && Objects.equals(factory, that.factory);
   }
 
   @Override
@@ -2,8 +2,10 @@
 
 import java.awt.image.BufferedImage;
 import java.lang.ref.SoftReference;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.Consumer;
 import org.vitrivr.cineast.core.data.raw.CacheableData;
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
 
@@ -107,6 +109,16 @@ public int[] getColors() {
     return this.colors;
   }
 
+  /**
+   * Hands the colors array of this {@link InMemoryMultiImage} to the reader as a read-only {@link IntBuffer}, without copying it.
+   *
+   * @param reader Reader of the colors.
+   */
+  @Override
+  public void withColors(Consumer<IntBuffer> reader) {
+    reader.accept(IntBuffer.wrap(this.colors).asReadOnlyBuffer());
+  }
+
   /**
    * Getter for the colors array representing the thumbnail of this {@link InMemoryMultiImage}.
    *
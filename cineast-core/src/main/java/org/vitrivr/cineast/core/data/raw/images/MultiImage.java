@@ -2,6 +2,8 @@
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.function.Consumer;
 import net.coobird.thumbnailator.Thumbnails;
 import org.vitrivr.cineast.core.data.raw.CacheableData;
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
@@ -89,6 +91,42 @@ static BufferedImage generateThumb(BufferedImage img) {
 
   int[] getThumbnailColors();
 
+  /**
+   * Returns the colors of this {@link MultiImage} as a read-only {@link IntBuffer}. The buffer is never backed by a cache and thus stays valid after the {@link MultiImage} has been cleared.
+   *
+   * @return {@link IntBuffer} of {@link #getWidth()} * {@link #getHeight()} colors.
+   */
+  default IntBuffer getColorBuffer() {
+    return IntBuffer.wrap(this.getColors()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the colors of the thumbnail of this {@link MultiImage} as a read-only {@link IntBuffer}, see {@link #getColorBuffer()}.
+   *
+   * @return {@link IntBuffer} of the thumbnail colors.
+   */
+  default IntBuffer getThumbnailColorBuffer() {
+    return IntBuffer.wrap(this.getThumbnailColors()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Hands the colors of this {@link MultiImage} to the given reader as a read-only {@link IntBuffer}. Unlike {@link #getColorBuffer()}, the buffer may be a view of the cache that backs this {@link MultiImage}: it is only valid while the reader runs and must neither escape it nor be used to clear this {@link MultiImage}.
+   *
+   * @param reader Reader of the {@link #getWidth()} * {@link #getHeight()} colors, from the position to the limit of the buffer.
+   */
+  default void withColors(Consumer<IntBuffer> reader) {
+    reader.accept(this.getColorBuffer());
+  }
+
+  /**
+   * Hands the colors of the thumbnail of this {@link MultiImage} to the given reader, see {@link #withColors(Consumer)}.
+   *
+   * @param reader Reader of the thumbnail colors.
+   */
+  default void withThumbnailColors(Consumer<IntBuffer> reader) {
+    reader.accept(this.getThumbnailColorBuffer());
+  }
+
   int getWidth();
 
   int getHeight();
@@ -6,6 +6,7 @@
 import org.vitrivr.cineast.core.data.frames.AudioDescriptor;
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.STFTCache;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
 
 /**
@@ -44,6 +45,11 @@ public class AudioSegment implements SegmentContainer {
    */
   private AudioDescriptor descriptor;
 
+  /**
+   * Memoized STFTs of this AudioSegment, shared between the features extracted from it.
+   */
+  private final STFTCache stftCache = new STFTCache();
+
   /**
    * @return a unique id of this
    */
@@ -97,6 +103,7 @@ public boolean addFrame(AudioFrame frame) {
     this.totalSamples += frame.numberOfSamples();
     this.totalDuration += frame.getDuration();
     this.frames.add(frame);
+    this.stftCache.clear();
 
     return true;
   }
@@ -176,7 +183,7 @@ public float getAbsoluteEnd() {
   }
 
   /**
-   * Calculates and returns the Short-term Fourier Transform of the current AudioSegment.
+   * Returns the Short-term Fourier Transform of the current AudioSegment. STFTs are memoized per set of parameters; the returned instance is shared and must not be modified.
    *
    * @param windowsize Size of the window used during STFT. Must be a power of two.
    * @param overlap    Overlap in samples between two subsequent windows.
@@ -189,8 +196,14 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
     if (2 * padding >= windowsize) {
       throw new IllegalArgumentException("The combined padding must be smaller than the sample window.");
     }
-    STFT stft = new STFT(windowsize, overlap, padding, function, this.descriptor.getSamplingrate());
-    stft.forward(this.getMeanSamplesAsDouble());
-    return stft;
+    return this.stftCache.get(windowsize, overlap, padding, function, this.descriptor.getSamplingrate(), this::getMeanSamplesAsDouble);
+  }
+
+  /**
+   * Releases the memoized STFTs of this AudioSegment.
+   */
+  @Override
+  public void clear() {
+    this.stftCache.clear();
   }
 }
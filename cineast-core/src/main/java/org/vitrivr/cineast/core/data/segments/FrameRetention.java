@@ -0,0 +1,100 @@
+package org.vitrivr.cineast.core.data.segments;
+
+/**
+ * Determines which decoded {@link org.vitrivr.cineast.core.data.frames.VideoFrame}s a {@link VideoSegment} keeps until it is processed, and thus how its average image, median image and most representative frame are computed. Audio and subtitles are always kept.
+ * <p>
+ * The retention is configured per extraction run and applies to all extractors of the run, so the features of a segment do not depend on which other extractors it is processed by. Only {@link #ALL} computes the aggregates exactly; the other modes trade accuracy for memory. Every {@link org.vitrivr.cineast.core.features.extractor.Extractor} declares the retention it needs (see {@link org.vitrivr.cineast.core.features.extractor.Extractor#frameRetention()}), and a run fails when it is set up unless its configured retention {@link #satisfies(FrameRetention) satisfies} all of them.
+ */
+public enum FrameRetention {
+
+  /**
+   * Retains every frame and computes the aggregates from them once the segment is complete. This is the exact behaviour and the default.
+   */
+  ALL,
+
+  /**
+   * Retains every {@link #DECIMATION}-th frame at full resolution, e.g. for features that sample the frames of a segment. The average image, the approximate median image and the most representative frame are maintained over all frames, as for {@link #MEDIAN}.
+   */
+  DECIMATED,
+
+  /**
+   * Retains every frame, but only as a thumbnail, e.g. for features that only read the thumbnail colors of the frames. The average image, the approximate median image and the most representative frame are maintained at full resolution, as for {@link #MEDIAN}.
+   */
+  THUMBNAILS,
+
+  /**
+   * Like {@link #AGGREGATES}, but additionally maintains an approximate median image (see {@link org.vitrivr.cineast.core.descriptor.StreamingMedianImg}).
+   */
+  MEDIAN,
+
+  /**
+   * Retains no frames. The average image is maintained while frames are added; the most representative frame is the frame closest to the running average of the frames seen before it, and the median image falls back to that frame.
+   */
+  AGGREGATES;
+
+  /**
+   * Distance between two frames retained by {@link #DECIMATED}.
+   */
+  public static final int DECIMATION = 5;
+
+  /**
+   * @return True, if frames are kept and the aggregates are computed exactly.
+   */
+  public boolean all() {
+    return this == ALL;
+  }
+
+  /**
+   * @return True, if the median image has to be maintained while frames are added.
+   */
+  public boolean streamsMedian() {
+    return this == MEDIAN || this == DECIMATED || this == THUMBNAILS;
+  }
+
+  /**
+   * Determines whether the frame with the given index within its segment is retained.
+   *
+   * @param index Index of the frame within its segment, starting at 0.
+   * @return True, if the frame (or its thumbnail) is kept.
+   */
+  public boolean retains(int index) {
+    switch (this) {
+      case ALL:
+      case THUMBNAILS:
+        return true;
+      case DECIMATED:
+        return index % DECIMATION == 0;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Determines whether segments with this retention provide everything an extractor that needs the given retention reads.
+   *
+   * @param required {@link FrameRetention} needed by an extractor.
+   * @return True, if this retention is sufficient.
+   */
+  public boolean satisfies(FrameRetention required) {
+    if (this == required || this == ALL || required == AGGREGATES) {
+      return true;
+    }
+    return required == MEDIAN && this.streamsMedian();
+  }
+
+  /**
+   * Returns the least retention that satisfies both this and the given retention. {@link #DECIMATED} and {@link #THUMBNAILS} only join to {@link #ALL}.
+   *
+   * @param other The other {@link FrameRetention}.
+   * @return {@link FrameRetention} that satisfies both.
+   */
+  public FrameRetention join(FrameRetention other) {
+    if (this.satisfies(other)) {
+      return this;
+    } else if (other.satisfies(this)) {
+      return other;
+    } else {
+      return ALL;
+    }
+  }
+}
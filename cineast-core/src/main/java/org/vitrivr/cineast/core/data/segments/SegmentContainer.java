@@ -50,4 +50,9 @@
     BooleanExpressionProvider,
     SkeletonProvider {
 
+  /**
+   * Releases data derived from and cached by this {@link SegmentContainer} (e.g. memoized STFTs). The default implementation does nothing.
+   */
+  default void clear() {
+  }
 }
@@ -13,16 +13,23 @@
 import org.vitrivr.cineast.core.data.frames.AudioFrame;
 import org.vitrivr.cineast.core.data.frames.VideoDescriptor;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.tag.Tag;
-import org.vitrivr.cineast.core.descriptor.AvgImg;
 import org.vitrivr.cineast.core.descriptor.MedianImg;
 import org.vitrivr.cineast.core.descriptor.MostRepresentative;
 import org.vitrivr.cineast.core.descriptor.PathList;
+import org.vitrivr.cineast.core.descriptor.RunningAvgImg;
+import org.vitrivr.cineast.core.descriptor.RunningMostRepresentative;
+import org.vitrivr.cineast.core.descriptor.StreamingMedianImg;
 import org.vitrivr.cineast.core.extraction.decode.subtitle.SubtitleItem;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
+import org.vitrivr.cineast.core.util.dsp.fft.STFTCache;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
 
+/**
+ * A segment of a video. The average image, the most representative frame and, if required, the median image are maintained while frames are added; which frames are kept in addition is determined by the {@link FrameRetention} of the segment.
+ */
 public class VideoSegment implements SegmentContainer {
 
   private static final Logger LOGGER = LogManager.getLogger();
@@ -39,6 +46,43 @@ public class VideoSegment implements SegmentContainer {
   private String movieId;
   private String shotId;
 
+  /**
+   * Determines which of the added {@link VideoFrame}s are kept in {@link #videoFrames}.
+   */
+  private final FrameRetention retention;
+
+  /**
+   * Running sum of all frames added so far, used for {@link #getAvgImg()}.
+   */
+  private final RunningAvgImg runningAvg = new RunningAvgImg();
+
+  /**
+   * Histograms of all frames added so far, used for {@link #getMedianImg()}. Null unless required by the {@link FrameRetention}.
+   */
+  private final StreamingMedianImg streamingMedian;
+
+  /**
+   * Candidate for {@link #getMostRepresentativeFrame()}. Null if all frames are retained.
+   */
+  private final RunningMostRepresentative runningMostRepresentative;
+
+  /**
+   * Number of frames added to this {@link VideoSegment}, including those that were not retained.
+   */
+  private int numberOfFrames = 0;
+
+  /**
+   * Frame-numbers and timestamps (in seconds) of the first and the last frame added to this {@link VideoSegment}.
+   */
+  private int start, end;
+  private float absoluteStart, absoluteEnd;
+
+  /**
+   * Size and factory of the frames, used to create the aggregated images.
+   */
+  private int width, height;
+  private CachedDataFactory factory;
+
   /**
    * Total number of samples in the AudioSegment.
    */
@@ -58,32 +102,48 @@ public class VideoSegment implements SegmentContainer {
    * {@link VideoDescriptor} for the video stream in this {@link VideoSegment}. Can be null!
    */
   private VideoDescriptor videoDescriptor = null;
+
+  /**
+   * Memoized STFTs of the audio in this {@link VideoSegment}.
+   */
+  private final STFTCache stftCache = new STFTCache();
   private Object getAvgLock = new Object();
   private Object getMedianLock = new Object();
   private Object getPathsLock = new Object();
   private Object getMostRepresentativeLock = new Object();
 
   /**
-   *
+   * Creates a {@link VideoSegment} that retains all frames.
    */
   public VideoSegment() {
+    this(FrameRetention.ALL);
   }
 
   public VideoSegment(String movieId) {
+    this(FrameRetention.ALL);
     this.movieId = movieId;
   }
 
   /**
-   * Returns the number of {@link VideoFrame}s for this {@link VideoSegment}.
+   * @param retention {@link FrameRetention} that determines which of the added frames are kept.
+   */
+  public VideoSegment(FrameRetention retention) {
+    this.retention = retention;
+    this.streamingMedian = retention.streamsMedian() ? new StreamingMedianImg() : null;
+    this.runningMostRepresentative = retention.all() ? null : new RunningMostRepresentative();
+  }
+
+  /**
+   * Returns the number of {@link VideoFrame}s that were added to this {@link VideoSegment}, regardless of whether they were retained.
    *
    * @return Number of {@link VideoFrame}s
    */
   public int getNumberOfFrames() {
-    return this.videoFrames.size();
+    return this.numberOfFrames;
   }
 
   /**
-   * Getter for the list of {@link VideoFrame}s associated with this {@link VideoSegment}.
+   * Getter for the list of {@link VideoFrame}s retained by this {@link VideoSegment}; these are all frames unless the segment was created with a {@link FrameRetention} other than {@link FrameRetention#ALL}, in which case the list is empty.
    *
    * @return Unmodifiable list of {@link VideoFrame}s
    */
@@ -118,7 +178,33 @@ public boolean addVideoFrame(VideoFrame frame) {
       return false;
     }
 
-    this.videoFrames.add(frame);
+    final int index = this.numberOfFrames++;
+    if (index == 0) {
+      this.start = frame.getId();
+      this.absoluteStart = frame.getTimestampSeconds();
+      this.width = frame.getImage().getWidth();
+      this.height = frame.getImage().getHeight();
+      this.factory = frame.getImage().factory();
+    }
+    this.end = frame.getId();
+    this.absoluteEnd = frame.getTimestampSeconds();
+
+    /* Both descriptors read the colors in place, so that they are not copied out of the cache for every frame. */
+    frame.getImage().withColors(colors -> {
+      this.runningAvg.add(colors);
+      if (this.streamingMedian != null) {
+        this.streamingMedian.add(colors);
+      }
+    });
+    if (this.runningMostRepresentative != null) {
+      this.runningMostRepresentative.add(frame);
+    }
+    if (this.retention == FrameRetention.THUMBNAILS) {
+      final MultiImage thumbnail = this.factory.newMultiImage(frame.getImage().getThumbnailImage());
+      this.videoFrames.add(new VideoFrame(frame.getId(), frame.getTimestamp(), thumbnail, frame.getDescriptor()));
+    } else if (this.retention.retains(index)) {
+      this.videoFrames.add(frame);
+    }
     frame.getAudio().ifPresent(this::addAudioFrame);
 
     /* Add SubtitleItems. */
@@ -176,7 +262,7 @@ public int getChannels() {
   }
 
   /**
-   * Calculates and returns the Short-term Fourier Transform of the audio in the current {@link VideoFrame}. If the {@link VideoSegment} does not contain any audio, this method returns null.
+   * Returns the Short-term Fourier Transform of the audio in the current {@link VideoFrame}. If the {@link VideoSegment} does not contain any audio, this method returns null. STFTs are memoized per set of parameters; the returned instance is shared and must not be modified.
    *
    * @param windowsize Size of the window used during STFT. Must be a power of two.
    * @param overlap    Overlap in samples between two subsequent windows.
@@ -192,16 +278,15 @@ public STFT getSTFT(int windowsize, int overlap, int padding, WindowFunction fun
     if (2 * padding >= windowsize) {
       throw new IllegalArgumentException("The combined padding must be smaller than the sample window.");
     }
-    STFT stft = new STFT(windowsize, overlap, padding, function, this.audioDescriptor.getSamplingrate());
-    stft.forward(this.getMeanSamplesAsDouble());
-    return stft;
+    return this.stftCache.get(windowsize, overlap, padding, function, this.audioDescriptor.getSamplingrate(), this::getMeanSamplesAsDouble);
   }
 
   @Override
   public MultiImage getAvgImg() {
     synchronized (getAvgLock) {
       if (avgImg == null) {
-        avgImg = AvgImg.getAvg(videoFrames);
+        final int[] colors = this.runningAvg.getColors();
+        avgImg = colors == null ? MultiImage.EMPTY_MULTIIMAGE : this.factory.newMultiImage(this.width, this.height, colors);
       }
       return avgImg;
     }
@@ -211,7 +296,18 @@ public MultiImage getAvgImg() {
   public MultiImage getMedianImg() {
     synchronized (getMedianLock) {
       if (this.medianImg == null) {
-        this.medianImg = MedianImg.getMedian(videoFrames);
+        if (this.streamingMedian != null) {
+          final int[] colors = this.streamingMedian.getColors();
+          this.medianImg = colors == null ? MultiImage.EMPTY_MULTIIMAGE : this.factory.newMultiImage(this.width, this.height, colors);
+        } else if (!this.videoFrames.isEmpty()) {
+          this.medianImg = MedianImg.getMedian(this.videoFrames);
+        } else if (this.numberOfFrames > 0) {
+          /* Neither frames nor the median are retained: fall back to the most representative frame. */
+          LOGGER.debug("Median image of segment {} was not maintained; using the most representative frame instead.", this.shotId);
+          this.medianImg = this.getMostRepresentativeFrame().getImage();
+        } else {
+          this.medianImg = MultiImage.EMPTY_MULTIIMAGE;
+        }
       }
       return this.medianImg;
     }
@@ -243,11 +339,24 @@ public List<Pair<Integer, LinkedList<Point2D_F32>>> getBgPaths() {
     return this.bgPaths;
   }
 
-  /**
-   *
-   */
+  @Override
   public void clear() {
     LOGGER.trace("clear shot {}", shotId);
+    this.stftCache.clear();
+    if (medianImg != null) {
+      /* Without a median, the median image may be the image of the most representative frame, which is cleared below. */
+      if (this.mostRepresentative == null || this.medianImg != this.mostRepresentative.getImage()) {
+        this.medianImg.clear();
+      }
+      this.medianImg = null;
+    }
+    if (this.mostRepresentative != null) {
+      /* Cleared together with the retained frames, unless it is not among them. */
+      if (!this.retention.all() && this.videoFrames.stream().noneMatch(f -> f == this.mostRepresentative)) {
+        this.mostRepresentative.clear();
+      }
+      this.mostRepresentative = null;
+    }
     for (VideoFrame f : videoFrames) {
       f.clear();
     }
@@ -258,22 +367,21 @@ public void clear() {
       this.avgImg.clear();
       this.avgImg = null;
     }
-    if (medianImg != null) {
-      this.medianImg.clear();
-      this.medianImg = null;
-    }
     if (this.paths != null) {
       this.paths.clear();
       this.paths = null;
     }
-    this.mostRepresentative = null;
   }
 
   @Override
   public VideoFrame getMostRepresentativeFrame() {
     synchronized (getMostRepresentativeLock) {
       if (this.mostRepresentative == null) {
-        this.mostRepresentative = MostRepresentative.getMostRepresentative(this);
+        if (this.runningMostRepresentative == null) {
+          this.mostRepresentative = MostRepresentative.getMostRepresentative(this);
+        } else {
+          this.mostRepresentative = this.runningMostRepresentative.getCandidate();
+        }
       }
       return this.mostRepresentative;
     }
@@ -310,11 +418,7 @@ public List<SubtitleItem> getSubtitleItems() {
    */
   @Override
   public int getStart() {
-    if (!this.videoFrames.isEmpty()) {
-      return this.videoFrames.get(0).getId();
-    } else {
-      return 0;
-    }
+    return this.numberOfFrames > 0 ? this.start : 0;
   }
 
   /**
@@ -322,11 +426,7 @@ public int getStart() {
    */
   @Override
   public int getEnd() {
-    if (!this.videoFrames.isEmpty()) {
-      return this.videoFrames.get(this.videoFrames.size() - 1).getId();
-    } else {
-      return 0;
-    }
+    return this.numberOfFrames > 0 ? this.end : 0;
   }
 
   /**
@@ -350,11 +450,7 @@ public float getRelativeEnd() {
    */
   @Override
   public float getAbsoluteStart() {
-    if (!this.videoFrames.isEmpty()) {
-      return this.videoFrames.get(0).getTimestampSeconds();
-    } else {
-      return 0;
-    }
+    return this.numberOfFrames > 0 ? this.absoluteStart : 0;
   }
 
   /**
@@ -362,11 +458,7 @@ public float getAbsoluteStart() {
    */
   @Override
   public float getAbsoluteEnd() {
-    if (!this.videoFrames.isEmpty()) {
-      return this.videoFrames.get(this.videoFrames.size() - 1).getTimestampSeconds();
-    } else {
-      return 0;
-    }
+    return this.numberOfFrames > 0 ? this.absoluteEnd : 0;
   }
 
   @Override
@@ -398,5 +490,6 @@ private void addAudioFrame(AudioFrame frame) {
     this.totalSamples += frame.numberOfSamples();
     this.totalAudioDuration += frame.getDuration();
     this.audioFrames.add(frame);
+    this.stftCache.clear();
   }
 }
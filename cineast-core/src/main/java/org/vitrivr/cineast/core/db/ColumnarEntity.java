@@ -0,0 +1,160 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.util.distance.FloatBlockDistance;
+
+/**
+ * An entity of a {@link ColumnarStore}. Rows are addressed by their row number; the first column is the key column, columns that hold fixed-length float vectors support brute-force kNN search.
+ * <p>
+ * Row numbers are only stable until the entity is modified: deleting, replacing or truncating rows may renumber the remaining rows. Callers that turn the row numbers of one call into keys or rows by another call must do so within {@link #read(Supplier)}.
+ *
+ * @see ColumnarStore
+ */
+public interface ColumnarEntity {
+
+  /**
+   * Returns the names of the columns of this entity. The first column is the key column.
+   */
+  String[] getColumns();
+
+  /**
+   * Returns the index of the column with the given name or -1, if no such column exists.
+   */
+  int columnIndex(String name);
+
+  /**
+   * Appends the given rows to this entity. Values must be ordered like the columns of this entity and the first value of every row is used as key. Either all or none of the rows are appended.
+   *
+   * @param rows The rows to append.
+   * @return True on success, false if one of the rows does not match the layout of this entity or the rows could not be stored.
+   */
+  boolean append(List<Object[]> rows);
+
+  /**
+   * Returns the number of (non-deleted) rows in this entity.
+   */
+  int size();
+
+  /**
+   * Returns true if this entity contains at least one row for the given key, and false otherwise.
+   *
+   * @param key The key to look up.
+   */
+  boolean has(String key);
+
+  /**
+   * Returns the rows for the given keys.
+   *
+   * @param keys The keys to look up.
+   * @return Row numbers in ascending order.
+   */
+  int[] rowsForKeys(Iterable<String> keys);
+
+  /**
+   * Returns all rows whose value in the given column matches the {@link Predicate}. Null values are passed to the predicate as well.
+   *
+   * @param column    Index of the column.
+   * @param predicate {@link Predicate} to test the values with.
+   * @return Row numbers in ascending order.
+   */
+  int[] filter(int column, Predicate<Object> predicate);
+
+  /**
+   * Returns the rows whose value in the group column equals the given group and whose numeric value in the range column lies within the given bounds. Rows with non-numeric values in the range column are never returned.
+   *
+   * @param groupColumn Index of the group column.
+   * @param group       String representation of the group.
+   * @param rangeColumn Index of the range column.
+   * @param lower       Lower bound (inclusive).
+   * @param upper       Upper bound (inclusive).
+   * @param limit       Maximum number of rows; if <= 0, parameter is ignored
+   * @return Row numbers ordered by ascending value of the range column.
+   */
+  int[] range(int groupColumn, String group, int rangeColumn, double lower, double upper, int limit);
+
+  /**
+   * Returns the key of the given row.
+   */
+  String key(int row);
+
+  /**
+   * Materializes the given rows. Rows that have been deleted in the meantime are skipped.
+   *
+   * @param rows       Row numbers to materialize.
+   * @param projection Indexes of the columns to include; null includes all columns.
+   * @return List of rows.
+   */
+  List<Map<String, PrimitiveTypeProvider>> materialize(int[] rows, int[] projection);
+
+  /**
+   * Returns the values of the given column for the given rows. Rows that have been deleted are skipped.
+   *
+   * @param rows   Row numbers to read.
+   * @param column Index of the column.
+   * @return List of values.
+   */
+  List<Object> values(int[] rows, int column);
+
+  /**
+   * Brute-force kNN search over a vector column.
+   *
+   * @param column     Index of the vector column.
+   * @param k          Number of results.
+   * @param distance   The {@link FloatBlockDistance} bound to the query vector.
+   * @param candidates Rows to consider, or null if all rows should be considered.
+   * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+   */
+  FixedSizeDistanceHeap nearestNeighbours(int column, int k, FloatBlockDistance distance, int[] candidates);
+
+  /**
+   * Brute-force kNN search over a column that holds arbitrary objects (e.g., bit sets).
+   *
+   * @param column     Index of the column.
+   * @param k          Number of results.
+   * @param distance   The distance function bound to the query.
+   * @param candidates Rows to consider, or null if all rows should be considered.
+   * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+   */
+  FixedSizeDistanceHeap nearestNeighboursByValue(int column, int k, ToDoubleFunction<Object> distance, int[] candidates);
+
+  /**
+   * kNN search in Hamming space over a column that holds hashes, i.e. bit sets of at most {@link HammingIndex#BITS} bits. Without candidates, the search is answered by a {@link HammingIndex}. Rows with other values are ignored.
+   *
+   * @param column     Index of the column.
+   * @param k          Number of results.
+   * @param query      The query hash, see {@link HammingIndex#pack(com.googlecode.javaewah.datastructure.BitSet)}.
+   * @param radius     Maximum Hamming distance (inclusive).
+   * @param candidates Rows to consider, or null if all rows should be considered.
+   * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+   */
+  FixedSizeDistanceHeap nearestNeighboursHamming(int column, int k, long query, int radius, int[] candidates);
+
+  /**
+   * Radius search in Hamming space over a column that holds hashes, answered by the same {@link HammingIndex} as {@link #nearestNeighboursHamming(int, int, long, int, int[])}. Rows with other values are ignored.
+   *
+   * @param column Index of the column.
+   * @param query  The query hash, see {@link HammingIndex#pack(com.googlecode.javaewah.datastructure.BitSet)}.
+   * @param radius Maximum Hamming distance (inclusive).
+   * @return Row numbers in ascending order.
+   */
+  int[] withinHammingDistance(int column, long query, int radius);
+
+  /**
+   * Returns all non-deleted rows in ascending order.
+   */
+  int[] allRows();
+
+  /**
+   * Executes the given read such that the row numbers obtained within it stay valid until it returns, i.e. no modification of this entity takes place in the meantime. Reads of this entity within the supplier are allowed, modifications are not.
+   *
+   * @param read The read to execute.
+   * @return The result of the read.
+   */
+  <T> T read(Supplier<T> read);
+}
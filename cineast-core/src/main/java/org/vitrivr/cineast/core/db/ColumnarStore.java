@@ -0,0 +1,59 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.Optional;
+
+/**
+ * A store of {@link ColumnarEntity} objects that is embedded into Cineast, i.e. that doesn't require an external database. The {@link org.vitrivr.cineast.core.db.memory.InMemorySelector}, {@link org.vitrivr.cineast.core.db.memory.InMemoryWriter} and {@link org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator} work on top of any {@link ColumnarStore}.
+ *
+ * @see org.vitrivr.cineast.core.db.memory.InMemoryStore
+ * @see org.vitrivr.cineast.core.db.binary.BinaryStore
+ */
+public interface ColumnarStore {
+
+  /**
+   * Returns the {@link ColumnarEntity} for the given name or an empty {@link Optional}, if that entity doesn't exist.
+   *
+   * @param name Name of the entity to return.
+   * @return An optional {@link ColumnarEntity}
+   */
+  Optional<? extends ColumnarEntity> getEntity(String name);
+
+  /**
+   * Checks if this {@link ColumnarStore} has an entity with the given name.
+   *
+   * @param name The name to check.
+   * @return True if entity exists, false otherwise.
+   */
+  boolean hasEntity(String name);
+
+  /**
+   * Creates and returns the {@link ColumnarEntity} for the given name or an empty {@link Optional}, if that entity already exists or could not be created.
+   *
+   * @param name    Name of the entity to create.
+   * @param columns The list of columns to create. The first column acts as key.
+   * @return An optional {@link ColumnarEntity}
+   */
+  Optional<? extends ColumnarEntity> createEntity(String name, String... columns);
+
+  /**
+   * Creates and returns the {@link ColumnarEntity} for the given name or an empty {@link Optional}, if that entity already exists or could not be created.
+   * <p>
+   * In a unique entity, appending a row for an existing key replaces the row of that key, like a primary key would. Stores that cannot replace rows reject such appends instead; the default implementation ignores the flag.
+   *
+   * @param name    Name of the entity to create.
+   * @param unique  True if the entity holds at most one row per key.
+   * @param columns The list of columns to create. The first column acts as key.
+   * @return An optional {@link ColumnarEntity}
+   */
+  default Optional<? extends ColumnarEntity> createEntity(String name, boolean unique, String... columns) {
+    return this.createEntity(name, columns);
+  }
+
+  /**
+   * Drops the entity for the given name if such an entity exists.
+   *
+   * @param name Name of the entity to drop.
+   * @return True if entity was dropped, false otherwise.
+   */
+  boolean dropEntity(String name);
+}
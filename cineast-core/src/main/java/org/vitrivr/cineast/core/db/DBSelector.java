@@ -7,11 +7,13 @@
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.compare.ObjectToStringComparator;
 import org.apache.commons.lang3.tuple.Triple;
@@ -25,6 +27,7 @@
 import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.dao.MetadataAccessSpecification;
+import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
 
 public interface DBSelector extends Closeable {
 
@@ -167,6 +170,32 @@ default List<Map<String, PrimitiveTypeProvider>> getRows(String column, Relation
    */
   List<Map<String, PrimitiveTypeProvider>> getRows(String column, RelationalOperator operator, Iterable<PrimitiveTypeProvider> values, ReadableQueryConfig queryConfig);
 
+  /**
+   * Performs a range lookup within a group of rows, ordered by the range column.
+   * <p>
+   * i.e. SELECT * FROM entity WHERE keyColumn = key AND rangeColumn BETWEEN lower AND upper ORDER BY rangeColumn ASC LIMIT limit
+   * <p>
+   * The default implementation fetches the whole group and filters it in memory; implementations should push the range predicate and the order down to the storage layer, so that the cost does not depend on the size of the group.
+   *
+   * @param keyColumn   The column that identifies the group (e.g. the object ID of a segment).
+   * @param key         The value of the group.
+   * @param rangeColumn The numeric column the range predicate is applied to and the results are ordered by (e.g. the sequence number of a segment).
+   * @param lower       Lower bound (inclusive).
+   * @param upper       Upper bound (inclusive).
+   * @param limit       Maximum number of rows; if <= 0, parameter is ignored
+   * @param queryConfig query config. Can be null
+   * @return List of rows, ordered by ascending value of the range column.
+   */
+  default List<Map<String, PrimitiveTypeProvider>> getRowsInRange(String keyColumn, PrimitiveTypeProvider key, String rangeColumn, PrimitiveTypeProvider lower, PrimitiveTypeProvider upper, int limit, ReadableQueryConfig queryConfig) {
+    final double from = lower.getDouble();
+    final double to = upper.getDouble();
+    return getRows(keyColumn, Collections.singleton(key), DBQueryIdGenerator.generateQueryId("get-rows-range", queryConfig)).stream()
+        .filter(row -> row.containsKey(rangeColumn) && row.get(rangeColumn).getDouble() >= from && row.get(rangeColumn).getDouble() <= to)
+        .sorted(Comparator.comparingDouble(row -> row.get(rangeColumn).getDouble()))
+        .limit(limit > 0 ? limit : Long.MAX_VALUE)
+        .collect(Collectors.toList());
+  }
+
   /**
    * Performs a boolean lookup based on multiple conditions, linked with AND. Each element of the list specifies one of the conditions - left middle right, i.e. id IN (1, 5, 7)
    *
@@ -299,6 +328,16 @@ default List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, in
     return collect;
   }
 
+  /**
+   * SELECT columns FROM table, handing every row to the consumer as it is read instead of collecting all rows first. The default implementation collects the rows with {@link #getAll(List, int)}; backends that can stream their results should override it.
+   *
+   * @return true if all rows have been read, false if the scan failed.
+   */
+  default boolean forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    this.getAll(columns, -1).forEach(consumer);
+    return true;
+  }
+
   /**
    * SELECT * FROM entity ORDER BY order ASC LIMIT limit SKIP skip
    * <br>
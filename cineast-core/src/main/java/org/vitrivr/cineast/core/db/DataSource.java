@@ -1,8 +1,13 @@
 package org.vitrivr.cineast.core.db;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.function.Supplier;
 import org.vitrivr.cineast.core.config.DatabaseConfig;
+import org.vitrivr.cineast.core.db.binary.BinaryEntityCreator;
+import org.vitrivr.cineast.core.db.binary.BinarySelector;
+import org.vitrivr.cineast.core.db.binary.BinaryStore;
+import org.vitrivr.cineast.core.db.binary.BinaryWriter;
 import org.vitrivr.cineast.core.db.cottontaildb.CottontailEntityCreator;
 import org.vitrivr.cineast.core.db.cottontaildb.CottontailSelector;
 import org.vitrivr.cineast.core.db.cottontaildb.CottontailWrapper;
@@ -10,6 +15,8 @@
 import org.vitrivr.cineast.core.db.json.JsonFileWriter;
 import org.vitrivr.cineast.core.db.json.JsonSelector;
 import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
 import org.vitrivr.cineast.core.db.polypheny.PolyphenyEntityCreator;
 import org.vitrivr.cineast.core.db.polypheny.PolyphenySelector;
 import org.vitrivr.cineast.core.db.polypheny.PolyphenyWrapper;
@@ -28,7 +35,8 @@ public enum DataSource {
   JSON,
   COTTONTAIL,
   POLYPHENY,
-  INMEMORY;
+  INMEMORY,
+  BINARY;
 
   /**
    * Returns a new {@link PersistencyWriterSupplier}
@@ -40,12 +48,16 @@ public PersistencyWriterSupplier getWriterSupplier(DatabaseConfig config) {
     switch (this) {
       case NONE:
         return NoDBWriter::new;
+      case INMEMORY:
+        return InMemoryWriter::new;
       case COTTONTAIL:
         return () -> new CottontailWriter(new CottontailWrapper(config.getHost(), config.getPort()), config.getBatchsize(), config.getUseTransactions());
       case POLYPHENY:
         return () -> new PolyphenyWriter(new PolyphenyWrapper(config.getHost(), config.getPort()), config.getBatchsize());
       case JSON:
         return () -> new JsonFileWriter(new File(config.getHost()));
+      case BINARY:
+        return () -> new BinaryWriter(BinaryStore.forDirectory(Paths.get(config.getHost())));
       default:
         throw new IllegalStateException("No supplier for " + this + " selector.");
     }
@@ -61,12 +73,16 @@ public DBSelectorSupplier getSelectorSupplier(DatabaseConfig config) {
     switch (this) {
       case NONE:
         return NoDBSelector::new;
+      case INMEMORY:
+        return InMemorySelector::new;
       case COTTONTAIL:
         return () -> new CottontailSelector(new CottontailWrapper(config.getHost(), config.getPort()));
       case POLYPHENY:
         return () -> new PolyphenySelector(new PolyphenyWrapper(config.getHost(), config.getPort()));
       case JSON:
         return () -> new JsonSelector(new File(config.getHost()));
+      case BINARY:
+        return () -> new BinarySelector(BinaryStore.forDirectory(Paths.get(config.getHost())));
       default:
         throw new IllegalStateException("No supplier for " + this + " selector.");
     }
@@ -88,6 +104,8 @@ public Supplier<EntityCreator> getEntityCreatorSupplier(DatabaseConfig config) {
         return () -> new CottontailEntityCreator(new CottontailWrapper(config.getHost(), config.getPort()));
       case POLYPHENY:
         return () -> new PolyphenyEntityCreator(new PolyphenyWrapper(config.getHost(), config.getPort()));
+      case BINARY:
+        return () -> new BinaryEntityCreator(BinaryStore.forDirectory(Paths.get(config.getHost())));
       default:
         throw new IllegalStateException("No supplier for " + this + " entity creator.");
     }
@@ -0,0 +1,180 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.MediaType;
+
+/**
+ * Answers existence checks for segment ids of the form (object id)_(sequence number) from an in-memory index, so that resuming an extraction does not cost one query per segment and feature.
+ * <p>
+ * The first check for a segment of an object loads the ids of all segments of that object in a single bulk query and keeps them as a sorted array of sequence numbers; subsequent checks for the same object are answered locally. The indices of the {@link #MAX_OBJECTS} most recently loaded objects are retained. Ids that do not follow the segment id scheme, or for which the bulk query fails, are checked individually.
+ * <p>
+ * Ids persisted after an object has been loaded are not reflected by the index.
+ */
+public final class ExistenceIndex {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Number of objects whose segment ids are retained.
+   */
+  private static final int MAX_OBJECTS = 32;
+
+  /**
+   * Loads all ids starting with the given object id and delimiter.
+   */
+  private final Function<String, Collection<String>> bulkLoader;
+
+  /**
+   * Checks a single id.
+   */
+  private final Predicate<String> fallback;
+
+  private final ConcurrentHashMap<String, ObjectIds> objects = new ConcurrentHashMap<>();
+
+  private final ConcurrentLinkedQueue<String> loadOrder = new ConcurrentLinkedQueue<>();
+
+  /**
+   * @param bulkLoader Loads all ids that start with the given object id followed by the segment id delimiter.
+   * @param fallback   Checks the existence of a single id.
+   */
+  public ExistenceIndex(Function<String, Collection<String>> bulkLoader, Predicate<String> fallback) {
+    this.bulkLoader = bulkLoader;
+    this.fallback = fallback;
+  }
+
+  /**
+   * @param id Segment id to check.
+   * @return True if an entry with the given id exists.
+   */
+  public boolean contains(String id) {
+    final int delimiter = id.lastIndexOf(MediaType.DELIMITER);
+    if (delimiter <= 0 || delimiter == id.length() - 1) {
+      return this.fallback.test(id);
+    }
+    final String objectId = id.substring(0, delimiter);
+    ObjectIds ids = this.objects.get(objectId);
+    if (ids == null) {
+      ids = this.load(objectId);
+      if (ids == ObjectIds.UNAVAILABLE) {
+        return this.fallback.test(id);
+      }
+      /* Only the thread whose index is retained records it, so every retained object has exactly one entry in the load order. */
+      final ObjectIds previous = this.objects.putIfAbsent(objectId, ids);
+      if (previous == null) {
+        this.loadOrder.add(objectId);
+        this.evict();
+      } else {
+        ids = previous;
+      }
+    }
+    return ids.contains(id.substring(delimiter + 1));
+  }
+
+  /**
+   * Drops all loaded ids.
+   */
+  public void clear() {
+    this.objects.clear();
+    this.loadOrder.clear();
+  }
+
+  private ObjectIds load(String objectId) {
+    try {
+      final String prefix = objectId + MediaType.DELIMITER;
+      return ObjectIds.of(this.bulkLoader.apply(prefix), prefix);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to load existing ids of object {}; falling back to individual checks.", objectId, e);
+      return ObjectIds.UNAVAILABLE;
+    }
+  }
+
+  private void evict() {
+    while (this.objects.size() > MAX_OBJECTS) {
+      final String eldest = this.loadOrder.poll();
+      if (eldest == null) {
+        return;
+      }
+      this.objects.remove(eldest);
+    }
+  }
+
+  /**
+   * Existing ids of a single object, stored by their suffix.
+   */
+  private static final class ObjectIds {
+
+    private static final ObjectIds UNAVAILABLE = new ObjectIds(new long[0], new String[0]);
+
+    /**
+     * Sorted sequence numbers of ids with a numeric suffix.
+     */
+    private final long[] sequenceNumbers;
+
+    /**
+     * Sorted suffixes that are not sequence numbers.
+     */
+    private final String[] others;
+
+    private ObjectIds(long[] sequenceNumbers, String[] others) {
+      this.sequenceNumbers = sequenceNumbers;
+      this.others = others;
+    }
+
+    private static ObjectIds of(Collection<String> ids, String prefix) {
+      final long[] sequenceNumbers = new long[ids.size()];
+      final String[] others = new String[ids.size()];
+      int numeric = 0;
+      int other = 0;
+      for (String id : ids) {
+        if (id == null || id.length() <= prefix.length() || !id.startsWith(prefix)) {
+          continue;
+        }
+        final String suffix = id.substring(prefix.length());
+        final long sequenceNumber = sequenceNumber(suffix);
+        if (sequenceNumber >= 0) {
+          sequenceNumbers[numeric++] = sequenceNumber;
+        } else {
+          others[other++] = suffix;
+        }
+      }
+      final long[] sortedSequenceNumbers = Arrays.copyOf(sequenceNumbers, numeric);
+      final String[] sortedOthers = Arrays.copyOf(others, other);
+      Arrays.sort(sortedSequenceNumbers);
+      Arrays.sort(sortedOthers);
+      return new ObjectIds(sortedSequenceNumbers, sortedOthers);
+    }
+
+    private boolean contains(String suffix) {
+      final long sequenceNumber = sequenceNumber(suffix);
+      if (sequenceNumber >= 0) {
+        return Arrays.binarySearch(this.sequenceNumbers, sequenceNumber) >= 0;
+      }
+      return Arrays.binarySearch(this.others, suffix) >= 0;
+    }
+
+    /**
+     * @return The sequence number the suffix represents, or -1 if it is not the canonical representation of one.
+     */
+    private static long sequenceNumber(String suffix) {
+      if (suffix.isEmpty() || suffix.length() > 18 || (suffix.length() > 1 && suffix.charAt(0) == '0')) {
+        return -1;
+      }
+      long value = 0;
+      for (int i = 0; i < suffix.length(); i++) {
+        final char c = suffix.charAt(i);
+        if (c < '0' || c > '9') {
+          return -1;
+        }
+        value = value * 10 + (c - '0');
+      }
+      return value;
+    }
+  }
+}
@@ -0,0 +1,289 @@
+package org.vitrivr.cineast.core.db;
+
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.Arrays;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+
+/**
+ * Immutable index over 64-bit hashes, e.g. perceptual image hashes, that answers radius and kNN queries in Hamming space.
+ * <p>
+ * Uses multi-index hashing: every hash is split into {@link #SUBSTRINGS} substrings of 16 bits, each of which is indexed in a table of its own. Two hashes within distance r agree on at least one substring up to distance r / {@link #SUBSTRINGS} (pigeonhole principle), so a query only probes the buckets close to its own substrings and verifies the hashes found there with a popcount. If probing would touch more buckets than there are hashes, the index falls back to a linear scan.
+ * <p>
+ * Used by {@link DBSelector}s without a query engine for bit set queries. Since it only maps hashes to row numbers, it can also be built over the hashes fetched from any other {@link DBSelector} and serve as a pre-filter for queries on that backend.
+ */
+public final class HammingIndex {
+
+  /**
+   * Number of bits of an indexable hash.
+   */
+  public static final int BITS = Long.SIZE;
+
+  /**
+   * Number of substrings (and thus tables) every hash is split into.
+   */
+  private static final int SUBSTRINGS = 4;
+
+  private static final int SUBSTRING_BITS = BITS / SUBSTRINGS;
+
+  private static final int BUCKETS = 1 << SUBSTRING_BITS;
+
+  private static final int MASK = BUCKETS - 1;
+
+  /**
+   * Binomial coefficients C(SUBSTRING_BITS, d), i.e. the number of buckets at distance d from a substring.
+   */
+  private static final long[] BUCKETS_AT = new long[SUBSTRING_BITS + 1];
+
+  static {
+    BUCKETS_AT[0] = 1;
+    for (int d = 1; d <= SUBSTRING_BITS; d++) {
+      BUCKETS_AT[d] = BUCKETS_AT[d - 1] * (SUBSTRING_BITS - d + 1) / d;
+    }
+  }
+
+  /**
+   * Row numbers, indexed by position.
+   */
+  private final int[] rows;
+
+  /**
+   * Hashes, indexed by position.
+   */
+  private final long[] hashes;
+
+  /**
+   * Start of every bucket in {@link #entries}, per table.
+   */
+  private final int[][] offsets;
+
+  /**
+   * Positions sorted by the value of their substring, per table.
+   */
+  private final int[][] entries;
+
+  private HammingIndex(int[] rows, long[] hashes) {
+    this.rows = rows;
+    this.hashes = hashes;
+    this.offsets = new int[SUBSTRINGS][];
+    this.entries = new int[SUBSTRINGS][];
+    for (int t = 0; t < SUBSTRINGS; t++) {
+      final int[] offsets = new int[BUCKETS + 1];
+      for (long hash : hashes) {
+        offsets[substring(hash, t) + 1]++;
+      }
+      for (int b = 0; b < BUCKETS; b++) {
+        offsets[b + 1] += offsets[b];
+      }
+      final int[] next = Arrays.copyOf(offsets, BUCKETS);
+      final int[] entries = new int[hashes.length];
+      for (int p = 0; p < hashes.length; p++) {
+        entries[next[substring(hashes[p], t)]++] = p;
+      }
+      this.offsets[t] = offsets;
+      this.entries[t] = entries;
+    }
+  }
+
+  /**
+   * Builds a new {@link HammingIndex}.
+   *
+   * @param rows   The row numbers to index.
+   * @param hashes The hash of every row, ordered like the row numbers.
+   * @return {@link HammingIndex}
+   */
+  public static HammingIndex of(int[] rows, long[] hashes) {
+    if (rows.length != hashes.length) {
+      throw new IllegalArgumentException("The number of rows (" + rows.length + ") does not match the number of hashes (" + hashes.length + ").");
+    }
+    return new HammingIndex(rows.clone(), hashes.clone());
+  }
+
+  /**
+   * Returns true if the given value is a bit set that can be packed into a hash, i.e. that has at most {@link #BITS} bits.
+   */
+  public static boolean isHash(Object value) {
+    return value instanceof BitSet && ((BitSet) value).size() <= BITS;
+  }
+
+  /**
+   * Packs the given bit set into a hash; bit i of the bit set becomes bit i of the hash.
+   *
+   * @param bits The bit set to pack. Must satisfy {@link #isHash(Object)}.
+   * @return The hash.
+   */
+  public static long pack(BitSet bits) {
+    if (bits.size() > BITS) {
+      throw new IllegalArgumentException("A bit set of " + bits.size() + " bits cannot be packed into a hash.");
+    }
+    long hash = 0L;
+    for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+      hash |= 1L << i;
+    }
+    return hash;
+  }
+
+  /**
+   * Unpacks the given hash into a bit set of {@link #BITS} bits; inverse of {@link #pack(BitSet)}.
+   */
+  public static BitSet unpack(long hash) {
+    final BitSet bits = new BitSet(BITS);
+    for (long remaining = hash; remaining != 0L; remaining &= remaining - 1) {
+      bits.set(Long.numberOfTrailingZeros(remaining));
+    }
+    return bits;
+  }
+
+  /**
+   * Returns the Hamming distance between two hashes.
+   */
+  public static int distance(long a, long b) {
+    return Long.bitCount(a ^ b);
+  }
+
+  /**
+   * Returns the number of hashes in this {@link HammingIndex}.
+   */
+  public int size() {
+    return this.rows.length;
+  }
+
+  /**
+   * Returns the rows whose hash lies within the given Hamming distance of the query.
+   *
+   * @param query  The query hash.
+   * @param radius Maximum distance (inclusive).
+   * @return Row numbers in ascending order.
+   */
+  public int[] radius(long query, int radius) {
+    if (radius < 0) {
+      return new int[0];
+    }
+    final int probe = Math.min(radius / SUBSTRINGS, SUBSTRING_BITS);
+    long buckets = 0;
+    for (int d = 0; d <= probe; d++) {
+      buckets += SUBSTRINGS * BUCKETS_AT[d];
+    }
+    int[] result = new int[16];
+    int size = 0;
+    if (buckets > this.rows.length) {
+      for (int p = 0; p < this.hashes.length; p++) {
+        if (distance(query, this.hashes[p]) <= radius) {
+          result = grow(result, size);
+          result[size++] = this.rows[p];
+        }
+      }
+    } else {
+      for (int t = 0; t < SUBSTRINGS; t++) {
+        final int substring = substring(query, t);
+        for (int d = 0; d <= probe; d++) {
+          for (int flips = (1 << d) - 1; flips < BUCKETS; flips = nextCombination(flips)) {
+            final int bucket = substring ^ flips;
+            for (int i = this.offsets[t][bucket]; i < this.offsets[t][bucket + 1]; i++) {
+              final int p = this.entries[t][i];
+              /* Every hash is only reported by the first table in which it lies within the probe distance. */
+              if (distance(query, this.hashes[p]) <= radius && firstMatch(query, this.hashes[p], probe) == t) {
+                result = grow(result, size);
+                result[size++] = this.rows[p];
+              }
+            }
+            if (d == 0) {
+              break;
+            }
+          }
+        }
+      }
+    }
+    result = Arrays.copyOf(result, size);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * Returns the k rows whose hashes are closest to the query, up to the given Hamming distance. Ties are broken by row number, like in a {@link FixedSizeDistanceHeap} filled by a linear scan.
+   *
+   * @param query  The query hash.
+   * @param k      Number of results.
+   * @param radius Maximum distance (inclusive); {@link #BITS} returns the k nearest rows regardless of their distance.
+   * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+   */
+  public FixedSizeDistanceHeap nearest(long query, int k, int radius) {
+    final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+    if (k == 0 || radius < 0) {
+      return heap.sort();
+    }
+
+    /* Hashes are verified in rounds of increasing substring distance d; afterwards, all hashes closer than SUBSTRINGS * (d + 1) have been seen. */
+    long buckets = 0;
+    for (int d = 0; d <= SUBSTRING_BITS; d++) {
+      if (heap.threshold() < SUBSTRINGS * d || SUBSTRINGS * d > radius) {
+        return heap.sort();
+      }
+      buckets += SUBSTRINGS * BUCKETS_AT[d];
+      if (buckets > this.rows.length) {
+        return this.scan(query, k, radius);
+      }
+      for (int t = 0; t < SUBSTRINGS; t++) {
+        final int substring = substring(query, t);
+        for (int flips = (1 << d) - 1; flips < BUCKETS; flips = nextCombination(flips)) {
+          final int bucket = substring ^ flips;
+          for (int i = this.offsets[t][bucket]; i < this.offsets[t][bucket + 1]; i++) {
+            final int p = this.entries[t][i];
+            final int distance = distance(query, this.hashes[p]);
+            /* Hashes with a substring closer than d have been verified in an earlier round, those with several substrings at distance d only in the first such table. */
+            if (distance <= radius && distance <= heap.threshold() && firstMatch(query, this.hashes[p], d - 1) < 0 && firstMatch(query, this.hashes[p], d) == t) {
+              heap.offer(distance, this.rows[p]);
+            }
+          }
+          if (d == 0) {
+            break;
+          }
+        }
+      }
+    }
+    return heap.sort();
+  }
+
+  /**
+   * Linear scan over all hashes; used when probing the tables would be more expensive.
+   */
+  private FixedSizeDistanceHeap scan(long query, int k, int radius) {
+    final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+    for (int p = 0; p < this.hashes.length; p++) {
+      final int distance = distance(query, this.hashes[p]);
+      if (distance <= radius) {
+        heap.offer(distance, this.rows[p]);
+      }
+    }
+    return heap.sort();
+  }
+
+  /**
+   * Returns the first table in which the substrings of the two hashes are at most the given distance apart, or -1 if there is no such table.
+   */
+  private static int firstMatch(long a, long b, int distance) {
+    final long xor = a ^ b;
+    for (int t = 0; t < SUBSTRINGS; t++) {
+      if (Integer.bitCount(substring(xor, t)) <= distance) {
+        return t;
+      }
+    }
+    return -1;
+  }
+
+  private static int substring(long hash, int table) {
+    return (int) (hash >>> (table * SUBSTRING_BITS)) & MASK;
+  }
+
+  /**
+   * Returns the next larger integer with the same number of set bits (Gosper's hack).
+   */
+  private static int nextCombination(int v) {
+    final int c = v & -v;
+    final int r = v + c;
+    return (((r ^ v) >>> 2) / c) | r;
+  }
+
+  private static int[] grow(int[] array, int size) {
+    return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+  }
+}
@@ -6,6 +6,7 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -16,6 +17,7 @@
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.FixedSizePriorityQueue;
+import org.vitrivr.cineast.core.data.Pair;
 import org.vitrivr.cineast.core.data.distance.DistanceElement;
 import org.vitrivr.cineast.core.data.providers.primitive.FloatTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
@@ -32,6 +34,12 @@
   private static final Logger LOGGER = LogManager.getLogger();
   private final File baseDirectory;
   private File file;
+
+  /**
+   * {@link SortedRangeIndex}es of the current file by group and range column, along with the modification time of the file they were built from.
+   */
+  private final Map<String, Pair<Long, SortedRangeIndex<Map<String, PrimitiveTypeProvider>>>> rangeIndexes = new HashMap<>();
+
   protected ImporterSelector(File baseDirectory) {
     this.baseDirectory = baseDirectory;
   }
@@ -213,6 +221,23 @@ public List<Map<String, PrimitiveTypeProvider>> getAll() {
     return _return;
   }
 
+  /**
+   * Reads the file once to build a {@link SortedRangeIndex} for the group and range column, which is reused until the file changes.
+   */
+  @Override
+  public synchronized List<Map<String, PrimitiveTypeProvider>> getRowsInRange(String keyColumn, PrimitiveTypeProvider key, String rangeColumn, PrimitiveTypeProvider lower, PrimitiveTypeProvider upper, int limit, ReadableQueryConfig queryConfig) {
+    final String id = this.file.getAbsolutePath() + "/" + keyColumn + "/" + rangeColumn;
+    final long modified = this.file.lastModified();
+    Pair<Long, SortedRangeIndex<Map<String, PrimitiveTypeProvider>>> index = this.rangeIndexes.get(id);
+    if (index == null || index.first != modified) {
+      index = new Pair<>(modified, SortedRangeIndex.of(getAll(),
+          row -> row.containsKey(keyColumn) ? row.get(keyColumn).getString() : null,
+          row -> row.containsKey(rangeColumn) ? row.get(rangeColumn).getDouble() : Double.NaN));
+      this.rangeIndexes.put(id, index);
+    }
+    return new ArrayList<>(index.second.range(key.getString(), lower.getDouble(), upper.getDouble(), limit));
+  }
+
   @Override
   public boolean existsEntity(String name) {
     File file = new File(this.baseDirectory, name + getFileExtension());
@@ -0,0 +1,112 @@
+package org.vitrivr.cineast.core.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Immutable index that groups rows by a key and sorts the rows of every group by a numeric value, e.g. the segments of an object by their sequence number.
+ * <p>
+ * Used by {@link DBSelector}s without a query engine to answer {@link DBSelector#getRowsInRange(String, org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider, String, org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider, org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider, int, org.vitrivr.cineast.core.config.ReadableQueryConfig)} with a binary search, independent of the size of the group.
+ *
+ * @param <R> Type of the rows.
+ */
+public final class SortedRangeIndex<R> {
+
+  /**
+   * Rows of a single group, sorted by value. Ties keep the order in which the rows were indexed.
+   */
+  private record Group(double[] values, Object[] rows) {
+
+  }
+
+  private final Map<String, Group> groups;
+
+  private SortedRangeIndex(Map<String, Group> groups) {
+    this.groups = groups;
+  }
+
+  /**
+   * Builds a new {@link SortedRangeIndex}.
+   *
+   * @param rows  The rows to index.
+   * @param key   Extracts the group key of a row. Rows without key (null) are not indexed.
+   * @param value Extracts the value of a row. Rows with a NaN value are not indexed.
+   * @return {@link SortedRangeIndex}
+   */
+  public static <R> SortedRangeIndex<R> of(Iterable<R> rows, Function<R, String> key, ToDoubleFunction<R> value) {
+    final Map<String, List<Object[]>> entries = new HashMap<>();
+    for (R row : rows) {
+      final String k = key.apply(row);
+      final double v = value.applyAsDouble(row);
+      if (k == null || Double.isNaN(v)) {
+        continue;
+      }
+      entries.computeIfAbsent(k, x -> new ArrayList<>()).add(new Object[]{v, row});
+    }
+    final Map<String, Group> groups = new HashMap<>(entries.size());
+    entries.forEach((k, list) -> {
+      list.sort((a, b) -> Double.compare((double) a[0], (double) b[0]));
+      final double[] values = new double[list.size()];
+      final Object[] sorted = new Object[list.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = (double) list.get(i)[0];
+        sorted[i] = list.get(i)[1];
+      }
+      groups.put(k, new Group(values, sorted));
+    });
+    return new SortedRangeIndex<>(groups);
+  }
+
+  /**
+   * Returns the rows of a group whose value lies within the given bounds, ordered by value.
+   *
+   * @param key   The group key.
+   * @param lower Lower bound (inclusive).
+   * @param upper Upper bound (inclusive).
+   * @param limit Maximum number of rows; if <= 0, parameter is ignored
+   * @return List of rows.
+   */
+  @SuppressWarnings("unchecked")
+  public List<R> range(String key, double lower, double upper, int limit) {
+    final Group group = this.groups.get(key);
+    if (group == null || lower > upper) {
+      return Collections.emptyList();
+    }
+    final int start = lowerBound(group.values, lower);
+    final int max = limit > 0 ? limit : Integer.MAX_VALUE;
+    final List<R> result = new ArrayList<>();
+    for (int i = start; i < group.values.length && group.values[i] <= upper && result.size() < max; i++) {
+      result.add((R) group.rows[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of groups in this {@link SortedRangeIndex}.
+   */
+  public int groups() {
+    return this.groups.size();
+  }
+
+  /**
+   * Returns the index of the first value that is >= the given value.
+   */
+  private static int lowerBound(double[] values, double value) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,15 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+
+/**
+ * Implementation of a Cineast {@link org.vitrivr.cineast.core.db.setup.EntityCreator} on top of the {@link BinaryStore}. Every entity is created as a directory of the store.
+ *
+ * @see BinaryStore
+ */
+public class BinaryEntityCreator extends InMemoryEntityCreator {
+
+  public BinaryEntityCreator(BinaryStore store) {
+    super(store);
+  }
+}
@@ -0,0 +1,15 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+
+/**
+ * Implementation of a Cineast {@link org.vitrivr.cineast.core.db.DBSelector} on top of the {@link BinaryStore}. kNN search scans the memory-mapped vector files of an entity; all other lookups work like those of the {@link InMemorySelector}.
+ *
+ * @see BinaryStore
+ */
+public class BinarySelector extends InMemorySelector {
+
+  public BinarySelector(BinaryStore store) {
+    super(store);
+  }
+}
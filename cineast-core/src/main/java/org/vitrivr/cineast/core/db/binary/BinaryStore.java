@@ -0,0 +1,1290 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.data.ReadableFloatVector;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.ColumnarEntity;
+import org.vitrivr.cineast.core.db.ColumnarStore;
+import org.vitrivr.cineast.core.db.HammingIndex;
+import org.vitrivr.cineast.core.db.SortedRangeIndex;
+import org.vitrivr.cineast.core.util.LogHelper;
+import org.vitrivr.cineast.core.util.distance.FloatBlockDistance;
+
+/**
+ * A file-based, column-oriented {@link ColumnarStore}. Every {@link Entity} is a directory below the directory of the store, which holds a file that lists the columns and one file per column:
+ * <ul>
+ *   <li>Columns that hold fixed-length feature vectors are stored in {@code <index>.vec} files: a 16 byte header (magic number, format version, dimension) followed by the vectors as little-endian float32 values, back-to-back. Missing vectors are stored as NaN. These files are memory-mapped and never read into the heap.</li>
+ *   <li>All other columns, including the key column, are stored in {@code <index>.val} files as a sequence of tagged values; hashes (bit sets of up to 64 bits) are packed into a single long. They are decoded into the heap when the entity is loaded.</li>
+ * </ul>
+ * The type of a column is determined by the first non-null value written to it. Entities are append-only; a batch is written to all columns before it becomes visible, and rows that were not completely written (e.g. after a crash) are cut off when the entity is loaded. As rows cannot be replaced, unique entities reject batches that repeat a key instead.
+ * <p>
+ * kNN search is a brute-force scan over the mapped vector blocks, which is executed in parallel for larger entities; kNN search over hashes uses a {@link HammingIndex}. Other lookups behave like those of the {@link org.vitrivr.cineast.core.db.memory.InMemoryStore}. Changes made to the files by other processes after an entity was loaded are not picked up.
+ *
+ * @see BinaryWriter
+ * @see BinarySelector
+ * @see BinaryEntityCreator
+ * @see JsonToBinaryConverter
+ */
+public class BinaryStore implements ColumnarStore {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Shared instances of {@link BinaryStore} by directory.
+   */
+  private static final Map<Path, BinaryStore> SHARED_STORES = new ConcurrentHashMap<>();
+
+  /**
+   * Name of the file that lists the columns of an {@link Entity}, one per line.
+   */
+  static final String COLUMNS_FILE = "columns";
+
+  /**
+   * Name of the file that marks an {@link Entity} as unique.
+   */
+  static final String UNIQUE_FILE = "unique";
+
+  /**
+   * The directory that holds the entities of this {@link BinaryStore}.
+   */
+  private final Path directory;
+
+  /**
+   * {@link Entity} objects that have been loaded or created by this {@link BinaryStore}.
+   */
+  private final Map<String, Entity> entities = new HashMap<>();
+
+  public BinaryStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Access to the application wide instance of {@link BinaryStore} for the given directory. Writers and selectors must share the instance in order to see each other's changes.
+   *
+   * @param directory The directory of the store.
+   * @return Shared instance of {@link BinaryStore}.
+   */
+  public static BinaryStore forDirectory(Path directory) {
+    return SHARED_STORES.computeIfAbsent(directory.toAbsolutePath().normalize(), BinaryStore::new);
+  }
+
+  /**
+   * @return The directory that holds the entities of this {@link BinaryStore}.
+   */
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Returns the {@link Entity} for the given name or an empty {@link Optional}, if that {@link Entity} doesn't exist. Entities are loaded from disk on first access.
+   *
+   * @param name Name of the {@link Entity} to return.
+   * @return An optional {@link Entity}
+   */
+  @Override
+  public synchronized Optional<Entity> getEntity(String name) {
+    Entity entity = this.entities.get(name);
+    if (entity == null && Files.isRegularFile(this.directory.resolve(name).resolve(COLUMNS_FILE))) {
+      try {
+        entity = Entity.load(this.directory.resolve(name));
+        this.entities.put(name, entity);
+      } catch (IOException e) {
+        LOGGER.error("Could not load entity '{}' from {}: {}", name, this.directory, LogHelper.getStackTrace(e));
+      }
+    }
+    return Optional.ofNullable(entity);
+  }
+
+  @Override
+  public synchronized boolean hasEntity(String name) {
+    return this.entities.containsKey(name) || Files.isRegularFile(this.directory.resolve(name).resolve(COLUMNS_FILE));
+  }
+
+  @Override
+  public Optional<Entity> createEntity(String name, String... columns) {
+    return this.createEntity(name, false, columns);
+  }
+
+  /**
+   * Creates and returns the {@link Entity} for the given name or an empty {@link Optional}, if that {@link Entity} already exists or could not be created.
+   *
+   * @param name    Name of the {@link Entity} to create.
+   * @param unique  True if the {@link Entity} holds at most one row per key, i.e. appending a row for an existing key is rejected.
+   * @param columns The list of columns to create. The first column acts as key.
+   * @return An optional {@link Entity}
+   */
+  @Override
+  public synchronized Optional<Entity> createEntity(String name, boolean unique, String... columns) {
+    if (this.hasEntity(name)) {
+      return Optional.empty();
+    }
+    try {
+      final Entity entity = Entity.create(this.directory.resolve(name), unique, columns);
+      this.entities.put(name, entity);
+      return Optional.of(entity);
+    } catch (IOException e) {
+      LOGGER.error("Could not create entity '{}' in {}: {}", name, this.directory, LogHelper.getStackTrace(e));
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Drops the {@link Entity} for the given name and deletes its files.
+   *
+   * @param name Name of the {@link Entity} to drop.
+   * @return True if {@link Entity} was dropped, false otherwise.
+   */
+  @Override
+  public synchronized boolean dropEntity(String name) {
+    if (!this.hasEntity(name)) {
+      return false;
+    }
+    this.entities.remove(name);
+    try (Stream<Path> files = Files.walk(this.directory.resolve(name))) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+      return true;
+    } catch (IOException e) {
+      LOGGER.error("Could not delete the files of entity '{}' in {}: {}", name, this.directory, LogHelper.getStackTrace(e));
+      return false;
+    }
+  }
+
+  /**
+   * An individual {@link Entity} in the {@link BinaryStore}. Rows are append-only; a unique {@link Entity} rejects batches with keys it already holds.
+   */
+  public static final class Entity implements ColumnarEntity {
+
+    /**
+     * Number of rows that are scanned as a unit; this is also the unit of work for parallel scans.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Minimum number of rows before a kNN scan is executed in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 4 * BLOCK_SIZE;
+
+    /**
+     * Directory that holds the files of this {@link Entity}.
+     */
+    private final Path directory;
+
+    /**
+     * Name of the columns held by this {@link Entity}. The first column is the key column.
+     */
+    private final String[] columns;
+
+    /**
+     * True if this {@link Entity} holds at most one row per key.
+     */
+    private final boolean unique;
+
+    /**
+     * Dictionary that maps the string representation of a key to its code.
+     */
+    private final ObjectIntHashMap<String> dictionary = new ObjectIntHashMap<>();
+
+    /**
+     * Original key values, indexed by code.
+     */
+    private final ArrayList<Object> keys = new ArrayList<>();
+
+    /**
+     * Rows that belong to a key, indexed by code.
+     */
+    private final ArrayList<IntArrayList> postings = new ArrayList<>();
+
+    /**
+     * Key code per row.
+     */
+    private int[] codes = new int[BLOCK_SIZE];
+
+    /**
+     * Data of all columns, indexed by column. Entries are null until the first non-null value is written to the column, which determines its type. The key column is stored as a {@link ValueColumn} as well, but only used for writing.
+     */
+    private final Column[] data;
+
+    /**
+     * Number of rows.
+     */
+    private int rows = 0;
+
+    /**
+     * Number of modifications of this {@link Entity}; used to detect stale range indexes.
+     */
+    private long version = 0;
+
+    /**
+     * {@link SortedRangeIndex}es by group and range column, built on demand.
+     */
+    private final Map<Long, VersionedIndex<SortedRangeIndex<Integer>>> rangeIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * {@link HammingIndex}es by column, built on demand.
+     */
+    private final Map<Integer, VersionedIndex<HammingIndex>> hammingIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Stamped lock to mediate access to {@link Entity}.
+     */
+    private final StampedLock lock = new StampedLock();
+
+    private Entity(Path directory, boolean unique, String... columns) {
+      if (columns.length == 0) {
+        throw new IllegalArgumentException("An entity requires at least a key column.");
+      }
+      this.directory = directory;
+      this.unique = unique;
+      this.columns = columns;
+      this.data = new Column[columns.length];
+    }
+
+    /**
+     * Creates a new, empty {@link Entity} in the given directory.
+     */
+    static Entity create(Path directory, boolean unique, String... columns) throws IOException {
+      final Entity entity = new Entity(directory, unique, columns);
+      Files.createDirectories(directory);
+      if (unique) {
+        Files.createFile(directory.resolve(UNIQUE_FILE));
+      }
+      Files.write(directory.resolve(COLUMNS_FILE), Arrays.asList(columns), UTF_8);
+      return entity;
+    }
+
+    /**
+     * Loads an existing {@link Entity} from the given directory. Rows that were not written to all columns are removed from the files.
+     */
+    static Entity load(Path directory) throws IOException {
+      final String[] columns = Files.readAllLines(directory.resolve(COLUMNS_FILE), UTF_8).stream().filter(c -> !c.isEmpty()).toArray(String[]::new);
+      final Entity entity = new Entity(directory, Files.exists(directory.resolve(UNIQUE_FILE)), columns);
+
+      /* Open all columns; the number of complete rows is that of the shortest column. */
+      int rows = Integer.MAX_VALUE;
+      for (int i = 0; i < columns.length; i++) {
+        final Path vectors = entity.file(i, VectorColumn.SUFFIX);
+        final Path values = entity.file(i, ValueColumn.SUFFIX);
+        if (Files.exists(vectors)) {
+          entity.data[i] = VectorColumn.open(vectors);
+        } else if (Files.exists(values)) {
+          entity.data[i] = ValueColumn.open(values);
+        } else if (i == 0) {
+          rows = 0;
+          continue;
+        } else {
+          continue;
+        }
+        rows = Math.min(rows, entity.data[i].count());
+      }
+      if (rows == Integer.MAX_VALUE) {
+        rows = 0;
+      }
+      for (int i = 0; i < columns.length; i++) {
+        final Column column = entity.data[i];
+        if (column == null) {
+          continue;
+        }
+        if (column.count() > rows) {
+          LOGGER.warn("Removing {} incomplete rows from {}.", column.count() - rows, column.file);
+          column.truncate(rows);
+        }
+        column.publish(Collections.emptyList(), i, rows);
+      }
+
+      /* Build the key dictionary; the keys are only held by the dictionary from then on. */
+      if (entity.data[0] != null) {
+        final ValueColumn keys = (ValueColumn) entity.data[0];
+        for (int row = 0; row < rows; row++) {
+          entity.appendKey(keys.get(row), row);
+        }
+        keys.release();
+      }
+      entity.rows = rows;
+      return entity;
+    }
+
+    @Override
+    public String[] getColumns() {
+      return this.columns.clone();
+    }
+
+    @Override
+    public int columnIndex(String name) {
+      for (int i = 0; i < this.columns.length; i++) {
+        if (this.columns[i].equals(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Appends the given rows to the files of this {@link Entity}. If writing fails, the files are reset to their previous length and none of the rows are appended. A unique {@link Entity} appends none of the rows if one of them repeats a key.
+     */
+    @Override
+    public boolean append(List<Object[]> rows) {
+      final long stamp = this.lock.writeLock();
+      try {
+        for (Object[] row : rows) {
+          if (!this.accepts(row)) {
+            return false;
+          }
+        }
+        if (this.unique && !this.hasNewKeys(rows)) {
+          return false;
+        }
+
+        /* Create the columns whose type is determined by this batch. */
+        final Column[] columns = this.data.clone();
+        final boolean[] created = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+          if (columns[i] != null) {
+            continue;
+          }
+          for (Object[] row : rows) {
+            if (row[i] != null) {
+              columns[i] = Column.forValue(this, i, row[i]);
+              created[i] = true;
+              break;
+            }
+          }
+        }
+
+        /* Write all columns, the key column last. */
+        final long[] lengths = new long[columns.length];
+        int i = columns.length - 1;
+        try {
+          for (; i >= 0; i--) {
+            if (columns[i] != null) {
+              lengths[i] = created[i] ? -1L : Files.size(columns[i].file);
+              columns[i].write(rows, i, created[i] ? this.rows : 0);
+            }
+          }
+        } catch (IOException e) {
+          LOGGER.error("Could not append {} rows to {}: {}", rows.size(), this.directory, LogHelper.getStackTrace(e));
+          this.rollback(columns, lengths, i);
+          return false;
+        }
+
+        /* Publish the rows. */
+        final int total = this.rows + rows.size();
+        try {
+          for (int c = 0; c < columns.length; c++) {
+            if (columns[c] != null) {
+              columns[c].publish(rows, c, total);
+            }
+          }
+        } catch (IOException e) {
+          LOGGER.error("Could not map the rows appended to {}: {}", this.directory, LogHelper.getStackTrace(e));
+          this.rollback(columns, lengths, 0);
+          return false;
+        }
+        if (created[0]) {
+          ((ValueColumn) columns[0]).release();
+        }
+        System.arraycopy(columns, 0, this.data, 0, columns.length);
+        for (int r = 0; r < rows.size(); r++) {
+          this.appendKey(rows.get(r)[0], this.rows + r);
+        }
+        this.rows = total;
+        this.version += 1;
+        return true;
+      } finally {
+        this.lock.unlockWrite(stamp);
+      }
+    }
+
+    @Override
+    public int size() {
+      final long stamp = this.lock.readLock();
+      try {
+        return this.rows;
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public boolean has(String key) {
+      final long stamp = this.lock.readLock();
+      try {
+        return this.dictionary.containsKey(key);
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public int[] rowsForKeys(Iterable<String> keys) {
+      final long stamp = this.lock.readLock();
+      try {
+        final IntArrayList rows = new IntArrayList();
+        for (String key : keys) {
+          final int index = this.dictionary.indexOf(key);
+          if (this.dictionary.indexExists(index)) {
+            rows.addAll(this.postings.get(this.dictionary.indexGet(index)));
+          }
+        }
+        final int[] result = rows.toArray();
+        Arrays.sort(result);
+        return result;
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public int[] filter(int column, Predicate<Object> predicate) {
+      final long stamp = this.lock.readLock();
+      try {
+        final IntPredicate test;
+        if (column == 0) {
+          test = row -> predicate.test(this.keys.get(this.codes[row]));
+        } else {
+          final Column c = this.data[column];
+          test = row -> predicate.test(c == null ? null : c.get(row));
+        }
+        return IntStream.range(0, this.rows).filter(test).toArray();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public int[] range(int groupColumn, String group, int rangeColumn, double lower, double upper, int limit) {
+      final long stamp = this.lock.readLock();
+      try {
+        final long id = ((long) groupColumn << 32) | rangeColumn;
+        VersionedIndex<SortedRangeIndex<Integer>> index = this.rangeIndexes.get(id);
+        if (index == null || index.version() != this.version) {
+          /* Concurrent readers may build the same index; the result is identical. */
+          final List<Integer> rows = new ArrayList<>(this.rows);
+          for (int row = 0; row < this.rows; row++) {
+            rows.add(row);
+          }
+          index = new VersionedIndex<>(this.version, SortedRangeIndex.of(rows, row -> {
+            final Object value = this.value(row, groupColumn);
+            return value == null ? null : value.toString();
+          }, row -> toDouble(this.value(row, rangeColumn))));
+          this.rangeIndexes.put(id, index);
+        }
+        return index.index().range(group, lower, upper, limit).stream().mapToInt(Integer::intValue).toArray();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public String key(int row) {
+      final long stamp = this.lock.readLock();
+      try {
+        return this.keys.get(this.codes[row]).toString();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> materialize(int[] rows, int[] projection) {
+      final long stamp = this.lock.readLock();
+      try {
+        final List<Map<String, PrimitiveTypeProvider>> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+          if (row < this.rows) {
+            result.add(this.materialize(row, projection));
+          }
+        }
+        return result;
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public List<Object> values(int[] rows, int column) {
+      final long stamp = this.lock.readLock();
+      try {
+        final List<Object> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+          if (row < this.rows) {
+            result.add(this.value(row, column));
+          }
+        }
+        return result;
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Brute-force kNN search over a mapped vector column. Every block of {@link #BLOCK_SIZE} rows is copied from the mapping into a scratch buffer and then compared by the {@link FloatBlockDistance}. Scans run block-wise in parallel for large entities; every worker uses its own scratch buffer and {@link FixedSizeDistanceHeap}.
+     */
+    @Override
+    public FixedSizeDistanceHeap nearestNeighbours(int column, int k, FloatBlockDistance distance, int[] candidates) {
+      final long stamp = this.lock.readLock();
+      try {
+        if (!(this.data[column] instanceof VectorColumn)) {
+          return new FixedSizeDistanceHeap(0).sort();
+        }
+        final VectorColumn c = (VectorColumn) this.data[column];
+        if (candidates != null) {
+          final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+          final float[] scratch = new float[c.dimension];
+          for (int row : candidates) {
+            if (row < this.rows && c.read(row, scratch)) {
+              heap.offer(distance.applyAsDouble(scratch, 0), row);
+            }
+          }
+          return heap.sort();
+        }
+        final int rows = this.rows;
+        IntStream stream = IntStream.range(0, (rows + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        if (rows >= PARALLEL_THRESHOLD) {
+          stream = stream.parallel();
+        }
+        return stream.collect(() -> new Scan(k, c.dimension), (scan, b) -> {
+          final int start = b * BLOCK_SIZE;
+          final int count = Math.min(BLOCK_SIZE, rows - start);
+          c.readBlock(start, count, scan.block);
+          for (int i = 0; i < count; i++) {
+            final int offset = i * c.dimension;
+            if (!Float.isNaN(scan.block[offset])) {
+              scan.heap.offer(distance.applyAsDouble(scan.block, offset), start + i);
+            }
+          }
+        }, (a, b) -> a.heap.merge(b.heap)).heap.sort();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public FixedSizeDistanceHeap nearestNeighboursByValue(int column, int k, ToDoubleFunction<Object> distance, int[] candidates) {
+      final long stamp = this.lock.readLock();
+      try {
+        final Column c = this.data[column];
+        final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+        if (c == null || column == 0) {
+          return heap.sort();
+        }
+        final int[] rows = candidates != null ? candidates : IntStream.range(0, this.rows).toArray();
+        for (int row : rows) {
+          if (row < this.rows) {
+            final Object value = c.get(row);
+            if (value != null) {
+              heap.offer(distance.applyAsDouble(value), row);
+            }
+          }
+        }
+        return heap.sort();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public FixedSizeDistanceHeap nearestNeighboursHamming(int column, int k, long query, int radius, int[] candidates) {
+      final long stamp = this.lock.readLock();
+      try {
+        if (candidates != null) {
+          final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+          for (int row : candidates) {
+            if (row < this.rows) {
+              final Object value = this.value(row, column);
+              if (HammingIndex.isHash(value)) {
+                final int distance = HammingIndex.distance(query, HammingIndex.pack((BitSet) value));
+                if (distance <= radius) {
+                  heap.offer(distance, row);
+                }
+              }
+            }
+          }
+          return heap.sort();
+        }
+        return this.hammingIndex(column).nearest(query, k, radius);
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    @Override
+    public int[] withinHammingDistance(int column, long query, int radius) {
+      final long stamp = this.lock.readLock();
+      try {
+        return this.hammingIndex(column).radius(query, radius);
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Returns the {@link HammingIndex} of the given column, building it if there is none or if rows have been appended since it was built. Must be called while holding the read lock.
+     */
+    private HammingIndex hammingIndex(int column) {
+      VersionedIndex<HammingIndex> index = this.hammingIndexes.get(column);
+      if (index == null || index.version() != this.version) {
+        /* Concurrent readers may build the same index; the result is identical. */
+        final int[] rows = new int[this.rows];
+        final long[] hashes = new long[this.rows];
+        int size = 0;
+        for (int row = 0; row < this.rows; row++) {
+          final Object value = this.value(row, column);
+          if (HammingIndex.isHash(value)) {
+            rows[size] = row;
+            hashes[size++] = HammingIndex.pack((BitSet) value);
+          }
+        }
+        index = new VersionedIndex<>(this.version, HammingIndex.of(Arrays.copyOf(rows, size), Arrays.copyOf(hashes, size)));
+        this.hammingIndexes.put(column, index);
+      }
+      return index.index();
+    }
+
+    @Override
+    public int[] allRows() {
+      final long stamp = this.lock.readLock();
+      try {
+        return IntStream.range(0, this.rows).toArray();
+      } finally {
+        this.lock.unlockRead(stamp);
+      }
+    }
+
+    /**
+     * Rows of a {@link BinaryStore} entity are only ever appended, so row numbers never change and the read is executed without holding the lock.
+     */
+    @Override
+    public <T> T read(Supplier<T> read) {
+      return read.get();
+    }
+
+    private Path file(int column, String suffix) {
+      return this.directory.resolve(column + suffix);
+    }
+
+    private Map<String, PrimitiveTypeProvider> materialize(int row, int[] projection) {
+      final Map<String, PrimitiveTypeProvider> map = new HashMap<>();
+      if (projection == null) {
+        for (int i = 0; i < this.columns.length; i++) {
+          map.put(this.columns[i], PrimitiveTypeProvider.fromObject(this.value(row, i)));
+        }
+      } else {
+        for (int i : projection) {
+          map.put(this.columns[i], PrimitiveTypeProvider.fromObject(this.value(row, i)));
+        }
+      }
+      return map;
+    }
+
+    private Object value(int row, int column) {
+      if (column == 0) {
+        return this.keys.get(this.codes[row]);
+      }
+      final Column c = this.data[column];
+      return c == null ? null : c.get(row);
+    }
+
+    private static double toDouble(Object value) {
+      if (value instanceof Number) {
+        return ((Number) value).doubleValue();
+      }
+      if (value instanceof String) {
+        try {
+          return Double.parseDouble((String) value);
+        } catch (NumberFormatException e) {
+          return Double.NaN;
+        }
+      }
+      return Double.NaN;
+    }
+
+    private boolean accepts(Object[] values) {
+      if (values.length != this.columns.length || values[0] == null || values[0] instanceof float[] || values[0] instanceof ReadableFloatVector) {
+        return false;
+      }
+      for (int i = 1; i < this.columns.length; i++) {
+        final Object value = values[i];
+        if (value != null && this.data[i] != null && !this.data[i].accepts(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Checks that no row repeats a key held by this {@link Entity} or by another row of the batch.
+     */
+    private boolean hasNewKeys(List<Object[]> rows) {
+      final Set<String> batch = new HashSet<>(rows.size());
+      for (Object[] row : rows) {
+        final String key = row[0].toString();
+        if (this.dictionary.containsKey(key) || !batch.add(key)) {
+          LOGGER.warn("Rejecting {} rows for {}: key '{}' is already present in the unique entity.", rows.size(), this.directory, key);
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Resets the given columns and their files to their previous length; files created by the failed append are deleted.
+     */
+    private void rollback(Column[] columns, long[] lengths, int from) {
+      for (int i = Math.max(from, 0); i < columns.length; i++) {
+        if (columns[i] == null) {
+          continue;
+        }
+        columns[i].reset(this.rows);
+        try {
+          if (lengths[i] < 0) {
+            Files.deleteIfExists(columns[i].file);
+          } else {
+            try (FileChannel channel = FileChannel.open(columns[i].file, StandardOpenOption.WRITE)) {
+              channel.truncate(lengths[i]);
+            }
+          }
+        } catch (IOException e) {
+          LOGGER.error("Could not roll back {}; the entity must be reloaded: {}", columns[i].file, LogHelper.getStackTrace(e));
+        }
+      }
+    }
+
+    private void appendKey(Object key, int row) {
+      if (row >= this.codes.length) {
+        this.codes = Arrays.copyOf(this.codes, Math.max(row + 1, this.codes.length * 2));
+      }
+      final String keyString = key.toString();
+      final int code;
+      final int index = this.dictionary.indexOf(keyString);
+      if (this.dictionary.indexExists(index)) {
+        code = this.dictionary.indexGet(index);
+      } else {
+        code = this.keys.size();
+        this.keys.add(key);
+        this.postings.add(new IntArrayList(1));
+        this.dictionary.indexInsert(index, keyString, code);
+      }
+      this.codes[row] = code;
+      this.postings.get(code).add(row);
+    }
+  }
+
+  /**
+   * An index over row numbers, valid for a specific version of an {@link Entity}.
+   */
+  private record VersionedIndex<T>(long version, T index) {
+
+  }
+
+  /**
+   * State of a worker of a parallel kNN scan.
+   */
+  private static final class Scan {
+
+    private final FixedSizeDistanceHeap heap;
+
+    private final float[] block;
+
+    private Scan(int k, int dimension) {
+      this.heap = new FixedSizeDistanceHeap(k);
+      this.block = new float[Entity.BLOCK_SIZE * dimension];
+    }
+  }
+
+  /**
+   * Storage of a single column, backed by a file.
+   */
+  private abstract static class Column {
+
+    protected final Path file;
+
+    protected Column(Path file) {
+      this.file = file;
+    }
+
+    static Column forValue(Entity entity, int column, Object value) {
+      if (value instanceof float[]) {
+        return new VectorColumn(entity.file(column, VectorColumn.SUFFIX), ((float[]) value).length);
+      } else if (value instanceof ReadableFloatVector) {
+        return new VectorColumn(entity.file(column, VectorColumn.SUFFIX), ((ReadableFloatVector) value).getElementCount());
+      } else {
+        return new ValueColumn(entity.file(column, ValueColumn.SUFFIX));
+      }
+    }
+
+    /**
+     * @return True, if the given (non-null) value can be stored in this column.
+     */
+    abstract boolean accepts(Object value);
+
+    /**
+     * Appends the values of the given column of the rows to the file, preceded by the given number of null values. Creates the file if necessary.
+     */
+    abstract void write(List<Object[]> rows, int column, int padding) throws IOException;
+
+    /**
+     * Makes the values written by {@link #write(List, int, int)} available.
+     *
+     * @param total The number of rows after the append.
+     */
+    abstract void publish(List<Object[]> rows, int column, int total) throws IOException;
+
+    /**
+     * Discards everything after the given number of rows that has been published.
+     */
+    abstract void reset(int rows);
+
+    /**
+     * @return The number of complete values in the file.
+     */
+    abstract int count();
+
+    /**
+     * Removes all values after the given number of rows from the file.
+     */
+    abstract void truncate(int rows) throws IOException;
+
+    abstract Object get(int row);
+
+    protected void append(ByteBuffer buffer) throws IOException {
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+    }
+  }
+
+  /**
+   * {@link Column} that holds fixed-length feature vectors in a memory-mapped file. The file is mapped in chunks of at most {@link #CHUNK_BYTES} that consist of whole blocks of {@link Entity#BLOCK_SIZE} rows, such that a block never spans two chunks.
+   */
+  private static final class VectorColumn extends Column {
+
+    static final String SUFFIX = ".vec";
+
+    private static final int MAGIC = 0x43564543;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final long CHUNK_BYTES = 1L << 30;
+
+    private final int dimension;
+
+    /**
+     * Number of rows per mapped chunk.
+     */
+    private final int chunkRows;
+
+    private final ArrayList<FloatBuffer> chunks = new ArrayList<>();
+
+    /**
+     * Number of rows covered by {@link #chunks}.
+     */
+    private int mapped = 0;
+
+    /**
+     * Number of complete rows found in the file when it was opened.
+     */
+    private int initial = 0;
+
+    private VectorColumn(Path file, int dimension) {
+      super(file);
+      final long blockBytes = (long) Entity.BLOCK_SIZE * dimension * Float.BYTES;
+      if (dimension <= 0 || blockBytes > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Unsupported vector dimension " + dimension + ".");
+      }
+      this.dimension = dimension;
+      this.chunkRows = (int) (Entity.BLOCK_SIZE * Math.max(1L, CHUNK_BYTES / blockBytes));
+    }
+
+    static VectorColumn open(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+          throw new IOException("The file " + file + " is not a vector file.");
+        }
+        final VectorColumn column = new VectorColumn(file, header.getInt());
+        column.initial = (int) Math.min(Integer.MAX_VALUE, (channel.size() - HEADER_SIZE) / ((long) column.dimension * Float.BYTES));
+        return column;
+      }
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      if (value instanceof float[]) {
+        return ((float[]) value).length == this.dimension;
+      } else if (value instanceof ReadableFloatVector) {
+        return ((ReadableFloatVector) value).getElementCount() == this.dimension;
+      }
+      return false;
+    }
+
+    @Override
+    void write(List<Object[]> rows, int column, int padding) throws IOException {
+      final boolean create = !Files.exists(this.file);
+      final ByteBuffer buffer = ByteBuffer.allocate((create ? HEADER_SIZE : 0) + (padding + rows.size()) * this.dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      if (create) {
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(this.dimension).putInt(0);
+      }
+      final FloatBuffer floats = buffer.asFloatBuffer();
+      final float[] missing = new float[this.dimension];
+      Arrays.fill(missing, Float.NaN);
+      for (int i = 0; i < padding; i++) {
+        floats.put(missing);
+      }
+      for (Object[] row : rows) {
+        final Object value = row[column];
+        if (value instanceof float[]) {
+          floats.put((float[]) value);
+        } else if (value instanceof ReadableFloatVector) {
+          floats.put(ReadableFloatVector.toArray((ReadableFloatVector) value));
+        } else {
+          floats.put(missing);
+        }
+      }
+      buffer.position(0);
+      this.append(buffer);
+    }
+
+    @Override
+    void publish(List<Object[]> rows, int column, int total) throws IOException {
+      this.map(total);
+    }
+
+    /**
+     * The chunk that contains the given row is mapped again upon the next {@link #map(int)}.
+     */
+    @Override
+    void reset(int rows) {
+      this.mapped = Math.min(this.mapped, rows);
+    }
+
+    @Override
+    int count() {
+      return this.initial;
+    }
+
+    @Override
+    void truncate(int rows) throws IOException {
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+        channel.truncate(HEADER_SIZE + (long) rows * this.dimension * Float.BYTES);
+      }
+      this.initial = rows;
+    }
+
+    /**
+     * Maps the file up to the given number of rows. Chunks that are complete are mapped only once; the channel is closed right away, the mappings stay valid until they are garbage collected.
+     */
+    private void map(int rows) throws IOException {
+      if (rows <= this.mapped) {
+        return;
+      }
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+        for (int c = this.mapped / this.chunkRows; (long) c * this.chunkRows < rows; c++) {
+          final int start = c * this.chunkRows;
+          final int length = Math.min(this.chunkRows, rows - start);
+          final long position = HEADER_SIZE + (long) start * this.dimension * Float.BYTES;
+          final FloatBuffer chunk = channel.map(MapMode.READ_ONLY, position, (long) length * this.dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+          if (c < this.chunks.size()) {
+            this.chunks.set(c, chunk);
+          } else {
+            this.chunks.add(chunk);
+          }
+        }
+      }
+      this.mapped = rows;
+    }
+
+    /**
+     * Copies the vector of the given row into the buffer.
+     *
+     * @return False, if the row has no vector.
+     */
+    boolean read(int row, float[] buffer) {
+      if (row >= this.mapped) {
+        return false;
+      }
+      this.chunks.get(row / this.chunkRows).get((row % this.chunkRows) * this.dimension, buffer, 0, this.dimension);
+      return !Float.isNaN(buffer[0]);
+    }
+
+    /**
+     * Copies the vectors of a block of rows into the buffer. Rows without vector are NaN.
+     */
+    void readBlock(int start, int count, float[] buffer) {
+      final int available = Math.max(0, Math.min(count, this.mapped - start));
+      if (available > 0) {
+        this.chunks.get(start / this.chunkRows).get((start % this.chunkRows) * this.dimension, buffer, 0, available * this.dimension);
+      }
+      if (available < count) {
+        Arrays.fill(buffer, available * this.dimension, count * this.dimension, Float.NaN);
+      }
+    }
+
+    @Override
+    Object get(int row) {
+      final float[] vector = new float[this.dimension];
+      return this.read(row, vector) ? vector : null;
+    }
+  }
+
+  /**
+   * {@link Column} that holds arbitrary values as a sequence of tagged values, which are decoded into the heap.
+   */
+  private static final class ValueColumn extends Column {
+
+    static final String SUFFIX = ".val";
+
+    private static final byte NULL = 0, STRING = 1, INT = 2, LONG = 3, FLOAT = 4, DOUBLE = 5, BOOLEAN = 6, INT_ARRAY = 7, BOOLEAN_ARRAY = 8, BIT_SET = 9, HASH = 10;
+
+    private Object[] values = new Object[Entity.BLOCK_SIZE];
+
+    private int count = 0;
+
+    private ValueColumn(Path file) {
+      super(file);
+    }
+
+    static ValueColumn open(Path file) throws IOException {
+      final ValueColumn column = new ValueColumn(file);
+      column.decode(Integer.MAX_VALUE);
+      return column;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return !(value instanceof float[]) && !(value instanceof ReadableFloatVector);
+    }
+
+    @Override
+    void write(List<Object[]> rows, int column, int padding) throws IOException {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * (padding + rows.size()));
+      final DataOutputStream out = new DataOutputStream(bytes);
+      for (int i = 0; i < padding; i++) {
+        out.writeByte(NULL);
+      }
+      for (Object[] row : rows) {
+        encode(out, row[column]);
+      }
+      out.flush();
+      this.append(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    @Override
+    void publish(List<Object[]> rows, int column, int total) {
+      if (this.values != null) {
+        if (total > this.values.length) {
+          this.values = Arrays.copyOf(this.values, Math.max(total, this.values.length * 2));
+        }
+        for (int i = 0; i < rows.size(); i++) {
+          this.values[total - rows.size() + i] = rows.get(i)[column];
+        }
+      }
+      this.count = total;
+    }
+
+    @Override
+    void reset(int rows) {
+      if (this.values != null) {
+        Arrays.fill(this.values, Math.min(rows, this.values.length), Math.min(this.count, this.values.length), null);
+      }
+      this.count = Math.min(this.count, rows);
+    }
+
+    /**
+     * Drops the decoded values; used for the key column, whose values are held by the dictionary of the {@link Entity}.
+     */
+    void release() {
+      this.values = null;
+    }
+
+    @Override
+    int count() {
+      return this.count;
+    }
+
+    @Override
+    void truncate(int rows) throws IOException {
+      final long length = this.decode(rows);
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.WRITE)) {
+        channel.truncate(length);
+      }
+    }
+
+    @Override
+    Object get(int row) {
+      return row < this.count && this.values != null ? this.values[row] : null;
+    }
+
+    /**
+     * Decodes up to the given number of values from the file; a trailing value that was not written completely is ignored.
+     *
+     * @return The number of bytes that were decoded.
+     */
+    private long decode(int limit) throws IOException {
+      final ByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+        if (channel.size() > Integer.MAX_VALUE) {
+          throw new IOException("The file " + this.file + " is too large to be decoded.");
+        }
+        buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      }
+      final ArrayList<Object> values = new ArrayList<>();
+      int end = 0;
+      try {
+        while (values.size() < limit && buffer.hasRemaining()) {
+          values.add(decode(buffer));
+          end = buffer.position();
+        }
+      } catch (RuntimeException e) {
+        LOGGER.warn("The file {} ends with an incomplete value.", this.file);
+      }
+      this.values = values.toArray(new Object[Math.max(values.size(), Entity.BLOCK_SIZE)]);
+      this.count = values.size();
+      return end;
+    }
+
+    private static void encode(DataOutputStream out, Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        out.writeByte(INT);
+        out.writeInt(((Number) value).intValue());
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof int[]) {
+        final int[] array = (int[]) value;
+        out.writeByte(INT_ARRAY);
+        out.writeInt(array.length);
+        for (int v : array) {
+          out.writeInt(v);
+        }
+      } else if (value instanceof boolean[]) {
+        final boolean[] array = (boolean[]) value;
+        out.writeByte(BOOLEAN_ARRAY);
+        out.writeInt(array.length);
+        for (boolean v : array) {
+          out.writeBoolean(v);
+        }
+      } else if (HammingIndex.isHash(value)) {
+        out.writeByte(HASH);
+        out.writeLong(HammingIndex.pack((BitSet) value));
+      } else if (value instanceof BitSet) {
+        final BitSet bits = (BitSet) value;
+        out.writeByte(BIT_SET);
+        out.writeInt(bits.size());
+        for (int i = 0; i < bits.size(); i++) {
+          out.writeBoolean(bits.get(i));
+        }
+      } else {
+        final byte[] string = value.toString().getBytes(UTF_8);
+        out.writeByte(STRING);
+        out.writeInt(string.length);
+        out.write(string);
+      }
+    }
+
+    private static Object decode(ByteBuffer in) {
+      final byte tag = in.get();
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING: {
+          final byte[] string = new byte[in.getInt()];
+          in.get(string);
+          return new String(string, UTF_8);
+        }
+        case INT:
+          return in.getInt();
+        case LONG:
+          return in.getLong();
+        case FLOAT:
+          return in.getFloat();
+        case DOUBLE:
+          return in.getDouble();
+        case BOOLEAN:
+          return in.get() != 0;
+        case INT_ARRAY: {
+          final int[] array = new int[in.getInt()];
+          in.asIntBuffer().get(array);
+          in.position(in.position() + array.length * Integer.BYTES);
+          return array;
+        }
+        case BOOLEAN_ARRAY: {
+          final boolean[] array = new boolean[in.getInt()];
+          for (int i = 0; i < array.length; i++) {
+            array[i] = in.get() != 0;
+          }
+          return array;
+        }
+        case BIT_SET: {
+          final int size = in.getInt();
+          final BitSet bits = new BitSet(size);
+          for (int i = 0; i < size; i++) {
+            if (in.get() != 0) {
+              bits.set(i);
+            }
+          }
+          return bits;
+        }
+        case HASH:
+          return HammingIndex.unpack(in.getLong());
+        default:
+          throw new IllegalStateException("Unknown value tag " + tag + ".");
+      }
+    }
+  }
+}
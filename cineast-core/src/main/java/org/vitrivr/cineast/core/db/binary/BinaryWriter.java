@@ -0,0 +1,15 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+
+/**
+ * Implementation of a Cineast {@link org.vitrivr.cineast.core.db.PersistencyWriter} on top of the {@link BinaryStore}. Every batch is appended to the files of the entity at once.
+ *
+ * @see BinaryStore
+ */
+public class BinaryWriter extends InMemoryWriter {
+
+  public BinaryWriter(BinaryStore store) {
+    super(store);
+  }
+}
@@ -0,0 +1,145 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.binary.BinaryStore.Entity;
+import org.vitrivr.cineast.core.db.json.JsonFileWriter;
+import org.vitrivr.cineast.core.importer.JsonObjectImporter;
+
+/**
+ * Converts the files written by the {@link JsonFileWriter} into entities of a {@link BinaryStore}. Every file becomes the entity with the name of the file (without extension); the columns of a new entity are the fields of the first object in the file, in order, such that its first field acts as key.
+ */
+public final class JsonToBinaryConverter {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Number of rows that are appended to an entity at once.
+   */
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String EXTENSION = ".json";
+
+  private JsonToBinaryConverter() {
+  }
+
+  /**
+   * Converts the given JSON file or all JSON files in the given directory into new or empty entities.
+   *
+   * @param input The JSON file or a directory that contains JSON files.
+   * @param store The {@link BinaryStore} to convert the files into.
+   * @return Number of rows that were converted.
+   * @throws IOException If a file could not be read, an entity could not be written or already holds rows.
+   */
+  public static long convert(Path input, BinaryStore store) throws IOException {
+    return convert(input, store, false);
+  }
+
+  /**
+   * Converts the given JSON file or all JSON files in the given directory. Unless appending is requested, no file is converted if one of the target entities already holds rows, as converting the same files twice would duplicate every row.
+   *
+   * @param input  The JSON file or a directory that contains JSON files.
+   * @param store  The {@link BinaryStore} to convert the files into.
+   * @param append True if rows may be appended to entities that already hold rows.
+   * @return Number of rows that were converted.
+   * @throws IOException If a file could not be read, an entity could not be written or already holds rows.
+   */
+  public static long convert(Path input, BinaryStore store, boolean append) throws IOException {
+    if (!Files.isDirectory(input)) {
+      return convertFile(input, store, append);
+    }
+    final List<Path> files;
+    try (Stream<Path> stream = Files.list(input)) {
+      files = stream.filter(p -> p.getFileName().toString().toLowerCase().endsWith(EXTENSION)).sorted().collect(Collectors.toList());
+    }
+    if (!append) {
+      for (Path file : files) {
+        checkEmpty(store, entityName(file));
+      }
+    }
+    long rows = 0;
+    for (Path file : files) {
+      rows += convertFile(file, store, append);
+    }
+    return rows;
+  }
+
+  /**
+   * Converts a single JSON file. Rows are appended if the entity already exists and appending is requested; fields that don't exist in the entity are dropped.
+   *
+   * @param file   The JSON file.
+   * @param store  The {@link BinaryStore} to convert the file into.
+   * @param append True if rows may be appended to an entity that already holds rows.
+   * @return Number of rows that were converted.
+   * @throws IOException If the file could not be read, the entity could not be written or already holds rows.
+   */
+  public static long convertFile(Path file, BinaryStore store, boolean append) throws IOException {
+    final String name = entityName(file);
+    if (!append) {
+      checkEmpty(store, name);
+    }
+    final JsonObjectImporter importer = new JsonObjectImporter(file.toFile());
+    final List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    Entity entity = null;
+    String[] columns = null;
+    long rows = 0;
+    ObjectNode node;
+    while ((node = importer.readNext()) != null) {
+      if (entity == null) {
+        final List<String> fields = new ArrayList<>();
+        node.fieldNames().forEachRemaining(fields::add);
+        entity = store.getEntity(name).or(() -> store.createEntity(name, fields.toArray(new String[0]))).orElseThrow(() -> new IOException("Could not create entity '" + name + "'."));
+        columns = entity.getColumns();
+      }
+      final Map<String, PrimitiveTypeProvider> map = importer.convert(node);
+      final Object[] row = new Object[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        final PrimitiveTypeProvider value = map.get(columns[i]);
+        row[i] = value == null ? null : PrimitiveTypeProvider.getObject(value);
+      }
+      batch.add(row);
+      if (batch.size() >= BATCH_SIZE) {
+        rows += append(entity, batch, file);
+      }
+    }
+    if (entity != null) {
+      rows += append(entity, batch, file);
+    }
+    LOGGER.info("Converted {} rows from {} into entity '{}'.", rows, file, name);
+    return rows;
+  }
+
+  /**
+   * @return Name of the entity the given file is converted into, i.e. the name of the file without extension.
+   */
+  private static String entityName(Path file) {
+    final String filename = file.getFileName().toString();
+    return filename.toLowerCase().endsWith(EXTENSION) ? filename.substring(0, filename.length() - EXTENSION.length()) : filename;
+  }
+
+  private static void checkEmpty(BinaryStore store, String name) throws IOException {
+    final int rows = store.getEntity(name).map(Entity::size).orElse(0);
+    if (rows > 0) {
+      throw new IOException("Entity '" + name + "' already holds " + rows + " rows; drop it or convert with appending enabled.");
+    }
+  }
+
+  private static int append(Entity entity, List<Object[]> batch, Path file) throws IOException {
+    final int rows = batch.size();
+    if (rows > 0 && !entity.append(batch)) {
+      throw new IOException("Could not append the rows of " + file + "; they don't match the layout of the entity or repeat keys of a unique entity.");
+    }
+    batch.clear();
+    return rows;
+  }
+}
@@ -17,7 +17,10 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import org.apache.commons.lang3.time.StopWatch;
@@ -27,6 +30,7 @@
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
 import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.BitSetTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
 import org.vitrivr.cineast.core.db.RelationalOperator;
@@ -61,6 +65,19 @@ public CottontailSelector(CottontailWrapper wrapper) {
     this.cottontail = wrapper;
   }
 
+  /**
+   * Wraps a value returned by Cottontail DB in a {@link PrimitiveTypeProvider}. Boolean vectors are only created for {@link org.vitrivr.cineast.core.db.setup.AttributeDefinition.AttributeType#BITSET} attributes (see {@link CottontailEntityCreator#mapAttributeType}) and are thus read back as bit sets.
+   *
+   * @param value The value of a column.
+   * @return {@link PrimitiveTypeProvider}
+   */
+  private static PrimitiveTypeProvider toProvider(Object value) {
+    if (value instanceof boolean[]) {
+      return BitSetTypeProvider.fromBooleanArray((boolean[]) value);
+    }
+    return PrimitiveTypeProvider.fromObject(value);
+  }
+
   private static List<Map<String, PrimitiveTypeProvider>> processResults(TupleIterator results, Map<String, String> mappings) {
     final List<Map<String, PrimitiveTypeProvider>> _return = new LinkedList<>();
     final StopWatch watch = StopWatch.createStarted();
@@ -69,7 +86,7 @@ private static List<Map<String, PrimitiveTypeProvider>> processResults(TupleIter
       final Tuple t = results.next();
       final Map<String, PrimitiveTypeProvider> map = new HashMap<>(results.getNumberOfColumns());
       for (String c : columns) {
-        map.put(mappings.getOrDefault(c, c), PrimitiveTypeProvider.fromObject(t.get(c)));
+        map.put(mappings.getOrDefault(c, c), toProvider(t.get(c)));
       }
       _return.add(map);
     }
@@ -140,6 +157,18 @@ private static <T extends DistanceElement> List<T> handleNearestNeighbourRespons
     return result;
   }
 
+  /**
+   * Rethrows errors that indicate a lost connection to Cottontail DB, so that callers can discard and re-create the connection instead of receiving an empty result. Other errors are left to the caller.
+   *
+   * @param e The {@link StatusRuntimeException} to check.
+   */
+  private static void propagateConnectionFailure(StatusRuntimeException e) {
+    if (e.getStatus().getCode() == Status.Code.UNAVAILABLE) {
+      LOGGER.error("Connection to Cottontail DB failed: {}", e.getMessage());
+      throw e;
+    }
+  }
+
   /**
    * Converts a Cineast {@link Distance} into the corresponding Cottontail DB representation.
    *
@@ -223,26 +252,88 @@ public void close() { /* No op. */ }
    */
   @Override
   public <E extends DistanceElement> List<E> getNearestNeighboursGeneric(int k, float[] vector, String column, Class<E> distanceElementClass, ReadableQueryConfig queryConfig) {
-    final Query query = knn(k, vector, column, queryConfig);
+    return nearestNeighbours(knn(k, vector, column, queryConfig), distanceElementClass, "getNearestNeighboursGeneric");
+  }
+
+  /**
+   * Issues one kNN query per vector. The queries are multiplexed over the shared gRPC channel of the {@link CottontailWrapper} and executed concurrently; the results are concatenated in the order of the query vectors.
+   * <p>
+   * Every query is handled like {@link #getNearestNeighboursGeneric(int, float[], String, Class, ReadableQueryConfig)}, regardless of the size of the batch: see {@link #nearestNeighbours(Query, Class, String)}. A lost connection to Cottontail DB is propagated for the whole batch.
+   */
+  @Override
+  public <E extends DistanceElement> List<E> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<E> distanceElementClass, List<ReadableQueryConfig> queryConfigs) {
+    if (vectors.size() != queryConfigs.size()) {
+      throw new IllegalArgumentException("Number of query vectors (" + vectors.size() + ") does not match number of query configs (" + queryConfigs.size() + ").");
+    }
+    if (vectors.isEmpty()) {
+      return new ArrayList<>(0);
+    }
+    if (vectors.size() == 1) {
+      return getNearestNeighboursGeneric(k, vectors.get(0), column, distanceElementClass, queryConfigs.get(0));
+    }
+
+    final StopWatch watch = StopWatch.createStarted();
+    final List<Future<List<E>>> futures = new ArrayList<>(vectors.size());
+    for (int i = 0; i < vectors.size(); i++) {
+      final Query query = knn(k, vectors.get(i), column, queryConfigs.get(i));
+      futures.add(this.cottontail.submit(() -> nearestNeighbours(query, distanceElementClass, "getBatchedNearestNeighbours")));
+    }
+
+    /* Collect results in the order of the query vectors. */
+    final List<E> results = new ArrayList<>(k * vectors.size());
+    for (Future<List<E>> future : futures) {
+      try {
+        results.addAll(future.get());
+      } catch (ExecutionException e) {
+        futures.forEach(f -> f.cancel(true));
+        if (e.getCause() instanceof RuntimeException cause) {
+          throw cause;
+        }
+        throw new IllegalStateException("Batched kNN query failed.", e.getCause());
+      } catch (InterruptedException e) {
+        LOGGER.warn("Interrupted while waiting for results in getBatchedNearestNeighbours().");
+        futures.forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for batched kNN results.", e);
+      }
+    }
+    LOGGER.trace("Executed {} batched kNN queries in {} ms", vectors.size(), watch.getTime(TimeUnit.MILLISECONDS));
+    return results;
+  }
+
+  /**
+   * Executes a single kNN query. A query that fails because Cottontail DB is unavailable is retried once; if the retry fails as well, the error is propagated by {@link #propagateConnectionFailure(StatusRuntimeException)}. Other errors are logged and yield an empty result.
+   *
+   * @param query                The kNN {@link Query} to execute.
+   * @param distanceElementClass The class to use to create the resulting {@link DistanceElement}s.
+   * @param method               Name of the calling method, used for logging.
+   */
+  private <E extends DistanceElement> List<E> nearestNeighbours(Query query, Class<E> distanceElementClass, String method) {
     try {
       return handleNearestNeighbourResponse(this.cottontail.client.query(query), distanceElementClass);
     } catch (StatusRuntimeException e) {
-      LOGGER.warn("Error occurred during query execution in getNearestNeighboursGeneric(): {}", e.getMessage());
+      if (e.getStatus().getCode() != Status.Code.UNAVAILABLE) {
+        LOGGER.warn("Error occurred during query execution in {}(): {}", method, e.getMessage());
+        return new ArrayList<>(0);
+      }
+      LOGGER.warn("Cottontail DB unavailable during query execution in {}(), retrying query: {}", method, e.getMessage());
+    }
+    try {
+      return handleNearestNeighbourResponse(this.cottontail.client.query(query), distanceElementClass);
+    } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
+      LOGGER.warn("Error occurred during query execution in {}(): {}", method, e.getMessage());
       return new ArrayList<>(0);
     }
   }
 
-  @Override
-  public <E extends DistanceElement> List<E> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<E> distanceElementClass, List<ReadableQueryConfig> queryConfigs) {
-    return new ArrayList<>(0); /* TODO. */
-  }
-
   @Override
   public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
     final Query query = knn(k, vector, column, queryConfig, "*");
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getNearestNeighbourRows(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -260,6 +351,7 @@ public List<float[]> getFeatureVectors(String column, PrimitiveTypeProvider valu
       }
       return _return;
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getFeatureVectors(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -272,6 +364,7 @@ public List<PrimitiveTypeProvider> getFeatureVectorsGeneric(String column, Primi
     try {
       return toSingleCol(this.cottontail.client.query(query), vectorName);
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getFeatureVectorsGeneric(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -320,11 +413,31 @@ private List<Map<String, PrimitiveTypeProvider>> getRowsHelper(String fieldName,
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getRows(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
   }
 
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRowsInRange(String keyColumn, PrimitiveTypeProvider key, String rangeColumn, PrimitiveTypeProvider lower, PrimitiveTypeProvider upper, int limit, ReadableQueryConfig queryConfig) {
+    final Predicate range = new And(new Expression(rangeColumn, ">=", lower.toObject()), new Expression(rangeColumn, "<=", upper.toObject()));
+    final Query query = new Query(this.fqn).select("*", null)
+        .where(new And(new Expression(keyColumn, "==", key.toObject()), range))
+        .order(rangeColumn, Direction.ASC)
+        .queryId(generateQueryId("get-rows-range", queryConfig));
+    if (limit > 0) {
+      query.limit(limit);
+    }
+    try {
+      return processResults(this.cottontail.client.query(query));
+    } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
+      LOGGER.warn("Error occurred during query execution in getRowsInRange(): {}", e.getMessage());
+      return new ArrayList<>(0);
+    }
+  }
+
   @Override
   public List<Map<String, PrimitiveTypeProvider>> getFulltextRows(int rows, String column, ReadableQueryConfig queryConfig, String... terms) {
     /* Prepare plain query. */
@@ -351,6 +464,7 @@ public List<Map<String, PrimitiveTypeProvider>> getFulltextRows(int rows, String
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getFulltextRows(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -391,6 +505,7 @@ public List<Map<String, PrimitiveTypeProvider>> getRowsAND(List<Triple<String, R
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getRowsAND(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -467,6 +582,7 @@ public List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, int
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getAll(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -479,6 +595,7 @@ public List<PrimitiveTypeProvider> getUniqueValues(String column) {
     try {
       return toSingleCol(this.cottontail.client.query(query), column);
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getUniqueValues(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -496,11 +613,39 @@ public Map<String, Integer> countDistinctValues(String column) {
       }
       return count;
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in countDistinctValues(): {}", e.getMessage());
       return new HashMap<>(0);
     }
   }
 
+  /**
+   * Streams the rows from the {@link TupleIterator}, which fetches them from Cottontail DB page by page, such that the result is never materialized as a whole.
+   */
+  @Override
+  public boolean forEachRow(List<String> columns, Consumer<Map<String, PrimitiveTypeProvider>> consumer) {
+    final Query query = new Query(this.fqn).queryId(DBQueryIdGenerator.generateQueryId("for-each-row-" + this.fqn));
+    for (String c : columns) {
+      query.select(c, null);
+    }
+    try (final TupleIterator results = this.cottontail.client.query(query)) {
+      final Collection<String> names = results.getSimpleNames();
+      while (results.hasNext()) {
+        final Tuple t = results.next();
+        final Map<String, PrimitiveTypeProvider> row = new HashMap<>(results.getNumberOfColumns());
+        for (String c : names) {
+          row.put(c, toProvider(t.get(c)));
+        }
+        consumer.accept(row);
+      }
+      return true;
+    } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
+      LOGGER.warn("Error occurred during query execution in forEachRow(): {}", e.getMessage());
+      return false;
+    }
+  }
+
   @Override
   public List<Map<String, PrimitiveTypeProvider>> getAll() {
     final Query query = new Query(this.fqn).select("*", null)
@@ -508,6 +653,7 @@ public List<Map<String, PrimitiveTypeProvider>> getAll() {
     try {
       return processResults(this.cottontail.client.query(query));
     } catch (StatusRuntimeException e) {
+      propagateConnectionFailure(e);
       LOGGER.warn("Error occurred during query execution in getAll(): {}", e.getMessage());
       return new ArrayList<>(0);
     }
@@ -625,7 +771,7 @@ private List<PrimitiveTypeProvider> toSingleCol(TupleIterator results, String co
     final List<PrimitiveTypeProvider> _return = new LinkedList<>();
     while (results.hasNext()) {
       final Tuple t = results.next();
-      _return.add(PrimitiveTypeProvider.fromObject(t.get(colName)));
+      _return.add(toProvider(t.get(colName)));
     }
     return _return;
   }
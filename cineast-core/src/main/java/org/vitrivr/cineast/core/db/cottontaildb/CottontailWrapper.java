@@ -5,7 +5,13 @@
 import io.grpc.netty.NettyChannelBuilder;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import kotlin.jvm.Synchronized;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.logging.log4j.LogManager;
@@ -22,20 +28,53 @@ public final class CottontailWrapper implements AutoCloseable {
    * Internal connection pool to re-use managed channels.
    */
   private static final Map<String, ManagedChannel> POOL = new HashMap<>();
+  /**
+   * Maximum number of queries that are executed concurrently on behalf of batched operations (e.g., batched kNN).
+   */
+  private static final int MAX_CONCURRENT_QUERIES = 16;
+  /**
+   * Shared {@link ExecutorService} used to multiplex concurrent queries over the {@link ManagedChannel}s of this class.
+   */
+  private static final ExecutorService QUERY_EXECUTOR;
+
+  static {
+    final AtomicInteger counter = new AtomicInteger();
+    final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_QUERIES, MAX_CONCURRENT_QUERIES, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      final Thread thread = new Thread(r, "cottontail-query-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    QUERY_EXECUTOR = executor;
+  }
+
   /**
    * The {@link SimpleClient} instance that facilitates access to Cottontail DB.
    */
   public final SimpleClient client;
 
   public CottontailWrapper(String host, int port) {
+    this(sharedChannel(host, port), host + ":" + port);
+  }
+
+  /**
+   * Creates a new {@link CottontailWrapper} for an existing {@link ManagedChannel}, e.g., an in-process channel.
+   *
+   * @param channel {@link ManagedChannel} to use.
+   */
+  public CottontailWrapper(ManagedChannel channel) {
+    this(channel, channel.authority());
+  }
+
+  private CottontailWrapper(ManagedChannel channel, String address) {
     StopWatch watch = StopWatch.createStarted();
-    this.client = new SimpleClient(sharedChannel(host, port));
+    this.client = new SimpleClient(channel);
     boolean pingSuccessful = this.client.ping();
     watch.stop();
     if (pingSuccessful) {
-      LOGGER.debug("Connected to Cottontail DB in {} ms at {}:{}", watch.getTime(TimeUnit.MILLISECONDS), host, port);
+      LOGGER.debug("Connected to Cottontail DB in {} ms at {}", watch.getTime(TimeUnit.MILLISECONDS), address);
     } else {
-      LOGGER.warn("Could not ping Cottontail DB instance at {}:{}", host, port);
+      LOGGER.warn("Could not ping Cottontail DB instance at {}", address);
     }
   }
 
@@ -92,6 +131,16 @@ public String fqnOutput(String entity) {
     return FQN_CINEAST_SCHEMA + "." + entity;
   }
 
+  /**
+   * Submits a query task for concurrent execution. Since all {@link CottontailWrapper}s for the same address share a {@link ManagedChannel}, concurrently submitted queries are multiplexed over that channel.
+   *
+   * @param task The query task to execute.
+   * @return {@link Future} of the task's result.
+   */
+  public <T> Future<T> submit(Callable<T> task) {
+    return QUERY_EXECUTOR.submit(task);
+  }
+
   /**
    * Closes this {@link CottontailWrapper}.
    */
@@ -1,10 +1,18 @@
 package org.vitrivr.cineast.core.db.cottontaildb;
 
+import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
+
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import org.apache.commons.lang3.StringUtils;
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.ExistenceIndex;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 import org.vitrivr.cottontail.client.iterators.TupleIterator;
 import org.vitrivr.cottontail.client.language.basics.Constants;
@@ -15,6 +23,17 @@
 
 public final class CottontailWriter extends AbstractPersistencyWriter<Insert> {
 
+  /**
+   * Maximum estimated size of a single {@link BatchInsert} message. Cottontail sometimes acts up which is why we don't fully trust the max size.
+   */
+  static final int MAX_BATCH_BYTES = Constants.MAX_PAGE_SIZE_BYTES - 10_000;
+
+  /**
+   * Estimated overhead of a row and of a value within a {@link BatchInsert} message, in bytes. Chosen to over- rather than underestimate the actual protobuf encoding (tags, length prefixes and literal wrappers).
+   */
+  private static final int ROW_OVERHEAD = 8;
+  private static final int VALUE_OVERHEAD = 24;
+
   /**
    * Internal reference to the {@link CottontailWrapper} used by this {@link CottontailWriter}.
    */
@@ -28,6 +47,10 @@ public final class CottontailWriter extends AbstractPersistencyWriter<Insert> {
    * The fully qualified name of the entity handled by this {@link CottontailWriter}.
    */
   private String fqn;
+  /**
+   * Answers {@link #idExists(String)} with one bulk query per media object instead of one query per segment.
+   */
+  private final ExistenceIndex existenceIndex = new ExistenceIndex(this::idsWithPrefix, id -> this.exists(GENERIC_ID_COLUMN_QUALIFIER, id));
 
   public CottontailWriter(CottontailWrapper wrapper, int batchSize, boolean useTransactions) {
     this.cottontail = wrapper;
@@ -38,9 +61,43 @@ public CottontailWriter(CottontailWrapper wrapper, int batchSize, boolean useTra
   @Override
   public boolean open(String name) {
     this.fqn = this.cottontail.fqnInput(name);
+    this.existenceIndex.clear();
     return true;
   }
 
+  @Override
+  public boolean idExists(String id) {
+    return this.existenceIndex.contains(id);
+  }
+
+  /**
+   * Loads all ids of the entity that start with the given prefix. Wildcards in the prefix are escaped, so it matches literally.
+   */
+  private List<String> idsWithPrefix(String prefix) {
+    final Query query = new Query(this.fqn).select(GENERIC_ID_COLUMN_QUALIFIER, null).where(new Expression(GENERIC_ID_COLUMN_QUALIFIER, "LIKE", escapeLike(prefix) + "%"));
+    final TupleIterator results = this.cottontail.client.query(query);
+    final List<String> ids = new ArrayList<>();
+    while (results.hasNext()) {
+      ids.add(results.next().asString(GENERIC_ID_COLUMN_QUALIFIER));
+    }
+    return ids;
+  }
+
+  /**
+   * Escapes the wildcards and the escape character of a LIKE pattern.
+   */
+  static String escapeLike(String value) {
+    final StringBuilder builder = new StringBuilder(value.length() + 8);
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '\\' || c == '%' || c == '_') {
+        builder.append('\\');
+      }
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+
   @Override
   public void close() { /* No op */ }
 
@@ -56,6 +113,9 @@ public boolean exists(String key, String value) {
     }
   }
 
+  /**
+   * Persists the tuples in as few {@link BatchInsert} messages as the maximum message size allows. Each message is sent while the next one is being encoded; the input list is left untouched. Unless the transaction has been committed, it is rolled back whatever the failure.
+   */
   @Override
   public boolean persist(List<PersistentTuple> tuples) {
     if (this.fqn == null) {
@@ -67,51 +127,157 @@ public boolean persist(List<PersistentTuple> tuples) {
     if (useTransactions) {
       txId = this.cottontail.client.begin();
     }
+    Future<?> sending = null;
+    boolean committed = false;
     try {
-      BatchInsert insert = new BatchInsert().into(this.fqn).columns(this.names);
-      if (useTransactions) {
-        insert.txId(txId);
-      }
-      while (!tuples.isEmpty()) {
-        final PersistentTuple tuple = tuples.remove(0);
-        final Object[] values = tuple.getElements().stream().map(o -> {
+      BatchInsert insert = this.newBatchInsert(txId);
+      long estimate = 0;
+      /* Reused for every row; BatchInsert copies the values into its message when they are appended. */
+      Object[] values = new Object[0];
+      float[][] vectors = new float[0][];
+      for (PersistentTuple tuple : tuples) {
+        final List<Object> elements = tuple.getElements();
+        if (values.length != elements.size()) {
+          values = new Object[elements.size()];
+          vectors = new float[elements.size()][];
+        }
+        long rowSize = ROW_OVERHEAD;
+        int i = 0;
+        for (Object o : elements) {
           if (o instanceof ReadableFloatVector) {
-            return ReadableFloatVector.toArray((ReadableFloatVector) o);
-          } else {
-            return o;
-          }
-        }).toArray();
-        if (insert.serializedSize() >= Constants.MAX_PAGE_SIZE_BYTES - 10_000) { // cottontail sometimes acts up which is why we don't fully trust the max size
-          LOGGER.trace("Inserting msg of size {} with {} elements into {}", insert.serializedSize(), insert.count(), this.fqn);
-          this.cottontail.client.insert(insert);
-          insert = new BatchInsert().into(this.fqn).columns(this.names);
-          if (useTransactions) {
-            insert.txId(txId);
+            vectors[i] = ReadableFloatVector.toArray((ReadableFloatVector) o, vectors[i] == null ? new float[0] : vectors[i]);
+            o = vectors[i];
           }
+          values[i++] = o;
+          rowSize += estimateSize(o);
+        }
+        if (estimate + rowSize > MAX_BATCH_BYTES && insert.count() > 0) {
+          LOGGER.trace("Inserting msg of estimated size {} with {} elements into {}", estimate, insert.count(), this.fqn);
+          sending = this.send(insert, sending);
+          insert = this.newBatchInsert(txId);
+          estimate = 0;
         }
         boolean append = insert.append(values);
         if (!append) {
           LOGGER.error("Value could not be appended to batch-insert");
         }
+        estimate += rowSize;
       }
       if (insert.count() > 0) {
-        LOGGER.trace("Finalizing: Inserting msg of size {} with {} elements into {}", insert.serializedSize(), insert.count(), this.fqn);
-        this.cottontail.client.insert(insert);
+        LOGGER.trace("Finalizing: Inserting msg of estimated size {} with {} elements into {}", estimate, insert.count(), this.fqn);
+        sending = this.send(insert, sending);
       }
+      await(sending);
+      sending = null;
       if (useTransactions) {
         LOGGER.trace("Committing");
         this.cottontail.client.commit(txId);
       }
+      committed = true;
       long stop = System.currentTimeMillis();
       LOGGER.trace("Completed insert of {} elements in {} ms", size, stop - start);
       return true;
     } catch (StatusRuntimeException e) {
       LOGGER.error(e);
-      if (useTransactions) {
-        this.cottontail.client.rollback(txId);
-      }
       return false;
+    } finally {
+      if (!committed) {
+        awaitQuietly(sending);
+        if (useTransactions) {
+          this.rollbackQuietly(txId);
+        }
+      }
+    }
+  }
+
+  private void rollbackQuietly(long txId) {
+    try {
+      this.cottontail.client.rollback(txId);
+    } catch (RuntimeException e) {
+      LOGGER.error("Could not roll back transaction {}: {}", txId, e.getMessage());
+    }
+  }
+
+  private BatchInsert newBatchInsert(long txId) {
+    final BatchInsert insert = new BatchInsert().into(this.fqn).columns(this.names);
+    if (this.useTransactions) {
+      insert.txId(txId);
+    }
+    return insert;
+  }
+
+  /**
+   * Waits for the previous message to be sent and submits the given one.
+   */
+  private Future<?> send(BatchInsert insert, Future<?> previous) {
+    await(previous);
+    return this.cottontail.submit(() -> this.cottontail.client.insert(insert));
+  }
+
+  private static void await(Future<?> future) {
+    if (future == null) {
+      return;
+    }
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StatusRuntimeException(Status.CANCELLED.withCause(e));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static void awaitQuietly(Future<?> future) {
+    try {
+      await(future);
+    } catch (RuntimeException e) {
+      /* Already failed. */
+    }
+  }
+
+  /**
+   * Upper estimate of the number of bytes the value occupies in a {@link BatchInsert} message.
+   */
+  static int estimateSize(Object value) {
+    if (value instanceof String) {
+      return VALUE_OVERHEAD + utf8Length((String) value);
+    } else if (value instanceof float[]) {
+      return VALUE_OVERHEAD + 4 * ((float[]) value).length;
+    } else if (value instanceof double[]) {
+      return VALUE_OVERHEAD + 8 * ((double[]) value).length;
+    } else if (value instanceof int[]) {
+      return VALUE_OVERHEAD + 5 * ((int[]) value).length;
+    } else if (value instanceof long[]) {
+      return VALUE_OVERHEAD + 10 * ((long[]) value).length;
+    } else if (value instanceof boolean[]) {
+      return VALUE_OVERHEAD + ((boolean[]) value).length;
+    } else if (value instanceof Number || value instanceof Boolean || value == null) {
+      return VALUE_OVERHEAD;
+    } else {
+      return VALUE_OVERHEAD + String.valueOf(value).getBytes(StandardCharsets.UTF_8).length;
+    }
+  }
+
+  private static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
     }
+    return length;
   }
 
   @Override
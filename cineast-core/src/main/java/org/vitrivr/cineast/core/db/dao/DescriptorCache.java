@@ -0,0 +1,266 @@
+package org.vitrivr.cineast.core.db.dao;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
+import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+
+/**
+ * Process-wide, size-bounded cache of immutable descriptors by id, shared by all readers of an entity.
+ * <p>
+ * Eviction follows a segmented LRU policy: new entries are admitted to a probationary segment and promoted to the protected segment (80% of the capacity) on their second access, so that a scan over many one-off ids cannot evict the frequently requested ones.
+ * <p>
+ * Ids that were looked up but do not exist are cached as absent for {@link #ABSENT_TTL_MS}. Writers call {@link #invalidate(String)} whenever they write an entity; lookups that started before an invalidation do not cache absent ids (see {@link #generation()}).
+ *
+ * @param <D> Type of the descriptors.
+ */
+public final class DescriptorCache<D> {
+
+  /**
+   * Cache of {@link MediaSegmentDescriptor}s by segment id.
+   */
+  public static final DescriptorCache<MediaSegmentDescriptor> SEGMENTS = new DescriptorCache<>("segments", 200_000, d -> 48 + length(d.getSegmentId()));
+
+  /**
+   * Cache of {@link MediaObjectDescriptor}s by object id.
+   */
+  public static final DescriptorCache<MediaObjectDescriptor> OBJECTS = new DescriptorCache<>("objects", 100_000, d -> 40 + length(d.getObjectId()) + length(d.getName()) + length(d.getPath()));
+
+  /**
+   * Time in milliseconds for which absent ids are cached.
+   */
+  public static final long ABSENT_TTL_MS = 60_000;
+
+  /**
+   * Estimated memory footprint of an entry in bytes, excluding the descriptor (hash map entry with links and the id string).
+   */
+  private static final long ENTRY_OVERHEAD = 56 + 40;
+
+  private final String name;
+
+  private final int capacity;
+
+  private final int protectedCapacity;
+
+  private final ToLongFunction<D> weigher;
+
+  /**
+   * Entries accessed once, in access order. Guarded by this.
+   */
+  private final LinkedHashMap<String, Object> probation = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Entries accessed more than once, in access order. Guarded by this.
+   */
+  private final LinkedHashMap<String, Object> protect = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Estimated memory footprint of all entries. Guarded by this.
+   */
+  private long bytes = 0;
+
+  private volatile long generation = 0;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * @param name     Name of the cache, used for monitoring.
+   * @param capacity Maximum number of entries.
+   * @param weigher  Estimates the memory footprint of a descriptor in bytes.
+   */
+  public DescriptorCache(String name, int capacity, ToLongFunction<D> weigher) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity of descriptor cache must be positive.");
+    }
+    this.name = name;
+    this.capacity = capacity;
+    this.protectedCapacity = Math.max(1, (int) (capacity * 0.8));
+    this.weigher = weigher;
+  }
+
+  /**
+   * Returns a counter that is incremented on every {@link #invalidate(String)}. Obtain it before looking up missing ids in the database and pass it to {@link #putAbsent(String, long)}.
+   */
+  public long generation() {
+    return this.generation;
+  }
+
+  /**
+   * Looks up the given ids in the cache.
+   *
+   * @param ids     IDs to look up.
+   * @param missing Collection to which all ids that must be looked up in the database are added, without duplicates. Ids that are cached as absent are not added.
+   * @return Cached descriptors by id.
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, D> getAll(Iterable<String> ids, Collection<String> missing) {
+    final Map<String, D> result = new HashMap<>();
+    final Set<String> seen = new HashSet<>();
+    final long now = System.currentTimeMillis();
+    int hits = 0;
+    int misses = 0;
+    synchronized (this) {
+      for (String id : ids) {
+        if (id == null || !seen.add(id)) {
+          continue;
+        }
+        final Object value = this.access(id);
+        if (value == null) {
+          missing.add(id);
+          misses += 1;
+        } else if (value instanceof Absent absent) {
+          if (absent.expires() < now) {
+            this.remove(id);
+            missing.add(id);
+            misses += 1;
+          } else {
+            hits += 1;
+          }
+        } else {
+          result.put(id, (D) value);
+          hits += 1;
+        }
+      }
+    }
+    this.hits.add(hits);
+    this.misses.add(misses);
+    return result;
+  }
+
+  /**
+   * Adds a descriptor to the cache.
+   */
+  public synchronized void put(String id, D descriptor) {
+    this.insert(id, descriptor);
+  }
+
+  /**
+   * Caches the given id as absent, unless an invalidation occurred since the given generation was obtained.
+   *
+   * @param id         ID that was not found in the database.
+   * @param generation Value of {@link #generation()} before the database was queried.
+   */
+  public synchronized void putAbsent(String id, long generation) {
+    if (this.generation == generation) {
+      this.insert(id, new Absent(System.currentTimeMillis() + ABSENT_TTL_MS));
+    }
+  }
+
+  /**
+   * Removes the given id from the cache; called whenever the corresponding entity is written.
+   */
+  public synchronized void invalidate(String id) {
+    this.generation += 1;
+    this.remove(id);
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  public synchronized void invalidateAll() {
+    this.generation += 1;
+    this.probation.clear();
+    this.protect.clear();
+    this.bytes = 0;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  public synchronized int size() {
+    return this.probation.size() + this.protect.size();
+  }
+
+  /**
+   * Returns the estimated memory footprint of all entries in bytes.
+   */
+  public synchronized long estimatedBytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Returns the value for the given id and promotes it to the protected segment if it was on probation.
+   */
+  private Object access(String id) {
+    Object value = this.protect.get(id);
+    if (value != null) {
+      return value;
+    }
+    value = this.probation.remove(id);
+    if (value != null) {
+      this.protect.put(id, value);
+      if (this.protect.size() > this.protectedCapacity) {
+        /* Demote the least recently used protected entry; it becomes the most recently used one on probation. */
+        final Iterator<Map.Entry<String, Object>> eldest = this.protect.entrySet().iterator();
+        final Map.Entry<String, Object> entry = eldest.next();
+        final String key = entry.getKey();
+        final Object demoted = entry.getValue();
+        eldest.remove();
+        this.probation.put(key, demoted);
+      }
+    }
+    return value;
+  }
+
+  private void insert(String id, Object value) {
+    this.remove(id);
+    this.probation.put(id, value);
+    this.bytes += this.weigh(id, value);
+    while (this.probation.size() + this.protect.size() > this.capacity) {
+      final LinkedHashMap<String, Object> segment = this.probation.isEmpty() ? this.protect : this.probation;
+      final Iterator<Map.Entry<String, Object>> eldest = segment.entrySet().iterator();
+      final Map.Entry<String, Object> entry = eldest.next();
+      final long weight = this.weigh(entry.getKey(), entry.getValue());
+      eldest.remove();
+      this.bytes -= weight;
+    }
+  }
+
+  private void remove(String id) {
+    Object value = this.probation.remove(id);
+    if (value == null) {
+      value = this.protect.remove(id);
+    }
+    if (value != null) {
+      this.bytes -= this.weigh(id, value);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private long weigh(String id, Object value) {
+    final long entry = ENTRY_OVERHEAD + id.length();
+    return value instanceof Absent ? entry + 16 : entry + this.weigher.applyAsLong((D) value);
+  }
+
+  /**
+   * Estimated memory footprint of a string with latin characters.
+   */
+  private static long length(String s) {
+    return s == null ? 0 : 40 + s.length();
+  }
+
+  /**
+   * Marker for ids that do not exist.
+   */
+  private record Absent(long expires) {
+
+  }
+}
@@ -1,13 +1,10 @@
 package org.vitrivr.cineast.core.db.dao.reader;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Lists;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.data.MediaType;
@@ -16,16 +13,14 @@
 import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
 
 public class MediaObjectReader extends AbstractEntityReader {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
-  private static final Cache<String, MediaObjectDescriptor> objectCache = CacheBuilder.newBuilder()
-      .maximumSize(100_000)
-      .expireAfterWrite(10, TimeUnit.MINUTES)
-      .build(); //TODO make configurable
+  private static final DescriptorCache<MediaObjectDescriptor> objectCache = DescriptorCache.OBJECTS;
 
   /**
    * Constructor for MediaObjectReader
@@ -38,13 +33,8 @@ public MediaObjectReader(DBSelector selector) {
   }
 
   public MediaObjectDescriptor lookUpObjectById(String objectId) {
-    List<Map<String, PrimitiveTypeProvider>> result = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], new StringTypeProvider(objectId));
-
-    if (result.isEmpty()) {
-      return new MediaObjectDescriptor();
-    }
-
-    return mapToDescriptor(result.get(0));
+    MediaObjectDescriptor descriptor = this.lookUpObjects(Collections.singletonList(objectId)).get(objectId);
+    return descriptor == null ? new MediaObjectDescriptor() : descriptor;
   }
 
   private MediaObjectDescriptor mapToDescriptor(Map<String, PrimitiveTypeProvider> map) {
@@ -119,27 +109,22 @@ public Map<String, MediaObjectDescriptor> lookUpObjects(Iterable<String> videoId
     }
 
     ArrayList<String> notCached = new ArrayList<>();
-    HashMap<String, MediaObjectDescriptor> _return = new HashMap<>();
-
-    videoIds.forEach(id -> {
-      MediaObjectDescriptor cached = objectCache.getIfPresent(id);
-      if (cached != null) {
-        _return.put(cached.getObjectId(), cached);
-      } else {
-        notCached.add(id);
-      }
-    });
+    final long generation = objectCache.generation();
+    Map<String, MediaObjectDescriptor> _return = objectCache.getAll(videoIds, notCached);
 
     if (!notCached.isEmpty()) {
 
       String dbQueryID = DBQueryIdGenerator.generateQueryId("load-obj", queryId);
 
-      List<Map<String, PrimitiveTypeProvider>> results = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], Lists.newArrayList(videoIds), dbQueryID);
+      /* Only ids that are not cached are looked up, in a single call. */
+      List<Map<String, PrimitiveTypeProvider>> results = selector.getRows(MediaObjectDescriptor.FIELDNAMES[0], notCached, dbQueryID);
       results.forEach(el -> {
         MediaObjectDescriptor d = mapToDescriptor(el);
         _return.put(d.getObjectId(), d);
       });
 
+      /* Remember ids that do not exist, so that they are not looked up again. */
+      notCached.stream().filter(id -> !_return.containsKey(id)).forEach(id -> objectCache.putAbsent(id, generation));
     }
     return _return;
   }
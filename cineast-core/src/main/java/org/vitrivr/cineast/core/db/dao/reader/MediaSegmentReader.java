@@ -2,8 +2,8 @@
 
 import static org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor.FIELDNAMES;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimaps;
@@ -15,22 +15,24 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.data.providers.primitive.IntTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
 import org.vitrivr.cineast.core.data.providers.primitive.StringTypeProvider;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 import org.vitrivr.cineast.core.util.DBQueryIdGenerator;
 
 public class MediaSegmentReader extends AbstractEntityReader {
 
-  private static final Cache<String, MediaSegmentDescriptor> segmentCache = CacheBuilder.newBuilder()
-      .maximumSize(100_000)
-      .expireAfterWrite(10, TimeUnit.MINUTES)
-      .build(); //TODO make configurable
+  private static final DescriptorCache<MediaSegmentDescriptor> segmentCache = DescriptorCache.SEGMENTS;
 
+  /**
+   * Object ids are shared by all segments of an object, hence cached descriptors reference a single instance per object.
+   */
+  private static final Interner<String> objectIds = Interners.newWeakInterner();
 
   /**
    * Constructor for MediaSegmentReader
@@ -54,7 +56,7 @@ private static Optional<MediaSegmentDescriptor> propertiesToDescriptor(Map<Strin
 
       return Optional.of(
           new MediaSegmentDescriptor(
-              properties.get(FIELDNAMES[1]).getString(),
+              objectIds.intern(properties.get(FIELDNAMES[1]).getString()),
               properties.get(FIELDNAMES[0]).getString(),
               properties.get(FIELDNAMES[2]).getInt(),
               properties.get(FIELDNAMES[3]).getInt(),
@@ -69,15 +71,7 @@ private static Optional<MediaSegmentDescriptor> propertiesToDescriptor(Map<Strin
   }
 
   public Optional<MediaSegmentDescriptor> lookUpSegment(String segmentId) {
-
-    MediaSegmentDescriptor cached = segmentCache.getIfPresent(segmentId);
-
-    if (cached != null) {
-      return Optional.of(cached);
-    }
-
-    Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[0], segmentId);
-    return descriptors.findFirst();
+    return Optional.ofNullable(this.lookUpSegments(Collections.singletonList(segmentId)).get(segmentId));
   }
 
   public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segmentIds) {
@@ -87,17 +81,9 @@ public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segme
   public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segmentIds, String queryId) {
 
     ArrayList<String> notCached = new ArrayList<>();
+    final long generation = segmentCache.generation();
     //this implicitly deduplicates the stream
-    Map<String, MediaSegmentDescriptor> _return = new HashMap<>();
-
-    segmentIds.forEach(id -> {
-      MediaSegmentDescriptor cached = segmentCache.getIfPresent(id);
-      if (cached != null) {
-        _return.put(id, cached);
-      } else {
-        notCached.add(id);
-      }
-    });
+    Map<String, MediaSegmentDescriptor> _return = segmentCache.getAll(segmentIds, notCached);
 
     if (!notCached.isEmpty()) {
       Stream<MediaSegmentDescriptor> descriptors = this.lookUpSegmentsByField(FIELDNAMES[0], notCached, queryId);
@@ -105,6 +91,9 @@ public Map<String, MediaSegmentDescriptor> lookUpSegments(Iterable<String> segme
       descriptors.forEach(msd -> {
         _return.put(msd.getSegmentId(), msd);
       });
+
+      /* Remember ids that do not exist, so that they are not looked up again. */
+      notCached.stream().filter(id -> !_return.containsKey(id)).forEach(id -> segmentCache.putAbsent(id, generation));
     }
 
     return _return;
@@ -121,13 +110,29 @@ public ListMultimap<String, MediaSegmentDescriptor> lookUpSegmentsOfObjects(Iter
   }
 
   public List<MediaSegmentDescriptor> lookUpSegmentByNumber(String objectId, int segmentNumber) {
-    List<MediaSegmentDescriptor> all = this.lookUpSegmentsOfObject(objectId);
-    return all.stream().filter(it -> it.getSequenceNumber() == segmentNumber).collect(Collectors.toList());
+    return this.lookUpSegmentsByNumberRange(objectId, segmentNumber, segmentNumber);
   }
 
-  public List<MediaSegmentDescriptor> lookUpSegmentsByNumberRange(String objectId, int lower, int upper) { //TODO implementing this without selecting all segments would require additional functionality in DBSelector
-    List<MediaSegmentDescriptor> all = this.lookUpSegmentsOfObject(objectId);
-    return all.stream().filter(it -> it.getSequenceNumber() >= lower && it.getSequenceNumber() <= upper).collect(Collectors.toList());
+  /**
+   * Looks up the segments of an object whose sequence number lies within the given bounds. The range predicate is evaluated by the {@link DBSelector}, i.e. the other segments of the object are not fetched.
+   *
+   * @param objectId ID of the object.
+   * @param lower    Lowest sequence number (inclusive).
+   * @param upper    Highest sequence number (inclusive).
+   * @return Segments ordered by sequence number.
+   */
+  public List<MediaSegmentDescriptor> lookUpSegmentsByNumberRange(String objectId, int lower, int upper) {
+    if (lower > upper) {
+      return new ArrayList<>(0);
+    }
+    List<Map<String, PrimitiveTypeProvider>> segmentsProperties = this.selector.getRowsInRange(FIELDNAMES[1], new StringTypeProvider(objectId), FIELDNAMES[2], new IntTypeProvider(lower), new IntTypeProvider(upper), -1, null);
+    return segmentsProperties
+        .stream()
+        .map(MediaSegmentReader::propertiesToDescriptor)
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .peek(descriptor -> segmentCache.put(descriptor.getSegmentId(), descriptor))
+        .collect(Collectors.toList());
   }
 
   private Stream<MediaSegmentDescriptor> lookUpSegmentsByField(String fieldName, String fieldValue) {
@@ -3,22 +3,79 @@
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistentTuple;
 
-
+/**
+ * Base class for writers of entities. If the underlying {@link PersistencyWriter} supports batching, tuples are written behind: {@link #write(Object)} only enqueues the tuple, while a dedicated flusher thread per writer (i.e. per entity) coalesces queued tuples into batches of {@link PersistencyWriter#supportedBatchSize()} tuples, or whatever has been queued for {@link #MAX_DELAY_MS}, and persists them.
+ * <p>
+ * At most {@link #BATCHES_IN_FLIGHT} batches may be queued or in flight at any time. If the persistence layer falls behind, {@link #write(Object)} blocks until a batch has been committed, which propagates backpressure to the extraction pipeline.
+ * <p>
+ * Batches that cannot be persisted are not retried. The number of tuples lost is reported by the next call to {@link #flushAndAwait()}, which throws an {@link IllegalStateException}.
+ */
 public abstract class AbstractBatchedEntityWriter<T> implements Closeable {
 
+  private static final Logger LOGGER = LogManager.getLogger();
+
   /**
-   * The {@link Queue} used to store {@link PersistentTuple}s until they are flushed to disk.
+   * Maximum time in milliseconds a tuple is held back to coalesce it with subsequent tuples.
    */
-  private final ArrayBlockingQueue<PersistentTuple> buffer;
+  private static final long MAX_DELAY_MS = 1000;
+
+  /**
+   * Number of full batches that may be queued or in flight before {@link #write(Object)} blocks.
+   */
+  private static final int BATCHES_IN_FLIGHT = 4;
+
+  private static final AtomicInteger FLUSHER_COUNTER = new AtomicInteger();
+
+  private static volatile WriteBehindMetrics metrics = WriteBehindMetrics.NONE;
+
   /**
    * Flag indicating whether inserts should be batched in memory and submitted all at once.
    */
   private final boolean batch;
+  private final int batchSize;
+  /**
+   * The queue used to store {@link PersistentTuple}s until they are persisted by the flusher thread; bounded by {@link #capacity}.
+   */
+  private final ConcurrentLinkedQueue<PersistentTuple> queue = new ConcurrentLinkedQueue<>();
+  /**
+   * Free slots for tuples. Permits are returned once a tuple has been committed, so in-flight batches count as well.
+   */
+  private final Semaphore capacity;
+  /**
+   * Number of tuples enqueued so far. Incremented before the tuple is offered, so that a tuple is never committed before it is counted.
+   */
+  private final AtomicLong enqueued = new AtomicLong();
+  /**
+   * Number of tuples handled by the flusher thread so far, whether they were persisted successfully or not.
+   */
+  private volatile long committed = 0;
+  /**
+   * Number of enqueued tuples that should be persisted without waiting for a full batch.
+   */
+  private final AtomicLong flushRequested = new AtomicLong();
+  /**
+   * Number of tuples in failed batches that have not been reported by {@link #flushAndAwait()} yet.
+   */
+  private final AtomicLong lost = new AtomicLong();
+  /**
+   * Exception thrown by the most recent failed batch, if any.
+   */
+  private volatile RuntimeException failure;
+  private final Object commitMonitor = new Object();
+  private volatile Thread flusher;
+  private volatile boolean closing = false;
+  private String entityName;
   /**
    * {@link PersistencyWriter} instance used to persist changes to the underlying persistence layer.
    */
@@ -26,20 +83,42 @@
 
   protected AbstractBatchedEntityWriter(PersistencyWriter<?> writer) {
     this.batch = writer.supportedBatchSize() > 1;
-    if (this.batch) {
-      this.buffer = new ArrayBlockingQueue<>(writer.supportedBatchSize());
-    } else {
-      this.buffer = null; //not used
-    }
+    this.batchSize = Math.max(writer.supportedBatchSize(), 1);
+    this.capacity = new Semaphore(this.batch ? this.batchSize * BATCHES_IN_FLIGHT : 0);
     this.writer = writer;
   }
 
+  /**
+   * Registers the {@link WriteBehindMetrics} all writers report to.
+   */
+  public static void setMetrics(WriteBehindMetrics metrics) {
+    AbstractBatchedEntityWriter.metrics = metrics == null ? WriteBehindMetrics.NONE : metrics;
+  }
+
   protected abstract void init();
 
   protected abstract PersistentTuple generateTuple(T entity);
 
   /**
-   * Persists the provided entity by first converting it to a {@link PersistentTuple} and subsequently writing that tuple to the local buffer. If the buffer is full, i.e. the batch size was reached, then buffer is flushed first.
+   * Invoked once the given tuples have been handed to the persistence layer, e.g. to invalidate cached copies of the written entities. Called on the flusher thread if tuples are written behind.
+   *
+   * @param tuples The persisted tuples.
+   */
+  protected void persisted(List<PersistentTuple> tuples) {
+  }
+
+  /**
+   * Opens the entity on the local {@link PersistencyWriter}.
+   *
+   * @param entityName Name of the entity written by this writer.
+   */
+  protected boolean open(String entityName) {
+    this.entityName = entityName;
+    return this.writer.open(entityName);
+  }
+
+  /**
+   * Persists the provided entity by first converting it to a {@link PersistentTuple} and subsequently enqueueing that tuple for the flusher thread. Only blocks if {@link #BATCHES_IN_FLIGHT} batches are already pending.
    *
    * @param entity The entity that should be persisted.
    */
@@ -48,13 +127,24 @@ public void write(T entity) {
     if (tuple == null) {
       return; // One of the entity's value provider was a NothingProvider, hence nothing is written.
     }
-    if (this.batch) {
-      if (this.buffer.remainingCapacity() == 0) {
-        this.flush();
-      }
-      this.buffer.offer(tuple);
-    } else {
+    if (!this.batch) {
       this.writer.persist(tuple);
+      this.persisted(List.of(tuple));
+      return;
+    }
+    if (this.closing) {
+      throw new IllegalStateException("Writer for entity " + this.entityName + " has already been closed.");
+    }
+    if (!this.capacity.tryAcquire()) {
+      metrics.reportBackpressure(this.entityName());
+      this.wakeFlusher();
+      this.capacity.acquireUninterruptibly();
+    }
+    final long pending = this.enqueued.incrementAndGet() - this.committed;
+    this.queue.offer(tuple);
+    /* Wake the flusher once it has something to wait for and whenever a batch is full. */
+    if (pending == 1 || pending % this.batchSize == 0) {
+      this.wakeFlusher();
     }
   }
 
@@ -63,30 +153,69 @@ public void write(List<T> entity) {
   }
 
   /**
-   * Drains the content of the buffer and writes it to the underlying persistence layer using the local {@link PersistencyWriter} instance.
+   * Persists all tuples written so far and waits until they have been committed. Equivalent to {@link #flushAndAwait()}.
    */
   public final void flush() {
-    if (!this.batch) {
+    this.flushAndAwait();
+  }
+
+  /**
+   * Requests all tuples written so far to be persisted without waiting for a full batch. Does not wait for them to be committed.
+   */
+  public final void flushAsync() {
+    final long target = this.enqueued.get();
+    if (!this.batch || target <= this.committed) {
       return;
     }
-    final List<PersistentTuple> batch = new ArrayList<>(buffer.size());
-    this.buffer.drainTo(batch);
-    this.writer.persist(batch);
+    this.flushRequested.accumulateAndGet(target, Math::max);
+    this.wakeFlusher();
   }
 
   /**
-   * Flushes the buffer and closes the local {@link PersistencyWriter}.
+   * Persists all tuples written so far (by any thread) and waits until they have been committed, e.g. at the end of a media object.
+   *
+   * @throws IllegalStateException If batches failed to persist since the last call. Every loss is reported once.
+   */
+  public final void flushAndAwait() {
+    final long target = this.enqueued.get();
+    if (this.batch && target > this.committed) {
+      this.flushAsync();
+      this.awaitCommitted(target);
+    }
+    final long lost = this.lost.getAndSet(0);
+    if (lost > 0) {
+      throw new IllegalStateException("Failed to persist " + lost + " tuples into " + this.entityName() + ".", this.failure);
+    }
+  }
+
+  /**
+   * Persists all pending tuples, stops the flusher thread and closes the local {@link PersistencyWriter}. Tuples that could not be persisted are reported as by {@link #flushAndAwait()}, after the writer has been closed.
    */
   @Override
   public final void close() {
     if (this.writer != null) {
-      if (this.batch && this.buffer.size() > 0) {
-        this.flush();
-      }
-
-      if (this.writer != null) {
-        this.writer.close();
-        this.writer = null;
+      try {
+        if (this.batch) {
+          try {
+            this.flushAndAwait();
+          } finally {
+            this.closing = true;
+            final Thread thread = this.flusher;
+            if (thread != null) {
+              LockSupport.unpark(thread);
+              try {
+                thread.join();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          }
+        }
+      } finally {
+        if (this.writer != null) {
+          this.writer.close();
+          this.writer = null;
+        }
       }
     }
   }
@@ -95,4 +224,110 @@ public boolean idExists(String id) {
     return this.writer.idExists(id);
   }
 
+  private String entityName() {
+    return this.entityName == null ? this.getClass().getSimpleName() : this.entityName;
+  }
+
+  private void wakeFlusher() {
+    Thread thread = this.flusher;
+    if (thread == null) {
+      synchronized (this) {
+        thread = this.flusher;
+        if (thread == null) {
+          thread = new Thread(this::runFlusher, "write-behind-" + this.entityName() + "-" + FLUSHER_COUNTER.incrementAndGet());
+          thread.setDaemon(true);
+          this.flusher = thread;
+          thread.start();
+          return;
+        }
+      }
+    }
+    LockSupport.unpark(thread);
+  }
+
+  private void awaitCommitted(long target) {
+    synchronized (this.commitMonitor) {
+      while (this.committed < target) {
+        try {
+          this.commitMonitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Main loop of the flusher thread: waits until a batch is full, a flush has been requested or the oldest pending tuple has waited for {@link #MAX_DELAY_MS}, then persists one batch.
+   */
+  private void runFlusher() {
+    long pendingSince = 0;
+    while (true) {
+      final long pending = this.enqueued.get() - this.committed;
+      if (pending <= 0) {
+        if (this.closing) {
+          return;
+        }
+        pendingSince = 0;
+        LockSupport.park(this);
+        continue;
+      }
+      final long now = System.nanoTime();
+      if (pendingSince == 0) {
+        pendingSince = now;
+      }
+      final long remaining = TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MS) - (now - pendingSince);
+      if (pending < this.batchSize && this.flushRequested.get() <= this.committed && remaining > 0 && !this.closing) {
+        LockSupport.parkNanos(this, remaining);
+        continue;
+      }
+      final List<PersistentTuple> batch = new ArrayList<>((int) Math.min(pending, this.batchSize));
+      while (batch.size() < this.batchSize) {
+        final PersistentTuple tuple = this.queue.poll();
+        if (tuple == null) {
+          break;
+        }
+        batch.add(tuple);
+      }
+      if (batch.isEmpty()) {
+        /* A writer has counted its tuple but not yet offered it. */
+        Thread.onSpinWait();
+        continue;
+      }
+      this.commit(batch);
+      pendingSince = this.enqueued.get() > this.committed ? System.nanoTime() : 0;
+    }
+  }
+
+  private void commit(List<PersistentTuple> batch) {
+    final int size = batch.size();
+    final String entity = this.entityName();
+    metrics.reportQueueDepth(entity, (int) (this.enqueued.get() - this.committed));
+    final long start = System.currentTimeMillis();
+    boolean success = false;
+    try {
+      success = this.writer.persist(batch);
+      if (!success) {
+        LOGGER.error("Failed to persist batch of {} tuples into {}.", size, entity);
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Failed to persist batch of {} tuples into {}.", size, entity, e);
+      this.failure = e;
+    }
+    if (!success) {
+      this.lost.addAndGet(size);
+    }
+    metrics.reportBatch(entity, size, System.currentTimeMillis() - start);
+    try {
+      this.persisted(batch);
+    } catch (RuntimeException e) {
+      LOGGER.error("Post-commit hook failed for batch of {} tuples into {}.", size, entity, e);
+    }
+    synchronized (this.commitMonitor) {
+      this.committed += size;
+      this.commitMonitor.notifyAll();
+    }
+    this.capacity.release(size);
+  }
 }
@@ -20,7 +20,7 @@ public BatchedTagWriter(PersistencyWriter<?> writer, String entityname) {
   @Override
   public void init() {
     this.writer.setFieldNames(TagReader.TAG_ID_COLUMNNAME, SegmentTags.TAG_ID_QUALIFIER, "score");
-    this.writer.open(this.entityname);
+    this.open(this.entityname);
   }
 
   @Override
@@ -18,7 +18,7 @@ public MediaObjectMetadataWriter(PersistencyWriter<?> writer, String tableName)
     super(writer);
     this.tableName = tableName;
     this.writer.setFieldNames(MediaObjectMetadataDescriptor.FIELDNAMES);
-    this.writer.open(tableName);
+    this.open(tableName);
   }
 
   @Override
@@ -1,8 +1,10 @@
 package org.vitrivr.cineast.core.db.dao.writer;
 
+import java.util.List;
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 
 
 public class MediaObjectWriter extends AbstractBatchedEntityWriter<MediaObjectDescriptor> {
@@ -10,7 +12,7 @@ public class MediaObjectWriter extends AbstractBatchedEntityWriter<MediaObjectDe
   public MediaObjectWriter(PersistencyWriter<?> writer) {
     super(writer);
     this.writer.setFieldNames(MediaObjectDescriptor.FIELDNAMES);
-    this.writer.open(MediaObjectDescriptor.ENTITY);
+    this.open(MediaObjectDescriptor.ENTITY);
   }
 
   /**
@@ -22,6 +24,15 @@ protected void init() {
 
   @Override
   protected PersistentTuple generateTuple(MediaObjectDescriptor entity) {
+    DescriptorCache.OBJECTS.invalidate(entity.getObjectId());
     return this.writer.generateTuple(entity.getObjectId(), entity.getMediatypeId(), entity.getName(), entity.getPath());
   }
+
+  /**
+   * Invalidates the cached descriptors once more after the tuples have been committed, since lookups in the meantime may have missed them.
+   */
+  @Override
+  protected void persisted(List<PersistentTuple> tuples) {
+    tuples.forEach(tuple -> DescriptorCache.OBJECTS.invalidate(String.valueOf(tuple.getElements().get(0))));
+  }
 }
@@ -18,7 +18,7 @@ public <R> MediaSegmentMetadataWriter(PersistencyWriter<R> writer, String testSe
   @Override
   protected void init() {
     this.writer.setFieldNames(MediaSegmentMetadataDescriptor.FIELDNAMES);
-    this.writer.open(tableName);
+    this.open(tableName);
   }
 
   @Override
@@ -1,8 +1,10 @@
 package org.vitrivr.cineast.core.db.dao.writer;
 
+import java.util.List;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
 
 
 public class MediaSegmentWriter extends AbstractBatchedEntityWriter<MediaSegmentDescriptor> {
@@ -10,7 +12,7 @@ public class MediaSegmentWriter extends AbstractBatchedEntityWriter<MediaSegment
   public MediaSegmentWriter(PersistencyWriter<?> writer) {
     super(writer);
     this.writer.setFieldNames(MediaSegmentDescriptor.FIELDNAMES);
-    this.writer.open(MediaSegmentDescriptor.ENTITY);
+    this.open(MediaSegmentDescriptor.ENTITY);
   }
 
   @Override
@@ -19,6 +21,15 @@ protected void init() {
 
   @Override
   protected PersistentTuple generateTuple(MediaSegmentDescriptor entity) {
+    DescriptorCache.SEGMENTS.invalidate(entity.getSegmentId());
     return this.writer.generateTuple(entity.getSegmentId(), entity.getObjectId(), entity.getSequenceNumber(), entity.getStart(), entity.getEnd(), entity.getStartabs(), entity.getEndabs());
   }
+
+  /**
+   * Invalidates the cached descriptors once more after the tuples have been committed, since lookups in the meantime may have missed them.
+   */
+  @Override
+  protected void persisted(List<PersistentTuple> tuples) {
+    tuples.forEach(tuple -> DescriptorCache.SEGMENTS.invalidate(String.valueOf(tuple.getElements().get(0))));
+  }
 }
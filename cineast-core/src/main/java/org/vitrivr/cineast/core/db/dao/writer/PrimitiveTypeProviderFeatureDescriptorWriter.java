@@ -16,7 +16,7 @@ public PrimitiveTypeProviderFeatureDescriptorWriter(PersistencyWriter<?> writer,
 
   @Override
   public void init() {
-    this.writer.open(this.entityname);
+    this.open(this.entityname);
   }
 
   @Override
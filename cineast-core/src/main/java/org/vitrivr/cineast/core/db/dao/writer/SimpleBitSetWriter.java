@@ -18,7 +18,7 @@ public SimpleBitSetWriter(PersistencyWriter<?> writer, String entityName) {
 
   @Override
   protected void init() {
-    this.writer.open(this.entityName);
+    this.open(this.entityName);
   }
 
   @Override
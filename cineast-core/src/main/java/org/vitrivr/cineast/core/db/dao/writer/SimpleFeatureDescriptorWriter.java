@@ -18,7 +18,7 @@ public SimpleFeatureDescriptorWriter(PersistencyWriter<?> writer, String entityn
 
   @Override
   public void init() {
-    this.writer.open(this.entityname);
+    this.open(this.entityname);
   }
 
   @Override
@@ -18,7 +18,7 @@ public SimpleFulltextFeatureDescriptorWriter(PersistencyWriter<?> writer, String
 
   @Override
   public void init() {
-    this.writer.open(this.entityname);
+    this.open(this.entityname);
   }
 
   @Override
@@ -0,0 +1,36 @@
+package org.vitrivr.cineast.core.db.dao.writer;
+
+/**
+ * Receives statistics about the write-behind queues of {@link AbstractBatchedEntityWriter}s. Register an implementation using {@link AbstractBatchedEntityWriter#setMetrics(WriteBehindMetrics)}; all methods are called from the flusher threads or, for backpressure, from the writing thread.
+ */
+public interface WriteBehindMetrics {
+
+  /**
+   * Does not record anything.
+   */
+  WriteBehindMetrics NONE = new WriteBehindMetrics() {
+  };
+
+  /**
+   * @param entity Name of the entity.
+   * @param depth  Number of tuples that are queued or in flight before a batch is committed.
+   */
+  default void reportQueueDepth(String entity, int depth) {
+  }
+
+  /**
+   * @param entity       Name of the entity.
+   * @param size         Number of tuples in the committed batch.
+   * @param milliseconds Time it took to commit the batch.
+   */
+  default void reportBatch(String entity, int size, long milliseconds) {
+  }
+
+  /**
+   * Called whenever a writing thread has to wait because the queue of the entity is full.
+   *
+   * @param entity Name of the entity.
+   */
+  default void reportBackpressure(String entity) {
+  }
+}
@@ -6,22 +6,31 @@
 import org.vitrivr.cineast.core.data.entities.MediaObjectMetadataDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentMetadataDescriptor;
+import org.vitrivr.cineast.core.db.ColumnarStore;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
 import org.vitrivr.cineast.core.db.setup.EntityDefinition;
 
 /**
- * Implementation of a Cineast {@link EntityCreator} on top of the {@link InMemoryStore}.
+ * Implementation of a Cineast {@link EntityCreator} on top of the {@link InMemoryStore} or any other {@link ColumnarStore}.
  *
  * @see InMemoryStore
  */
 public class InMemoryEntityCreator implements EntityCreator {
 
-  private final InMemoryStore store = InMemoryStore.sharedInMemoryStore();
+  private final ColumnarStore store;
+
+  public InMemoryEntityCreator() {
+    this(InMemoryStore.sharedInMemoryStore());
+  }
+
+  public InMemoryEntityCreator(ColumnarStore store) {
+    this.store = store;
+  }
 
   @Override
   public boolean createMultiMediaObjectsEntity() {
-    return this.store.createEntity(MediaObjectDescriptor.ENTITY,
+    return this.store.createEntity(MediaObjectDescriptor.ENTITY, true,
         MediaObjectDescriptor.FIELDNAMES[0],
         MediaObjectDescriptor.FIELDNAMES[1],
         MediaObjectDescriptor.FIELDNAMES[2],
@@ -51,7 +60,7 @@ public boolean createSegmentMetadataEntity(String tableName) {
 
   @Override
   public boolean createSegmentEntity() {
-    return this.store.createEntity(MediaSegmentDescriptor.ENTITY,
+    return this.store.createEntity(MediaSegmentDescriptor.ENTITY, true,
         MediaSegmentDescriptor.FIELDNAMES[0],
         MediaSegmentDescriptor.FIELDNAMES[1],
         MediaSegmentDescriptor.FIELDNAMES[2],
@@ -67,22 +76,26 @@ public boolean createFeatureEntity(String featureEntityName, boolean unique, int
     final String[] columns = new String[featureNames.length + 1];
     columns[0] = GENERIC_ID_COLUMN_QUALIFIER;
     System.arraycopy(featureNames, 0, columns, 1, columns.length - 1);
-    return this.store.createEntity(featureEntityName, columns).isPresent();
+    return this.store.createEntity(featureEntityName, unique, columns).isPresent();
   }
 
   @Override
   public boolean createFeatureEntity(String featureEntityName, boolean unique, AttributeDefinition... attributes) {
-    return createIdEntity(featureEntityName, attributes);
+    return this.createIdEntity(featureEntityName, unique, attributes);
   }
 
   @Override
   public boolean createIdEntity(String entityName, AttributeDefinition... attributes) {
+    return this.createIdEntity(entityName, false, attributes);
+  }
+
+  private boolean createIdEntity(String entityName, boolean unique, AttributeDefinition... attributes) {
     final String[] columns = new String[attributes.length + 1];
     columns[0] = GENERIC_ID_COLUMN_QUALIFIER;
     for (int i = 1; i < columns.length; i++) {
       columns[i] = attributes[i - 1].getName();
     }
-    return this.store.createEntity(entityName, columns).isPresent();
+    return this.store.createEntity(entityName, unique, columns).isPresent();
   }
 
   @Override
@@ -108,7 +121,7 @@ public boolean dropEntity(String entityName) {
 
   @Override
   public boolean createHashNonUniqueIndex(String entityName, String column) {
-    /* Ignored for in-memory store*/
+    /* Ignored for columnar stores */
     return false;
   }
 
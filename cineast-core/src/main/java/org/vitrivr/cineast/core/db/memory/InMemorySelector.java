@@ -0,0 +1,585 @@
+package org.vitrivr.cineast.core.db.memory;
+
+import static org.vitrivr.cineast.core.util.CineastConstants.DB_DISTANCE_VALUE_QUALIFIER;
+
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.DoubleTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.FloatTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
+import org.vitrivr.cineast.core.db.ColumnarEntity;
+import org.vitrivr.cineast.core.db.ColumnarStore;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.HammingIndex;
+import org.vitrivr.cineast.core.db.RelationalOperator;
+import org.vitrivr.cineast.core.util.distance.BitSetHammingDistance;
+import org.vitrivr.cineast.core.util.distance.FloatBlockDistance;
+
+/**
+ * Implementation of a Cineast {@link DBSelector} on top of the {@link InMemoryStore} or any other {@link ColumnarStore}.
+ * <p>
+ * Lookups on the key column are served by the dictionary of the {@link ColumnarEntity} and range lookups by its sorted range indexes, all other lookups are full scans. kNN search is a brute-force scan over the columnar vector storage, kNN search with bit sets of up to 64 bits is answered by a {@link HammingIndex}.
+ *
+ * @see InMemoryStore
+ */
+public class InMemorySelector implements DBSelector {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Pattern used to split text into tokens for fulltext search.
+   */
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final ColumnarStore store;
+
+  private ColumnarEntity entity = null;
+
+  private String name = null;
+
+  public InMemorySelector() {
+    this(InMemoryStore.sharedInMemoryStore());
+  }
+
+  public InMemorySelector(ColumnarStore store) {
+    this.store = store;
+  }
+
+  @Override
+  public boolean open(String name) {
+    final Optional<? extends ColumnarEntity> entity = this.store.getEntity(name);
+    if (entity.isPresent()) {
+      this.entity = entity.get();
+      this.name = name;
+      return true;
+    } else {
+      LOGGER.warn("Entity '{}' does not exist in the {}.", name, this.store.getClass().getSimpleName());
+      return false;
+    }
+  }
+
+  @Override
+  public void close() {
+    this.entity = null;
+    this.name = null;
+  }
+
+  @Override
+  public <E extends DistanceElement> List<E> getNearestNeighboursGeneric(int k, float[] vector, String column, Class<E> distanceElementClass, ReadableQueryConfig queryConfig) {
+    return this.read(() -> this.keys(this.knn(k, vector, column, queryConfig), distanceElementClass));
+  }
+
+  @Override
+  public <E extends DistanceElement> List<E> getNearestNeighboursGeneric(int k, PrimitiveTypeProvider queryProvider, String column, Class<E> distanceElementClass, ReadableQueryConfig queryConfig) {
+    if (queryProvider.getType().equals(ProviderDataType.FLOAT_ARRAY) || queryProvider.getType().equals(ProviderDataType.INT_ARRAY)) {
+      return this.getNearestNeighboursGeneric(k, PrimitiveTypeProvider.getSafeFloatArray(queryProvider), column, distanceElementClass, queryConfig);
+    }
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new ArrayList<>(0);
+    }
+    final boolean hash = queryProvider.getType().equals(ProviderDataType.BITSET) && HammingIndex.isHash(queryProvider.getBitSet());
+    final ToDoubleFunction<Object> distance = hash ? null : distance(queryProvider);
+    return this.read(() -> {
+      final FixedSizeDistanceHeap heap;
+      if (hash) {
+        heap = this.entity.nearestNeighboursHamming(index, k, HammingIndex.pack(queryProvider.getBitSet()), HammingIndex.BITS, this.candidates(queryConfig));
+      } else {
+        heap = this.entity.nearestNeighboursByValue(index, k, distance, this.candidates(queryConfig));
+      }
+      return this.keys(heap, distanceElementClass);
+    });
+  }
+
+  /**
+   * Resolves the rows of the {@link FixedSizeDistanceHeap} to {@link DistanceElement}s. Must be called within the same {@link #read(Supplier)} as the search that produced the heap.
+   */
+  private <E extends DistanceElement> List<E> keys(FixedSizeDistanceHeap heap, Class<E> distanceElementClass) {
+    final List<E> result = new ArrayList<>(heap.size());
+    for (int i = 0; i < heap.size(); i++) {
+      result.add(DistanceElement.create(distanceElementClass, this.entity.key(heap.index(i)), heap.distance(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the keys of all rows whose hash in the given column lies within the given Hamming distance of the query. Answered by the {@link HammingIndex} of the {@link ColumnarEntity}, so that callers needn't keep a copy of the hashes.
+   *
+   * @param column Name of the column that holds the hashes.
+   * @param query  The query hash, a bit set of at most {@link HammingIndex#BITS} bits.
+   * @param radius Maximum Hamming distance (inclusive).
+   * @return Keys of the matching rows, in row order.
+   */
+  public List<String> getKeysWithinHammingDistance(String column, BitSet query, int radius) {
+    final int index = this.columnIndex(column);
+    if (index < 0 || !HammingIndex.isHash(query)) {
+      return new ArrayList<>(0);
+    }
+    return this.read(() -> Arrays.stream(this.entity.withinHammingDistance(index, HammingIndex.pack(query), radius)).mapToObj(this.entity::key).collect(Collectors.toList()));
+  }
+
+  /**
+   * Binds a distance to a scalar or bit set query: the absolute difference for numbers, 0 or 1 for booleans, the Levenshtein distance for strings and the Hamming distance for bit sets. Values of another type have a NaN distance and are thus skipped.
+   *
+   * @param query The query value.
+   * @return The distance function bound to the query.
+   */
+  private static ToDoubleFunction<Object> distance(PrimitiveTypeProvider query) {
+    switch (query.getType()) {
+      case BITSET:
+        final BitSet bits = query.getBitSet();
+        final BitSetHammingDistance hamming = new BitSetHammingDistance();
+        return value -> value instanceof BitSet ? hamming.applyAsDouble(bits, (BitSet) value) : Double.NaN;
+      case BOOLEAN:
+        final boolean b = query.getBoolean();
+        return value -> value instanceof Boolean ? ((Boolean) value == b ? 0.0 : 1.0) : Double.NaN;
+      case BYTE:
+      case SHORT:
+      case INT:
+      case LONG:
+        final long l = query.getLong();
+        return value -> value instanceof Number ? Math.abs(((Number) value).doubleValue() - l) : Double.NaN;
+      case FLOAT:
+      case DOUBLE:
+        final double d = query.getDouble();
+        return value -> value instanceof Number ? Math.abs(((Number) value).doubleValue() - d) : Double.NaN;
+      case STRING:
+        final String s = query.getString();
+        final LevenshteinDistance levenshtein = LevenshteinDistance.getDefaultInstance();
+        return value -> value instanceof String ? levenshtein.apply(s, (String) value) : Double.NaN;
+      default:
+        LOGGER.error("{} cannot compute distances to values of type {}.", InMemorySelector.class.getSimpleName(), query.getType());
+        throw new IllegalArgumentException("Unsupported query type " + query.getType() + ".");
+    }
+  }
+
+  @Override
+  public <E extends DistanceElement> List<E> getBatchedNearestNeighbours(int k, List<float[]> vectors, String column, Class<E> distanceElementClass, List<ReadableQueryConfig> queryConfigs) {
+    if (vectors.size() != queryConfigs.size()) {
+      throw new IllegalArgumentException("The number of query vectors (" + vectors.size() + ") does not match the number of query configs (" + queryConfigs.size() + ").");
+    }
+    final List<E> result = new ArrayList<>(k * vectors.size());
+    for (int i = 0; i < vectors.size(); i++) {
+      result.addAll(this.getNearestNeighboursGeneric(k, vectors.get(i), column, distanceElementClass, queryConfigs.get(i)));
+    }
+    return result;
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getNearestNeighbourRows(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
+    return this.read(() -> {
+      final FixedSizeDistanceHeap heap = this.knn(k, vector, column, queryConfig);
+      final int[] rows = new int[heap.size()];
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = heap.index(i);
+      }
+      final List<Map<String, PrimitiveTypeProvider>> result = this.entity.materialize(rows, null);
+      for (int i = 0; i < result.size(); i++) {
+        result.get(i).put(DB_DISTANCE_VALUE_QUALIFIER, new DoubleTypeProvider(heap.distance(i)));
+      }
+      return result;
+    });
+  }
+
+  @Override
+  public List<float[]> getFeatureVectors(String column, PrimitiveTypeProvider value, String vectorName, ReadableQueryConfig queryConfig) {
+    final int vectorIndex = this.columnIndex(vectorName);
+    if (vectorIndex < 0) {
+      return new ArrayList<>(0);
+    }
+    final List<Object> values = this.read(() -> this.entity.values(this.rowsFor(column, Collections.singletonList(value)), vectorIndex));
+    return values.stream().filter(v -> v instanceof float[]).map(v -> (float[]) v).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, Iterable<PrimitiveTypeProvider> values, String dbQueryId) {
+    if (values == null) {
+      return new ArrayList<>(0);
+    }
+    final List<PrimitiveTypeProvider> list = new ArrayList<>();
+    values.forEach(list::add);
+    return this.entity == null ? new ArrayList<>(0) : this.read(() -> this.entity.materialize(this.rowsFor(column, list), null));
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getFulltextRows(int rows, String column, ReadableQueryConfig queryConfig, String... terms) {
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new ArrayList<>(0);
+    }
+    final List<Predicate<String[]>> matchers = Arrays.stream(terms).map(InMemorySelector::fulltextMatcher).collect(Collectors.toList());
+    return this.read(() -> {
+      final int[] all = this.entity.allRows();
+      final List<Object> texts = this.entity.values(all, index);
+
+      /* Score is the number of terms matched by a row; rows are ranked by descending score and insertion order. */
+      final List<int[]> hits = new ArrayList<>();
+      for (int i = 0; i < texts.size(); i++) {
+        final Object text = texts.get(i);
+        if (text == null) {
+          continue;
+        }
+        final String[] tokens = tokenize(text.toString());
+        final int score = (int) matchers.stream().filter(m -> m.test(tokens)).count();
+        if (score > 0) {
+          hits.add(new int[]{all[i], score});
+        }
+      }
+      hits.sort(Comparator.<int[]>comparingInt(h -> -h[1]).thenComparingInt(h -> h[0]));
+      final List<int[]> top = hits.subList(0, Math.min(rows, hits.size()));
+      final List<Map<String, PrimitiveTypeProvider>> result = this.entity.materialize(top.stream().mapToInt(h -> h[0]).toArray(), null);
+      for (int i = 0; i < result.size(); i++) {
+        result.get(i).put(DB_DISTANCE_VALUE_QUALIFIER, new FloatTypeProvider(top.get(i)[1]));
+      }
+      return result;
+    });
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRows(String column, RelationalOperator operator, Iterable<PrimitiveTypeProvider> values, ReadableQueryConfig queryConfig) {
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new ArrayList<>(0);
+    }
+    final List<Object> objects = new ArrayList<>();
+    if (values != null) {
+      values.forEach(v -> objects.add(PrimitiveTypeProvider.getObject(v)));
+    }
+    final Predicate<Object> predicate;
+    switch (operator) {
+      case EQ:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) == 0;
+        break;
+      case NEQ:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) != 0;
+        break;
+      case GEQ:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) >= 0;
+        break;
+      case LEQ:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) <= 0;
+        break;
+      case GREATER:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) > 0;
+        break;
+      case LESS:
+        predicate = v -> v != null && !objects.isEmpty() && compare(v, objects.get(0)) < 0;
+        break;
+      case BETWEEN:
+        if (objects.size() < 2) {
+          LOGGER.warn("BETWEEN requires two values, {} given.", objects.size());
+          return new ArrayList<>(0);
+        }
+        predicate = v -> v != null && compare(v, objects.get(0)) >= 0 && compare(v, objects.get(1)) <= 0;
+        break;
+      case LIKE:
+      case NLIKE: {
+        final List<Pattern> patterns = objects.stream().map(o -> likePattern(String.valueOf(o))).collect(Collectors.toList());
+        final Predicate<Object> like = v -> v != null && patterns.stream().anyMatch(p -> p.matcher(v.toString()).matches());
+        predicate = operator == RelationalOperator.LIKE ? like : v -> v != null && !like.test(v);
+        break;
+      }
+      case MATCH: {
+        final List<Predicate<String[]>> matchers = objects.stream().map(o -> fulltextMatcher(String.valueOf(o))).collect(Collectors.toList());
+        predicate = v -> {
+          if (v == null) {
+            return false;
+          }
+          final String[] tokens = tokenize(v.toString());
+          return matchers.stream().anyMatch(m -> m.test(tokens));
+        };
+        break;
+      }
+      case ISNULL:
+        predicate = v -> v == null;
+        break;
+      case ISNOTNULL:
+        predicate = v -> v != null;
+        break;
+      case IN:
+        predicate = v -> v != null && objects.stream().anyMatch(o -> compare(v, o) == 0);
+        break;
+      default:
+        throw new IllegalArgumentException("Operator " + operator + " is not supported by the in-memory store.");
+    }
+    return this.read(() -> this.entity.materialize(this.entity.filter(index, predicate), null));
+  }
+
+  /**
+   * Answered by a {@link org.vitrivr.cineast.core.db.SortedRangeIndex} of the {@link ColumnarEntity}, i.e. a binary search within the group instead of a scan.
+   */
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRowsInRange(String keyColumn, PrimitiveTypeProvider key, String rangeColumn, PrimitiveTypeProvider lower, PrimitiveTypeProvider upper, int limit, ReadableQueryConfig queryConfig) {
+    final int keyIndex = this.columnIndex(keyColumn);
+    final int rangeIndex = this.columnIndex(rangeColumn);
+    if (keyIndex < 0 || rangeIndex < 0) {
+      return new ArrayList<>(0);
+    }
+    return this.read(() -> this.entity.materialize(this.entity.range(keyIndex, key.getString(), rangeIndex, lower.getDouble(), upper.getDouble(), limit), null));
+  }
+
+  @Override
+  public List<PrimitiveTypeProvider> getUniqueValues(String column) {
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new ArrayList<>(0);
+    }
+    final Set<Object> unique = new LinkedHashSet<>();
+    for (Object value : this.read(() -> this.entity.values(this.entity.allRows(), index))) {
+      unique.add(value instanceof float[] ? new FloatArrayKey((float[]) value) : value);
+    }
+    return unique.stream().map(v -> PrimitiveTypeProvider.fromObject(v instanceof FloatArrayKey ? ((FloatArrayKey) v).array : v)).collect(Collectors.toList());
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll(List<String> columns, int limit) {
+    if (this.entity == null) {
+      return new ArrayList<>(0);
+    }
+    final int[] projection = columns.stream().mapToInt(this.entity::columnIndex).filter(i -> i >= 0).toArray();
+    return this.read(() -> {
+      final int[] rows = this.entity.allRows();
+      return this.entity.materialize(limit > 0 && limit < rows.length ? Arrays.copyOf(rows, limit) : rows, projection);
+    });
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll(String order, int skip, int limit) {
+    final int index = this.columnIndex(order);
+    if (index < 0) {
+      return new ArrayList<>(0);
+    }
+    return this.read(() -> {
+      final int[] rows = this.entity.allRows();
+      final List<Object> values = this.entity.values(rows, index);
+      final int[] sorted = IntStream.range(0, rows.length).boxed()
+          .sorted((a, b) -> compareNullsLast(values.get(a), values.get(b)))
+          .skip(skip).limit(limit)
+          .mapToInt(i -> rows[i]).toArray();
+      return this.entity.materialize(sorted, null);
+    });
+  }
+
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getAll() {
+    if (this.entity == null) {
+      return new ArrayList<>(0);
+    }
+    return this.read(() -> this.entity.materialize(this.entity.allRows(), null));
+  }
+
+  @Override
+  public int rowCount() {
+    return this.entity == null ? 0 : this.entity.size();
+  }
+
+  @Override
+  public boolean existsEntity(String name) {
+    return this.store.hasEntity(name);
+  }
+
+  @Override
+  public boolean ping() {
+    return true;
+  }
+
+  /**
+   * Executes the given read on the currently opened {@link ColumnarEntity} such that row numbers stay valid throughout the read, see {@link ColumnarEntity#read(Supplier)}.
+   */
+  private <T> T read(Supplier<T> read) {
+    return this.entity == null ? read.get() : this.entity.read(read);
+  }
+
+  /**
+   * Executes a kNN search for the given float vector on the currently opened {@link ColumnarEntity}.
+   */
+  private FixedSizeDistanceHeap knn(int k, float[] vector, String column, ReadableQueryConfig queryConfig) {
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new FixedSizeDistanceHeap(0).sort();
+    }
+    final FloatBlockDistance distance = FloatBlockDistance.fromQueryConfig(vector, queryConfig);
+    return this.entity.nearestNeighbours(index, k, distance, this.candidates(queryConfig));
+  }
+
+  /**
+   * Returns the rows that correspond to the relevant segment IDs of the {@link ReadableQueryConfig} or null, if all rows should be considered.
+   */
+  private int[] candidates(ReadableQueryConfig queryConfig) {
+    if (queryConfig != null && queryConfig.hasRelevantSegmentIds()) {
+      return this.entity.rowsForKeys(queryConfig.getRelevantSegmentIds());
+    }
+    return null;
+  }
+
+  /**
+   * Returns the rows whose value in the given column is equal to one of the given values. Lookups on the key column use the dictionary.
+   */
+  private int[] rowsFor(String column, List<PrimitiveTypeProvider> values) {
+    final int index = this.columnIndex(column);
+    if (index < 0) {
+      return new int[0];
+    }
+    if (index == 0) {
+      return this.entity.rowsForKeys(values.stream().map(PrimitiveTypeProvider::getString).collect(Collectors.toCollection(HashSet::new)));
+    }
+    final List<Object> objects = values.stream().map(PrimitiveTypeProvider::getObject).collect(Collectors.toList());
+    return this.entity.filter(index, v -> v != null && objects.stream().anyMatch(o -> compare(v, o) == 0));
+  }
+
+  private int columnIndex(String column) {
+    if (this.entity == null) {
+      LOGGER.warn("No entity has been opened.");
+      return -1;
+    }
+    final int index = this.entity.columnIndex(column);
+    if (index < 0) {
+      LOGGER.warn("Column '{}' does not exist in entity '{}'.", column, this.name);
+    }
+    return index;
+  }
+
+  /**
+   * Compares two values. Numbers are compared numerically (strings are parsed if compared to a number), everything else by its string representation.
+   */
+  private static int compare(Object a, Object b) {
+    final Double x = asNumber(a);
+    final Double y = asNumber(b);
+    if (x != null && y != null && (a instanceof Number || b instanceof Number)) {
+      return Double.compare(x, y);
+    }
+    return a.toString().compareTo(b.toString());
+  }
+
+  private static int compareNullsLast(Object a, Object b) {
+    if (a == null || b == null) {
+      return a == null ? (b == null ? 0 : 1) : -1;
+    }
+    return compare(a, b);
+  }
+
+  private static Double asNumber(Object o) {
+    if (o instanceof Number) {
+      return ((Number) o).doubleValue();
+    }
+    if (o instanceof String) {
+      try {
+        return Double.parseDouble((String) o);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static String[] tokenize(String text) {
+    final String trimmed = text.trim().toLowerCase();
+    return trimmed.isEmpty() ? new String[0] : WHITESPACE.split(trimmed);
+  }
+
+  /**
+   * Creates a matcher for a single fulltext term. Quoted terms are phrases, {@code word~n} matches words within a Levenshtein distance of n and all other words must occur as tokens.
+   */
+  private static Predicate<String[]> fulltextMatcher(String term) {
+    final String trimmed = term.trim();
+    if (trimmed.length() > 1 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+      final String[] phrase = tokenize(trimmed.substring(1, trimmed.length() - 1));
+      return tokens -> containsPhrase(tokens, phrase);
+    }
+    final List<Predicate<String>> words = new ArrayList<>();
+    for (String word : tokenize(trimmed)) {
+      final int tilde = word.lastIndexOf('~');
+      if (tilde > 0 && tilde < word.length() - 1 && word.substring(tilde + 1).chars().allMatch(Character::isDigit)) {
+        final String stem = word.substring(0, tilde);
+        final LevenshteinDistance distance = new LevenshteinDistance(Integer.parseInt(word.substring(tilde + 1)));
+        words.add(token -> distance.apply(stem, token) >= 0);
+      } else {
+        words.add(word::equals);
+      }
+    }
+    return tokens -> !words.isEmpty() && words.stream().allMatch(w -> Arrays.stream(tokens).anyMatch(w));
+  }
+
+  private static boolean containsPhrase(String[] tokens, String[] phrase) {
+    if (phrase.length == 0) {
+      return false;
+    }
+    for (int i = 0; i + phrase.length <= tokens.length; i++) {
+      int j = 0;
+      while (j < phrase.length && tokens[i + j].equals(phrase[j])) {
+        j++;
+      }
+      if (j == phrase.length) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Translates a SQL LIKE expression into a {@link Pattern}.
+   */
+  private static Pattern likePattern(String like) {
+    final StringBuilder regex = new StringBuilder();
+    final StringBuilder literal = new StringBuilder();
+    for (char c : like.toCharArray()) {
+      if (c == '%' || c == '_') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '%' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  /**
+   * Wrapper that gives float[] value semantics for de-duplication.
+   */
+  private static final class FloatArrayKey {
+
+    private final float[] array;
+
+    private FloatArrayKey(float[] array) {
+      this.array = array;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof FloatArrayKey && Arrays.equals(this.array, ((FloatArrayKey) o).array);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(this.array);
+    }
+  }
+}
@@ -1,26 +1,46 @@
 package org.vitrivr.cineast.core.db.memory;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.data.ReadableFloatVector;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.ColumnarEntity;
+import org.vitrivr.cineast.core.db.ColumnarStore;
 import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.HammingIndex;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
-import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.SortedRangeIndex;
+import org.vitrivr.cineast.core.util.distance.FloatBlockDistance;
 
 
 /**
- * This is a very simple in-memory key-value store implementation. It revolves around {@link Entity} objects, that hold instance of {@link PersistentTuple}s. Obtaining such a {@link PersistentTuple} by key can be done in O(1). All other operations take at least linear time to complete.
+ * This is a simple, column-oriented in-memory store. It revolves around {@link Entity} objects, which hold their rows column by column: feature vectors are kept in contiguous float[] blocks, hashes (bit sets of up to 64 bits) as packed longs, the first column (the key) is dictionary-encoded and all other values are kept as plain objects. A hash column that receives a larger bit set falls back to plain objects.
  * <p>
+ * Looking up rows by key can be done in O(1). Range lookups within a group of rows (e.g. the segments of an object) use a {@link SortedRangeIndex} that is built on first use and rebuilt after modifications. kNN search is a brute-force scan over the vector blocks, which is executed in parallel for larger entities; kNN search over hashes uses a {@link HammingIndex} that is maintained in the same way.
  * <p>
  * {@link InMemoryStore} can be used as a storage engine for Cineast. That is, there are implementations of {@link PersistencyWriter} and {@link DBSelector} for this store.
  *
  * @see InMemoryWriter
+ * @see InMemorySelector
  * @see InMemoryEntityCreator
  */
-public class InMemoryStore {
+public class InMemoryStore implements ColumnarStore {
 
   /**
    * Shared instance of {@link InMemoryStore}.
@@ -55,6 +75,7 @@ public static InMemoryStore sharedInMemoryStore() {
    * @param name Name of the {@link Entity} to return.
    * @return An optional {@link Entity}
    */
+  @Override
   public Optional<Entity> getEntity(String name) {
     final long stamp = this.storeLock.readLock();
     try {
@@ -70,6 +91,7 @@ public Optional<Entity> getEntity(String name) {
    * @param name The name to check.
    * @return True if {@link Entity} exists, false otherwise.
    */
+  @Override
   public boolean hasEntity(String name) {
     final long stamp = this.storeLock.readLock();
     try {
@@ -83,13 +105,32 @@ public boolean hasEntity(String name) {
    * Creates and returns the {@link Entity} for the given name or an empty {@link Optional}, if that {@link Entity} already exists and hence wasn't created.
    *
    * @param name    Name of the {@link Entity} to create.
-   * @param columns The list of columns to create.
+   * @param columns The list of columns to create. The first column acts as key.
    * @return An optional {@link Entity}
    */
+  @Override
   public Optional<Entity> createEntity(String name, String... columns) {
+    return this.createEntity(name, false, columns);
+  }
+
+  /**
+   * Creates and returns the {@link Entity} for the given name or an empty {@link Optional}, if that {@link Entity} already exists and hence wasn't created.
+   *
+   * @param name    Name of the {@link Entity} to create.
+   * @param unique  True if the {@link Entity} holds at most one row per key, i.e. appending a row for an existing key replaces that row.
+   * @param columns The list of columns to create. The first column acts as key.
+   * @return An optional {@link Entity}
+   */
+  @Override
+  public Optional<Entity> createEntity(String name, boolean unique, String... columns) {
     final long stamp = this.storeLock.writeLock();
     try {
-      return Optional.ofNullable(this.entities.putIfAbsent(name, new Entity(columns)));
+      if (this.entities.containsKey(name)) {
+        return Optional.empty();
+      }
+      final Entity entity = new Entity(unique, columns);
+      this.entities.put(name, entity);
+      return Optional.of(entity);
     } finally {
       this.storeLock.unlockWrite(stamp);
     }
@@ -101,6 +142,7 @@ public Optional<Entity> createEntity(String name, String... columns) {
    * @param name Name of the {@link Entity} to drop.
    * @return True if {@link Entity} was dropped, false otherwise.
    */
+  @Override
   public boolean dropEntity(String name) {
     final long stamp = this.storeLock.writeLock();
     try {
@@ -123,81 +165,185 @@ public void dropAll() {
   }
 
   /**
-   * An individual {@link Entity} in the {@link InMemoryStore}.
+   * An individual {@link Entity} in the {@link InMemoryStore}. Rows are appended; deleting a key (or replacing it in a unique {@link Entity}) marks its rows as deleted. Once deleted rows outnumber the others, they are compacted away, which renumbers the remaining rows.
    */
-  public class Entity implements Iterable<PersistentTuple> {
+  public static final class Entity implements ColumnarEntity {
+
+    /**
+     * Number of rows held by a single block of a {@link VectorColumn}. This is also the unit of work for parallel scans.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Minimum number of rows before a kNN scan is executed in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 4 * BLOCK_SIZE;
 
     /**
-     * The {@link java.util.Map} that holds all the data stored in this {@link org.vitrivr.cineast.core.db.memory.InMemoryStore.Entity}.
+     * Minimum number of deleted rows before they are compacted.
      */
-    private final Map<String, PersistentTuple> store = new TreeMap<>();
+    static final int COMPACTION_THRESHOLD = BLOCK_SIZE;
 
     /**
-     * Name of the columns held by this {@link Entity}.
+     * Name of the columns held by this {@link Entity}. The first column is the key column.
      */
     private final String[] columns;
 
     /**
-     * Stamped lock to mediate access to {@link Entity}.
+     * True if this {@link Entity} holds at most one row per key.
      */
-    private final StampedLock lock = new StampedLock();
+    private final boolean unique;
 
     /**
-     * Default constructor.
+     * Dictionary that maps the string representation of a key to its code.
+     */
+    private final ObjectIntHashMap<String> dictionary = new ObjectIntHashMap<>();
+
+    /**
+     * Original key values, indexed by code.
+     */
+    private final ArrayList<Object> keys = new ArrayList<>();
+
+    /**
+     * Rows that belong to a key, indexed by code.
+     */
+    private final ArrayList<IntArrayList> postings = new ArrayList<>();
+
+    /**
+     * Key code per row; -1 marks a deleted row.
+     */
+    private int[] codes = new int[BLOCK_SIZE];
+
+    /**
+     * Data of all non-key columns, indexed by column. Entries are null until the first non-null value is written to the column, which determines its layout. Vector columns have a fixed dimension, a hash column that receives a value other than a hash is turned into an {@link ObjectColumn}.
+     */
+    private final Column[] data;
+
+    /**
+     * Number of rows (including deleted ones).
+     */
+    private int rows = 0;
+
+    /**
+     * Number of rows that have not been deleted.
+     */
+    private int live = 0;
+
+    /**
+     * Number of modifications of this {@link Entity}; used to detect stale range indexes.
+     */
+    private long version = 0;
+
+    /**
+     * {@link SortedRangeIndex}es by group and range column, built on demand.
+     */
+    private final Map<Long, VersionedIndex<SortedRangeIndex<Integer>>> rangeIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * {@link HammingIndex}es by column, built on demand.
+     */
+    private final Map<Integer, VersionedIndex<HammingIndex>> hammingIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Read-write lock to mediate access to {@link Entity}. Read locks are reentrant, which lets {@link #read(Supplier)} span several reads.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor for an {@link Entity} that may hold several rows per key.
      *
      * @param columns List of columns held by this {@link Entity}
      */
     public Entity(String... columns) {
-      this.columns = columns;
+      this(false, columns);
     }
 
     /**
-     * Adds a {@link PersistentTuple} for the given key to the store.
+     * Default constructor.
      *
-     * @param key   The key to use.
-     * @param value The {@link PersistentTuple} to add.
+     * @param unique  True if this {@link Entity} holds at most one row per key.
+     * @param columns List of columns held by this {@link Entity}
      */
-    public boolean put(String key, PersistentTuple value) {
-      final long stamp = this.lock.writeLock();
-      try {
-        if (value.getElements().size() == this.columns.length) {
-          this.store.put(key, value);
-          return true;
-        } else {
-          return false;
+    public Entity(boolean unique, String... columns) {
+      if (columns.length == 0) {
+        throw new IllegalArgumentException("An entity requires at least a key column.");
+      }
+      this.unique = unique;
+      this.columns = columns;
+      this.data = new Column[columns.length];
+    }
+
+    /**
+     * Returns the names of the columns of this {@link Entity}. The first column is the key column.
+     */
+    @Override
+    public String[] getColumns() {
+      return this.columns.clone();
+    }
+
+    /**
+     * Returns the index of the column with the given name or -1, if no such column exists.
+     */
+    @Override
+    public int columnIndex(String name) {
+      for (int i = 0; i < this.columns.length; i++) {
+        if (this.columns[i].equals(name)) {
+          return i;
         }
-      } finally {
-        this.lock.unlockWrite(stamp);
       }
+      return -1;
     }
 
     /**
-     * Fetches and returns the {@link PersistentTuple} for the given key.
+     * Appends the given rows to this {@link Entity}. Values must be ordered like the columns of this {@link Entity} and the first value of every row is used as key. In a unique {@link Entity}, a row replaces the row that exists for its key. Either all or none of the rows are appended.
      *
-     * @param key Key to retrieve the {@link PersistentTuple} for.
-     * @return Optional {@link PersistentTuple}
+     * @param rows The rows to append.
+     * @return True on success, false if one of the rows does not have a value per column, lacks a key or holds a vector that doesn't match the dimension of its column.
      */
-    public Optional<PersistentTuple> get(String key) {
-      final long stamp = this.lock.readLock();
+    @Override
+    public boolean append(List<Object[]> rows) {
+      this.lock.writeLock().lock();
       try {
-        return Optional.ofNullable(this.store.get(key));
+        final Object[] prototypes = new Object[this.columns.length];
+        for (Object[] row : rows) {
+          if (!this.accepts(row, prototypes)) {
+            return false;
+          }
+        }
+        for (Object[] row : rows) {
+          this.appendRow(row);
+        }
+        this.version += 1;
+        this.compactIfNecessary();
+        return true;
       } finally {
-        this.lock.unlockRead(stamp);
+        this.lock.writeLock().unlock();
       }
     }
 
     /**
-     * Deletes the entry for the given key.
+     * Deletes all rows for the given key.
      *
-     * @param key Key to delete the entry for.
+     * @param key Key to delete the entries for.
      * @return True on success. False otherwise
      */
     public boolean delete(String key) {
-      final long stamp = this.lock.writeLock();
+      this.lock.writeLock().lock();
       try {
-        return this.store.remove(key) != null;
+        if (!this.dictionary.containsKey(key)) {
+          return false;
+        }
+        final IntArrayList rows = this.postings.get(this.dictionary.get(key));
+        for (int i = 0; i < rows.size(); i++) {
+          this.codes[rows.get(i)] = -1;
+        }
+        this.live -= rows.size();
+        rows.clear();
+        this.version += 1;
+        this.compactIfNecessary();
+        return true;
       } finally {
-        this.lock.unlockWrite(stamp);
+        this.lock.writeLock().unlock();
       }
     }
 
@@ -205,51 +351,734 @@ public boolean delete(String key) {
      * Deletes all entries in this {@link Entity}
      */
     public void truncate() {
-      final long stamp = this.lock.writeLock();
+      this.lock.writeLock().lock();
+      try {
+        this.dictionary.clear();
+        this.keys.clear();
+        this.postings.clear();
+        this.codes = new int[BLOCK_SIZE];
+        Arrays.fill(this.data, null);
+        this.rows = 0;
+        this.live = 0;
+        this.version += 1;
+      } finally {
+        this.lock.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Returns the number of (non-deleted) rows in this {@link Entity}.
+     */
+    @Override
+    public int size() {
+      this.lock.readLock().lock();
       try {
-        this.store.clear();
+        return this.live;
       } finally {
-        this.lock.unlockWrite(stamp);
+        this.lock.readLock().unlock();
       }
     }
 
     /**
-     * Returns true if this {@link Entity} contains a {@link PersistentTuple} for the given key, and false otherwise.
+     * Returns true if this {@link Entity} contains at least one row for the given key, and false otherwise.
      *
      * @param key The key to look up.
-     * @return True if {@link Entity} contains a {@link PersistentTuple} for the given key, and false otherwise
      */
+    @Override
     public boolean has(String key) {
-      final long stamp = this.lock.readLock();
+      this.lock.readLock().lock();
       try {
-        return this.store.containsKey(key);
+        return this.dictionary.containsKey(key) && !this.postings.get(this.dictionary.get(key)).isEmpty();
       } finally {
-        this.lock.unlockRead(stamp);
+        this.lock.readLock().unlock();
       }
     }
 
     /**
-     * Returns an {@link Iterator} for the values contained in this {@link Entity}.
+     * Returns the rows for the given keys.
      *
-     * @return {@link Iterator} for the values contained in this {@link Entity}
+     * @param keys The keys to look up.
+     * @return Row numbers in ascending order.
      */
-    public Iterator<PersistentTuple> iterator() {
-      final long stamp = this.lock.readLock();
-      return new Iterator<PersistentTuple>() {
+    @Override
+    public int[] rowsForKeys(Iterable<String> keys) {
+      this.lock.readLock().lock();
+      try {
+        final IntArrayList rows = new IntArrayList();
+        for (String key : keys) {
+          final int index = this.dictionary.indexOf(key);
+          if (this.dictionary.indexExists(index)) {
+            rows.addAll(this.postings.get(this.dictionary.indexGet(index)));
+          }
+        }
+        final int[] result = rows.toArray();
+        Arrays.sort(result);
+        return result;
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Returns all rows whose value in the given column matches the {@link Predicate}. Null values are passed to the predicate as well.
+     *
+     * @param column    Index of the column.
+     * @param predicate {@link Predicate} to test the values with.
+     * @return Row numbers in ascending order.
+     */
+    @Override
+    public int[] filter(int column, Predicate<Object> predicate) {
+      this.lock.readLock().lock();
+      try {
+        final IntPredicate test;
+        if (column == 0) {
+          test = row -> predicate.test(this.keys.get(this.codes[row]));
+        } else {
+          final Column c = this.data[column];
+          test = row -> predicate.test(c == null ? null : c.get(row));
+        }
+        return IntStream.range(0, this.rows).filter(row -> this.codes[row] >= 0 && test.test(row)).toArray();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Returns the rows whose value in the group column equals the given group and whose numeric value in the range column lies within the given bounds, using a {@link SortedRangeIndex}. Rows with non-numeric values in the range column are never returned.
+     *
+     * @param groupColumn Index of the group column.
+     * @param group       String representation of the group.
+     * @param rangeColumn Index of the range column.
+     * @param lower       Lower bound (inclusive).
+     * @param upper       Upper bound (inclusive).
+     * @param limit       Maximum number of rows; if <= 0, parameter is ignored
+     * @return Row numbers ordered by ascending value of the range column.
+     */
+    @Override
+    public int[] range(int groupColumn, String group, int rangeColumn, double lower, double upper, int limit) {
+      this.lock.readLock().lock();
+      try {
+        final long id = ((long) groupColumn << 32) | rangeColumn;
+        VersionedIndex<SortedRangeIndex<Integer>> index = this.rangeIndexes.get(id);
+        if (index == null || index.version() != this.version) {
+          /* Concurrent readers may build the same index; the result is identical. */
+          final List<Integer> rows = new ArrayList<>(this.live);
+          for (int row = 0; row < this.rows; row++) {
+            if (this.codes[row] >= 0) {
+              rows.add(row);
+            }
+          }
+          index = new VersionedIndex<>(this.version, SortedRangeIndex.of(rows, row -> {
+            final Object value = this.value(row, groupColumn);
+            return value == null ? null : value.toString();
+          }, row -> toDouble(this.value(row, rangeColumn))));
+          this.rangeIndexes.put(id, index);
+        }
+        return index.index().range(group, lower, upper, limit).stream().mapToInt(Integer::intValue).toArray();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
 
-        final Iterator<String> inner = Entity.this.store.keySet().iterator();
+    /**
+     * Returns the key of the given row.
+     */
+    @Override
+    public String key(int row) {
+      this.lock.readLock().lock();
+      try {
+        final int code = this.codes[row];
+        return code < 0 ? null : this.keys.get(code).toString();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
 
-        @Override
-        public boolean hasNext() {
-          return this.inner.hasNext();
+    /**
+     * Materializes the given rows. Rows that have been deleted in the meantime are skipped.
+     *
+     * @param rows       Row numbers to materialize.
+     * @param projection Indexes of the columns to include; null includes all columns.
+     * @return List of rows.
+     */
+    @Override
+    public List<Map<String, PrimitiveTypeProvider>> materialize(int[] rows, int[] projection) {
+      this.lock.readLock().lock();
+      try {
+        final List<Map<String, PrimitiveTypeProvider>> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+          if (row >= this.rows || this.codes[row] < 0) {
+            continue;
+          }
+          result.add(this.materialize(row, projection));
         }
+        return result;
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
 
-        @Override
-        public PersistentTuple next() {
-          return Entity.this.store.get(this.inner.next());
+    /**
+     * Returns the values of the given column for the given rows. Rows that have been deleted are skipped.
+     *
+     * @param rows   Row numbers to read.
+     * @param column Index of the column.
+     * @return List of values.
+     */
+    @Override
+    public List<Object> values(int[] rows, int column) {
+      this.lock.readLock().lock();
+      try {
+        final List<Object> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+          if (row < this.rows && this.codes[row] >= 0) {
+            result.add(this.value(row, column));
+          }
         }
+        return result;
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Brute-force kNN search over a vector column. Scans run block-wise in parallel for large entities; every worker uses its own {@link FixedSizeDistanceHeap}.
+     *
+     * @param column     Index of the vector column.
+     * @param k          Number of results.
+     * @param distance   The {@link FloatBlockDistance} bound to the query vector.
+     * @param candidates Rows to consider, or null if all rows should be considered.
+     * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+     */
+    @Override
+    public FixedSizeDistanceHeap nearestNeighbours(int column, int k, FloatBlockDistance distance, int[] candidates) {
+      this.lock.readLock().lock();
+      try {
+        if (!(this.data[column] instanceof VectorColumn)) {
+          return new FixedSizeDistanceHeap(0).sort();
+        }
+        final VectorColumn c = (VectorColumn) this.data[column];
+        if (candidates != null) {
+          final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+          for (int row : candidates) {
+            if (row < this.rows && this.codes[row] >= 0 && c.present.get(row)) {
+              heap.offer(distance.applyAsDouble(c.blocks.get(row / BLOCK_SIZE), (row % BLOCK_SIZE) * c.dimension), row);
+            }
+          }
+          return heap.sort();
+        }
+        final int blocks = c.blocks.size();
+        IntStream stream = IntStream.range(0, blocks);
+        if (this.rows >= PARALLEL_THRESHOLD) {
+          stream = stream.parallel();
+        }
+        return stream.collect(() -> new FixedSizeDistanceHeap(k), (heap, b) -> {
+          final float[] block = c.blocks.get(b);
+          final int start = b * BLOCK_SIZE;
+          final int end = Math.min(start + BLOCK_SIZE, this.rows);
+          for (int row = start; row < end; row++) {
+            if (this.codes[row] >= 0 && c.present.get(row)) {
+              heap.offer(distance.applyAsDouble(block, (row - start) * c.dimension), row);
+            }
+          }
+        }, FixedSizeDistanceHeap::merge).sort();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Brute-force kNN search over a column that holds arbitrary objects (e.g., bit sets).
+     *
+     * @param column     Index of the column.
+     * @param k          Number of results.
+     * @param distance   The distance function bound to the query.
+     * @param candidates Rows to consider, or null if all rows should be considered.
+     * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+     */
+    @Override
+    public FixedSizeDistanceHeap nearestNeighboursByValue(int column, int k, ToDoubleFunction<Object> distance, int[] candidates) {
+      this.lock.readLock().lock();
+      try {
+        final Column c = this.data[column];
+        final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+        if (c == null) {
+          return heap.sort();
+        }
+        final int[] rows = candidates != null ? candidates : IntStream.range(0, this.rows).toArray();
+        for (int row : rows) {
+          if (row < this.rows && this.codes[row] >= 0) {
+            final Object value = c.get(row);
+            if (value != null) {
+              heap.offer(distance.applyAsDouble(value), row);
+            }
+          }
+        }
+        return heap.sort();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * kNN search in Hamming space over a column that holds hashes. Without candidates, the search is answered by a {@link HammingIndex} that is built on first use and rebuilt after modifications.
+     *
+     * @param column     Index of the column.
+     * @param k          Number of results.
+     * @param query      The query hash.
+     * @param radius     Maximum Hamming distance (inclusive).
+     * @param candidates Rows to consider, or null if all rows should be considered.
+     * @return Sorted {@link FixedSizeDistanceHeap} of (distance, row) pairs.
+     */
+    @Override
+    public FixedSizeDistanceHeap nearestNeighboursHamming(int column, int k, long query, int radius, int[] candidates) {
+      this.lock.readLock().lock();
+      try {
+        if (candidates != null) {
+          final FixedSizeDistanceHeap heap = new FixedSizeDistanceHeap(k);
+          final long[] hash = new long[1];
+          for (int row : candidates) {
+            if (row < this.rows && this.codes[row] >= 0 && this.hash(row, column, hash, 0)) {
+              final int distance = HammingIndex.distance(query, hash[0]);
+              if (distance <= radius) {
+                heap.offer(distance, row);
+              }
+            }
+          }
+          return heap.sort();
+        }
+        return this.hammingIndex(column).nearest(query, k, radius);
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Radius search in Hamming space over a column that holds hashes, answered by the {@link HammingIndex} of that column.
+     *
+     * @param column Index of the column.
+     * @param query  The query hash.
+     * @param radius Maximum Hamming distance (inclusive).
+     * @return Row numbers in ascending order.
+     */
+    @Override
+    public int[] withinHammingDistance(int column, long query, int radius) {
+      this.lock.readLock().lock();
+      try {
+        return this.hammingIndex(column).radius(query, radius);
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Returns the {@link HammingIndex} of the given column, building it if there is none or if this {@link Entity} has been modified since it was built. Must be called while holding the read lock.
+     */
+    private HammingIndex hammingIndex(int column) {
+      VersionedIndex<HammingIndex> index = this.hammingIndexes.get(column);
+      if (index == null || index.version() != this.version) {
+        /* Concurrent readers may build the same index; the result is identical. */
+        final int[] rows = new int[this.live];
+        final long[] hashes = new long[this.live];
+        int size = 0;
+        for (int row = 0; row < this.rows; row++) {
+          if (this.codes[row] >= 0 && this.hash(row, column, hashes, size)) {
+            rows[size++] = row;
+          }
+        }
+        index = new VersionedIndex<>(this.version, HammingIndex.of(Arrays.copyOf(rows, size), Arrays.copyOf(hashes, size)));
+        this.hammingIndexes.put(column, index);
+      }
+      return index.index();
+    }
+
+    /**
+     * Executes the given read while holding the read lock of this {@link Entity}, such that neither deletions nor compactions can renumber rows before it returns.
+     *
+     * @param read The read to execute.
+     * @return The result of the read.
+     */
+    @Override
+    public <T> T read(Supplier<T> read) {
+      this.lock.readLock().lock();
+      try {
+        return read.get();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    /**
+     * Returns all non-deleted rows in ascending order.
+     */
+    @Override
+    public int[] allRows() {
+      this.lock.readLock().lock();
+      try {
+        return IntStream.range(0, this.rows).filter(row -> this.codes[row] >= 0).toArray();
+      } finally {
+        this.lock.readLock().unlock();
+      }
+    }
+
+    private Map<String, PrimitiveTypeProvider> materialize(int row, int[] projection) {
+      final Map<String, PrimitiveTypeProvider> map = new HashMap<>();
+      if (projection == null) {
+        for (int i = 0; i < this.columns.length; i++) {
+          map.put(this.columns[i], PrimitiveTypeProvider.fromObject(this.value(row, i)));
+        }
+      } else {
+        for (int i : projection) {
+          map.put(this.columns[i], PrimitiveTypeProvider.fromObject(this.value(row, i)));
+        }
+      }
+      return map;
+    }
+
+    private Object value(int row, int column) {
+      if (column == 0) {
+        return this.keys.get(this.codes[row]);
+      }
+      final Column c = this.data[column];
+      return c == null ? null : c.get(row);
+    }
+
+    /**
+     * Stores the hash held by the given row and column at the given position of the array.
+     *
+     * @return True if the row holds a hash, false otherwise.
+     */
+    private boolean hash(int row, int column, long[] hashes, int position) {
+      if (this.data[column] instanceof HashColumn) {
+        final HashColumn c = (HashColumn) this.data[column];
+        if (!c.present.get(row)) {
+          return false;
+        }
+        hashes[position] = c.hashes[row];
+        return true;
+      }
+      final Object value = this.value(row, column);
+      if (!HammingIndex.isHash(value)) {
+        return false;
+      }
+      hashes[position] = HammingIndex.pack((com.googlecode.javaewah.datastructure.BitSet) value);
+      return true;
+    }
+
+    private static double toDouble(Object value) {
+      if (value instanceof Number) {
+        return ((Number) value).doubleValue();
+      }
+      if (value instanceof String) {
+        try {
+          return Double.parseDouble((String) value);
+        } catch (NumberFormatException e) {
+          return Double.NaN;
+        }
+      }
+      return Double.NaN;
+    }
+
+    /**
+     * Checks if the row can be appended. Columns that don't hold any value yet take the layout of the first value of the batch, which is tracked in the prototypes.
+     */
+    private boolean accepts(Object[] values, Object[] prototypes) {
+      if (values.length != this.columns.length || values[0] == null) {
+        return false;
+      }
+      for (int i = 1; i < this.columns.length; i++) {
+        final Object value = values[i];
+        if (value == null) {
+          continue;
+        }
+        if (this.data[i] != null) {
+          /* A hash column is turned into an object column rather than rejecting a value. */
+          if (!this.data[i].fits(value) && !(this.data[i] instanceof HashColumn && !Column.isVector(value))) {
+            return false;
+          }
+        } else if (prototypes[i] == null) {
+          prototypes[i] = value;
+        } else if (Column.isVector(prototypes[i]) ? Column.dimension(prototypes[i]) != Column.dimension(value) : Column.isVector(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void appendRow(Object[] values) {
+      final int row = this.rows;
+      if (row == this.codes.length) {
+        this.codes = Arrays.copyOf(this.codes, this.codes.length * 2);
+      }
+
+      /* Key column (dictionary-encoded). */
+      final Object key = values[0];
+      final String keyString = key.toString();
+      int code;
+      final int index = this.dictionary.indexOf(keyString);
+      if (this.dictionary.indexExists(index)) {
+        code = this.dictionary.indexGet(index);
+        final IntArrayList postings = this.postings.get(code);
+        if (this.unique && !postings.isEmpty()) {
+          for (int i = 0; i < postings.size(); i++) {
+            this.codes[postings.get(i)] = -1;
+          }
+          this.live -= postings.size();
+          postings.clear();
+        }
+      } else {
+        code = this.keys.size();
+        this.keys.add(key);
+        this.postings.add(new IntArrayList(1));
+        this.dictionary.indexInsert(index, keyString, code);
+      }
+      this.codes[row] = code;
+      this.postings.get(code).add(row);
+
+      /* Remaining columns. */
+      for (int i = 1; i < this.columns.length; i++) {
+        final Object value = values[i];
+        if (value == null) {
+          continue;
+        }
+        if (this.data[i] == null) {
+          this.data[i] = Column.forValue(value);
+        } else if (!this.data[i].fits(value)) {
+          this.data[i] = ObjectColumn.copyOf(this.data[i], row);
+        }
+        this.data[i].set(row, value);
+      }
+      this.rows++;
+      this.live++;
+    }
+
+    /**
+     * Removes deleted rows once they outnumber the other rows, renumbering the remaining rows in their current order. Must be called while holding the write lock.
+     */
+    private void compactIfNecessary() {
+      final int deleted = this.rows - this.live;
+      if (deleted < COMPACTION_THRESHOLD || deleted <= this.live) {
+        return;
+      }
+      final int[] rows = IntStream.range(0, this.rows).filter(row -> this.codes[row] >= 0).toArray();
+      final int[] codes = new int[Math.max(BLOCK_SIZE, rows.length)];
+      for (int i = 0; i < rows.length; i++) {
+        codes[i] = this.codes[rows[i]];
+      }
+      for (IntArrayList postings : this.postings) {
+        postings.clear();
+      }
+      for (int i = 0; i < rows.length; i++) {
+        this.postings.get(codes[i]).add(i);
+      }
+      for (int i = 1; i < this.data.length; i++) {
+        if (this.data[i] != null) {
+          this.data[i] = this.data[i].compact(rows);
+        }
+      }
+      this.codes = codes;
+      this.rows = rows.length;
+      this.version += 1;
+    }
+  }
+
+  /**
+   * An index over row numbers, valid for a specific version of an {@link Entity}.
+   */
+  private record VersionedIndex<T>(long version, T index) {
+
+  }
+
+  /**
+   * Storage of a single non-key column.
+   */
+  private interface Column {
+
+    static boolean isVector(Object value) {
+      return value instanceof float[] || value instanceof ReadableFloatVector;
+    }
+
+    /**
+     * Returns the dimension of a vector or -1, if the value is not a vector.
+     */
+    static int dimension(Object value) {
+      if (value instanceof float[]) {
+        return ((float[]) value).length;
+      } else if (value instanceof ReadableFloatVector) {
+        return ((ReadableFloatVector) value).getElementCount();
+      }
+      return -1;
+    }
+
+    static Column forValue(Object value) {
+      if (isVector(value)) {
+        return new VectorColumn(dimension(value));
+      } else if (HammingIndex.isHash(value)) {
+        return new HashColumn();
+      } else {
+        return new ObjectColumn();
+      }
+    }
+
+    /**
+     * Returns true if the value can be stored in the layout of this {@link Column}.
+     */
+    boolean fits(Object value);
+
+    void set(int row, Object value);
+
+    Object get(int row);
+
+    /**
+     * Returns a new {@link Column} that holds the values of the given rows, renumbered in the given order.
+     */
+    default Column compact(int[] rows) {
+      final Column column = new ObjectColumn();
+      for (int i = 0; i < rows.length; i++) {
+        final Object value = this.get(rows[i]);
+        if (value != null) {
+          column.set(i, value);
+        }
+      }
+      return column;
+    }
+  }
+
+  /**
+   * {@link Column} that holds fixed-length feature vectors in contiguous float[] blocks of {@link Entity#BLOCK_SIZE} rows each.
+   */
+  private static final class VectorColumn implements Column {
+
+    private final int dimension;
+
+    private final ArrayList<float[]> blocks = new ArrayList<>();
+
+    private final BitSet present = new BitSet();
+
+    private VectorColumn(int dimension) {
+      this.dimension = dimension;
+    }
+
+    @Override
+    public boolean fits(Object value) {
+      return Column.dimension(value) == this.dimension;
+    }
+
+    @Override
+    public void set(int row, Object value) {
+      while (this.blocks.size() <= row / Entity.BLOCK_SIZE) {
+        this.blocks.add(new float[Entity.BLOCK_SIZE * this.dimension]);
+      }
+      final float[] block = this.blocks.get(row / Entity.BLOCK_SIZE);
+      final int offset = (row % Entity.BLOCK_SIZE) * this.dimension;
+      if (value instanceof float[]) {
+        System.arraycopy(value, 0, block, offset, this.dimension);
+      } else {
+        final ReadableFloatVector vector = (ReadableFloatVector) value;
+        for (int i = 0; i < this.dimension; i++) {
+          block[offset + i] = vector.getElement(i);
+        }
+      }
+      this.present.set(row);
+    }
+
+    @Override
+    public Object get(int row) {
+      if (!this.present.get(row)) {
+        return null;
+      }
+      return FloatBlockDistance.copyOf(this.blocks.get(row / Entity.BLOCK_SIZE), (row % Entity.BLOCK_SIZE) * this.dimension, this.dimension);
+    }
+
+    @Override
+    public Column compact(int[] rows) {
+      final VectorColumn column = new VectorColumn(this.dimension);
+      for (int i = 0; i < rows.length; i++) {
+        if (this.present.get(rows[i])) {
+          column.set(i, this.get(rows[i]));
+        }
+      }
+      return column;
+    }
+  }
+
+  /**
+   * {@link Column} that holds hashes, i.e. bit sets of up to {@link HammingIndex#BITS} bits, packed into a long[].
+   */
+  private static final class HashColumn implements Column {
+
+    private long[] hashes = new long[Entity.BLOCK_SIZE];
+
+    private final BitSet present = new BitSet();
+
+    @Override
+    public boolean fits(Object value) {
+      return HammingIndex.isHash(value);
+    }
+
+    @Override
+    public void set(int row, Object value) {
+      if (row >= this.hashes.length) {
+        this.hashes = Arrays.copyOf(this.hashes, Math.max(row + 1, this.hashes.length * 2));
+      }
+      this.hashes[row] = HammingIndex.pack((com.googlecode.javaewah.datastructure.BitSet) value);
+      this.present.set(row);
+    }
+
+    @Override
+    public Object get(int row) {
+      return this.present.get(row) ? HammingIndex.unpack(this.hashes[row]) : null;
+    }
+
+    @Override
+    public Column compact(int[] rows) {
+      final HashColumn column = new HashColumn();
+      column.hashes = new long[Math.max(Entity.BLOCK_SIZE, rows.length)];
+      for (int i = 0; i < rows.length; i++) {
+        if (this.present.get(rows[i])) {
+          column.hashes[i] = this.hashes[rows[i]];
+          column.present.set(i);
+        }
+      }
+      return column;
+    }
+  }
+
+  /**
+   * {@link Column} that holds arbitrary objects except vectors.
+   */
+  private static final class ObjectColumn implements Column {
+
+    private Object[] values = new Object[Entity.BLOCK_SIZE];
+
+    /**
+     * Copies the first rows of the given {@link Column} into a new {@link ObjectColumn}.
+     */
+    private static ObjectColumn copyOf(Column column, int rows) {
+      final ObjectColumn copy = new ObjectColumn();
+      copy.values = new Object[Math.max(Entity.BLOCK_SIZE, rows)];
+      for (int row = 0; row < rows; row++) {
+        copy.values[row] = column.get(row);
+      }
+      return copy;
+    }
+
+    @Override
+    public boolean fits(Object value) {
+      return !Column.isVector(value);
+    }
+
+    @Override
+    public void set(int row, Object value) {
+      if (row >= this.values.length) {
+        this.values = Arrays.copyOf(this.values, Math.max(row + 1, this.values.length * 2));
+      }
+      this.values[row] = value;
+    }
 
-      };
+    @Override
+    public Object get(int row) {
+      return row < this.values.length ? this.values[row] : null;
     }
   }
 }
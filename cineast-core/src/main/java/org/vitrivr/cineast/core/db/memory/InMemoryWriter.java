@@ -1,29 +1,43 @@
 package org.vitrivr.cineast.core.db.memory;
 
-import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.ColumnarEntity;
+import org.vitrivr.cineast.core.db.ColumnarStore;
 import org.vitrivr.cineast.core.db.PersistentTuple;
-import org.vitrivr.cineast.core.db.memory.InMemoryStore.Entity;
 
 
 /**
- * Implementation of a Cineast {@link org.vitrivr.cineast.core.db.PersistencyWriter} on top of the {@link InMemoryStore}.
+ * Implementation of a Cineast {@link org.vitrivr.cineast.core.db.PersistencyWriter} on top of the {@link InMemoryStore} or any other {@link ColumnarStore}.
  *
  * @see InMemoryStore
  */
 public class InMemoryWriter extends AbstractPersistencyWriter<PersistentTuple> {
 
+  /**
+   * Batch size hint; a batch is appended to the {@link ColumnarEntity} while holding its lock only once.
+   */
+  private static final int BATCH_SIZE = 1000;
+
+  private final ColumnarStore store;
 
-  private InMemoryStore store = InMemoryStore.sharedInMemoryStore();
+  private ColumnarEntity entity = null;
+
+  public InMemoryWriter() {
+    this(InMemoryStore.sharedInMemoryStore());
+  }
 
-  private Entity entity = null;
+  public InMemoryWriter(ColumnarStore store) {
+    this.store = store;
+  }
 
   @Override
   public boolean open(String name) {
-    final Optional<Entity> entity = this.store.getEntity(name);
+    final Optional<? extends ColumnarEntity> entity = this.store.getEntity(name);
     if (entity.isPresent()) {
       this.entity = entity.get();
       return true;
@@ -39,19 +53,78 @@ public void close() {
 
   @Override
   public boolean exists(String key, String value) {
-    if (key.equals(GENERIC_ID_COLUMN_QUALIFIER)) {
+    final int index = this.entity.columnIndex(key);
+    if (index == 0) {
       return this.entity.has(value);
+    } else if (index > 0) {
+      return this.entity.filter(index, v -> v != null && v.toString().equals(value)).length > 0;
     } else {
       return false;
     }
   }
 
+  /**
+   * Appends the tuples to the opened {@link ColumnarEntity}. Values are mapped from the field names of this writer to the columns of the {@link ColumnarEntity}; columns without a field remain empty. Tuples are rejected if a field doesn't exist in the {@link ColumnarEntity}, if they hold more values than there are fields or if the {@link ColumnarEntity} doesn't accept them (e.g. a vector of the wrong dimension). Rejecting a tuple does not affect the other tuples of the batch.
+   *
+   * @return True if all tuples were persisted, false otherwise.
+   */
   @Override
   public boolean persist(List<PersistentTuple> tuples) {
+    final String[] columns = this.entity.getColumns();
+    final int[] mapping = new int[this.names.length];
+    for (int j = 0; j < this.names.length; j++) {
+      mapping[j] = -1;
+      for (int i = 0; i < columns.length; i++) {
+        if (columns[i].equals(this.names[j])) {
+          mapping[j] = i;
+          break;
+        }
+      }
+    }
+
+    final List<Object[]> rows = new ArrayList<>(tuples.size());
     for (PersistentTuple tuple : tuples) {
-      this.entity.put(tuple.getElements().get(0).toString(), tuple);
+      final Object[] row = this.toRow(tuple.getElements().toArray(), mapping, columns.length);
+      if (row != null) {
+        rows.add(row);
+      }
+    }
+    if (rows.isEmpty() || this.entity.append(rows)) {
+      return rows.size() == tuples.size();
+    }
+
+    /* The batch was rejected as a whole; append row by row so that only the offending rows are rejected. */
+    int rejected = 0;
+    for (Object[] row : rows) {
+      if (!this.entity.append(Collections.singletonList(row))) {
+        rejected += 1;
+      }
+    }
+    if (rejected > 0) {
+      LOGGER.warn("Rejected {} of {} tuples: values do not match the columns of the entity.", rejected, tuples.size());
+    }
+    return rejected == 0 && rows.size() == tuples.size();
+  }
+
+  /**
+   * Orders the values of a tuple like the columns of the {@link ColumnarEntity}.
+   *
+   * @return The row or null, if the tuple was rejected.
+   */
+  private Object[] toRow(Object[] elements, int[] mapping, int columns) {
+    if (elements.length > mapping.length) {
+      LOGGER.warn("Rejected tuple with {} values: the writer only has the fields {}.", elements.length, Arrays.toString(this.names));
+      return null;
+    }
+    final Object[] row = new Object[columns];
+    for (int j = 0; j < elements.length; j++) {
+      if (mapping[j] < 0) {
+        LOGGER.warn("Rejected tuple: field '{}' does not exist in the entity.", this.names[j]);
+        return null;
+      }
+      row[mapping[j]] = elements[j];
     }
-    return true;
+    return row;
   }
 
   @Override
@@ -61,6 +134,6 @@ public PersistentTuple getPersistentRepresentation(PersistentTuple tuple) {
 
   @Override
   public int supportedBatchSize() {
-    return 1;
+    return BATCH_SIZE;
   }
 }
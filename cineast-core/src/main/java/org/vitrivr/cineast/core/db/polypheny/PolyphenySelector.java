@@ -280,6 +280,22 @@ public List<Map<String, PrimitiveTypeProvider>> getRows(String column, Relationa
     }
   }
 
+  @Override
+  public List<Map<String, PrimitiveTypeProvider>> getRowsInRange(String keyColumn, PrimitiveTypeProvider key, String rangeColumn, PrimitiveTypeProvider lower, PrimitiveTypeProvider upper, int limit, ReadableQueryConfig queryConfig) {
+    final String sql = "SELECT * FROM " + this.fqn + " WHERE " + keyColumn + " = ? AND " + rangeColumn + " BETWEEN ? AND ? ORDER BY " + rangeColumn + " ASC" + (limit > 0 ? " LIMIT " + limit : "");
+    try (final PreparedStatement statement = this.wrapper.connection.prepareStatement(sql)) {
+      this.bindScalarValue(1, key, statement);
+      this.bindScalarValue(2, lower, statement);
+      this.bindScalarValue(3, upper, statement);
+      try (final ResultSet rs = statement.executeQuery()) {
+        return processResults(rs);
+      }
+    } catch (SQLException e) {
+      LOGGER.warn("Error occurred during query execution in getRowsInRange(): {}", e.getMessage());
+      return new ArrayList<>(0);
+    }
+  }
+
   /**
    * Performs a boolean lookup based on multiple conditions, linked with AND. Each element of the list specifies one of the conditions - left middle right, i.e. id IN (1, 5, 7)
    *
@@ -14,11 +14,17 @@ private MostRepresentative() {
   }
 
   public static VideoFrame getMostRepresentative(VideoSegment videoSegment) {
+    return getMostRepresentative(videoSegment.getAvgImg(), videoSegment.getVideoFrames());
+  }
+
+  /**
+   * Returns the frame that is closest to the given reference image, usually the average image of the segment the frames belong to.
+   */
+  public static VideoFrame getMostRepresentative(MultiImage reference, Iterable<VideoFrame> frames) {
     LOGGER.traceEntry();
-    MultiImage reference = videoSegment.getAvgImg();
     VideoFrame _return = null;
     double minDist = Double.POSITIVE_INFINITY;
-    for (VideoFrame f : videoSegment.getVideoFrames()) {
+    for (VideoFrame f : frames) {
       double dist = ImageDistance.colorDistance(reference, f.getImage());
       if (dist < minDist) {
         minDist = dist;
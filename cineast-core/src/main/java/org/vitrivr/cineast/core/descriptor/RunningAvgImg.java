@@ -0,0 +1,81 @@
+package org.vitrivr.cineast.core.descriptor;
+
+import java.nio.IntBuffer;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.util.DecodingError;
+
+/**
+ * Maintains the per-pixel sum of a sequence of images of equal size, such that their average can be obtained without keeping the images. The average equals the one calculated by {@link AvgImg}.
+ */
+public class RunningAvgImg {
+
+  private int[] sums;
+
+  private int count = 0;
+
+  private boolean invalid = false;
+
+  /**
+   * Adds an image to the average.
+   *
+   * @param colors Pixels of the image as returned by {@link org.vitrivr.cineast.core.data.raw.images.MultiImage#getColors()}.
+   */
+  public void add(int[] colors) {
+    this.add(IntBuffer.wrap(colors));
+  }
+
+  /**
+   * Adds an image to the average.
+   *
+   * @param colors Pixels of the image as returned by {@link org.vitrivr.cineast.core.data.raw.images.MultiImage#withColors(java.util.function.Consumer)}, from its position to its limit.
+   */
+  public void add(IntBuffer colors) {
+    final int length = colors.remaining();
+    final int start = colors.position();
+    if (this.sums == null) {
+      this.sums = new int[length * 3];
+    }
+    if (length * 3 != this.sums.length) {
+      this.invalid = true;
+      return;
+    }
+    for (int i = 0; i < length; ++i) {
+      int col = colors.get(start + i);
+      this.sums[3 * i] += ReadableRGBContainer.getRed(col);
+      this.sums[3 * i + 1] += ReadableRGBContainer.getGreen(col);
+      this.sums[3 * i + 2] += ReadableRGBContainer.getBlue(col);
+    }
+    this.count++;
+  }
+
+  /**
+   * @return Number of images added so far.
+   */
+  public int getCount() {
+    return this.count;
+  }
+
+  /**
+   * Returns the pixels of the average of all images added so far.
+   *
+   * @return Pixels of the average image or null, if no image was added.
+   * @throws DecodingError If the images did not have the same size.
+   */
+  public int[] getColors() {
+    if (this.invalid) {
+      throw new DecodingError();
+    }
+    if (this.count == 0) {
+      return null;
+    }
+    final int[] colors = new int[this.sums.length / 3];
+    final double size = this.count;
+    for (int i = 0; i < colors.length; ++i) {
+      colors[i] = ReadableRGBContainer.toIntColor(
+          (int) Math.round(this.sums[3 * i] / size),
+          (int) Math.round(this.sums[3 * i + 1] / size),
+          (int) Math.round(this.sums[3 * i + 2] / size));
+    }
+    return colors;
+  }
+}
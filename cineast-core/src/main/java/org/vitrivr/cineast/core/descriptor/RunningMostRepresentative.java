@@ -0,0 +1,44 @@
+package org.vitrivr.cineast.core.descriptor;
+
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+
+/**
+ * Keeps a candidate for the most representative frame of a sequence of frames without keeping the frames themselves.
+ * <p>
+ * {@link MostRepresentative} picks the frame closest to the average of all frames, which is only known once the last frame has been seen. Instead, every new frame is compared to the running average of the thumbnails seen so far and replaces the candidate if it is at least as close to it. The candidate can then be compared against the final average together with any other retained frames.
+ */
+public class RunningMostRepresentative {
+
+  private final RunningAvgImg average = new RunningAvgImg();
+
+  private VideoFrame candidate;
+
+  private int[] candidateColors;
+
+  /**
+   * Considers the given frame as the new candidate.
+   *
+   * @param frame The next frame of the sequence.
+   */
+  public void add(VideoFrame frame) {
+    final int[] colors = frame.getImage().getThumbnailColors();
+    this.average.add(colors);
+    if (this.candidate == null) {
+      this.candidate = frame;
+      this.candidateColors = colors;
+      return;
+    }
+    final int[] mean = this.average.getColors();
+    if (ImageDistance.colorDistance(colors, mean) <= ImageDistance.colorDistance(this.candidateColors, mean)) {
+      this.candidate = frame;
+      this.candidateColors = colors;
+    }
+  }
+
+  /**
+   * @return The current candidate or null, if no frame was added.
+   */
+  public VideoFrame getCandidate() {
+    return this.candidate;
+  }
+}
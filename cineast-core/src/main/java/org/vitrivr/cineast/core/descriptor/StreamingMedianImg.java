@@ -0,0 +1,107 @@
+package org.vitrivr.cineast.core.descriptor;
+
+import java.nio.IntBuffer;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.util.DecodingError;
+
+/**
+ * Maintains a small histogram per pixel and color channel for a sequence of images of equal size, such that an approximation of their median image can be obtained without keeping the images.
+ * <p>
+ * Unlike {@link MedianImg}, which needs all images and uses 128 levels per channel, the histograms have {@link #BINS} bins of one byte each, i.e. the median is exact up to the width of a bin. When a bin overflows, all bins of that histogram are halved, which keeps the position of the median approximately intact.
+ */
+public class StreamingMedianImg {
+
+  /**
+   * Number of bins per pixel and channel.
+   */
+  public static final int BINS = 32;
+
+  private static final int SHIFT = 3;
+
+  private byte[] histograms;
+
+  private int pixels;
+
+  private boolean invalid = false;
+
+  /**
+   * Adds an image to the histograms.
+   *
+   * @param colors Pixels of the image as returned by {@link org.vitrivr.cineast.core.data.raw.images.MultiImage#getColors()}.
+   */
+  public void add(int[] colors) {
+    this.add(IntBuffer.wrap(colors));
+  }
+
+  /**
+   * Adds an image to the histograms.
+   *
+   * @param colors Pixels of the image as returned by {@link org.vitrivr.cineast.core.data.raw.images.MultiImage#withColors(java.util.function.Consumer)}, from its position to its limit.
+   */
+  public void add(IntBuffer colors) {
+    final int length = colors.remaining();
+    final int start = colors.position();
+    if (this.histograms == null) {
+      this.pixels = length;
+      this.histograms = new byte[length * 3 * BINS];
+    }
+    if (length != this.pixels) {
+      this.invalid = true;
+      return;
+    }
+    for (int i = 0; i < length; ++i) {
+      int col = colors.get(start + i);
+      this.increment((3 * i) * BINS, ReadableRGBContainer.getRed(col) >> SHIFT);
+      this.increment((3 * i + 1) * BINS, ReadableRGBContainer.getGreen(col) >> SHIFT);
+      this.increment((3 * i + 2) * BINS, ReadableRGBContainer.getBlue(col) >> SHIFT);
+    }
+  }
+
+  private void increment(int offset, int bin) {
+    if ((this.histograms[offset + bin] & 0xFF) == 0xFF) {
+      for (int j = offset; j < offset + BINS; ++j) {
+        this.histograms[j] = (byte) ((this.histograms[j] & 0xFF) >> 1);
+      }
+    }
+    this.histograms[offset + bin]++;
+  }
+
+  /**
+   * Returns the pixels of the median of all images added so far. Every channel is set to the center of its median bin.
+   *
+   * @return Pixels of the median image or null, if no image was added.
+   * @throws DecodingError If the images did not have the same size.
+   */
+  public int[] getColors() {
+    if (this.invalid) {
+      throw new DecodingError();
+    }
+    if (this.histograms == null) {
+      return null;
+    }
+    final int[] colors = new int[this.pixels];
+    for (int i = 0; i < colors.length; ++i) {
+      colors[i] = ReadableRGBContainer.toIntColor(
+          this.median((3 * i) * BINS),
+          this.median((3 * i + 1) * BINS),
+          this.median((3 * i + 2) * BINS));
+    }
+    return colors;
+  }
+
+  /**
+   * Finds the median bin of a histogram, like {@link MedianImg} does, and returns its center.
+   */
+  private int median(int offset) {
+    int pos_l = 0, pos_r = BINS - 1;
+    int sum_l = this.histograms[offset] & 0xFF, sum_r = this.histograms[offset + pos_r] & 0xFF;
+    while (pos_l < pos_r) {
+      if (sum_l < sum_r) {
+        sum_l += this.histograms[offset + ++pos_l] & 0xFF;
+      } else {
+        sum_r += this.histograms[offset + --pos_r] & 0xFF;
+      }
+    }
+    return (pos_l << SHIFT) + (1 << (SHIFT - 1));
+  }
+}
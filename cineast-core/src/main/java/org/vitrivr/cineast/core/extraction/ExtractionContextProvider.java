@@ -7,6 +7,7 @@
 import org.vitrivr.cineast.core.config.CacheConfig;
 import org.vitrivr.cineast.core.config.IdConfig;
 import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.db.DBSelector;
 import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
@@ -65,6 +66,15 @@ default Optional<Path> relPath() {
    */
   List<Extractor> exporters();
 
+  /**
+   * Returns the {@link FrameRetention} segmenters should use for the {@link org.vitrivr.cineast.core.data.segments.VideoSegment}s of this run.
+   *
+   * @return {@link FrameRetention#ALL} unless configured otherwise.
+   */
+  default FrameRetention frameRetention() {
+    return FrameRetention.ALL;
+  }
+
   /**
    * Returns a list of metadata extractor classes that should be invoked during extraction. MetadataExtractor's usually read some metadata from a file.
    *
@@ -141,6 +151,12 @@ default Optional<Path> relPath() {
    */
   Integer segmentQueueSize();
 
+  /**
+   * Returns the number of files of the same media type that are decoded and segmented concurrently. Every lane has its own decoder and segmenter and feeds the shared segment queue.
+   *
+   * @return Number of decoder lanes. Values < 1 are treated as 1.
+   */
+  int decoderLanes();
 
   /**
    * Returns the size of a batch. A batch is used when persisting data. Entities will be kept in memory until the batchsize limit is hit at which point they will be persisted.
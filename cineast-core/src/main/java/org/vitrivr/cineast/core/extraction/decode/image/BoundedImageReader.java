@@ -0,0 +1,179 @@
+package org.vitrivr.cineast.core.extraction.decode.image;
+
+import com.twelvemonkeys.image.ResampleOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images such that they fit into a square bounding box, used by {@link DefaultImageDecoder} and {@link ImageSequence}.
+ * <p>
+ * The image is decoded into a buffer that is reused by the same thread for subsequent images of the same size and type, e.g. photos of the same camera, and then resampled to the target size with a Lanczos filter. A reused buffer is cleared before decoding, so that rows a truncated file does not cover stay black, as they would in a freshly allocated image.
+ * <p>
+ * Optionally, large images are decoded with source subsampling to at least {@link #OVERSAMPLING} times the target size. This is considerably faster, but the subsampled raster skips pixels that the Lanczos filter would otherwise average, so the rescaled image and hence the extracted feature vectors differ slightly from those of a full decode. Subsampling is therefore disabled by default and should not be toggled for a collection that has already been extracted.
+ */
+public final class BoundedImageReader {
+
+  /**
+   * Minimum ratio between the size of the subsampled image and the target size, which leaves enough information for the final (anti-aliasing) resampling step.
+   */
+  static final int OVERSAMPLING = 2;
+
+  /**
+   * Decode buffer of the current thread, along with the image type it was created for.
+   */
+  private static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<>();
+
+  private record Buffer(ImageTypeSpecifier type, BufferedImage image) {
+
+  }
+
+  private BoundedImageReader() {
+  }
+
+  /**
+   * Reads the image under the given path at full resolution and rescales it to fit into the given bounds.
+   *
+   * @param path   Path to the image file.
+   * @param bounds Maximum width and height of the resulting image.
+   * @return Rescaled image or null, if no reader is available for the file.
+   * @throws IOException If reading the file fails.
+   */
+  public static BufferedImage read(Path path, int bounds) throws IOException {
+    return read(path, bounds, false);
+  }
+
+  /**
+   * Reads the image under the given path and rescales it to fit into the given bounds.
+   *
+   * @param path      Path to the image file.
+   * @param bounds    Maximum width and height of the resulting image.
+   * @param subsample True if large images may be subsampled while decoding, which changes the resulting pixels.
+   * @return Rescaled image or null, if no reader is available for the file.
+   * @throws IOException If reading the file fails.
+   */
+  public static BufferedImage read(Path path, int bounds, boolean subsample) throws IOException {
+    try (final ImageInputStream stream = ImageIO.createImageInputStream(path.toFile())) {
+      if (stream == null) {
+        return null;
+      }
+      final Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      final ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        final int width = reader.getWidth(0);
+        final int height = reader.getHeight(0);
+        final int[] target = targetSize(width, height, bounds);
+        final int subsampling = subsample ? subsampling(width, height, target[0], target[1]) : 1;
+
+        final ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        final BufferedImage buffer = buffer(reader, (width + subsampling - 1) / subsampling, (height + subsampling - 1) / subsampling);
+        if (buffer != null) {
+          param.setDestination(buffer);
+        }
+        final BufferedImage decoded;
+        try {
+          decoded = reader.read(0, param);
+        } catch (IOException | RuntimeException e) {
+          BUFFER.remove();
+          throw e;
+        }
+        return new ResampleOp(target[0], target[1], ResampleOp.FILTER_LANCZOS).filter(decoded, null); // A good default filter, see class documentation for more info
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Calculates the size of an image after rescaling it to fit into the given bounds, preserving its aspect ratio.
+   *
+   * @return Array containing the target width and height.
+   */
+  static int[] targetSize(int width, int height, int bounds) {
+    float ratio;
+    if (width > bounds) {
+      ratio = (float) bounds / (float) width;
+      width = (int) (width * ratio);
+      height = (int) (height * ratio);
+    }
+    if (height > bounds) {
+      ratio = (float) bounds / (float) height;
+      width = (int) (width * ratio);
+      height = (int) (height * ratio);
+    }
+    return new int[]{Math.max(1, width), Math.max(1, height)};
+  }
+
+  /**
+   * Calculates the largest subsampling factor that keeps the decoded image at least {@link #OVERSAMPLING} times larger than the target size in both dimensions.
+   */
+  static int subsampling(int width, int height, int targetWidth, int targetHeight) {
+    return Math.max(1, Math.min(width / (OVERSAMPLING * targetWidth), height / (OVERSAMPLING * targetHeight)));
+  }
+
+  /**
+   * Returns a buffer of the given size that is compatible with the reader's preferred image type. The buffer of the current thread is cleared and reused if it matches; otherwise, it is replaced.
+   *
+   * @return Buffer or null, if the reader does not announce an image type.
+   */
+  private static BufferedImage buffer(ImageReader reader, int width, int height) throws IOException {
+    final Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+    if (types == null || !types.hasNext()) {
+      return null;
+    }
+    final ImageTypeSpecifier type = types.next();
+    final Buffer cached = BUFFER.get();
+    if (cached != null && cached.image.getWidth() == width && cached.image.getHeight() == height && cached.type.equals(type)) {
+      clear(cached.image);
+      return cached.image;
+    }
+    final BufferedImage image = type.createBufferedImage(width, height);
+    BUFFER.set(new Buffer(type, image));
+    return image;
+  }
+
+  /**
+   * Resets all samples of the given image to zero.
+   */
+  static void clear(BufferedImage image) {
+    final DataBuffer data = image.getRaster().getDataBuffer();
+    for (int bank = 0; bank < data.getNumBanks(); bank++) {
+      if (data instanceof DataBufferByte bytes) {
+        Arrays.fill(bytes.getData(bank), (byte) 0);
+      } else if (data instanceof DataBufferUShort shorts) {
+        Arrays.fill(shorts.getData(bank), (short) 0);
+      } else if (data instanceof DataBufferShort shorts) {
+        Arrays.fill(shorts.getData(bank), (short) 0);
+      } else if (data instanceof DataBufferInt ints) {
+        Arrays.fill(ints.getData(bank), 0);
+      } else if (data instanceof DataBufferFloat floats) {
+        Arrays.fill(floats.getData(bank), 0f);
+      } else if (data instanceof DataBufferDouble doubles) {
+        Arrays.fill(doubles.getData(bank), 0d);
+      } else {
+        for (int i = 0; i < data.getSize(); i++) {
+          data.setElem(bank, i, 0);
+        }
+      }
+    }
+  }
+}
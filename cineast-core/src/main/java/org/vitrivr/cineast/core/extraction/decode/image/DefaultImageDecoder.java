@@ -1,13 +1,8 @@
 package org.vitrivr.cineast.core.extraction.decode.image;
 
-import com.twelvemonkeys.image.ResampleOp;
 import java.awt.image.BufferedImage;
-import java.awt.image.BufferedImageOp;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import javax.imageio.ImageIO;
@@ -23,6 +18,8 @@ public class DefaultImageDecoder implements Decoder<BufferedImage> {
   /* Configuration property-names and defaults for the DefaultImageDecoder. */
   private static final String CONFIG_BOUNDS_PROPERTY = "bounds";
   private static final int CONFIG_BOUNDS_DEFAULT = 1024;
+  private static final String CONFIG_SUBSAMPLING_PROPERTY = "subsampling";
+  private static final boolean CONFIG_SUBSAMPLING_DEFAULT = false;
 
   /**
    * Default logging facility.
@@ -41,6 +38,10 @@ public class DefaultImageDecoder implements Decoder<BufferedImage> {
    * Bounds used to rescale the image.
    */
   private int rescale_bounds = CONFIG_BOUNDS_DEFAULT;
+  /**
+   * Whether large images are subsampled while decoding, see {@link BoundedImageReader}.
+   */
+  private boolean subsampling = CONFIG_SUBSAMPLING_DEFAULT;
   /**
    * Path to the input file.
    */
@@ -60,54 +61,24 @@ public boolean init(Path path, DecoderConfig decoderConfig, CacheConfig cacheCon
     this.complete.set(false);
     if (decoderConfig != null) {
       this.rescale_bounds = decoderConfig.namedAsInt(CONFIG_BOUNDS_PROPERTY, CONFIG_BOUNDS_DEFAULT);
+      this.subsampling = decoderConfig.namedAsBoolean(CONFIG_SUBSAMPLING_PROPERTY, CONFIG_SUBSAMPLING_DEFAULT);
     }
     return true;
   }
 
   /**
-   * Obtains and returns a result by decoding the image. The image is re-rescaled to match the bounding box defined by RESCALE_BOUNDS.
+   * Obtains and returns a result by decoding the image. The image is re-rescaled to match the bounding box defined by RESCALE_BOUNDS; if enabled, large images are subsampled while decoding, see {@link BoundedImageReader}.
    *
    * @return BufferedImage of the decoded image file or null of decoding failed.
    */
   @Override
   public BufferedImage getNext() {
-    InputStream is = null;
     BufferedImage output = null;
-    BufferedImage input;
     try {
-      is = Files.newInputStream(this.input, StandardOpenOption.READ);
-      input = ImageIO.read(is);
-
-      if (input != null) {
-        int width = input.getWidth();
-        int height = input.getHeight();
-        float ratio = 0;
-
-        if (width > rescale_bounds) {
-          ratio = (float) rescale_bounds / (float) width;
-          width = (int) (width * ratio);
-          height = (int) (height * ratio);
-        }
-
-        if (height > rescale_bounds) {
-          ratio = (float) rescale_bounds / (float) height;
-          width = (int) (width * ratio);
-          height = (int) (height * ratio);
-        }
-
-        final BufferedImageOp resampler = new ResampleOp(width, height, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
-        output = resampler.filter(input, null);
-      }
+      output = BoundedImageReader.read(this.input, this.rescale_bounds, this.subsampling);
     } catch (IOException | IllegalArgumentException e) {
       LOGGER.fatal("A severe error occurred while trying to decode the image file under '{}'. Image will be skipped...", this.input.toString());
     } finally {
-      try {
-        if (is != null) {
-          is.close();
-        }
-      } catch (IOException e) {
-        LOGGER.warn("Could not close the input stream of the image file under {}.", this.input.toString());
-      }
       this.complete.set(true);
     }
     return output;
@@ -1,13 +1,8 @@
 package org.vitrivr.cineast.core.extraction.decode.image;
 
-import com.twelvemonkeys.image.ResampleOp;
 import java.awt.image.BufferedImage;
-import java.awt.image.BufferedImageOp;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -35,6 +30,8 @@ public final class ImageSequence {
   /* Configuration property-names and defaults for the DefaultImageDecoder. */
   private static final String CONFIG_BOUNDS_PROPERTY = "bounds";
   private static final int CONFIG_BOUNDS_DEFAULT = 1024;
+  private static final String CONFIG_SUBSAMPLING_PROPERTY = "subsampling";
+  private static final boolean CONFIG_SUBSAMPLING_DEFAULT = false;
   /**
    * Default logging facility.
    */
@@ -43,6 +40,10 @@ public final class ImageSequence {
    * Bounds used to rescale the image.
    */
   private final int rescale_bounds;
+  /**
+   * Whether large images are subsampled while decoding, see {@link BoundedImageReader}.
+   */
+  private final boolean subsampling;
 
   /**
    * List of suppliers for {@link BufferedImage}s.
@@ -57,8 +58,10 @@ public final class ImageSequence {
   public ImageSequence(DecoderConfig config) {
     if (config != null) {
       this.rescale_bounds = config.namedAsInt(CONFIG_BOUNDS_PROPERTY, CONFIG_BOUNDS_DEFAULT);
+      this.subsampling = config.namedAsBoolean(CONFIG_SUBSAMPLING_PROPERTY, CONFIG_SUBSAMPLING_DEFAULT);
     } else {
       this.rescale_bounds = CONFIG_BOUNDS_DEFAULT;
+      this.subsampling = CONFIG_SUBSAMPLING_DEFAULT;
     }
   }
 
@@ -69,27 +72,10 @@ public ImageSequence(DecoderConfig config) {
    */
   public void add(Path path) {
     this.images.add(() -> {
-      try (final InputStream is = Files.newInputStream(path, StandardOpenOption.READ)) {
-        final BufferedImage input = ImageIO.read(is);
-        if (input != null) {
-          int width = input.getWidth();
-          int height = input.getHeight();
-          float ratio;
-
-          if (width > rescale_bounds) {
-            ratio = (float) rescale_bounds / (float) width;
-            width = (int) (width * ratio);
-            height = (int) (height * ratio);
-          }
-
-          if (height > rescale_bounds) {
-            ratio = (float) rescale_bounds / (float) height;
-            width = (int) (width * ratio);
-            height = (int) (height * ratio);
-          }
-
-          final BufferedImageOp resampler = new ResampleOp(width, height, ResampleOp.FILTER_LANCZOS); // A good default filter, see class documentation for more info
-          return new Pair<>(path, Optional.of(resampler.filter(input, null)));
+      try {
+        final BufferedImage image = BoundedImageReader.read(path, this.rescale_bounds, this.subsampling);
+        if (image != null) {
+          return new Pair<>(path, Optional.of(image));
         }
       } catch (IOException | IllegalArgumentException e) {
         LOGGER.fatal("A severe error occurred while trying to decode the image file under '{}'. Image will be skipped...", path.toString());
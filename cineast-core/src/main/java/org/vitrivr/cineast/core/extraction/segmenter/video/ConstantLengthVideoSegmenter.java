@@ -10,6 +10,7 @@
 import org.vitrivr.cineast.core.data.MediaType;
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.data.segments.VideoSegment;
 import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
@@ -47,6 +48,11 @@ public class ConstantLengthVideoSegmenter implements Segmenter<VideoFrame> {
 
   private final float length;
 
+  /**
+   * {@link FrameRetention} of the {@link VideoSegment}s created by this segmenter, as configured for the run.
+   */
+  private FrameRetention retention = FrameRetention.ALL;
+
   public ConstantLengthVideoSegmenter(float targetSegmentLengthSeconds) {
     if (targetSegmentLengthSeconds <= 0f) {
       throw new IllegalArgumentException("Segment length must be positive");
@@ -56,6 +62,7 @@ public ConstantLengthVideoSegmenter(float targetSegmentLengthSeconds) {
 
   public ConstantLengthVideoSegmenter(ExtractionContextProvider context, Map<String, String> properties) {
     this(Float.parseFloat(properties.getOrDefault(PROPERTY_LENGTH_KEY, Float.toString(PROPERTY_LENGTH_DEFAULT))));
+    this.retention = context.frameRetention();
   }
 
   @Override
@@ -99,7 +106,7 @@ public Set<MediaType> getMediaTypes() {
   @Override
   public void run() {
 
-    VideoSegment currentSegment = new VideoSegment();
+    VideoSegment currentSegment = new VideoSegment(this.retention);
 
     float lastBoundary = 0;
 
@@ -120,7 +127,7 @@ public void run() {
         } catch (InterruptedException e) {
           //can be ignored
         }
-        currentSegment = new VideoSegment();
+        currentSegment = new VideoSegment(this.retention);
       }
 
     }
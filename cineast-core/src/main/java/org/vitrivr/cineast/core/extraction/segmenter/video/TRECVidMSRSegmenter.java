@@ -21,6 +21,7 @@
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.data.segments.VideoSegment;
 import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
@@ -66,6 +67,11 @@ public class TRECVidMSRSegmenter implements Segmenter<VideoFrame> {
    */
   private final Path msrFolderPath;
 
+  /**
+   * {@link FrameRetention} of the {@link VideoSegment}s created by this segmenter, as configured for the run.
+   */
+  private FrameRetention retention = FrameRetention.ALL;
+
   /**
    * The {@link Decoder} instance used by the current instance of {@link TRECVidMSRSegmenter}
    */
@@ -100,6 +106,7 @@ public TRECVidMSRSegmenter(Path path) {
    */
   public TRECVidMSRSegmenter(ExtractionContextProvider context) {
     this(context.inputPath().orElse(null));
+    this.retention = context.frameRetention();
   }
 
   /**
@@ -110,6 +117,7 @@ public TRECVidMSRSegmenter(ExtractionContextProvider context) {
    */
   public TRECVidMSRSegmenter(ExtractionContextProvider context, Map<String, String> properties) {
     this(properties.containsKey(PROPERTY_FOLDER_KEY) ? Paths.get(properties.get(PROPERTY_FOLDER_KEY)) : context.inputPath().orElse(null));
+    this.retention = context.frameRetention();
   }
 
   /**
@@ -238,7 +246,7 @@ public void run() {
           break;
         }
 
-        final VideoSegment segment = new VideoSegment();
+        final VideoSegment segment = new VideoSegment(this.retention);
 
         /* Append frames to the segment until the VideoFrame's (sequential) is beyond the boundaries. */
         while (!this.decoder.complete()) {
@@ -258,7 +266,7 @@ public void run() {
       }
 
       /* Create final segment. */
-      final VideoSegment finalSegment = new VideoSegment();
+      final VideoSegment finalSegment = new VideoSegment(this.retention);
       while (!this.decoder.complete()) {
         finalSegment.addVideoFrame(this.decoder.getNext());
       }
@@ -20,6 +20,7 @@
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.data.segments.VideoSegment;
 import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
@@ -65,6 +66,11 @@ public class V3CMSBSegmenter implements Segmenter<VideoFrame> {
    */
   private final Path msrFolderPath;
 
+  /**
+   * {@link FrameRetention} of the {@link VideoSegment}s created by this segmenter, as configured for the run.
+   */
+  private FrameRetention retention = FrameRetention.ALL;
+
   /**
    * The {@link Decoder} instance used by the current instance of {@link V3CMSBSegmenter}
    */
@@ -99,6 +105,7 @@ public V3CMSBSegmenter(Path path) {
    */
   public V3CMSBSegmenter(ExtractionContextProvider context) {
     this(context.inputPath().orElse(null));
+    this.retention = context.frameRetention();
   }
 
   /**
@@ -111,6 +118,7 @@ public V3CMSBSegmenter(ExtractionContextProvider context, Map<String, String> pr
     this(
         properties.containsKey(PROPERTY_FOLDER_KEY) ? Paths.get(properties.get(PROPERTY_FOLDER_KEY))
             : context.inputPath().orElse(null));
+    this.retention = context.frameRetention();
   }
 
   /**
@@ -241,7 +249,7 @@ public void run() {
           break;
         }
 
-        final VideoSegment segment = new VideoSegment();
+        final VideoSegment segment = new VideoSegment(this.retention);
 
         /* Append frames to the segment until the VideoFrame's (sequential) is beyond the boundaries. */
         while (!this.decoder.complete()) {
@@ -265,7 +273,7 @@ public void run() {
       }
 
       /* Create final segment. */
-      final VideoSegment finalSegment = new VideoSegment();
+      final VideoSegment finalSegment = new VideoSegment(this.retention);
       while (!this.decoder.complete()) {
         finalSegment.addVideoFrame(this.decoder.getNext());
       }
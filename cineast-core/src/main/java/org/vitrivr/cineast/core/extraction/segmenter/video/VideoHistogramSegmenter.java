@@ -14,6 +14,7 @@
 import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.data.segments.VideoSegment;
 import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
@@ -44,6 +45,9 @@ public class VideoHistogramSegmenter implements Segmenter<VideoFrame> {
   private final double threshold;
 
   private final int maxShotLength;
+
+  private final FrameRetention retention;
+
   private final LinkedList<VideoFrame> videoFrameList = new LinkedList<>();
   private final LinkedList<Pair<VideoFrame, Double>> preShotList = new LinkedList<>();
   private final LinkedBlockingQueue<SegmentContainer> segments = new LinkedBlockingQueue<>(SEGMENT_QUEUE_LENGTH);
@@ -79,6 +83,7 @@ public VideoHistogramSegmenter(ExtractionContextProvider context, Map<String, St
       this.maxShotLength = DEFAULT_MAX_SHOT_LENGTH;
     }
     this.segmentReader = new MediaSegmentReader(context.persistencyReader().get());
+    this.retention = context.frameRetention();
   }
 
   private static Histogram getHistogram(VideoFrame f) {
@@ -160,7 +165,7 @@ public void run() {
         VideoSegment _return = null;
 
         if (!preShotList.isEmpty()) {
-          _return = new VideoSegment();
+          _return = new VideoSegment(this.retention);
           while (!preShotList.isEmpty()) {
             _return.addVideoFrame(preShotList.removeFirst().first);
           }
@@ -172,7 +177,7 @@ public void run() {
         }
 
         if (_return == null) {
-          _return = new VideoSegment();
+          _return = new VideoSegment(this.retention);
         }
 
         VideoFrame videoFrame = this.videoFrameList.poll();
@@ -19,7 +19,6 @@
 import org.vitrivr.cineast.core.features.abstracts.StagedFeatureModule;
 import org.vitrivr.cineast.core.util.dsp.fft.FFTUtil;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
-import org.vitrivr.cineast.core.util.dsp.fft.Spectrum;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
 
 
@@ -177,25 +176,28 @@ private IntArrayList filterSpectrum(SegmentContainer segment) {
     if (stft == null) {
       return candidates;
     }
-    List<Spectrum> spectra = stft.getPowerSpectrum();
+    final double[] power = stft.getPowerMatrix();
+    final float[] frequencies = stft.getFrequencies();
+    final int height = stft.getHeight();
 
-    /* Foreach spectrum; find peak-values in the defined ranges. */
-    for (Spectrum spectrum : spectra) {
+    /* Foreach spectrum (i.e. row of the power matrix); find peak-values in the defined ranges. */
+    for (int i = 0; i < stft.getWidth(); i++) {
+      final int offset = i * height;
       int spectrumidx = 0;
       for (int j = 0; j < RANGES.length - 1; j++) {
-        Pair<Float, Double> peak = null;
-        for (int k = spectrumidx; k < spectrum.size(); k++) {
-          Pair<Float, Double> bin = spectrum.get(k);
-          if (bin.first >= RANGES[j] && bin.first <= RANGES[j + 1]) {
-            if (peak == null || bin.second > peak.second) {
-              peak = bin;
+        int peak = -1;
+        for (int k = spectrumidx; k < height; k++) {
+          if (frequencies[k] >= RANGES[j] && frequencies[k] <= RANGES[j + 1]) {
+            if (peak == -1 || power[offset + k] > power[offset + peak]) {
+              peak = k;
             }
-          } else if (bin.first > RANGES[j + 1]) {
+          } else if (frequencies[k] > RANGES[j + 1]) {
             spectrumidx = k;
             break;
           }
         }
-        candidates.add(Math.round(peak.first - (peak.first.intValue() % 2)));
+        final float frequency = frequencies[peak];
+        candidates.add(Math.round(frequency - (((int) frequency) % 2)));
       }
     }
     return candidates;
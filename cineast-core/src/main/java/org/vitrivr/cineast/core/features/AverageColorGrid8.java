@@ -1,13 +1,8 @@
 package org.vitrivr.cineast.core.features;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.vitrivr.cineast.core.color.ColorConverter;
-import org.vitrivr.cineast.core.color.ReadableLabContainer;
-import org.vitrivr.cineast.core.color.ReadableRGBContainer;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.FloatVector;
@@ -18,8 +13,7 @@
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
-import org.vitrivr.cineast.core.util.ColorUtils;
-import org.vitrivr.cineast.core.util.GridPartitioner;
+import org.vitrivr.cineast.core.util.ColorGrid;
 
 public class AverageColorGrid8 extends AbstractFeatureModule {
 
@@ -34,41 +28,20 @@ protected AverageColorGrid8(String tableName, float maxDist) {
   }
 
   protected static Pair<FloatVector, float[]> partition(MultiImage img) {
-    ArrayList<ReadableLabContainer> labs = new ArrayList<ReadableLabContainer>(
-        img.getWidth() * img.getHeight());
-    ArrayList<Float> alphas = new ArrayList<Float>(img.getWidth() * img.getHeight());
-    int[] colors = img.getColors();
-    for (int c : colors) {
-      labs.add(ColorConverter.cachedRGBtoLab(c));
-      alphas.add(ReadableRGBContainer.getAlpha(c) / 255f);
-    }
-
-    ArrayList<LinkedList<ReadableLabContainer>> partitions = GridPartitioner
-        .partition(labs, img.getWidth(), img.getHeight(), 8, 8);
-
-    float[] result = new float[8 * 8 * 3];
-    int i = 0;
-    for (LinkedList<ReadableLabContainer> list : partitions) {
-      ReadableLabContainer avg = ColorUtils.getAvg(list);
-      result[i++] = avg.getL();
-      result[i++] = avg.getA();
-      result[i++] = avg.getB();
-    }
+    float[][] grids = new float[2][];
+    img.withColors(colors -> {
+      grids[0] = ColorGrid.averageLab(colors, img.getWidth(), img.getHeight(), 8, 8);
+      grids[1] = ColorGrid.averageAlpha(colors, img.getWidth(), img.getHeight(), 8, 8);
+    });
+    float[] result = grids[0];
 
-    ArrayList<LinkedList<Float>> alphaPartitions = GridPartitioner
-        .partition(alphas, img.getWidth(), img.getHeight(), 8, 8);
+    float[] alphas = grids[1];
     float[] weights = new float[8 * 8 * 3];
-    i = 0;
-    for (LinkedList<Float> list : alphaPartitions) {
-      float a = 0;
-      int c = 0;
-      for (float f : list) {
-        a += f;
-        ++c;
-      }
-      weights[i++] = a / c;
-      weights[i++] = a / c;
-      weights[i++] = a / c;
+    int i = 0;
+    for (float a : alphas) {
+      weights[i++] = a;
+      weights[i++] = a;
+      weights[i++] = a;
     }
 
     return new Pair<FloatVector, float[]>(new FloatVectorImpl(result), weights);
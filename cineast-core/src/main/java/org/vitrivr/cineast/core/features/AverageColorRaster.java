@@ -3,15 +3,14 @@
 import static org.vitrivr.cineast.core.util.CineastConstants.GENERIC_ID_COLUMN_QUALIFIER;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.vitrivr.cineast.core.color.ColorConverter;
 import org.vitrivr.cineast.core.color.FuzzyColorHistogramQuantizer;
 import org.vitrivr.cineast.core.color.FuzzyColorHistogramQuantizer.Color;
+import org.vitrivr.cineast.core.color.LabLookupTable;
 import org.vitrivr.cineast.core.color.ReadableLabContainer;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
@@ -31,8 +30,7 @@
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition.AttributeType;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
-import org.vitrivr.cineast.core.util.ColorUtils;
-import org.vitrivr.cineast.core.util.GridPartitioner;
+import org.vitrivr.cineast.core.util.ColorGrid;
 
 public class AverageColorRaster extends AbstractFeatureModule {
 
@@ -220,21 +218,13 @@ MultiImage getMultiImage(SegmentContainer shot) {
 
   Pair<float[], float[]> computeRaster(SegmentContainer shot) {
     MultiImage avg = getMultiImage(shot);
-    int[] colors = avg.getColors();
-    ArrayList<Integer> ints = new ArrayList<>(colors.length);
-    for (int i : colors) {
-      ints.add(i);
-    }
-    ArrayList<LinkedList<Integer>> partitions = GridPartitioner.partition(ints, avg.getWidth(),
-        avg.getHeight(), 8, 8);
+    int[] colors = ColorGrid.averageColor(avg.getColors(), avg.getWidth(), avg.getHeight(), 8, 8);
 
     float[] raster = new float[64];
     float[] hist = new float[15];
 
     for (int i = 0; i < 64; ++i) {
-      LinkedList<Integer> list = partitions.get(i);
-      int col = ColorUtils.getAvg(list);
-      ReadableLabContainer lab = ColorConverter.cachedRGBtoLab(col);
+      ReadableLabContainer lab = LabLookupTable.lab(colors[i]);
       raster[i] = get(FuzzyColorHistogramQuantizer.quantize(lab));
       hist[(int) raster[i]]++;
     }
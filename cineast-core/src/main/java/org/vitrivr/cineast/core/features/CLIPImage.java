@@ -21,6 +21,7 @@
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceBroker;
 import org.vitrivr.cineast.core.util.images.ImagePreprocessingHelper;
 
 public class CLIPImage extends AbstractFeatureModule {
@@ -44,6 +45,11 @@ public class CLIPImage extends AbstractFeatureModule {
 
   private static SavedModelBundle model;
 
+  /**
+   * Batches concurrent embeddings, see {@link #embedBatch(List)}.
+   */
+  private static final InferenceBroker<float[], float[]> EMBEDDER = new InferenceBroker<>("CLIPImage", CLIPImage::embedBatch);
+
   public CLIPImage() {
     super(TABLE_NAME, 1f, EMBEDDING_SIZE);
     this.correspondence = CorrespondenceFunction.linear(0.5);
@@ -96,20 +102,26 @@ private synchronized static void initializeModel() {
   }
 
   private float[] embedImage(BufferedImage img) {
-    initializeModel();
+    return EMBEDDER.infer(prepareImage(img));
+  }
 
-    float[] rgb = prepareImage(img);
+  /**
+   * Runs the embedding model for a batch of prepared images.
+   */
+  private static List<float[]> embedBatch(List<float[]> rgb) {
+    initializeModel();
 
-    try (TFloat16 imageTensor = TFloat16.tensorOf(Shape.of(1, 3, IMAGE_SIZE, IMAGE_SIZE), DataBuffers.of(rgb))) {
+    final int batchSize = rgb.size();
+    try (TFloat16 imageTensor = TFloat16.tensorOf(Shape.of(batchSize, 3, IMAGE_SIZE, IMAGE_SIZE), DataBuffers.of(InferenceBroker.stack(rgb)))) {
       HashMap<String, Tensor> inputMap = new HashMap<>();
       inputMap.put(EMBEDDING_INPUT, imageTensor);
       Result resultMap = model.call(inputMap);
       try (TFloat16 encoding = (TFloat16) resultMap.get(EMBEDDING_OUTPUT).get()) {
-        var embeddingArray = new float[EMBEDDING_SIZE];
+        var embeddingArray = new float[batchSize * EMBEDDING_SIZE];
         var floatBuffer = DataBuffers.of(embeddingArray);
         encoding.read(floatBuffer);
 
-        return embeddingArray;
+        return InferenceBroker.unstack(embeddingArray, batchSize);
 
       }
     }
@@ -7,8 +7,17 @@
 import boofcv.alg.filter.blur.BlurImageOps;
 import boofcv.struct.image.GrayF32;
 import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.math3.stat.descriptive.rank.Median;
 import org.apache.commons.math3.util.FastMath;
@@ -20,11 +29,15 @@
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.providers.primitive.BitSetTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.data.providers.primitive.ProviderDataType;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.HammingIndex;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
 import org.vitrivr.cineast.core.db.dao.writer.SimpleBitSetWriter;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition.AttributeType;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
@@ -63,12 +76,18 @@ public class DCTImageHash extends AbstractFeatureModule {
     }
   }
 
-  private final GrayF32 resizedImg = new GrayF32(32, 32);
-  private final DMatrixRMaj resizedMat = new DMatrixRMaj(N, N);
-  private final DMatrixRMaj intermediateMat = new DMatrixRMaj(N, N);
-  private final DMatrixRMaj outputMat = new DMatrixRMaj(N, N);
   private SimpleBitSetWriter writer;
 
+  /**
+   * Incremented whenever an extraction in this JVM has finished writing hashes, such that the {@link NearDuplicateIndex} is reloaded by the next lookup.
+   */
+  private static final AtomicLong GENERATION = new AtomicLong();
+
+  /**
+   * {@link NearDuplicateIndex} per table for backends without a {@link HammingIndex} of their own (e.g. Cottontail DB), shared by all instances in this JVM. Loaded on first use and reloaded once hashes have been written or the row count of the table has changed.
+   */
+  private static final ConcurrentHashMap<String, IndexHolder> INDEXES = new ConcurrentHashMap<>();
+
   /**
    * No-args constructor for reflection
    */
@@ -76,9 +95,14 @@ public DCTImageHash() {
     super(TABLE_NAME, 64, 64);
   }
 
-  private BitSet extractHash(MultiImage image) {
-    long start = System.nanoTime();
-    //TODO Benchmark optimizations
+  /**
+   * Computes the hash of the given image. Uses no state of this instance, such that concurrent queries can share it.
+   */
+  private static BitSet extractHash(MultiImage image) {
+    final GrayF32 resizedImg = new GrayF32(N, N);
+    final DMatrixRMaj resizedMat = new DMatrixRMaj(N, N);
+    final DMatrixRMaj intermediateMat = new DMatrixRMaj(N, N);
+    final DMatrixRMaj outputMat = new DMatrixRMaj(N, N);
     float[] luminance = ColorConverter.RGBtoLuminance(image.getColors());
     GrayF32 mat = new GrayF32(image.getWidth(), image.getHeight());
     mat.setData(luminance);
@@ -105,7 +129,6 @@ private BitSet extractHash(MultiImage image) {
     for (int i = 0; i < 64; i++) {
       feature.set(i, relevant[i] > median);
     }
-    LOGGER.info("Processed in {} ms", (System.nanoTime() - start) / 1_000_000);
     return feature;
   }
 
@@ -131,11 +154,18 @@ public void init(PersistencyWriterSupplier phandlerSupply) {
   @Override
   public void finish() {
     LOGGER.debug("Finishing");
-    if (this.writer != null) {
-      this.writer.close();
-      this.writer = null;
+    final boolean wrote = this.writer != null;
+    try {
+      if (wrote) {
+        this.writer.close();
+        this.writer = null;
+      }
+    } finally {
+      if (wrote) {
+        GENERATION.incrementAndGet();
+      }
+      super.finish();
     }
-    super.finish();
   }
 
   @Override
@@ -143,6 +173,83 @@ public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc
     return this.getSimilar(new BitSetTypeProvider(extractHash(sc.getMostRepresentativeFrame().getImage())), qc);
   }
 
+  /**
+   * Returns the IDs of all segments whose hash lies within the given Hamming distance of the hash of the given query, e.g. to pre-filter other modules through {@link org.vitrivr.cineast.core.config.QueryConfig#addRelevantSegmentIds(java.util.Collection)}. The in-process backends search their own {@link HammingIndex}, all others the shared {@link NearDuplicateIndex} of the table; kNN queries through {@link #getSimilar(SegmentContainer, ReadableQueryConfig)} are always left to the selector.
+   *
+   * @param sc     The query.
+   * @param radius Maximum Hamming distance (inclusive).
+   * @return IDs of the near-duplicate segments.
+   */
+  public List<String> getNearDuplicates(SegmentContainer sc, int radius) {
+    if (sc.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
+      return new ArrayList<>(0);
+    }
+    final BitSet hash = extractHash(sc.getMostRepresentativeFrame().getImage());
+    if (this.selector instanceof InMemorySelector) {
+      return ((InMemorySelector) this.selector).getKeysWithinHammingDistance(FEATURE_COLUMN_QUALIFIER, hash, radius);
+    }
+    final NearDuplicateIndex index = this.nearDuplicateIndex();
+    return Arrays.stream(index.hashes.radius(HammingIndex.pack(hash), radius)).mapToObj(row -> index.segmentIds[row]).collect(Collectors.toList());
+  }
+
+  /**
+   * Returns the current {@link NearDuplicateIndex} of the table, (re-)loading it if it is stale. Only one query loads the index at a time; while it does, other queries keep using the previous index, if there is one.
+   */
+  private NearDuplicateIndex nearDuplicateIndex() {
+    final IndexHolder holder = INDEXES.computeIfAbsent(this.tableName, t -> new IndexHolder());
+    NearDuplicateIndex current = holder.index;
+    if (current != null && !this.isStale(current)) {
+      return current;
+    }
+    if (current == null) {
+      holder.lock.lock();
+    } else if (!holder.lock.tryLock()) {
+      return current;
+    }
+    try {
+      current = holder.index;
+      if (current == null || this.isStale(current)) {
+        current = this.loadIndex(current);
+        holder.index = current;
+      }
+      return current;
+    } finally {
+      holder.lock.unlock();
+    }
+  }
+
+  /**
+   * An index is stale once hashes have been written in this JVM or the number of rows in the table has changed, e.g. because another process has extracted segments.
+   */
+  private boolean isStale(NearDuplicateIndex index) {
+    if (index.generation != GENERATION.get()) {
+      return true;
+    }
+    try {
+      return this.selector.rowCount() != index.rows;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Could not count the rows of {}, keeping the loaded hashes: {}", this.tableName, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Streams the IDs and hashes of all segments into primitive arrays in a single scan over the two columns. If the scan fails, the previous index is kept.
+   *
+   * @param previous The index loaded before, if any.
+   */
+  private NearDuplicateIndex loadIndex(NearDuplicateIndex previous) {
+    final long generation = GENERATION.get();
+    final IndexBuilder builder = new IndexBuilder();
+    final boolean complete = this.selector.forEachRow(List.of(GENERIC_ID_COLUMN_QUALIFIER, FEATURE_COLUMN_QUALIFIER), builder);
+    if (!complete && previous != null) {
+      LOGGER.warn("Failed to reload the hashes of {}, keeping the {} hashes loaded before.", this.tableName, previous.segmentIds.length);
+      return previous;
+    }
+    LOGGER.debug("Loaded {} hashes from {}.", builder.size, this.tableName);
+    return builder.build(generation, complete ? builder.rows : -1);
+  }
+
   @Override
   public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
     supply.get().createEntity(this.tableName,
@@ -150,4 +257,72 @@ public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
         new AttributeDefinition(FEATURE_COLUMN_QUALIFIER, AttributeType.BITSET, 64)
     );
   }
+
+  /**
+   * A {@link HammingIndex} whose rows are indexes into {@link #segmentIds}, and the {@link #GENERATION} and number of rows in the table it has been loaded at.
+   */
+  private static final class NearDuplicateIndex {
+
+    private final HammingIndex hashes;
+
+    private final String[] segmentIds;
+
+    private final long generation;
+
+    /**
+     * Number of rows scanned, or -1 if the scan failed, such that the index is reloaded by the next lookup.
+     */
+    private final int rows;
+
+    private NearDuplicateIndex(HammingIndex hashes, String[] segmentIds, long generation, int rows) {
+      this.hashes = hashes;
+      this.segmentIds = segmentIds;
+      this.generation = generation;
+      this.rows = rows;
+    }
+  }
+
+  /**
+   * Collects the IDs and packed hashes of the rows of a scan into growing arrays. Rows without a valid hash are counted, but skipped.
+   */
+  private static final class IndexBuilder implements Consumer<Map<String, PrimitiveTypeProvider>> {
+
+    private String[] ids = new String[1024];
+
+    private long[] hashes = new long[1024];
+
+    private int size = 0;
+
+    private int rows = 0;
+
+    @Override
+    public void accept(Map<String, PrimitiveTypeProvider> row) {
+      this.rows++;
+      final PrimitiveTypeProvider id = row.get(GENERIC_ID_COLUMN_QUALIFIER);
+      final PrimitiveTypeProvider feature = row.get(FEATURE_COLUMN_QUALIFIER);
+      if (id == null || feature == null || feature.getType() != ProviderDataType.BITSET || !HammingIndex.isHash(feature.getBitSet())) {
+        return;
+      }
+      if (this.size == this.hashes.length) {
+        this.ids = Arrays.copyOf(this.ids, 2 * this.size);
+        this.hashes = Arrays.copyOf(this.hashes, 2 * this.size);
+      }
+      this.ids[this.size] = id.getString();
+      this.hashes[this.size++] = HammingIndex.pack(feature.getBitSet());
+    }
+
+    private NearDuplicateIndex build(long generation, int rows) {
+      return new NearDuplicateIndex(HammingIndex.of(IntStream.range(0, this.size).toArray(), Arrays.copyOf(this.hashes, this.size)), Arrays.copyOf(this.ids, this.size), generation, rows);
+    }
+  }
+
+  /**
+   * The current {@link NearDuplicateIndex} of a table, replaced as a whole such that lookups never wait for each other, and the lock held while it is reloaded.
+   */
+  private static final class IndexHolder {
+
+    private volatile NearDuplicateIndex index;
+
+    private final ReentrantLock lock = new ReentrantLock();
+  }
 }
@@ -14,6 +14,7 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
 import org.vitrivr.cineast.core.util.math.MathHelper;
@@ -95,6 +96,11 @@ private static int edgeType(int i1, int i2, int i3, int i4) {
     return -1;
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.DECIMATED;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
@@ -13,6 +13,7 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.descriptor.EdgeImg;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
@@ -50,6 +51,11 @@ private static FloatVector getEdges(MultiImage img) {
     return new FloatVectorImpl(f);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.DECIMATED;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
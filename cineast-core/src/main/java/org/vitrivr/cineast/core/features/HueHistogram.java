@@ -1,5 +1,6 @@
 package org.vitrivr.cineast.core.features;
 
+import java.nio.IntBuffer;
 import java.util.List;
 import org.vitrivr.cineast.core.color.ColorConverter;
 import org.vitrivr.cineast.core.color.HSVContainer;
@@ -8,6 +9,7 @@
 import org.vitrivr.cineast.core.data.FloatVectorImpl;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
 
@@ -17,8 +19,9 @@ public HueHistogram() {
     super("features_huehistogram", 16f, 16);
   }
 
-  private static float[] updateHist(float[] hist, int[] colors) {
-    for (int color : colors) {
+  private static float[] updateHist(float[] hist, IntBuffer colors) {
+    for (int i = colors.position(); i < colors.limit(); ++i) {
+      int color = colors.get(i);
       HSVContainer container = ColorConverter.RGBtoHSV(new ReadableRGBContainer(color));
       if (container.getS() > 0.2f && container.getV() > 0.3f) {
         float h = container.getH() * hist.length;
@@ -30,6 +33,11 @@ private static float[] updateHist(float[] hist, int[] colors) {
     return hist;
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.THUMBNAILS;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
@@ -39,7 +47,7 @@ public void processSegment(SegmentContainer shot) {
     float[] hist = new float[16];
 
     for (VideoFrame frame : shot.getVideoFrames()) {
-      updateHist(hist, frame.getImage().getThumbnailColors());
+      frame.getImage().withThumbnailColors(colors -> updateHist(hist, colors));
     }
 
     float sum = 0;
@@ -59,7 +67,8 @@ public void processSegment(SegmentContainer shot) {
   @Override
   public List<ScoreElement> getSimilar(SegmentContainer sc, ReadableQueryConfig qc) {
 
-    float[] query = updateHist(new float[16], sc.getMostRepresentativeFrame().getImage().getThumbnailColors());
+    float[] query = new float[16];
+    sc.getMostRepresentativeFrame().getImage().withThumbnailColors(colors -> updateHist(query, colors));
     return getSimilar(query, qc);
 
   }
@@ -1,15 +1,9 @@
 package org.vitrivr.cineast.core.features;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.color.ColorConverter;
-import org.vitrivr.cineast.core.color.HSVContainer;
-import org.vitrivr.cineast.core.color.RGBContainer;
 import org.vitrivr.cineast.core.color.ReadableRGBContainer;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
@@ -20,8 +14,10 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
+import org.vitrivr.cineast.core.util.ColorGrid;
 import org.vitrivr.cineast.core.util.GridPartitioner;
 
 public class HueValueVarianceGrid8 extends AbstractFeatureModule {
@@ -33,97 +29,66 @@ public HueValueVarianceGrid8() {
   }
 
   private Pair<FloatVector, float[]> computeGrid(SegmentContainer qc) {
-    ArrayList<SummaryStatistics> stats = new ArrayList<SummaryStatistics>(64);
-    for (int i = 0; i < 128; ++i) {
-      stats.add(new SummaryStatistics());
-    }
     MultiImage img = qc.getMostRepresentativeFrame().getImage();
     int[] colors = img.getColors();
-    ArrayList<HSVContainer> hsvs = new ArrayList<HSVContainer>(img.getWidth() * img.getHeight());
-    ArrayList<Float> alphas = new ArrayList<Float>(img.getWidth() * img.getHeight());
-    for (int c : colors) {
-      hsvs.add(ColorConverter.RGBtoHSV(new RGBContainer(c)));
-      alphas.add(ReadableRGBContainer.getAlpha(c) / 255f);
-    }
-
-    ArrayList<LinkedList<HSVContainer>> partitions = GridPartitioner.partition(hsvs, img.getWidth(),
-        img.getHeight(), 8, 8);
-    ArrayList<LinkedList<Float>> alphaPartitions = GridPartitioner.partition(alphas, img.getWidth(),
-        img.getHeight(), 8, 8);
-    for (int i = 0; i < partitions.size(); ++i) {
-      SummaryStatistics hue = stats.get(2 * i);
-      SummaryStatistics value = stats.get(2 * i + 1);
-      Iterator<Float> iter = alphaPartitions.get(i).iterator();
-      for (HSVContainer c : partitions.get(i)) {
-        if (iter.next() < 0.5f) {
-          continue;
-        }
-        hue.addValue(c.getH());
-        value.addValue(c.getV());
+    int width = img.getWidth(), height = img.getHeight();
+    ColorGrid.Moments stats = new ColorGrid.Moments(128);
+    float[] hsv = new float[3];
+    for (int i = 0; i < colors.length; ++i) {
+      if (ReadableRGBContainer.getAlpha(colors[i]) / 255f < 0.5f) {
+        continue;
       }
+      int cell = GridPartitioner.cell(i, width, height, 8, 8);
+      ColorConverter.RGBtoHSV(colors[i], hsv);
+      stats.add(2 * cell, hsv[0]);
+      stats.add(2 * cell + 1, hsv[2]);
     }
     float[] f = new float[128];
     for (int i = 0; i < 128; ++i) {
-      f[i] = (float) stats.get(i).getVariance();
+      f[i] = (float) stats.variance(i);
     }
 
+    float[] alphas = ColorGrid.averageAlpha(colors, width, height, 8, 8);
     float[] weights = new float[128];
-    for (int i = 0; i < alphaPartitions.size(); ++i) {
-      float w = 0;
-      for (float v : alphaPartitions.get(i)) {
-        w += v;
-      }
-      w /= alphaPartitions.get(i).size();
-      weights[2 * i] = w;
-      weights[2 * i + 1] = w;
+    for (int i = 0; i < alphas.length; ++i) {
+      weights[2 * i] = alphas[i];
+      weights[2 * i + 1] = alphas[i];
     }
 
     return new Pair<FloatVector, float[]>(new FloatVectorImpl(f), weights);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.THUMBNAILS;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
       return;
     }
     if (!phandler.idExists(shot.getId())) {
-      SummaryStatistics[] stats = new SummaryStatistics[128];
-      for (int i = 0; i < 128; ++i) {
-        stats[i] = new SummaryStatistics();
-      }
-      ArrayList<HSVContainer> hsvs = null;
+      ColorGrid.Moments stats = new ColorGrid.Moments(128);
+      float[] hsv = new float[3];
       List<VideoFrame> videoFrames = shot.getVideoFrames();
       for (VideoFrame f : videoFrames) {
         MultiImage img = f.getImage();
-        int[] ints = img.getColors();
-
-        if (hsvs == null) {
-          hsvs = new ArrayList<HSVContainer>(ints.length);
-        } else {
-          hsvs.clear();
-        }
-
-        for (int c : ints) {
-          hsvs.add(ColorConverter.RGBtoHSV(new RGBContainer(c)));
-        }
-
-        ArrayList<LinkedList<HSVContainer>> partition = GridPartitioner.partition(hsvs,
-            img.getWidth(), img.getHeight(), 8, 8);
-        for (int i = 0; i < 64; ++i) {
-          LinkedList<HSVContainer> list = partition.get(i);
-          SummaryStatistics hue = stats[2 * i];
-          SummaryStatistics value = stats[2 * i + 1];
-          for (HSVContainer c : list) {
-            hue.addValue(c.getH());
-            value.addValue(c.getV());
+        int width = img.getWidth(), height = img.getHeight();
+        img.withColors(colors -> {
+          int start = colors.position(), length = colors.remaining();
+          for (int i = 0; i < length; ++i) {
+            int cell = GridPartitioner.cell(i, width, height, 8, 8);
+            ColorConverter.RGBtoHSV(colors.get(start + i), hsv);
+            stats.add(2 * cell, hsv[0]);
+            stats.add(2 * cell + 1, hsv[2]);
           }
-        }
+        });
       }
 
       float[] fv = new float[128];
-      int i = 0;
-      for (SummaryStatistics s : stats) {
-        fv[i++] = (float) s.getVariance();
+      for (int i = 0; i < 128; ++i) {
+        fv[i] = (float) stats.variance(i);
       }
 
       persist(shot.getId(), new FloatVectorImpl(fv));
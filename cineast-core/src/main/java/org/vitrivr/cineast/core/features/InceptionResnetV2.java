@@ -19,8 +19,10 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceBroker;
 import org.vitrivr.cineast.core.util.images.ImagePreprocessingHelper;
 
 public class InceptionResnetV2 extends AbstractFeatureModule {
@@ -53,6 +55,11 @@ public class InceptionResnetV2 extends AbstractFeatureModule {
    */
   private static SavedModelBundle model;
 
+  /**
+   * Batches concurrent encodings, see {@link #encodeBatch(List)}.
+   */
+  private static final InferenceBroker<float[], float[]> ENCODER = new InferenceBroker<>("InceptionResnetV2", InceptionResnetV2::encodeBatch);
+
   public InceptionResnetV2() {
     super(TABLE_NAME, ENCODING_SIZE, ENCODING_SIZE);
   }
@@ -69,20 +76,35 @@ public static SavedModelBundle getModel() {
    * @return Intermediary encoding, not yet embedded.
    */
   public static float[] encodeImage(BufferedImage image) {
-    initializeModel();
+    return ENCODER.infer(preprocessImage(image));
+  }
+
+  /**
+   * Encodes the given images using InceptionResnetV2. The images are encoded in as few batches as possible.
+   *
+   * @return Intermediary encodings, not yet embedded, in the order of the images.
+   */
+  public static List<float[]> encodeImages(List<BufferedImage> images) {
+    return ENCODER.inferAll(images.stream().map(InceptionResnetV2::preprocessImage).collect(Collectors.toList()));
+  }
 
-    float[] processedColors = preprocessImage(image);
+  /**
+   * Runs InceptionResnetV2 for a batch of preprocessed images.
+   */
+  private static List<float[]> encodeBatch(List<float[]> processedColors) {
+    initializeModel();
 
-    try (TFloat32 imageTensor = TFloat32.tensorOf(Shape.of(1, IMAGE_WIDTH, IMAGE_HEIGHT, 3), DataBuffers.of(processedColors))) {
+    final int batchSize = processedColors.size();
+    try (TFloat32 imageTensor = TFloat32.tensorOf(Shape.of(batchSize, IMAGE_WIDTH, IMAGE_HEIGHT, 3), DataBuffers.of(InferenceBroker.stack(processedColors)))) {
       HashMap<String, Tensor> inputMap = new HashMap<>();
       inputMap.put(INPUT, imageTensor);
 
       var resultMap = model.call(inputMap);
       try (TFloat32 encoding = (TFloat32) resultMap.get(OUTPUT).get()) {
-        var embeddingArray = new float[ENCODING_SIZE];
+        var embeddingArray = new float[batchSize * ENCODING_SIZE];
         var floatBuffer = DataBuffers.of(embeddingArray);
         encoding.read(floatBuffer);
-        return embeddingArray;
+        return InferenceBroker.unstack(embeddingArray, batchSize);
       }
     }
   }
@@ -94,7 +116,7 @@ public static float[] encodeImage(BufferedImage image) {
    * @return Mean of frame encodings as float array.
    */
   public static float[] encodeVideo(List<MultiImage> frames) {
-    List<float[]> encodings = frames.stream().map(image -> encodeImage(image.getBufferedImage())).collect(Collectors.toList());
+    List<float[]> encodings = encodeImages(frames.stream().map(MultiImage::getBufferedImage).collect(Collectors.toList()));
 
     // Sum
     float[] meanEncoding = encodings.stream().reduce(new float[ENCODING_SIZE], (encoding0, encoding1) -> {
@@ -125,12 +147,17 @@ public static float[] preprocessImage(BufferedImage image) {
     return ImagePreprocessingHelper.imageToHWCArray(img, MEAN, STD);
   }
 
-  private static void initializeModel() {
+  private synchronized static void initializeModel() {
     if (model == null) {
       model = SavedModelBundle.load(MODEL_PATH);
     }
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.DECIMATED;
+  }
+
   @Override
   public void processSegment(SegmentContainer sc) {
     // Return if already processed
@@ -2,6 +2,7 @@
 
 import com.jogamp.opengl.awt.GLCanvas;
 import com.twelvemonkeys.image.ImageUtil;
+import java.awt.Color;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -29,6 +30,7 @@
 import org.vitrivr.cineast.core.render.JOGLOffscreenRenderer;
 import org.vitrivr.cineast.core.render.MeshOnlyRenderer;
 import org.vitrivr.cineast.core.render.Renderer;
+import org.vitrivr.cineast.core.render.SoftwareRenderer;
 import org.vitrivr.cineast.core.render.lwjgl.render.RenderOptions;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.LWJGLOffscreenRenderer;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.RenderActions;
@@ -59,6 +61,11 @@ public abstract class Lightfield extends StagedFeatureModule {
    */
   protected final static int POSEIDX_UNKNOWN = -1;
 
+  /**
+   * Vertical field of view used for headless rendering; same as the one of the LWJGL renderer.
+   */
+  private final static float HEADLESS_FIELD_OF_VIEW = 60.0f;
+
   /**
    * Camera positions used to create lightfield descriptions. - First index indicates the position-index - Second index can be used to address the x,y and z coordinates.
    * <p>
@@ -184,8 +191,13 @@ protected List<float[]> featureVectorsFromMesh(IModel model) {
       camerapositions.add(new Vector3f((float)
           cameraposition[0], (float) cameraposition[1], (float) cameraposition[2]).normalize().mul(0.95f));
     }
-    var images = RenderJob.performStandardRenderJob(RenderWorker.getRenderJobQueue(),
-        model, camerapositions, windowOptions, renderOptions);
+    final List<BufferedImage> images;
+    if (RenderWorker.getRenderJobQueue() != null) {
+      images = RenderJob.performStandardRenderJob(RenderWorker.getRenderJobQueue(),
+          model, camerapositions, windowOptions, renderOptions);
+    } else {
+      images = renderHeadless(model, camerapositions, renderOptions);
+    }
 
     var ic = 0;
     for ( var image :images){
@@ -195,6 +207,23 @@ protected List<float[]> featureVectorsFromMesh(IModel model) {
     return features;
   }
 
+  /**
+   * Renders the model from the given camera positions with a {@link SoftwareRenderer}, used if no {@link RenderWorker} (and thus no OpenGL context) is available. Projection, normalization, back face culling and lighting of the model match the LWJGL renderer for the given {@link RenderOptions}, which must not show textures.
+   */
+  private static List<BufferedImage> renderHeadless(IModel model, List<Vector3f> camerapositions, RenderOptions options) {
+    final SoftwareRenderer renderer = new SoftwareRenderer(RENDERING_SIZE, RENDERING_SIZE);
+    renderer.setProjection(SoftwareRenderer.Projection.PERSPECTIVE, HEADLESS_FIELD_OF_VIEW, 1.0f);
+    renderer.setCulling(true);
+    renderer.setLighting(options.lightingOptions);
+    final Vector4f color = options.colorfunction.apply(1f);
+    renderer.setForeground(new Color(Math.min(Math.max(color.x, 0f), 1f), Math.min(Math.max(color.y, 0f), 1f), Math.min(Math.max(color.z, 0f), 1f)));
+    renderer.assemble(model);
+    final List<double[]> eyes = new ArrayList<>(camerapositions.size());
+    for (Vector3f position : camerapositions) {
+      eyes.add(new double[]{position.x, position.y, position.z});
+    }
+    return renderer.renderViews(eyes, 0.0, 0.0, 0.0);
+  }
 
   protected abstract List<float[]> featureVectorsFromImage(BufferedImage image, int poseidx);
 
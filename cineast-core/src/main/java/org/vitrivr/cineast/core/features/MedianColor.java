@@ -12,6 +12,7 @@
 import org.vitrivr.cineast.core.data.providers.MedianImgProvider;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
 
@@ -58,6 +59,11 @@ protected LabContainer getMedian(MedianImgProvider provider) {
     return getMedian(provider.getMedianImg());
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
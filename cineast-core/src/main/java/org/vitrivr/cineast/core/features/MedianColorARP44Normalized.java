@@ -9,6 +9,7 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
 import org.vitrivr.cineast.core.util.ARPartioner;
@@ -20,6 +21,11 @@ public MedianColorARP44Normalized() {
     super("features_MedianColorARP44Normalized", 115854f / 4f, 96);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
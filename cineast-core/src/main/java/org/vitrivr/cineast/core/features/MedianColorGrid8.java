@@ -1,13 +1,9 @@
 package org.vitrivr.cineast.core.features;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.vitrivr.cineast.core.color.ColorConverter;
-import org.vitrivr.cineast.core.color.ReadableLabContainer;
-import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.color.LabLookupTable;
 import org.vitrivr.cineast.core.config.QueryConfig;
 import org.vitrivr.cineast.core.config.ReadableQueryConfig;
 import org.vitrivr.cineast.core.data.FloatVector;
@@ -17,10 +13,10 @@
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
-import org.vitrivr.cineast.core.util.ColorUtils;
-import org.vitrivr.cineast.core.util.GridPartitioner;
+import org.vitrivr.cineast.core.util.ColorGrid;
 
 public class MedianColorGrid8 extends AbstractFeatureModule {
 
@@ -35,45 +31,34 @@ protected MedianColorGrid8(String tableName, float maxDist) {
   }
 
   protected static Pair<FloatVector, float[]> partition(MultiImage img) {
-    ArrayList<Integer> labs = new ArrayList<Integer>(img.getWidth() * img.getHeight());
-    ArrayList<Float> alphas = new ArrayList<Float>(img.getWidth() * img.getHeight());
-    int[] colors = img.getColors();
-    for (int c : colors) {
-      labs.add(c);
-      alphas.add(ReadableRGBContainer.getAlpha(c) / 255f);
-    }
-
-    ArrayList<LinkedList<Integer>> partitions = GridPartitioner
-        .partition(labs, img.getWidth(), img.getHeight(), 8, 8);
+    int[][] medians = new int[1][];
+    float[][] alphas = new float[1][];
+    img.withColors(colors -> {
+      medians[0] = ColorGrid.medianColor(colors, img.getWidth(), img.getHeight(), 8, 8);
+      alphas[0] = ColorGrid.averageAlpha(colors, img.getWidth(), img.getHeight(), 8, 8);
+    });
 
     float[] result = new float[8 * 8 * 3];
-    int i = 0;
-    for (LinkedList<Integer> list : partitions) {
-      ReadableLabContainer lab = ColorConverter.cachedRGBtoLab(ColorUtils.median(list));
-      result[i++] = lab.getL();
-      result[i++] = lab.getA();
-      result[i++] = lab.getB();
+    for (int cell = 0; cell < medians[0].length; cell++) {
+      LabLookupTable.toLab(medians[0][cell], result, 3 * cell);
     }
 
-    ArrayList<LinkedList<Float>> alphaPartitions = GridPartitioner
-        .partition(alphas, img.getWidth(), img.getHeight(), 8, 8);
     float[] weights = new float[8 * 8 * 3];
-    i = 0;
-    for (LinkedList<Float> list : alphaPartitions) {
-      float a = 0;
-      int c = 0;
-      for (float f : list) {
-        a += f;
-        ++c;
-      }
-      weights[i++] = a / c;
-      weights[i++] = a / c;
-      weights[i++] = a / c;
+    int i = 0;
+    for (float a : alphas[0]) {
+      weights[i++] = a;
+      weights[i++] = a;
+      weights[i++] = a;
     }
 
     return new Pair<FloatVector, float[]>(new FloatVectorImpl(result), weights);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
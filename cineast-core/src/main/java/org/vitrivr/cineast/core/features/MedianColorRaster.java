@@ -4,6 +4,7 @@
 
 import java.util.function.Supplier;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
 import org.vitrivr.cineast.core.db.setup.AttributeDefinition;
@@ -12,6 +13,11 @@
 
 public class MedianColorRaster extends AverageColorRaster {
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void init(PersistencyWriterSupplier supply) {
     /* TODO: Respect batchSize. */
@@ -9,6 +9,7 @@
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.extraction.segmenter.FuzzyColorHistogram;
 import org.vitrivr.cineast.core.extraction.segmenter.FuzzyColorHistogramCalculator;
@@ -22,6 +23,11 @@ public MedianFuzzyHist() {
     super("features_MedianFuzzyHist", 2f / 4f, 15);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
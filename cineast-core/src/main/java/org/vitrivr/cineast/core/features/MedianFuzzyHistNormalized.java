@@ -7,6 +7,7 @@
 import org.vitrivr.cineast.core.data.ReadableFloatVector;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.extraction.segmenter.FuzzyColorHistogram;
 import org.vitrivr.cineast.core.extraction.segmenter.FuzzyColorHistogramCalculator;
@@ -19,6 +20,11 @@ public MedianFuzzyHistNormalized() {
     super("features_MedianFuzzyHistNormalized", 2f / 4f, 15);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.MEDIAN;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     if (shot.getMostRepresentativeFrame() == VideoFrame.EMPTY_VIDEO_FRAME) {
@@ -149,9 +149,10 @@ private List<float[]> getFeatures(Melody melody) {
   }
 
   private Melody transcribe(SegmentContainer sc) {
-    /* Calculate STFT and apply spectral whitening. */
+    /* Calculate STFT and apply spectral whitening. The STFT is computed locally, because the filter modifies it in place and STFTs obtained from the segment are shared. */
     Pair<Integer, Integer> parameters = FFTUtil.parametersForDuration(sc.getSamplingrate(), WINDOW_SIZE);
-    STFT stft = sc.getSTFT(parameters.first, 0, parameters.second, new HanningWindow());
+    STFT stft = new STFT(parameters.first, 0, parameters.second, new HanningWindow(), sc.getSamplingrate());
+    stft.forward(sc.getMeanSamplesAsDouble());
     stft.applyFilter(new SpectralWhiteningFilter(stft.getWindowsize(), stft.getSamplingrate(), 0.33f, 30));
 
     float time = stft.timeStepsize();
@@ -18,6 +18,7 @@
 import org.opencv.core.Point;
 import org.vitrivr.cineast.core.data.Pair;
 import org.vitrivr.cineast.core.data.entities.SimpleFulltextFeatureDescriptor;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractTextRetriever;
 import org.vitrivr.cineast.core.util.HungarianAlgorithm;
@@ -271,6 +272,11 @@ public double getAverageIntersectionOverUnion(List<Quadrilateral_F64> coordinate
     return count == 0 ? 0 : total_IoU / count;
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.ALL;
+  }
+
   /**
    * Extracts the scene text and ingests it using the {@link SimpleFulltextFeatureDescriptor}.
    *
@@ -205,19 +205,21 @@ protected void persist(String segmentId, Tag t) {
 
   @Override
   public void finish() {
-    if (this.writer != null) {
-      this.writer.close();
-      this.writer = null;
-    }
-
-    if (this.phandler != null) {
-      this.phandler.close();
-      this.phandler = null;
-    }
+    try {
+      if (this.writer != null) {
+        this.writer.close();
+        this.writer = null;
+      }
+    } finally {
+      if (this.phandler != null) {
+        this.phandler.close();
+        this.phandler = null;
+      }
 
-    if (this.selector != null) {
-      this.selector.close();
-      this.selector = null;
+      if (this.selector != null) {
+        this.selector.close();
+        this.selector = null;
+      }
     }
   }
 
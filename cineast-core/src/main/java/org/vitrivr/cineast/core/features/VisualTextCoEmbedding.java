@@ -28,8 +28,10 @@
 import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
 import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.features.abstracts.AbstractFeatureModule;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceBroker;
 import org.vitrivr.cineast.core.render.lwjgl.render.RenderOptions;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.RenderJob;
 import org.vitrivr.cineast.core.render.lwjgl.renderer.RenderWorker;
@@ -82,20 +84,26 @@ public class VisualTextCoEmbedding extends AbstractFeatureModule {
   private static SavedModelBundle textCoEmbedding;
 
   /**
-   * Embedding network from image to intermediary embedding.
+   * Embedding network from visual intermediary embedding to visual-text co-embedding.
    * <p>
-   * Currently using InceptionResNetV2 pretrained on <a href="https://storage.googleapis.com/tensorflow/keras-applications/inception_resnet_v2/inception_resnet_v2_weights_tf_dim_ordering_tf_kernels_notop.h5">ImageNet</a>.
+   * The intermediary embedding of images is computed by {@link InceptionResnetV2}, currently pretrained on <a href="https://storage.googleapis.com/tensorflow/keras-applications/inception_resnet_v2/inception_resnet_v2_weights_tf_dim_ordering_tf_kernels_notop.h5">ImageNet</a>.
    */
-  private static SavedModelBundle visualEmbedding;
+  private static SavedModelBundle visualCoEmbedding;
+
   /**
-   * Embedding network from visual intermediary embedding to visual-text co-embedding.
+   * Batches concurrent co-embeddings of intermediary visual embeddings, see {@link #coEmbedBatch(List)}.
    */
-  private static SavedModelBundle visualCoEmbedding;
+  private static final InferenceBroker<float[], float[]> VISUAL_CO_EMBEDDER = new InferenceBroker<>("VisualTextCoEmbedding", VisualTextCoEmbedding::coEmbedBatch);
 
   public VisualTextCoEmbedding() {
     super(TABLE_NAME, 2f, EMBEDDING_SIZE);
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.DECIMATED;
+  }
+
   @Override
   public void processSegment(SegmentContainer sc) {
     // Return if already processed
@@ -194,9 +202,6 @@ private synchronized static void initializeTextEmbedding() {
   }
 
   private synchronized static void initializeVisualEmbedding() {
-    if (visualEmbedding == null) {
-      visualEmbedding = InceptionResnetV2.getModel();
-    }
     if (visualCoEmbedding == null) {
       visualCoEmbedding = SavedModelBundle.load(RESOURCE_PATH + VISUAL_CO_EMBEDDING_MODEL);
     }
@@ -230,27 +235,28 @@ private float[] embedText(String text) {
 
 
   private float[] embedImage(BufferedImage image) {
-    initializeVisualEmbedding();
+    return VISUAL_CO_EMBEDDER.infer(InceptionResnetV2.encodeImage(image));
+  }
 
-    float[] processedColors = InceptionResnetV2.preprocessImage(image);
+  /**
+   * Runs the visual co-embedding network for a batch of intermediary embeddings.
+   */
+  private static List<float[]> coEmbedBatch(List<float[]> encodings) {
+    initializeVisualEmbedding();
 
-    try (TFloat32 imageTensor = TFloat32.tensorOf(Shape.of(1, InceptionResnetV2.IMAGE_WIDTH, InceptionResnetV2.IMAGE_HEIGHT, 3), DataBuffers.of(processedColors))) {
+    final int batchSize = encodings.size();
+    try (TFloat32 encoding = TFloat32.tensorOf(Shape.of(batchSize, InceptionResnetV2.ENCODING_SIZE), DataBuffers.of(InferenceBroker.stack(encodings)))) {
       HashMap<String, Tensor> inputMap = new HashMap<>();
-      inputMap.put(InceptionResnetV2.INPUT, imageTensor);
 
-      Result resultMap = visualEmbedding.call(inputMap);
-      try (TFloat32 intermediaryEmbedding = (TFloat32) resultMap.get(InceptionResnetV2.OUTPUT).get()) {
-        inputMap.clear();
-        inputMap.put(VISUAL_CO_EMBEDDING_INPUT, intermediaryEmbedding);
-        resultMap = visualCoEmbedding.call(inputMap);
-        try (TFloat32 embedding = (TFloat32) resultMap.get(VISUAL_CO_EMBEDDING_OUTPUT).get()) {
-          var embeddingArray = new float[EMBEDDING_SIZE];
-          var floatBuffer = DataBuffers.of(embeddingArray);
-          // Beware TensorFlow allows tensor writing to buffers through the function read rather than write
-          embedding.read(floatBuffer);
+      inputMap.put(VISUAL_CO_EMBEDDING_INPUT, encoding);
+      Result resultMap = visualCoEmbedding.call(inputMap);
+      try (TFloat32 embedding = (TFloat32) resultMap.get(VISUAL_CO_EMBEDDING_OUTPUT).get()) {
+        var embeddingArray = new float[batchSize * EMBEDDING_SIZE];
+        var floatBuffer = DataBuffers.of(embeddingArray);
+        // Beware TensorFlow allows tensor writing to buffers through the function read rather than write
+        embedding.read(floatBuffer);
 
-          return embeddingArray;
-        }
+        return InferenceBroker.unstack(embeddingArray, batchSize);
       }
     }
   }
@@ -352,12 +358,7 @@ private float[] embedMostRepresentativeImages(List<BufferedImage> images, Viewpo
    * @return the list of embedding vectors
    */
   private List<float[]> embedMultipleImages(List<BufferedImage> images) {
-    var vectors = new ArrayList<float[]>();
-    for (BufferedImage image : images) {
-      float[] embeddingArray = embedImage(image);
-      vectors.add(embeddingArray);
-    }
-    return vectors;
+    return VISUAL_CO_EMBEDDER.inferAll(InceptionResnetV2.encodeImages(images));
   }
 
   /**
@@ -395,23 +396,6 @@ private float[] embedModel(IModel model) {
 
 
   private float[] embedVideo(List<MultiImage> frames) {
-    initializeVisualEmbedding();
-
-    float[] meanEncoding = InceptionResnetV2.encodeVideo(frames);
-
-    try (TFloat32 encoding = TFloat32.tensorOf(Shape.of(1, InceptionResnetV2.ENCODING_SIZE), DataBuffers.of(meanEncoding))) {
-      HashMap<String, Tensor> inputMap = new HashMap<>();
-
-      inputMap.put(VISUAL_CO_EMBEDDING_INPUT, encoding);
-      Result resultMap = visualCoEmbedding.call(inputMap);
-      try (TFloat32 embedding = (TFloat32) resultMap.get(VISUAL_CO_EMBEDDING_OUTPUT).get()) {
-        var embeddingArray = new float[EMBEDDING_SIZE];
-        var floatBuffer = DataBuffers.of(embeddingArray);
-        // Beware TensorFlow allows tensor writing to buffers through the function read rather than write
-        embedding.read(floatBuffer);
-
-        return embeddingArray;
-      }
-    }
+    return VISUAL_CO_EMBEDDER.infer(InceptionResnetV2.encodeVideo(frames));
   }
 }
@@ -73,6 +73,11 @@ public void init(DBSelectorSupplier selectorSupply) {
     this.selector.open(this.tableName);
   }
 
+  @Override
+  public boolean isHealthy() {
+    return this.selector != null && this.selector.ping();
+  }
+
   protected void persist(String shotId, ReadableFloatVector fv) {
     SimpleFeatureDescriptor descriptor = new SimpleFeatureDescriptor(shotId, fv);
     this.writer.write(descriptor);
@@ -142,24 +147,29 @@ protected List<ScoreElement> getSimilar(PrimitiveTypeProvider queryProvider, Rea
 
   @Override
   public void finish() {
-    if (this.writer != null) {
-      this.writer.close();
-      this.writer = null;
-    }
-
-    if (this.primitiveWriter != null) {
-      this.primitiveWriter.close();
-      this.primitiveWriter = null;
-    }
-
-    if (this.phandler != null) {
-      this.phandler.close();
-      this.phandler = null;
-    }
-
-    if (this.selector != null) {
-      this.selector.close();
-      this.selector = null;
+    /* Closing a writer throws if tuples have been lost; the remaining resources are released nevertheless. */
+    try {
+      if (this.writer != null) {
+        this.writer.close();
+        this.writer = null;
+      }
+    } finally {
+      try {
+        if (this.primitiveWriter != null) {
+          this.primitiveWriter.close();
+          this.primitiveWriter = null;
+        }
+      } finally {
+        if (this.phandler != null) {
+          this.phandler.close();
+          this.phandler = null;
+        }
+
+        if (this.selector != null) {
+          this.selector.close();
+          this.selector = null;
+        }
+      }
     }
   }
 
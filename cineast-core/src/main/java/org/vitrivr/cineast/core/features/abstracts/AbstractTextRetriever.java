@@ -94,6 +94,11 @@ public void init(DBSelectorSupplier selectorSupply) {
     this.selector.open(this.getEntityName());
   }
 
+  @Override
+  public boolean isHealthy() {
+    return this.selector != null && this.selector.ping();
+  }
+
   @Override
   public void init(PersistencyWriterSupplier phandlerSupply) {
     this.writer = new SimpleFulltextFeatureDescriptorWriter(phandlerSupply.get(), this.tableName);
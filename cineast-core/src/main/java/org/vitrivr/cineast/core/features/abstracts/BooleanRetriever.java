@@ -74,6 +74,11 @@ public void init(DBSelectorSupplier selectorSupply) {
     this.selector.open(entity);
   }
 
+  @Override
+  public boolean isHealthy() {
+    return this.selector != null && this.selector.ping();
+  }
+
   public Collection<String> getAttributes() {
     return this.attributes.stream().map(x -> this.entity + "." + x).collect(Collectors.toSet());
   }
@@ -119,7 +124,10 @@ public List<ScoreElement> getSimilar(String segmentId, ReadableQueryConfig qc) {
 
   @Override
   public void finish() {
-    this.selector.close();
+    if (this.selector != null) {
+      this.selector.close();
+      this.selector = null;
+    }
   }
 
   @Override
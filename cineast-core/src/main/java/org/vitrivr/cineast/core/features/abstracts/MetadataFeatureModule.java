@@ -120,19 +120,21 @@ public boolean isRetrieverInitialized() {
 
   @Override
   public void finish() {
-    if (this.featureWriter != null) {
-      this.featureWriter.close();
-      this.featureWriter = null;
-    }
-
-    if (this.dbSelector != null) {
-      this.dbSelector.close();
-      this.dbSelector = null;
-    }
-
-    if (this.mediaSegmentReader != null) {
-      this.mediaSegmentReader.close();
-      this.mediaSegmentReader = null;
+    try {
+      if (this.featureWriter != null) {
+        this.featureWriter.close();
+        this.featureWriter = null;
+      }
+    } finally {
+      if (this.dbSelector != null) {
+        this.dbSelector.close();
+        this.dbSelector = null;
+      }
+
+      if (this.mediaSegmentReader != null) {
+        this.mediaSegmentReader.close();
+        this.mediaSegmentReader = null;
+      }
     }
   }
 
@@ -8,6 +8,7 @@
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
 import org.vitrivr.cineast.core.db.setup.EntityCreator;
@@ -58,6 +59,11 @@ public void init(PersistencyWriterSupplier phandlerSupply) {
     }
   }
 
+  @Override
+  public FrameRetention frameRetention() {
+    return FrameRetention.ALL;
+  }
+
   @Override
   public void processSegment(SegmentContainer shot) {
     for (VideoFrame f : shot.getVideoFrames()) {
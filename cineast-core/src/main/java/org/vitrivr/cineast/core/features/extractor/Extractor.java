@@ -1,5 +1,6 @@
 package org.vitrivr.cineast.core.features.extractor;
 
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
 import org.vitrivr.cineast.core.db.PersistentOperator;
@@ -11,4 +12,13 @@ public interface Extractor extends PersistentOperator {
   void processSegment(SegmentContainer shot);
 
   void finish();
+
+  /**
+   * Returns the least {@link FrameRetention} of video segments this {@link Extractor} can process. Extractors that read {@link SegmentContainer#getVideoFrames()} or the paths derived from them must override this method; the default only covers the average image and the most representative frame.
+   *
+   * @return {@link FrameRetention} needed by this {@link Extractor}.
+   */
+  default FrameRetention frameRetention() {
+    return FrameRetention.AGGREGATES;
+  }
 }
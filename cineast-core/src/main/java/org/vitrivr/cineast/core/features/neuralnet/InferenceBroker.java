@@ -0,0 +1,301 @@
+package org.vitrivr.cineast.core.features.neuralnet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Collects inference requests for one model from concurrent callers (usually the extraction threads calling {@code processSegment}) and runs them as batches.
+ * <p>
+ * Callers block in {@link #infer(Object)} while a worker thread takes the first pending request, waits at most {@code window} milliseconds for more requests to arrive, and runs the batch function once for up to {@code maxBatchSize} inputs. The outputs are handed back to the waiting callers in the order of their inputs. A single batched session call keeps the vectorised kernels of the (CPU) backend busy, whereas many calls with a batch of one mostly pay for dispatch and synchronisation.
+ * <p>
+ * If a batch fails, its inputs are run one by one such that only the offending callers see the exception. If all of them succeed individually, the model is assumed not to accept batches (e.g. because its input signature fixes the batch dimension to one) and all further requests are run one by one.
+ *
+ * @param <I> Type of the input of a single request, e.g. a preprocessed image.
+ * @param <O> Type of the output of a single request, e.g. an embedding.
+ */
+public final class InferenceBroker<I, O> {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  /**
+   * Default maximum number of requests per batch.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+
+  /**
+   * Default time in milliseconds the first request of a batch waits for further requests.
+   */
+  public static final long DEFAULT_WINDOW = 2;
+
+  private static volatile InferenceMetrics metrics = InferenceMetrics.NONE;
+
+  private final String model;
+
+  private final int maxBatchSize;
+
+  private final long window;
+
+  private final Function<List<I>, List<O>> function;
+
+  private final BlockingQueue<Request<I, O>> queue = new LinkedBlockingQueue<>();
+
+  private volatile boolean batching = true;
+
+  private volatile Thread worker;
+
+  private record Request<I, O>(I input, CompletableFuture<O> result, long enqueued) {
+
+  }
+
+  /**
+   * Creates a broker with {@link #DEFAULT_MAX_BATCH_SIZE} and {@link #DEFAULT_WINDOW}.
+   *
+   * @param model    Name of the model, used for the worker thread and the metrics.
+   * @param function Function that runs the model for a batch of inputs and returns one output per input, in the same order.
+   */
+  public InferenceBroker(String model, Function<List<I>, List<O>> function) {
+    this(model, DEFAULT_MAX_BATCH_SIZE, DEFAULT_WINDOW, function);
+  }
+
+  /**
+   * @param model        Name of the model, used for the worker thread and the metrics.
+   * @param maxBatchSize Maximum number of inputs per batch. With a value of one, requests are run on the calling thread, one at a time.
+   * @param window       Time in milliseconds the first request of a batch waits for further requests. With a value of zero, a batch consists of the requests that queued up while the previous batch was running.
+   * @param function     Function that runs the model for a batch of inputs and returns one output per input, in the same order.
+   */
+  public InferenceBroker(String model, int maxBatchSize, long window, Function<List<I>, List<O>> function) {
+    this.model = model;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.window = Math.max(0, window);
+    this.function = function;
+  }
+
+  /**
+   * Registers the {@link InferenceMetrics} all brokers report to.
+   */
+  public static void setMetrics(InferenceMetrics metrics) {
+    InferenceBroker.metrics = metrics == null ? InferenceMetrics.NONE : metrics;
+  }
+
+  public String getModel() {
+    return this.model;
+  }
+
+  /**
+   * Concatenates inputs of equal length into the buffer of a batch tensor, i.e. along the first (batch) dimension.
+   */
+  public static float[] stack(List<float[]> inputs) {
+    final int length = inputs.get(0).length;
+    final float[] batch = new float[inputs.size() * length];
+    for (int i = 0; i < inputs.size(); i++) {
+      System.arraycopy(inputs.get(i), 0, batch, i * length, length);
+    }
+    return batch;
+  }
+
+  /**
+   * Splits the buffer of a batch tensor into the given number of outputs of equal length.
+   */
+  public static List<float[]> unstack(float[] batch, int count) {
+    final int length = batch.length / count;
+    final List<float[]> outputs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final float[] output = new float[length];
+      System.arraycopy(batch, i * length, output, 0, length);
+      outputs.add(output);
+    }
+    return outputs;
+  }
+
+  /**
+   * Runs the model for the given input as part of the next batch and waits for its output.
+   *
+   * @param input Input of the model.
+   * @return Output of the model for the given input.
+   */
+  public O infer(I input) {
+    if (this.maxBatchSize == 1) {
+      return this.runDirectly(input);
+    }
+    return await(this.submit(input));
+  }
+
+  /**
+   * Runs the model for all the given inputs and waits for their outputs. The inputs are queued at once and thus end up in as few batches as possible, shared with the requests of other callers.
+   *
+   * @param inputs Inputs of the model.
+   * @return Outputs of the model, in the order of the inputs.
+   */
+  public List<O> inferAll(List<I> inputs) {
+    final List<O> outputs = new ArrayList<>(inputs.size());
+    if (this.maxBatchSize == 1) {
+      for (I input : inputs) {
+        outputs.add(this.runDirectly(input));
+      }
+      return outputs;
+    }
+    final List<CompletableFuture<O>> results = new ArrayList<>(inputs.size());
+    for (I input : inputs) {
+      results.add(this.submit(input));
+    }
+    for (CompletableFuture<O> result : results) {
+      outputs.add(await(result));
+    }
+    return outputs;
+  }
+
+  /**
+   * Stops the worker thread. Requests that are still pending fail with an {@link IllegalStateException}; new requests start a new worker.
+   */
+  public synchronized void close() {
+    if (this.worker != null) {
+      this.worker.interrupt();
+      this.worker = null;
+    }
+  }
+
+  /**
+   * @return False, if the model was found not to accept batches of more than one input.
+   */
+  boolean isBatching() {
+    return this.batching;
+  }
+
+  private CompletableFuture<O> submit(I input) {
+    if (this.worker == null) {
+      this.start();
+    }
+    final CompletableFuture<O> result = new CompletableFuture<>();
+    this.queue.add(new Request<>(input, result, System.nanoTime()));
+    return result;
+  }
+
+  private synchronized void start() {
+    if (this.worker != null) {
+      return;
+    }
+    final Thread thread = new Thread(this::work, "inference-" + this.model);
+    thread.setDaemon(true);
+    thread.start();
+    this.worker = thread;
+  }
+
+  private static <O> O await(CompletableFuture<O> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the inference result.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+      throw new IllegalStateException("Inference failed.", e.getCause());
+    }
+  }
+
+  private synchronized O runDirectly(I input) {
+    final long start = System.nanoTime();
+    final O output = this.apply(List.of(input)).get(0);
+    metrics.reportBatch(this.model, 1, (System.nanoTime() - start) / 1e6);
+    return output;
+  }
+
+  private List<O> apply(List<I> inputs) {
+    final List<O> outputs = this.function.apply(inputs);
+    if (outputs == null || outputs.size() != inputs.size()) {
+      throw new IllegalStateException("Model " + this.model + " returned " + (outputs == null ? 0 : outputs.size()) + " outputs for " + inputs.size() + " inputs.");
+    }
+    return outputs;
+  }
+
+  /**
+   * Main loop of the worker thread.
+   */
+  private void work() {
+    final long windowNanos = TimeUnit.MILLISECONDS.toNanos(this.window);
+    final List<Request<I, O>> batch = new ArrayList<>(this.maxBatchSize);
+    while (true) {
+      try {
+        batch.add(this.queue.take());
+        final int size = this.batching ? this.maxBatchSize : 1;
+        final long deadline = batch.get(0).enqueued + windowNanos;
+        while (batch.size() < size) {
+          this.queue.drainTo(batch, size - batch.size());
+          final long remaining = deadline - System.nanoTime();
+          if (batch.size() >= size || remaining <= 0) {
+            break;
+          }
+          final Request<I, O> next = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        this.run(batch);
+      } catch (InterruptedException e) {
+        LOGGER.debug("Inference worker for {} was stopped.", this.model);
+        this.queue.drainTo(batch);
+        for (Request<I, O> request : batch) {
+          request.result.completeExceptionally(new IllegalStateException("Inference worker for " + this.model + " was stopped."));
+        }
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void run(List<Request<I, O>> batch) {
+    final long start = System.nanoTime();
+    final InferenceMetrics metrics = InferenceBroker.metrics;
+    final List<I> inputs = new ArrayList<>(batch.size());
+    for (Request<I, O> request : batch) {
+      metrics.reportQueueWait(this.model, (start - request.enqueued) / 1e6);
+      inputs.add(request.input);
+    }
+    try {
+      final List<O> outputs = this.apply(inputs);
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).result.complete(outputs.get(i));
+      }
+    } catch (Throwable t) {
+      if (batch.size() == 1) {
+        batch.get(0).result.completeExceptionally(t);
+      } else {
+        this.runSingly(batch, t);
+      }
+    }
+    metrics.reportBatch(this.model, batch.size(), (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Runs the requests of a failed batch one by one.
+   */
+  private void runSingly(List<Request<I, O>> batch, Throwable cause) {
+    boolean failed = false;
+    for (Request<I, O> request : batch) {
+      try {
+        request.result.complete(this.apply(List.of(request.input)).get(0));
+      } catch (Throwable t) {
+        request.result.completeExceptionally(t);
+        failed = true;
+      }
+    }
+    if (!failed) {
+      this.batching = false;
+      LOGGER.warn("Model {} failed for a batch of {} inputs but succeeded for each of them; running it without batching from now on.", this.model, batch.size(), cause);
+    }
+  }
+}
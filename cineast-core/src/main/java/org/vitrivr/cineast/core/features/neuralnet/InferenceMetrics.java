@@ -0,0 +1,28 @@
+package org.vitrivr.cineast.core.features.neuralnet;
+
+/**
+ * Receives statistics about the batches run by {@link InferenceBroker}s. Register an implementation using {@link InferenceBroker#setMetrics(InferenceMetrics)}; all methods are called from the thread that runs the batch.
+ */
+public interface InferenceMetrics {
+
+  /**
+   * Does not record anything.
+   */
+  InferenceMetrics NONE = new InferenceMetrics() {
+  };
+
+  /**
+   * @param model        Name of the model.
+   * @param milliseconds Time a request spent in the queue before its batch was started.
+   */
+  default void reportQueueWait(String model, double milliseconds) {
+  }
+
+  /**
+   * @param model        Name of the model.
+   * @param size         Number of requests in the batch.
+   * @param milliseconds Time it took to run the batch, including the conversion of inputs and outputs.
+   */
+  default void reportBatch(String model, int size, double milliseconds) {
+  }
+}
@@ -23,6 +23,7 @@
 import org.tensorflow.types.TFloat32;
 import org.vitrivr.cineast.core.color.RGBContainer;
 import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceBroker;
 import org.vitrivr.cineast.core.features.neuralnet.tf.GraphBuilder;
 import org.vitrivr.cineast.core.features.neuralnet.tf.models.yolo.util.BoundingBox;
 import org.vitrivr.cineast.core.features.neuralnet.tf.models.yolo.util.BoxPosition;
@@ -40,6 +41,7 @@ public class YOLO implements AutoCloseable {
   private final static float OVERLAP_THRESHOLD = 0.5f;
   private final static double[] anchors = {1.08, 1.19, 3.42, 4.41, 6.63, 11.38, 9.42, 5.11, 16.62, 10.52};
   private final static int SIZE = 13;
+  private final static int INPUT_SIZE = 416;
   private final static int MAX_RECOGNIZED_CLASSES = 24;
   private final static float THRESHOLD = 0.5f;
   private final static int MAX_RESULTS = 24;
@@ -55,6 +57,7 @@ public class YOLO implements AutoCloseable {
   private final String imageOutName;
   private final Graph yoloGraph;
   private final Session yoloSession;
+  private final InferenceBroker<float[], float[]> broker = new InferenceBroker<>("YOLO", this::executeYOLOGraph);
 
   public YOLO() {
     byte[] GRAPH_DEF;
@@ -79,7 +82,7 @@ public YOLO() {
 
     Output<TFloat32> imageFloat = graphBuilder.placeholder("T", DataType.DT_FLOAT);
 
-    final int[] size = new int[]{416, 416};
+    final int[] size = new int[]{INPUT_SIZE, INPUT_SIZE};
 
     final Output<TFloat32> output =
 
@@ -234,6 +237,7 @@ private float getIntersectionProportion(BoxPosition primaryShape, BoxPosition se
 
   @Override
   public void close() {
+    broker.close();
     yoloSession.close();
     yoloGraph.close();
     preprocessingSession.close();
@@ -244,7 +248,9 @@ public void close() {
   public List<Recognition> detect(MultiImage img) {
 
     try (TFloat32 normalizedImage = normalizeImage(img)) {
-      return classifyImage(executeYOLOGraph(normalizedImage), LABELS);
+      float[] normalized = new float[(int) normalizedImage.size()];
+      normalizedImage.read(DataBuffers.of(normalized));
+      return classifyImage(broker.infer(normalized), LABELS);
     }
   }
 
@@ -261,20 +267,22 @@ private TFloat32 normalizeImage(MultiImage img) {
   }
 
   /**
-   * Executes graph on the given preprocessed image
+   * Executes graph on the given batch of preprocessed images
    *
-   * @param image preprocessed image
-   * @return output tensor returned by tensorFlow
+   * @param images preprocessed images
+   * @return output tensors returned by tensorFlow, one per image
    */
-  private float[] executeYOLOGraph(final TFloat32 image) {
+  private List<float[]> executeYOLOGraph(final List<float[]> images) {
 
-    TFloat32 result = (TFloat32) yoloSession.runner().feed("input", image).fetch("output").run().get(0);
+    try (TFloat32 image = TFloat32.tensorOf(Shape.of(images.size(), INPUT_SIZE, INPUT_SIZE, 3), DataBuffers.of(InferenceBroker.stack(images)))) {
+      TFloat32 result = (TFloat32) yoloSession.runner().feed("input", image).fetch("output").run().get(0);
 
-    float[] outputTensor = new float[getOutputSizeByShape(result)];
-    FloatDataBuffer floatBuffer = DataBuffers.of(outputTensor);
-    result.read(floatBuffer);
-    result.close();
-    return outputTensor;
+      float[] outputTensor = new float[images.size() * getOutputSizeByShape(result)];
+      FloatDataBuffer floatBuffer = DataBuffers.of(outputTensor);
+      result.read(floatBuffer);
+      result.close();
+      return InferenceBroker.unstack(outputTensor, images.size());
+    }
   }
 
   // Intentionally reversed to put high confidence at the head of the queue.
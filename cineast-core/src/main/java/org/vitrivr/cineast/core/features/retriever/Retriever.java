@@ -25,4 +25,13 @@ default List<ScoreElement> getSimilar(List<String> segmentIds, ReadableQueryConf
   }
 
   void finish();
+
+  /**
+   * Indicates whether this {@link Retriever} can still serve queries, e.g. whether its connection to the database is alive. Used to decide whether an initialized instance can be reused.
+   *
+   * @return True if the retriever is healthy.
+   */
+  default boolean isHealthy() {
+    return true;
+  }
 }
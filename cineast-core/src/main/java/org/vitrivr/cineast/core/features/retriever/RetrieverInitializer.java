@@ -1,7 +1,27 @@
 package org.vitrivr.cineast.core.features.retriever;
 
+/**
+ * Manages the lifecycle of the {@link Retriever}s used by a query.
+ */
 public interface RetrieverInitializer {
 
+  /**
+   * Prepares the {@link Retriever} for a query.
+   */
   void initialize(Retriever r);
 
+  /**
+   * Called once a query no longer uses the {@link Retriever}. The default implementation finishes it.
+   */
+  default void release(Retriever r) {
+    r.finish();
+  }
+
+  /**
+   * Called instead of {@link #release(Retriever)} if the {@link Retriever} failed during a query and should not be reused. The default implementation finishes it.
+   */
+  default void discard(Retriever r) {
+    r.finish();
+  }
+
 }
@@ -0,0 +1,1024 @@
+package org.vitrivr.cineast.core.render;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import org.joml.Vector3f;
+import org.joml.Vector3fc;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.ReadableMesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.IModel;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.Material;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.util.MinimalBoundingBox;
+import org.vitrivr.cineast.core.render.lwjgl.scene.Scene;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.DirectionalLight;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.LightingOptions;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.PointLight;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.SceneLights;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.SpotLight;
+
+/**
+ * Pure-Java rasterizer that renders 3D models (Meshes, VoxelGrids or {@link IModel}s) without an OpenGL context, e.g. on headless ingest nodes. It supports the subset of the {@link JOGLOffscreenRenderer} that is required by the lightfield features:
+ * <p>
+ * - Perspective (default, 45 degrees like {@link JOGLOffscreenRenderer}) or orthographic camera - Depth buffer with GL_LESS semantics - Optional back face culling - Flat (per face) or normal coloring - Optional lighting that follows the fragment shader of the LWJGL renderer, see {@link #setLighting(LightingOptions)} - Snapshots in AWT orientation, see {@link #obtain()}
+ * <p>
+ * Triangles are rasterized with edge functions in horizontal bands of the framebuffer, which are processed in parallel by {@link #render()}. Alternatively, {@link #renderViews(List, double, double, double)} renders several camera positions at once, each as a task of its own and into a framebuffer that only lives as long as the call. Both run on a pool of daemon threads owned by this class, never on the common pool.
+ * <p>
+ * Like the other renderers, an instance must be retained before and released after use if it is shared by multiple threads.
+ */
+public class SoftwareRenderer implements MeshOnlyRenderer {
+
+  /**
+   * Projection used by the camera.
+   */
+  public enum Projection {
+    PERSPECTIVE, ORTHOGRAPHIC
+  }
+
+  /**
+   * Coloring of the faces.
+   */
+  public enum Coloring {
+    /**
+     * Faces have the color of their first vertex (Meshes) or the foreground color (VoxelGrids, {@link IModel}s).
+     */
+    FLAT,
+    /**
+     * Faces are colored by the absolute value of their normal, i.e. independent of their winding.
+     */
+    NORMAL
+  }
+
+  /**
+   * Number of rows that make up a band of the framebuffer.
+   */
+  private static final int BAND_HEIGHT = 16;
+
+  /**
+   * Floats per triangle in the scene: three vertices, the RGB color and the normals of the three vertices.
+   */
+  private static final int STRIDE = 21;
+
+  /**
+   * Floats per vertex in clip space: position (x, y, z, w), normal and position in world space.
+   */
+  private static final int CLIP_STRIDE = 10;
+
+  /**
+   * Floats per projected triangle: three vertices in screen space (x, y, depth).
+   */
+  private static final int SCREEN_STRIDE = 9;
+
+  /**
+   * Floats per projected triangle that are needed for lighting: for each vertex 1/w followed by its normal and world position divided by w, then the RGB color.
+   */
+  private static final int SHADING_STRIDE = 24;
+
+  private static final float NEAR = 0.01f;
+
+  private static final float FAR = 100.0f;
+
+  private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+  private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+  /**
+   * Threads that rasterize bands and views of all SoftwareRenderers. Tasks on this pool never wait for other tasks of the pool.
+   */
+  private static final ExecutorService POOL = Executors.newFixedThreadPool(PARALLELISM, r -> {
+    final Thread thread = new Thread(r, "software-renderer-" + THREAD_COUNTER.getAndIncrement());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final int width;
+
+  private final int height;
+
+  private final float aspect;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Framebuffer framebuffer;
+
+  /**
+   * Triangles of all assembled objects, see {@link #STRIDE}.
+   */
+  private float[] triangles = new float[STRIDE * 1024];
+
+  private int count = 0;
+
+  private Projection projection = Projection.PERSPECTIVE;
+
+  private float fieldOfView = 45.0f;
+
+  private float orthographicExtent = 1.0f;
+
+  private Coloring coloring = Coloring.FLAT;
+
+  private Color foreground = Color.WHITE;
+
+  private int background = Color.BLACK.getRGB();
+
+  /**
+   * Lighting of the scene; null if faces are drawn in their plain color.
+   */
+  private LightingOptions lighting;
+
+  private boolean culling = false;
+
+  /**
+   * Current position of the camera.
+   */
+  private double[] eye;
+
+  /**
+   * Current view matrix (row-major).
+   */
+  private double[] view;
+
+  /**
+   * Current view-projection matrix (row-major).
+   */
+  private float[] camera;
+
+  /**
+   * Default constructor. Creates a new SoftwareRenderer of the given size.
+   *
+   * @param width  Width of the rendered images.
+   * @param height Height of the rendered images.
+   */
+  public SoftwareRenderer(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Width and height of the renderer must be positive.");
+    }
+    this.width = width;
+    this.height = height;
+    this.aspect = (float) width / (float) height;
+    this.framebuffer = new Framebuffer(width, height);
+    this.framebuffer.clear(this.background);
+    this.positionCamera(0.0, 0.0, 1.0);
+  }
+
+  public int getWidth() {
+    return this.width;
+  }
+
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Sets the projection used by the camera. Takes effect upon the next call to one of the positionCamera() methods.
+   *
+   * @param projection  {@link Projection} to use.
+   * @param fieldOfView Vertical field of view in degrees; only used by {@link Projection#PERSPECTIVE}.
+   * @param extent      Half of the visible height in world units; only used by {@link Projection#ORTHOGRAPHIC}.
+   */
+  public void setProjection(Projection projection, float fieldOfView, float extent) {
+    this.projection = projection;
+    this.fieldOfView = fieldOfView;
+    this.orthographicExtent = extent;
+  }
+
+  public void setColoring(Coloring coloring) {
+    this.coloring = coloring;
+  }
+
+  /**
+   * Sets the color used for VoxelGrids and {@link IModel}s. Takes effect for objects assembled after the call.
+   */
+  public void setForeground(Color foreground) {
+    this.foreground = foreground;
+  }
+
+  /**
+   * Lights the faces like the LWJGL renderer lights untextured models, i.e. like the fragment shader of the LWJGL renderer with its white default texture, the face color as diffuse material color and neither ambient nor specular material color: each channel is the sum of the ambient light and, for every light that reaches the face, (1 + face color) * light color * intensity * max(dot(normal, direction to light), 0), divided by the attenuation for point and spot lights, and clamped to [0, 1]. Normals are interpolated across the faces.
+   * <p>
+   * The lights are taken from {@link LightingOptions#getSceneLigths(Scene)} for every view; like in the LWJGL renderer, they are set up before the camera is moved to the view. Takes effect upon the next render.
+   *
+   * @param lighting {@link LightingOptions} to use, or null to draw faces in their plain color.
+   */
+  public void setLighting(LightingOptions lighting) {
+    this.lighting = lighting;
+  }
+
+  /**
+   * Enables or disables culling of back faces, i.e. of faces that are wound clockwise on the screen, like GL_CULL_FACE with GL_BACK in the LWJGL renderer. Takes effect upon the next render.
+   */
+  public void setCulling(boolean culling) {
+    this.culling = culling;
+  }
+
+  /**
+   * Renders all assembled objects into the framebuffer of this renderer, which is cleared beforehand. The bands of the framebuffer are rasterized in parallel.
+   */
+  @Override
+  public void render() {
+    this.renderInto(this.framebuffer, this.camera, this.lights(this.eye, this.view), true);
+  }
+
+  /**
+   * Renders the assembled objects from each of the given camera positions, looking at the given center. The views are rendered in parallel and the renderer's own framebuffer and camera remain untouched.
+   *
+   * @param eyes Camera positions; the first three elements of every array are used.
+   * @param cx   x Position of the object of interest (i.e. the point at which the camera looks).
+   * @param cy   y Position of the object of interest.
+   * @param cz   z Position of the object of interest.
+   * @return One image per camera position, in AWT orientation and in the order of the positions.
+   */
+  public List<BufferedImage> renderViews(List<double[]> eyes, double cx, double cy, double cz) {
+    /* Framebuffers of this call; at most one per concurrently rendered view. */
+    final ConcurrentLinkedQueue<Framebuffer> buffers = new ConcurrentLinkedQueue<>();
+    final List<CompletableFuture<BufferedImage>> views = new ArrayList<>(eyes.size());
+    for (double[] eye : eyes) {
+      views.add(CompletableFuture.supplyAsync(() -> {
+        Framebuffer buffer = buffers.poll();
+        if (buffer == null) {
+          buffer = new Framebuffer(this.width, this.height);
+        }
+        try {
+          final double[] view = view(eye[0], eye[1], eye[2], cx, cy, cz, 0.0, 1.0, 0.0);
+          this.renderInto(buffer, this.viewProjection(view), this.lights(eye, view), false);
+          return buffer.toImage();
+        } finally {
+          buffers.offer(buffer);
+        }
+      }, POOL));
+    }
+    final List<BufferedImage> images = new ArrayList<>(views.size());
+    for (CompletableFuture<BufferedImage> view : views) {
+      images.add(view.join());
+    }
+    return images;
+  }
+
+  /**
+   * Assembles an {@link IModel}. Like the LWJGL renderer, the model is normalized, i.e. moved to the origin and scaled to fit into a sphere of radius 0.5. Textures and materials are ignored; faces are drawn in the foreground color. The vertex normals of the meshes are used for lighting, or the face normals if a mesh has none.
+   *
+   * @param model IModel that should be rendered.
+   */
+  @Override
+  public void assemble(IModel model) {
+    final MinimalBoundingBox bounds = new MinimalBoundingBox();
+    for (Material material : model.getMaterials()) {
+      bounds.merge(material.getMinimalBoundingBox());
+    }
+    final float scale = bounds.getScalingFactorToNorm();
+    final Vector3fc translation = bounds.getTranslationToNorm();
+    final float[] rgb = this.foreground.getRGBColorComponents(null);
+    for (Material material : model.getMaterials()) {
+      for (var mesh : material.getMeshes()) {
+        final float[] positions = mesh.getPositions();
+        float[] normals = mesh.getVerticesNormals();
+        if (normals != null && normals.length < positions.length) {
+          normals = null;
+        }
+        final int[] idx = mesh.getIdx();
+        for (int i = 0; i + 2 < idx.length; i += 3) {
+          final int a = 3 * idx[i];
+          final int b = 3 * idx[i + 1];
+          final int c = 3 * idx[i + 2];
+          this.addTriangle(
+              positions[a] * scale - translation.x(), positions[a + 1] * scale - translation.y(), positions[a + 2] * scale - translation.z(),
+              positions[b] * scale - translation.x(), positions[b + 1] * scale - translation.y(), positions[b + 2] * scale - translation.z(),
+              positions[c] * scale - translation.x(), positions[c + 1] * scale - translation.y(), positions[c + 2] * scale - translation.z(),
+              rgb[0], rgb[1], rgb[2]);
+          if (normals != null) {
+            this.setNormal(0, normals[a], normals[a + 1], normals[a + 2]);
+            this.setNormal(1, normals[b], normals[b + 1], normals[b + 2]);
+            this.setNormal(2, normals[c], normals[c + 1], normals[c + 2]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Assembles a new Mesh object and thereby adds it to the list of objects that should be rendered. QUAD faces are split into two triangles. The vertex normals are used for lighting, unless they are zero.
+   *
+   * @param mesh Mesh that should be rendered
+   */
+  @Override
+  public void assemble(ReadableMesh mesh) {
+    for (Mesh.Face face : mesh.getFaces()) {
+      final List<Mesh.Vertex> vertices = face.getVertices();
+      final Vector3fc color = vertices.get(0).getColor();
+      this.addTriangle(vertices.get(0).getPosition(), vertices.get(1).getPosition(), vertices.get(2).getPosition(), color.x(), color.y(), color.z());
+      this.setNormals(vertices.get(0), vertices.get(1), vertices.get(2));
+      if (face.getType() == Mesh.FaceType.QUAD) {
+        this.addTriangle(vertices.get(0).getPosition(), vertices.get(2).getPosition(), vertices.get(3).getPosition(), color.x(), color.y(), color.z());
+        this.setNormals(vertices.get(0), vertices.get(2), vertices.get(3));
+      }
+    }
+  }
+
+  /**
+   * Assembles a new VoxelGrid object and thereby adds it to the list of objects that should be rendered. Only faces that are not covered by another visible voxel are drawn.
+   *
+   * @param grid VoxelGrid that should be rendered.
+   */
+  @Override
+  public void assemble(VoxelGrid grid) {
+    final float[] rgb = this.foreground.getRGBColorComponents(null);
+    final float h = grid.getResolution() / 2.0f;
+    for (int i = 0; i < grid.getSizeX(); i++) {
+      for (int j = 0; j < grid.getSizeY(); j++) {
+        for (int k = 0; k < grid.getSizeZ(); k++) {
+          if (!grid.isVisible(i, j, k)) {
+            continue;
+          }
+          final Vector3f center = grid.getVoxelCenter(i, j, k);
+          final float x = center.x;
+          final float y = center.y;
+          final float z = center.z;
+          if (i == 0 || !grid.isVisible(i - 1, j, k)) {
+            this.addQuad(x - h, y - h, z - h, x - h, y - h, z + h, x - h, y + h, z + h, x - h, y + h, z - h, rgb);
+          }
+          if (i == grid.getSizeX() - 1 || !grid.isVisible(i + 1, j, k)) {
+            this.addQuad(x + h, y - h, z + h, x + h, y - h, z - h, x + h, y + h, z - h, x + h, y + h, z + h, rgb);
+          }
+          if (j == 0 || !grid.isVisible(i, j - 1, k)) {
+            this.addQuad(x - h, y - h, z - h, x + h, y - h, z - h, x + h, y - h, z + h, x - h, y - h, z + h, rgb);
+          }
+          if (j == grid.getSizeY() - 1 || !grid.isVisible(i, j + 1, k)) {
+            this.addQuad(x + h, y + h, z - h, x - h, y + h, z - h, x - h, y + h, z + h, x + h, y + h, z + h, rgb);
+          }
+          if (k == 0 || !grid.isVisible(i, j, k - 1)) {
+            this.addQuad(x + h, y - h, z - h, x - h, y - h, z - h, x - h, y + h, z - h, x + h, y + h, z - h, rgb);
+          }
+          if (k == grid.getSizeZ() - 1 || !grid.isVisible(i, j, k + 1)) {
+            this.addQuad(x - h, y - h, z + h, x + h, y - h, z + h, x + h, y + h, z + h, x - h, y + h, z + h, rgb);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Changes the position of the camera.
+   *
+   * @param ex  x Position of the Camera
+   * @param ey  y Position of the Camera
+   * @param ez  z Position of the Camera
+   * @param cx  x Position of the object of interest (i.e. the point at which the camera looks).
+   * @param cy  y Position of the object of interest (i.e. the point at which the camera looks).
+   * @param cz  z Position of the object of interest (i.e. the point at which the camera looks).
+   * @param upx x-direction of the camera's UP position.
+   * @param upy y-direction of the camera's UP position.
+   * @param upz z-direction of the camera's UP position.
+   */
+  @Override
+  public final void positionCamera(double ex, double ey, double ez, double cx, double cy, double cz, double upx, double upy, double upz) {
+    this.eye = new double[]{ex, ey, ez};
+    this.view = view(ex, ey, ez, cx, cy, cz, upx, upy, upz);
+    this.camera = this.viewProjection(this.view);
+  }
+
+  /**
+   * Obtains and returns a BufferedImage in AWT orientation from the current framebuffer.
+   *
+   * @return BufferedImage containing a snapshot of the current framebuffer.
+   */
+  @Override
+  public BufferedImage obtain() {
+    return this.framebuffer.toImage();
+  }
+
+  /**
+   * Removes all assembled objects, clears the framebuffer and applies a user-defined background colour.
+   *
+   * @param color The background colour to be used.
+   */
+  @Override
+  public void clear(Color color) {
+    this.count = 0;
+    this.background = color.getRGB();
+    this.framebuffer.clear(this.background);
+  }
+
+  /**
+   * Removes all assembled objects and clears the framebuffer to black.
+   */
+  @Override
+  public void clear() {
+    this.clear(Color.BLACK);
+  }
+
+  /**
+   * Makes the current thread retain this SoftwareRenderer. Always succeeds, possibly after waiting for another thread to release it.
+   */
+  @Override
+  public boolean retain() {
+    this.lock.lock();
+    return true;
+  }
+
+  /**
+   * Releases this SoftwareRenderer, if it is held by the current thread.
+   */
+  @Override
+  public void release() {
+    if (this.lock.isHeldByCurrentThread()) {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of triangles assembled so far.
+   */
+  public int triangles() {
+    return this.count;
+  }
+
+  private void addQuad(float x0, float y0, float z0, float x1, float y1, float z1, float x2, float y2, float z2, float x3, float y3, float z3, float[] rgb) {
+    this.addTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2, rgb[0], rgb[1], rgb[2]);
+    this.addTriangle(x0, y0, z0, x2, y2, z2, x3, y3, z3, rgb[0], rgb[1], rgb[2]);
+  }
+
+  private void addTriangle(Vector3fc a, Vector3fc b, Vector3fc c, float r, float g, float bl) {
+    this.addTriangle(a.x(), a.y(), a.z(), b.x(), b.y(), b.z(), c.x(), c.y(), c.z(), r, g, bl);
+  }
+
+  private void addTriangle(float x0, float y0, float z0, float x1, float y1, float z1, float x2, float y2, float z2, float r, float g, float b) {
+    if ((this.count + 1) * STRIDE > this.triangles.length) {
+      this.triangles = Arrays.copyOf(this.triangles, this.triangles.length * 2);
+    }
+    final float[] t = this.triangles;
+    final int o = this.count * STRIDE;
+    t[o] = x0;
+    t[o + 1] = y0;
+    t[o + 2] = z0;
+    t[o + 3] = x1;
+    t[o + 4] = y1;
+    t[o + 5] = z1;
+    t[o + 6] = x2;
+    t[o + 7] = y2;
+    t[o + 8] = z2;
+    t[o + 9] = r;
+    t[o + 10] = g;
+    t[o + 11] = b;
+
+    /* Face normal, replaced by vertex normals where available. */
+    final double[] n = normalize(
+        (y1 - y0) * (z2 - z0) - (z1 - z0) * (y2 - y0),
+        (z1 - z0) * (x2 - x0) - (x1 - x0) * (z2 - z0),
+        (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0));
+    for (int v = 0; v < 3; v++) {
+      t[o + 12 + 3 * v] = Double.isNaN(n[0]) ? 0.0f : (float) n[0];
+      t[o + 13 + 3 * v] = Double.isNaN(n[1]) ? 0.0f : (float) n[1];
+      t[o + 14 + 3 * v] = Double.isNaN(n[2]) ? 0.0f : (float) n[2];
+    }
+    this.count++;
+  }
+
+  private void setNormals(Mesh.Vertex a, Mesh.Vertex b, Mesh.Vertex c) {
+    this.setNormal(0, a.getNormal().x(), a.getNormal().y(), a.getNormal().z());
+    this.setNormal(1, b.getNormal().x(), b.getNormal().y(), b.getNormal().z());
+    this.setNormal(2, c.getNormal().x(), c.getNormal().y(), c.getNormal().z());
+  }
+
+  /**
+   * Replaces the normal of the given vertex of the last added triangle by the given normal, if it is not zero. Like in the vertex shader of the LWJGL renderer, the normal is normalized.
+   */
+  private void setNormal(int vertex, float x, float y, float z) {
+    final double length = Math.sqrt(x * x + y * y + z * z);
+    if (!(length > 0.0)) {
+      return;
+    }
+    final int o = (this.count - 1) * STRIDE + 12 + 3 * vertex;
+    this.triangles[o] = (float) (x / length);
+    this.triangles[o + 1] = (float) (y / length);
+    this.triangles[o + 2] = (float) (z / length);
+  }
+
+  /**
+   * Builds the row-major view matrix for the given camera, the equivalent of gluLookAt. If the view direction is parallel to the up vector, the z-axis is used as up vector instead.
+   */
+  private static double[] view(double ex, double ey, double ez, double cx, double cy, double cz, double upx, double upy, double upz) {
+    /* Forward, side and up vector of the camera. */
+    double[] f = normalize(cx - ex, cy - ey, cz - ez);
+    double[] s = cross(f[0], f[1], f[2], upx, upy, upz);
+    if (s[0] * s[0] + s[1] * s[1] + s[2] * s[2] < 1e-12) {
+      s = cross(f[0], f[1], f[2], 0.0, 0.0, 1.0);
+    }
+    s = normalize(s[0], s[1], s[2]);
+    final double[] u = cross(s[0], s[1], s[2], f[0], f[1], f[2]);
+
+    return new double[]{
+        s[0], s[1], s[2], -(s[0] * ex + s[1] * ey + s[2] * ez),
+        u[0], u[1], u[2], -(u[0] * ex + u[1] * ey + u[2] * ez),
+        -f[0], -f[1], -f[2], f[0] * ex + f[1] * ey + f[2] * ez,
+        0.0, 0.0, 0.0, 1.0
+    };
+  }
+
+  /**
+   * Builds the row-major view-projection matrix for the given view matrix, using the equivalent of gluPerspective or glOrtho respectively.
+   */
+  private float[] viewProjection(double[] view) {
+    final double[] projection = new double[16];
+    if (this.projection == Projection.PERSPECTIVE) {
+      final double t = 1.0 / Math.tan(Math.toRadians(this.fieldOfView) / 2.0);
+      projection[0] = t / this.aspect;
+      projection[5] = t;
+      projection[10] = (FAR + NEAR) / (NEAR - FAR);
+      projection[11] = 2.0 * FAR * NEAR / (NEAR - FAR);
+      projection[14] = -1.0;
+    } else {
+      projection[0] = 1.0 / (this.orthographicExtent * this.aspect);
+      projection[5] = 1.0 / this.orthographicExtent;
+      projection[10] = -2.0 / (FAR - NEAR);
+      projection[11] = -(FAR + NEAR) / (FAR - NEAR);
+      projection[15] = 1.0;
+    }
+
+    final float[] result = new float[16];
+    for (int r = 0; r < 4; r++) {
+      for (int c = 0; c < 4; c++) {
+        double sum = 0.0;
+        for (int k = 0; k < 4; k++) {
+          sum += projection[r * 4 + k] * view[k * 4 + c];
+        }
+        result[r * 4 + c] = (float) sum;
+      }
+    }
+    return result;
+  }
+
+  private static double[] normalize(double x, double y, double z) {
+    final double length = Math.sqrt(x * x + y * y + z * z);
+    return new double[]{x / length, y / length, z / length};
+  }
+
+  private static double[] cross(double ax, double ay, double az, double bx, double by, double bz) {
+    return new double[]{ay * bz - az * by, az * bx - ax * bz, ax * by - ay * bx};
+  }
+
+  /**
+   * Sets up the lights of the current {@link LightingOptions} for a camera at the given position.
+   *
+   * @param eye  Position of the camera.
+   * @param view View matrix of the camera.
+   * @return {@link Lights} in world space, or null if no lighting is used.
+   */
+  private Lights lights(double[] eye, double[] view) {
+    if (this.lighting == null) {
+      return null;
+    }
+    final Scene scene = new Scene(this.width, this.height);
+    final SceneLights lights = this.lighting.getSceneLigths(scene);
+    scene.getCamera().setPosition((float) eye[0], (float) eye[1], (float) eye[2]);
+    return new Lights(lights, view);
+  }
+
+  /**
+   * Clears the given framebuffer and renders all assembled objects into it.
+   *
+   * @param buffer   Target {@link Framebuffer}.
+   * @param m        View-projection matrix.
+   * @param lights   {@link Lights} of the scene, or null.
+   * @param parallel If true, the bands of the framebuffer are rasterized in parallel on the {@link #POOL}.
+   */
+  private void renderInto(Framebuffer buffer, float[] m, Lights lights, boolean parallel) {
+    buffer.clear(this.background);
+    final int projected = this.project(buffer, m, lights != null);
+    final int bands = (this.height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+    final int tasks = Math.min(bands, PARALLELISM);
+    if (!parallel || tasks <= 1) {
+      rasterize(buffer, projected, lights, this.culling, 0, this.height);
+      return;
+    }
+
+    /* Every task rasterizes every tasks-th band, which spreads dense regions of the image over the tasks. */
+    final CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks];
+    for (int i = 0; i < tasks; i++) {
+      final int first = i;
+      futures[i] = CompletableFuture.runAsync(() -> {
+        for (int band = first; band < bands; band += tasks) {
+          rasterize(buffer, projected, lights, this.culling, band * BAND_HEIGHT, Math.min(this.height, (band + 1) * BAND_HEIGHT));
+        }
+      }, POOL);
+    }
+    CompletableFuture.allOf(futures).join();
+  }
+
+  /**
+   * Transforms all triangles into screen space, clips them against the near plane and stores them in the scratch space of the given framebuffer.
+   *
+   * @param lit If true, the attributes needed for lighting are stored as well.
+   * @return Number of projected triangles.
+   */
+  private int project(Framebuffer buffer, float[] m, boolean lit) {
+    buffer.ensureCapacity(2 * this.count, lit);
+    final float[] t = this.triangles;
+    final float[] clip = new float[3 * CLIP_STRIDE];
+    final float[] polygon = new float[4 * CLIP_STRIDE];
+    final float[] rgb = new float[3];
+    int projected = 0;
+    for (int i = 0; i < this.count; i++) {
+      final int o = i * STRIDE;
+
+      /* Transform vertices into clip space, along with their normal and world position. */
+      int inside = 0;
+      for (int v = 0; v < 3; v++) {
+        final float x = t[o + 3 * v];
+        final float y = t[o + 3 * v + 1];
+        final float z = t[o + 3 * v + 2];
+        final int c = CLIP_STRIDE * v;
+        clip[c] = m[0] * x + m[1] * y + m[2] * z + m[3];
+        clip[c + 1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+        clip[c + 2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+        clip[c + 3] = m[12] * x + m[13] * y + m[14] * z + m[15];
+        System.arraycopy(t, o + 12 + 3 * v, clip, c + 4, 3);
+        clip[c + 7] = x;
+        clip[c + 8] = y;
+        clip[c + 9] = z;
+        if (clip[c + 2] + clip[c + 3] >= 0.0f) {
+          inside++;
+        }
+      }
+      if (inside == 0) {
+        continue;
+      }
+
+      this.color(t, o, rgb);
+      if (inside == 3) {
+        projected = emit(buffer, projected, clip, 0, CLIP_STRIDE, 2 * CLIP_STRIDE, rgb);
+        continue;
+      }
+
+      /* Clip against the near plane (z >= -w); yields a triangle or a quad. */
+      int n = 0;
+      for (int v = 0; v < 3; v++) {
+        final int a = CLIP_STRIDE * v;
+        final int b = CLIP_STRIDE * ((v + 1) % 3);
+        final float da = clip[a + 2] + clip[a + 3];
+        final float db = clip[b + 2] + clip[b + 3];
+        if (da >= 0.0f) {
+          System.arraycopy(clip, a, polygon, CLIP_STRIDE * n++, CLIP_STRIDE);
+        }
+        if ((da >= 0.0f) != (db >= 0.0f)) {
+          final float s = da / (da - db);
+          for (int c = 0; c < CLIP_STRIDE; c++) {
+            polygon[CLIP_STRIDE * n + c] = clip[a + c] + s * (clip[b + c] - clip[a + c]);
+          }
+          n++;
+        }
+      }
+      projected = emit(buffer, projected, polygon, 0, CLIP_STRIDE, 2 * CLIP_STRIDE, rgb);
+      if (n == 4) {
+        projected = emit(buffer, projected, polygon, 0, 2 * CLIP_STRIDE, 3 * CLIP_STRIDE, rgb);
+      }
+    }
+    return projected;
+  }
+
+  /**
+   * Performs the perspective division and viewport transformation for a triangle given in clip space and appends it to the scratch space of the framebuffer.
+   */
+  private int emit(Framebuffer buffer, int projected, float[] clip, int a, int b, int c, float[] rgb) {
+    final int o = projected * SCREEN_STRIDE;
+    this.viewport(buffer.screen, o, clip, a);
+    this.viewport(buffer.screen, o + 3, clip, b);
+    this.viewport(buffer.screen, o + 6, clip, c);
+    buffer.colors[projected] = (channel(rgb[0]) << 16) | (channel(rgb[1]) << 8) | channel(rgb[2]);
+    if (buffer.shading != null) {
+      final int s = projected * SHADING_STRIDE;
+      attributes(buffer.shading, s, clip, a);
+      attributes(buffer.shading, s + 7, clip, b);
+      attributes(buffer.shading, s + 14, clip, c);
+      System.arraycopy(rgb, 0, buffer.shading, s + 21, 3);
+    }
+    return projected + 1;
+  }
+
+  private void viewport(float[] screen, int o, float[] clip, int i) {
+    final float w = clip[i + 3];
+    screen[o] = (clip[i] / w + 1.0f) * 0.5f * this.width;
+    screen[o + 1] = (1.0f - clip[i + 1] / w) * 0.5f * this.height;
+    screen[o + 2] = (clip[i + 2] / w + 1.0f) * 0.5f;
+  }
+
+  /**
+   * Stores 1/w followed by the normal and world position divided by w, which can be interpolated linearly in screen space.
+   */
+  private static void attributes(float[] shading, int o, float[] clip, int i) {
+    final float inverse = 1.0f / clip[i + 3];
+    shading[o] = inverse;
+    for (int c = 0; c < 6; c++) {
+      shading[o + 1 + c] = clip[i + 4 + c] * inverse;
+    }
+  }
+
+  /**
+   * Determines the RGB color of the triangle at the given offset according to the current {@link Coloring}.
+   */
+  private void color(float[] t, int o, float[] rgb) {
+    if (this.coloring == Coloring.NORMAL) {
+      final double[] n = normalize(
+          (t[o + 4] - t[o + 1]) * (t[o + 8] - t[o + 2]) - (t[o + 5] - t[o + 2]) * (t[o + 7] - t[o + 1]),
+          (t[o + 5] - t[o + 2]) * (t[o + 6] - t[o]) - (t[o + 3] - t[o]) * (t[o + 8] - t[o + 2]),
+          (t[o + 3] - t[o]) * (t[o + 7] - t[o + 1]) - (t[o + 4] - t[o + 1]) * (t[o + 6] - t[o]));
+      rgb[0] = (float) Math.abs(n[0]);
+      rgb[1] = (float) Math.abs(n[1]);
+      rgb[2] = (float) Math.abs(n[2]);
+    } else {
+      System.arraycopy(t, o + 9, rgb, 0, 3);
+    }
+  }
+
+  private static int channel(float value) {
+    if (!(value > 0.0f)) {
+      return 0;
+    }
+    return Math.min(255, Math.round(value * 255.0f));
+  }
+
+  /**
+   * Rasterizes all projected triangles into the rows [top, bottom) of the given framebuffer. Pixels are sampled at their center; a fragment is written if its depth lies within [0, 1] and is less than the depth already stored.
+   *
+   * @param lights  {@link Lights} to shade the fragments with, or null to draw the faces in their plain color.
+   * @param culling If true, triangles that are wound clockwise on the screen are skipped.
+   */
+  private static void rasterize(Framebuffer buffer, int projected, Lights lights, boolean culling, int top, int bottom) {
+    final float[] s = buffer.screen;
+    final float[] a = buffer.shading;
+    final float[] depth = buffer.depth;
+    final int[] pixels = buffer.pixels;
+    final int width = buffer.width;
+    for (int i = 0; i < projected; i++) {
+      final int o = i * SCREEN_STRIDE;
+      final float x0 = s[o];
+      final float y0 = s[o + 1];
+      final float z0 = s[o + 2];
+      float x1 = s[o + 3];
+      float y1 = s[o + 4];
+      float z1 = s[o + 5];
+      float x2 = s[o + 6];
+      float y2 = s[o + 7];
+      float z2 = s[o + 8];
+
+      /* Bounding box, restricted to the band. */
+      final int minY = Math.max(top, (int) Math.ceil(Math.min(y0, Math.min(y1, y2)) - 0.5f));
+      final int maxY = Math.min(bottom - 1, (int) Math.floor(Math.max(y0, Math.max(y1, y2)) - 0.5f));
+      if (minY > maxY) {
+        continue;
+      }
+      final int minX = Math.max(0, (int) Math.ceil(Math.min(x0, Math.min(x1, x2)) - 0.5f));
+      final int maxX = Math.min(width - 1, (int) Math.floor(Math.max(x0, Math.max(x1, x2)) - 0.5f));
+      if (minX > maxX) {
+        continue;
+      }
+
+      /* Ensure counter-clockwise winding in screen space. As the y-axis points down, faces that are wound counter-clockwise in normalized device coordinates have a negative area. */
+      float area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+      if (area == 0.0f || (culling && area > 0.0f)) {
+        continue;
+      }
+      final int a0 = i * SHADING_STRIDE;
+      int a1 = a0 + 7;
+      int a2 = a0 + 14;
+      if (area < 0.0f) {
+        float tmp = x1;
+        x1 = x2;
+        x2 = tmp;
+        tmp = y1;
+        y1 = y2;
+        y2 = tmp;
+        tmp = z1;
+        z1 = z2;
+        z2 = tmp;
+        a1 = a0 + 14;
+        a2 = a0 + 7;
+        area = -area;
+      }
+      final int color = buffer.colors[i];
+
+      /* Edge functions; w0, w1 and w2 are the (unnormalized) barycentric weights of the three vertices. */
+      final float dw0 = -(y2 - y1);
+      final float dw1 = -(y0 - y2);
+      final float dw2 = -(y1 - y0);
+      final float px = minX + 0.5f;
+      for (int y = minY; y <= maxY; y++) {
+        final float py = y + 0.5f;
+        float w0 = (x2 - x1) * (py - y1) - (y2 - y1) * (px - x1);
+        float w1 = (x0 - x2) * (py - y2) - (y0 - y2) * (px - x2);
+        float w2 = (x1 - x0) * (py - y0) - (y1 - y0) * (px - x0);
+        int index = y * width + minX;
+        for (int x = minX; x <= maxX; x++, index++, w0 += dw0, w1 += dw1, w2 += dw2) {
+          if (w0 < 0.0f || w1 < 0.0f || w2 < 0.0f) {
+            continue;
+          }
+          final float z = (w0 * z0 + w1 * z1 + w2 * z2) / area;
+          if (z >= 0.0f && z < depth[index]) {
+            depth[index] = z;
+            if (lights == null) {
+              pixels[index] = color;
+            } else {
+              /* Perspective correct interpolation of normal and world position. */
+              final float inverse = w0 * a[a0] + w1 * a[a1] + w2 * a[a2];
+              pixels[index] = lights.shade(a, a0 + 21,
+                  (w0 * a[a0 + 1] + w1 * a[a1 + 1] + w2 * a[a2 + 1]) / inverse,
+                  (w0 * a[a0 + 2] + w1 * a[a1 + 2] + w2 * a[a2 + 2]) / inverse,
+                  (w0 * a[a0 + 3] + w1 * a[a1 + 3] + w2 * a[a2 + 3]) / inverse,
+                  (w0 * a[a0 + 4] + w1 * a[a1 + 4] + w2 * a[a2 + 4]) / inverse,
+                  (w0 * a[a0 + 5] + w1 * a[a1 + 5] + w2 * a[a2 + 5]) / inverse,
+                  (w0 * a[a0 + 6] + w1 * a[a1 + 6] + w2 * a[a2 + 6]) / inverse);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Lights of a scene in world space, as uploaded to the fragment shader of the LWJGL renderer. The specular term of the shader is omitted, as the LWJGL renderer leaves the reflectance of untextured models at zero.
+   */
+  private static final class Lights {
+
+    /**
+     * Floats per point or spot light: position, color times intensity, attenuation (constant, linear, exponent), cone direction and cut-off.
+     */
+    private static final int LIGHT_STRIDE = 13;
+
+    /**
+     * Ambient light, i.e. factor times color.
+     */
+    private final float[] ambient;
+
+    /**
+     * Normalized direction to the directional light followed by its color times intensity; null if it has no intensity.
+     */
+    private final float[] directional;
+
+    /**
+     * Point and spot lights with a positive intensity, see {@link #LIGHT_STRIDE}. Point lights have no cone direction.
+     */
+    private final float[] lights;
+
+    /**
+     * @param lights {@link SceneLights} to use.
+     * @param view   View matrix of the camera, which the LWJGL renderer applies to the positions and directions of the lights, except for the cone directions of spot lights.
+     */
+    private Lights(SceneLights lights, double[] view) {
+      final Vector3f ambientColor = lights.getAmbientLight().getColor();
+      final float factor = lights.getAmbientLight().getIntensity();
+      this.ambient = new float[]{factor * ambientColor.x, factor * ambientColor.y, factor * ambientColor.z};
+
+      final DirectionalLight directionalLight = lights.getDirectionalLight();
+      if (directionalLight.getIntensity() > 0.0f) {
+        final Vector3f direction = new Vector3f(directionalLight.getDirection()).normalize();
+        final Vector3f color = new Vector3f(directionalLight.getColor()).mul(directionalLight.getIntensity());
+        this.directional = new float[]{direction.x, direction.y, direction.z, color.x, color.y, color.z};
+      } else {
+        this.directional = null;
+      }
+
+      final List<PointLight> points = new ArrayList<>();
+      for (PointLight light : lights.getPointLights()) {
+        if (light.getIntensity() > 0.0f) {
+          points.add(light);
+        }
+      }
+      for (SpotLight light : lights.getSpotLights()) {
+        if (light.getIntensity() > 0.0f) {
+          points.add(light);
+        }
+      }
+      this.lights = new float[points.size() * LIGHT_STRIDE];
+      for (int i = 0; i < points.size(); i++) {
+        final PointLight light = points.get(i);
+        final int o = i * LIGHT_STRIDE;
+        final Vector3f position = light.getPosition();
+        this.lights[o] = position.x;
+        this.lights[o + 1] = position.y;
+        this.lights[o + 2] = position.z;
+        this.lights[o + 3] = light.getColor().x * light.getIntensity();
+        this.lights[o + 4] = light.getColor().y * light.getIntensity();
+        this.lights[o + 5] = light.getColor().z * light.getIntensity();
+        this.lights[o + 6] = light.getAttenuation().getConstant();
+        this.lights[o + 7] = light.getAttenuation().getLinear();
+        this.lights[o + 8] = light.getAttenuation().getExponent();
+        if (light instanceof SpotLight spot) {
+          /* The cone direction is given in view space; rotate it back into world space. */
+          final Vector3f cone = spot.getConeDirection();
+          final double[] world = normalize(
+              view[0] * cone.x + view[4] * cone.y + view[8] * cone.z,
+              view[1] * cone.x + view[5] * cone.y + view[9] * cone.z,
+              view[2] * cone.x + view[6] * cone.y + view[10] * cone.z);
+          this.lights[o + 9] = (float) world[0];
+          this.lights[o + 10] = (float) world[1];
+          this.lights[o + 11] = (float) world[2];
+          this.lights[o + 12] = spot.getCutOff();
+        }
+      }
+    }
+
+    /**
+     * Computes the color of a fragment.
+     *
+     * @param rgb Array holding the color of the face.
+     * @param o   Offset of the color in rgb.
+     * @return RGB value of the fragment.
+     */
+    private int shade(float[] rgb, int o, float nx, float ny, float nz, float px, float py, float pz) {
+      /* Diffuse color of the material: the white default texture plus the face color. */
+      final float dr = 1.0f + rgb[o];
+      final float dg = 1.0f + rgb[o + 1];
+      final float db = 1.0f + rgb[o + 2];
+      float r = this.ambient[0];
+      float g = this.ambient[1];
+      float b = this.ambient[2];
+      if (this.directional != null) {
+        final float[] d = this.directional;
+        final float factor = Math.max(nx * d[0] + ny * d[1] + nz * d[2], 0.0f);
+        r += dr * d[3] * factor;
+        g += dg * d[4] * factor;
+        b += db * d[5] * factor;
+      }
+      final float[] l = this.lights;
+      for (int i = 0; i < l.length; i += LIGHT_STRIDE) {
+        final float lx = l[i] - px;
+        final float ly = l[i + 1] - py;
+        final float lz = l[i + 2] - pz;
+        final float distance = (float) Math.sqrt(lx * lx + ly * ly + lz * lz);
+        float factor = Math.max((nx * lx + ny * ly + nz * lz) / distance, 0.0f) / (l[i + 6] + l[i + 7] * distance + l[i + 8] * distance * distance);
+        if (l[i + 9] != 0.0f || l[i + 10] != 0.0f || l[i + 11] != 0.0f) {
+          final float alpha = -(lx * l[i + 9] + ly * l[i + 10] + lz * l[i + 11]) / distance;
+          if (!(alpha > l[i + 12])) {
+            continue;
+          }
+          factor *= 1.0f - (1.0f - alpha) / (1.0f - l[i + 12]);
+        }
+        r += dr * l[i + 3] * factor;
+        g += dg * l[i + 4] * factor;
+        b += db * l[i + 5] * factor;
+      }
+      return (channel(Math.min(r, 1.0f)) << 16) | (channel(Math.min(g, 1.0f)) << 8) | channel(Math.min(b, 1.0f));
+    }
+  }
+
+  /**
+   * Color and depth buffer along with the scratch space for the projected triangles.
+   */
+  private static final class Framebuffer {
+
+    private final int width;
+
+    private final int height;
+
+    private final int[] pixels;
+
+    private final float[] depth;
+
+    private float[] screen = new float[0];
+
+    private int[] colors = new int[0];
+
+    /**
+     * Attributes of the projected triangles needed for lighting, see {@link #SHADING_STRIDE}; null if the last projection was unlit.
+     */
+    private float[] shading;
+
+    private Framebuffer(int width, int height) {
+      this.width = width;
+      this.height = height;
+      this.pixels = new int[width * height];
+      this.depth = new float[width * height];
+    }
+
+    private void clear(int background) {
+      Arrays.fill(this.pixels, background & 0xFFFFFF);
+      Arrays.fill(this.depth, 1.0f);
+    }
+
+    private void ensureCapacity(int triangles, boolean lit) {
+      if (this.colors.length < triangles) {
+        this.screen = new float[triangles * SCREEN_STRIDE];
+        this.colors = new int[triangles];
+        this.shading = null;
+      }
+      if (!lit) {
+        this.shading = null;
+      } else if (this.shading == null) {
+        this.shading = new float[this.colors.length * SHADING_STRIDE];
+      }
+    }
+
+    private BufferedImage toImage() {
+      final BufferedImage image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+      image.setRGB(0, 0, this.width, this.height, this.pixels, 0, this.width);
+      return image;
+    }
+  }
+}
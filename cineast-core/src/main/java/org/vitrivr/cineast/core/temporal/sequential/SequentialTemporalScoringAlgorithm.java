@@ -4,11 +4,11 @@
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
@@ -23,8 +23,9 @@
  *
  * <p>Scores the {@link StringDoublePair}s in their container order</p>
  * <p>Scores without provided time distances between the segments</p>
- * <p>The Algorithm builds temporal paths by creating paths from a starting segment and creating a path from this segment and putting it in a queue. While the queue is not empty it then pops a path from the queue and creates new paths for each of the segments following the last to the path added segment.</p>
- * <p>It then saves the best path created in the before mentioned fashion and scores a segment according to this.</p>
+ * <p>A path starts at a segment and continues with segments of higher containers that start after the previous segment has ended and that end within the max length from the start of the path. Every segment is scored according to the best path starting at it.</p>
+ * <p>Best paths are found by dynamic programming over the segments of an object, ordered by container and sequence number: the best unconstrained continuation of each segment is computed once, and only where it violates the max length of a particular start is a constrained continuation computed for that start. Objects are processed in parallel.</p>
+ * <p>Continuations are looked up per following query container rather than per following segment: within a container whose segments are ordered in time, the segments that may follow form a suffix, found by binary search, whose best path is precomputed, and the segments within the max length of a start form a prefix of that suffix. Only containers that are not ordered in time are scanned segment by segment.</p>
  */
 public class SequentialTemporalScoringAlgorithm extends AbstractTemporalScoringAlgorithm {
 
@@ -42,11 +43,15 @@ public SequentialTemporalScoringAlgorithm(Map<String, MediaSegmentDescriptor> se
    */
   @Override
   public List<TemporalObject> score() {
-    /* Calculate the best path for every segment in the result set given to the class. */
+    /* Calculate the best paths of every object in parallel. */
+    Map<String, ObjectPaths> bestPaths = this.scoredSegmentSets.entrySet().parallelStream()
+        .collect(Collectors.toConcurrentMap(Map.Entry::getKey, e -> new ObjectPaths(e.getValue())));
+
+    /* Collect the best path for every segment in the result set given to the class. */
     for (IntObjectHashMap<ScoredSegment> segments : scoredSegmentStorage.values()) {
       StreamSupport.stream(segments.values().spliterator(), false).forEach(scoredSegment -> {
         MediaSegmentDescriptor mediaSegmentDescriptor = segmentMap.get(scoredSegment.value.getSegmentId());
-        SequentialPath sequentialPath = getBestPathForSegment(mediaSegmentDescriptor, scoredSegment.value);
+        SequentialPath sequentialPath = bestPaths.get(mediaSegmentDescriptor.getObjectId()).getBestPath(scoredSegment.value);
 
         objectPaths.putIfAbsent(mediaSegmentDescriptor.getObjectId(), new ArrayList<>());
         objectPaths.get(mediaSegmentDescriptor.getObjectId()).add(sequentialPath);
@@ -81,64 +86,232 @@ public List<TemporalObject> score() {
         .collect(Collectors.toList());
   }
 
-  /* Calculate the best path possible for a segment. */
-  private SequentialPath getBestPathForSegment(MediaSegmentDescriptor mediaSegmentDescriptor, ScoredSegment scoredSegment) {
-    PriorityQueue<SequentialPath> pathQueue = new PriorityQueue<>();
+  /* Checks whether the candidate may follow the segment in a path. */
+  private static boolean follows(ScoredSegment segment, ScoredSegment candidate) {
+    return candidate.getContainerId() > segment.getContainerId() && candidate.getStart() >= segment.getEnd() && candidate.getSequenceNumber() > segment.getSequenceNumber();
+  }
 
-    SequentialPath initPath = new SequentialPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+  /* Checks whether the candidate ends within the max length from the start of the path. If endAbs is 0, we're dealing with image sequences so we're looking at non-abs information (which is in seconds). */
+  private boolean withinMaxLength(ScoredSegment start, ScoredSegment candidate) {
+    return candidate.getEndAbs() == 0 ? candidate.getEnd() - start.getStart() <= this.maxLength : candidate.getEndAbs() - start.getStartAbs() <= this.maxLength;
+  }
 
-    SequentialPath bestPath = initPath;
-    pathQueue.add(initPath);
+  /**
+   * Best paths for the segments of a single object.
+   */
+  private final class ObjectPaths {
 
-    /* Create new paths until there are no more possible paths for a segment. */
-    while (!pathQueue.isEmpty()) {
-      SequentialPath path = pathQueue.remove();
+    /* Marks a continuation that follows the unconstrained best paths from there on. */
+    private static final int UNCONSTRAINED = -2;
 
-      ScoredSegment lastHighestSegment = path.getCurrentLastSegment();
+    /* Segments of the object ordered by container and sequence number. */
+    private final ScoredSegment[] segments;
+    /* Index of the first segment per container; entry maxContainerId + 1 is the number of segments. */
+    private final int[] first;
+    /* Whether start, end and absolute end increase with the sequence number within each container, so that the segments that follow a segment or lie within a max length are contiguous. */
+    private final boolean[] ordered;
+    /* Score and next segment of the best unconstrained path starting at each segment. */
+    private final double[] best;
+    private final int[] next;
+    /* Index of the first segment with the highest best score among the segments from each segment to the end of its container. */
+    private final int[] suffixBest;
+    /* Latest end (frames) and latest absolute end (seconds) on the best unconstrained path starting at each segment; used to check it against the max length of a start. */
+    private final int[] maxEnd;
+    private final float[] maxEndAbs;
+    /* Scratch space for the constrained paths of the start currently being evaluated. */
+    private final double[] constrainedBest;
+    private final int[] constrainedNext;
+    private final int[] visited;
+    private int epoch = 0;
+    private final Map<ScoredSegment, SequentialPath> paths = new IdentityHashMap<>();
 
-      /* Get the potential following segments from the scored segments sets tree set */
-      Set<ScoredSegment> potentialFollowingSegments = scoredSegmentSets.get(mediaSegmentDescriptor.getObjectId()).tailSet(lastHighestSegment);
-      for (ScoredSegment candidate : potentialFollowingSegments) {
-        /*
-        Only look at a candidate if their containerId is higher than the current one. Due to the
-        compareTo of ScoredSegment that allows to classify segments with the same containerId but
-        higher segmentId as being higher.
-         */
-        if (candidate.getContainerId() <= lastHighestSegment.getContainerId() || candidate.getStart() < lastHighestSegment.getEnd() || candidate.getSequenceNumber() <= lastHighestSegment.getSequenceNumber()) {
-          continue;
+    private ObjectPaths(TreeSet<ScoredSegment> set) {
+      this.segments = set.toArray(new ScoredSegment[0]);
+      final int n = this.segments.length;
+      this.first = new int[maxContainerId + 2];
+      for (int c = 0; c <= maxContainerId + 1; c++) {
+        this.first[c] = n;
+      }
+      for (int i = n - 1; i >= 0; i--) {
+        this.first[this.segments[i].getContainerId()] = i;
+      }
+      for (int c = maxContainerId; c >= 0; c--) {
+        this.first[c] = Math.min(this.first[c], this.first[c + 1]);
+      }
+      this.ordered = new boolean[maxContainerId + 1];
+      for (int c = 0; c <= maxContainerId; c++) {
+        this.ordered[c] = this.isOrdered(this.first[c], this.first[c + 1]);
+      }
+
+      this.best = new double[n];
+      this.next = new int[n];
+      this.suffixBest = new int[n];
+      this.maxEnd = new int[n];
+      this.maxEndAbs = new float[n];
+      for (int i = n - 1; i >= 0; i--) {
+        final ScoredSegment segment = this.segments[i];
+        double value = segment.getScore();
+        int successor = -1;
+        for (int c = segment.getContainerId() + 1; c <= maxContainerId; c++) {
+          final int end = this.first[c + 1];
+          if (this.ordered[c]) {
+            final int j = this.firstFollowing(segment, this.first[c], end);
+            if (j < end && segment.getScore() + this.best[this.suffixBest[j]] > value) {
+              value = segment.getScore() + this.best[this.suffixBest[j]];
+              successor = this.suffixBest[j];
+            }
+          } else {
+            for (int j = this.first[c]; j < end; j++) {
+              if (follows(segment, this.segments[j]) && segment.getScore() + this.best[j] > value) {
+                value = segment.getScore() + this.best[j];
+                successor = j;
+              }
+            }
+          }
         }
-        /*
-         If we have reached the end of possible temporal paths we either store it and a new best
-         if it is shorter than max length and has a higher score or ignore the path.
-        */
-        if (candidate.getContainerId() == this.maxContainerId) {
-          /* if endAbs is 0, we're dealing with image sequences so we're looking at non-abs information (which is in seconds)
-           */
-          SequentialPath candidatePath = new SequentialPath(path);
-          candidatePath.addSegment(candidate);
-          if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1)) &&
-              (candidate.getEndAbs() == 0 ? candidate.getEnd() - scoredSegment.getStart() <= this.maxLength : candidate.getEndAbs() - scoredSegment.getStartAbs() <= this.maxLength)
-          ) {
-            bestPath = candidatePath;
+        this.best[i] = value;
+        this.next[i] = successor;
+        this.suffixBest[i] = i + 1 < this.first[segment.getContainerId() + 1] && this.best[this.suffixBest[i + 1]] > value ? this.suffixBest[i + 1] : i;
+        this.maxEnd[i] = successor < 0 ? Integer.MIN_VALUE : this.maxEnd[successor];
+        this.maxEndAbs[i] = successor < 0 ? Float.NEGATIVE_INFINITY : this.maxEndAbs[successor];
+        if (segment.getEndAbs() == 0) {
+          this.maxEnd[i] = Math.max(this.maxEnd[i], segment.getEnd());
+        } else {
+          this.maxEndAbs[i] = Math.max(this.maxEndAbs[i], segment.getEndAbs());
+        }
+      }
+
+      this.constrainedBest = new double[n];
+      this.constrainedNext = new int[n];
+      this.visited = new int[n];
+      for (ScoredSegment segment : this.segments) {
+        this.paths.put(segment, this.computeBestPath(segment));
+      }
+    }
+
+    /* Returns the best path starting at the given segment of this object. */
+    private SequentialPath getBestPath(ScoredSegment start) {
+      SequentialPath path = this.paths.get(start);
+      if (path == null) {
+        /* Segments sharing container and sequence number with another one are not part of the scored segment set. */
+        path = this.computeBestPath(start);
+      }
+      return path;
+    }
+
+    private SequentialPath computeBestPath(ScoredSegment start) {
+      this.epoch++;
+      double value = start.getScore();
+      int head = -1;
+      for (int c = start.getContainerId() + 1; c <= maxContainerId; c++) {
+        final int end = this.windowEnd(start, c);
+        for (int j = this.windowStart(start, c); j < end; j++) {
+          final ScoredSegment candidate = this.segments[j];
+          if (!follows(start, candidate) || !withinMaxLength(start, candidate)) {
+            continue;
+          }
+          final double score = start.getScore() + this.constrainedBest(start, j);
+          if (score > value) {
+            value = score;
+            head = j;
           }
-          continue;
         }
-        /*
-         Otherwise we look if the candidate together with the existing path is valid (shorter
-         than max length) and if yes maybe update best path if it is better and then add it to
-         the queue to be reevaluated in the next round as a longer path that is potentially
-         better.
-        */
-        if ((candidate.getEndAbs() == 0 ? candidate.getEnd() - scoredSegment.getStart() <= this.maxLength : candidate.getEndAbs() - scoredSegment.getStartAbs() <= this.maxLength)) {
-          SequentialPath candidatePath = new SequentialPath(path);
-          candidatePath.addSegment(candidate);
-          if ((bestPath.getScore() / (maxContainerId + 1)) < (candidatePath.getScore() / (maxContainerId + 1))) {
-            bestPath = candidatePath;
+      }
+
+      SequentialPath path = new SequentialPath(start.getObjectId(), start);
+      boolean unconstrained = false;
+      for (int j = head; j >= 0; ) {
+        path.addSegment(this.segments[j]);
+        unconstrained |= this.constrainedNext[j] == UNCONSTRAINED;
+        j = unconstrained ? this.next[j] : this.constrainedNext[j];
+      }
+      return path;
+    }
+
+    /* Score of the best path starting at segment i that only contains segments within the max length from start. */
+    private double constrainedBest(ScoredSegment start, int i) {
+      if (this.visited[i] == this.epoch) {
+        return this.constrainedBest[i];
+      }
+      final ScoredSegment segment = this.segments[i];
+      double value;
+      int successor;
+      if ((this.maxEnd[i] == Integer.MIN_VALUE || this.maxEnd[i] - start.getStart() <= maxLength) && (this.maxEndAbs[i] == Float.NEGATIVE_INFINITY || this.maxEndAbs[i] - start.getStartAbs() <= maxLength)) {
+        /* The best unconstrained path satisfies the max length. */
+        value = this.best[i];
+        successor = UNCONSTRAINED;
+      } else {
+        value = segment.getScore();
+        successor = -1;
+        for (int c = segment.getContainerId() + 1; c <= maxContainerId; c++) {
+          final int end = this.windowEnd(start, c);
+          for (int j = this.windowStart(segment, c); j < end; j++) {
+            final ScoredSegment candidate = this.segments[j];
+            if (!follows(segment, candidate) || !withinMaxLength(start, candidate)) {
+              continue;
+            }
+            final double score = segment.getScore() + this.constrainedBest(start, j);
+            if (score > value) {
+              value = score;
+              successor = j;
+            }
           }
-          pathQueue.add(candidatePath);
         }
       }
+      this.visited[i] = this.epoch;
+      this.constrainedBest[i] = value;
+      this.constrainedNext[i] = successor;
+      return value;
+    }
+
+    /* Checks whether start, end and absolute end increase with the index in [from, to) and absolute ends are either all set or all unset, which makes follows() and withinMaxLength() monotone over that range. */
+    private boolean isOrdered(int from, int to) {
+      for (int j = from + 1; j < to; j++) {
+        final ScoredSegment previous = this.segments[j - 1];
+        final ScoredSegment current = this.segments[j];
+        if (current.getStart() < previous.getStart() || current.getEnd() < previous.getEnd() || current.getEndAbs() < previous.getEndAbs() || (current.getEndAbs() == 0) != (previous.getEndAbs() == 0)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /* Index of the first segment in [from, to) that may follow the segment; requires an ordered range. */
+    private int firstFollowing(ScoredSegment segment, int from, int to) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (follows(segment, this.segments[mid])) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+
+    /* First index of container c that needs to be considered as continuation of the segment. */
+    private int windowStart(ScoredSegment segment, int c) {
+      return this.ordered[c] ? this.firstFollowing(segment, this.first[c], this.first[c + 1]) : this.first[c];
+    }
+
+    /* End (exclusive) of the segments of container c that end within the max length from start. */
+    private int windowEnd(ScoredSegment start, int c) {
+      if (!this.ordered[c]) {
+        return this.first[c + 1];
+      }
+      int low = this.first[c];
+      int high = this.first[c + 1];
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (withinMaxLength(start, this.segments[mid])) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
     }
-    return bestPath;
   }
 }
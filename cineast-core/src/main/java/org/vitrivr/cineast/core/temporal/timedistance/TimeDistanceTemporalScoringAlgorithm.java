@@ -6,8 +6,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -24,6 +24,7 @@
  * <p>Scores with provided time distances between the segments</p>
  * <p>The {@link TimeDistanceTemporalScoringAlgorithm} iteratively builds temporal sequences from the result containers corresponding to a temporal query that are in the right order and with the correct distance. We penalize segments that are not within the correct distance with an inverse decay function.</p>
  * <p>If a segment is missing in the result containers, this segment simply gets skipped and the next suitable segment is looked for.</p>
+ * <p>The segments of every object are bucketed by container and ordered by their end, so that the candidates of a container within the max length are found by binary search. Objects are scored in parallel.</p>
  */
 public class TimeDistanceTemporalScoringAlgorithm extends AbstractTemporalScoringAlgorithm {
 
@@ -41,27 +42,15 @@ public TimeDistanceTemporalScoringAlgorithm(Map<String, MediaSegmentDescriptor>
    */
   @Override
   public List<TemporalObject> score() {
-    /* Calculate the best temporal object linearly for all segments given and assigned in the constructor. */
+    /* Calculate the best temporal object linearly for all segments given and assigned in the constructor, one object at a time and objects in parallel. */
     Map<String, ResultStorage> resultMap = new HashMap<>();
     if (this.scoredSegmentSets.size() == 0) {
       return new ArrayList<>();
     }
-    this.scoredSegmentSets.values().forEach(set -> {
-      set.forEach(segment -> {
-        boolean lsc = segment.getEndAbs() == 0;
-        TemporalObject best = getBestTemporalObject(segment, lsc);
-        resultMap.putIfAbsent(best.getObjectId(), new ResultStorage(best.getObjectId()));
-        List<String> bestSegmentIds = best.getSegments();
-        List<Integer> bestSequenceNumber = this.getSequenceNumbers(bestSegmentIds);
-        resultMap.get(best.getObjectId())
-            .addSegmentsAndScore(
-                IntStream.range(0, bestSegmentIds.size())
-                    .boxed()
-                    .collect(Collectors.toMap(bestSequenceNumber::get, bestSegmentIds::get)),
-                best.getScore()
-            );
-      });
-    });
+    List<ResultStorage> results = this.scoredSegmentSets.values().parallelStream()
+        .map(this::scoreObject)
+        .collect(Collectors.toList());
+    results.forEach(result -> resultMap.put(result.getObjectId(), result));
     Stream<TemporalObject> resultStream;
     resultStream = resultMap.values().stream().map(ResultStorage::toTemporalObject);
     /* Return the sorted temporal objects. */
@@ -70,7 +59,26 @@ public List<TemporalObject> score() {
         .collect(Collectors.toList());
   }
 
-  private TemporalObject getBestTemporalObject(ScoredSegment item, boolean lsc) throws NoSuchElementException {
+  /* Calculate the best temporal object for all segments of an object. */
+  private ResultStorage scoreObject(TreeSet<ScoredSegment> set) {
+    Candidates candidates = new Candidates(set);
+    ResultStorage result = new ResultStorage(set.first().getObjectId());
+    set.forEach(segment -> {
+      boolean lsc = segment.getEndAbs() == 0;
+      TemporalObject best = getBestTemporalObject(segment, lsc, candidates);
+      List<String> bestSegmentIds = best.getSegments();
+      List<Integer> bestSequenceNumber = this.getSequenceNumbers(bestSegmentIds);
+      result.addSegmentsAndScore(
+          IntStream.range(0, bestSegmentIds.size())
+              .boxed()
+              .collect(Collectors.toMap(bestSequenceNumber::get, bestSegmentIds::get)),
+          best.getScore()
+      );
+    });
+    return result;
+  }
+
+  private TemporalObject getBestTemporalObject(ScoredSegment item, boolean lsc, Candidates objectCandidates) throws NoSuchElementException {
     List<String> segments = new ArrayList<>();
     segments.add(item.getSegmentId());
     MediaSegmentDescriptor currentDescriptor = segmentMap.get(item.getSegmentId());
@@ -83,40 +91,43 @@ private TemporalObject getBestTemporalObject(ScoredSegment item, boolean lsc) th
 
     float end = lsc ? currentDescriptor.getEnd() : currentDescriptor.getEndabs();
 
-    ScoredSegment currentSegment = new ScoredSegment(item);
-
     /* Go through all container ids and calculate the element that maximizes the score of the element */
     for (int innerContainerId = item.getContainerId() + 1; innerContainerId <= this.maxContainerId; innerContainerId++) {
-      final int lambdaInnerId = innerContainerId;
-      /* Get the set of values with a higher container id or a higher segment id. */
-      SortedSet<ScoredSegment> setFromElement = this.scoredSegmentSets.get(currentSegment.getObjectId()).tailSet(item);
-      List<ScoredSegment> candidates = setFromElement.stream()
-          .filter(c -> c.getContainerId() == lambdaInnerId)
-          .filter(c -> lsc ? c.getEnd() - item.getStart() >= 0 : c.getEndAbs() - item.getStartAbs() >= 0)
-          .filter(c -> lsc ? c.getEnd() - item.getStart() <= this.maxLength : c.getEndAbs() - item.getStartAbs() <= this.maxLength)
-          .filter(c -> !c.getSegmentId().equals(item.getSegmentId())).collect(Collectors.toList());
-      if (candidates.size() == 0) {
-        continue;
-      }
+      /* Get the segments of the container that end within the max length from the item, ordered by their end. */
+      ScoredSegment[] bucket = objectCandidates.buckets[innerContainerId];
+      int[] order = lsc ? objectCandidates.byEnd[innerContainerId] : objectCandidates.byEndAbs[innerContainerId];
+      boolean hasCandidates = false;
       ScoredSegment bestSegment = null;
+      int bestIndex = -1;
       double bestScore = 0D;
 
-      /* Go through all candidates from the currentSegment */
-      for (ScoredSegment candidate : candidates) {
+      /* Go through all candidates from the currentSegment; on equal scores, the candidate with the lower sequence number wins. */
+      for (int k = objectCandidates.firstEndingAfter(bucket, order, item, lsc); k < order.length; k++) {
+        ScoredSegment candidate = bucket[order[k]];
+        if (lsc ? candidate.getEnd() - item.getStart() > this.maxLength : !(candidate.getEndAbs() - item.getStartAbs() <= this.maxLength)) {
+          break;
+        }
+        if (candidate.getSegmentId().equals(item.getSegmentId())) {
+          continue;
+        }
+        hasCandidates = true;
         MediaSegmentDescriptor innerDescriptor = this.segmentMap.get(candidate.getSegmentId());
         if (innerDescriptor == null) {
           continue;
         }
         /* Calculate the inverse decay score of the candidate */
         double innerScore = calculateInverseDecayScore(end, candidate, this.timeDistances.get(innerContainerId - 1), innerDescriptor, lsc);
-        if (innerScore > bestScore) {
+        if (innerScore > bestScore || (innerScore == bestScore && bestSegment != null && order[k] < bestIndex)) {
           bestScore = innerScore;
           bestSegment = candidate;
+          bestIndex = order[k];
         }
       }
+      if (!hasCandidates) {
+        continue;
+      }
       /* If there is a best segment, store it and update current End abs, otherwise update end abs with time distances */
       if (bestSegment != null) {
-        currentSegment = bestSegment;
         end = lsc ? this.segmentMap.get(bestSegment.getSegmentId()).getEnd() : this.segmentMap.get(bestSegment.getSegmentId()).getEndabs();
         segments.add(bestSegment.getSegmentId());
       } else {
@@ -142,6 +153,54 @@ private double calculateInverseDecayScore(float currentSegmentEndTime, ScoredSeg
     return 0D;
   }
 
+  /* Segments of an object bucketed by container, with the bucket positions ordered by end and by absolute end. */
+  private final class Candidates {
+
+    /* Segments per container in their natural order. */
+    private final ScoredSegment[][] buckets;
+    private final int[][] byEnd;
+    /* Segments with an undefined absolute end can never be a candidate and are left out. */
+    private final int[][] byEndAbs;
+
+    private Candidates(TreeSet<ScoredSegment> set) {
+      List<List<ScoredSegment>> lists = new ArrayList<>(maxContainerId + 1);
+      for (int c = 0; c <= maxContainerId; c++) {
+        lists.add(new ArrayList<>());
+      }
+      set.forEach(segment -> lists.get(segment.getContainerId()).add(segment));
+      this.buckets = new ScoredSegment[maxContainerId + 1][];
+      this.byEnd = new int[maxContainerId + 1][];
+      this.byEndAbs = new int[maxContainerId + 1][];
+      for (int c = 0; c <= maxContainerId; c++) {
+        ScoredSegment[] bucket = lists.get(c).toArray(new ScoredSegment[0]);
+        this.buckets[c] = bucket;
+        this.byEnd[c] = IntStream.range(0, bucket.length).boxed()
+            .sorted(Comparator.comparingInt(i -> bucket[i].getEnd()))
+            .mapToInt(Integer::intValue).toArray();
+        this.byEndAbs[c] = IntStream.range(0, bucket.length).boxed()
+            .filter(i -> !Float.isNaN(bucket[i].getEndAbs()))
+            .sorted((i, j) -> Float.compare(bucket[i].getEndAbs(), bucket[j].getEndAbs()))
+            .mapToInt(Integer::intValue).toArray();
+      }
+    }
+
+    /* Index of the first position in order whose segment does not end before the item starts. */
+    private int firstEndingAfter(ScoredSegment[] bucket, int[] order, ScoredSegment item, boolean lsc) {
+      int low = 0;
+      int high = order.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        ScoredSegment segment = bucket[order[mid]];
+        if (lsc ? segment.getEnd() - item.getStart() >= 0 : segment.getEndAbs() - item.getStartAbs() >= 0) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+  }
+
   /* Storage class for the results for easier result transformation. */
   private static class ResultStorage {
 
@@ -0,0 +1,198 @@
+package org.vitrivr.cineast.core.util;
+
+import java.nio.IntBuffer;
+import org.vitrivr.cineast.core.color.LabLookupTable;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+
+/**
+ * Per-cell color aggregates over a regular grid, computed in a single pass over the pixels of an image and into primitive arrays. Cells are assigned as in {@link GridPartitioner#partition(java.util.List, int, int, int, int)} and the results are identical to partitioning first and aggregating the partitions with {@link ColorUtils}.
+ * <p>
+ * The pixels are read from an {@link IntBuffer} from its position to its limit, such that the views handed out by {@link org.vitrivr.cineast.core.data.raw.images.MultiImage#withColors(java.util.function.Consumer)} can be aggregated without copying them.
+ */
+public final class ColorGrid {
+
+  private ColorGrid() {
+  }
+
+  /**
+   * Average Lab color per cell; cells without pixels are (0, 0, 0).
+   *
+   * @param colors Row-major RGB colors of the image.
+   * @return Interleaved (L, a, b) per cell.
+   * @see ColorUtils#getAvg(java.util.List)
+   */
+  public static float[] averageLab(int[] colors, int width, int height, int xpartitions, int ypartitions) {
+    return averageLab(IntBuffer.wrap(colors), width, height, xpartitions, ypartitions);
+  }
+
+  /**
+   * Average Lab color per cell, see {@link #averageLab(int[], int, int, int, int)}.
+   */
+  public static float[] averageLab(IntBuffer colors, int width, int height, int xpartitions, int ypartitions) {
+    final int length = colors.remaining(), start = colors.position();
+    final int cells = xpartitions * ypartitions;
+    final double[] sums = new double[3 * cells];
+    final int[] counts = new int[cells];
+    final float[] lab = new float[3];
+    for (int i = 0; i < length; i++) {
+      final int cell = GridPartitioner.cell(i, width, height, xpartitions, ypartitions);
+      LabLookupTable.toLab(colors.get(start + i), lab, 0);
+      sums[3 * cell] += lab[0];
+      sums[3 * cell + 1] += lab[1];
+      sums[3 * cell + 2] += lab[2];
+      counts[cell]++;
+    }
+    final float[] result = new float[3 * cells];
+    for (int cell = 0; cell < cells; cell++) {
+      if (counts[cell] < 1) {
+        continue;
+      }
+      result[3 * cell] = (float) (sums[3 * cell] / counts[cell]);
+      result[3 * cell + 1] = (float) (sums[3 * cell + 1] / counts[cell]);
+      result[3 * cell + 2] = (float) (sums[3 * cell + 2] / counts[cell]);
+    }
+    return result;
+  }
+
+  /**
+   * Average alpha value (between 0 and 1) per cell.
+   *
+   * @see ColorUtils#getAvgAlpha(Iterable)
+   */
+  public static float[] averageAlpha(int[] colors, int width, int height, int xpartitions, int ypartitions) {
+    return averageAlpha(IntBuffer.wrap(colors), width, height, xpartitions, ypartitions);
+  }
+
+  /**
+   * Average alpha value per cell, see {@link #averageAlpha(int[], int, int, int, int)}.
+   */
+  public static float[] averageAlpha(IntBuffer colors, int width, int height, int xpartitions, int ypartitions) {
+    final int length = colors.remaining(), start = colors.position();
+    final int cells = xpartitions * ypartitions;
+    final float[] sums = new float[cells];
+    final int[] counts = new int[cells];
+    for (int i = 0; i < length; i++) {
+      final int cell = GridPartitioner.cell(i, width, height, xpartitions, ypartitions);
+      sums[cell] += ReadableRGBContainer.getAlpha(colors.get(start + i)) / 255f;
+      counts[cell]++;
+    }
+    for (int cell = 0; cell < cells; cell++) {
+      sums[cell] /= counts[cell];
+    }
+    return sums;
+  }
+
+  /**
+   * Alpha-weighted average RGB color per cell.
+   *
+   * @see ColorUtils#getAvg(Iterable)
+   */
+  public static int[] averageColor(int[] colors, int width, int height, int xpartitions, int ypartitions) {
+    return averageColor(IntBuffer.wrap(colors), width, height, xpartitions, ypartitions);
+  }
+
+  /**
+   * Alpha-weighted average RGB color per cell, see {@link #averageColor(int[], int, int, int, int)}.
+   */
+  public static int[] averageColor(IntBuffer colors, int width, int height, int xpartitions, int ypartitions) {
+    final int length = colors.remaining(), start = colors.position();
+    final int cells = xpartitions * ypartitions;
+    final float[] sums = new float[4 * cells];
+    for (int i = 0; i < length; i++) {
+      final int cell = GridPartitioner.cell(i, width, height, xpartitions, ypartitions);
+      final int color = colors.get(start + i);
+      final float a = ReadableRGBContainer.getAlpha(color) / 255f;
+      sums[4 * cell] += ReadableRGBContainer.getRed(color) * a;
+      sums[4 * cell + 1] += ReadableRGBContainer.getGreen(color) * a;
+      sums[4 * cell + 2] += ReadableRGBContainer.getBlue(color) * a;
+      sums[4 * cell + 3] += a;
+    }
+    final int[] result = new int[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      final float len = sums[4 * cell + 3];
+      if (len < 1) {
+        result[cell] = ReadableRGBContainer.WHITE_INT;
+      } else {
+        result[cell] = ReadableRGBContainer.toIntColor(Math.round(sums[4 * cell] / len), Math.round(sums[4 * cell + 1] / len), Math.round(sums[4 * cell + 2] / len));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Per-channel median RGB color per cell; pixels with an alpha value below 127 are ignored.
+   *
+   * @see ColorUtils#median(Iterable)
+   */
+  public static int[] medianColor(int[] colors, int width, int height, int xpartitions, int ypartitions) {
+    return medianColor(IntBuffer.wrap(colors), width, height, xpartitions, ypartitions);
+  }
+
+  /**
+   * Per-channel median RGB color per cell, see {@link #medianColor(int[], int, int, int, int)}.
+   */
+  public static int[] medianColor(IntBuffer colors, int width, int height, int xpartitions, int ypartitions) {
+    final int length = colors.remaining(), start = colors.position();
+    final int cells = xpartitions * ypartitions;
+    final int[] histR = new int[256 * cells], histG = new int[256 * cells], histB = new int[256 * cells];
+    for (int i = 0; i < length; i++) {
+      final int color = colors.get(start + i);
+      if (ReadableRGBContainer.getAlpha(color) < 127) {
+        continue;
+      }
+      final int offset = 256 * GridPartitioner.cell(i, width, height, xpartitions, ypartitions);
+      histR[offset + ReadableRGBContainer.getRed(color)]++;
+      histG[offset + ReadableRGBContainer.getGreen(color)]++;
+      histB[offset + ReadableRGBContainer.getBlue(color)]++;
+    }
+    final int[] result = new int[cells];
+    for (int cell = 0; cell < cells; cell++) {
+      final int offset = 256 * cell;
+      result[cell] = ReadableRGBContainer.toIntColor(ColorUtils.medianFromHistogram(histR, offset, 256), ColorUtils.medianFromHistogram(histG, offset, 256), ColorUtils.medianFromHistogram(histB, offset, 256));
+    }
+    return result;
+  }
+
+  /**
+   * Running mean and variance for a fixed number of cells, backed by primitive arrays. Uses the same update rules as {@link org.apache.commons.math3.stat.descriptive.SummaryStatistics} and hence yields the same results (including NaN for empty cells).
+   */
+  public static final class Moments {
+
+    private final long[] n;
+
+    private final double[] m1;
+
+    private final double[] m2;
+
+    public Moments(int cells) {
+      this.n = new long[cells];
+      this.m1 = new double[cells];
+      this.m2 = new double[cells];
+    }
+
+    public void add(int cell, double value) {
+      final double n0 = ++this.n[cell];
+      final double dev = value - this.m1[cell];
+      final double nDev = dev / n0;
+      this.m1[cell] += nDev;
+      this.m2[cell] += (n0 - 1) * dev * nDev;
+    }
+
+    public double mean(int cell) {
+      return this.n[cell] == 0 ? Double.NaN : this.m1[cell];
+    }
+
+    /**
+     * Bias-corrected sample variance.
+     */
+    public double variance(int cell) {
+      final long n = this.n[cell];
+      if (n == 0) {
+        return Double.NaN;
+      } else if (n == 1) {
+        return 0d;
+      }
+      return this.m2[cell] / (n - 1d);
+    }
+  }
+}
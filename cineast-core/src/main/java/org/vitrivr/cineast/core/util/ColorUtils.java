@@ -66,7 +66,16 @@ public static final int median(Iterable<Integer> colors) {
   }
 
   private static int medianFromHistogram(int[] hist) {
-    int pos_l = 0, pos_r = hist.length - 1;
+    return medianFromHistogram(hist, 0, hist.length);
+  }
+
+  /**
+   * Median of a histogram that is stored at {@code offset} in a larger array (e.g., one histogram per grid cell).
+   *
+   * @return median bin, relative to offset
+   */
+  static int medianFromHistogram(int[] hist, int offset, int length) {
+    int pos_l = offset, pos_r = offset + length - 1;
     int sum_l = hist[pos_l], sum_r = hist[pos_r];
 
     while (pos_l < pos_r) {
@@ -76,7 +85,7 @@ private static int medianFromHistogram(int[] hist) {
         sum_r += hist[--pos_r];
       }
     }
-    return pos_l;
+    return pos_l - offset;
   }
 
   public static final int getAvg(Iterable<Integer> colors) {
@@ -17,12 +17,18 @@ public static <T> ArrayList<LinkedList<T>> partition(List<T> input, int width, i
 
     int i = 0;
     for (T t : input) {
-      int index = (((i % width) * xpartitions) / width) + xpartitions * (i * ypartitions / width / height);
-      _return.get(index).add(t);
+      _return.get(cell(i, width, height, xpartitions, ypartitions)).add(t);
       ++i;
     }
 
     return _return;
   }
 
+  /**
+   * Returns the index of the grid cell the i-th element of a row-major image belongs to. This is the assignment used by {@link #partition(List, int, int, int, int)} and allows per-cell aggregation without materializing the partitions.
+   */
+  public static int cell(int i, int width, int height, int xpartitions, int ypartitions) {
+    return (((i % width) * xpartitions) / width) + xpartitions * (i * ypartitions / width / height);
+  }
+
 }
@@ -2,7 +2,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
-import org.vitrivr.cineast.core.data.Pair;
+import org.apache.commons.math3.stat.StatUtils;
 import org.vitrivr.cineast.core.util.dsp.fft.STFT;
 import org.vitrivr.cineast.core.util.dsp.fft.Spectrum;
 import org.vitrivr.cineast.core.util.dsp.midi.MidiUtil;
@@ -73,13 +73,18 @@ public static double binToCenterFrequency(int n, Resolution r) {
   }
 
   /**
-   * Adds the contribution of a STFT to the HPCP by adding the contributions all the power spectra of that STFT to the HPCP.
+   * Adds the contribution of a STFT to the HPCP by adding the contributions all the power spectra of that STFT to the HPCP. The power spectra are read directly from the STFT's power matrix.
    *
    * @param stft STFT that should contribute to the Harmonic Pitch Class Profile.
    */
   public void addContribution(STFT stft) {
-    for (Spectrum spectrum : stft.getPowerSpectrum()) {
-      this.addContribution(spectrum);
+    final double[] power = stft.getPowerMatrix();
+    final float[] frequencies = stft.getFrequencies();
+    final int[] range = this.range(frequencies);
+    final double[] peaks = new double[Math.max(0, range[1] - range[0])];
+    final int[] indices = new int[peaks.length];
+    for (int i = 0; i < stft.getWidth(); i++) {
+      this.addContribution(power, i * stft.getHeight(), frequencies, range, Spectrum.Type.POWER, peaks, indices);
     }
   }
 
@@ -89,20 +94,85 @@ public void addContribution(STFT stft) {
    * @param spectrum Spectrum that should contribute to the Harmonic Pitch Class Profile.
    */
   public void addContribution(Spectrum spectrum) {
-    /* Prune the PowerSpectrum and the Frequencies to the range that is interesting according to min frequency and max frequency.*/
-    Spectrum pruned = spectrum.reduced(this.minFrequency, this.maxFrequency);
+    final int[] range = this.range(spectrum.frequencies());
+    final double[] peaks = new double[Math.max(0, range[1] - range[0])];
+    final int[] indices = new int[peaks.length];
+    this.addContribution(spectrum.array(), 0, spectrum.frequencies(), range, spectrum.getType(), peaks, indices);
+  }
+
+  /**
+   * Returns the range of bins [from, to) that lies between the minimum and the maximum frequency, using the same bounds as {@link Spectrum#reduced(float, float)}.
+   *
+   * @param frequencies Frequency labels of the spectrum.
+   * @return Array containing the index of the first bin and the index after the last bin.
+   */
+  private int[] range(float[] frequencies) {
+    if (this.minFrequency >= this.maxFrequency) {
+      throw new IllegalArgumentException("Minimum frequency must be smaller than maximum frequency!");
+    }
+    final int[] range = new int[2];
+    for (int i = 0; i < frequencies.length; i++) {
+      if (frequencies[i] <= this.minFrequency) {
+        range[0] = i;
+      }
+      if (frequencies[i] < this.maxFrequency) {
+        range[1] = i;
+      }
+      if (frequencies[i] > this.maxFrequency) {
+        break;
+      }
+    }
+    return range;
+  }
 
-    double threshold = 1.0e-8;
-    List<Pair<Float, Double>> peaks = pruned.findLocalMaxima(threshold, true);
-    float[] hpcp = new float[this.resolution.bins];
+  /**
+   * Adds the contribution of a single spectrum, stored in the provided array starting at offset, to the HPCP. Only significant local maxima within the provided range of bins contribute (see {@link Spectrum#findLocalMaxima(double, boolean)}).
+   *
+   * @param values      Array holding the spectrum.
+   * @param offset      Index of bin 0 of the spectrum.
+   * @param frequencies Frequency labels of the spectrum.
+   * @param range       Range of bins [from, to) to consider.
+   * @param type        Type of the spectrum.
+   * @param peaks       Scratch array for peak values; must hold at least to - from elements.
+   * @param indices     Scratch array for peak indices; must hold at least to - from elements.
+   */
+  private void addContribution(double[] values, int offset, float[] frequencies, int[] range, Spectrum.Type type, double[] peaks, int[] indices) {
+    final double threshold = 1.0e-8;
+
+    /* Find local maxima within the range of interest... */
+    int count = 0;
+    for (int i = range[0] + 1; i < range[1] - 1; i++) {
+      final double value = values[offset + i];
+      if (value < threshold) {
+        continue;
+      }
+      if (value > Math.max(values[offset + i + 1], values[offset + i - 1])) {
+        peaks[count] = value;
+        indices[count] = i;
+        count++;
+      }
+    }
+
+    /* ... and only keep the significant ones. */
+    final double mean = StatUtils.mean(peaks, 0, count);
+    final double stddev = Math.sqrt(StatUtils.variance(peaks, 0, count));
+    int significant = 0;
+    for (int i = 0; i < count; i++) {
+      if (!(peaks[i] < (mean + stddev * 2))) {
+        peaks[significant] = peaks[i];
+        indices[significant] = indices[i];
+        significant++;
+      }
+    }
 
     /* For each of the semi-tones (according to resolution), add the contribution of every peak. */
+    final float[] hpcp = new float[this.resolution.bins];
     for (int n = 0; n < this.resolution.bins; n++) {
-      for (Pair<Float, Double> peak : peaks) {
-        if (pruned.getType() == Spectrum.Type.POWER) {
-          hpcp[n] += peak.second * this.weight(n, peak.first);
-        } else if (pruned.getType() == Spectrum.Type.MAGNITUDE) {
-          hpcp[n] += Math.pow(peak.second, 2) * this.weight(n, peak.first);
+      for (int p = 0; p < significant; p++) {
+        if (type == Spectrum.Type.POWER) {
+          hpcp[n] += peaks[p] * this.weight(n, frequencies[indices[p]]);
+        } else if (type == Spectrum.Type.MAGNITUDE) {
+          hpcp[n] += Math.pow(peaks[p], 2) * this.weight(n, frequencies[indices[p]]);
         }
       }
     }
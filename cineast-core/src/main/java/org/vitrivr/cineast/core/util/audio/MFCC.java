@@ -53,14 +53,7 @@ public MFCC(int cepstra, int melfilters, float minFrequency) {
    * @param stft STFT to derive the MFCC features from.
    */
   public static List<MFCC> calculate(STFT stft) {
-    List<Spectrum> spectra = stft.getMagnitudeSpectrum();
-    List<MFCC> list = new ArrayList<>(spectra.size());
-    for (Spectrum spectrum : spectra) {
-      MFCC mfcc = new MFCC();
-      mfcc.calculate(spectrum, stft.getSamplingrate(), stft.getNumberOfBins());
-      list.add(mfcc);
-    }
-    return list;
+    return calculate(stft, 13, 23, 133.0f);
   }
 
   /**
@@ -72,11 +65,12 @@ public static List<MFCC> calculate(STFT stft) {
    * @param minFrequency Minimum frequency to consider for MFCC feature.
    */
   public static List<MFCC> calculate(STFT stft, int cepstra, int melfilters, float minFrequency) {
-    List<Spectrum> spectra = stft.getMagnitudeSpectrum();
-    List<MFCC> list = new ArrayList<>(spectra.size());
-    for (Spectrum spectrum : spectra) {
+    final double[] magnitudes = stft.getMagnitudeMatrix();
+    final int[] bin_indices = new MFCC(cepstra, melfilters, minFrequency).melFrequencyBins(stft.getSamplingrate(), stft.getNumberOfBins());
+    List<MFCC> list = new ArrayList<>(stft.getWidth());
+    for (int i = 0; i < stft.getWidth(); i++) {
       MFCC mfcc = new MFCC(cepstra, melfilters, minFrequency);
-      mfcc.calculate(spectrum, stft.getSamplingrate(), stft.getNumberOfBins());
+      mfcc.calculate(magnitudes, i * stft.getHeight(), bin_indices);
       list.add(mfcc);
     }
     return list;
@@ -125,9 +119,19 @@ public void calculate(Spectrum spectrum, float samplingrate, int windowsize) {
 
     /* */
     int[] bin_indices = this.melFrequencyBins(samplingrate, windowsize);
+    this.calculate(spectrum.array(), 0, bin_indices);
+  }
 
+  /**
+   * Calculates the cepstra for a magnitude spectrum stored in the provided array starting at offset.
+   *
+   * @param magnitudes  Array holding the magnitude spectrum.
+   * @param offset      Index of bin 0 of the spectrum.
+   * @param bin_indices Indices of the frequency-bins relevant for mel-filtering (see {@link #melFrequencyBins(float, int)}).
+   */
+  private void calculate(double[] magnitudes, int offset, int[] bin_indices) {
     /* Calculates and returns the Mel Filter Bank values of the power-spectrum. */
-    double[] mel_filter_banks = this.melFilter(spectrum.array(), bin_indices);
+    double[] mel_filter_banks = this.melFilter(magnitudes, offset, bin_indices);
 
     /* Calculate and assign cepstra coefficients. */
     for (int i = 0; i < this.cepstra.length; i++) {
@@ -159,21 +163,22 @@ public int[] melFrequencyBins(float samplingrate, int windowsize) {
    * Applies the triangular Mel-filters to the magnutude-spectrum
    *
    * @param magnitudes Linear magnitude spectrum to apply the mel-filters to.
+   * @param offset     Index of bin 0 of the spectrum.
    * @param indices    Indices to use as center-frequencies.
    * @return Mel-scaled magnitude spectrum.
    */
-  private double[] melFilter(double magnitudes[], int indices[]) {
+  private double[] melFilter(double magnitudes[], int offset, int indices[]) {
     double temp[] = new double[this.melfilters + 2];
 
     for (int k = 1; k <= this.melfilters; k++) {
       double num1 = 0, num2 = 0;
 
       for (int i = indices[k - 1]; i <= indices[k]; i++) {
-        num1 += ((i - indices[k - 1] + 1) / (indices[k] - indices[k - 1] + 1)) * magnitudes[i];
+        num1 += ((i - indices[k - 1] + 1) / (indices[k] - indices[k - 1] + 1)) * magnitudes[offset + i];
       }
 
       for (int i = indices[k] + 1; i <= indices[k + 1]; i++) {
-        num2 += (1 - ((i - indices[k]) / (indices[k + 1] - indices[k] + 1))) * magnitudes[i];
+        num2 += (1 - ((i - indices[k]) / (indices[k + 1] - indices[k] + 1))) * magnitudes[offset + i];
       }
 
       temp[k] = num1 + num2;
@@ -0,0 +1,102 @@
+package org.vitrivr.cineast.core.util.distance;
+
+import java.util.Arrays;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+
+/**
+ * Distance between a fixed query vector and vectors that are stored back-to-back in a contiguous float[] block (i.e., a columnar vector store). Avoids materializing a float[] per stored vector for the common distances and falls back to the corresponding {@link FloatArrayDistance} otherwise.
+ */
+@FunctionalInterface
+public interface FloatBlockDistance {
+
+  /**
+   * Computes the distance between the query and the vector that starts at {@code offset} in {@code block}.
+   *
+   * @param block  The block of vectors.
+   * @param offset The offset of the first component of the vector within the block.
+   * @return Distance
+   */
+  double applyAsDouble(float[] block, int offset);
+
+  /**
+   * Creates a {@link FloatBlockDistance} for the given query vector and {@link ReadableQueryConfig}. Instances are thread-safe.
+   *
+   * @param query       The query vector; its length determines the dimension of the stored vectors.
+   * @param queryConfig The {@link ReadableQueryConfig} that specifies the distance.
+   * @return {@link FloatBlockDistance}
+   */
+  static FloatBlockDistance fromQueryConfig(float[] query, ReadableQueryConfig queryConfig) {
+    final int dim = query.length;
+    final ReadableQueryConfig.Distance distance = queryConfig.getDistance().orElse(ReadableQueryConfig.Distance.manhattan);
+    if (queryConfig.getDistanceWeights().isEmpty()) {
+      switch (distance) {
+        case manhattan:
+          return (block, offset) -> {
+            double sum = 0d;
+            for (int i = 0; i < dim; i++) {
+              sum += Math.abs(query[i] - block[offset + i]);
+            }
+            return sum;
+          };
+        case euclidean:
+          return (block, offset) -> Math.sqrt(squaredEuclidean(query, block, offset));
+        case squaredeuclidean:
+          return (block, offset) -> squaredEuclidean(query, block, offset);
+        case cosine: {
+          double n = 0d;
+          for (float f : query) {
+            n += f * f;
+          }
+          final double queryNorm = Math.sqrt(n);
+          return (block, offset) -> {
+            double dot = 0d, norm = 0d;
+            for (int i = 0; i < dim; i++) {
+              final float v = block[offset + i];
+              dot += query[i] * v;
+              norm += v * v;
+            }
+            final double div = queryNorm * Math.sqrt(norm);
+            if (div < 1e-6 || Double.isNaN(div)) {
+              return 1d;
+            }
+            return 1d - dot / div;
+          };
+        }
+        default:
+          break;
+      }
+    }
+
+    /* Fallback: materialize the vector into a per-thread scratch buffer. */
+    final FloatArrayDistance fallback = FloatArrayDistance.fromQueryConfig(queryConfig);
+    final ThreadLocal<float[]> scratch = ThreadLocal.withInitial(() -> new float[dim]);
+    return (block, offset) -> {
+      final float[] buffer = scratch.get();
+      System.arraycopy(block, offset, buffer, 0, dim);
+      return fallback.applyAsDouble(query, buffer);
+    };
+  }
+
+  private static double squaredEuclidean(float[] query, float[] block, int offset) {
+    double sum = 0d;
+    for (int i = 0; i < query.length; i++) {
+      final double d = query[i] - block[offset + i];
+      sum += d * d;
+    }
+    return sum;
+  }
+
+  /**
+   * Convenience method to compute the distance between the query and a single, standalone vector.
+   */
+  default double applyAsDouble(float[] vector) {
+    return this.applyAsDouble(vector, 0);
+  }
+
+  /**
+   * Returns a copy of the vector that starts at {@code offset} in {@code block}.
+   */
+  static float[] copyOf(float[] block, int offset, int dimension) {
+    return Arrays.copyOfRange(block, offset, offset + dimension);
+  }
+}
@@ -1,15 +1,13 @@
 package org.vitrivr.cineast.core.util.dsp.fft;
 
 import org.apache.commons.math3.complex.Complex;
-import org.apache.commons.math3.transform.DftNormalization;
-import org.apache.commons.math3.transform.FastFourierTransformer;
-import org.apache.commons.math3.transform.TransformType;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.RectangularWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowCoefficients;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
 import org.vitrivr.cineast.core.util.dsp.filter.frequency.FrequencyDomainFilterInterface;
 
 /**
- * This class wraps the Apache Commons FastFourierTransformer and extends it with some additional functionality.
+ * Forward FFT of real valued data, backed by {@link RealFFT}, with some additional functionality.
  *
  * <ol>
  *     <li>It allows to apply WindowFunctions for forward-transformation. See WindowFunction interface!</li>
@@ -17,18 +15,28 @@
  *     <li>All derivatives are calculated in a lazy way i.e. the values are on access.</li>
  * </ol>
  * <p>
- * The same instance of the FFT class can be re-used to process multiple samples. Every call to forward() will replace
- * all the existing data in the instance.
+ * The coefficients are kept in a primitive, interleaved array holding bins 0 to N/2; {@link Complex} values are only created when requested through {@link #getValues()} or {@link #get(int)}. The same instance of the FFT class can be re-used to process multiple samples. Every call to forward() will replace all the existing data in the instance.
  * <p>
  * The inspiration for this class comes from the FFT class found in the jAudio framework (see
  * https://github.com/dmcennis/jaudioGIT)
  *
  * @see WindowFunction
+ * @see RealFFT
  */
 public class FFT {
 
   /**
-   * Data obtained by forward FFT.
+   * Interleaved coefficients of bins 0 to size / 2 obtained by forward FFT.
+   */
+  private double[] coefficients;
+
+  /**
+   * Number of samples the FFT has been calculated on (after zero-padding).
+   */
+  private int size;
+
+  /**
+   * Data obtained by forward FFT as complex values. May be null if it has not been obtained yet.
    */
   private Complex[] data;
 
@@ -52,6 +60,24 @@ public class FFT {
    */
   private float samplingrate;
 
+  public FFT() {
+  }
+
+  /**
+   * Creates a FFT from coefficients that have already been calculated, e.g. by an {@link STFT}.
+   *
+   * @param coefficients   Interleaved coefficients of bins 0 to size / 2; not copied.
+   * @param size           Size of the FFT.
+   * @param samplingrate   Samplingrate of the transformed samples.
+   * @param windowFunction WindowFunction that has been applied to the samples.
+   */
+  FFT(double[] coefficients, int size, float samplingrate, WindowFunction windowFunction) {
+    this.coefficients = coefficients;
+    this.size = size;
+    this.samplingrate = samplingrate;
+    this.windowFunction = windowFunction;
+  }
+
   /**
    * Performs a forward fourier transformation on the provided, real valued data. The method makes sure, that the size of the array is a power of two (for which the FFT class has been optimized) and pads the data with zeros if necessary. Furthermore, one can provide a WindowingFunction that will be applied on the data.
    *
@@ -65,22 +91,23 @@ public void forward(double[] data, float samplingrate, WindowFunction window) {
     this.windowFunction = window;
     this.samplingrate = samplingrate;
 
-    int actual_length = data.length;
-    int valid_length = FFTUtil.nextPowerOf2(actual_length);
-    double[] reshaped = new double[valid_length];
-    for (int i = 0; i < reshaped.length; i++) {
-      if (i < actual_length) {
-        reshaped[i] = data[i] * this.windowFunction.value(i, valid_length);
-      } else {
-        reshaped[i] = 0;
-      }
-    }
+    final int actual_length = data.length;
+    final int valid_length = FFTUtil.nextPowerOf2(actual_length);
+    final RealFFT fft = RealFFT.forSize(valid_length);
 
-    /* Perform FFT using FastFourierTransformer library. */
-    FastFourierTransformer transformer = new FastFourierTransformer(DftNormalization.STANDARD);
-    this.data = transformer.transform(reshaped, TransformType.FORWARD);
+    /* Re-use the buffer of the previous call if possible. */
+    if (this.coefficients == null || this.coefficients.length != fft.length()) {
+      this.coefficients = new double[fft.length()];
+    }
+    WindowCoefficients.of(this.windowFunction, valid_length).apply(data, 0, this.coefficients, 0, 0, actual_length);
+    for (int i = actual_length; i < this.coefficients.length; i++) {
+      this.coefficients[i] = 0.0;
+    }
+    fft.forward(this.coefficients, 0);
+    this.size = valid_length;
 
     /* Reset the calculated properties. */
+    this.data = null;
     this.powerSpectrum = null;
     this.magnitudeSpectrum = null;
   }
@@ -92,7 +119,9 @@ public void forward(double[] data, float samplingrate, WindowFunction window) {
    */
   public Spectrum getMagnitudeSpectrum() {
     if (this.magnitudeSpectrum == null) {
-      this.magnitudeSpectrum = Spectrum.createMagnitudeSpectrum(this.data, this.samplingrate, this.windowFunction);
+      final double[] magnitudes = new double[this.size / 2];
+      Spectrum.magnitude(this.coefficients, 0, magnitudes.length, this.normalization(), magnitudes, 0);
+      this.magnitudeSpectrum = new Spectrum(Spectrum.Type.MAGNITUDE, magnitudes, FFTUtil.binCenterFrequencies(this.size, this.samplingrate));
     }
 
     return this.magnitudeSpectrum;
@@ -105,17 +134,26 @@ public Spectrum getMagnitudeSpectrum() {
    */
   public Spectrum getPowerSpectrum() {
     if (this.powerSpectrum == null) {
-      this.powerSpectrum = Spectrum.createPowerSpectrum(this.data, this.samplingrate, this.windowFunction);
+      final double[] powers = new double[this.size / 2];
+      Spectrum.power(this.coefficients, 0, powers.length, this.normalization(), powers, 0);
+      this.powerSpectrum = new Spectrum(Spectrum.Type.POWER, powers, FFTUtil.binCenterFrequencies(this.size, this.samplingrate));
     }
     return this.powerSpectrum;
   }
 
   /**
-   * Getter for the transformed data.
+   * Getter for the transformed data. The complex values are created upon first invocation of the method.
    *
    * @return Array containing the raw FFT data.
    */
   public final Complex[] getValues() {
+    if (this.data == null) {
+      final Complex[] values = new Complex[this.size];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = this.get(i);
+      }
+      this.data = values;
+    }
     return this.data;
   }
 
@@ -126,7 +164,18 @@ public final Complex[] getValues() {
    * @return Fourier coefficient.
    */
   public final Complex get(int index) {
-    return this.data[index];
+    if (this.data != null) {
+      return this.data[index];
+    }
+    if (index < 0 || index >= this.size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    if (index <= this.size / 2) {
+      return new Complex(this.coefficients[2 * index], this.coefficients[2 * index + 1]);
+    } else {
+      /* Coefficients of real valued data are conjugate symmetric. */
+      return new Complex(this.coefficients[2 * (this.size - index)], -this.coefficients[2 * (this.size - index) + 1]);
+    }
   }
 
   /**
@@ -144,15 +193,23 @@ public final float getSamplingrate() {
    * @return Rate at which the original signal has been sampled.
    */
   public final int getWindowsize() {
-    return this.data.length;
+    return this.size;
   }
 
   /**
    * Returns true if the FFT only contains zeros and false otherwise
    */
   public final boolean isZero() {
-    for (Complex coefficient : this.data) {
-      if (coefficient.abs() > 0) {
+    if (this.data != null) {
+      for (Complex coefficient : this.data) {
+        if (coefficient.abs() > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    for (double coefficient : this.coefficients) {
+      if (Math.abs(coefficient) > 0) {
         return false;
       }
     }
@@ -165,6 +222,20 @@ public final boolean isZero() {
    * @param filter FrequencyDomainFilter that should be applied.
    */
   public final void applyFilter(FrequencyDomainFilterInterface filter) {
-    filter.filterInPlace(this.data);
+    filter.filterInPlace(this.getValues());
+    final Complex[] values = this.data;
+    for (int i = 0; i <= this.size / 2; i++) {
+      this.coefficients[2 * i] = values[i].getReal();
+      this.coefficients[2 * i + 1] = values[i].getImaginary();
+    }
+    this.powerSpectrum = null;
+    this.magnitudeSpectrum = null;
+  }
+
+  /**
+   * Normalization factor for the spectra, i.e. the size of the FFT times the normalization of the window function.
+   */
+  private double normalization() {
+    return this.size * WindowCoefficients.of(this.windowFunction, this.size).normalization();
   }
 }
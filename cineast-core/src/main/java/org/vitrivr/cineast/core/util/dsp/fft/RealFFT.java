@@ -0,0 +1,175 @@
+package org.vitrivr.cineast.core.util.dsp.fft;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Forward FFT of real valued data of a fixed size, operating in-place on primitive arrays.
+ * <p>
+ * The N real samples are treated as N/2 complex values, transformed by an iterative radix-2 FFT and then split into the N/2 + 1 non-redundant coefficients of the real input. Bit-reversal permutation and twiddle factors are precomputed once per size; instances are immutable and shared between threads (see {@link #forSize(int)}).
+ * <p>
+ * Coefficients are stored interleaved, i.e. the real part of bin k is located at index 2k and the imaginary part at index 2k + 1. Coefficients for bins greater than N/2 follow from conjugate symmetry.
+ */
+public final class RealFFT {
+
+  private static final ConcurrentHashMap<Integer, RealFFT> PLANS = new ConcurrentHashMap<>();
+
+  /**
+   * Number of real samples.
+   */
+  private final int size;
+
+  /**
+   * Size of the complex transform, i.e. size / 2.
+   */
+  private final int half;
+
+  /**
+   * cos(2 * PI * k / size) for k = 0 to size / 2 - 1.
+   */
+  private final double[] cos;
+
+  /**
+   * sin(2 * PI * k / size) for k = 0 to size / 2 - 1.
+   */
+  private final double[] sin;
+
+  /**
+   * Bit-reversed index for every index of the complex transform.
+   */
+  private final int[] reversed;
+
+  private RealFFT(int size) {
+    this.size = size;
+    this.half = size / 2;
+    this.cos = new double[this.half];
+    this.sin = new double[this.half];
+    for (int k = 0; k < this.half; k++) {
+      final double phi = 2.0 * Math.PI * k / size;
+      this.cos[k] = Math.cos(phi);
+      this.sin[k] = Math.sin(phi);
+    }
+    this.reversed = new int[this.half];
+    final int bits = Integer.numberOfTrailingZeros(Math.max(this.half, 1));
+    for (int i = 0; i < this.half; i++) {
+      this.reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+    }
+  }
+
+  /**
+   * Returns the (shared) FFT for the given size.
+   *
+   * @param size Number of real samples. Must be a power of two.
+   * @return RealFFT instance.
+   */
+  public static RealFFT forSize(int size) {
+    if (size <= 0 || !FFTUtil.isPowerOf2(size)) {
+      throw new IllegalArgumentException("The provided size of " + size + " is not a power of two!");
+    }
+    return PLANS.computeIfAbsent(size, RealFFT::new);
+  }
+
+  /**
+   * Getter for the number of real samples.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the number of non-redundant coefficients, i.e. size / 2 + 1.
+   */
+  public int bins() {
+    return this.half + 1;
+  }
+
+  /**
+   * Returns the number of array elements required by {@link #forward(double[], int)}, i.e. 2 * {@link #bins()}.
+   */
+  public int length() {
+    return 2 * this.bins();
+  }
+
+  /**
+   * Performs a forward fourier transformation in-place. Upon invocation, the {@link #size()} elements starting at {@code offset} must hold the (windowed) samples. Upon return, the {@link #length()} elements starting at {@code offset} hold the interleaved coefficients of bins 0 to size / 2.
+   *
+   * @param buffer Array holding the samples; must provide {@link #length()} elements starting at offset.
+   * @param offset Index of the first sample.
+   */
+  public void forward(double[] buffer, int offset) {
+    if (this.size == 1) {
+      buffer[offset + 1] = 0.0;
+      return;
+    }
+    this.complexForward(buffer, offset);
+
+    /* Split the transform of the packed samples into the transform of the real samples. */
+    final int m = this.half;
+    final double z0r = buffer[offset];
+    final double z0i = buffer[offset + 1];
+    buffer[offset] = z0r + z0i;
+    buffer[offset + 1] = 0.0;
+    buffer[offset + 2 * m] = z0r - z0i;
+    buffer[offset + 2 * m + 1] = 0.0;
+    for (int k = 1; k <= m / 2; k++) {
+      final int a = offset + 2 * k;
+      final int b = offset + 2 * (m - k);
+      final double ar = buffer[a];
+      final double ai = buffer[a + 1];
+      final double br = buffer[b];
+      final double bi = buffer[b + 1];
+      final double er = 0.5 * (ar + br);
+      final double ei = 0.5 * (ai - bi);
+      final double or = 0.5 * (ai + bi);
+      final double oi = -0.5 * (ar - br);
+      final double c = this.cos[k];
+      final double s = this.sin[k];
+      final double tr = c * or + s * oi;
+      final double ti = c * oi - s * or;
+      buffer[a] = er + tr;
+      buffer[a + 1] = ei + ti;
+      buffer[b] = er - tr;
+      buffer[b + 1] = ti - ei;
+    }
+  }
+
+  /**
+   * In-place, iterative radix-2 FFT of the {@link #half} interleaved complex values starting at offset.
+   */
+  private void complexForward(double[] buffer, int offset) {
+    final int m = this.half;
+    for (int i = 0; i < m; i++) {
+      final int j = this.reversed[i];
+      if (i < j) {
+        final int x = offset + 2 * i;
+        final int y = offset + 2 * j;
+        final double re = buffer[x];
+        final double im = buffer[x + 1];
+        buffer[x] = buffer[y];
+        buffer[x + 1] = buffer[y + 1];
+        buffer[y] = re;
+        buffer[y + 1] = im;
+      }
+    }
+
+    for (int length = 2; length <= m; length <<= 1) {
+      final int span = length / 2;
+      final int stride = this.size / length;
+      for (int j = 0; j < span; j++) {
+        final double wr = this.cos[j * stride];
+        final double wi = -this.sin[j * stride];
+        for (int i = j; i < m; i += length) {
+          final int u = offset + 2 * i;
+          final int v = u + 2 * span;
+          final double vr = buffer[v] * wr - buffer[v + 1] * wi;
+          final double vi = buffer[v] * wi + buffer[v + 1] * wr;
+          final double ur = buffer[u];
+          final double ui = buffer[u + 1];
+          buffer[u] = ur + vr;
+          buffer[u + 1] = ui + vi;
+          buffer[v] = ur - vr;
+          buffer[v + 1] = ui - vi;
+        }
+      }
+    }
+  }
+}
@@ -4,10 +4,16 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.apache.commons.math3.complex.Complex;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowCoefficients;
 import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
 import org.vitrivr.cineast.core.util.dsp.filter.frequency.FrequencyDomainFilterInterface;
 
-
+/**
+ * Short-Term Fourier Transform of real valued samples.
+ * <p>
+ * The coefficients of all frames are stored in a single, contiguous array of width x {@link RealFFT#length()} doubles (see {@link RealFFT} for the layout of a frame), which is transformed in place. Power and magnitude spectra are derived lazily into contiguous width x height matrices (see {@link #getPowerMatrix()} and {@link #getMagnitudeMatrix()}), which consumers can read without creating a {@link Spectrum} per frame.
+ */
 public class STFT {
 
   /**
@@ -41,15 +47,43 @@ public class STFT {
    */
   private final float[] frequencies;
   /**
-   * List containing one FFT entry per timepoint. Same order as time[]
+   * FFT used for every frame.
+   */
+  private final RealFFT fft;
+  /**
+   * Window coefficients used for every frame.
    */
-  private final List<FFT> stft;
+  private final WindowCoefficients window;
+  /**
+   * Number of doubles per frame in {@link #coefficients}.
+   */
+  private final int stride;
   /**
    * Height of the STFT (i.e. the number of frequency bins per FFT).
    */
   private int height;
   /**
-   * Time labels in ascending order (for each entry in the stft list).
+   * Interleaved FFT coefficients of all frames, {@link #stride} doubles per frame. May be larger than required.
+   */
+  private double[] coefficients = new double[0];
+  /**
+   * Number of frames (i.e. timepoints) in the STFT.
+   */
+  private int width = 0;
+  /**
+   * Power spectra of all frames, height doubles per frame. May be null if they have not been calculated yet.
+   */
+  private volatile double[] power;
+  /**
+   * Magnitude spectra of all frames, height doubles per frame. May be null if they have not been calculated yet.
+   */
+  private volatile double[] magnitude;
+  /**
+   * FFT views of all frames. May be null if they have not been requested yet.
+   */
+  private volatile List<FFT> stft;
+  /**
+   * Time labels in ascending order (for each frame).
    */
   private float[] time;
 
@@ -69,8 +103,10 @@ public STFT(int windowsize, int overlap, int padding, WindowFunction function, f
     this.padding = padding;
     this.height = windowsize / 2;
 
-    /* Prepares empty array for STFT. */
-    this.stft = new ArrayList<>();
+    /* Prepares the FFT and the window coefficients shared by all frames. */
+    this.fft = RealFFT.forSize(windowsize);
+    this.window = WindowCoefficients.of(function, windowsize);
+    this.stride = this.fft.length();
 
     this.frequencies = FFTUtil.binCenterFrequencies(windowsize, samplingrate);
   }
@@ -85,38 +121,73 @@ public void forward(double[] samples) {
     /* Initialize values for the sliding window. */
     final int increment = this.windowsize - overlap - 2 * this.padding;
     final int length = this.windowsize - 2 * this.padding;
-    int start = 0;
-    int end = start + length - 1;
+    if (increment <= 0) {
+      throw new IllegalArgumentException("The overlap of " + this.overlap + " samples leaves no room to move the window.");
+    }
 
-    /* Initialize buffer that holds samples for FFT. */
-    final double window[] = new double[windowsize];
+    /* Grow the matrix to hold the new frames; frames that have not been written yet only contain zeros. */
+    final int frames = (samples.length + increment - 1) / increment;
+    if ((long) (this.width + frames) * this.stride > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("The STFT of " + samples.length + " samples exceeds the maximum size of an array.");
+    }
+    final int required = (this.width + frames) * this.stride;
+    if (required > this.coefficients.length) {
+      this.coefficients = Arrays.copyOf(this.coefficients, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) this.coefficients.length * 3 / 2)));
+    }
 
     /*
-     * Outer-loop: Create a sliding window and move it across the samples.
-     * For each iteration, forward the FFT for the samples in the Window and add it to the list.
+     * Slide the window across the samples: for each position, copy the windowed samples into the next frame of the matrix and transform that frame in place.
      */
+    for (int start = 0; start < samples.length; start += increment) {
+      final int offset = this.width * this.stride;
+      this.window.apply(samples, start, this.coefficients, offset + this.padding, this.padding, Math.min(length, samples.length - start));
+      this.fft.forward(this.coefficients, offset);
+      this.width += 1;
+    }
 
-    while (start < samples.length) {
-      /* Copy the samples into the window. */
-      if (end < samples.length) {
-        System.arraycopy(samples, start, window, padding, length);
-      } else {
-        System.arraycopy(samples, start, window, padding, samples.length - start);
-        Arrays.fill(window, samples.length - start + 1, window.length - 1, 0.0);
-      }
-
-      /* Create Forward FFT entries for each window. */
-      FFT fft = new FFT();
-      fft.forward(window, this.samplingrate, this.windowFunction);
-      this.stft.add(fft);
+    /* Reset the derived data and update the time-labels. */
+    this.invalidate();
+    this.time = FFTUtil.time(this.width, windowsize, overlap, padding, samplingrate);
+  }
 
-      /* Move the window. */
-      start += increment;
-      end += increment;
+  /**
+   * Returns the power spectra of all frames as a contiguous matrix: the power of bin j in frame i is located at index i * {@link #getHeight()} + j. If the spectra have not been calculated yet, they will be upon invocation of the method.
+   * <p>
+   * The returned array is shared and must not be modified.
+   *
+   * @return Array of width x height power values.
+   */
+  public double[] getPowerMatrix() {
+    double[] matrix = this.power;
+    if (matrix == null) {
+      matrix = new double[this.width * this.height];
+      final double normalization = this.normalization();
+      for (int i = 0; i < this.width; i++) {
+        Spectrum.power(this.coefficients, i * this.stride, this.height, normalization, matrix, i * this.height);
+      }
+      this.power = matrix;
     }
+    return matrix;
+  }
 
-    /* Updates the time-labels. */
-    this.time = FFTUtil.time(this.stft.size(), windowsize, overlap, padding, samplingrate);
+  /**
+   * Returns the magnitude spectra of all frames as a contiguous matrix: the magnitude of bin j in frame i is located at index i * {@link #getHeight()} + j. If the spectra have not been calculated yet, they will be upon invocation of the method.
+   * <p>
+   * The returned array is shared and must not be modified.
+   *
+   * @return Array of width x height magnitude values.
+   */
+  public double[] getMagnitudeMatrix() {
+    double[] matrix = this.magnitude;
+    if (matrix == null) {
+      matrix = new double[this.width * this.height];
+      final double normalization = this.normalization();
+      for (int i = 0; i < this.width; i++) {
+        Spectrum.magnitude(this.coefficients, i * this.stride, this.height, normalization, matrix, i * this.height);
+      }
+      this.magnitude = matrix;
+    }
+    return matrix;
   }
 
   /**
@@ -125,11 +196,7 @@ public void forward(double[] samples) {
    * @return List of power-spectra
    */
   public List<Spectrum> getPowerSpectrum() {
-    List<Spectrum> spectrum = new ArrayList<>(this.stft.size());
-    for (FFT fft : this.stft) {
-      spectrum.add(fft.getPowerSpectrum());
-    }
-    return spectrum;
+    return this.spectra(Spectrum.Type.POWER, this.getPowerMatrix());
   }
 
   /**
@@ -138,11 +205,7 @@ public List<Spectrum> getPowerSpectrum() {
    * @return List of magnitude-spectra
    */
   public List<Spectrum> getMagnitudeSpectrum() {
-    List<Spectrum> spectrum = new ArrayList<>(this.stft.size());
-    for (FFT fft : this.stft) {
-      spectrum.add(fft.getMagnitudeSpectrum());
-    }
-    return spectrum;
+    return this.spectra(Spectrum.Type.MAGNITUDE, this.getMagnitudeMatrix());
   }
 
   /**
@@ -177,7 +240,17 @@ public final float[] getTime() {
    * Getter for STFT.
    */
   public final List<FFT> getStft() {
-    return Collections.unmodifiableList(this.stft);
+    List<FFT> list = this.stft;
+    if (list == null) {
+      list = new ArrayList<>(this.width);
+      for (int i = 0; i < this.width; i++) {
+        final double[] frame = Arrays.copyOfRange(this.coefficients, i * this.stride, (i + 1) * this.stride);
+        list.add(new FFT(frame, this.windowsize, this.samplingrate, this.windowFunction));
+      }
+      list = Collections.unmodifiableList(list);
+      this.stft = list;
+    }
+    return list;
   }
 
   /**
@@ -216,7 +289,7 @@ public WindowFunction getWindowFunction() {
    * @return Width of the STFT.
    */
   public int getWidth() {
-    return this.stft.size();
+    return this.width;
   }
 
   /**
@@ -241,9 +314,48 @@ public float timeStepsize() {
    * @param filter FrequencyDomainFilter that should be applied.
    */
   public final void applyFilter(FrequencyDomainFilterInterface filter) {
-    for (FFT fft : this.getStft()) {
-      fft.applyFilter(filter);
+    final Complex[] values = new Complex[this.windowsize];
+    final int bins = this.windowsize / 2;
+    for (int i = 0; i < this.width; i++) {
+      final int offset = i * this.stride;
+      for (int k = 0; k < values.length; k++) {
+        final int bin = k <= bins ? k : this.windowsize - k;
+        final double im = this.coefficients[offset + 2 * bin + 1];
+        values[k] = new Complex(this.coefficients[offset + 2 * bin], k <= bins ? im : -im);
+      }
+      filter.filterInPlace(values);
+      for (int k = 0; k <= bins; k++) {
+        this.coefficients[offset + 2 * k] = values[k].getReal();
+        this.coefficients[offset + 2 * k + 1] = values[k].getImaginary();
+      }
     }
+    this.invalidate();
   }
 
+  /**
+   * Creates one {@link Spectrum} per frame from the provided matrix.
+   */
+  private List<Spectrum> spectra(Spectrum.Type type, double[] matrix) {
+    final List<Spectrum> spectra = new ArrayList<>(this.width);
+    for (int i = 0; i < this.width; i++) {
+      spectra.add(new Spectrum(type, Arrays.copyOfRange(matrix, i * this.height, (i + 1) * this.height), this.frequencies));
+    }
+    return spectra;
+  }
+
+  /**
+   * Normalization factor for the spectra, i.e. the window size times the normalization of the window function.
+   */
+  private double normalization() {
+    return this.windowsize * this.window.normalization();
+  }
+
+  /**
+   * Resets all data derived from the coefficients.
+   */
+  private void invalidate() {
+    this.power = null;
+    this.magnitude = null;
+    this.stft = null;
+  }
 }
@@ -0,0 +1,129 @@
+package org.vitrivr.cineast.core.util.dsp.fft;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
+
+/**
+ * Thread-safe memo for the {@link STFT}s of a single segment, keyed by window size, overlap, padding and window function.
+ * <p>
+ * Features that are extracted in parallel on the same segment usually request identical STFTs. The first caller computes the {@link STFT} while concurrent callers with the same parameters wait for and share that result. Window functions are identified by their class, which is sufficient since all {@link WindowFunction}s are stateless.
+ * <p>
+ * Cached {@link STFT}s are shared and must not be modified (e.g. using {@link STFT#applyFilter}) by callers.
+ */
+public final class STFTCache {
+
+  private final ConcurrentHashMap<Key, CompletableFuture<STFT>> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Mean samples the STFTs are calculated on; computed on first use.
+   */
+  private volatile double[] samples;
+
+  /**
+   * Returns the {@link STFT} for the given parameters, calculating it on the samples provided by {@code samples} if it has not been calculated before.
+   *
+   * @param windowsize   Size of the window used during STFT. Must be a power of two.
+   * @param overlap      Overlap in samples between two subsequent windows.
+   * @param padding      Zero-padding before and after the actual sample data.
+   * @param function     WindowFunction to apply before calculating the STFT.
+   * @param samplingrate Sampling rate of the samples.
+   * @param samples      Supplier of the (mean) samples; invoked at most once until the cache is cleared.
+   * @return Shared STFT instance.
+   */
+  public STFT get(int windowsize, int overlap, int padding, WindowFunction function, float samplingrate, Supplier<double[]> samples) {
+    final Key key = new Key(windowsize, overlap, padding, function.getClass());
+    final CompletableFuture<STFT> existing = this.entries.get(key);
+    if (existing != null) {
+      return await(existing);
+    }
+
+    final CompletableFuture<STFT> future = new CompletableFuture<>();
+    final CompletableFuture<STFT> raced = this.entries.putIfAbsent(key, future);
+    if (raced != null) {
+      return await(raced);
+    }
+
+    try {
+      final STFT stft = new STFT(windowsize, overlap, padding, function, samplingrate);
+      stft.forward(this.samples(samples));
+      future.complete(stft);
+      return stft;
+    } catch (RuntimeException | Error e) {
+      /* Don't cache failures; waiting callers receive the exception, later callers try again. */
+      this.entries.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+  }
+
+  /**
+   * Releases all cached {@link STFT}s and samples.
+   */
+  public void clear() {
+    this.entries.clear();
+    this.samples = null;
+  }
+
+  private double[] samples(Supplier<double[]> supplier) {
+    double[] samples = this.samples;
+    if (samples == null) {
+      synchronized (this) {
+        samples = this.samples;
+        if (samples == null) {
+          samples = supplier.get();
+          this.samples = samples;
+        }
+      }
+    }
+    return samples;
+  }
+
+  private static STFT await(CompletableFuture<STFT> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static final class Key {
+
+    private final int windowsize;
+    private final int overlap;
+    private final int padding;
+    private final Class<? extends WindowFunction> function;
+
+    private Key(int windowsize, int overlap, int padding, Class<? extends WindowFunction> function) {
+      this.windowsize = windowsize;
+      this.overlap = overlap;
+      this.padding = padding;
+      this.function = function;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return windowsize == key.windowsize && overlap == key.overlap && padding == key.padding && function == key.function;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(windowsize, overlap, padding, function);
+    }
+  }
+}
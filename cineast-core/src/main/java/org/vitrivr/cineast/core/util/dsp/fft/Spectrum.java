@@ -93,6 +93,50 @@ public static Spectrum createMagnitudeSpectrum(Complex[] data, float samplingrat
     return new Spectrum(Type.MAGNITUDE, magnitudeSpectrum, FFTUtil.binCenterFrequencies(data.length, samplingrate));
   }
 
+  /**
+   * Calculates the power spectrum for interleaved FFT coefficients (as produced by {@link RealFFT}) and writes it into the target array.
+   *
+   * @param coefficients  Array holding the interleaved coefficients.
+   * @param offset        Index of the real part of bin 0.
+   * @param bins          Number of bins to calculate, i.e. half the size of the FFT.
+   * @param normalization Normalization factor, i.e. the size of the FFT times the normalization of the window function.
+   * @param target        Array to write the spectrum to.
+   * @param targetOffset  Index of bin 0 in the target array.
+   */
+  static void power(double[] coefficients, int offset, int bins, double normalization, double[] target, int targetOffset) {
+    if (bins == 0) {
+      return;
+    }
+    target[targetOffset] = (coefficients[offset] * coefficients[offset] + coefficients[offset + 1] * coefficients[offset + 1]) / normalization;
+    for (int i = 1; i < bins; i++) {
+      final double re = coefficients[offset + 2 * i];
+      final double im = coefficients[offset + 2 * i + 1];
+      target[targetOffset + i] = (2 * (re * re + im * im)) / normalization;
+    }
+  }
+
+  /**
+   * Calculates the magnitude spectrum for interleaved FFT coefficients (as produced by {@link RealFFT}) and writes it into the target array.
+   *
+   * @param coefficients  Array holding the interleaved coefficients.
+   * @param offset        Index of the real part of bin 0.
+   * @param bins          Number of bins to calculate, i.e. half the size of the FFT.
+   * @param normalization Normalization factor, i.e. the size of the FFT times the normalization of the window function.
+   * @param target        Array to write the spectrum to.
+   * @param targetOffset  Index of bin 0 in the target array.
+   */
+  static void magnitude(double[] coefficients, int offset, int bins, double normalization, double[] target, int targetOffset) {
+    if (bins == 0) {
+      return;
+    }
+    target[targetOffset] = Math.sqrt(coefficients[offset] * coefficients[offset] + coefficients[offset + 1] * coefficients[offset + 1]) / normalization;
+    for (int i = 1; i < bins; i++) {
+      final double re = coefficients[offset + 2 * i];
+      final double im = coefficients[offset + 2 * i + 1];
+      target[targetOffset + i] = (2 * Math.sqrt(re * re + im * im)) / normalization;
+    }
+  }
+
   /**
    * Getter for the type of spectrum.
    *
@@ -211,6 +255,15 @@ public double[] array() {
     return this.spectrum;
   }
 
+  /**
+   * Returns the float array that holds the frequency labels.
+   *
+   * @return Float array with frequency labels.
+   */
+  public float[] frequencies() {
+    return this.frequencies;
+  }
+
   /**
    * Returns a reduced version of the spectrum, limiting the view to the specified frequency-range.
    *
@@ -0,0 +1,80 @@
+package org.vitrivr.cineast.core.util.dsp.fft.windows;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed coefficients and normalization factor of a {@link WindowFunction} for a fixed window length.
+ * <p>
+ * Coefficients are cached per window function class and length, which is sufficient since all {@link WindowFunction}s are stateless. Window functions implemented as lambdas are not cached.
+ */
+public final class WindowCoefficients {
+
+  private static final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Integer, WindowCoefficients>> CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Values of the window function for positions 0 to length - 1.
+   */
+  private final double[] values;
+
+  /**
+   * Normalization factor as returned by {@link WindowFunction#normalization(int)}.
+   */
+  private final double normalization;
+
+  private WindowCoefficients(WindowFunction function, int length) {
+    this.values = function.values(length);
+    this.normalization = function.normalization(length);
+  }
+
+  /**
+   * Returns the coefficients of the provided {@link WindowFunction} for the given length.
+   *
+   * @param function WindowFunction to obtain the coefficients for.
+   * @param length   Size of the window.
+   * @return Shared WindowCoefficients instance.
+   */
+  public static WindowCoefficients of(WindowFunction function, int length) {
+    final Class<?> type = function.getClass();
+    if (type.isSynthetic()) {
+      return new WindowCoefficients(function, length);
+    }
+    return CACHE.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).computeIfAbsent(length, l -> new WindowCoefficients(function, l));
+  }
+
+  /**
+   * Returns the value of the window function at position i.
+   */
+  public double value(int i) {
+    return this.values[i];
+  }
+
+  /**
+   * Getter for the normalization factor of the window function.
+   */
+  public double normalization() {
+    return this.normalization;
+  }
+
+  /**
+   * Getter for the size of the window.
+   */
+  public int length() {
+    return this.values.length;
+  }
+
+  /**
+   * Multiplies {@code length} samples, starting at {@code sourceOffset}, with the window coefficients starting at {@code position} and writes the result into the target array.
+   *
+   * @param source       Array to read the samples from.
+   * @param sourceOffset Index of the first sample.
+   * @param target       Array to write the windowed samples to.
+   * @param targetOffset Index of the first windowed sample in the target array.
+   * @param position     Position within the window of the first sample.
+   * @param length       Number of samples to process.
+   */
+  public void apply(double[] source, int sourceOffset, double[] target, int targetOffset, int position, int length) {
+    for (int i = 0; i < length; i++) {
+      target[targetOffset + i] = source[sourceOffset + i] * this.values[position + i];
+    }
+  }
+}
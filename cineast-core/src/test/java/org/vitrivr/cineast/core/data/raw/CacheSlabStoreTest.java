@@ -0,0 +1,188 @@
+package org.vitrivr.cineast.core.data.raw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.CacheConfig.Policy;
+import org.vitrivr.cineast.core.data.raw.bytes.ByteData;
+import org.vitrivr.cineast.core.data.raw.bytes.CachedByteData;
+import org.vitrivr.cineast.core.data.raw.images.CachedMultiImage;
+import org.vitrivr.cineast.core.data.raw.images.MultiImage;
+
+public class CacheSlabStoreTest {
+
+  private static final int SLAB = 16 * CacheSlabStore.PAGE_SIZE;
+
+  private Path directory;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    this.directory = Files.createTempDirectory("cineast-cache-test");
+  }
+
+  @AfterEach
+  public void teardown() throws IOException {
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  @DisplayName("Released slots are reused and split")
+  public void testReuse() throws IOException {
+    final CacheSlabStore store = new CacheSlabStore(this.directory, SLAB, 2 * SLAB);
+    final CacheSlabStore.Slot first = store.allocate(3 * CacheSlabStore.PAGE_SIZE);
+    assertEquals(3 * CacheSlabStore.PAGE_SIZE, first.capacity());
+    first.buffer().putInt(0, 42);
+    first.release();
+    first.release();
+    assertEquals(0, store.getUsedBytes());
+
+    final CacheSlabStore.Slot second = store.allocate(1);
+    assertEquals(CacheSlabStore.PAGE_SIZE, second.capacity());
+    assertEquals(42, second.buffer().getInt(0));
+    final CacheSlabStore.Slot third = store.allocate(2 * CacheSlabStore.PAGE_SIZE);
+    assertEquals(3 * CacheSlabStore.PAGE_SIZE, store.getUsedBytes());
+    assertEquals(1, store.getSlabCount());
+    assertNotNull(third);
+  }
+
+  @Test
+  @DisplayName("The store does not grow beyond its maximum size")
+  public void testBound() throws IOException {
+    final CacheSlabStore store = new CacheSlabStore(this.directory, SLAB, 2 * SLAB);
+    assertNotNull(store.allocate(SLAB));
+    assertNotNull(store.allocate(SLAB / 2));
+    assertNotNull(store.allocate(SLAB / 2));
+    assertNull(store.allocate(1));
+    assertEquals(2, store.getSlabCount());
+  }
+
+  @Test
+  @DisplayName("Adjacent released slots are merged")
+  public void testCoalesce() throws IOException {
+    final CacheSlabStore store = new CacheSlabStore(this.directory, SLAB, SLAB);
+    final CacheSlabStore.Slot first = store.allocate(4 * CacheSlabStore.PAGE_SIZE);
+    final CacheSlabStore.Slot second = store.allocate(4 * CacheSlabStore.PAGE_SIZE);
+    final CacheSlabStore.Slot third = store.allocate(4 * CacheSlabStore.PAGE_SIZE);
+    assertNotNull(store.allocate(4 * CacheSlabStore.PAGE_SIZE));
+    assertEquals(0, store.getFreeRegionCount());
+
+    first.release();
+    third.release();
+    assertEquals(2, store.getFreeRegionCount());
+    second.release();
+    assertEquals(1, store.getFreeRegionCount());
+    assertNotNull(store.allocate(12 * CacheSlabStore.PAGE_SIZE));
+    assertEquals(0, store.getFreeRegionCount());
+    assertEquals(1, store.getSlabCount());
+  }
+
+  @Test
+  @DisplayName("Slab files do not outlive the store and stale ones are deleted")
+  public void testSlabFiles() throws IOException {
+    Files.createFile(this.directory.resolve("slab_0.bin"));
+    final CacheSlabStore store = new CacheSlabStore(this.directory, SLAB, 2 * SLAB);
+    assertNotNull(store.allocate(SLAB));
+    assertNotNull(store.allocate(SLAB));
+    store.close();
+    try (Stream<Path> files = Files.list(this.directory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  @DisplayName("Clearing cached data releases its slot")
+  public void testClear() {
+    final CacheConfig config = new CacheConfig(Policy.DISK_CACHE.name(), this.directory.toString());
+    final CachedDataFactory factory = new CachedDataFactory(config);
+
+    final MultiImage image = factory.newMultiImage(40, 30, new int[40 * 30]);
+    final IntBuffer colors = image.getColorBuffer();
+    assertTrue(factory.store().getUsedBytes() > 0);
+    image.clear();
+    image.clear();
+    assertEquals(0, factory.store().getUsedBytes());
+    assertThrows(IllegalStateException.class, image::getColors);
+
+    final int[] white = new int[40 * 30];
+    Arrays.fill(white, -1);
+    final MultiImage other = factory.newMultiImage(40, 30, white);
+    assertEquals(0, colors.get(0));
+    other.clear();
+  }
+
+  @Test
+  @DisplayName("Cached data and images can be read back from the store")
+  public void testCachedData() {
+    final CacheConfig config = new CacheConfig(Policy.DISK_CACHE.name(), this.directory.toString());
+    final CachedDataFactory factory = new CachedDataFactory(config);
+
+    final ByteData data = factory.newByteData(new byte[]{1, 2, 3});
+    assertTrue(data instanceof CachedByteData);
+    assertArrayEquals(new byte[]{1, 2, 3}, data.array());
+    assertEquals(3, data.buffer().remaining());
+
+    final int[] colors = new int[40 * 30];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = 0xFF000000 | i;
+    }
+    final MultiImage image = factory.newMultiImage(40, 30, colors);
+    assertTrue(image instanceof CachedMultiImage);
+    assertArrayEquals(colors, image.getColors());
+    assertEquals(colors.length, image.getColorBuffer().remaining());
+    assertEquals(colors[7], image.getColorBuffer().get(7));
+    assertArrayEquals(colors, image.getThumbnailColors());
+    final BufferedImage bimg = image.getBufferedImage();
+    assertEquals(colors[41], bimg.getRGB(1, 1));
+    assertEquals(1, factory.store().getSlabCount());
+  }
+
+  @Test
+  @DisplayName("Cached images can be read in place")
+  public void testWithColors() {
+    final CacheConfig config = new CacheConfig(Policy.DISK_CACHE.name(), this.directory.toString());
+    final CachedDataFactory factory = new CachedDataFactory(config);
+
+    final int[] colors = new int[400 * 300];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = 0xFF000000 | i;
+    }
+    final MultiImage image = factory.newMultiImage(400, 300, colors);
+    assertTrue(image instanceof CachedMultiImage);
+    image.withColors(buffer -> {
+      assertTrue(buffer.isReadOnly());
+      assertEquals(colors.length, buffer.remaining());
+      assertEquals(colors[12345], buffer.get(buffer.position() + 12345));
+    });
+    final int[] thumbnail = image.getThumbnailColors();
+    assertTrue(thumbnail.length < colors.length);
+    image.withThumbnailColors(buffer -> {
+      final int[] read = new int[buffer.remaining()];
+      buffer.get(read);
+      assertArrayEquals(thumbnail, read);
+    });
+
+    image.clear();
+    assertThrows(IllegalStateException.class, () -> image.withColors(buffer -> {
+    }));
+  }
+}
@@ -0,0 +1,137 @@
+package org.vitrivr.cineast.core.data.segments;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.data.frames.VideoDescriptor;
+import org.vitrivr.cineast.core.data.frames.VideoFrame;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.descriptor.AvgImg;
+import org.vitrivr.cineast.core.descriptor.MedianImg;
+import org.vitrivr.cineast.core.descriptor.MostRepresentative;
+import org.vitrivr.cineast.core.descriptor.StreamingMedianImg;
+
+public class FrameRetentionTest {
+
+  private static final int WIDTH = 16;
+
+  private static final int HEIGHT = 8;
+
+  private static final int FRAMES = 51;
+
+  private static List<VideoFrame> randomFrames() {
+    final SplittableRandom random = new SplittableRandom(7);
+    final VideoDescriptor descriptor = new VideoDescriptor(25f, FRAMES * 40L, WIDTH, HEIGHT);
+    final List<VideoFrame> frames = new ArrayList<>(FRAMES);
+    for (int i = 0; i < FRAMES; i++) {
+      final int[] colors = new int[WIDTH * HEIGHT];
+      for (int j = 0; j < colors.length; j++) {
+        colors[j] = ReadableRGBContainer.toIntColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+      frames.add(new VideoFrame(i, i * 40L, CachedDataFactory.getDefault().newInMemoryMultiImage(WIDTH, HEIGHT, colors), descriptor));
+    }
+    return frames;
+  }
+
+  private static VideoSegment segment(VideoSegment segment, List<VideoFrame> frames) {
+    for (VideoFrame frame : frames) {
+      assertTrue(segment.addVideoFrame(frame));
+    }
+    return segment;
+  }
+
+  @Test
+  @DisplayName("Segments retain all frames and compute their aggregates exactly by default")
+  public void testExactByDefault() {
+    final List<VideoFrame> frames = randomFrames();
+    final VideoSegment segment = segment(new VideoSegment(), frames);
+    assertEquals(frames, segment.getVideoFrames());
+    assertArrayEquals(AvgImg.getAvg(frames).getColors(), segment.getAvgImg().getColors());
+    assertArrayEquals(MedianImg.getMedian(frames).getColors(), segment.getMedianImg().getColors());
+    assertSame(MostRepresentative.getMostRepresentative(segment.getAvgImg(), frames), segment.getMostRepresentativeFrame());
+    segment.clear();
+  }
+
+  @Test
+  @DisplayName("Without retained frames, the average is exact and the median falls back to the most representative frame")
+  public void testAggregates() {
+    final List<VideoFrame> frames = randomFrames();
+    final VideoSegment segment = segment(new VideoSegment(FrameRetention.AGGREGATES), frames);
+    assertTrue(segment.getVideoFrames().isEmpty());
+    assertEquals(FRAMES, segment.getNumberOfFrames());
+    assertArrayEquals(AvgImg.getAvg(frames).getColors(), segment.getAvgImg().getColors());
+    assertTrue(frames.contains(segment.getMostRepresentativeFrame()));
+    assertSame(segment.getMostRepresentativeFrame().getImage(), segment.getMedianImg());
+    segment.clear();
+  }
+
+  @Test
+  @DisplayName("The streamed median lies within one bin of the exact median")
+  public void testMedian() {
+    final List<VideoFrame> frames = randomFrames();
+    final VideoSegment segment = segment(new VideoSegment(FrameRetention.MEDIAN), frames);
+    assertTrue(segment.getVideoFrames().isEmpty());
+    final int[] exact = MedianImg.getMedian(frames).getColors();
+    final int[] streamed = segment.getMedianImg().getColors();
+    for (int i = 0; i < exact.length; i++) {
+      assertTrue(Math.abs(ReadableRGBContainer.getRed(exact[i]) - ReadableRGBContainer.getRed(streamed[i])) <= 256 / StreamingMedianImg.BINS, "pixel " + i);
+    }
+  }
+
+  @Test
+  @DisplayName("Decimated segments retain every n-th frame and stream the median")
+  public void testDecimated() {
+    final List<VideoFrame> frames = randomFrames();
+    final VideoSegment segment = segment(new VideoSegment(FrameRetention.DECIMATED), frames);
+    assertEquals((FRAMES + FrameRetention.DECIMATION - 1) / FrameRetention.DECIMATION, segment.getVideoFrames().size());
+    for (VideoFrame frame : segment.getVideoFrames()) {
+      assertSame(frames.get(frame.getId()), frame);
+      assertEquals(0, frame.getId() % FrameRetention.DECIMATION);
+    }
+    assertArrayEquals(AvgImg.getAvg(frames).getColors(), segment.getAvgImg().getColors());
+    assertTrue(frames.contains(segment.getMostRepresentativeFrame()));
+    segment.getMedianImg();
+    segment.clear();
+  }
+
+  @Test
+  @DisplayName("Thumbnail segments retain a thumbnail of every frame")
+  public void testThumbnails() {
+    final List<VideoFrame> frames = randomFrames();
+    final VideoSegment segment = segment(new VideoSegment(FrameRetention.THUMBNAILS), frames);
+    assertEquals(FRAMES, segment.getVideoFrames().size());
+    for (int i = 0; i < FRAMES; i++) {
+      final VideoFrame thumbnail = segment.getVideoFrames().get(i);
+      assertEquals(i, thumbnail.getId());
+      assertArrayEquals(frames.get(i).getImage().getThumbnailColors(), thumbnail.getImage().getColors());
+    }
+    assertArrayEquals(AvgImg.getAvg(frames).getColors(), segment.getAvgImg().getColors());
+    segment.getMedianImg();
+    segment.getMostRepresentativeFrame();
+    segment.clear();
+  }
+
+  @Test
+  @DisplayName("Joining the retentions needed by several extractors yields the least sufficient one")
+  public void testJoin() {
+    assertEquals(FrameRetention.MEDIAN, FrameRetention.AGGREGATES.join(FrameRetention.MEDIAN));
+    assertEquals(FrameRetention.DECIMATED, FrameRetention.MEDIAN.join(FrameRetention.DECIMATED));
+    assertEquals(FrameRetention.THUMBNAILS, FrameRetention.THUMBNAILS.join(FrameRetention.AGGREGATES));
+    assertEquals(FrameRetention.ALL, FrameRetention.DECIMATED.join(FrameRetention.THUMBNAILS));
+    assertEquals(FrameRetention.ALL, FrameRetention.MEDIAN.join(FrameRetention.ALL));
+    for (FrameRetention retention : FrameRetention.values()) {
+      assertTrue(FrameRetention.ALL.satisfies(retention));
+      assertEquals(retention, retention.join(FrameRetention.AGGREGATES));
+    }
+    assertFalse(FrameRetention.MEDIAN.satisfies(FrameRetention.THUMBNAILS));
+  }
+}
@@ -281,6 +281,23 @@ public void testBetweenANDInQuery() {
     Assertions.assertEquals(2, result.size());
   }
 
+  @Test
+  @DisplayName("test range query within a group")
+  public void testRangeQuery() {
+    selector.open(testTableName);
+    int idToCheck = TABLE_CARD / 2;
+    final PrimitiveTypeProvider group = PrimitiveTypeProvider.fromObject("string-data-" + idToCheck);
+
+    // the single row of the group lies within the range
+    List<Map<String, PrimitiveTypeProvider>> result = selector.getRowsInRange(DATA_COL_NAME_1, group, DATA_COL_NAME_3, PrimitiveTypeProvider.fromObject(idToCheck + TABLE_CARD), PrimitiveTypeProvider.fromObject(2 * TABLE_CARD), -1, null);
+    Assertions.assertEquals(1, result.size());
+    Assertions.assertEquals(idToCheck, result.get(0).get(ID_COL_NAME).getInt());
+
+    // rows of other groups are not returned, even though they lie within the range
+    result = selector.getRowsInRange(DATA_COL_NAME_1, group, DATA_COL_NAME_3, PrimitiveTypeProvider.fromObject(0), PrimitiveTypeProvider.fromObject(idToCheck + TABLE_CARD - 1), -1, null);
+    Assertions.assertEquals(0, result.size());
+  }
+
   private boolean hasItem(List<String> list, String s) {
     return list.stream().anyMatch(e -> e.equals(s));
   }
@@ -0,0 +1,120 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ExistenceIndexTest {
+
+  private static final Set<String> EXISTING = Set.of("v_video1_1", "v_video1_2", "v_video1_10", "v_video1_007", "v_video1_frame", "v_video10_3", "i_image_1", "standalone");
+
+  private final AtomicInteger bulkQueries = new AtomicInteger();
+
+  private final AtomicInteger singleQueries = new AtomicInteger();
+
+  private ExistenceIndex index() {
+    return new ExistenceIndex(prefix -> {
+      this.bulkQueries.incrementAndGet();
+      return EXISTING.stream().filter(id -> id.startsWith(prefix)).collect(Collectors.toList());
+    }, id -> {
+      this.singleQueries.incrementAndGet();
+      return EXISTING.contains(id);
+    });
+  }
+
+  @Test
+  @DisplayName("Segments of an object are answered from one bulk query")
+  public void testBulkLoad() {
+    final ExistenceIndex index = index();
+    assertTrue(index.contains("v_video1_1"));
+    assertTrue(index.contains("v_video1_2"));
+    assertTrue(index.contains("v_video1_10"));
+    assertFalse(index.contains("v_video1_3"));
+    assertFalse(index.contains("v_video1_01"));
+    assertTrue(index.contains("v_video1_007"));
+    assertTrue(index.contains("v_video1_frame"));
+    assertEquals(1, this.bulkQueries.get());
+
+    assertTrue(index.contains("v_video10_3"));
+    assertFalse(index.contains("v_video10_1"));
+    assertFalse(index.contains("v_video2_1"));
+    assertEquals(3, this.bulkQueries.get());
+    assertEquals(0, this.singleQueries.get());
+  }
+
+  @Test
+  @DisplayName("Ids outside the segment id scheme are checked individually")
+  public void testFallback() {
+    final ExistenceIndex index = index();
+    assertTrue(index.contains("standalone"));
+    assertFalse(index.contains("other_"));
+    assertEquals(0, this.bulkQueries.get());
+    assertEquals(2, this.singleQueries.get());
+
+    final ExistenceIndex failing = new ExistenceIndex(prefix -> {
+      throw new IllegalStateException("unavailable");
+    }, EXISTING::contains);
+    assertTrue(failing.contains("v_video1_1"));
+    assertFalse(failing.contains("v_video1_3"));
+  }
+
+  @Test
+  @DisplayName("Ids that do not start with the requested prefix are ignored")
+  public void testForeignIds() {
+    /* An unescaped LIKE pattern would also match v_video1X5 for the prefix v_video1_. */
+    final ExistenceIndex index = new ExistenceIndex(prefix -> List.of(prefix + "1", "v_video1X5", "v_vid", "other"), id -> false);
+    assertTrue(index.contains("v_video1_1"));
+    assertFalse(index.contains("v_video1_5"));
+    assertFalse(index.contains("v_video1_her"));
+  }
+
+  @Test
+  @DisplayName("Concurrent loads of an object retain it once")
+  public void testConcurrentLoad() throws Exception {
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    final AtomicInteger loadsOfFirst = new AtomicInteger();
+    final ExistenceIndex index = new ExistenceIndex(prefix -> {
+      if (prefix.equals("first_")) {
+        if (loadsOfFirst.incrementAndGet() <= 2) {
+          try {
+            barrier.await(1, TimeUnit.SECONDS);
+          } catch (Exception e) {
+            /* Loads did not overlap. */
+          }
+        }
+      }
+      return List.of(prefix + "1");
+    }, id -> false);
+
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      final Thread thread = new Thread(() -> index.contains("first_1"));
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    /* Evicts the first load of "first" and reloads it; the reloaded index must outlive the next eviction. */
+    for (int i = 0; i < 32; i++) {
+      assertTrue(index.contains("object" + i + "_1"));
+    }
+    final int loads = loadsOfFirst.get();
+    assertTrue(index.contains("first_1"));
+    assertEquals(loads + 1, loadsOfFirst.get());
+    assertTrue(index.contains("object32_1"));
+    assertTrue(index.contains("first_1"));
+    assertEquals(loads + 1, loadsOfFirst.get());
+  }
+}
@@ -0,0 +1,96 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+
+public class HammingIndexTest {
+
+  private static final int SIZE = 20_000;
+
+  /**
+   * Random hashes, a third of which are near-duplicates of an earlier hash with up to 6 flipped bits.
+   */
+  private static long[] hashes(SplittableRandom random) {
+    final long[] hashes = new long[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      if (i > 0 && i % 3 == 0) {
+        long hash = hashes[random.nextInt(i)];
+        for (int flips = random.nextInt(7); flips > 0; flips--) {
+          hash ^= 1L << random.nextInt(64);
+        }
+        hashes[i] = hash;
+      } else {
+        hashes[i] = random.nextLong();
+      }
+    }
+    return hashes;
+  }
+
+  @Test
+  @DisplayName("Radius queries match a linear scan")
+  public void testRadius() {
+    final SplittableRandom random = new SplittableRandom(42);
+    final long[] hashes = hashes(random);
+    final HammingIndex index = HammingIndex.of(IntStream.range(0, SIZE).toArray(), hashes);
+    assertEquals(SIZE, index.size());
+    for (int radius : new int[]{0, 3, 8, 13, 40}) {
+      final long query = hashes[random.nextInt(SIZE)];
+      final int[] expected = IntStream.range(0, SIZE).filter(i -> Long.bitCount(query ^ hashes[i]) <= radius).toArray();
+      assertArrayEquals(expected, index.radius(query, radius));
+    }
+    assertEquals(0, index.radius(0L, -1).length);
+  }
+
+  @Test
+  @DisplayName("kNN queries match a linear scan")
+  public void testNearest() {
+    final SplittableRandom random = new SplittableRandom(7);
+    final long[] hashes = hashes(random);
+    final int[] rows = IntStream.range(0, SIZE).map(i -> 2 * i).toArray();
+    final HammingIndex index = HammingIndex.of(rows, hashes);
+    for (int k : new int[]{1, 10, 500}) {
+      for (int radius : new int[]{4, 12, HammingIndex.BITS}) {
+        final long query = random.nextBoolean() ? hashes[random.nextInt(SIZE)] : random.nextLong();
+        final FixedSizeDistanceHeap expected = new FixedSizeDistanceHeap(k);
+        for (int i = 0; i < SIZE; i++) {
+          final int distance = Long.bitCount(query ^ hashes[i]);
+          if (distance <= radius) {
+            expected.offer(distance, rows[i]);
+          }
+        }
+        expected.sort();
+        final FixedSizeDistanceHeap actual = index.nearest(query, k, radius);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.index(i), actual.index(i));
+          assertEquals(expected.distance(i), actual.distance(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Bit sets are packed bit by bit")
+  public void testPack() {
+    final BitSet bits = new BitSet(64);
+    bits.set(0);
+    bits.set(5);
+    bits.set(63);
+    assertTrue(HammingIndex.isHash(bits));
+    assertFalse(HammingIndex.isHash(new BitSet(128)));
+    assertFalse(HammingIndex.isHash(new float[64]));
+    final long hash = HammingIndex.pack(bits);
+    assertEquals(1L | 1L << 5 | 1L << 63, hash);
+    assertEquals(0, HammingIndex.unpack(hash).xorcardinality(bits));
+    assertEquals(1, HammingIndex.distance(hash, hash ^ 1L << 17));
+  }
+}
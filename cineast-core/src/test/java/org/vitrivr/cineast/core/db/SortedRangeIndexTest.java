@@ -0,0 +1,51 @@
+package org.vitrivr.cineast.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SortedRangeIndexTest {
+
+  private record Row(String group, double value) {
+
+  }
+
+  private static SortedRangeIndex<Row> index(List<Row> rows) {
+    return SortedRangeIndex.of(rows, Row::group, Row::value);
+  }
+
+  @Test
+  @DisplayName("Ranges are inclusive and ordered by value")
+  public void testRange() {
+    final List<Row> rows = new ArrayList<>();
+    for (int i = 100; i > 0; i--) {
+      rows.add(new Row(i % 2 == 0 ? "even" : "odd", i));
+    }
+    final SortedRangeIndex<Row> index = index(rows);
+    assertEquals(2, index.groups());
+    assertEquals(List.of(new Row("even", 10), new Row("even", 12), new Row("even", 14)), index.range("even", 10, 14, -1));
+    assertEquals(List.of(new Row("odd", 11), new Row("odd", 13)), index.range("odd", 10, 14, 0));
+  }
+
+  @Test
+  @DisplayName("Limit cuts off the highest values")
+  public void testLimit() {
+    final SortedRangeIndex<Row> index = index(List.of(new Row("a", 3), new Row("a", 1), new Row("a", 2)));
+    assertEquals(List.of(new Row("a", 1), new Row("a", 2)), index.range("a", 0, 10, 2));
+  }
+
+  @Test
+  @DisplayName("Unknown groups, empty ranges and unindexable rows yield no results")
+  public void testEmpty() {
+    final SortedRangeIndex<Row> index = index(List.of(new Row("a", 1), new Row(null, 1), new Row("b", Double.NaN)));
+    assertEquals(1, index.groups());
+    assertTrue(index.range("b", Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, -1).isEmpty());
+    assertTrue(index.range("c", 0, 10, -1).isEmpty());
+    assertTrue(index.range("a", 2, 10, -1).isEmpty());
+    assertTrue(index.range("a", 1, 0, -1).isEmpty());
+  }
+}
@@ -0,0 +1,19 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import org.vitrivr.cineast.core.db.DBBooleanIntegrationTest;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class BinaryBooleanIntegrationTest extends DBBooleanIntegrationTest<PersistentTuple> {
+
+  private final BinaryIntegrationDBProvider _provider = new BinaryIntegrationDBProvider();
+
+  @Override
+  protected void finishSetup() {
+  }
+
+  @Override
+  protected IntegrationDBProvider<PersistentTuple> provider() {
+    return _provider;
+  }
+}
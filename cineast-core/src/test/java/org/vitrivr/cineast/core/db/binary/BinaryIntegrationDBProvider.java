@@ -0,0 +1,52 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistencyWriter;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+
+public class BinaryIntegrationDBProvider implements IntegrationDBProvider<PersistentTuple> {
+
+  /**
+   * A fresh {@link BinaryStore} in a temporary directory per provider, so that tests don't interfere with each other.
+   */
+  private final BinaryStore store;
+
+  public BinaryIntegrationDBProvider() {
+    try {
+      this.store = new BinaryStore(Files.createTempDirectory("cineast-binary-test"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public PersistencyWriter<PersistentTuple> getPersistencyWriter() {
+    return new BinaryWriter(this.store);
+  }
+
+  @Override
+  public DBSelector getSelector() {
+    return new BinarySelector(this.store);
+  }
+
+  @Override
+  public EntityCreator getEntityCreator() {
+    return new BinaryEntityCreator(this.store);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (Stream<Path> files = Files.walk(this.store.getDirectory())) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import org.vitrivr.cineast.core.db.DBIntegrationTest;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class BinaryIntegrationTest extends DBIntegrationTest<PersistentTuple> {
+
+  private final BinaryIntegrationDBProvider _provider = new BinaryIntegrationDBProvider();
+
+  @Override
+  protected void finishSetup() {
+    //no-op
+  }
+
+  @Override
+  protected IntegrationDBProvider<PersistentTuple> provider() {
+    return _provider;
+  }
+}
@@ -0,0 +1,161 @@
+package org.vitrivr.cineast.core.db.binary;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
+import org.vitrivr.cineast.core.data.FixedSizeDistanceHeap;
+import org.vitrivr.cineast.core.db.binary.BinaryStore.Entity;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.util.distance.FloatBlockDistance;
+
+public class BinaryStoreTest {
+
+  private static final int DIMENSION = 16;
+
+  private Path directory;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    this.directory = Files.createTempDirectory("cineast-binary-test");
+  }
+
+  @AfterEach
+  public void teardown() throws IOException {
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
+  @Test
+  @DisplayName("Entities are persisted")
+  public void testReload() {
+    final Entity entity = new BinaryStore(this.directory).createEntity("test", "id", "feature", "text", "number").orElseThrow();
+    assertTrue(entity.append(List.of(new Object[]{"a", new float[]{1, 2}, "first", 1}, new Object[]{"b", null, null, 2L})));
+    assertTrue(entity.append(Collections.singletonList(new Object[]{"a", new float[]{3, 4}, "third", null})));
+    assertFalse(entity.append(Collections.singletonList(new Object[]{"c", new float[]{1, 2, 3}, null, null})));
+
+    final Entity reloaded = new BinaryStore(this.directory).getEntity("test").orElseThrow();
+    assertEquals(3, reloaded.size());
+    assertArrayEquals(new int[]{0, 2}, reloaded.rowsForKeys(List.of("a")));
+    assertEquals("b", reloaded.key(1));
+    assertArrayEquals(new float[]{3, 4}, (float[]) reloaded.values(new int[]{2}, 1).get(0));
+    assertNull(reloaded.values(new int[]{1}, 1).get(0));
+    assertEquals(List.of("first", "third"), reloaded.values(reloaded.filter(2, v -> v != null), 2));
+    assertEquals(2L, reloaded.values(new int[]{1}, 3).get(0));
+  }
+
+  @Test
+  @DisplayName("Incomplete rows are removed on load")
+  public void testIncompleteRows() throws IOException {
+    final Entity entity = new BinaryStore(this.directory).createEntity("test", "id", "feature").orElseThrow();
+    assertTrue(entity.append(List.of(new Object[]{"a", new float[]{1, 2}}, new Object[]{"b", new float[]{3, 4}})));
+    Files.write(this.directory.resolve("test").resolve("1.vec"), new byte[12], StandardOpenOption.APPEND);
+
+    final Entity reloaded = new BinaryStore(this.directory).getEntity("test").orElseThrow();
+    assertEquals(2, reloaded.size());
+    assertTrue(reloaded.append(Collections.singletonList(new Object[]{"c", new float[]{5, 6}})));
+    assertArrayEquals(new float[]{5, 6}, (float[]) reloaded.values(new int[]{2}, 1).get(0));
+    assertEquals(3, new BinaryStore(this.directory).getEntity("test").orElseThrow().size());
+  }
+
+  @Test
+  @DisplayName("kNN matches the in-memory store")
+  public void testNearestNeighbours() {
+    final Entity entity = new BinaryStore(this.directory).createEntity("test", "id", "feature").orElseThrow();
+    final InMemoryStore.Entity reference = new InMemoryStore().createEntity("test", "id", "feature").orElseThrow();
+    final SplittableRandom random = new SplittableRandom(7);
+    for (int batch = 0; batch < 5; batch++) {
+      final List<Object[]> rows = new ArrayList<>();
+      for (int i = 0; i < 5000; i++) {
+        final float[] vector = new float[DIMENSION];
+        for (int j = 0; j < DIMENSION; j++) {
+          vector[j] = (float) random.nextDouble();
+        }
+        rows.add(new Object[]{"s" + (batch * 5000 + i), i % 100 == 0 ? null : vector});
+      }
+      assertTrue(entity.append(rows));
+      assertTrue(reference.append(rows));
+    }
+
+    final float[] query = new float[DIMENSION];
+    final QueryConfig config = new QueryConfig("test", new ArrayList<>());
+    config.setDistance(Distance.euclidean);
+    final FloatBlockDistance distance = FloatBlockDistance.fromQueryConfig(query, config);
+    final FixedSizeDistanceHeap expected = reference.nearestNeighbours(1, 50, distance, null);
+    final FixedSizeDistanceHeap actual = entity.nearestNeighbours(1, 50, distance, null);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.index(i), actual.index(i));
+      assertEquals(expected.distance(i), actual.distance(i), 1e-6);
+    }
+
+    final int[] candidates = entity.rowsForKeys(Collections.singletonList("s42"));
+    assertEquals(42, entity.nearestNeighbours(1, 1, distance, candidates).index(0));
+  }
+
+  @Test
+  @DisplayName("JSON files are converted")
+  public void testConvert() throws IOException {
+    final Path json = this.directory.resolve("features_test.json");
+    Files.write(json, List.of("[", "{\"id\":\"a\",\"feature\":[1.0,2.0]},", "{\"id\":\"b\",\"feature\":[3.0,4.0]}", "]"), StandardCharsets.UTF_8);
+    final BinaryStore store = new BinaryStore(this.directory.resolve("binary"));
+    assertEquals(2, JsonToBinaryConverter.convert(this.directory, store));
+
+    final Entity entity = store.getEntity("features_test").orElseThrow();
+    assertArrayEquals(new String[]{"id", "feature"}, entity.getColumns());
+    assertEquals(2, entity.size());
+    assertArrayEquals(new float[]{3, 4}, (float[]) entity.values(entity.rowsForKeys(List.of("b")), 1).get(0));
+  }
+
+  @Test
+  @DisplayName("Unique entities reject keys they already hold, also after reloading")
+  public void testUnique() {
+    final Entity entity = new BinaryStore(this.directory).createEntity("test", true, "id", "feature").orElseThrow();
+    assertTrue(entity.append(List.of(new Object[]{"a", new float[]{1, 2}}, new Object[]{"b", new float[]{3, 4}})));
+    assertFalse(entity.append(Collections.singletonList(new Object[]{"a", new float[]{5, 6}})));
+    assertFalse(entity.append(List.of(new Object[]{"c", new float[]{5, 6}}, new Object[]{"c", new float[]{7, 8}})));
+    assertEquals(2, entity.size());
+
+    final Entity reloaded = new BinaryStore(this.directory).getEntity("test").orElseThrow();
+    assertFalse(reloaded.append(Collections.singletonList(new Object[]{"b", new float[]{5, 6}})));
+    assertTrue(reloaded.append(Collections.singletonList(new Object[]{"c", new float[]{5, 6}})));
+    assertEquals(3, reloaded.size());
+  }
+
+  @Test
+  @DisplayName("JSON files are not converted twice into the same entities unless appending is requested")
+  public void testConvertTwice() throws IOException {
+    final Path json = this.directory.resolve("features_test.json");
+    Files.write(json, List.of("[", "{\"id\":\"a\",\"feature\":[1.0,2.0]}", "]"), StandardCharsets.UTF_8);
+    final BinaryStore store = new BinaryStore(this.directory.resolve("binary"));
+    assertEquals(1, JsonToBinaryConverter.convert(this.directory, store));
+    assertThrows(IOException.class, () -> JsonToBinaryConverter.convert(this.directory, store));
+    assertThrows(IOException.class, () -> JsonToBinaryConverter.convert(json, store));
+    assertEquals(1, store.getEntity("features_test").orElseThrow().size());
+
+    assertEquals(1, JsonToBinaryConverter.convert(this.directory, store, true));
+    assertEquals(2, store.getEntity("features_test").orElseThrow().size());
+  }
+}
@@ -0,0 +1,258 @@
+package org.vitrivr.cineast.core.db.cottontaildb;
+
+import com.google.protobuf.Empty;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig;
+import org.vitrivr.cineast.core.config.ReadableQueryConfig.Distance;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.util.CineastConstants;
+import org.vitrivr.cottontail.grpc.CottontailGrpc;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryMessage;
+import org.vitrivr.cottontail.grpc.CottontailGrpc.QueryResponseMessage;
+import org.vitrivr.cottontail.grpc.DQLGrpc;
+
+/**
+ * Runs {@link CottontailSelector#getBatchedNearestNeighbours(int, List, String, Class, List)} against an in-process stand-in for the Cottontail DB gRPC service, which answers every query after a fixed delay and keeps track of the number of queries in flight.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+public class CottontailBatchedKnnTest {
+
+  /**
+   * Simulated server-side latency per query in milliseconds.
+   */
+  private static final long QUERY_LATENCY_MS = 20;
+
+  private static final int K = 10;
+
+  private static final int DIMENSIONS = 64;
+
+  /**
+   * Number of query vectors per batch that are tested.
+   */
+  private static final int[] BATCH_SIZES = {1, 8, 32};
+
+  private Server server;
+
+  private ManagedChannel channel;
+
+  private CottontailSelector selector;
+
+  /**
+   * Number of queries currently being answered by the stand-in.
+   */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /**
+   * Largest number of queries answered concurrently since the last reset.
+   */
+  private final AtomicInteger peak = new AtomicInteger();
+
+  /**
+   * Number of upcoming queries the stand-in fails with {@link #failureStatus}.
+   */
+  private final AtomicInteger failures = new AtomicInteger();
+
+  /**
+   * {@link Status} with which the stand-in fails queries.
+   */
+  private final AtomicReference<Status> failureStatus = new AtomicReference<>(Status.UNAVAILABLE);
+
+  @BeforeAll
+  void startServer() throws IOException {
+    final String name = InProcessServerBuilder.generateName();
+    this.server = InProcessServerBuilder.forName(name).executor(Executors.newCachedThreadPool()).addService(new KnnStandIn(this.inFlight, this.peak, this.failures, this.failureStatus)).build().start();
+    this.channel = InProcessChannelBuilder.forName(name).build();
+    this.selector = new CottontailSelector(new CottontailWrapper(this.channel));
+    this.selector.open("features_test");
+  }
+
+  @AfterAll
+  void stopServer() {
+    this.channel.shutdownNow();
+    this.server.shutdownNow();
+  }
+
+  @AfterEach
+  void reset() {
+    this.peak.set(0);
+    this.failures.set(0);
+    this.failureStatus.set(Status.UNAVAILABLE);
+  }
+
+  @Test
+  @DisplayName("Batched kNN: results in query order")
+  void batchedKnnPreservesOrder() {
+    for (int count : BATCH_SIZES) {
+      checkOrder(count);
+    }
+  }
+
+  @Test
+  @DisplayName("Batched kNN: queries run concurrently")
+  void batchedKnnConcurrency() {
+    for (int count : BATCH_SIZES) {
+      checkConcurrency(count);
+    }
+  }
+
+  @Test
+  @DisplayName("Batched kNN: failed queries are retried")
+  void batchedKnnRetry() {
+    for (int count : BATCH_SIZES) {
+      this.failures.set(1);
+      final List<SegmentDistanceElement> results = this.selector.getBatchedNearestNeighbours(K, randomVectors(count), "feature", SegmentDistanceElement.class, configs(count));
+      Assertions.assertEquals(0, this.failures.get());
+      Assertions.assertEquals(count * K, results.size());
+    }
+  }
+
+  @Test
+  @DisplayName("Batched kNN: persistent connection failures are propagated")
+  void batchedKnnFailure() {
+    for (int count : BATCH_SIZES) {
+      this.failures.set(Integer.MAX_VALUE);
+      Assertions.assertThrows(StatusRuntimeException.class, () -> this.selector.getBatchedNearestNeighbours(K, randomVectors(count), "feature", SegmentDistanceElement.class, configs(count)));
+    }
+  }
+
+  @Test
+  @DisplayName("Batched kNN: other failures yield no results for the failed query")
+  void batchedKnnQueryError() {
+    this.failureStatus.set(Status.INVALID_ARGUMENT);
+    for (int count : BATCH_SIZES) {
+      this.failures.set(1);
+      final List<SegmentDistanceElement> results = this.selector.getBatchedNearestNeighbours(K, randomVectors(count), "feature", SegmentDistanceElement.class, configs(count));
+      Assertions.assertEquals(0, this.failures.get());
+      Assertions.assertEquals((count - 1) * K, results.size());
+    }
+  }
+
+  private void checkOrder(int count) {
+    final List<float[]> vectors = randomVectors(count);
+    final List<ReadableQueryConfig> configs = configs(count);
+
+    final List<SegmentDistanceElement> expected = new ArrayList<>(count * K);
+    for (int i = 0; i < count; i++) {
+      expected.addAll(this.selector.getNearestNeighboursGeneric(K, vectors.get(i), "feature", SegmentDistanceElement.class, configs.get(i)));
+    }
+    final List<SegmentDistanceElement> actual = this.selector.getBatchedNearestNeighbours(K, vectors, "feature", SegmentDistanceElement.class, configs);
+
+    Assertions.assertEquals(count * K, actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assertions.assertEquals(expected.get(i).getSegmentId(), actual.get(i).getSegmentId());
+      Assertions.assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance(), 1e-9);
+    }
+  }
+
+  private void checkConcurrency(int count) {
+    this.peak.set(0);
+    final List<SegmentDistanceElement> results = this.selector.getBatchedNearestNeighbours(K, randomVectors(count), "feature", SegmentDistanceElement.class, configs(count));
+    Assertions.assertEquals(count * K, results.size());
+    if (count > 1) {
+      Assertions.assertTrue(this.peak.get() > 1, "Batched kNN never had more than one query in flight.");
+    } else {
+      Assertions.assertEquals(1, this.peak.get());
+    }
+  }
+
+  private static List<float[]> randomVectors(int count) {
+    final SplittableRandom random = new SplittableRandom(count);
+    final List<float[]> vectors = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final float[] vector = new float[DIMENSIONS];
+      for (int j = 0; j < DIMENSIONS; j++) {
+        vector[j] = (float) random.nextDouble();
+      }
+      vectors.add(vector);
+    }
+    return vectors;
+  }
+
+  private static List<ReadableQueryConfig> configs(int count) {
+    final QueryConfig config = new QueryConfig(null);
+    config.setDistanceIfEmpty(Distance.euclidean);
+    return Arrays.stream(new int[count]).mapToObj(i -> new ReadableQueryConfig(config)).collect(Collectors.toList());
+  }
+
+  /**
+   * Stand-in for the DQL service of Cottontail DB. Answers every query with {@link #K} rows, whose ids are derived from the query itself, after sleeping for {@link #QUERY_LATENCY_MS}.
+   */
+  private static final class KnnStandIn extends DQLGrpc.DQLImplBase {
+
+    private final AtomicInteger inFlight;
+
+    private final AtomicInteger peak;
+
+    private final AtomicInteger failures;
+
+    private final AtomicReference<Status> failureStatus;
+
+    private KnnStandIn(AtomicInteger inFlight, AtomicInteger peak, AtomicInteger failures, AtomicReference<Status> failureStatus) {
+      this.inFlight = inFlight;
+      this.peak = peak;
+      this.failures = failures;
+      this.failureStatus = failureStatus;
+    }
+
+    @Override
+    public void query(QueryMessage request, StreamObserver<QueryResponseMessage> responseObserver) {
+      this.peak.accumulateAndGet(this.inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(QUERY_LATENCY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        this.inFlight.decrementAndGet();
+      }
+      if (this.failures.getAndUpdate(f -> f > 0 ? f - 1 : 0) > 0) {
+        responseObserver.onError(this.failureStatus.get().withDescription("Simulated failure.").asRuntimeException());
+        return;
+      }
+      final String prefix = Integer.toHexString(Arrays.hashCode(request.getQuery().toByteArray()));
+      final QueryResponseMessage.Builder response = QueryResponseMessage.newBuilder()
+          .addColumns(column(CineastConstants.GENERIC_ID_COLUMN_QUALIFIER, CottontailGrpc.Type.STRING))
+          .addColumns(column(CineastConstants.DB_DISTANCE_VALUE_QUALIFIER, CottontailGrpc.Type.DOUBLE));
+      for (int i = 0; i < request.getQuery().getLimit(); i++) {
+        response.addTuples(QueryResponseMessage.Tuple.newBuilder()
+            .addData(CottontailGrpc.Literal.newBuilder().setStringData(prefix + "_" + i))
+            .addData(CottontailGrpc.Literal.newBuilder().setDoubleData(i)));
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+    }
+
+    @Override
+    public void ping(Empty request, StreamObserver<Empty> responseObserver) {
+      responseObserver.onNext(Empty.getDefaultInstance());
+      responseObserver.onCompleted();
+    }
+
+    private static CottontailGrpc.ColumnDefinition column(String name, CottontailGrpc.Type type) {
+      return CottontailGrpc.ColumnDefinition.newBuilder().setName(CottontailGrpc.ColumnName.newBuilder().setName(name)).setType(type).build();
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.vitrivr.cineast.core.db.cottontaildb;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cottontail.client.language.dml.BatchInsert;
+
+public class CottontailWriterTest {
+
+  @Test
+  @DisplayName("Size estimate is an upper bound of the serialized batch insert")
+  public void testEstimateSize() {
+    final SplittableRandom random = new SplittableRandom(7);
+    final BatchInsert insert = new BatchInsert().into("cineast.features_test").columns("id", "feature", "text", "score");
+    long estimate = 0;
+    for (int i = 0; i < 500; i++) {
+      final float[] vector = new float[1 + random.nextInt(1024)];
+      for (int j = 0; j < vector.length; j++) {
+        vector[j] = (float) random.nextDouble();
+      }
+      final StringBuilder text = new StringBuilder();
+      for (int j = random.nextInt(200); j > 0; j--) {
+        text.append(random.nextBoolean() ? 'a' : 'ä').append(random.nextInt(10) == 0 ? "😀" : "€");
+      }
+      final Object[] values = {"segment_" + i, vector, text.toString(), random.nextDouble()};
+      insert.append(values);
+      estimate += 8;
+      for (Object value : values) {
+        estimate += CottontailWriter.estimateSize(value);
+      }
+      assertTrue(estimate >= insert.serializedSize(), "Estimate " + estimate + " below serialized size " + insert.serializedSize());
+    }
+  }
+
+  @Test
+  @DisplayName("LIKE wildcards in id prefixes are escaped")
+  public void testEscapeLike() {
+    assertEquals("v\\_video1\\_", CottontailWriter.escapeLike("v_video1_"));
+    assertEquals("100\\%\\\\a", CottontailWriter.escapeLike("100%\\a"));
+    assertEquals("plain", CottontailWriter.escapeLike("plain"));
+  }
+}
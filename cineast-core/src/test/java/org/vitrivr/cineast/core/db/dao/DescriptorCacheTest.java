@@ -0,0 +1,94 @@
+package org.vitrivr.cineast.core.db.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DescriptorCacheTest {
+
+  private static DescriptorCache<String> cache(int capacity) {
+    return new DescriptorCache<>("test", capacity, String::length);
+  }
+
+  @Test
+  @DisplayName("Only missing ids are reported, once each")
+  public void testMisses() {
+    final DescriptorCache<String> cache = cache(10);
+    cache.put("a", "A");
+    cache.put("b", "B");
+
+    final List<String> missing = new ArrayList<>();
+    final Map<String, String> hits = cache.getAll(List.of("a", "c", "b", "c", "d"), missing);
+    assertEquals(Map.of("a", "A", "b", "B"), hits);
+    assertEquals(List.of("c", "d"), missing);
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  @DisplayName("Absent ids are cached until invalidated")
+  public void testAbsent() {
+    final DescriptorCache<String> cache = cache(10);
+    cache.putAbsent("x", cache.generation());
+
+    final List<String> missing = new ArrayList<>();
+    assertTrue(cache.getAll(List.of("x"), missing).isEmpty());
+    assertTrue(missing.isEmpty());
+
+    cache.invalidate("x");
+    cache.getAll(List.of("x"), missing);
+    assertEquals(List.of("x"), missing);
+  }
+
+  @Test
+  @DisplayName("Lookups that raced with an invalidation do not cache absent ids")
+  public void testGeneration() {
+    final DescriptorCache<String> cache = cache(10);
+    final long generation = cache.generation();
+    cache.invalidate("x");
+    cache.putAbsent("x", generation);
+
+    final List<String> missing = new ArrayList<>();
+    cache.getAll(List.of("x"), missing);
+    assertEquals(List.of("x"), missing);
+  }
+
+  @Test
+  @DisplayName("Frequently used entries survive a scan")
+  public void testScanResistance() {
+    final DescriptorCache<String> cache = cache(10);
+    for (String id : List.of("p", "q", "r")) {
+      cache.put(id, id.toUpperCase());
+      cache.getAll(List.of(id), new ArrayList<>());
+    }
+    for (int i = 0; i < 100; i++) {
+      cache.put("scan" + i, "S");
+    }
+    assertEquals(10, cache.size());
+
+    final List<String> missing = new ArrayList<>();
+    assertEquals(3, cache.getAll(List.of("p", "q", "r"), missing).size());
+    assertTrue(missing.isEmpty());
+  }
+
+  @Test
+  @DisplayName("Estimated footprint follows insertions and removals")
+  public void testFootprint() {
+    final DescriptorCache<String> cache = cache(2);
+    cache.put("a", "AAAA");
+    final long one = cache.estimatedBytes();
+    assertTrue(one > 4);
+    cache.put("b", "AAAA");
+    assertEquals(2 * one, cache.estimatedBytes());
+    cache.put("c", "AAAA");
+    assertEquals(2 * one, cache.estimatedBytes());
+    cache.invalidateAll();
+    assertEquals(0, cache.estimatedBytes());
+    assertEquals(0, cache.size());
+  }
+}
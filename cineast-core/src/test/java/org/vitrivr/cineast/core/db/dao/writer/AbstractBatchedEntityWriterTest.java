@@ -0,0 +1,172 @@
+package org.vitrivr.cineast.core.db.dao.writer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.db.AbstractPersistencyWriter;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class AbstractBatchedEntityWriterTest {
+
+  private static final int BATCH_SIZE = 10;
+
+  /**
+   * Records the batches it receives; every batch takes a few milliseconds.
+   */
+  private static class RecordingWriter extends AbstractPersistencyWriter<PersistentTuple> {
+
+    private final ConcurrentLinkedQueue<List<PersistentTuple>> batches = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private volatile boolean overlapping = false;
+    /**
+     * Number of upcoming batches that fail.
+     */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Override
+    public boolean persist(List<PersistentTuple> tuples) {
+      if (this.failures.getAndUpdate(f -> f > 0 ? f - 1 : 0) > 0) {
+        return false;
+      }
+      if (this.concurrent.incrementAndGet() > 1) {
+        this.overlapping = true;
+      }
+      try {
+        Thread.sleep(2);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      this.batches.add(new ArrayList<>(tuples));
+      this.concurrent.decrementAndGet();
+      return true;
+    }
+
+    private int persisted() {
+      return this.batches.stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean open(String name) {
+      return true;
+    }
+
+    @Override
+    public boolean exists(String key, String value) {
+      return false;
+    }
+
+    @Override
+    public PersistentTuple getPersistentRepresentation(PersistentTuple tuple) {
+      return tuple;
+    }
+
+    @Override
+    public int supportedBatchSize() {
+      return BATCH_SIZE;
+    }
+  }
+
+  private static class StringWriter extends AbstractBatchedEntityWriter<String> {
+
+    private StringWriter(RecordingWriter writer) {
+      super(writer);
+      this.init();
+    }
+
+    @Override
+    protected void init() {
+      this.open("test");
+    }
+
+    @Override
+    protected PersistentTuple generateTuple(String entity) {
+      return this.writer.generateTuple(entity);
+    }
+  }
+
+  @Test
+  @DisplayName("flushAndAwait persists everything in batches")
+  public void testFlushAndAwait() {
+    final RecordingWriter recorder = new RecordingWriter();
+    final StringWriter writer = new StringWriter(recorder);
+    for (int i = 0; i < 95; i++) {
+      writer.write("e" + i);
+    }
+    writer.flushAndAwait();
+    assertEquals(95, recorder.persisted());
+    assertTrue(recorder.batches.stream().allMatch(b -> b.size() <= BATCH_SIZE));
+    final List<Object> order = new ArrayList<>();
+    recorder.batches.forEach(b -> b.forEach(t -> order.add(t.getElements().get(0))));
+    for (int i = 0; i < 95; i++) {
+      assertEquals("e" + i, order.get(i));
+    }
+    writer.close();
+  }
+
+  @Test
+  @DisplayName("flushAndAwait reports tuples that failed to persist once")
+  public void testFailedBatch() {
+    final RecordingWriter recorder = new RecordingWriter();
+    final StringWriter writer = new StringWriter(recorder);
+    recorder.failures.set(1);
+    for (int i = 0; i < 25; i++) {
+      writer.write("e" + i);
+    }
+    final IllegalStateException e = assertThrows(IllegalStateException.class, writer::flushAndAwait);
+    final int persisted = recorder.persisted();
+    assertTrue(persisted < 25);
+    assertTrue(e.getMessage().contains((25 - persisted) + " tuples"));
+
+    writer.write("e25");
+    writer.flushAndAwait();
+    assertEquals(persisted + 1, recorder.persisted());
+    writer.close();
+  }
+
+  @Test
+  @DisplayName("Concurrent writers lose no tuples")
+  public void testConcurrentWrites() throws Exception {
+    final RecordingWriter recorder = new RecordingWriter();
+    final StringWriter writer = new StringWriter(recorder);
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 500; i++) {
+            writer.write(thread + "_" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    writer.close();
+
+    final Set<Object> persisted = new HashSet<>();
+    recorder.batches.forEach(b -> b.forEach(t -> persisted.add(t.getElements().get(0))));
+    assertEquals(4000, recorder.persisted());
+    assertEquals(4000, persisted.size());
+    assertTrue(!recorder.overlapping);
+  }
+}
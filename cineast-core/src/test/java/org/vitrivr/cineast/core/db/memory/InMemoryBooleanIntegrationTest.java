@@ -0,0 +1,19 @@
+package org.vitrivr.cineast.core.db.memory;
+
+import org.vitrivr.cineast.core.db.DBBooleanIntegrationTest;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class InMemoryBooleanIntegrationTest extends DBBooleanIntegrationTest<PersistentTuple> {
+
+  private final InMemoryIntegrationDBProvider _provider = new InMemoryIntegrationDBProvider();
+
+  @Override
+  protected void finishSetup() {
+  }
+
+  @Override
+  protected IntegrationDBProvider<PersistentTuple> provider() {
+    return _provider;
+  }
+}
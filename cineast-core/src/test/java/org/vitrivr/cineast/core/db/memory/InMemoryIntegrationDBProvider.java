@@ -0,0 +1,35 @@
+package org.vitrivr.cineast.core.db.memory;
+
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistencyWriter;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+
+public class InMemoryIntegrationDBProvider implements IntegrationDBProvider<PersistentTuple> {
+
+  /**
+   * A fresh {@link InMemoryStore} per provider, so that tests don't interfere with the shared store.
+   */
+  private final InMemoryStore store = new InMemoryStore();
+
+  @Override
+  public PersistencyWriter<PersistentTuple> getPersistencyWriter() {
+    return new InMemoryWriter(this.store);
+  }
+
+  @Override
+  public DBSelector getSelector() {
+    return new InMemorySelector(this.store);
+  }
+
+  @Override
+  public EntityCreator getEntityCreator() {
+    return new InMemoryEntityCreator(this.store);
+  }
+
+  @Override
+  public void close() {
+    this.store.dropAll();
+  }
+}
@@ -0,0 +1,20 @@
+package org.vitrivr.cineast.core.db.memory;
+
+import org.vitrivr.cineast.core.db.DBIntegrationTest;
+import org.vitrivr.cineast.core.db.IntegrationDBProvider;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class InMemoryIntegrationTest extends DBIntegrationTest<PersistentTuple> {
+
+  private final InMemoryIntegrationDBProvider _provider = new InMemoryIntegrationDBProvider();
+
+  @Override
+  protected void finishSetup() {
+    //no-op
+  }
+
+  @Override
+  protected IntegrationDBProvider<PersistentTuple> provider() {
+    return _provider;
+  }
+}
@@ -0,0 +1,183 @@
+package org.vitrivr.cineast.core.db.memory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.vitrivr.cineast.core.util.CineastConstants.DB_DISTANCE_VALUE_QUALIFIER;
+
+import com.googlecode.javaewah.datastructure.BitSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.data.distance.DistanceElement;
+import org.vitrivr.cineast.core.data.distance.SegmentDistanceElement;
+import org.vitrivr.cineast.core.data.providers.primitive.PrimitiveTypeProvider;
+import org.vitrivr.cineast.core.db.PersistentTuple;
+
+public class InMemoryStoreTest {
+
+  private static final String ENTITY = "entity";
+
+  private InMemoryStore store;
+
+  @BeforeEach
+  public void setup() {
+    this.store = new InMemoryStore();
+  }
+
+  @Test
+  @DisplayName("Tuples with unknown fields are rejected without affecting the batch")
+  public void testUnknownFieldRejected() {
+    this.store.createEntity(ENTITY, "id", "feature");
+    final InMemoryWriter writer = new InMemoryWriter(this.store);
+    assertTrue(writer.open(ENTITY));
+
+    writer.setFieldNames("id", "feature");
+    final List<PersistentTuple> tuples = new ArrayList<>();
+    tuples.add(writer.generateTuple("a", new float[]{1f, 2f}));
+    tuples.add(writer.generateTuple("b", new float[]{1f, 2f, 3f}));
+    tuples.add(writer.generateTuple("c", new float[]{3f, 4f}));
+    assertFalse(writer.persist(tuples));
+    final InMemoryStore.Entity entity = this.store.getEntity(ENTITY).orElseThrow();
+    assertEquals(2, entity.size());
+    assertTrue(entity.has("a"));
+    assertFalse(entity.has("b"));
+    assertTrue(entity.has("c"));
+
+    writer.setFieldNames("id", "vector");
+    assertFalse(writer.persist(Collections.singletonList(writer.generateTuple("d", new float[]{5f, 6f}))));
+    assertFalse(entity.has("d"));
+    assertEquals(2, entity.size());
+  }
+
+  @Test
+  @DisplayName("Unique entities replace rows on key and compact deleted rows")
+  public void testUniqueReplace() {
+    final InMemoryStore.Entity unique = this.store.createEntity(ENTITY, true, "id", "value").orElseThrow();
+    final InMemoryStore.Entity multi = this.store.createEntity("multi", "id", "value").orElseThrow();
+    final int rounds = 10;
+    final int keys = InMemoryStore.Entity.BLOCK_SIZE;
+    for (int round = 0; round < rounds; round++) {
+      final List<Object[]> rows = new ArrayList<>(keys);
+      for (int key = 0; key < keys; key++) {
+        rows.add(new Object[]{"k" + key, round});
+      }
+      assertTrue(unique.append(rows));
+      assertTrue(multi.append(rows));
+    }
+    assertEquals(keys, unique.size());
+    assertEquals(rounds * keys, multi.size());
+
+    /* Compaction renumbers the live rows, so no row number exceeds twice the number of live rows. */
+    final List<String> all = IntStream.range(0, keys).mapToObj(key -> "k" + key).collect(Collectors.toList());
+    assertTrue(Arrays.stream(unique.rowsForKeys(all)).max().orElseThrow() < 2 * keys);
+    final int[] rows = unique.rowsForKeys(List.of("k0", "k" + (keys - 1)));
+    assertEquals(2, rows.length);
+    assertEquals(List.of(rounds - 1, rounds - 1), unique.values(rows, 1));
+    assertEquals("k0", unique.key(rows[0]));
+  }
+
+  @Test
+  @DisplayName("Bit sets larger than a hash are stored next to hashes")
+  public void testHashColumnPromotion() {
+    final InMemoryStore.Entity entity = this.store.createEntity(ENTITY, "id", "hash").orElseThrow();
+    final BitSet small = new BitSet(64);
+    small.set(3);
+    final BitSet large = new BitSet(128);
+    large.set(100);
+    assertTrue(entity.append(Collections.singletonList(new Object[]{"a", small})));
+    assertTrue(entity.append(Collections.singletonList(new Object[]{"b", large})));
+    assertEquals(2, entity.size());
+    final int[] rows = entity.rowsForKeys(List.of("a", "b"));
+    final List<Object> values = entity.values(rows, 1);
+    assertTrue(((BitSet) values.get(0)).get(3));
+    assertEquals(1, ((BitSet) values.get(0)).cardinality());
+    assertTrue(((BitSet) values.get(1)).get(100));
+    assertEquals(1, ((BitSet) values.get(1)).cardinality());
+  }
+
+  @Test
+  @DisplayName("Vectors of another dimension are rejected")
+  public void testVectorDimension() {
+    final InMemoryStore.Entity entity = this.store.createEntity(ENTITY, "id", "feature").orElseThrow();
+    assertFalse(entity.append(List.of(new Object[]{"a", new float[]{1f, 2f}}, new Object[]{"b", new float[]{1f}})));
+    assertEquals(0, entity.size());
+    assertTrue(entity.append(Collections.singletonList(new Object[]{"a", new float[]{1f, 2f}})));
+    assertFalse(entity.append(Collections.singletonList(new Object[]{"b", "not a vector"})));
+    assertEquals(1, entity.size());
+  }
+
+  @Test
+  @DisplayName("kNN over scalar columns")
+  public void testScalarNearestNeighbours() {
+    final InMemoryStore.Entity entity = this.store.createEntity(ENTITY, "id", "number", "text", "flag").orElseThrow();
+    assertTrue(entity.append(List.of(
+        new Object[]{"a", 1, "cineast", true},
+        new Object[]{"b", 5, "vitrivr", false},
+        new Object[]{"c", 10, "cottontail", true}
+    )));
+    final InMemorySelector selector = new InMemorySelector(this.store);
+    assertTrue(selector.open(ENTITY));
+
+    assertArrayEquals(new String[]{"b", "a"}, ids(selector.getNearestNeighboursGeneric(2, PrimitiveTypeProvider.fromObject(4), "number", SegmentDistanceElement.class, new QueryConfig(null))));
+    assertArrayEquals(new String[]{"c", "b"}, ids(selector.getNearestNeighboursGeneric(2, PrimitiveTypeProvider.fromObject(8.5), "number", SegmentDistanceElement.class, new QueryConfig(null))));
+    assertArrayEquals(new String[]{"b"}, ids(selector.getNearestNeighboursGeneric(1, PrimitiveTypeProvider.fromObject("vitrivX"), "text", SegmentDistanceElement.class, new QueryConfig(null))));
+    final List<SegmentDistanceElement> flags = selector.getNearestNeighboursGeneric(3, PrimitiveTypeProvider.fromObject(false), "flag", SegmentDistanceElement.class, new QueryConfig(null));
+    assertEquals("b", flags.get(0).getId());
+    assertEquals(0.0, flags.get(0).getDistance());
+    assertEquals(1.0, flags.get(2).getDistance());
+    assertThrows(IllegalArgumentException.class, () -> selector.getNearestNeighboursGeneric(1, PrimitiveTypeProvider.fromObject(new Object()), "number", SegmentDistanceElement.class, new QueryConfig(null)));
+  }
+
+  @Test
+  @DisplayName("kNN results stay aligned with their ids while rows are replaced and compacted")
+  public void testNearestNeighboursDuringCompaction() throws InterruptedException {
+    final InMemoryStore.Entity entity = this.store.createEntity(ENTITY, true, "id", "feature").orElseThrow();
+    final int keys = InMemoryStore.Entity.BLOCK_SIZE;
+    final List<Object[]> rows = new ArrayList<>(keys);
+    for (int key = 0; key < keys; key++) {
+      rows.add(new Object[]{"k" + key, new float[]{key}});
+    }
+    assertTrue(entity.append(rows));
+    final InMemorySelector selector = new InMemorySelector(this.store);
+    assertTrue(selector.open(ENTITY));
+
+    /* Every append replaces all rows; every other append compacts the entity and thereby renumbers its rows. */
+    final AtomicBoolean stop = new AtomicBoolean(false);
+    final Thread writer = new Thread(() -> {
+      while (!stop.get()) {
+        entity.append(rows);
+      }
+    });
+    writer.start();
+    try {
+      for (int i = 0; i < 200; i++) {
+        final float query = i % keys;
+        for (SegmentDistanceElement element : selector.getNearestNeighboursGeneric(5, new float[]{query}, "feature", SegmentDistanceElement.class, new QueryConfig(null))) {
+          assertEquals(Math.abs(Integer.parseInt(element.getId().substring(1)) - query), element.getDistance(), 1e-6);
+        }
+        for (Map<String, PrimitiveTypeProvider> row : selector.getNearestNeighbourRows(5, new float[]{query}, "feature", new QueryConfig(null))) {
+          assertEquals(Math.abs(Integer.parseInt(row.get("id").getString().substring(1)) - query), row.get(DB_DISTANCE_VALUE_QUALIFIER).getDouble(), 1e-6);
+        }
+      }
+    } finally {
+      stop.set(true);
+      writer.join();
+    }
+  }
+
+  private static String[] ids(List<? extends DistanceElement> elements) {
+    return elements.stream().map(DistanceElement::getId).collect(Collectors.toList()).toArray(new String[0]);
+  }
+}
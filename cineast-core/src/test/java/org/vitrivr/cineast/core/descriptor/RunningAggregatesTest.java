@@ -0,0 +1,110 @@
+package org.vitrivr.cineast.core.descriptor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+import org.vitrivr.cineast.core.util.DecodingError;
+
+public class RunningAggregatesTest {
+
+  private static final int PIXELS = 64;
+
+  private static int[][] randomImages(int count) {
+    final SplittableRandom random = new SplittableRandom(7);
+    final int[][] images = new int[count][PIXELS];
+    for (int[] image : images) {
+      for (int i = 0; i < PIXELS; i++) {
+        image[i] = ReadableRGBContainer.toIntColor(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+    }
+    return images;
+  }
+
+  @Test
+  @DisplayName("Running average equals the average of all images")
+  public void testAverage() {
+    final int[][] images = randomImages(50);
+    final RunningAvgImg avg = new RunningAvgImg();
+    for (int[] image : images) {
+      avg.add(image);
+    }
+    assertEquals(50, avg.getCount());
+    final int[] colors = avg.getColors();
+    for (int i = 0; i < PIXELS; i++) {
+      int red = 0;
+      for (int[] image : images) {
+        red += ReadableRGBContainer.getRed(image[i]);
+      }
+      assertEquals((int) Math.round(red / 50d), ReadableRGBContainer.getRed(colors[i]));
+    }
+  }
+
+  @Test
+  @DisplayName("Streaming median lies within one bin of the exact median")
+  public void testMedian() {
+    final int[][] images = randomImages(1001);
+    final StreamingMedianImg median = new StreamingMedianImg();
+    for (int[] image : images) {
+      median.add(image);
+    }
+    final int[] colors = median.getColors();
+    final int[] values = new int[images.length];
+    for (int i = 0; i < PIXELS; i++) {
+      for (int j = 0; j < images.length; j++) {
+        values[j] = ReadableRGBContainer.getGreen(images[j][i]);
+      }
+      Arrays.sort(values);
+      final int exact = values[values.length / 2];
+      assertTrue(Math.abs(exact - ReadableRGBContainer.getGreen(colors[i])) <= 256 / StreamingMedianImg.BINS, "pixel " + i);
+    }
+  }
+
+  @Test
+  @DisplayName("Streaming median of a constant sequence is the center of its bin")
+  public void testConstantMedian() {
+    final int[] image = new int[PIXELS];
+    Arrays.fill(image, ReadableRGBContainer.toIntColor(200, 0, 255));
+    final StreamingMedianImg median = new StreamingMedianImg();
+    for (int i = 0; i < 1000; i++) {
+      median.add(image);
+    }
+    final int[] expected = new int[PIXELS];
+    Arrays.fill(expected, ReadableRGBContainer.toIntColor(204, 4, 252));
+    assertArrayEquals(expected, median.getColors());
+  }
+
+  @Test
+  @DisplayName("Buffers are read from their position to their limit")
+  public void testBuffer() {
+    final int[][] images = randomImages(3);
+    final RunningAvgImg fromArrays = new RunningAvgImg();
+    final RunningAvgImg fromBuffers = new RunningAvgImg();
+    for (int[] image : images) {
+      fromArrays.add(image);
+      final int[] padded = new int[PIXELS + 2];
+      System.arraycopy(image, 0, padded, 1, PIXELS);
+      fromBuffers.add(IntBuffer.wrap(padded, 1, PIXELS));
+    }
+    assertArrayEquals(fromArrays.getColors(), fromBuffers.getColors());
+  }
+
+  @Test
+  @DisplayName("Empty and inconsistent sequences")
+  public void testEdgeCases() {
+    assertNull(new RunningAvgImg().getColors());
+    assertNull(new StreamingMedianImg().getColors());
+    final RunningAvgImg avg = new RunningAvgImg();
+    avg.add(new int[PIXELS]);
+    avg.add(new int[PIXELS / 2]);
+    assertThrows(DecodingError.class, avg::getColors);
+  }
+}
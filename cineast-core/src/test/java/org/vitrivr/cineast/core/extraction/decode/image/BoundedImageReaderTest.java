@@ -0,0 +1,253 @@
+package org.vitrivr.cineast.core.extraction.decode.image;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.twelvemonkeys.image.ResampleOp;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.spi.ImageReaderSpi;
+import javax.imageio.stream.ImageInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class BoundedImageReaderTest {
+
+  @TempDir
+  Path directory;
+
+  /**
+   * Writes an image whose left half is red and whose right half is blue.
+   */
+  private Path write(String name, String format, int width, int height, Color left) throws IOException {
+    final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = image.createGraphics();
+    graphics.setColor(left);
+    graphics.fillRect(0, 0, width / 2, height);
+    graphics.setColor(Color.BLUE);
+    graphics.fillRect(width / 2, 0, width - width / 2, height);
+    graphics.dispose();
+    final Path path = this.directory.resolve(name);
+    ImageIO.write(image, format, path.toFile());
+    return path;
+  }
+
+  @Test
+  @DisplayName("Target size preserves the aspect ratio")
+  public void testTargetSize() {
+    assertArrayEquals(new int[]{1024, 682}, BoundedImageReader.targetSize(6000, 4000, 1024));
+    assertArrayEquals(new int[]{682, 1024}, BoundedImageReader.targetSize(4000, 6000, 1024));
+    assertArrayEquals(new int[]{800, 600}, BoundedImageReader.targetSize(800, 600, 1024));
+  }
+
+  @Test
+  @DisplayName("Subsampling keeps at least twice the target size")
+  public void testSubsampling() {
+    assertEquals(2, BoundedImageReader.subsampling(6000, 4000, 1024, 682));
+    assertEquals(1, BoundedImageReader.subsampling(2000, 1500, 1024, 768));
+    assertEquals(1, BoundedImageReader.subsampling(800, 600, 800, 600));
+    assertEquals(10, BoundedImageReader.subsampling(10000, 5000, 500, 250));
+  }
+
+  @Test
+  @DisplayName("Large images are decoded to the target size")
+  public void testRead() throws IOException {
+    final BufferedImage image = BoundedImageReader.read(this.write("large.jpg", "jpg", 2400, 1200, Color.RED), 256);
+    assertEquals(256, image.getWidth());
+    assertEquals(128, image.getHeight());
+    final Color left = new Color(image.getRGB(32, 64));
+    final Color right = new Color(image.getRGB(224, 64));
+    assertTrue(left.getRed() > 200 && left.getBlue() < 50);
+    assertTrue(right.getBlue() > 200 && right.getRed() < 50);
+  }
+
+  @Test
+  @DisplayName("Images within bounds keep their size")
+  public void testSmall() throws IOException {
+    final BufferedImage image = BoundedImageReader.read(this.write("small.png", "png", 300, 200, Color.RED), 1024);
+    assertEquals(300, image.getWidth());
+    assertEquals(200, image.getHeight());
+  }
+
+  @Test
+  @DisplayName("Results do not share the reused decode buffer")
+  public void testReuse() throws IOException {
+    final BufferedImage first = BoundedImageReader.read(this.write("first.png", "png", 1200, 600, Color.RED), 128);
+    final BufferedImage second = BoundedImageReader.read(this.write("second.png", "png", 1200, 600, Color.GREEN), 128);
+    assertTrue(new Color(first.getRGB(16, 32)).getRed() > 200);
+    assertTrue(new Color(second.getRGB(16, 32)).getGreen() > 200);
+    assertTrue(new Color(second.getRGB(16, 32)).getRed() < 50);
+  }
+
+  @Test
+  @DisplayName("Without subsampling, the result equals the rescaled full decode")
+  public void testExact() throws IOException {
+    final Path path = this.write("exact.jpg", "jpg", 2400, 1200, Color.RED);
+    final BufferedImage expected = new ResampleOp(256, 128, ResampleOp.FILTER_LANCZOS).filter(ImageIO.read(path.toFile()), null);
+    assertPixelsEqual(expected, BoundedImageReader.read(path, 256));
+    assertPixelsEqual(expected, BoundedImageReader.read(path, 256, false));
+
+    final BufferedImage subsampled = BoundedImageReader.read(path, 256, true);
+    assertEquals(256, subsampled.getWidth());
+    assertEquals(128, subsampled.getHeight());
+  }
+
+  @Test
+  @DisplayName("A partially decoded image does not show pixels of the previous image")
+  public void testPartial() throws IOException {
+    final PartialReaderSpi spi = new PartialReaderSpi();
+    IIORegistry.getDefaultInstance().registerServiceProvider(spi);
+    try {
+      final Path full = this.directory.resolve("full.partial");
+      final Path partial = this.directory.resolve("partial.partial");
+      Files.write(full, PartialReaderSpi.header(64, 32, Color.RED, 32));
+      Files.write(partial, PartialReaderSpi.header(64, 32, Color.GREEN, 16));
+
+      final BufferedImage first = BoundedImageReader.read(full, 64);
+      final BufferedImage second = BoundedImageReader.read(partial, 64);
+      assertTrue(new Color(first.getRGB(8, 24)).getRed() > 200);
+      assertTrue(new Color(second.getRGB(8, 8)).getGreen() > 200);
+      assertTrue(new Color(second.getRGB(8, 24)).getRed() < 50);
+    } finally {
+      IIORegistry.getDefaultInstance().deregisterServiceProvider(spi);
+    }
+  }
+
+  @Test
+  @DisplayName("Clearing resets every sample")
+  public void testClear() {
+    for (int type : new int[]{BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_USHORT_GRAY}) {
+      final BufferedImage image = new BufferedImage(8, 4, type);
+      final Graphics2D graphics = image.createGraphics();
+      graphics.setColor(Color.WHITE);
+      graphics.fillRect(0, 0, 8, 4);
+      graphics.dispose();
+      BoundedImageReader.clear(image);
+      assertPixelsEqual(new BufferedImage(8, 4, type), image);
+    }
+  }
+
+  @Test
+  @DisplayName("Files without a reader yield null")
+  public void testUnknown() throws IOException {
+    final Path path = this.directory.resolve("unknown.bin");
+    Files.write(path, new byte[]{1, 2, 3, 4});
+    assertNull(BoundedImageReader.read(path, 1024));
+  }
+
+  private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertArrayEquals(expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth()), actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth()));
+  }
+
+  /**
+   * Reader for a trivial test format, which only decodes the first rows of an image like a reader that stops at a truncated file. The header consists of the magic number, width, height, color and the number of rows to decode.
+   */
+  private static final class PartialReaderSpi extends ImageReaderSpi {
+
+    private static final int MAGIC = 0x50415254;
+
+    private PartialReaderSpi() {
+      super("test", "1.0", new String[]{"partial"}, new String[]{"partial"}, new String[]{"image/x-partial"}, PartialReader.class.getName(), new Class[]{ImageInputStream.class}, null, false, null, null, null, null, false, null, null, null, null);
+    }
+
+    private static byte[] header(int width, int height, Color color, int rows) {
+      return ByteBuffer.allocate(20).putInt(MAGIC).putInt(width).putInt(height).putInt(color.getRGB()).putInt(rows).array();
+    }
+
+    @Override
+    public boolean canDecodeInput(Object source) throws IOException {
+      final ImageInputStream stream = (ImageInputStream) source;
+      stream.mark();
+      try {
+        return stream.length() == 20 && stream.readInt() == MAGIC;
+      } finally {
+        stream.reset();
+      }
+    }
+
+    @Override
+    public ImageReader createReaderInstance(Object extension) {
+      return new PartialReader(this);
+    }
+
+    @Override
+    public String getDescription(Locale locale) {
+      return "Partially decoded test images";
+    }
+  }
+
+  private static final class PartialReader extends ImageReader {
+
+    private PartialReader(ImageReaderSpi spi) {
+      super(spi);
+    }
+
+    private int header(int index) throws IOException {
+      final ImageInputStream stream = (ImageInputStream) this.getInput();
+      stream.seek(4L * index);
+      return stream.readInt();
+    }
+
+    @Override
+    public int getNumImages(boolean allowSearch) {
+      return 1;
+    }
+
+    @Override
+    public int getWidth(int imageIndex) throws IOException {
+      return this.header(1);
+    }
+
+    @Override
+    public int getHeight(int imageIndex) throws IOException {
+      return this.header(2);
+    }
+
+    @Override
+    public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) {
+      return List.of(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB)).iterator();
+    }
+
+    @Override
+    public IIOMetadata getStreamMetadata() {
+      return null;
+    }
+
+    @Override
+    public IIOMetadata getImageMetadata(int imageIndex) {
+      return null;
+    }
+
+    @Override
+    public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
+      final int width = this.getWidth(imageIndex);
+      final BufferedImage image = param != null && param.getDestination() != null ? param.getDestination() : new BufferedImage(width, this.getHeight(imageIndex), BufferedImage.TYPE_INT_RGB);
+      final int color = this.header(3);
+      for (int y = 0; y < this.header(4); y++) {
+        for (int x = 0; x < width; x++) {
+          image.setRGB(x, y, color);
+        }
+      }
+      return image;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.vitrivr.cineast.core.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.score.ScoreElement;
+import org.vitrivr.cineast.core.data.segments.ImageSegment;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+
+public class DCTImageHashTest {
+
+  private final List<SegmentContainer> segments = new ArrayList<>();
+
+  private InMemoryStore store;
+
+  @BeforeEach
+  public void setup() {
+    this.store = new InMemoryStore();
+    new DCTImageHash().initalizePersistentLayer(() -> new InMemoryEntityCreator(this.store));
+    final SplittableRandom random = new SplittableRandom(11);
+    for (int i = 0; i < 20; i++) {
+      final BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+      for (int y = 0; y < 64; y++) {
+        for (int x = 0; x < 64; x++) {
+          image.setRGB(x, y, random.nextInt(0x1000000));
+        }
+      }
+      final SegmentContainer segment = new ImageSegment(image, CachedDataFactory.getDefault());
+      segment.setId("s" + i);
+      this.segments.add(segment);
+    }
+  }
+
+  private void extract(List<SegmentContainer> segments) {
+    final DCTImageHash extractor = new DCTImageHash();
+    extractor.init(() -> new InMemoryWriter(this.store));
+    segments.forEach(extractor::processSegment);
+    extractor.finish();
+  }
+
+  @Test
+  @DisplayName("Queries find the segment with the same hash first")
+  public void testGetSimilar() {
+    this.extract(this.segments);
+    final DCTImageHash retriever = new DCTImageHash();
+    retriever.init(() -> new InMemorySelector(this.store));
+    final List<ScoreElement> results = retriever.getSimilar(this.segments.get(3), new QueryConfig(null).setResultsPerModule(5));
+    assertEquals(5, results.size());
+    assertEquals("s3", results.get(0).getId());
+    assertEquals(1d, results.get(0).getScore(), 1e-6);
+    assertTrue(retriever.getNearDuplicates(this.segments.get(3), 0).contains("s3"));
+  }
+
+  @Test
+  @DisplayName("Backends without a Hamming index of their own use the shared index of the table")
+  public void testSharedIndex() {
+    this.extract(this.segments.subList(0, 10));
+    final DCTImageHash first = new DCTImageHash();
+    first.init(this::foreignSelector);
+    final DCTImageHash second = new DCTImageHash();
+    second.init(this::foreignSelector);
+    assertEquals(List.of("s3"), first.getNearDuplicates(this.segments.get(3), 0));
+    assertTrue(second.getNearDuplicates(this.segments.get(15), 0).isEmpty());
+
+    this.extract(this.segments.subList(10, 20));
+    assertEquals(List.of("s15"), second.getNearDuplicates(this.segments.get(15), 0));
+    assertEquals(List.of("s15"), first.getNearDuplicates(this.segments.get(15), 0));
+  }
+
+  @Test
+  @DisplayName("Segments extracted after the first query are found by later queries")
+  public void testRefresh() {
+    this.extract(this.segments.subList(0, 10));
+    final DCTImageHash retriever = new DCTImageHash();
+    retriever.init(() -> new InMemorySelector(this.store));
+    assertTrue(retriever.getNearDuplicates(this.segments.get(15), 0).isEmpty());
+
+    this.extract(this.segments.subList(10, 20));
+    assertEquals(List.of("s15"), retriever.getNearDuplicates(this.segments.get(15), 0));
+  }
+
+  /**
+   * A {@link DBSelector} on the store that is not an {@link InMemorySelector}, like the selectors of external databases.
+   */
+  private DBSelector foreignSelector() {
+    final InMemorySelector delegate = new InMemorySelector(this.store);
+    return (DBSelector) Proxy.newProxyInstance(DBSelector.class.getClassLoader(), new Class[]{DBSelector.class}, (proxy, method, args) -> {
+      try {
+        return method.invoke(delegate, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    });
+  }
+}
@@ -0,0 +1,119 @@
+package org.vitrivr.cineast.core.features.neuralnet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class InferenceBrokerTest {
+
+  private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * Doubles every input and records the size of each batch.
+   */
+  private List<Integer> twice(List<Integer> inputs) {
+    this.batchSizes.add(inputs.size());
+    return inputs.stream().map(i -> {
+      if (i < 0) {
+        throw new IllegalArgumentException("Negative input " + i);
+      }
+      return 2 * i;
+    }).collect(Collectors.toList());
+  }
+
+  private List<Future<Integer>> submitConcurrently(InferenceBroker<Integer, Integer> broker, int... inputs) {
+    final ExecutorService executor = Executors.newFixedThreadPool(inputs.length);
+    final List<Future<Integer>> results = new ArrayList<>();
+    for (int input : inputs) {
+      results.add(executor.submit(() -> broker.infer(input)));
+    }
+    executor.shutdown();
+    return results;
+  }
+
+  @Test
+  @DisplayName("Concurrent requests are run as one batch")
+  public void testConcurrent() throws Exception {
+    final InferenceBroker<Integer, Integer> broker = new InferenceBroker<>("test", 4, 10_000, this::twice);
+    final List<Future<Integer>> results = this.submitConcurrently(broker, 1, 2, 3, 4);
+    for (int i = 0; i < 4; i++) {
+      assertEquals(2 * (i + 1), results.get(i).get());
+    }
+    assertEquals(List.of(4), this.batchSizes);
+    broker.close();
+  }
+
+  @Test
+  @DisplayName("Batches do not exceed the maximum size and outputs keep the order of the inputs")
+  public void testInferAll() {
+    final InferenceBroker<Integer, Integer> broker = new InferenceBroker<>("test", 4, 1, this::twice);
+    final List<Integer> inputs = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+    assertEquals(inputs.stream().map(i -> 2 * i).collect(Collectors.toList()), broker.inferAll(inputs));
+    assertEquals(10, this.batchSizes.stream().mapToInt(Integer::intValue).sum());
+    assertTrue(this.batchSizes.stream().allMatch(size -> size <= 4));
+    broker.close();
+  }
+
+  @Test
+  @DisplayName("A failing input only fails its own request")
+  public void testFailure() throws Exception {
+    final InferenceBroker<Integer, Integer> broker = new InferenceBroker<>("test", 2, 10_000, this::twice);
+    final List<Future<Integer>> results = this.submitConcurrently(broker, -1, 5);
+    final Exception e = assertThrows(Exception.class, () -> results.get(0).get());
+    assertTrue(e.getCause() instanceof IllegalArgumentException);
+    assertEquals(10, results.get(1).get());
+    assertTrue(broker.isBatching());
+    broker.close();
+  }
+
+  @Test
+  @DisplayName("Models that reject batches are run one input at a time")
+  public void testUnbatchedModel() {
+    final InferenceBroker<Integer, Integer> broker = new InferenceBroker<>("test", 3, 10_000, inputs -> {
+      if (inputs.size() > 1) {
+        throw new IllegalStateException("Batch dimension is fixed to one.");
+      }
+      return this.twice(inputs);
+    });
+    assertEquals(List.of(2, 4, 6), broker.inferAll(List.of(1, 2, 3)));
+    assertFalse(broker.isBatching());
+    this.batchSizes.clear();
+    assertEquals(List.of(8, 10), broker.inferAll(List.of(4, 5)));
+    assertEquals(List.of(1, 1), this.batchSizes);
+    broker.close();
+  }
+
+  @Test
+  @DisplayName("A maximum batch size of one runs requests on the calling thread")
+  public void testDirect() {
+    final InferenceBroker<Integer, Integer> broker = new InferenceBroker<>("test", 1, 10_000, inputs -> {
+      assertFalse(Thread.currentThread().getName().startsWith("inference-"));
+      return this.twice(inputs);
+    });
+    assertEquals(6, broker.infer(3));
+    assertThrows(IllegalArgumentException.class, () -> broker.infer(-3));
+  }
+
+  @Test
+  @DisplayName("Batch tensors are split along the first dimension")
+  public void testStack() {
+    final float[] batch = InferenceBroker.stack(List.of(new float[]{1, 2}, new float[]{3, 4}, new float[]{5, 6}));
+    assertEquals(6, batch.length);
+    final List<float[]> outputs = InferenceBroker.unstack(batch, 3);
+    assertEquals(3, outputs.size());
+    assertEquals(3f, outputs.get(1)[0]);
+    assertEquals(6f, outputs.get(2)[1]);
+  }
+}
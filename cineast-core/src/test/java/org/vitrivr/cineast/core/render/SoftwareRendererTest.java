@@ -0,0 +1,286 @@
+package org.vitrivr.cineast.core.render;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector4i;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.m3d.Mesh;
+import org.vitrivr.cineast.core.data.m3d.VoxelGrid;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.Material;
+import org.vitrivr.cineast.core.data.m3d.texturemodel.Model;
+import org.vitrivr.cineast.core.render.lwjgl.scene.lights.LightingOptions;
+
+public class SoftwareRendererTest {
+
+  private static final int SIZE = 64;
+
+  private static final int WHITE = Color.WHITE.getRGB();
+
+  private static final int BLACK = Color.BLACK.getRGB();
+
+  private static int[] pixels(BufferedImage image) {
+    return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+  }
+
+  /**
+   * Mesh consisting of two overlapping triangles; the first one is red and lies in front of the second, green one.
+   */
+  private static Mesh layers() {
+    final Mesh mesh = new Mesh(2, 6);
+    final Vector3f red = new Vector3f(1.0f, 0.0f, 0.0f);
+    final Vector3f green = new Vector3f(0.0f, 1.0f, 0.0f);
+    mesh.addVertex(new Vector3f(-0.5f, -0.5f, 0.5f), red);
+    mesh.addVertex(new Vector3f(0.5f, -0.5f, 0.5f), red);
+    mesh.addVertex(new Vector3f(0.0f, 0.5f, 0.5f), red);
+    mesh.addVertex(new Vector3f(-1.0f, -1.0f, -0.5f), green);
+    mesh.addVertex(new Vector3f(1.0f, -1.0f, -0.5f), green);
+    mesh.addVertex(new Vector3f(0.0f, 1.0f, -0.5f), green);
+    mesh.addFace(new Vector3i(0, 1, 2));
+    mesh.addFace(new Vector3i(3, 4, 5));
+    return mesh;
+  }
+
+  /**
+   * Square in the plane z = 0 that spans [-extent, extent] in x and y, facing +z.
+   */
+  private static Mesh square(float extent, Vector3f color) {
+    final Mesh mesh = new Mesh(1, 4);
+    mesh.addVertex(new Vector3f(-extent, -extent, 0.0f), color);
+    mesh.addVertex(new Vector3f(extent, -extent, 0.0f), color);
+    mesh.addVertex(new Vector3f(extent, extent, 0.0f), color);
+    mesh.addVertex(new Vector3f(-extent, extent, 0.0f), color);
+    mesh.addFace(new Vector4i(0, 1, 2, 3));
+    return mesh;
+  }
+
+  /**
+   * Unit square that is tilted by 30 degrees around the x-axis, such that its normal is (0, sin 30, cos 30).
+   *
+   * @param normals If true, the mesh has vertex normals.
+   */
+  private static Model tilted(boolean normals) {
+    final float c = (float) Math.cos(Math.toRadians(30.0));
+    final float s = (float) Math.sin(Math.toRadians(30.0));
+    final float[] positions = {-1.0f, -c, s, 1.0f, -c, s, 1.0f, c, -s, -1.0f, c, -s};
+    final float[] n = normals ? new float[]{0.0f, s, c, 0.0f, s, c, 0.0f, s, c, 0.0f, s, c} : null;
+    final Material material = new Material();
+    material.addMesh(new org.vitrivr.cineast.core.data.m3d.texturemodel.Mesh(positions, n, null, null, null, new int[]{0, 1, 2, 0, 2, 3}));
+    return new Model("tilted", List.of(material));
+  }
+
+  /**
+   * Color of a fragment as computed by the fragment shader of the LWJGL renderer for an untextured model: the white default texture plus the diffuse color, no ambient or specular material color.
+   */
+  private static int reference(float[] ambient, float[] directionalColor, Vector3f toDirectional, float[] pointColor, Vector3f pointPosition, Vector3f diffuse, Vector3f normal, Vector3f position) {
+    final float[] rgb = new float[3];
+    final Vector3f toPoint = new Vector3f(pointPosition).sub(position);
+    final float distance = toPoint.length();
+    toPoint.normalize();
+    for (int c = 0; c < 3; c++) {
+      final float material = 1.0f + diffuse.get(c);
+      rgb[c] = ambient[c] + material * directionalColor[c] * Math.max(normal.dot(toDirectional), 0.0f) + material * pointColor[c] * Math.max(normal.dot(toPoint), 0.0f) / (distance * distance);
+    }
+    return new Color(Math.min(rgb[0], 1.0f), Math.min(rgb[1], 1.0f), Math.min(rgb[2], 1.0f)).getRGB();
+  }
+
+  private static void assertColor(int expected, int actual) {
+    for (int shift = 0; shift < 24; shift += 8) {
+      assertTrue(Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF)) <= 1, String.format("Expected %06x but was %06x", expected & 0xFFFFFF, actual & 0xFFFFFF));
+    }
+  }
+
+  @Test
+  @DisplayName("Orthographic voxel silhouette")
+  public void testOrthographicVoxel() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setProjection(SoftwareRenderer.Projection.ORTHOGRAPHIC, 45.0f, 1.0f);
+    renderer.positionCamera(0.0, 0.0, 2.0);
+    renderer.assemble(new VoxelGrid(1, 1, 1, 1.0f));
+    assertEquals(12, renderer.triangles());
+    renderer.render();
+
+    final BufferedImage image = renderer.obtain();
+    assertEquals(BufferedImage.TYPE_INT_RGB, image.getType());
+    assertEquals(SIZE, image.getWidth());
+    assertEquals(SIZE, image.getHeight());
+
+    /* The unit cube covers half of the visible extent, i.e. pixels 16 to 47. */
+    assertEquals(WHITE, image.getRGB(32, 32));
+    assertEquals(WHITE, image.getRGB(16, 47));
+    assertEquals(BLACK, image.getRGB(15, 32));
+    assertEquals(BLACK, image.getRGB(32, 48));
+    assertEquals(BLACK, image.getRGB(0, 0));
+  }
+
+  @Test
+  @DisplayName("Nearer faces win the depth test, independent of their order")
+  public void testDepth() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.positionCamera(0.0, 0.0, 3.0);
+    renderer.assemble(layers());
+    renderer.render();
+    final BufferedImage front = renderer.obtain();
+    assertEquals(Color.RED.getRGB(), front.getRGB(32, 32));
+    assertEquals(Color.GREEN.getRGB(), front.getRGB(32, 14));
+
+    /* Seen from behind, the green triangle covers the red one. */
+    renderer.positionCamera(0.0, 0.0, -3.0);
+    renderer.render();
+    assertEquals(Color.GREEN.getRGB(), renderer.obtain().getRGB(32, 32));
+  }
+
+  @Test
+  @DisplayName("Faces that cross the near plane are clipped")
+  public void testNearPlane() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setColoring(SoftwareRenderer.Coloring.NORMAL);
+    renderer.assemble(new VoxelGrid(1, 1, 1, 1.0f));
+
+    /* From within the cube, only the face behind the center is visible; the side faces reach behind the camera. */
+    renderer.positionCamera(0.0, 0.0, 0.0, 0.0, 0.0, -1.0);
+    renderer.render();
+    for (int pixel : pixels(renderer.obtain())) {
+      assertEquals(Color.BLUE.getRGB(), pixel);
+    }
+  }
+
+  @Test
+  @DisplayName("Parallel views match individual renders")
+  public void testViews() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setColoring(SoftwareRenderer.Coloring.NORMAL);
+    renderer.assemble(new VoxelGrid(3, 3, 3, 0.2f));
+    final List<double[]> eyes = List.of(new double[]{1.0, 0.5, 1.0}, new double[]{0.0, 1.0, 0.0}, new double[]{-1.0, -1.0, 0.5}, new double[]{0.0, 0.0, -1.5});
+    for (LightingOptions lighting : new LightingOptions[]{null, LightingOptions.DIRECTIONAL_LIGHTING}) {
+      renderer.setLighting(lighting);
+      final List<BufferedImage> views = renderer.renderViews(eyes, 0.0, 0.0, 0.0);
+      assertEquals(eyes.size(), views.size());
+      for (int i = 0; i < eyes.size(); i++) {
+        renderer.positionCamera(eyes.get(i)[0], eyes.get(i)[1], eyes.get(i)[2]);
+        renderer.render();
+        assertArrayEquals(pixels(renderer.obtain()), pixels(views.get(i)));
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Static lighting draws the white silhouette of the LWJGL renderer")
+  public void testStaticLighting() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.assemble(tilted(true));
+    renderer.positionCamera(0.0, 0.0, 1.0);
+    renderer.render();
+    final int[] unlit = pixels(renderer.obtain());
+
+    renderer.setLighting(LightingOptions.STATIC);
+    renderer.render();
+    assertArrayEquals(unlit, pixels(renderer.obtain()));
+    assertEquals(WHITE, renderer.obtain().getRGB(32, 32));
+  }
+
+  @Test
+  @DisplayName("Directional lighting matches the fragment shader of the LWJGL renderer")
+  public void testDirectionalLighting() {
+    /* The light shines from the camera at (0, 0, 1) onto a face with normal (0, sin 30, cos 30). */
+    final Vector3f normal = new Vector3f(0.0f, (float) Math.sin(Math.toRadians(30.0)), (float) Math.cos(Math.toRadians(30.0)));
+    final float[] none = {0.0f, 0.0f, 0.0f};
+    final int expected = reference(none, new float[]{0.5f, 0.5f, 0.5f}, new Vector3f(0.0f, 0.0f, 1.0f), none, new Vector3f(0.0f, 0.0f, 1.0f), new Vector3f(1.0f), normal, new Vector3f());
+    assertEquals(221, expected & 0xFF);
+    for (boolean normals : new boolean[]{true, false}) {
+      final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+      renderer.setLighting(LightingOptions.DIRECTIONAL_LIGHTING);
+      renderer.assemble(tilted(normals));
+      renderer.positionCamera(0.0, 0.0, 1.0);
+      renderer.render();
+      final BufferedImage image = renderer.obtain();
+      for (int y = 28; y < 36; y++) {
+        for (int x = 28; x < 36; x++) {
+          assertColor(expected, image.getRGB(x, y));
+        }
+      }
+      assertEquals(BLACK, image.getRGB(0, 0));
+    }
+
+    /* The diffuse color of a red face is the white texture plus red. */
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setLighting(LightingOptions.DIRECTIONAL_LIGHTING);
+    renderer.assemble(square(0.5f, new Vector3f(1.0f, 0.0f, 0.0f)));
+    renderer.positionCamera(0.0, 0.0, 2.0);
+    renderer.render();
+    assertColor(new Color(255, 128, 128).getRGB(), renderer.obtain().getRGB(32, 32));
+  }
+
+  @Test
+  @DisplayName("Point lighting matches the fragment shader of the LWJGL renderer at every pixel")
+  public void testPointLighting() {
+    final double eye = 2.0;
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setLighting(LightingOptions.POINT_LIGHTING_ON_NO_TEXTURE);
+    renderer.assemble(square(0.5f, new Vector3f(0.0f, 0.0f, 0.0f)));
+    renderer.positionCamera(0.0, 0.0, eye);
+    final boolean textured = LightingOptions.POINT_LIGHTING_ON_NO_TEXTURE.hasNonDefaultTexture;
+    try {
+      LightingOptions.POINT_LIGHTING_ON_NO_TEXTURE.hasNonDefaultTexture = false;
+      renderer.render();
+    } finally {
+      LightingOptions.POINT_LIGHTING_ON_NO_TEXTURE.hasNonDefaultTexture = textured;
+    }
+    final BufferedImage image = renderer.obtain();
+
+    /* A directional light of intensity 0.1 and, as the LWJGL renderer sets them up before it moves the camera, three red point lights of intensity 0.1 / 3 at the camera. */
+    final float[] none = {0.0f, 0.0f, 0.0f};
+    final float[] directional = {0.1f, 0.1f, 0.1f};
+    final float[] point = {3.0f * 255.0f * 0.1f / 3.0f, 0.0f, 0.0f};
+    final Vector3f camera = new Vector3f(0.0f, 0.0f, (float) eye);
+    final double tan = Math.tan(Math.toRadians(45.0) / 2.0);
+    for (int y = 0; y < SIZE; y++) {
+      for (int x = 0; x < SIZE; x++) {
+        /* Intersection of the ray through the center of the pixel with the plane z = 0. */
+        final float px = (float) (eye * tan * ((x + 0.5) / SIZE * 2.0 - 1.0));
+        final float py = (float) (eye * tan * (1.0 - (y + 0.5) / SIZE * 2.0));
+        if (Math.abs(Math.abs(px) - 0.5f) < 0.05f || Math.abs(Math.abs(py) - 0.5f) < 0.05f) {
+          continue;
+        }
+        if (Math.abs(px) > 0.5f || Math.abs(py) > 0.5f) {
+          assertEquals(BLACK, image.getRGB(x, y));
+        } else {
+          assertColor(reference(none, directional, new Vector3f(camera).normalize(), point, camera, new Vector3f(), new Vector3f(0.0f, 0.0f, 1.0f), new Vector3f(px, py, 0.0f)), image.getRGB(x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Back faces are culled like in the LWJGL renderer")
+  public void testCulling() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.setCulling(true);
+    renderer.assemble(square(0.5f, new Vector3f(1.0f, 1.0f, 1.0f)));
+    renderer.positionCamera(0.0, 0.0, 2.0);
+    renderer.render();
+    assertEquals(WHITE, renderer.obtain().getRGB(32, 32));
+    renderer.positionCamera(0.0, 0.0, -2.0);
+    renderer.render();
+    assertEquals(BLACK, renderer.obtain().getRGB(32, 32));
+  }
+
+  @Test
+  @DisplayName("Clearing removes all objects and applies the background")
+  public void testClear() {
+    final SoftwareRenderer renderer = new SoftwareRenderer(SIZE, SIZE);
+    renderer.assemble(new VoxelGrid(1, 1, 1, 1.0f));
+    renderer.clear(Color.BLUE);
+    assertEquals(0, renderer.triangles());
+    renderer.positionCamera(0.0, 0.0, 2.0);
+    renderer.render();
+    assertEquals(Color.BLUE.getRGB(), renderer.obtain().getRGB(32, 32));
+  }
+}
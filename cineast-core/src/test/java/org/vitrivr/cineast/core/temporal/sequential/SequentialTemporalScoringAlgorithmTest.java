@@ -1,14 +1,27 @@
 package org.vitrivr.cineast.core.temporal.sequential;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.vitrivr.cineast.core.data.StringDoublePair;
 import org.vitrivr.cineast.core.data.TemporalObject;
 import org.vitrivr.cineast.core.data.entities.MediaSegmentDescriptor;
+import org.vitrivr.cineast.core.temporal.AbstractTemporalScoringAlgorithm;
+import org.vitrivr.cineast.core.temporal.ScoredSegment;
 import org.vitrivr.cineast.core.temporal.TemporalTestCases;
 
 public class SequentialTemporalScoringAlgorithmTest {
@@ -71,4 +84,117 @@ public void testTemporalTestCase4() {
     assert result.size() == 3;
   }
 
+
+  @Test
+  @DisplayName("Randomized comparison with the path enumeration")
+  public void testRandomized() {
+    final SplittableRandom random = new SplittableRandom(42);
+    for (int round = 0; round < 300; round++) {
+      final Map<String, MediaSegmentDescriptor> segmentMap = new HashMap<>();
+      final int objects = 1 + random.nextInt(4);
+      for (int o = 0; o < objects; o++) {
+        /* Objects are regular videos, image sequences (no absolute times) or have segments of varying length that are not ordered in time. */
+        final int kind = random.nextInt(3);
+        final int length = 1 + random.nextInt(10);
+        int start = 0;
+        for (int n = 1; n <= length; n++) {
+          final int duration = kind == 2 ? random.nextInt(25) : 10;
+          final int segmentStart = kind == 2 ? random.nextInt(10 * length) : start;
+          final float startAbs = kind == 1 ? 0f : segmentStart / 10f;
+          final float endAbs = kind == 1 ? 0f : (segmentStart + duration) / 10f;
+          final MediaSegmentDescriptor descriptor = new MediaSegmentDescriptor("o" + o, "o" + o + "_" + n, n, segmentStart, segmentStart + duration, startAbs, endAbs, true);
+          segmentMap.put(descriptor.getSegmentId(), descriptor);
+          start += duration;
+        }
+      }
+      final List<List<StringDoublePair>> containerResults = new ArrayList<>();
+      final int containers = 1 + random.nextInt(4);
+      for (int c = 0; c < containers; c++) {
+        final List<StringDoublePair> results = new ArrayList<>();
+        for (String segmentId : segmentMap.keySet()) {
+          if (random.nextInt(3) > 0) {
+            results.add(new StringDoublePair(segmentId, random.nextDouble()));
+          }
+        }
+        containerResults.add(results);
+      }
+      final float maxLength = random.nextInt(3) == 0 ? Float.MAX_VALUE : 5 + random.nextInt(60);
+
+      final List<TemporalObject> expected = new EnumeratingTemporalScoringAlgorithm(segmentMap, containerResults, maxLength).score();
+      final List<TemporalObject> actual = new SequentialTemporalScoringAlgorithm(segmentMap, containerResults, maxLength).score();
+      final String message = "round " + round;
+      assertEquals(expected.size(), actual.size(), message);
+      final Map<String, TemporalObject> byObject = actual.stream().collect(Collectors.toMap(TemporalObject::getObjectId, t -> t));
+      for (TemporalObject e : expected) {
+        final TemporalObject a = byObject.get(e.getObjectId());
+        assertEquals(e.getScore(), a.getScore(), 1e-9, message);
+        assertEquals(e.getSegments(), a.getSegments(), message);
+      }
+    }
+  }
+
+  /**
+   * The sequential scoring algorithm as it used to be implemented: every path starting at a segment is enumerated with a queue. Used as reference for the dynamic programming implementation.
+   */
+  private static final class EnumeratingTemporalScoringAlgorithm extends AbstractTemporalScoringAlgorithm {
+
+    private final Map<String, List<SequentialPath>> objectPaths = new HashMap<>();
+
+    private EnumeratingTemporalScoringAlgorithm(Map<String, MediaSegmentDescriptor> segmentMap, List<List<StringDoublePair>> containerResults, float maxLength) {
+      super(segmentMap, containerResults, maxLength);
+    }
+
+    @Override
+    public List<TemporalObject> score() {
+      for (IntObjectHashMap<ScoredSegment> segments : scoredSegmentStorage.values()) {
+        StreamSupport.stream(segments.values().spliterator(), false).forEach(scoredSegment -> {
+          MediaSegmentDescriptor mediaSegmentDescriptor = segmentMap.get(scoredSegment.value.getSegmentId());
+          SequentialPath sequentialPath = getBestPathForSegment(mediaSegmentDescriptor, scoredSegment.value);
+          objectPaths.computeIfAbsent(mediaSegmentDescriptor.getObjectId(), k -> new ArrayList<>()).add(sequentialPath);
+        });
+      }
+
+      List<TemporalObject> results = new ArrayList<>();
+      this.objectPaths.forEach((objectId, paths) -> {
+        double max = paths.stream().mapToDouble(n -> (n.getScore() / (this.maxContainerId + 1))).max().orElse(0D);
+        List<String> segmentIds = paths.stream().flatMap(listContainer -> listContainer.getSegmentIds().stream()).distinct().collect(Collectors.toList());
+        List<Integer> sequenceNumbers = this.getSequenceNumbers(segmentIds);
+        List<String> sortedSegments = new ArrayList<>(IntStream.range(0, segmentIds.size()).boxed().collect(Collectors.toMap(sequenceNumbers::get, segmentIds::get, (s, a) -> s + ", " + a, TreeMap::new)).values());
+        if (max > 0d) {
+          results.add(new TemporalObject(sortedSegments, objectId, max));
+        }
+      });
+      return results.stream().sorted(Comparator.comparingDouble(TemporalObject::getScore).reversed()).collect(Collectors.toList());
+    }
+
+    private SequentialPath getBestPathForSegment(MediaSegmentDescriptor mediaSegmentDescriptor, ScoredSegment scoredSegment) {
+      PriorityQueue<SequentialPath> pathQueue = new PriorityQueue<>();
+      SequentialPath initPath = new SequentialPath(mediaSegmentDescriptor.getObjectId(), scoredSegment);
+      SequentialPath bestPath = initPath;
+      pathQueue.add(initPath);
+      while (!pathQueue.isEmpty()) {
+        SequentialPath path = pathQueue.remove();
+        ScoredSegment lastHighestSegment = path.getCurrentLastSegment();
+        Set<ScoredSegment> potentialFollowingSegments = scoredSegmentSets.get(mediaSegmentDescriptor.getObjectId()).tailSet(lastHighestSegment);
+        for (ScoredSegment candidate : potentialFollowingSegments) {
+          if (candidate.getContainerId() <= lastHighestSegment.getContainerId() || candidate.getStart() < lastHighestSegment.getEnd() || candidate.getSequenceNumber() <= lastHighestSegment.getSequenceNumber()) {
+            continue;
+          }
+          boolean within = candidate.getEndAbs() == 0 ? candidate.getEnd() - scoredSegment.getStart() <= this.maxLength : candidate.getEndAbs() - scoredSegment.getStartAbs() <= this.maxLength;
+          if (!within) {
+            continue;
+          }
+          SequentialPath candidatePath = new SequentialPath(path);
+          candidatePath.addSegment(candidate);
+          if (bestPath.getScore() < candidatePath.getScore()) {
+            bestPath = candidatePath;
+          }
+          if (candidate.getContainerId() != this.maxContainerId) {
+            pathQueue.add(candidatePath);
+          }
+        }
+      }
+      return bestPath;
+    }
+  }
 }
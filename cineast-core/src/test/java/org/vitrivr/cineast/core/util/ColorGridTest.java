@@ -0,0 +1,111 @@
+package org.vitrivr.cineast.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.color.ColorConverter;
+import org.vitrivr.cineast.core.color.LabContainer;
+import org.vitrivr.cineast.core.color.LabLookupTable;
+import org.vitrivr.cineast.core.color.RGBContainer;
+import org.vitrivr.cineast.core.color.ReadableLabContainer;
+import org.vitrivr.cineast.core.color.ReadableRGBContainer;
+
+public class ColorGridTest {
+
+  /* Deliberately not a multiple of the grid size. */
+  private static final int WIDTH = 67;
+
+  private static final int HEIGHT = 29;
+
+  private static int[] randomImage(long seed) {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final int[] colors = new int[WIDTH * HEIGHT];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = ReadableRGBContainer.toIntColor(random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+    return colors;
+  }
+
+  private static List<Integer> boxed(int[] colors) {
+    final ArrayList<Integer> list = new ArrayList<>(colors.length);
+    for (int c : colors) {
+      list.add(c);
+    }
+    return list;
+  }
+
+  @Test
+  @DisplayName("Lookup table matches direct conversion")
+  public void testLookupTable() {
+    final SplittableRandom random = new SplittableRandom(1);
+    for (int i = 0; i < 10000; i++) {
+      final int rgb = random.nextInt(1 << 24);
+      final LabContainer expected = ColorConverter.RGBtoLab(new RGBContainer(rgb));
+      final ReadableLabContainer actual = LabLookupTable.lab(rgb);
+      assertEquals(expected.getL(), actual.getL());
+      assertEquals(expected.getA(), actual.getA());
+      assertEquals(expected.getB(), actual.getB());
+      assertEquals(expected.getChroma(), LabLookupTable.chroma(rgb));
+      assertEquals(expected.getSaturation(), LabLookupTable.saturation(rgb));
+    }
+  }
+
+  @Test
+  @DisplayName("Average Lab matches partitioned average")
+  public void testAverageLab() {
+    final int[] colors = randomImage(2);
+    final ArrayList<ReadableLabContainer> labs = new ArrayList<>(colors.length);
+    for (int c : colors) {
+      labs.add(ColorConverter.RGBtoLab(new RGBContainer(c)));
+    }
+    final ArrayList<LinkedList<ReadableLabContainer>> partitions = GridPartitioner.partition(labs, WIDTH, HEIGHT, 8, 8);
+    final float[] actual = ColorGrid.averageLab(colors, WIDTH, HEIGHT, 8, 8);
+    for (int i = 0; i < partitions.size(); i++) {
+      final ReadableLabContainer expected = ColorUtils.getAvg(partitions.get(i));
+      assertEquals(expected.getL(), actual[3 * i]);
+      assertEquals(expected.getA(), actual[3 * i + 1]);
+      assertEquals(expected.getB(), actual[3 * i + 2]);
+    }
+  }
+
+  @Test
+  @DisplayName("Average and median color match partitioned aggregates")
+  public void testAverageAndMedianColor() {
+    final int[] colors = randomImage(3);
+    final ArrayList<LinkedList<Integer>> partitions = GridPartitioner.partition(boxed(colors), WIDTH, HEIGHT, 8, 8);
+    final int[] avg = ColorGrid.averageColor(colors, WIDTH, HEIGHT, 8, 8);
+    final int[] median = ColorGrid.medianColor(colors, WIDTH, HEIGHT, 8, 8);
+    final float[] alpha = ColorGrid.averageAlpha(colors, WIDTH, HEIGHT, 8, 8);
+    for (int i = 0; i < partitions.size(); i++) {
+      assertEquals(ColorUtils.getAvg(partitions.get(i)), avg[i]);
+      assertEquals(ColorUtils.median(partitions.get(i)), median[i]);
+      assertEquals(ColorUtils.getAvgAlpha(partitions.get(i)), alpha[i]);
+    }
+  }
+
+  @Test
+  @DisplayName("Moments match SummaryStatistics")
+  public void testMoments() {
+    final SplittableRandom random = new SplittableRandom(4);
+    final ColorGrid.Moments moments = new ColorGrid.Moments(3);
+    final SummaryStatistics[] stats = {new SummaryStatistics(), new SummaryStatistics(), new SummaryStatistics()};
+    /* Cell 2 stays empty, cell 1 gets a single value. */
+    moments.add(1, 0.25);
+    stats[1].addValue(0.25);
+    for (int i = 0; i < 1000; i++) {
+      final double v = random.nextDouble() * 360;
+      moments.add(0, v);
+      stats[0].addValue(v);
+    }
+    for (int i = 0; i < 3; i++) {
+      assertEquals(stats[i].getMean(), moments.mean(i));
+      assertEquals(stats[i].getVariance(), moments.variance(i));
+    }
+  }
+}
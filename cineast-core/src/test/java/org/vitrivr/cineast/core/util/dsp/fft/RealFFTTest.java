@@ -0,0 +1,111 @@
+package org.vitrivr.cineast.core.util.dsp.fft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import org.apache.commons.math3.complex.Complex;
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.BlackmanHarrisWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.WindowFunction;
+
+public class RealFFTTest {
+
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  @DisplayName("Forward FFT matches FastFourierTransformer")
+  void testForward() {
+    final SplittableRandom random = new SplittableRandom(42);
+    for (int size = 1; size <= 4096; size *= 2) {
+      final double[] samples = random(random, size);
+      final Complex[] expected = new FastFourierTransformer(DftNormalization.STANDARD).transform(samples, TransformType.FORWARD);
+
+      final RealFFT fft = RealFFT.forSize(size);
+      final double[] buffer = new double[fft.length() + 3];
+      System.arraycopy(samples, 0, buffer, 3, size);
+      fft.forward(buffer, 3);
+
+      final double tolerance = EPSILON * size;
+      for (int k = 0; k < fft.bins(); k++) {
+        assertEquals(expected[k].getReal(), buffer[3 + 2 * k], tolerance, "Real part of bin " + k + " (size " + size + ")");
+        assertEquals(expected[k].getImaginary(), buffer[3 + 2 * k + 1], tolerance, "Imaginary part of bin " + k + " (size " + size + ")");
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("FFT values are conjugate symmetric")
+  void testValues() {
+    final SplittableRandom random = new SplittableRandom(7);
+    final double[] samples = random(random, 1000);
+    final FFT fft = new FFT();
+    fft.forward(samples, 22050, new HanningWindow());
+
+    final double[] padded = new double[1024];
+    for (int i = 0; i < samples.length; i++) {
+      padded[i] = samples[i] * new HanningWindow().value(i, padded.length);
+    }
+    final Complex[] expected = new FastFourierTransformer(DftNormalization.STANDARD).transform(padded, TransformType.FORWARD);
+    final Complex[] actual = fft.getValues();
+    assertEquals(expected.length, actual.length);
+    for (int k = 0; k < expected.length; k++) {
+      assertEquals(expected[k].getReal(), actual[k].getReal(), EPSILON * padded.length);
+      assertEquals(expected[k].getImaginary(), actual[k].getImaginary(), EPSILON * padded.length);
+    }
+  }
+
+  @Test
+  @DisplayName("STFT matrices match per-frame spectra")
+  void testSTFT() {
+    final SplittableRandom random = new SplittableRandom(13);
+    this.executeSTFTTest(random(random, 10_000), 1024, 256, 0, new HanningWindow());
+    this.executeSTFTTest(random(random, 10_000), 2048, 512, 100, new BlackmanHarrisWindow());
+    this.executeSTFTTest(random(random, 333), 512, 0, 0, new HanningWindow());
+  }
+
+  private void executeSTFTTest(double[] samples, int windowsize, int overlap, int padding, WindowFunction function) {
+    final STFT stft = new STFT(windowsize, overlap, padding, function, 44100);
+    stft.forward(samples);
+
+    final int increment = windowsize - overlap - 2 * padding;
+    final int length = windowsize - 2 * padding;
+    assertEquals((samples.length + increment - 1) / increment, stft.getWidth());
+    assertEquals(stft.getWidth(), stft.getTime().length);
+
+    final double[] power = stft.getPowerMatrix();
+    final double[] magnitude = stft.getMagnitudeMatrix();
+    final List<Spectrum> spectra = stft.getPowerSpectrum();
+    assertEquals(stft.getWidth() * stft.getHeight(), power.length);
+    assertEquals(stft.getWidth(), spectra.size());
+
+    for (int i = 0; i < stft.getWidth(); i++) {
+      final double[] window = new double[windowsize];
+      final int start = i * increment;
+      for (int j = 0; j < Math.min(length, samples.length - start); j++) {
+        window[padding + j] = samples[start + j] * function.value(padding + j, windowsize);
+      }
+      final Complex[] coefficients = new FastFourierTransformer(DftNormalization.STANDARD).transform(window, TransformType.FORWARD);
+      final Spectrum expectedPower = Spectrum.createPowerSpectrum(coefficients, 44100, function);
+      final Spectrum expectedMagnitude = Spectrum.createMagnitudeSpectrum(coefficients, 44100, function);
+      for (int k = 0; k < stft.getHeight(); k++) {
+        assertEquals(expectedPower.getValue(k), power[i * stft.getHeight() + k], EPSILON, "Power of bin " + k + " in frame " + i);
+        assertEquals(expectedPower.getValue(k), spectra.get(i).getValue(k), EPSILON, "Power of bin " + k + " in frame " + i);
+        assertEquals(expectedMagnitude.getValue(k), magnitude[i * stft.getHeight() + k], EPSILON, "Magnitude of bin " + k + " in frame " + i);
+      }
+    }
+  }
+
+  private static double[] random(SplittableRandom random, int length) {
+    final double[] samples = new double[length];
+    for (int i = 0; i < length; i++) {
+      samples[i] = random.nextDouble(-1.0, 1.0);
+    }
+    return samples;
+  }
+}
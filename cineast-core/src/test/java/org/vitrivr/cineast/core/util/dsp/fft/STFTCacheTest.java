@@ -0,0 +1,77 @@
+package org.vitrivr.cineast.core.util.dsp.fft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.BlackmanHarrisWindow;
+import org.vitrivr.cineast.core.util.dsp.fft.windows.HanningWindow;
+
+
+public class STFTCacheTest {
+
+  private static final float SAMPLINGRATE = 22050f;
+
+  private final AtomicInteger invocations = new AtomicInteger();
+
+  private final Supplier<double[]> samples = () -> {
+    this.invocations.incrementAndGet();
+    final double[] data = new double[22050];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = Math.sin(2 * Math.PI * 440 * i / SAMPLINGRATE);
+    }
+    return data;
+  };
+
+  @Test
+  @DisplayName("Identical parameters share one STFT")
+  void testMemoization() {
+    final STFTCache cache = new STFTCache();
+    final STFT first = cache.get(2048, 512, 0, new HanningWindow(), SAMPLINGRATE, this.samples);
+    final STFT second = cache.get(2048, 512, 0, new HanningWindow(), SAMPLINGRATE, this.samples);
+    final STFT other = cache.get(2048, 512, 0, new BlackmanHarrisWindow(), SAMPLINGRATE, this.samples);
+    assertSame(first, second);
+    assertNotSame(first, other);
+    assertEquals(1, this.invocations.get());
+
+    cache.clear();
+    assertNotSame(first, cache.get(2048, 512, 0, new HanningWindow(), SAMPLINGRATE, this.samples));
+    assertEquals(2, this.invocations.get());
+  }
+
+  @Test
+  @DisplayName("Concurrent callers wait for the same STFT")
+  void testConcurrentAccess() throws Exception {
+    final STFTCache cache = new STFTCache();
+    final int threads = 8;
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    try {
+      final List<Future<STFT>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return cache.get(4096, 1024, 512, new HanningWindow(), SAMPLINGRATE, this.samples);
+        }));
+      }
+      start.countDown();
+      final STFT expected = futures.get(0).get();
+      for (Future<STFT> future : futures) {
+        assertSame(expected, future.get());
+      }
+      assertEquals(1, this.invocations.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -10,7 +10,7 @@
 
 @Cli(name = "cineast-api", description = "The CLI provided by the Cineast API.", commands = {
         DropTableCommand.class, TagRetrievalCommand.class, OptimizeEntitiesCommand.class,
-        CodebookCommand.class, DatabaseSetupCommand.class, ExtractionCommand.class, ImportCommand.class,
+        CodebookCommand.class, DatabaseSetupCommand.class, ExtractionCommand.class, ImportCommand.class, ConvertJsonCommand.class,
         ThreeDeeTestCommand.class, ThreeDeeTextureTestCommand.class, RetrieveCommand.class, Help.class, SingleObjRetrievalCommand.class,
         TextRetrievalCommand.class, DistinctColumnApiCommand.class,
         PolyphenyBenchmarkCommand.class}, defaultCommand = Help.class, parserConfiguration = @Parser(errorHandler = CollectAll.class)
@@ -0,0 +1,40 @@
+package org.vitrivr.cineast.standalone.cli;
+
+import com.github.rvesse.airline.annotations.Command;
+import com.github.rvesse.airline.annotations.Option;
+import com.github.rvesse.airline.annotations.restrictions.Required;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.vitrivr.cineast.core.db.binary.BinaryStore;
+import org.vitrivr.cineast.core.db.binary.JsonToBinaryConverter;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * A CLI command that converts the files written by the JSON data source into the binary data source.
+ */
+@Command(name = "convert-json", description = "Converts the files written by the JSON data source into the binary data source.")
+public class ConvertJsonCommand extends AbstractCineastCommand {
+
+  @Required
+  @Option(name = {"-i", "--input"}, description = "The JSON file or a folder containing JSON files. Every file is converted into the entity with the name of the file.")
+  private String input;
+
+  @Option(name = {"-o", "--output"}, description = "The directory of the binary data source. Defaults to the host of the configured database.")
+  private String output;
+
+  @Option(name = {"--append"}, title = "Append", description = "Appends the rows to entities that already hold rows. Without this flag, nothing is converted if one of the entities already holds rows.")
+  private boolean append = false;
+
+  @Override
+  public void execute() {
+    final Path output = Paths.get(this.output != null ? this.output : Config.sharedConfig().getDatabase().getHost());
+    System.out.printf("Converting '%s' into the binary data source at '%s'.%n", this.input, output);
+    try {
+      final long rows = JsonToBinaryConverter.convert(Paths.get(this.input), BinaryStore.forDirectory(output), this.append);
+      System.out.printf("Converted %d rows.%n", rows);
+    } catch (IOException e) {
+      System.err.printf("Conversion of '%s' failed: %s%n", this.input, e.getMessage());
+    }
+  }
+}
@@ -38,6 +38,12 @@ public final class APIConfig {
   private boolean enableCLI = false;
   private int threadPoolSize = 8;
 
+  private int queryConcurrency = 4; /* Number of WebSocket queries (and their sub-tasks) executed concurrently. */
+  private int maxQueriesPerSession = 8; /* Number of WebSocket queries a single session may have queued or running. */
+  private int maxQueuedQueries = 64; /* Number of WebSocket queries waiting for execution across all sessions. */
+  private int queryPlanParallelism = 8; /* Number of threads executing the categories, stages and containers of REST queries. */
+  private int metadataLookupParallelism = 4; /* Number of concurrent metadata lookups per entity for WebSocket queries. */
+
   private boolean serveContent = false;
 
   /**
@@ -200,6 +206,51 @@ public void setThreadPoolSize(int threadPoolSize) {
     this.threadPoolSize = threadPoolSize;
   }
 
+  @JsonProperty
+  public int getQueryConcurrency() {
+    return queryConcurrency;
+  }
+
+  public void setQueryConcurrency(int queryConcurrency) {
+    this.queryConcurrency = queryConcurrency;
+  }
+
+  @JsonProperty
+  public int getMaxQueriesPerSession() {
+    return maxQueriesPerSession;
+  }
+
+  public void setMaxQueriesPerSession(int maxQueriesPerSession) {
+    this.maxQueriesPerSession = maxQueriesPerSession;
+  }
+
+  @JsonProperty
+  public int getMaxQueuedQueries() {
+    return maxQueuedQueries;
+  }
+
+  public void setMaxQueuedQueries(int maxQueuedQueries) {
+    this.maxQueuedQueries = maxQueuedQueries;
+  }
+
+  @JsonProperty
+  public int getQueryPlanParallelism() {
+    return queryPlanParallelism;
+  }
+
+  public void setQueryPlanParallelism(int queryPlanParallelism) {
+    this.queryPlanParallelism = queryPlanParallelism;
+  }
+
+  @JsonProperty
+  public int getMetadataLookupParallelism() {
+    return metadataLookupParallelism;
+  }
+
+  public void setMetadataLookupParallelism(int metadataLookupParallelism) {
+    this.metadataLookupParallelism = metadataLookupParallelism;
+  }
+
   @JsonProperty
   public String getThumbnailLocation() {
     return thumbnailLocation;
@@ -3,6 +3,7 @@
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.File;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 
 public final class ExtractionPipelineConfig {
 
@@ -21,12 +22,26 @@ public final class ExtractionPipelineConfig {
    */
   public static final int DEFAULT_SEGMENTQUEUE_SIZE = 10;
 
+  /**
+   * Default value for the number of files decoded and segmented concurrently per media type.
+   */
+  public static final int DEFAULT_DECODER_LANES = 1;
+
+  /**
+   * Default value for the frames kept by video segments, which computes their average and median images exactly.
+   */
+  public static final FrameRetention DEFAULT_FRAME_RETENTION = FrameRetention.ALL;
+
   private Integer shotQueueSize = DEFAULT_SEGMENTQUEUE_SIZE;
 
   private Integer threadPoolSize = DEFAULT_THREADPOOL_SIZE;
 
   private Integer taskQueueSize = DEFAULT_TASKQUEUE_SIZE;
 
+  private Integer decoderLanes = DEFAULT_DECODER_LANES;
+
+  private FrameRetention frameRetention = DEFAULT_FRAME_RETENTION;
+
   private File outputLocation = new File(".");
 
   /**
@@ -65,6 +80,24 @@ public void setTaskQueueSize(int taskQueueSize) {
     this.taskQueueSize = taskQueueSize;
   }
 
+  @JsonProperty
+  public Integer getDecoderLanes() {
+    return this.decoderLanes;
+  }
+
+  public void setDecoderLanes(int decoderLanes) {
+    this.decoderLanes = decoderLanes;
+  }
+
+  @JsonProperty
+  public FrameRetention getFrameRetention() {
+    return this.frameRetention;
+  }
+
+  public void setFrameRetention(FrameRetention frameRetention) {
+    this.frameRetention = frameRetention;
+  }
+
   @JsonProperty
   public boolean getEnableRenderWorker() {
     return this.enableRenderWorker;
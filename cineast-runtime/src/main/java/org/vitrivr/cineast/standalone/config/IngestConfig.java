@@ -15,6 +15,7 @@
 import org.vitrivr.cineast.core.config.IdConfig;
 import org.vitrivr.cineast.core.config.SegmenterConfig;
 import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.db.DBSelectorSupplier;
 import org.vitrivr.cineast.core.db.PersistencyWriter;
 import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
@@ -160,6 +161,12 @@ public IngestConfig(@JsonProperty(value = "type") MediaType type,
     if (this.pipeline.getShotQueueSize() == ExtractionPipelineConfig.DEFAULT_SEGMENTQUEUE_SIZE) {
       this.pipeline.setShotQueueSize(globalExt.getShotQueueSize());
     }
+    if (this.pipeline.getDecoderLanes() == ExtractionPipelineConfig.DEFAULT_DECODER_LANES) {
+      this.pipeline.setDecoderLanes(globalExt.getDecoderLanes());
+    }
+    if (this.pipeline.getFrameRetention() == ExtractionPipelineConfig.DEFAULT_FRAME_RETENTION) {
+      this.pipeline.setFrameRetention(globalExt.getFrameRetention());
+    }
 
     /* Set SegmenterConfig. */
     if (segmenter == null) {
@@ -271,6 +278,16 @@ public List<Extractor> exporters() {
         .collect(Collectors.toList());
   }
 
+  /**
+   * Returns the {@link FrameRetention} of this run, as configured for the extraction pipeline.
+   *
+   * @return {@link FrameRetention} of the {@link org.vitrivr.cineast.core.data.segments.VideoSegment}s of this run.
+   */
+  @Override
+  public FrameRetention frameRetention() {
+    return this.pipeline.getFrameRetention();
+  }
+
   /**
    * Returns a list of metadata extractor classes that should be invoked during extraction. MetadataExtractor's usually read some metadata from a file.
    *
@@ -379,6 +396,16 @@ public Integer segmentQueueSize() {
     return this.pipeline.getShotQueueSize();
   }
 
+  /**
+   * Returns the number of files of the same media type that are decoded and segmented concurrently.
+   *
+   * @return Number of decoder lanes.
+   */
+  @Override
+  public int decoderLanes() {
+    return this.pipeline.getDecoderLanes();
+  }
+
   /**
    * Returns the instance of {@link CacheConfig}.
    *
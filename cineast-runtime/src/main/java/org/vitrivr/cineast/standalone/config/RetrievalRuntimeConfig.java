@@ -98,6 +98,8 @@ public final class RetrievalRuntimeConfig {
   private int taskQueueSize = 10;
   private int maxResults = 100;
   private int resultsPerModule = 50;
+  private long queryTimeout = 0;
+  private long healthCheckInterval = 60_000;
   private HashMap<String, List<RetrieverConfig>> retrieverCategories = DEFAULT_RETRIEVER_CATEGORIES;
 
   @JsonCreator
@@ -141,6 +143,30 @@ public void setResultsPerModule(int resultsPerModule) {
     this.resultsPerModule = resultsPerModule;
   }
 
+  /**
+   * Deadline in milliseconds for the retrievers of a single query. Results of retrievers that miss it are dropped. A value of 0 disables the deadline.
+   */
+  @JsonProperty
+  public long getQueryTimeout() {
+    return this.queryTimeout;
+  }
+
+  public void setQueryTimeout(long queryTimeout) {
+    this.queryTimeout = queryTimeout;
+  }
+
+  /**
+   * Interval in milliseconds in which idle, pooled retrievers are checked for a working connection. A value of 0 disables the check.
+   */
+  @JsonProperty
+  public long getHealthCheckInterval() {
+    return this.healthCheckInterval;
+  }
+
+  public void setHealthCheckInterval(long healthCheckInterval) {
+    this.healthCheckInterval = healthCheckInterval;
+  }
+
   @JsonProperty("features")
   public List<String> getRetrieverCategories() {
     Set<String> keys = this.retrieverCategories.keySet();
@@ -150,6 +176,19 @@ public List<String> getRetrieverCategories() {
   }
 
 
+  /**
+   * Returns the {@link RetrieverConfig}s of the given category.
+   *
+   * @return List of configurations; empty if the category doesn't exist.
+   */
+  public List<RetrieverConfig> getRetrieverConfigsByCategory(String category) {
+    List<RetrieverConfig> list = this.retrieverCategories.get(category);
+    if (list == null) {
+      return new ArrayList<>(0);
+    }
+    return list;
+  }
+
   public ObjectDoubleHashMap<Retriever> getRetrieversByCategory(String category) {
     List<RetrieverConfig> list = this.retrieverCategories.get(category);
     if (list == null) {
@@ -159,19 +198,12 @@ public ObjectDoubleHashMap<Retriever> getRetrieversByCategory(String category) {
     ObjectDoubleHashMap<Retriever> _return = new ObjectDoubleHashMap<Retriever>(list.size());
     for (RetrieverConfig config : list) {
 
-      Retriever rev;
-
       if (config.getRetrieverClass() == null) {
         LOGGER.error("Could not find class {} in category {}, skipping retriever instantiation", config.getRetrieverClassName(), category);
         continue;
       }
 
-      if (config.getProperties() == null) {
-        rev = ReflectionHelper.instantiate(config.getRetrieverClass());
-      } else {
-        rev = ReflectionHelper.instantiate(config.getRetrieverClass(), config.getProperties());
-      }
-
+      Retriever rev = config.newRetriever();
       if (rev != null) {
         _return.put(rev, config.getWeight());
       }
@@ -180,6 +212,20 @@ public ObjectDoubleHashMap<Retriever> getRetrieversByCategory(String category) {
     return _return;
   }
 
+  /**
+   * Returns the first {@link RetrieverConfig} (over all categories) for the {@link Retriever} with the given simple class name.
+   */
+  public Optional<RetrieverConfig> getRetrieverConfigByName(String retrieverName) {
+    for (List<RetrieverConfig> configs : this.retrieverCategories.values()) {
+      for (RetrieverConfig config : configs) {
+        if (config.getRetrieverClass() != null && config.getRetrieverClass().getSimpleName().equals(retrieverName)) {
+          return Optional.of(config);
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
   public Optional<Retriever> getRetrieverByName(String retrieverName) {
     for (List<RetrieverConfig> configs : this.retrieverCategories
         .values()) {
@@ -55,4 +55,20 @@ public Map<String, String> getProperties() {
   public String getRetrieverClassName() {
     return retrieverClassName;
   }
+
+  /**
+   * Creates a new, uninitialized instance of the configured {@link Retriever}.
+   *
+   * @return The new instance or null, if it could not be instantiated.
+   */
+  public Retriever newRetriever() {
+    if (this.retrieverClass == null) {
+      return null;
+    }
+    if (this.properties == null) {
+      return ReflectionHelper.instantiate(this.retrieverClass);
+    } else {
+      return ReflectionHelper.instantiate(this.retrieverClass, this.properties);
+    }
+  }
 }
@@ -0,0 +1,56 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.dao.DescriptorCache;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports hit rate and memory footprint of the {@link DescriptorCache}s to Prometheus. Values are read from the caches whenever metrics are scraped.
+ */
+public class DescriptorCacheMonitor extends Collector {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static boolean initalized = false;
+
+  private static final List<DescriptorCache<?>> CACHES = List.of(DescriptorCache.SEGMENTS, DescriptorCache.OBJECTS);
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Descriptor Cache Monitor");
+    new DescriptorCacheMonitor().register();
+    initalized = true;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    final List<String> labels = List.of("Cache");
+    final CounterMetricFamily hits = new CounterMetricFamily("cineast_descriptorcache_hits", "Ids answered from the descriptor cache", labels);
+    final CounterMetricFamily misses = new CounterMetricFamily("cineast_descriptorcache_misses", "Ids looked up in the database", labels);
+    final GaugeMetricFamily ratio = new GaugeMetricFamily("cineast_descriptorcache_hit_ratio", "Fraction of ids answered from the descriptor cache", labels);
+    final GaugeMetricFamily entries = new GaugeMetricFamily("cineast_descriptorcache_entries", "Entries in the descriptor cache", labels);
+    final GaugeMetricFamily bytes = new GaugeMetricFamily("cineast_descriptorcache_bytes", "Estimated memory footprint of the descriptor cache in bytes", labels);
+    for (DescriptorCache<?> cache : CACHES) {
+      final List<String> label = List.of(cache.getName());
+      final long h = cache.getHits();
+      final long m = cache.getMisses();
+      hits.addMetric(label, h);
+      misses.addMetric(label, m);
+      ratio.addMetric(label, h + m == 0 ? 0.0 : (double) h / (h + m));
+      entries.addMetric(label, cache.size());
+      bytes.addMetric(label, cache.estimatedBytes());
+    }
+    return List.of(hits, misses, ratio, entries, bytes);
+  }
+}
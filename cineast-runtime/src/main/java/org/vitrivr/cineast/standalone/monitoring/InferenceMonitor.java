@@ -0,0 +1,60 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceBroker;
+import org.vitrivr.cineast.core.features.neuralnet.InferenceMetrics;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports the batching statistics of all {@link InferenceBroker}s to Prometheus. The per-model throughput is the rate of {@code cineast_inference_requests}.
+ */
+public class InferenceMonitor implements InferenceMetrics {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static boolean initalized = false;
+  private static Summary batchSize;
+  private static Summary batchTime;
+  private static Summary queueWait;
+  private static Counter requests;
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Inference Monitor");
+    batchSize = Summary.build().name("cineast_inference_batch_size")
+        .help("Requests per inference batch")
+        .labelNames("Model").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    batchTime = Summary.build().name("cineast_inference_batch_time")
+        .help("Time to run one inference batch in ms")
+        .labelNames("Model").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    queueWait = Summary.build().name("cineast_inference_queue_wait")
+        .help("Time a request waited for its inference batch in ms")
+        .labelNames("Model").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    requests = Counter.build().name("cineast_inference_requests")
+        .help("Inference requests processed")
+        .labelNames("Model").register();
+    InferenceBroker.setMetrics(new InferenceMonitor());
+    initalized = true;
+  }
+
+  @Override
+  public void reportQueueWait(String model, double milliseconds) {
+    queueWait.labels(model).observe(milliseconds);
+  }
+
+  @Override
+  public void reportBatch(String model, int size, double milliseconds) {
+    batchSize.labels(model).observe(size);
+    batchTime.labels(model).observe(milliseconds);
+    requests.labels(model).inc(size);
+  }
+}
@@ -51,6 +51,11 @@ public static synchronized void initialize() {
     ImportTaskMonitor.init();
     DatabaseHealthMonitor.init();
     RetrievalTaskMonitor.init();
+    RetrieverPoolMonitor.init();
+    WriteBehindMonitor.init();
+    QuerySchedulerMonitor.init();
+    DescriptorCacheMonitor.init();
+    InferenceMonitor.init();
     try {
       server.get().start();
     } catch (Exception e) {
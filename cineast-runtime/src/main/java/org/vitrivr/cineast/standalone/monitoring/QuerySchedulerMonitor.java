@@ -0,0 +1,69 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports queue wait times and admission decisions of the WebSocket query scheduler to Prometheus.
+ */
+public class QuerySchedulerMonitor {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static boolean initalized = false;
+  private static Summary waitTime;
+  private static Counter rejections;
+  private static Gauge queued;
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Query Scheduler Monitor");
+    waitTime = Summary.build().name("cineast_queryscheduler_wait_time")
+        .help("Time a query task spent queued before execution in ms")
+        .labelNames("Priority").quantile(0.5, 0.05).quantile(0.9, 0.01).quantile(0.99, 0.001).register();
+    rejections = Counter.build().name("cineast_queryscheduler_rejections")
+        .help("Queries rejected by admission control")
+        .labelNames("Reason").register();
+    queued = Gauge.build().name("cineast_queryscheduler_queued")
+        .help("Queries waiting for execution")
+        .register();
+    initalized = true;
+  }
+
+  /**
+   * You can call this method without worrying if prometheus support is enabled
+   */
+  public static void reportWaitTime(String priority, long miliseconds) {
+    if (waitTime != null) {
+      waitTime.labels(priority).observe(miliseconds);
+    }
+  }
+
+  /**
+   * You can call this method without worrying if prometheus support is enabled
+   */
+  public static void reportRejection(String reason) {
+    if (rejections != null) {
+      rejections.labels(reason).inc();
+    }
+  }
+
+  /**
+   * You can call this method without worrying if prometheus support is enabled
+   */
+  public static void reportQueued(int count) {
+    if (queued != null) {
+      queued.set(count);
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package org.vitrivr.cineast.standalone.monitoring;
 
+import io.prometheus.client.Counter;
 import io.prometheus.client.Summary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,6 +12,7 @@ public class RetrievalTaskMonitor {
   private static final Logger LOGGER = LogManager.getLogger();
   private static boolean initalized = false;
   private static Summary executionTime;
+  private static Counter timeouts;
 
   public static void init() {
     if (initalized) {
@@ -25,6 +27,9 @@ public static void init() {
     executionTime = Summary.build().name("cineast_retrievaltask")
         .help("Time for one query item")
         .labelNames("Retriever").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    timeouts = Counter.build().name("cineast_retrievaltask_timeouts")
+        .help("Retrieval tasks whose results were dropped because they missed the query deadline")
+        .labelNames("Retriever").register();
   }
 
   /**
@@ -36,4 +41,13 @@ public static void reportExecutionTime(String name, long miliseconds) {
     }
   }
 
+  /**
+   * You can call this method without worrying if prometheus support is enabled
+   */
+  public static void reportTimeout(String name) {
+    if (timeouts != null) {
+      timeouts.labels(name).inc();
+    }
+  }
+
 }
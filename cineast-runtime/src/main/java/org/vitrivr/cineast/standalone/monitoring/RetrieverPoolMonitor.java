@@ -0,0 +1,49 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports the results of the periodic health checks of the {@link org.vitrivr.cineast.standalone.runtime.RetrieverPool} to Prometheus.
+ */
+public class RetrieverPoolMonitor {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static boolean initalized = false;
+  private static Gauge healthy;
+  private static Counter discarded;
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Retriever Pool Monitor");
+    healthy = Gauge.build().name("cineast_retrieverpool_healthy")
+        .help("Idle pooled retrievers that passed the last health check")
+        .register();
+    discarded = Counter.build().name("cineast_retrieverpool_discarded")
+        .help("Idle pooled retrievers discarded by a health check because their connection was lost")
+        .register();
+    initalized = true;
+  }
+
+  /**
+   * You can call this method without worrying if prometheus support is enabled
+   */
+  public static void reportHealthCheck(int healthyCount, int discardedCount) {
+    if (healthy != null) {
+      healthy.set(healthyCount);
+    }
+    if (discarded != null) {
+      discarded.inc(discardedCount);
+    }
+  }
+}
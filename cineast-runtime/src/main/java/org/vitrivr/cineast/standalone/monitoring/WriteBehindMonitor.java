@@ -0,0 +1,65 @@
+package org.vitrivr.cineast.standalone.monitoring;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.dao.writer.AbstractBatchedEntityWriter;
+import org.vitrivr.cineast.core.db.dao.writer.WriteBehindMetrics;
+import org.vitrivr.cineast.standalone.config.Config;
+
+/**
+ * Exports the write-behind statistics of all {@link AbstractBatchedEntityWriter}s to Prometheus.
+ */
+public class WriteBehindMonitor implements WriteBehindMetrics {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+  private static boolean initalized = false;
+  private static Gauge queueDepth;
+  private static Summary batchSize;
+  private static Summary commitTime;
+  private static Counter backpressure;
+
+  public static void init() {
+    if (initalized) {
+      LOGGER.info("Already initalized, Returning");
+      return;
+    }
+    if (!Config.sharedConfig().getMonitoring().enablePrometheus) {
+      LOGGER.warn("Prometheus not enabled, returning");
+      return;
+    }
+    LOGGER.info("Initalizing Prometheus Write-Behind Monitor");
+    queueDepth = Gauge.build().name("cineast_writebehind_queue_depth")
+        .help("Tuples queued or in flight per entity")
+        .labelNames("Entity").register();
+    batchSize = Summary.build().name("cineast_writebehind_batch_size")
+        .help("Tuples per committed batch")
+        .labelNames("Entity").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    commitTime = Summary.build().name("cineast_writebehind_commit_time")
+        .help("Time to commit one batch in ms")
+        .labelNames("Entity").quantile(0.5, 0.05).quantile(0.9, 0.01).register();
+    backpressure = Counter.build().name("cineast_writebehind_backpressure")
+        .help("Writes that had to wait for the persistence layer")
+        .labelNames("Entity").register();
+    AbstractBatchedEntityWriter.setMetrics(new WriteBehindMonitor());
+    initalized = true;
+  }
+
+  @Override
+  public void reportQueueDepth(String entity, int depth) {
+    queueDepth.labels(entity).set(depth);
+  }
+
+  @Override
+  public void reportBatch(String entity, int size, long milliseconds) {
+    batchSize.labels(entity).observe(size);
+    commitTime.labels(entity).observe(milliseconds);
+  }
+
+  @Override
+  public void reportBackpressure(String entity) {
+    backpressure.labels(entity).inc();
+  }
+}
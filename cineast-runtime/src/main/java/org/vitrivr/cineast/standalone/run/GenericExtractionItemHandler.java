@@ -11,8 +11,12 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -72,16 +76,21 @@ public class GenericExtractionItemHandler implements Runnable, ExtractionItemPro
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  private final Supplier<PersistencyWriter<?>> writerSupplier;
+  private final Supplier<DBSelector> readerSupplier;
+  private final MediaObjectReader objectReader;
   private final MediaObjectWriter objectWriter;
-  private final MediaSegmentWriter mediaSegmentWriter;
   private final MediaObjectMetadataWriter metadataWriter;
-  private final MediaObjectReader objectReader;
-  private final MediaSegmentReader segmentReader;
   private final ExtractionContextProvider context;
   private final ExtractionContainerProvider pathProvider;
   private final MediaType mediaType;
 
-  private final ExecutorService executorService = Executors.newFixedThreadPool(2, r -> {
+  /**
+   * Number of files of the same {@link MediaType} that are decoded and segmented concurrently.
+   */
+  private final int lanesPerType;
+
+  private final ExecutorService executorService = Executors.newCachedThreadPool(r -> {
     Thread thread = new Thread(r);
     if (r instanceof ExtractionPipeline) {
       thread.setName("extraction-pipeline-thread");
@@ -97,6 +106,21 @@ public class GenericExtractionItemHandler implements Runnable, ExtractionItemPro
   private final ExtractionPipeline pipeline;
   private long count_processed = 0;
 
+  /**
+   * Queues of the {@link Lane}s, one per {@link MediaType}. Only accessed by the thread that dispatches the items.
+   */
+  private final Map<MediaType, BlockingQueue<Job>> laneQueues = new HashMap<>();
+
+  private final List<Future<?>> lanes = new ArrayList<>();
+
+  /**
+   * Jobs pass both sequencers in the order in which they have been dispatched: the first when their object descriptor (and thus their ID) is created and persisted, the second when they are committed.
+   */
+  private final Sequencer identification = new Sequencer();
+  private final Sequencer commits = new Sequencer();
+
+  private ObjectIdGenerator generator;
+
   private Map<MediaType, Pair<Supplier<Decoder>, Supplier<Segmenter>>> handlers = new HashMap<>();
 
   private Map<MediaType, Pair<Decoder, Segmenter>> handlerCache = new HashMap<>();
@@ -112,14 +136,12 @@ public GenericExtractionItemHandler(ExtractionContainerProvider pathProvider, Ex
     this.pathProvider = pathProvider;
     this.mediaType = mediaType;
 
-    final Supplier<PersistencyWriter<?>> writerSupplier = context.persistencyWriter();
-    this.objectWriter = new MediaObjectWriter(writerSupplier.get());
-    this.mediaSegmentWriter = new MediaSegmentWriter(writerSupplier.get());
-    this.metadataWriter = new MediaObjectMetadataWriter(writerSupplier.get());
-
-    final Supplier<DBSelector> readerSupplier = context.persistencyReader();
-    this.objectReader = new MediaObjectReader(readerSupplier.get());
-    this.segmentReader = new MediaSegmentReader(readerSupplier.get());
+    this.writerSupplier = context.persistencyWriter();
+    this.readerSupplier = context.persistencyReader();
+    this.objectReader = new MediaObjectReader(this.readerSupplier.get());
+    this.objectWriter = new MediaObjectWriter(this.writerSupplier.get());
+    this.metadataWriter = new MediaObjectMetadataWriter(this.writerSupplier.get());
+    this.lanesPerType = Math.max(1, context.decoderLanes());
 
     this.pipeline = new ExtractionPipeline(context);
     this.metadataExtractors = context.metadataExtractors();
@@ -159,7 +181,7 @@ public Set<MediaType> getMediaTypes() {
     if (segmenter != null) {
       segmenterTypes = segmenter.getMediaTypes();
       segmenterTypes.forEach(t -> {
-        handlers.put(t, new ImmutablePair<>(handlers.get(t).getLeft(), () -> segmenter));
+        handlers.put(t, new ImmutablePair<>(handlers.get(t).getLeft(), context::newSegmenter));
       });
       LOGGER.debug("Segmenter specified for media types {}, overwriting defaults", Arrays.toString(segmenterTypes.toArray()));
     } else {
@@ -214,13 +236,12 @@ public static MediaObjectDescriptor mergeItem(MediaObjectDescriptor descriptor,
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public void run() {
     LOGGER.info("Starting extraction");
 
     this.executorService.execute(pipeline);
 
-    final ObjectIdGenerator generator = this.context.objectIdGenerator();
+    this.generator = this.context.objectIdGenerator();
     Pair<ExtractionItemContainer, MediaType> pair = null;
 
     /* Initialize all Metadata Extractors */
@@ -233,135 +254,129 @@ public void run() {
       }
     }
 
-    /* Process until there's nothing left*/
+    /* Dispatch items to the lanes of their media type until there's nothing left. Descriptors (and thus IDs) are created by the lanes once a file could be opened, but still in the order of the items. */
+    long sequence = 0;
     while ((pair = this.nextItem()) != null) {
-      try {
-        LOGGER.debug("Processing path {} and mediatype {}", pair.getLeft(), pair.getRight());
-
-        if (handlerCache.get(pair.getRight()) == null) {
-          LOGGER.error("Unknown mediatype {}, exiting extraction", pair.getRight());
-          break;
-        }
+      LOGGER.debug("Dispatching path {} and mediatype {}", pair.getLeft(), pair.getRight());
 
-        /* Clear non-reusable segmenter */
-        handlerCache.compute(pair.getRight(), (mediaType, cache) -> {
-          Decoder decoder = null;
-          if (cache.getLeft() != null) {
-            if (cache.getLeft().canBeReused()) {
-              decoder = cache.getLeft();
-            }
-          }
-          return ImmutablePair.of(decoder, null);
-        });
-
-        /* Put a new decoder in the cache if there's not one already there */
-        if (handlerCache.get(pair.getRight()).getLeft() == null) {
-          Decoder decoder = handlers.get(pair.getRight()).getLeft().get();
-          handlerCache.compute(pair.getRight(), (mediaType, cache) -> new ImmutablePair<>(decoder, cache.getRight()));
-        }
-        /* Put a new segmenter in the cache if there's not one already there */
-        if (handlerCache.get(pair.getRight()).getRight() == null) {
-          Segmenter segmenter = handlers.get(pair.getRight()).getRight().get();
-          handlerCache.compute(pair.getRight(), (mediaType, cache) -> new ImmutablePair<>(cache.getLeft(), segmenter));
-        }
-
-        Decoder decoder = handlerCache.get(pair.getRight()).getLeft();
-        Segmenter segmenter = handlers.get(pair.getRight()).getRight().get();
+      if (handlers.get(pair.getRight()) == null) {
+        LOGGER.error("Unknown mediatype {}, exiting extraction", pair.getRight());
+        break;
+      }
 
-        if (decoder.init(pair.getLeft().getPathForExtraction(), Config.sharedConfig().getDecoders().get(pair.getRight()), Config.sharedConfig().getCache())) {
-          /* Create / lookup MediaObjectDescriptor for new file. */
-          final MediaObjectDescriptor descriptor = this
-              .fetchOrCreateMultimediaObjectDescriptor(generator, pair.getLeft(), pair.getRight());
-          if (!this.checkAndPersistMultimediaObject(descriptor)) {
-            continue;
-          }
+      try {
+        this.laneQueue(pair.getRight()).put(new Job(pair.getLeft(), pair.getRight(), sequence++));
+      } catch (InterruptedException e) {
+        LOGGER.log(Level.ERROR, "Thread was interrupted while the extraction process was running. Aborting...");
+        break;
+      }
+    }
+    this.awaitLanes();
+    shutdown();
+  }
 
-          final String objectId = descriptor.getObjectId();
-          int segmentNumber = 1;
-
-          segmenter.init(decoder, descriptor);
-          this.executorService.execute(segmenter);
-
-          while (!segmenter.complete()) {
-            try {
-              final SegmentContainer container = segmenter.getNext();
-              if (container != null) {
-                /* Create segment-descriptor and try to persist it. */
-                MediaSegmentDescriptor mediaSegmentDescriptor;
-                if (container.getId() != null) {
-                  mediaSegmentDescriptor = this.fetchOrCreateSegmentDescriptor(objectId, container.getId(), segmentNumber, container.getStart(), container.getEnd(), container.getAbsoluteStart(), container.getAbsoluteEnd()); /* Special case; segment ID is determined by container (image sequences only) */
-                } else {
-                  mediaSegmentDescriptor = this.fetchOrCreateSegmentDescriptor(objectId, segmentNumber, container.getStart(), container.getEnd(), container.getAbsoluteStart(), container.getAbsoluteEnd());
-                }
-                container.setId(mediaSegmentDescriptor.getSegmentId());
-                container.setSuperId(mediaSegmentDescriptor.getObjectId());
-                if (!this.checkAndPersistSegment(mediaSegmentDescriptor)) {
-                  continue;
-                }
-
-                int emissionTimeout = 1000;
-
-                while (!this.pipeline.emit(container, emissionTimeout)) {
-                  LOGGER.debug(
-                      "ExtractionPipeline is full - deferring emission of segment. Consider increasing the thread-pool count for the extraction pipeline.");
-                  Thread.sleep(emissionTimeout);
-                  //emissionTimeout += 500;
-                }
-
-                segmentNumber += 1;
-              }
-            } catch (InterruptedException e) {
-              LOGGER.log(Level.ERROR,
-                  "Thread was interrupted while the extraction process was running. Aborting...");
-              break;
-            }
-          }
+  /**
+   * Returns the queue of the {@link Lane}s for the given {@link MediaType}. Starts the lanes upon first use.
+   */
+  private BlockingQueue<Job> laneQueue(MediaType type) {
+    return this.laneQueues.computeIfAbsent(type, t -> {
+      final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(this.lanesPerType);
+      for (int i = 0; i < this.lanesPerType; i++) {
+        this.lanes.add(this.executorService.submit(new Lane(t, queue)));
+      }
+      LOGGER.debug("Started {} lane(s) for mediatype {}", this.lanesPerType, t);
+      return queue;
+    });
+  }
 
-          List<MediaObjectMetadataDescriptor> metadata = pair.getLeft().getMetadata().stream()
-              .map(el -> MediaObjectMetadataDescriptor.fromExisting(el, objectId))
-              .collect(Collectors.toList());
-          this.metadataWriter.write(metadata);
+  /**
+   * Signals all {@link Lane}s to stop once their queue is drained and waits for them to terminate.
+   */
+  private void awaitLanes() {
+    try {
+      for (BlockingQueue<Job> queue : this.laneQueues.values()) {
+        for (int i = 0; i < this.lanesPerType; i++) {
+          queue.put(Job.END);
+        }
+      }
+      for (Future<?> lane : this.lanes) {
+        lane.get();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while waiting for the decoder lanes to finish!");
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOGGER.error("Decoder lane terminated with an error: {}", LogHelper.getStackTrace(e.getCause()));
+    }
+  }
 
-          /* Extract metadata. */
-          this.extractAndPersistMetadata(pair.getLeft(), objectId);
+  /**
+   * Creates the object descriptor of a {@link Job} and persists it once the descriptors of all previously dispatched jobs have been created. IDs and the order of the objects are thus independent of the number of lanes.
+   *
+   * @param job    The {@link Job} whose descriptor should be created.
+   * @param create Whether to create the descriptor. If false, e.g. because the file could not be opened, the job merely passes its turn.
+   * @return The descriptor or null, if the object should not be processed further.
+   */
+  private MediaObjectDescriptor identify(Job job, boolean create) {
+    final boolean interrupted = this.identification.await(job.sequence());
+    try {
+      if (!create) {
+        return null;
+      }
+      final MediaObjectDescriptor descriptor = this.fetchOrCreateMultimediaObjectDescriptor(this.generator, job.item(), job.type());
+      return this.checkAndPersistMultimediaObject(descriptor) ? descriptor : null;
+    } finally {
+      this.identification.pass();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 
-          /* Force flush the segment, object and metadata information. */
-          this.mediaSegmentWriter.flush();
-          this.objectWriter.flush();
-          this.metadataWriter.flush();
-        } else {
-          LOGGER.error("Failed to initialize decoder. File is being skipped...");
-        }
+  /**
+   * Commits a {@link Job} once all previously dispatched jobs have been committed: persists the object's metadata, flushes the writers and waits until everything written for the object has been persisted. Also notifies the {@link ExtractionCompleteListener}s, so metadata extractors and listeners never run concurrently.
+   *
+   * @param job       The {@link Job} to commit.
+   * @param lane      The {@link Lane} that processed the job.
+   * @param segmented Descriptor of the object if it has been segmented, i.e. if its metadata should be persisted, null otherwise.
+   * @param completed Whether the listeners should be notified about the object.
+   */
+  private void commit(Job job, Lane lane, MediaObjectDescriptor segmented, boolean completed) {
+    final boolean interrupted = this.commits.await(job.sequence());
+    try {
+      if (segmented != null) {
+        List<MediaObjectMetadataDescriptor> metadata = job.item().getMetadata().stream()
+            .map(el -> MediaObjectMetadataDescriptor.fromExisting(el, segmented.getObjectId()))
+            .collect(Collectors.toList());
+        this.metadataWriter.write(metadata);
+
+        /* Extract metadata. */
+        this.extractAndPersistMetadata(job.item(), segmented.getObjectId());
+      }
 
+      /* Force flush the segment, object and metadata information (concurrently) and wait until it has been persisted. */
+      lane.segmentWriter.flushAsync();
+      this.objectWriter.flushAsync();
+      this.metadataWriter.flushAsync();
+      lane.segmentWriter.flushAndAwait();
+      this.objectWriter.flushAndAwait();
+      this.metadataWriter.flushAndAwait();
 
+      if (completed) {
         /* Increment the files counter. */
         this.count_processed += 1;
-
-        /*  Create new decoder pair for a new file if the decoder reports that it cannot be reused.*/
-        if (!decoder.canBeReused()) {
-          decoder.close();
-          final MediaType type = pair.getRight();
-          handlerCache.compute(type, (mediaType, cache) -> ImmutablePair.of(handlers.get(type).getLeft().get(), cache.getRight()));
-        }
-        //We assume segmenters are reusable
-
         for (ExtractionCompleteListener completeListener : this.completeListeners) {
-          completeListener.onCompleted(pair.getLeft());
+          completeListener.onCompleted(job.item());
         }
-
-        /*
-         * Trigger garbage collection once in a while. This is specially relevant when many small files are processed, since unused allocated memory could accumulate and trigger swapping.
-         */
-        if (this.count_processed % 10 == 0) {
-          System.gc();
-        }
-      } catch (Throwable t) {
-        LOGGER.error("Exception while processing path {}, {}", pair.getLeft(), t.getMessage());
-        System.gc();
-        t.printStackTrace();
+      }
+    } catch (Throwable t) {
+      LOGGER.error("Exception while persisting path {}, {}", job.item(), LogHelper.getStackTrace(t));
+    } finally {
+      this.commits.pass();
+      if (interrupted) {
+        Thread.currentThread().interrupt();
       }
     }
-    shutdown();
   }
 
   /**
@@ -369,8 +384,6 @@ public void run() {
    */
   private void shutdown() {
     try {
-      Thread.sleep(5000);
-
       LOGGER.info("File decoding and segmenting complete! Shutting down...");
       this.executorService.shutdown();
       this.pipeline.stop();
@@ -389,11 +402,9 @@ private void shutdown() {
         pathProvider.close();
       }
 
-      this.mediaSegmentWriter.close();
       this.objectWriter.close();
       this.metadataWriter.close();
       this.objectReader.close();
-      this.segmentReader.close();
       this.handlerCache.values().forEach(el -> {
         if (el.getLeft() != null) {
           el.getLeft().close();
@@ -510,10 +521,11 @@ protected boolean checkAndPersistMultimediaObject(MediaObjectDescriptor descript
   /**
    * Persists a MediaSegmentDescriptor and performs an existence check before, if so configured. Based on the outcome of that persistence check and the settings in the ExtractionContext this method returns true if segment should be processed further or false otherwise.
    *
+   * @param writer     MediaSegmentWriter used to persist the descriptor.
    * @param descriptor MediaSegmentDescriptor that should be persisted.
    * @return true if segment should be processed further or false if it should be skipped.
    */
-  protected boolean checkAndPersistSegment(MediaSegmentDescriptor descriptor) {
+  protected boolean checkAndPersistSegment(MediaSegmentWriter writer, MediaSegmentDescriptor descriptor) {
     if (descriptor.exists()
         && this.context.existenceCheck() == IdConfig.ExistenceCheck.SKIP_IF_EXISTS) {
       LOGGER.info("Segment {} already exists. This segment will be skipped.",
@@ -524,7 +536,7 @@ protected boolean checkAndPersistSegment(MediaSegmentDescriptor descriptor) {
       LOGGER.info("Segment {} already exists. Proceeding anyway...", descriptor.getSegmentId());
       return true;
     } else {
-      this.mediaSegmentWriter.write(descriptor);
+      writer.write(descriptor);
       return true;
     }
   }
@@ -545,9 +557,9 @@ protected MediaObjectDescriptor fetchOrCreateMultimediaObjectDescriptor(
    *
    * @return {@link MediaSegmentDescriptor}
    */
-  protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(String objectId, int segmentNumber, int start, int end, float startabs, float endabs) {
+  protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(MediaSegmentReader reader, String objectId, int segmentNumber, int start, int end, float startabs, float endabs) {
     String segmentId = MediaType.generateSegmentId(objectId, segmentNumber);
-    return this.segmentReader.lookUpSegment(segmentId).orElse(new MediaSegmentDescriptor(objectId, segmentId, segmentNumber, start, end, startabs, endabs, false));
+    return reader.lookUpSegment(segmentId).orElse(new MediaSegmentDescriptor(objectId, segmentId, segmentNumber, start, end, startabs, endabs, false));
   }
 
   /**
@@ -555,8 +567,8 @@ protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(String objectId,
    *
    * @return {@link MediaSegmentDescriptor}
    */
-  protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(String objectId, String segmentId, int segmentNumber, int start, int end, float startabs, float endabs) {
-    return this.segmentReader.lookUpSegment(segmentId).orElse(new MediaSegmentDescriptor(objectId, segmentId, segmentNumber, start, end, startabs, endabs, false));
+  protected MediaSegmentDescriptor fetchOrCreateSegmentDescriptor(MediaSegmentReader reader, String objectId, String segmentId, int segmentNumber, int start, int end, float startabs, float endabs) {
+    return reader.lookUpSegment(segmentId).orElse(new MediaSegmentDescriptor(objectId, segmentId, segmentNumber, start, end, startabs, endabs, false));
   }
 
   protected void extractAndPersistMetadata(ExtractionItemContainer item, String objectId) {
@@ -581,4 +593,172 @@ public void addExtractionCompleteListener(ExtractionCompleteListener listener) {
       completeListeners.add(listener);
     }
   }
+
+  /**
+   * A single item dispatched to a {@link Lane}, along with its position in the order of dispatching.
+   */
+  private record Job(ExtractionItemContainer item, MediaType type, long sequence) {
+
+    /**
+     * Signals a {@link Lane} to terminate.
+     */
+    private static final Job END = new Job(null, null, -1);
+  }
+
+  /**
+   * Lets {@link Job}s pass one at a time, in the order in which they have been dispatched. Every dispatched job has to pass exactly once.
+   */
+  private static final class Sequencer {
+
+    private long next = 0;
+
+    /**
+     * Waits until all previously dispatched jobs have passed. Interrupts are deferred, since the job still has to pass.
+     *
+     * @return True if the thread has been interrupted while waiting.
+     */
+    private synchronized boolean await(long sequence) {
+      boolean interrupted = false;
+      while (this.next != sequence) {
+        try {
+          this.wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      return interrupted;
+    }
+
+    private synchronized void pass() {
+      this.next += 1;
+      this.notifyAll();
+    }
+  }
+
+  /**
+   * Decodes and segments the items of a single {@link MediaType}, one at a time. Every lane has its own decoder, segment writer and segment reader; all lanes feed the shared {@link ExtractionPipeline}. Objects and their metadata are persisted through the writers of the handler, in the order of the items.
+   */
+  private final class Lane implements Runnable {
+
+    private final MediaType type;
+    private final BlockingQueue<Job> queue;
+    private final MediaSegmentWriter segmentWriter;
+    private final MediaSegmentReader segmentReader;
+    private Decoder decoder;
+
+    private Lane(MediaType type, BlockingQueue<Job> queue) {
+      this.type = type;
+      this.queue = queue;
+      this.segmentWriter = new MediaSegmentWriter(writerSupplier.get());
+      this.segmentReader = new MediaSegmentReader(readerSupplier.get());
+    }
+
+    @Override
+    public void run() {
+      try {
+        Job job;
+        while ((job = this.queue.take()) != Job.END) {
+          this.process(job);
+        }
+      } catch (InterruptedException e) {
+        LOGGER.log(Level.ERROR, "Thread was interrupted while the extraction process was running. Aborting...");
+      } finally {
+        if (this.decoder != null) {
+          this.decoder.close();
+        }
+        this.segmentWriter.close();
+        this.segmentReader.close();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void process(Job job) {
+      MediaObjectDescriptor descriptor = null;
+      boolean identified = false;
+      boolean segmented = false;
+      boolean completed = false;
+      try {
+        LOGGER.debug("Processing path {} and mediatype {}", job.item().getPathForExtraction(), this.type);
+
+        /* Create new decoder if the previous one reported that it cannot be reused. */
+        if (this.decoder == null) {
+          this.decoder = handlers.get(this.type).getLeft().get();
+        }
+        final Decoder decoder = this.decoder;
+
+        final boolean initialized = decoder.init(job.item().getPathForExtraction(), Config.sharedConfig().getDecoders().get(this.type), Config.sharedConfig().getCache());
+        identified = true;
+        descriptor = identify(job, initialized);
+        if (!initialized) {
+          LOGGER.error("Failed to initialize decoder. File is being skipped...");
+          completed = true;
+        } else if (descriptor != null) {
+          this.segment(decoder, descriptor);
+          segmented = true;
+          completed = true;
+        }
+
+        if (!decoder.canBeReused()) {
+          decoder.close();
+          this.decoder = null;
+        }
+      } catch (Throwable t) {
+        LOGGER.error("Exception while processing path {}, {}", job.item(), LogHelper.getStackTrace(t));
+        segmented = false;
+        completed = false;
+      } finally {
+        if (!identified) {
+          identify(job, false);
+        }
+        commit(job, this, segmented ? descriptor : null, completed);
+      }
+    }
+
+    /**
+     * Segments the content of the given (initialized) decoder and emits the segments into the {@link ExtractionPipeline}.
+     */
+    @SuppressWarnings("unchecked")
+    private void segment(Decoder decoder, MediaObjectDescriptor descriptor) {
+      final String objectId = descriptor.getObjectId();
+      int segmentNumber = 1;
+
+      final Segmenter segmenter = handlers.get(this.type).getRight().get();
+      segmenter.init(decoder, descriptor);
+      executorService.execute(segmenter);
+
+      while (!segmenter.complete()) {
+        try {
+          final SegmentContainer container = segmenter.getNext();
+          if (container != null) {
+            /* Create segment-descriptor and try to persist it. */
+            MediaSegmentDescriptor mediaSegmentDescriptor;
+            if (container.getId() != null) {
+              mediaSegmentDescriptor = fetchOrCreateSegmentDescriptor(this.segmentReader, objectId, container.getId(), segmentNumber, container.getStart(), container.getEnd(), container.getAbsoluteStart(), container.getAbsoluteEnd()); /* Special case; segment ID is determined by container (image sequences only) */
+            } else {
+              mediaSegmentDescriptor = fetchOrCreateSegmentDescriptor(this.segmentReader, objectId, segmentNumber, container.getStart(), container.getEnd(), container.getAbsoluteStart(), container.getAbsoluteEnd());
+            }
+            container.setId(mediaSegmentDescriptor.getSegmentId());
+            container.setSuperId(mediaSegmentDescriptor.getObjectId());
+            if (!checkAndPersistSegment(this.segmentWriter, mediaSegmentDescriptor)) {
+              continue;
+            }
+
+            int emissionTimeout = 1000;
+
+            while (!pipeline.emit(container, emissionTimeout)) {
+              LOGGER.debug(
+                  "ExtractionPipeline is full - deferring emission of segment. Consider increasing the thread-pool count for the extraction pipeline.");
+              Thread.sleep(emissionTimeout);
+            }
+
+            segmentNumber += 1;
+          }
+        } catch (InterruptedException e) {
+          LOGGER.log(Level.ERROR,
+              "Thread was interrupted while the extraction process was running. Aborting...");
+          break;
+        }
+      }
+    }
+  }
 }
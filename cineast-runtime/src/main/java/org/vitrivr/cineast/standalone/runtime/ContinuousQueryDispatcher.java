@@ -8,14 +8,21 @@
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,6 +42,7 @@
 import org.vitrivr.cineast.core.util.ScoreFusion;
 import org.vitrivr.cineast.core.util.math.MathHelper;
 import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.monitoring.RetrievalTaskMonitor;
 
 public class ContinuousQueryDispatcher {
 
@@ -44,6 +52,7 @@ public class ContinuousQueryDispatcher {
   private static final int THREAD_COUNT = Config.sharedConfig().getRetriever().getThreadPoolSize();
   private static final int MAX_RESULTS = Config.sharedConfig().getRetriever().getMaxResults();
   private static final int KEEP_ALIVE_TIME = 60;
+  private static final long QUERY_TIMEOUT = Config.sharedConfig().getRetriever().getQueryTimeout();
 
   private static final LimitedQueue<Runnable> taskQueue = new LimitedQueue<>(TASK_QUEUE_SIZE);
   private static ExecutorService executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_TIME, TimeUnit.SECONDS, taskQueue);
@@ -54,6 +63,11 @@ public class ContinuousQueryDispatcher {
   private final MediaSegmentReader mediaSegmentReader;
   private final double retrieverWeightSum;
 
+  /**
+   * True once {@link #doRetrieve()} has folded in the results of every {@link Retriever}, i.e. no retriever has missed the deadline, failed or been abandoned. Only complete results are cached.
+   */
+  private boolean complete = false;
+
   private static final boolean QUERY_CACHE_ENABLED = Config.sharedConfig().getCache().isEnableQueryCaching();
   private static final int QUERY_CACHE_SIZE = QUERY_CACHE_ENABLED ? Config.sharedConfig().getCache().getQueryCacheSize() : 0;
   private static final long QUERY_CACHE_LIFE = QUERY_CACHE_ENABLED ? Config.sharedConfig().getCache().getQueryCacheDuration() : 0L;
@@ -89,8 +103,13 @@ public static List<SegmentScoreElement> retrieve(AbstractQueryTermContainer quer
       List<SegmentScoreElement> result = queryCache.getIfPresent(cacheKey);
 
       if (result == null) {
-        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
-        queryCache.put(cacheKey, result);
+        ContinuousQueryDispatcher dispatcher = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, query, config), retrievers, initializer, mediaSegmentReader);
+        result = dispatcher.doRetrieve();
+        if (dispatcher.complete) {
+          queryCache.put(cacheKey, result);
+        }
+      } else {
+        release(retrievers, initializer);
       }
 
       return result;
@@ -109,8 +128,13 @@ public static List<SegmentScoreElement> retrieve(String segmentId, ObjectDoubleH
       List<SegmentScoreElement> result = queryCache.getIfPresent(cacheKey);
 
       if (result == null) {
-        result = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), retrievers, initializer, mediaSegmentReader).doRetrieve();
-        queryCache.put(cacheKey, result);
+        ContinuousQueryDispatcher dispatcher = new ContinuousQueryDispatcher(r -> new RetrievalTask(r, segmentId, config), retrievers, initializer, mediaSegmentReader);
+        result = dispatcher.doRetrieve();
+        if (dispatcher.complete) {
+          queryCache.put(cacheKey, result);
+        }
+      } else {
+        release(retrievers, initializer);
       }
 
       return result;
@@ -119,6 +143,15 @@ public static List<SegmentScoreElement> retrieve(String segmentId, ObjectDoubleH
     }
   }
 
+  /**
+   * Hands back {@link Retriever}s that were not needed because the results were cached.
+   */
+  private static void release(ObjectDoubleHashMap<Retriever> retrievers, RetrieverInitializer initializer) {
+    for (ObjectDoubleCursor<Retriever> retriever : retrievers) {
+      initializer.release(retriever.key);
+    }
+  }
+
   public static void shutdown() {
     clearExecutor();
   }
@@ -153,61 +186,106 @@ private List<SegmentScoreElement> doRetrieve() {
     LOGGER.trace("Initializing executor with retrievers {}", retrieverWeights);
     initExecutor();
     LOGGER.trace("Starting tasks with retrievers {}", retrieverWeights);
-    List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures = this.startTasks();
+    CompletionService<Pair<RetrievalTask, List<ScoreElement>>> completionService = new ExecutorCompletionService<>(executor);
+    Map<Future<Pair<RetrievalTask, List<ScoreElement>>>, TrackedTask> tasks = this.startTasks(completionService);
     LOGGER.trace("Extracting results with retrievers {}", retrieverWeights);
-    List<SegmentScoreElement> segmentScores = this.extractResults(futures, this.mediaSegmentReader);
+    Set<Retriever> abandoned = new HashSet<>();
+    Set<Retriever> failed = new HashSet<>();
+    List<SegmentScoreElement> segmentScores = this.extractResults(completionService, tasks, abandoned, failed, this.mediaSegmentReader);
     LOGGER.trace("Retrieved {} results, finishing", segmentScores.size());
-    this.finish();
+    this.finish(abandoned, failed);
     return segmentScores;
   }
 
-  private List<Future<Pair<RetrievalTask, List<ScoreElement>>>> startTasks() {
-    List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures = new LinkedList<>();
+  private Map<Future<Pair<RetrievalTask, List<ScoreElement>>>, TrackedTask> startTasks(CompletionService<Pair<RetrievalTask, List<ScoreElement>>> completionService) {
+    Map<Future<Pair<RetrievalTask, List<ScoreElement>>>, TrackedTask> tasks = new HashMap<>();
     this.retrieverWeights.forEach((ObjectDoublePredicate<? super Retriever>) (r, weight) -> {
       if (weight > 0) {
         this.initializer.initialize(r);
-        RetrievalTask task = taskFactory.apply(r);
-        futures.add(executor.submit(task));
+        TrackedTask task = new TrackedTask(taskFactory.apply(r), this.initializer);
+        tasks.put(completionService.submit(task), task);
       }
       return true;
     });
-    return futures;
+    return tasks;
   }
 
-  private List<SegmentScoreElement> extractResults(List<Future<Pair<RetrievalTask, List<ScoreElement>>>> futures, MediaSegmentReader mediaSegmentReader) {
+  /**
+   * Folds the results of the retrieval tasks into the score maps in the order in which the tasks complete. Tasks that have not completed when the query deadline ({@link #QUERY_TIMEOUT}) passes are abandoned and their results dropped. If the calling thread is interrupted, the remaining tasks are abandoned as well, but are not reported as deadline misses, and the interrupt flag is restored. Sets {@link #complete} if the results of all tasks have been folded in.
+   *
+   * @param abandoned Set to which the {@link Retriever}s are added that are still running after the deadline and are released by their own task.
+   * @param failed    Set to which the {@link Retriever}s are added whose task failed.
+   */
+  private List<SegmentScoreElement> extractResults(CompletionService<Pair<RetrievalTask, List<ScoreElement>>> completionService, Map<Future<Pair<RetrievalTask, List<ScoreElement>>>, TrackedTask> tasks, Set<Retriever> abandoned, Set<Retriever> failed, MediaSegmentReader mediaSegmentReader) {
     ObjectDoubleMap<String> scoreByObjectId = new ObjectDoubleHashMap<>();
     ObjectDoubleMap<String> scoreBySegmentId = new ObjectDoubleHashMap<>();
-    while (!futures.isEmpty()) {
-      Iterator<Future<Pair<RetrievalTask, List<ScoreElement>>>> iterator = futures.iterator();
-      while (iterator.hasNext()) {
-        Future<Pair<RetrievalTask, List<ScoreElement>>> future = iterator.next();
-        if (!future.isDone()) {
-          continue;
-        }
-
-        try {
-          Pair<RetrievalTask, List<ScoreElement>> pair = future.get();
-          this.addRetrievalResult(scoreByObjectId, scoreBySegmentId, pair.first, pair.second);
-        } catch (InterruptedException | ExecutionException e) {
-          LOGGER.warn(LogHelper.getStackTrace(e));
+    final long deadline = QUERY_TIMEOUT > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUERY_TIMEOUT) : 0L;
+    boolean interrupted = false;
+    boolean complete = true;
+    while (!tasks.isEmpty()) {
+      Future<Pair<RetrievalTask, List<ScoreElement>>> future;
+      try {
+        if (deadline == 0L) {
+          future = completionService.take();
+        } else {
+          future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
         }
-        iterator.remove();
+      } catch (InterruptedException e) {
+        LOGGER.warn("Interrupted while waiting for retrieval results.");
+        Thread.currentThread().interrupt();
+        interrupted = true;
+        break;
+      }
+      if (future == null) {
+        break; /* Deadline has passed. */
       }
+
+      TrackedTask task = tasks.remove(future);
       try {
-        Thread.sleep(10);
+        Pair<RetrievalTask, List<ScoreElement>> pair = future.get();
+        complete &= this.addRetrievalResult(scoreByObjectId, scoreBySegmentId, pair.first, pair.second);
       } catch (InterruptedException e) {
-        // Ignore
+        /* The task has completed, so its retriever is released as usual. */
+        LOGGER.warn("Interrupted while collecting retrieval results.");
+        Thread.currentThread().interrupt();
+        interrupted = true;
+        break;
+      } catch (ExecutionException e) {
+        LOGGER.warn(LogHelper.getStackTrace(e));
+        failed.add(task.task.getRetriever());
+        complete = false;
+      }
+    }
+    this.complete = complete && !interrupted && tasks.isEmpty();
+
+    for (Entry<Future<Pair<RetrievalTask, List<ScoreElement>>>, TrackedTask> entry : tasks.entrySet()) {
+      Retriever retriever = entry.getValue().task.getRetriever();
+      String name = retriever.getClass().getSimpleName();
+      if (interrupted) {
+        LOGGER.debug("Retriever {} was abandoned because the query was interrupted.", name);
+      } else {
+        LOGGER.warn("Retriever {} missed the query deadline of {} ms; its results are dropped.", name, QUERY_TIMEOUT);
+        RetrievalTaskMonitor.reportTimeout(name);
       }
+      if (!entry.getValue().abandon()) {
+        abandoned.add(retriever);
+      }
+      entry.getKey().cancel(false);
     }
 
     ScoreFusion.fuseObjectsIntoSegments(scoreBySegmentId, scoreByObjectId, mediaSegmentReader);
     return this.normalizeSortTruncate(scoreBySegmentId);
   }
 
-  private void addRetrievalResult(ObjectDoubleMap<String> scoreByObjectId, ObjectDoubleMap<String> scoreBySegmentId, RetrievalTask task, List<ScoreElement> scoreElements) {
+  /**
+   * Adds the weighted scores of a retrieval task to the score maps.
+   *
+   * @return False if the task returned no results at all, true otherwise.
+   */
+  private boolean addRetrievalResult(ObjectDoubleMap<String> scoreByObjectId, ObjectDoubleMap<String> scoreBySegmentId, RetrievalTask task, List<ScoreElement> scoreElements) {
     if (scoreElements == null) {
       LOGGER.warn("Retrieval task {} returned 'null' results.", task);
-      return;
+      return false;
     }
 
     double retrieverWeight = this.retrieverWeights.get(task.getRetriever());
@@ -225,6 +303,7 @@ private void addRetrievalResult(ObjectDoubleMap<String> scoreByObjectId, ObjectD
       }
       this.addScoreElement(scoreById, element, retrieverWeight);
     }
+    return true;
   }
 
   private void addScoreElement(ObjectDoubleMap<String> scoreById, ScoreElement next, double weight) {
@@ -254,11 +333,74 @@ private List<SegmentScoreElement> normalizeSortTruncate(ObjectDoubleMap<String>
     }
   }
 
-  private void finish() {
+  /**
+   * Hands all {@link Retriever}s back to the {@link RetrieverInitializer} except for those that are still in use by an abandoned task. Retrievers whose task failed are discarded rather than released.
+   */
+  private void finish(Set<Retriever> abandoned, Set<Retriever> failed) {
 
     for (ObjectDoubleCursor<Retriever> retrieverWeight : this.retrieverWeights) {
-      retrieverWeight.key.finish();
+      if (abandoned.contains(retrieverWeight.key)) {
+        continue;
+      }
+      if (failed.contains(retrieverWeight.key)) {
+        this.initializer.discard(retrieverWeight.key);
+      } else {
+        this.initializer.release(retrieverWeight.key);
+      }
     }
 
   }
+
+  /**
+   * Wraps a {@link RetrievalTask} so that it can be abandoned once the query deadline has passed. An abandoned task that has not started yet is skipped; one that is still running releases its {@link Retriever} itself once it completes, since the dispatcher has already moved on.
+   */
+  private static final class TrackedTask implements Callable<Pair<RetrievalTask, List<ScoreElement>>> {
+
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int ABANDONED = 3;
+
+    private final RetrievalTask task;
+    private final RetrieverInitializer initializer;
+    private final AtomicInteger state = new AtomicInteger(NEW);
+
+    private TrackedTask(RetrievalTask task, RetrieverInitializer initializer) {
+      this.task = task;
+      this.initializer = initializer;
+    }
+
+    @Override
+    public Pair<RetrievalTask, List<ScoreElement>> call() throws Exception {
+      if (!this.state.compareAndSet(NEW, RUNNING)) {
+        return new Pair<>(this.task, null);
+      }
+      boolean success = false;
+      try {
+        Pair<RetrievalTask, List<ScoreElement>> result = this.task.call();
+        success = true;
+        return result;
+      } finally {
+        if (!this.state.compareAndSet(RUNNING, DONE)) {
+          if (success) {
+            this.initializer.release(this.task.getRetriever());
+          } else {
+            this.initializer.discard(this.task.getRetriever());
+          }
+        }
+      }
+    }
+
+    /**
+     * Abandons this task.
+     *
+     * @return True if the caller remains responsible for releasing the {@link Retriever}, false if the running task takes care of it.
+     */
+    private boolean abandon() {
+      if (this.state.compareAndSet(NEW, ABANDONED)) {
+        return true;
+      }
+      return !this.state.compareAndSet(RUNNING, ABANDONED);
+    }
+  }
 }
@@ -8,10 +8,14 @@
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.data.LimitedQueue;
+import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
 import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
 import org.vitrivr.cineast.core.features.extractor.Extractor;
@@ -25,6 +29,11 @@ public class ExtractionPipeline implements Runnable, ExecutionTimeCounter {
 
   private static final Logger LOGGER = LogManager.getLogger();
 
+  /**
+   * Time in milliseconds the dispatcher waits for a new segment before it checks whether the pipeline has been stopped. Bounds the delay between {@link #stop()} and the shutdown of the pipeline.
+   */
+  private static final long POLL_TIMEOUT_MS = 50;
+
   /**
    * The list of Extractor's that should be executed.
    */
@@ -55,6 +64,11 @@ public class ExtractionPipeline implements Runnable, ExecutionTimeCounter {
    */
   private volatile boolean running = false;
 
+  /**
+   * Flag indicating whether {@link #stop()} has been called. Unlike {@link #running}, it is never reset, such that a stop request that arrives before {@link #run()} has started is not lost.
+   */
+  private boolean stopRequested = false;
+
   /**
    * Default constructor.
    *
@@ -91,9 +105,10 @@ protected void afterExecute(Runnable r, Throwable t) {
   }
 
   /**
-   * Sets the running flag to false which will halt the execution of the ExtractionPipeline as soon as possible. Even when halted, there might still be ExtractionTasks in the executor that have not finished yet!
+   * Sets the running flag to false which will halt the execution of the ExtractionPipeline as soon as possible. Even when halted, there might still be ExtractionTasks in the executor that have not finished yet! If the ExtractionPipeline has not started yet, it processes the segments already emitted and then halts right away.
    */
   public synchronized void stop() {
+    this.stopRequested = true;
     this.running = false;
   }
 
@@ -130,9 +145,9 @@ public boolean emit(SegmentContainer container, int timeout) throws InterruptedE
    */
   @Override
   public void run() {
-    /* Set running flag to true. */
+    /* Set running flag to true, unless the pipeline has been stopped before it started. */
     synchronized (this) {
-      this.running = true;
+      this.running = !this.stopRequested;
     }
 
     /* Process SegmentContainers in Queue: For each Extractor in list dispatch an extraction task. */
@@ -141,16 +156,27 @@ public void run() {
         LOGGER.debug("Received stop signal, still {} elements left", this.segmentQueue.size());
       }
       try {
-        SegmentContainer s = this.segmentQueue.poll(500, TimeUnit.MILLISECONDS);
+        SegmentContainer s = this.segmentQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
         if (s != null) {
           LOGGER.debug("Segment {} is being handed to the extraction pipeline.", s.getId());
+          /* The last task to finish clears the segment; without tasks, it has to be cleared here. */
+          final int tasks = this.extractors.size();
+          final AtomicInteger pending = new AtomicInteger(tasks);
+          if (tasks == 0) {
+            s.clear();
+          }
+          int submitted = 0;
           for (Extractor f : extractors) {
             try {
-              this.executorService.execute(new ExtractionTask(f, s, this));
+              this.executorService.execute(new ExtractionTask(f, s, this, pending));
+              submitted += 1;
               LOGGER.debug("Submitted segment {} for feature {}", s.getId(), f.getClass().getSimpleName());
             } catch (RejectedExecutionException e) {
-              this.segmentQueue.clear();
               LOGGER.fatal("Failed to submit segment {} for feature {}. Aborting...\n{}", s.getId(), f.getClass().getSimpleName(), LogHelper.getStackTrace(e));
+              if (pending.addAndGet(submitted - tasks) == 0) {
+                s.clear();
+              }
+              this.clearSegmentQueue();
               break;
             }
           }
@@ -170,6 +196,17 @@ public void run() {
     }
   }
 
+  /**
+   * Removes all pending segments from the queue and clears them, which releases their cached frames.
+   */
+  private void clearSegmentQueue() {
+    final List<SegmentContainer> dropped = new LinkedList<>();
+    this.segmentQueue.drainTo(dropped);
+    for (SegmentContainer segment : dropped) {
+      segment.clear();
+    }
+  }
+
   /**
    * Starts the ExtractionPipeline by initializing the Extractors.
    */
@@ -194,9 +231,37 @@ private void startup() {
       }
     }
 
+    this.checkFrameRetention();
+
     LOGGER.info("Extraction pipeline is ready with {} extractors.", this.extractors.size());
   }
 
+  /**
+   * Makes sure that the {@link FrameRetention} of the video segments of this run provides the frames every extractor needs, as extractors that are not satisfied would silently see empty frame lists. Otherwise, the extractors are finished and the pipeline fails with the least sufficient retention.
+   */
+  private void checkFrameRetention() {
+    if (this.context.getType() != null && this.context.getType() != MediaType.VIDEO) {
+      return;
+    }
+    final FrameRetention retention = this.context.frameRetention();
+    final List<String> unsatisfied = this.extractors.stream()
+        .filter(e -> !retention.satisfies(e.frameRetention()))
+        .map(e -> e.getClass().getSimpleName() + " (" + e.frameRetention() + ")")
+        .collect(Collectors.toList());
+    if (unsatisfied.isEmpty()) {
+      return;
+    }
+    final FrameRetention required = this.extractors.stream().map(Extractor::frameRetention).reduce(retention, FrameRetention::join);
+    for (Extractor extractor : this.extractors) {
+      try {
+        extractor.finish();
+      } catch (Exception e) {
+        LOGGER.error("Error while shutting down extractor {} : {}", extractor.getClass().getSimpleName(), LogHelper.getStackTrace(e));
+      }
+    }
+    throw new IllegalStateException(String.format("Frame retention %s does not provide the frames needed by %s; configure a frame retention of at least %s.", retention, unsatisfied, required));
+  }
+
   /**
    * Shuts the ExtractionPipeline down. Stops the ExecutorService and finishes the extractors.
    */
@@ -1,5 +1,6 @@
 package org.vitrivr.cineast.standalone.runtime;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.vitrivr.cineast.core.data.segments.SegmentContainer;
@@ -13,10 +14,16 @@ class ExtractionTask implements Runnable {
   private final SegmentContainer shot;
   private final ExecutionTimeCounter etc;
 
-  ExtractionTask(Extractor feature, SegmentContainer shot, ExecutionTimeCounter etc) {
+  /**
+   * Number of tasks for the segment that have not finished yet, shared by all of them. The last one clears the segment, which releases its cached frames.
+   */
+  private final AtomicInteger pending;
+
+  ExtractionTask(Extractor feature, SegmentContainer shot, ExecutionTimeCounter etc, AtomicInteger pending) {
     this.feature = feature;
     this.shot = shot;
     this.etc = etc;
+    this.pending = pending;
   }
 
   @Override
@@ -28,6 +35,11 @@ public void run() {
       feature.processSegment(shot);
     } catch (Exception e) {
       LOGGER.fatal("EXTRACTION ERROR in {}: for segmentId {} \n{}", feature.getClass().getSimpleName(), shot.getId(), LogHelper.getStackTrace(e));
+    } finally {
+      /* Errors are not caught, but the slots of the segment have to be released nevertheless. */
+      if (this.pending.decrementAndGet() == 0) {
+        this.shot.clear();
+      }
     }
     long stop = System.currentTimeMillis();
     if (this.etc != null) {
@@ -0,0 +1,223 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.features.retriever.Retriever;
+import org.vitrivr.cineast.core.features.retriever.RetrieverInitializer;
+import org.vitrivr.cineast.standalone.config.RetrieverConfig;
+import org.vitrivr.cineast.standalone.monitoring.RetrieverPoolMonitor;
+
+/**
+ * Pool of initialized {@link Retriever}s, so that retrievers and their {@link org.vitrivr.cineast.core.db.DBSelector}s are not created and connected anew for every query.
+ * <p>
+ * Retrievers are leased to a single query at a time and handed back via {@link #release(Retriever)}, so any state a retriever keeps (such as the entity its selector has opened) is never shared between concurrent queries. Retrievers whose query failed are {@link #discard(Retriever) discarded} and replaced by a freshly initialized instance on the next lease; {@link #checkHealth()} does the same for idle retrievers that lost their connection and is run periodically once {@link #scheduleHealthChecks(long)} has been called.
+ * <p>
+ * Retrievers that were not leased from this pool are initialized on {@link #initialize(Retriever)} and finished on release, as before.
+ */
+public final class RetrieverPool implements RetrieverInitializer {
+
+  private static final Logger LOGGER = LogManager.getLogger();
+
+  private final DBSelectorSupplier selectorSupplier;
+
+  /**
+   * Idle retrievers per configuration, most recently used first.
+   */
+  private final Map<RetrieverConfig, ArrayDeque<Retriever>> idle = new HashMap<>();
+
+  /**
+   * Pool state of every retriever created by this pool that is currently leased or idle.
+   */
+  private final Map<Retriever, Lease> leases = new IdentityHashMap<>();
+
+  private boolean closed = false;
+
+  private ScheduledExecutorService healthChecks;
+
+  public RetrieverPool(DBSelectorSupplier selectorSupplier) {
+    this.selectorSupplier = selectorSupplier;
+  }
+
+  /**
+   * Leases one {@link Retriever} per configuration, mapped to the configured weight. Retrievers that cannot be instantiated are skipped.
+   */
+  public ObjectDoubleHashMap<Retriever> lease(List<RetrieverConfig> configs) {
+    ObjectDoubleHashMap<Retriever> retrievers = new ObjectDoubleHashMap<>(configs.size());
+    for (RetrieverConfig config : configs) {
+      Retriever retriever = this.lease(config);
+      if (retriever != null) {
+        retrievers.put(retriever, config.getWeight());
+      }
+    }
+    return retrievers;
+  }
+
+  /**
+   * Leases a {@link Retriever} for the given configuration.
+   *
+   * @return An idle retriever or a new one if none is idle; null if the retriever could not be instantiated.
+   */
+  public Retriever lease(RetrieverConfig config) {
+    synchronized (this) {
+      ArrayDeque<Retriever> queue = this.idle.get(config);
+      if (queue != null && !queue.isEmpty()) {
+        return queue.pollFirst();
+      }
+    }
+    Retriever retriever = config.newRetriever();
+    if (retriever == null) {
+      LOGGER.error("Could not instantiate retriever {}.", config.getRetrieverClassName());
+      return null;
+    }
+    synchronized (this) {
+      this.leases.put(retriever, new Lease(config));
+    }
+    return retriever;
+  }
+
+  /**
+   * Initializes the {@link Retriever} unless it already has been initialized by a previous lease.
+   */
+  @Override
+  public void initialize(Retriever r) {
+    Lease lease;
+    synchronized (this) {
+      lease = this.leases.get(r);
+    }
+    if (lease == null) {
+      r.init(this.selectorSupplier);
+    } else if (!lease.initialized) {
+      r.init(this.selectorSupplier);
+      lease.initialized = true;
+    }
+  }
+
+  /**
+   * Returns a leased {@link Retriever} to the pool.
+   */
+  @Override
+  public void release(Retriever r) {
+    synchronized (this) {
+      Lease lease = this.leases.get(r);
+      if (lease != null && !this.closed) {
+        this.idle.computeIfAbsent(lease.config, c -> new ArrayDeque<>()).offerFirst(r);
+        return;
+      }
+      this.leases.remove(r);
+    }
+    r.finish();
+  }
+
+  /**
+   * Finishes the {@link Retriever} and removes it from the pool.
+   */
+  @Override
+  public void discard(Retriever r) {
+    synchronized (this) {
+      this.leases.remove(r);
+    }
+    LOGGER.debug("Discarding retriever {}.", r.getClass().getSimpleName());
+    r.finish();
+  }
+
+  /**
+   * Runs {@link #checkHealth()} in the given interval on a background thread until this pool is closed.
+   *
+   * @param interval Interval in milliseconds; a value of 0 or less disables the checks.
+   */
+  public synchronized void scheduleHealthChecks(long interval) {
+    if (interval <= 0 || this.closed || this.healthChecks != null) {
+      return;
+    }
+    this.healthChecks = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "retriever-pool-health");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.healthChecks.scheduleWithFixedDelay(() -> {
+      try {
+        this.checkHealth();
+      } catch (RuntimeException e) {
+        LOGGER.error("Health check of pooled retrievers failed.", e);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Checks all idle, initialized {@link Retriever}s and discards those that are no longer healthy; they are replaced by new instances on demand. The result is exported via {@link RetrieverPoolMonitor}.
+   *
+   * @return Number of healthy idle retrievers.
+   */
+  public int checkHealth() {
+    List<Retriever> candidates = new ArrayList<>();
+    synchronized (this) {
+      for (ArrayDeque<Retriever> queue : this.idle.values()) {
+        candidates.addAll(queue);
+        queue.clear();
+      }
+    }
+
+    int healthy = 0;
+    int discarded = 0;
+    for (Retriever retriever : candidates) {
+      Lease lease;
+      synchronized (this) {
+        lease = this.leases.get(retriever);
+      }
+      if (lease == null || !lease.initialized || retriever.isHealthy()) {
+        this.release(retriever);
+        healthy++;
+      } else {
+        LOGGER.warn("Retriever {} is unhealthy and will be re-initialized on its next use.", retriever.getClass().getSimpleName());
+        this.discard(retriever);
+        discarded++;
+      }
+    }
+    RetrieverPoolMonitor.reportHealthCheck(healthy, discarded);
+    return healthy;
+  }
+
+  /**
+   * Finishes all idle {@link Retriever}s. Retrievers that are still leased are finished once they are released.
+   */
+  public void close() {
+    List<Retriever> retrievers = new ArrayList<>();
+    synchronized (this) {
+      this.closed = true;
+      if (this.healthChecks != null) {
+        this.healthChecks.shutdownNow();
+        this.healthChecks = null;
+      }
+      for (ArrayDeque<Retriever> queue : this.idle.values()) {
+        retrievers.addAll(queue);
+      }
+      this.idle.clear();
+    }
+    retrievers.forEach(this::discard);
+  }
+
+  private static final class Lease {
+
+    private final RetrieverConfig config;
+
+    /**
+     * Only accessed by the query that currently holds the lease.
+     */
+    private boolean initialized = false;
+
+    private Lease(RetrieverConfig config) {
+      this.config = config;
+    }
+  }
+}
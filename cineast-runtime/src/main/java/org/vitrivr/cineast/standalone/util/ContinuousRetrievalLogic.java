@@ -14,27 +14,28 @@
 import org.vitrivr.cineast.core.data.score.SegmentScoreElement;
 import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
 import org.vitrivr.cineast.core.features.retriever.Retriever;
-import org.vitrivr.cineast.core.features.retriever.RetrieverInitializer;
 import org.vitrivr.cineast.standalone.config.Config;
 import org.vitrivr.cineast.standalone.runtime.ContinuousQueryDispatcher;
+import org.vitrivr.cineast.standalone.runtime.RetrieverPool;
 
 public class ContinuousRetrievalLogic {
 
   private static final Logger LOGGER = LogManager.getLogger();
   private final DatabaseConfig config;
-  private final RetrieverInitializer initializer;
+  private final RetrieverPool initializer;
   private final MediaSegmentReader segmentReader;
 
   public ContinuousRetrievalLogic(DatabaseConfig config) {
     this.config = config;
-    this.initializer = r -> r.init(this.config.getSelectorSupplier());
+    this.initializer = new RetrieverPool(this.config.getSelectorSupplier());
+    this.initializer.scheduleHealthChecks(Config.sharedConfig().getRetriever().getHealthCheckInterval());
     this.segmentReader = new MediaSegmentReader(this.config.getSelectorSupplier().get());
   }
 
   public List<SegmentScoreElement> retrieve(AbstractQueryTermContainer qc, String category,
       ReadableQueryConfig config) {
-    ObjectDoubleHashMap<Retriever> retrievers = Config.sharedConfig().getRetriever()
-        .getRetrieversByCategory(category);
+    ObjectDoubleHashMap<Retriever> retrievers = this.initializer.lease(Config.sharedConfig().getRetriever()
+        .getRetrieverConfigsByCategory(category));
     if (retrievers.isEmpty()) {
       LOGGER.warn("Empty retriever list: \n query {} \n category {} \n config {}\n returning no results", qc, category, config);
       return new ArrayList<>(0);
@@ -43,8 +44,8 @@ public List<SegmentScoreElement> retrieve(AbstractQueryTermContainer qc, String
   }
 
   public List<SegmentScoreElement> retrieve(String segmentId, String category, ReadableQueryConfig config) {
-    ObjectDoubleHashMap<Retriever> retrievers = Config.sharedConfig().getRetriever()
-        .getRetrieversByCategory(category);
+    ObjectDoubleHashMap<Retriever> retrievers = this.initializer.lease(Config.sharedConfig().getRetriever()
+        .getRetrieverConfigsByCategory(category));
     if (retrievers.isEmpty()) {
       LOGGER.warn("Empty retriever list for segmentId {}, category {} and config {}, returning no results", segmentId, category, config);
       return new ArrayList<>(0);
@@ -59,8 +60,7 @@ public List<SegmentScoreElement> retrieve(String segmentId, String category, Rea
    */
   public List<SegmentScoreElement> retrieveByRetrieverName(String segmentId, String retrieverName,
       ReadableQueryConfig config) {
-    Optional<Retriever> retriever = Config.sharedConfig().getRetriever()
-        .getRetrieverByName(retrieverName);
+    Optional<Retriever> retriever = this.leaseByName(retrieverName);
     if (retriever.isEmpty()) {
       return new ArrayList<>(0);
     }
@@ -85,16 +85,29 @@ public List<SegmentScoreElement> retrieveByRetriever(AbstractQueryTermContainer
   public List<SegmentScoreElement> retrieveByRetrieverName(AbstractQueryTermContainer qc,
       String retrieverName,
       ReadableQueryConfig config) {
-    Optional<Retriever> retriever = Config.sharedConfig().getRetriever()
-        .getRetrieverByName(retrieverName);
+    Optional<Retriever> retriever = this.leaseByName(retrieverName);
     if (retriever.isEmpty()) {
       return new ArrayList<>(0);
     }
     return retrieveByRetriever(qc, retriever.get(), config);
   }
 
+  /**
+   * Checks the connections of the idle, pooled retrievers; unhealthy ones are re-initialized on their next use. Also runs periodically, see {@link org.vitrivr.cineast.standalone.config.RetrievalRuntimeConfig#getHealthCheckInterval()}.
+   *
+   * @return Number of healthy idle retrievers.
+   */
+  public int checkHealth() {
+    return this.initializer.checkHealth();
+  }
+
+  private Optional<Retriever> leaseByName(String retrieverName) {
+    return Config.sharedConfig().getRetriever().getRetrieverConfigByName(retrieverName).map(this.initializer::lease);
+  }
+
   public void shutdown() {
     ContinuousQueryDispatcher.shutdown();
+    this.initializer.close();
     segmentReader.close();
   }
 }
@@ -0,0 +1,314 @@
+package org.vitrivr.cineast.standalone.run;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.vitrivr.cineast.core.config.CacheConfig;
+import org.vitrivr.cineast.core.config.IdConfig;
+import org.vitrivr.cineast.core.data.MediaType;
+import org.vitrivr.cineast.core.data.entities.MediaObjectDescriptor;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.segments.ImageSegment;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.ColumnarEntity;
+import org.vitrivr.cineast.core.db.DBSelectorSupplier;
+import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
+import org.vitrivr.cineast.core.extraction.decode.general.Decoder;
+import org.vitrivr.cineast.core.extraction.idgenerator.SequentialObjectIdGenerator;
+import org.vitrivr.cineast.core.extraction.segmenter.general.Segmenter;
+import org.vitrivr.cineast.core.features.extractor.Extractor;
+import org.vitrivr.cineast.standalone.config.Config;
+
+public class GenericExtractionItemHandlerTest {
+
+  private static final int FILES = 12;
+
+  @TempDir
+  Path directory;
+
+  private final List<ExtractionItemContainer> items = new ArrayList<>();
+
+  /**
+   * Time in milliseconds it takes to segment a file, by file name.
+   */
+  private final Map<String, Long> delays = new HashMap<>();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private final AtomicInteger maxActive = new AtomicInteger();
+
+  /**
+   * Ids of the objects whose segments have reached the extractors.
+   */
+  private final Set<String> extracted = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Items in the order in which they have been reported as completed.
+   */
+  private final List<ExtractionItemContainer> completed = new CopyOnWriteArrayList<>();
+
+  private InMemoryStore store;
+
+  @BeforeAll
+  public static void config() {
+    final Config config = new Config();
+    config.setDecoders(new HashMap<>());
+    Config.initSharedConfig(config);
+  }
+
+  @BeforeEach
+  public void setup() throws IOException {
+    this.store = new InMemoryStore();
+    final EntityCreator creator = new InMemoryEntityCreator(this.store);
+    creator.createMultiMediaObjectsEntity();
+    creator.createSegmentEntity();
+    creator.createMetadataEntity();
+    for (int i = 0; i < FILES; i++) {
+      final Path path = this.directory.resolve("image" + i + ".png");
+      ImageIO.write(new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+      this.items.add(new ExtractionItemContainer(new MediaObjectDescriptor(path), null, path));
+    }
+  }
+
+  @Test
+  @DisplayName("A single lane segments one file at a time")
+  public void testSingleLane() {
+    this.items.forEach(item -> this.delays.put(item.getPathForExtraction().getFileName().toString(), 20L));
+    this.extract(1);
+    assertEquals(1, this.maxActive.get());
+    assertEquals(FILES, this.extracted.size());
+  }
+
+  @Test
+  @DisplayName("Files are segmented by as many lanes as configured")
+  public void testLaneScaling() {
+    this.items.forEach(item -> this.delays.put(item.getPathForExtraction().getFileName().toString(), 100L));
+    this.extract(4);
+    assertEquals(4, this.maxActive.get());
+    assertEquals(FILES, this.extracted.size());
+  }
+
+  @Test
+  @DisplayName("Objects are identified, persisted and completed in input order, whatever the order of segmentation")
+  public void testOrder() {
+    final SplittableRandom random = new SplittableRandom(42);
+    this.items.forEach(item -> this.delays.put(item.getPathForExtraction().getFileName().toString(), (long) random.nextInt(50)));
+    this.extract(4);
+
+    final List<String> paths = this.items.stream().map(item -> item.getObject().getPath()).collect(Collectors.toList());
+    final ColumnarEntity objects = this.store.getEntity(MediaObjectDescriptor.ENTITY).orElseThrow();
+    final int[] rows = objects.allRows();
+    final List<String> ids = new ArrayList<>();
+    for (int row : rows) {
+      ids.add(objects.key(row));
+    }
+    final List<String> expected = new ArrayList<>();
+    for (int i = 1; i <= FILES; i++) {
+      expected.add(MediaType.generateId(MediaType.IMAGE, String.format("%07d", i)));
+    }
+    assertEquals(expected, ids);
+    assertEquals(paths, objects.values(rows, objects.columnIndex("path")));
+    assertEquals(paths, this.completed.stream().map(item -> item.getObject().getPath()).collect(Collectors.toList()));
+    assertEquals(Set.copyOf(expected), this.extracted);
+  }
+
+  /**
+   * Extracts all items with the given number of lanes and waits until the extraction is complete.
+   */
+  private void extract(int lanes) {
+    final ExtractionContainerProvider provider = new ListContainerProvider(this.items);
+    final GenericExtractionItemHandler handler = new GenericExtractionItemHandler(provider, this.context(lanes), MediaType.IMAGE);
+    handler.addExtractionCompleteListener(new ExtractionCompleteListener() {
+      @Override
+      public void onCompleted(ExtractionItemContainer path) {
+        GenericExtractionItemHandlerTest.this.completed.add(path);
+      }
+    });
+    handler.run();
+  }
+
+  /**
+   * An {@link ExtractionContextProvider} that extracts images with the {@link DelayedSegmenter} and a single recording extractor, on top of the {@link InMemoryStore} of the test.
+   */
+  private ExtractionContextProvider context(int lanes) {
+    final PersistencyWriterSupplier writers = () -> new InMemoryWriter(this.store);
+    final DBSelectorSupplier selectors = () -> new InMemorySelector(this.store);
+    final List<Extractor> extractors = List.of(new RecordingExtractor());
+    return (ExtractionContextProvider) Proxy.newProxyInstance(ExtractionContextProvider.class.getClassLoader(), new Class[]{ExtractionContextProvider.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "getType":
+          return MediaType.IMAGE;
+        case "extractors":
+          return extractors;
+        case "exporters":
+        case "metadataExtractors":
+          return List.of();
+        case "newSegmenter":
+          return new DelayedSegmenter();
+        case "objectIdGenerator":
+          return new SequentialObjectIdGenerator();
+        case "existenceCheck":
+          return IdConfig.ExistenceCheck.SKIP_IF_EXISTS;
+        case "persistencyWriter":
+          return writers;
+        case "persistencyReader":
+          return selectors;
+        case "threadPoolSize":
+        case "taskQueueSize":
+        case "segmentQueueSize":
+          return 4;
+        case "decoderLanes":
+          return lanes;
+        case "cacheConfig":
+          return new CacheConfig();
+        default:
+          if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+          }
+          return null;
+      }
+    });
+  }
+
+  /**
+   * Segments every image into a single segment, which takes the time configured for its file.
+   */
+  private final class DelayedSegmenter implements Segmenter<BufferedImage> {
+
+    private Decoder<BufferedImage> decoder;
+
+    private String name;
+
+    private volatile boolean complete;
+
+    @Override
+    public void init(Decoder<BufferedImage> decoder, MediaObjectDescriptor object) {
+      this.decoder = decoder;
+      this.name = object.getName();
+      this.complete = false;
+    }
+
+    @Override
+    public SegmentContainer getNext() throws InterruptedException {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        final BufferedImage image = this.decoder.getNext();
+        Thread.sleep(delays.get(this.name));
+        return new ImageSegment(image, CachedDataFactory.getDefault());
+      } finally {
+        active.decrementAndGet();
+        this.complete = true;
+      }
+    }
+
+    @Override
+    public boolean complete() {
+      return this.complete;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public Set<MediaType> getMediaTypes() {
+      return Set.of(MediaType.IMAGE);
+    }
+
+    @Override
+    public void run() {
+    }
+  }
+
+  /**
+   * Records the objects whose segments it receives.
+   */
+  private final class RecordingExtractor implements Extractor {
+
+    @Override
+    public void init(PersistencyWriterSupplier phandlerSupply) {
+    }
+
+    @Override
+    public void processSegment(SegmentContainer shot) {
+      extracted.add(shot.getSuperId());
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
+    }
+
+    @Override
+    public void dropPersistentLayer(Supplier<EntityCreator> supply) {
+    }
+  }
+
+  /**
+   * Provides a fixed list of items and closes once all of them have been taken.
+   */
+  private static final class ListContainerProvider implements ExtractionContainerProvider {
+
+    private final List<ExtractionItemContainer> items;
+
+    private ListContainerProvider(List<ExtractionItemContainer> items) {
+      this.items = new ArrayList<>(items);
+    }
+
+    @Override
+    public synchronized void close() {
+      this.items.clear();
+    }
+
+    @Override
+    public synchronized void addPaths(List<ExtractionItemContainer> pathList) {
+      this.items.addAll(pathList);
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+      return !this.items.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean hasNextAvailable() {
+      return !this.items.isEmpty();
+    }
+
+    @Override
+    public synchronized Optional<ExtractionItemContainer> next() {
+      return this.items.isEmpty() ? Optional.empty() : Optional.of(this.items.remove(0));
+    }
+  }
+}
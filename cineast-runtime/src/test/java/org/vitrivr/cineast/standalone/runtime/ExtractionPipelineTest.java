@@ -0,0 +1,173 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.data.raw.CachedDataFactory;
+import org.vitrivr.cineast.core.data.segments.FrameRetention;
+import org.vitrivr.cineast.core.data.segments.ImageSegment;
+import org.vitrivr.cineast.core.data.segments.SegmentContainer;
+import org.vitrivr.cineast.core.db.PersistencyWriterSupplier;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.db.memory.InMemoryWriter;
+import org.vitrivr.cineast.core.db.setup.EntityCreator;
+import org.vitrivr.cineast.core.extraction.ExtractionContextProvider;
+import org.vitrivr.cineast.core.features.extractor.Extractor;
+
+public class ExtractionPipelineTest {
+
+  /**
+   * Time in milliseconds the pipeline may take to shut down.
+   */
+  private static final long TIMEOUT_MS = 10_000L;
+
+  private final Set<String> extracted = ConcurrentHashMap.newKeySet();
+
+  private final AtomicBoolean finished = new AtomicBoolean(false);
+
+  @Test
+  @DisplayName("A pipeline stopped before it has started shuts down")
+  public void testStopBeforeStart() throws InterruptedException {
+    final ExtractionPipeline pipeline = new ExtractionPipeline(this.context());
+    pipeline.stop();
+    final Thread thread = new Thread(pipeline);
+    thread.start();
+    thread.join(TIMEOUT_MS);
+    assertFalse(thread.isAlive());
+    assertFalse(pipeline.isRunning());
+    assertTrue(this.finished.get());
+  }
+
+  @Test
+  @DisplayName("A pipeline stopped before it has started processes the segments emitted so far")
+  public void testEmitBeforeStop() throws InterruptedException {
+    final ExtractionPipeline pipeline = new ExtractionPipeline(this.context());
+    final SegmentContainer segment = new ImageSegment(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), CachedDataFactory.getDefault());
+    segment.setId("segment");
+    assertTrue(pipeline.emit(segment, 0));
+    pipeline.stop();
+    final Thread thread = new Thread(pipeline);
+    thread.start();
+    thread.join(TIMEOUT_MS);
+    assertFalse(thread.isAlive());
+    assertEquals(Set.of("segment"), this.extracted);
+  }
+
+  @Test
+  @DisplayName("A pipeline fails at setup if the frame retention does not provide the frames its extractors need")
+  public void testInsufficientFrameRetention() {
+    assertThrows(IllegalStateException.class, () -> new ExtractionPipeline(this.context(FrameRetention.MEDIAN, FrameRetention.THUMBNAILS)));
+    assertTrue(this.finished.get());
+    new ExtractionPipeline(this.context(FrameRetention.ALL, FrameRetention.THUMBNAILS));
+    new ExtractionPipeline(this.context(FrameRetention.DECIMATED, FrameRetention.MEDIAN));
+  }
+
+  @Test
+  @DisplayName("Segments are cleared even if there are no extractors")
+  public void testClearWithoutExtractors() throws InterruptedException {
+    final ExtractionPipeline pipeline = new ExtractionPipeline(this.context(FrameRetention.ALL, List.of()));
+    final AtomicBoolean cleared = new AtomicBoolean(false);
+    final SegmentContainer segment = (SegmentContainer) Proxy.newProxyInstance(SegmentContainer.class.getClassLoader(), new Class[]{SegmentContainer.class}, (proxy, method, args) -> {
+      if (method.getName().equals("clear")) {
+        cleared.set(true);
+      }
+      return method.getReturnType() == boolean.class ? false : null;
+    });
+    assertTrue(pipeline.emit(segment, 0));
+    pipeline.stop();
+    final Thread thread = new Thread(pipeline);
+    thread.start();
+    thread.join(TIMEOUT_MS);
+    assertFalse(thread.isAlive());
+    assertTrue(cleared.get());
+  }
+
+  private ExtractionContextProvider context() {
+    return this.context(FrameRetention.ALL, FrameRetention.AGGREGATES);
+  }
+
+  private ExtractionContextProvider context(FrameRetention retention, FrameRetention needed) {
+    return this.context(retention, List.of(new RecordingExtractor(needed)));
+  }
+
+  /**
+   * An {@link ExtractionContextProvider} with the given {@link FrameRetention} and extractors.
+   */
+  private ExtractionContextProvider context(FrameRetention retention, List<Extractor> extractors) {
+    final InMemoryStore store = new InMemoryStore();
+    final PersistencyWriterSupplier writers = () -> new InMemoryWriter(store);
+    return (ExtractionContextProvider) Proxy.newProxyInstance(ExtractionContextProvider.class.getClassLoader(), new Class[]{ExtractionContextProvider.class}, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "extractors":
+          return extractors;
+        case "exporters":
+        case "metadataExtractors":
+          return List.of();
+        case "persistencyWriter":
+          return writers;
+        case "frameRetention":
+          return retention;
+        case "threadPoolSize":
+        case "taskQueueSize":
+        case "segmentQueueSize":
+          return 2;
+        default:
+          if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+          }
+          return null;
+      }
+    });
+  }
+
+  /**
+   * Records the segments it receives and whether it has been finished.
+   */
+  private final class RecordingExtractor implements Extractor {
+
+    private final FrameRetention needed;
+
+    private RecordingExtractor(FrameRetention needed) {
+      this.needed = needed;
+    }
+
+    @Override
+    public void init(PersistencyWriterSupplier phandlerSupply) {
+    }
+
+    @Override
+    public void processSegment(SegmentContainer shot) {
+      extracted.add(shot.getId());
+    }
+
+    @Override
+    public void finish() {
+      finished.set(true);
+    }
+
+    @Override
+    public FrameRetention frameRetention() {
+      return this.needed;
+    }
+
+    @Override
+    public void initalizePersistentLayer(Supplier<EntityCreator> supply) {
+    }
+
+    @Override
+    public void dropPersistentLayer(Supplier<EntityCreator> supply) {
+    }
+  }
+}
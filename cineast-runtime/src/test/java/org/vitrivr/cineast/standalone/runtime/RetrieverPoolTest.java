@@ -0,0 +1,160 @@
+package org.vitrivr.cineast.standalone.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.carrotsearch.hppc.ObjectDoubleHashMap;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.vitrivr.cineast.core.config.QueryConfig;
+import org.vitrivr.cineast.core.db.DBSelector;
+import org.vitrivr.cineast.core.db.dao.reader.MediaSegmentReader;
+import org.vitrivr.cineast.core.db.memory.InMemoryEntityCreator;
+import org.vitrivr.cineast.core.db.memory.InMemorySelector;
+import org.vitrivr.cineast.core.db.memory.InMemoryStore;
+import org.vitrivr.cineast.core.features.AverageColor;
+import org.vitrivr.cineast.core.features.retriever.Retriever;
+import org.vitrivr.cineast.standalone.config.Config;
+import org.vitrivr.cineast.standalone.config.RetrievalRuntimeConfig;
+import org.vitrivr.cineast.standalone.config.RetrieverConfig;
+
+public class RetrieverPoolTest {
+
+  private final RetrieverConfig config = new RetrieverConfig(AverageColor.class);
+
+  /**
+   * One entry per selector handed out by the pool's supplier.
+   */
+  private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+  private InMemoryStore store;
+
+  private RetrieverPool pool;
+
+  @BeforeAll
+  public static void config() {
+    final Config config = new Config();
+    config.setRetriever(new RetrievalRuntimeConfig());
+    Config.initSharedConfig(config);
+  }
+
+  @BeforeEach
+  public void setup() {
+    this.store = new InMemoryStore();
+    new AverageColor().initalizePersistentLayer(() -> new InMemoryEntityCreator(this.store));
+    this.pool = new RetrieverPool(() -> {
+      final Connection connection = new Connection(new InMemorySelector(this.store));
+      this.connections.add(connection);
+      return connection.selector();
+    });
+  }
+
+  @AfterEach
+  public void teardown() {
+    this.pool.close();
+  }
+
+  @Test
+  @DisplayName("A query on a dead connection discards the retriever")
+  public void testDiscardOnFailedQuery() {
+    final Retriever retriever = this.leaseInitialized();
+    this.connections.get(0).alive = false;
+
+    final ObjectDoubleHashMap<Retriever> retrievers = new ObjectDoubleHashMap<>();
+    retrievers.put(retriever, 1d);
+    ContinuousQueryDispatcher.retrieve("segment", retrievers, this.pool, new QueryConfig(null), new MediaSegmentReader(new InMemorySelector(this.store)));
+    assertEquals(1, this.connections.get(0).closed.get());
+
+    final Retriever fresh = this.leaseInitialized();
+    assertNotSame(retriever, fresh);
+    assertEquals(2, this.connections.size());
+    assertTrue(fresh.isHealthy());
+  }
+
+  @Test
+  @DisplayName("A health check discards idle retrievers with a dead connection")
+  public void testHealthCheck() {
+    final Retriever retriever = this.leaseInitialized();
+    this.pool.release(retriever);
+    assertEquals(1, this.pool.checkHealth());
+    assertSame(retriever, this.pool.lease(this.config));
+    this.pool.release(retriever);
+
+    this.connections.get(0).alive = false;
+    assertEquals(0, this.pool.checkHealth());
+    assertEquals(1, this.connections.get(0).closed.get());
+    final Retriever fresh = this.leaseInitialized();
+    assertNotSame(retriever, fresh);
+    assertTrue(fresh.isHealthy());
+  }
+
+  @Test
+  @DisplayName("Scheduled health checks discard idle retrievers with a dead connection")
+  public void testScheduledHealthCheck() throws InterruptedException {
+    final Retriever retriever = this.leaseInitialized();
+    this.pool.release(retriever);
+    this.connections.get(0).alive = false;
+    this.pool.scheduleHealthChecks(10);
+    final long deadline = System.currentTimeMillis() + 10_000;
+    while (this.connections.get(0).closed.get() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, this.connections.get(0).closed.get());
+    assertNotSame(retriever, this.leaseInitialized());
+  }
+
+  private Retriever leaseInitialized() {
+    final Retriever retriever = this.pool.lease(this.config);
+    this.pool.initialize(retriever);
+    return retriever;
+  }
+
+  /**
+   * A {@link DBSelector} whose connection can be killed. Once dead, every call fails like a Cottontail DB selector that lost its channel, and pings fail.
+   */
+  private static final class Connection {
+
+    private final DBSelector delegate;
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private volatile boolean alive = true;
+
+    private Connection(DBSelector delegate) {
+      this.delegate = delegate;
+    }
+
+    private DBSelector selector() {
+      return (DBSelector) Proxy.newProxyInstance(DBSelector.class.getClassLoader(), new Class<?>[]{DBSelector.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "close":
+            this.closed.incrementAndGet();
+            break;
+          case "ping":
+            return this.alive && this.delegate.ping();
+          default:
+            if (!this.alive) {
+              throw new StatusRuntimeException(Status.UNAVAILABLE);
+            }
+        }
+        try {
+          return method.invoke(this.delegate, args);
+        } catch (InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+    }
+  }
+}